@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.benchmarks;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.imagen.JAI;
+import org.eclipse.imagen.KernelJAI;
+import org.eclipse.imagen.operator.MedianFilterDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the "Convolve" and "MedianFilter" area operations for
+ * square kernels and masks of several sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AreaBenchmark {
+
+    @Param({"byte", "ushort", "short", "int", "float", "double"})
+    public String dataType;
+
+    @Param({"1", "3", "4"})
+    public int bands;
+
+    @Param({"3", "5", "7"})
+    public int size;
+
+    private RenderedImage convolve;
+
+    private RenderedImage median;
+
+    @Setup
+    public void setup() {
+        RenderedImage source =
+            BenchmarkImages.createImage(BenchmarkImages.dataType(dataType),
+                                        bands);
+
+        float[] data = new float[size * size];
+        Arrays.fill(data, 1.0F / data.length);
+        KernelJAI kernel = new KernelJAI(size, size, data);
+
+        ParameterBlock pb = new ParameterBlock();
+        pb.addSource(source);
+        pb.add(kernel);
+        convolve = JAI.create("Convolve", pb, BenchmarkImages.noCacheHints());
+
+        pb = new ParameterBlock();
+        pb.addSource(source);
+        pb.add(MedianFilterDescriptor.MEDIAN_MASK_SQUARE);
+        pb.add(size);
+        median = JAI.create("MedianFilter", pb,
+                            BenchmarkImages.noCacheHints());
+    }
+
+    @Benchmark
+    public void convolve(Blackhole blackhole) {
+        BenchmarkImages.computeTiles(convolve, blackhole);
+    }
+
+    @Benchmark
+    public void medianFilter(Blackhole blackhole) {
+        BenchmarkImages.computeTiles(median, blackhole);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.benchmarks;
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.Interpolation;
+import org.eclipse.imagen.JAI;
+import org.eclipse.imagen.PlanarImage;
+import org.eclipse.imagen.RasterFactory;
+import org.eclipse.imagen.TiledImage;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Source images and helpers shared by the benchmarks.
+ *
+ * <p> All images are filled with the same deterministic pattern so
+ * that results are reproducible from run to run.  The sample values
+ * lie in the range [0, 250] for every data type, which allows the
+ * same lookup tables and thresholds to be used for all of them.
+ */
+final class BenchmarkImages {
+
+    /** The default width and height of the source images. */
+    static final int SIZE = 1024;
+
+    /** The default tile width and height. */
+    static final int TILE_SIZE = 256;
+
+    private BenchmarkImages() {}
+
+    /**
+     * Returns the <code>DataBuffer</code> type constant of a data
+     * type name as used in the <code>@Param</code> annotations.
+     */
+    static int dataType(String name) {
+        if (name.equals("byte")) {
+            return DataBuffer.TYPE_BYTE;
+        } else if (name.equals("ushort")) {
+            return DataBuffer.TYPE_USHORT;
+        } else if (name.equals("short")) {
+            return DataBuffer.TYPE_SHORT;
+        } else if (name.equals("int")) {
+            return DataBuffer.TYPE_INT;
+        } else if (name.equals("float")) {
+            return DataBuffer.TYPE_FLOAT;
+        } else if (name.equals("double")) {
+            return DataBuffer.TYPE_DOUBLE;
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    /** Returns the <code>Interpolation</code> of the given name. */
+    static Interpolation interpolation(String name) {
+        if (name.equals("nearest")) {
+            return Interpolation.getInstance(Interpolation.INTERP_NEAREST);
+        } else if (name.equals("bilinear")) {
+            return Interpolation.getInstance(Interpolation.INTERP_BILINEAR);
+        } else if (name.equals("bicubic")) {
+            return Interpolation.getInstance(Interpolation.INTERP_BICUBIC);
+        } else if (name.equals("bicubic2")) {
+            return Interpolation.getInstance(Interpolation.INTERP_BICUBIC_2);
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    /**
+     * Creates a pixel interleaved image of the default size and
+     * tiling.
+     */
+    static TiledImage createImage(int dataType, int numBands) {
+        return createImage(dataType, numBands, 0, 0, SIZE, SIZE, TILE_SIZE);
+    }
+
+    /** Creates a pixel interleaved image filled with a pattern. */
+    static TiledImage createImage(int dataType, int numBands,
+                                  int minX, int minY,
+                                  int width, int height,
+                                  int tileSize) {
+        SampleModel sampleModel =
+            RasterFactory.createPixelInterleavedSampleModel(dataType,
+                                                            tileSize,
+                                                            tileSize,
+                                                            numBands);
+        TiledImage image =
+            new TiledImage(minX, minY, width, height, minX, minY,
+                           sampleModel,
+                           PlanarImage.createColorModel(sampleModel));
+
+        int[] line = new int[width * numBands];
+        for (int tileY = image.getMinTileY();
+             tileY <= image.getMaxTileY(); tileY++) {
+            for (int tileX = image.getMinTileX();
+                 tileX <= image.getMaxTileX(); tileX++) {
+                WritableRaster tile = image.getWritableTile(tileX, tileY);
+                int x0 = Math.max(tile.getMinX(), minX);
+                int x1 = Math.min(tile.getMinX() + tile.getWidth(),
+                                  minX + width);
+                int y0 = Math.max(tile.getMinY(), minY);
+                int y1 = Math.min(tile.getMinY() + tile.getHeight(),
+                                  minY + height);
+
+                for (int y = y0; y < y1; y++) {
+                    int i = 0;
+                    for (int x = x0; x < x1; x++) {
+                        for (int b = 0; b < numBands; b++) {
+                            line[i++] = (x * 7 + y * 13 + b * 31) % 251;
+                        }
+                    }
+                    tile.setPixels(x0, y, x1 - x0, 1, line);
+                }
+                image.releaseWritableTile(tileX, tileY);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Returns rendering hints which disable tile caching, so that each
+     * tile request recomputes the tile, and set the tile size of the
+     * destination.
+     */
+    static RenderingHints noCacheHints() {
+        ImageLayout layout = new ImageLayout();
+        layout.setTileWidth(TILE_SIZE);
+        layout.setTileHeight(TILE_SIZE);
+
+        RenderingHints hints = new RenderingHints(JAI.KEY_IMAGE_LAYOUT,
+                                                  layout);
+        hints.put(JAI.KEY_TILE_CACHE, JAI.createTileCache(0L));
+        return hints;
+    }
+
+    /** Requests every tile of an image in raster order. */
+    static void computeTiles(RenderedImage image, Blackhole blackhole) {
+        int minTileX = image.getMinTileX();
+        int minTileY = image.getMinTileY();
+        int maxTileX = minTileX + image.getNumXTiles() - 1;
+        int maxTileY = minTileY + image.getNumYTiles() - 1;
+
+        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+            for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                blackhole.consume(image.getTile(tileX, tileY));
+            }
+        }
+    }
+}
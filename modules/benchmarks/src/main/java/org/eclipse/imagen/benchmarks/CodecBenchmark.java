@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.benchmarks;
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.imagen.media.codec.ByteArraySeekableStream;
+import org.eclipse.imagen.media.codec.ImageCodec;
+import org.eclipse.imagen.media.codec.ImageEncodeParam;
+import org.eclipse.imagen.media.codec.ImageEncoder;
+import org.eclipse.imagen.media.codec.TIFFEncodeParam;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures decoding and encoding of in-memory images with the codecs
+ * of <code>org.eclipse.imagen.media.codec</code>.  Decoding requests
+ * every tile of the decoded image so that formats which decode lazily
+ * are measured in full.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"tiff", "tiff-tiled", "tiff-packbits", "tiff-deflate",
+            "png", "bmp"})
+    public String format;
+
+    @Param({"1", "3"})
+    public int bands;
+
+    private RenderedImage image;
+
+    private String codecName;
+
+    private ImageEncodeParam encodeParam;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        image = BenchmarkImages.createImage(DataBuffer.TYPE_BYTE, bands);
+
+        if (format.startsWith("tiff")) {
+            codecName = "TIFF";
+            TIFFEncodeParam param = new TIFFEncodeParam();
+            if (format.equals("tiff-tiled")) {
+                param.setWriteTiled(true);
+                param.setTileSize(BenchmarkImages.TILE_SIZE,
+                                  BenchmarkImages.TILE_SIZE);
+            } else if (format.equals("tiff-packbits")) {
+                param.setCompression(TIFFEncodeParam.COMPRESSION_PACKBITS);
+            } else if (format.equals("tiff-deflate")) {
+                param.setCompression(TIFFEncodeParam.COMPRESSION_DEFLATE);
+            }
+            encodeParam = param;
+        } else if (format.equals("png")) {
+            codecName = "PNG";
+        } else {
+            codecName = "BMP";
+        }
+
+        encoded = encodeImage().toByteArray();
+    }
+
+    private ByteArrayOutputStream encodeImage() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageEncoder encoder =
+            ImageCodec.createImageEncoder(codecName, out, encodeParam);
+        encoder.encode(image);
+        return out;
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) throws IOException {
+        RenderedImage decoded =
+            ImageCodec.createImageDecoder(codecName,
+                                          new ByteArraySeekableStream(encoded),
+                                          null).decodeAsRenderedImage();
+        BenchmarkImages.computeTiles(decoded, blackhole);
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        return encodeImage().size();
+    }
+}
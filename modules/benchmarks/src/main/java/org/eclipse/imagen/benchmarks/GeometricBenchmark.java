@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.benchmarks;
+import java.awt.geom.AffineTransform;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.imagen.Interpolation;
+import org.eclipse.imagen.JAI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the "Affine" and "Scale" operations with each of the
+ * standard interpolations.  The affine transform combines a rotation
+ * with a non-uniform scale so that the general affine code paths are
+ * exercised rather than the copy or integral-translate special cases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeometricBenchmark {
+
+    @Param({"byte", "ushort", "short", "int", "float", "double"})
+    public String dataType;
+
+    @Param({"1", "3", "4"})
+    public int bands;
+
+    @Param({"nearest", "bilinear", "bicubic", "bicubic2"})
+    public String interpolation;
+
+    private RenderedImage affine;
+
+    private RenderedImage scale;
+
+    @Setup
+    public void setup() {
+        RenderedImage source =
+            BenchmarkImages.createImage(BenchmarkImages.dataType(dataType),
+                                        bands);
+        Interpolation interp = BenchmarkImages.interpolation(interpolation);
+
+        AffineTransform transform =
+            AffineTransform.getRotateInstance(Math.toRadians(30.0),
+                                              source.getWidth() / 2.0,
+                                              source.getHeight() / 2.0);
+        transform.scale(1.1, 0.9);
+
+        ParameterBlock pb = new ParameterBlock();
+        pb.addSource(source);
+        pb.add(transform);
+        pb.add(interp);
+        affine = JAI.create("Affine", pb, BenchmarkImages.noCacheHints());
+
+        pb = new ParameterBlock();
+        pb.addSource(source);
+        pb.add(1.7F);
+        pb.add(1.3F);
+        pb.add(0.0F);
+        pb.add(0.0F);
+        pb.add(interp);
+        scale = JAI.create("Scale", pb, BenchmarkImages.noCacheHints());
+    }
+
+    @Benchmark
+    public void affine(Blackhole blackhole) {
+        BenchmarkImages.computeTiles(affine, blackhole);
+    }
+
+    @Benchmark
+    public void scale(Blackhole blackhole) {
+        BenchmarkImages.computeTiles(scale, blackhole);
+    }
+}
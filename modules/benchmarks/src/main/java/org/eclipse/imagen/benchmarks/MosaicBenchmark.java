@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.benchmarks;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.imagen.JAI;
+import org.eclipse.imagen.operator.MosaicDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the "Mosaic" operation over a square grid of overlapping
+ * source images, in both overlay and blend mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MosaicBenchmark {
+
+    /** The width and height of each source image. */
+    private static final int SOURCE_SIZE = 320;
+
+    /** The overlap of adjacent source images. */
+    private static final int OVERLAP = 64;
+
+    @Param({"byte", "ushort", "short", "int", "float", "double"})
+    public String dataType;
+
+    @Param({"1", "3"})
+    public int bands;
+
+    /** The number of source images along each axis. */
+    @Param({"2", "4", "8"})
+    public int grid;
+
+    private RenderedImage overlay;
+
+    private RenderedImage blend;
+
+    @Setup
+    public void setup() {
+        int type = BenchmarkImages.dataType(dataType);
+        int step = SOURCE_SIZE - OVERLAP;
+
+        ParameterBlock sources = new ParameterBlock();
+        for (int j = 0; j < grid; j++) {
+            for (int i = 0; i < grid; i++) {
+                sources.addSource(
+                    BenchmarkImages.createImage(type, bands,
+                                                i * step, j * step,
+                                                SOURCE_SIZE, SOURCE_SIZE,
+                                                BenchmarkImages.TILE_SIZE));
+            }
+        }
+
+        ParameterBlock pb = (ParameterBlock)sources.clone();
+        pb.add(MosaicDescriptor.MOSAIC_TYPE_OVERLAY);
+        overlay = JAI.create("Mosaic", pb, BenchmarkImages.noCacheHints());
+
+        pb = (ParameterBlock)sources.clone();
+        pb.add(MosaicDescriptor.MOSAIC_TYPE_BLEND);
+        blend = JAI.create("Mosaic", pb, BenchmarkImages.noCacheHints());
+    }
+
+    @Benchmark
+    public void overlay(Blackhole blackhole) {
+        BenchmarkImages.computeTiles(overlay, blackhole);
+    }
+
+    @Benchmark
+    public void blend(Blackhole blackhole) {
+        BenchmarkImages.computeTiles(blend, blackhole);
+    }
+}
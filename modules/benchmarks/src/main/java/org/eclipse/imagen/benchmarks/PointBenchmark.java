@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.benchmarks;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.imagen.JAI;
+import org.eclipse.imagen.LookupTableJAI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the "Lookup" and "BandCombine" point operations.  Each
+ * operation has its own state since "Lookup" is only defined for
+ * integral source data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PointBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LookupState {
+
+        @Param({"byte", "ushort", "short", "int"})
+        public String dataType;
+
+        @Param({"1", "3", "4"})
+        public int bands;
+
+        @Param({"byte", "short", "int", "float"})
+        public String tableType;
+
+        RenderedImage image;
+
+        @Setup
+        public void setup() {
+            RenderedImage source =
+                BenchmarkImages.createImage(
+                    BenchmarkImages.dataType(dataType), bands);
+
+            // One table per band covering the sample range [0, 250].
+            LookupTableJAI table;
+            if (tableType.equals("byte")) {
+                byte[][] data = new byte[bands][256];
+                for (int b = 0; b < bands; b++) {
+                    for (int i = 0; i < 256; i++) {
+                        data[b][i] = (byte)(255 - i + b);
+                    }
+                }
+                table = new LookupTableJAI(data);
+            } else if (tableType.equals("short")) {
+                short[][] data = new short[bands][256];
+                for (int b = 0; b < bands; b++) {
+                    for (int i = 0; i < 256; i++) {
+                        data[b][i] = (short)(i * 100 - b);
+                    }
+                }
+                table = new LookupTableJAI(data, false);
+            } else if (tableType.equals("int")) {
+                int[][] data = new int[bands][256];
+                for (int b = 0; b < bands; b++) {
+                    for (int i = 0; i < 256; i++) {
+                        data[b][i] = i * i - b;
+                    }
+                }
+                table = new LookupTableJAI(data);
+            } else {
+                float[][] data = new float[bands][256];
+                for (int b = 0; b < bands; b++) {
+                    for (int i = 0; i < 256; i++) {
+                        data[b][i] = (float)Math.sqrt(i) + b;
+                    }
+                }
+                table = new LookupTableJAI(data);
+            }
+
+            ParameterBlock pb = new ParameterBlock();
+            pb.addSource(source);
+            pb.add(table);
+            image = JAI.create("Lookup", pb, BenchmarkImages.noCacheHints());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BandCombineState {
+
+        @Param({"byte", "ushort", "short", "int", "float", "double"})
+        public String dataType;
+
+        @Param({"1", "3", "4"})
+        public int bands;
+
+        RenderedImage image;
+
+        @Setup
+        public void setup() {
+            RenderedImage source =
+                BenchmarkImages.createImage(
+                    BenchmarkImages.dataType(dataType), bands);
+
+            // A band-mixing matrix with a constant column.
+            double[][] matrix = new double[bands][bands + 1];
+            for (int i = 0; i < bands; i++) {
+                for (int j = 0; j < bands; j++) {
+                    matrix[i][j] = i == j ? 0.5 : 0.5 / bands;
+                }
+                matrix[i][bands] = i;
+            }
+
+            ParameterBlock pb = new ParameterBlock();
+            pb.addSource(source);
+            pb.add(matrix);
+            image = JAI.create("BandCombine", pb,
+                               BenchmarkImages.noCacheHints());
+        }
+    }
+
+    @Benchmark
+    public void lookup(LookupState state, Blackhole blackhole) {
+        BenchmarkImages.computeTiles(state.image, blackhole);
+    }
+
+    @Benchmark
+    public void bandCombine(BandCombineState state, Blackhole blackhole) {
+        BenchmarkImages.computeTiles(state.image, blackhole);
+    }
+}
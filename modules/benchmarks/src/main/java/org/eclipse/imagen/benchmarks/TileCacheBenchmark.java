@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.benchmarks;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.imagen.TileCache;
+import org.eclipse.imagen.TiledImage;
+import org.eclipse.imagen.media.util.ConcurrentTileCache;
+import org.eclipse.imagen.media.util.SunTileCache;
+import org.eclipse.imagen.media.util.TieredTileCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the <code>TileCache</code>
+ * implementations under concurrent access: lookups of resident tiles,
+ * and additions to a cache too small to hold every tile so that each
+ * addition triggers memory control.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TileCacheBenchmark {
+
+    /** The number of tiles along each axis of the owner image. */
+    private static final int NUM_TILES = 32;
+
+    /** The width and height of the cached tiles. */
+    private static final int TILE_SIZE = 64;
+
+    @Param({"SunTileCache", "ConcurrentTileCache", "TieredTileCache"})
+    public String cache;
+
+    private TiledImage owner;
+
+    private Raster[] tiles;
+
+    /** A cache holding every tile of the owner. */
+    private TileCache fullCache;
+
+    /** A cache holding a quarter of the tiles of the owner. */
+    private TileCache smallCache;
+
+    @Setup
+    public void setup() {
+        owner = BenchmarkImages.createImage(DataBuffer.TYPE_BYTE, 1, 0, 0,
+                                            NUM_TILES * TILE_SIZE,
+                                            NUM_TILES * TILE_SIZE,
+                                            TILE_SIZE);
+        tiles = new Raster[NUM_TILES * NUM_TILES];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = owner.getTile(i % NUM_TILES, i / NUM_TILES);
+        }
+
+        long tileBytes = TILE_SIZE * TILE_SIZE;
+        fullCache = createCache(2 * tileBytes * tiles.length);
+        smallCache = createCache(tileBytes * tiles.length / 4);
+
+        for (int i = 0; i < tiles.length; i++) {
+            fullCache.add(owner, i % NUM_TILES, i / NUM_TILES, tiles[i]);
+        }
+    }
+
+    private TileCache createCache(long memoryCapacity) {
+        if (cache.equals("SunTileCache")) {
+            return new SunTileCache(memoryCapacity);
+        } else if (cache.equals("TieredTileCache")) {
+            // Evicted tiles spill off-heap instead of being recomputed.
+            return new TieredTileCache(memoryCapacity,
+                                       4 * TILE_SIZE * TILE_SIZE * tiles.length);
+        }
+        return new ConcurrentTileCache(memoryCapacity);
+    }
+
+    @Benchmark
+    public Raster getTile() {
+        int i = ThreadLocalRandom.current().nextInt(tiles.length);
+        return fullCache.getTile(owner, i % NUM_TILES, i / NUM_TILES);
+    }
+
+    @Benchmark
+    public Raster addTile() {
+        int i = ThreadLocalRandom.current().nextInt(tiles.length);
+        int tileX = i % NUM_TILES;
+        int tileY = i / NUM_TILES;
+        Raster tile = smallCache.getTile(owner, tileX, tileY);
+        if (tile == null) {
+            tile = tiles[i];
+            smallCache.add(owner, tileX, tileY, tile);
+        }
+        return tile;
+    }
+}
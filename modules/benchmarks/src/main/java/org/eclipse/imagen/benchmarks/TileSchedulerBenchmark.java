@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.benchmarks;
+import java.awt.Point;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.imagen.JAI;
+import org.eclipse.imagen.KernelJAI;
+import org.eclipse.imagen.OpImage;
+import org.eclipse.imagen.PlanarImage;
+import org.eclipse.imagen.RenderedOp;
+import org.eclipse.imagen.TileComputationListener;
+import org.eclipse.imagen.TileRequest;
+import org.eclipse.imagen.TileScheduler;
+import org.eclipse.imagen.media.util.ForkJoinTileScheduler;
+import org.eclipse.imagen.media.util.SunTileScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the <code>TileScheduler</code> implementations computing
+ * every tile of a convolved image, both through the blocking
+ * <code>scheduleTiles()</code> method and through the non-blocking
+ * method which notifies <code>TileComputationListener</code>s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TileSchedulerBenchmark {
+
+    @Param({"SunTileScheduler", "ForkJoinTileScheduler"})
+    public String scheduler;
+
+    /** The tile width and height of the scheduled image. */
+    @Param({"64", "256"})
+    public int tileSize;
+
+    private TileScheduler tileScheduler;
+
+    private OpImage image;
+
+    private Point[] tileIndices;
+
+    @Setup
+    public void setup() {
+        if (scheduler.equals("SunTileScheduler")) {
+            tileScheduler = new SunTileScheduler();
+        } else {
+            tileScheduler = new ForkJoinTileScheduler();
+        }
+        tileScheduler.setParallelism(
+            Runtime.getRuntime().availableProcessors());
+
+        PlanarImage source =
+            BenchmarkImages.createImage(DataBuffer.TYPE_BYTE,
+                                        3, 0, 0,
+                                        2 * BenchmarkImages.SIZE,
+                                        2 * BenchmarkImages.SIZE,
+                                        tileSize);
+
+        float[] data = new float[25];
+        Arrays.fill(data, 1.0F / data.length);
+
+        ParameterBlock pb = new ParameterBlock();
+        pb.addSource(source);
+        pb.add(new KernelJAI(5, 5, data));
+        RenderedOp op = JAI.create("Convolve", pb,
+                                   BenchmarkImages.noCacheHints());
+        image = (OpImage)op.getRendering();
+
+        tileIndices = new Point[image.getNumXTiles() * image.getNumYTiles()];
+        int i = 0;
+        for (int tileY = image.getMinTileY();
+             tileY <= image.getMaxTileY(); tileY++) {
+            for (int tileX = image.getMinTileX();
+                 tileX <= image.getMaxTileX(); tileX++) {
+                tileIndices[i++] = new Point(tileX, tileY);
+            }
+        }
+    }
+
+    @Benchmark
+    public Raster[] scheduleTiles() {
+        return tileScheduler.scheduleTiles(image, tileIndices);
+    }
+
+    @Benchmark
+    public void scheduleTilesWithListener(final Blackhole blackhole)
+        throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(tileIndices.length);
+
+        TileComputationListener listener = new TileComputationListener() {
+                public void tileComputed(Object eventSource,
+                                         TileRequest[] requests,
+                                         PlanarImage image,
+                                         int tileX, int tileY,
+                                         Raster tile) {
+                    blackhole.consume(tile);
+                    done.countDown();
+                }
+
+                public void tileCancelled(Object eventSource,
+                                          TileRequest[] requests,
+                                          PlanarImage image,
+                                          int tileX, int tileY) {
+                    done.countDown();
+                }
+
+                public void tileComputationFailure(Object eventSource,
+                                                   TileRequest[] requests,
+                                                   PlanarImage image,
+                                                   int tileX, int tileY,
+                                                   Throwable situation) {
+                    done.countDown();
+                }
+            };
+
+        tileScheduler.scheduleTiles(image, tileIndices,
+                                    new TileComputationListener[] {listener});
+        done.await();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.benchmarks;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.JAI;
+import org.eclipse.imagen.Warp;
+import org.eclipse.imagen.WarpAffine;
+import org.eclipse.imagen.WarpGrid;
+import org.eclipse.imagen.WarpQuadratic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the "Warp" operation for affine, quadratic and grid
+ * warps with each of the standard interpolations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WarpBenchmark {
+
+    @Param({"byte", "ushort", "short", "int", "float", "double"})
+    public String dataType;
+
+    @Param({"1", "3"})
+    public int bands;
+
+    @Param({"nearest", "bilinear", "bicubic"})
+    public String interpolation;
+
+    @Param({"affine", "quadratic", "grid"})
+    public String warp;
+
+    private RenderedImage image;
+
+    @Setup
+    public void setup() {
+        RenderedImage source =
+            BenchmarkImages.createImage(BenchmarkImages.dataType(dataType),
+                                        bands);
+        int size = BenchmarkImages.SIZE;
+
+        // Maps destination to source positions; a mild rotation and
+        // a barrel-like distortion respectively.
+        AffineTransform transform =
+            AffineTransform.getRotateInstance(Math.toRadians(10.0),
+                                              size / 2.0, size / 2.0);
+        WarpAffine affine = new WarpAffine(transform);
+        float c = 0.5F / size;
+        WarpQuadratic quadratic =
+            new WarpQuadratic(new float[] {0.0F, 1.0F, 0.0F, -c, 0.0F, c},
+                              new float[] {0.0F, 0.0F, 1.0F, c, 0.0F, -c});
+
+        Warp w;
+        if (warp.equals("affine")) {
+            w = affine;
+        } else if (warp.equals("quadratic")) {
+            w = quadratic;
+        } else {
+            w = new WarpGrid(quadratic, 0, 32, size / 32, 0, 32, size / 32);
+        }
+
+        // Non-affine warps cannot map the source bounds forward, so
+        // the destination would cover a huge area without a layout.
+        RenderingHints hints = BenchmarkImages.noCacheHints();
+        ImageLayout layout = (ImageLayout)hints.get(JAI.KEY_IMAGE_LAYOUT);
+        layout.setMinX(0);
+        layout.setMinY(0);
+        layout.setWidth(size);
+        layout.setHeight(size);
+
+        ParameterBlock pb = new ParameterBlock();
+        pb.addSource(source);
+        pb.add(w);
+        pb.add(BenchmarkImages.interpolation(interpolation));
+        image = JAI.create("Warp", pb, hints);
+    }
+
+    @Benchmark
+    public void warp(Blackhole blackhole) {
+        BenchmarkImages.computeTiles(image, blackhole);
+    }
+}
@@ -19,12 +19,16 @@ package org.eclipse.imagen.media.codec;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * A subclass of <code>SeekableStream</code> that takes its input
  * from a <code>File</code> or <code>RandomAccessFile</code>.
  * Backwards seeking is supported.  The <code>mark()</code> and
- * <code>reset()</code> methods are supported.
+ * <code>reset()</code> methods are supported.  Positional reads
+ * are forwarded to the <code>FileChannel</code> of the file and
+ * may be issued concurrently by several threads.
  *
  * <p><b> This class is not a committed part of the JAI API.  It may
  * be removed or changed in future releases of JAI.</b>
@@ -188,6 +192,45 @@ public class FileSeekableStream extends SeekableStream {
         }
     }
 
+    /**
+     * Reads from the absolute offset <code>pos</code> using the
+     * <code>FileChannel</code> of the underlying file.  Neither the
+     * stream pointer nor the page cache is touched, so no lock is
+     * required and concurrent callers proceed in parallel.
+     */
+    public int read(long pos, byte[] b, int off, int len)
+        throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        }
+        if ((off < 0) || (len < 0) || (off + len > b.length)) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (pos < 0) {
+            throw new IOException(JaiI18N.getString("FileSeekableStream0"));
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        len = (int)Math.min((long)len, length - pos);
+        if (len <= 0) {
+            return -1;
+        }
+
+        // A FileChannel is closed if the reading thread is interrupted;
+        // do not let a pending interrupt close the shared file.
+        boolean interrupted = Thread.interrupted();
+        try {
+            FileChannel channel = file.getChannel();
+            return channel.read(ByteBuffer.wrap(b, off, len), pos);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /** Forwards the request to the real <code>File</code>. */
     public final void close() throws IOException {
         file.close();
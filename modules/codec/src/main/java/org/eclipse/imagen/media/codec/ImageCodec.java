@@ -26,6 +26,7 @@ import java.awt.image.IndexColorModel;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -479,7 +480,21 @@ public abstract class ImageCodec {
     protected ImageDecoder createImageDecoder(File src,
                                               ImageDecodeParam param)
         throws IOException {
-        return createImageDecoder(new FileSeekableStream(src), param);
+        SeekableStream stream = null;
+        if (MappedFileSeekableStream.isMappingEnabled()) {
+            try {
+                stream = new MappedFileSeekableStream(src);
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (IOException e) {
+                // The file could not be mapped, e.g., due to a lack of
+                // address space, so read it through a RandomAccessFile.
+            }
+        }
+        if (stream == null) {
+            stream = new FileSeekableStream(src);
+        }
+        return createImageDecoder(stream, param);
     }
 
     /**
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.codec;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+/**
+ * A subclass of <code>SeekableStream</code> that takes its input
+ * from a file which is mapped into memory by means of a
+ * <code>FileChannel</code>.  Backwards seeking is supported.  The
+ * <code>mark()</code> and <code>reset()</code> methods are supported.
+ *
+ * <p> The file is mapped read-only in windows of 1 GB so that files
+ * larger than 2 GB may be read.  No data are copied until they are
+ * requested, and reads are served directly from the mapped pages.
+ *
+ * <p> The positional <code>read(long, byte[], int, int)</code> method
+ * neither uses nor modifies the stream pointer and may be called
+ * concurrently by several threads; this allows for example the tiles
+ * of a TIFF image to be decoded in parallel.  The other methods share
+ * the stream pointer and are no more thread-safe than those of other
+ * <code>SeekableStream</code>s.
+ *
+ * <p> The mapped windows cannot be released explicitly; the memory is
+ * unmapped when they are garbage collected after the stream has been
+ * closed.  Files are therefore only mapped on behalf of the application
+ * by <code>ImageCodec</code> and the "fileload" operation when the
+ * system property <code>MAP_FILES</code> is set to "true".
+ *
+ * <p><b> This class is not a committed part of the JAI API.  It may
+ * be removed or changed in future releases of JAI.</b>
+ *
+ * @see FileSeekableStream
+ */
+public class MappedFileSeekableStream extends SeekableStream {
+
+    // Base 2 logarithm of the size of a mapped window
+    private static final int WINDOW_SHIFT = 30;
+
+    // The window size, derived from WINDOW_SHIFT
+    private static final long WINDOW_SIZE = 1L << WINDOW_SHIFT;
+
+    // Binary mask to find the offset of a pointer within a window
+    private static final long WINDOW_MASK = WINDOW_SIZE - 1;
+
+    private FileChannel channel;
+
+    // The mapped windows; only absolute accessors and duplicates are
+    // used so that the buffers themselves are never modified.
+    private MappedByteBuffer[] windows;
+
+    private long length;
+
+    private long pointer = 0L;
+
+    /**
+     * The system property which, when set to "true", makes the codecs
+     * and the "fileload" operation read files through a
+     * <code>MappedFileSeekableStream</code> rather than a
+     * <code>FileSeekableStream</code>.
+     */
+    public static final String MAP_FILES =
+        "org.eclipse.imagen.media.codec.mapFiles";
+
+    /**
+     * Whether the system property <code>MAP_FILES</code> requests
+     * files to be mapped into memory.
+     */
+    public static boolean isMappingEnabled() {
+        Object mapProperty = null;
+        try {
+            mapProperty =
+                AccessController.doPrivileged(new PrivilegedAction() {
+                    public Object run() {
+                        return System.getProperty(MAP_FILES);
+                    }
+                });
+        } catch (SecurityException se) {
+            // as if the property isn't set
+        }
+
+        return mapProperty instanceof String &&
+               ((String)mapProperty).equalsIgnoreCase("true");
+    }
+
+    /**
+     * Constructs a <code>MappedFileSeekableStream</code> from a
+     * <code>FileChannel</code> open for reading.  The whole content
+     * of the channel at the time of construction is mapped.
+     */
+    public MappedFileSeekableStream(FileChannel channel)
+        throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException(
+                JaiI18N.getString("MappedFileSeekableStream1"));
+        }
+        map(channel);
+    }
+
+    /**
+     * Constructs a <code>MappedFileSeekableStream</code> from a
+     * <code>RandomAccessFile</code>.
+     */
+    public MappedFileSeekableStream(RandomAccessFile file)
+        throws IOException {
+        this(file.getChannel());
+    }
+
+    /**
+     * Constructs a <code>MappedFileSeekableStream</code> from a
+     * <code>File</code>.
+     */
+    public MappedFileSeekableStream(File file) throws IOException {
+        mapFile(new RandomAccessFile(file, "r"));
+    }
+
+    /**
+     * Constructs a <code>MappedFileSeekableStream</code> from a
+     * <code>String</code> path name.
+     */
+    public MappedFileSeekableStream(String name) throws IOException {
+        mapFile(new RandomAccessFile(name, "r"));
+    }
+
+    /** Maps a file opened by this class, closing it on failure. */
+    private void mapFile(RandomAccessFile file) throws IOException {
+        try {
+            map(file.getChannel());
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /** Maps the content of the channel in windows. */
+    private void map(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.length = channel.size();
+
+        int numWindows = (int)((length + WINDOW_SIZE - 1) >>> WINDOW_SHIFT);
+        windows = new MappedByteBuffer[numWindows];
+        for (int i = 0; i < numWindows; i++) {
+            long pos = ((long)i) << WINDOW_SHIFT;
+            long size = Math.min(WINDOW_SIZE, length - pos);
+            windows[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                     pos, size);
+        }
+    }
+
+    /** Returns true since seeking backwards is supported. */
+    public final boolean canSeekBackwards() {
+        return true;
+    }
+
+    /**
+     * Returns the current offset in this stream.
+     *
+     * @return     the offset from the beginning of the stream, in bytes,
+     *             at which the next read occurs.
+     */
+    public final long getFilePointer() {
+        return pointer;
+    }
+
+    public final void seek(long pos) throws IOException {
+        if (pos < 0) {
+            throw new IOException(
+                JaiI18N.getString("MappedFileSeekableStream0"));
+        }
+        pointer = pos;
+    }
+
+    /** Returns the length of the mapped file in bytes. */
+    public final long length() {
+        return length;
+    }
+
+    /** Reads the byte at the stream pointer from the mapped file. */
+    public final int read() throws IOException {
+        if (pointer >= length) {
+            return -1;
+        }
+
+        MappedByteBuffer window = windows[(int)(pointer >>> WINDOW_SHIFT)];
+        return window.get((int)(pointer++ & WINDOW_MASK)) & 0xff;
+    }
+
+    /** Reads from the stream pointer in the mapped file. */
+    public final int read(byte[] b, int off, int len) throws IOException {
+        int nbytes = read(pointer, b, off, len);
+        if (nbytes > 0) {
+            pointer += nbytes;
+        }
+        return nbytes;
+    }
+
+    /**
+     * Copies data at the absolute offset <code>pos</code> from the
+     * mapped file.  At most the remainder of the window containing
+     * <code>pos</code> is copied by a single call.  Neither the stream
+     * pointer nor the mapped buffers are modified so no lock is
+     * required.
+     */
+    public int read(long pos, byte[] b, int off, int len)
+        throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        }
+        if ((off < 0) || (len < 0) || (off + len > b.length)) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (pos < 0) {
+            throw new IOException(
+                JaiI18N.getString("MappedFileSeekableStream0"));
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= length) {
+            return -1;
+        }
+
+        MappedByteBuffer window = windows[(int)(pos >>> WINDOW_SHIFT)];
+        int offset = (int)(pos & WINDOW_MASK);
+        len = Math.min(len, window.capacity() - offset);
+
+        // A duplicate has its own position so concurrent reads are safe.
+        ByteBuffer buf = window.duplicate();
+        buf.position(offset);
+        buf.get(b, off, len);
+
+        return len;
+    }
+
+    /**
+     * Closes the underlying channel.  The mapped memory remains valid
+     * until the windows are garbage collected.
+     */
+    public final void close() throws IOException {
+        channel.close();
+    }
+}
@@ -71,6 +71,8 @@ import java.io.IOException;
  * <code>File</code> or <code>RandomAccessFile</code>.  It forwards
  * requests to the real underlying file.  It performs a limited amount
  * of caching in order to avoid excessive I/O costs.
+ * <code>MappedFileSeekableStream</code> maps a file into memory and
+ * supports concurrent positional reads without locking.
  *
  * <p> The <code>SegmentedSeekableStream</code> class performs a
  * different sort of function.  It creates a
@@ -95,6 +97,7 @@ import java.io.IOException;
  * @see FileCacheSeekableStream
  * @see FileSeekableStream
  * @see ForwardSeekableStream
+ * @see MappedFileSeekableStream
  * @see MemoryCacheSeekableStream
  * @see SegmentedSeekableStream
  * @see StreamSegment
@@ -328,6 +331,73 @@ public abstract class SeekableStream
 	} while (n < len);
     }
 
+    // Positional reads
+
+    /**
+     * Reads up to <code>len</code> bytes of data starting at the
+     * absolute stream offset <code>pos</code> into an array of bytes.
+     * The current value of <code>getFilePointer()</code> is not
+     * changed by this method, so it may be used by several threads
+     * to read different portions of the same stream concurrently.
+     *
+     * <p> The default implementation saves the current file pointer,
+     * seeks to <code>pos</code>, reads and restores the file pointer,
+     * all while holding the lock of this stream.  Subclasses which are
+     * able to read from an absolute offset without disturbing the
+     * stream state should override this method so that concurrent
+     * callers do not contend for the lock.
+     *
+     * @param      pos   the offset, measured in bytes from the
+     *                   beginning of the stream, of the first byte
+     *                   to read.
+     * @param      b     the buffer into which the data is read.
+     * @param      off   the start offset in array <code>b</code>
+     *                   at which the data is written.
+     * @param      len   the maximum number of bytes to read.
+     * @return     the total number of bytes read into the buffer, or
+     *             <code>-1</code> if there is no more data because
+     *             <code>pos</code> is at or beyond the end of the stream.
+     * @exception  IOException  if an I/O error occurs.
+     */
+    public int read(long pos, byte[] b, int off, int len)
+        throws IOException {
+        synchronized(this) {
+            long savedPos = getFilePointer();
+            try {
+                seek(pos);
+                return read(b, off, len);
+            } finally {
+                seek(savedPos);
+            }
+        }
+    }
+
+    /**
+     * Reads exactly <code>len</code> bytes starting at the absolute
+     * stream offset <code>pos</code> into the byte array.  The current
+     * value of <code>getFilePointer()</code> is not changed.
+     *
+     * @param      pos   the offset of the first byte to read.
+     * @param      b     the buffer into which the data is read.
+     * @param      off   the start offset of the data.
+     * @param      len   the number of bytes to read.
+     * @exception  EOFException  if this stream reaches the end before reading
+     *               all the bytes.
+     * @exception  IOException   if an I/O error occurs.
+     *
+     * @see #read(long, byte[], int, int)
+     */
+    public final void readFully(long pos, byte[] b, int off, int len)
+        throws IOException {
+        int n = 0;
+        do {
+            int count = this.read(pos + n, b, off + n, len - n);
+            if (count < 0)
+                throw new EOFException();
+            n += count;
+        } while (n < len);
+    }
+
     // Methods from DataInput, plus little-endian versions
 
     /**
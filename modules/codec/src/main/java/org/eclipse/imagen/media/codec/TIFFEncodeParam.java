@@ -102,6 +102,9 @@ public class TIFFEncodeParam implements ImageEncodeParam {
 
     private boolean isLittleEndian = false;
 
+    private int parallelism = 1;
+    private int maxSegmentsInFlight = 0;
+
     /** 
      * Constructs a TIFFEncodeParam object with default values for
      * all parameters.
@@ -437,4 +440,65 @@ public class TIFFEncodeParam implements ImageEncodeParam {
     public boolean getLittleEndian() {
         return this.isLittleEndian;
     }
+
+    /**
+     * Sets the number of threads used to compress the data segments
+     * (strips or tiles) of the image.  If the value is <code>1</code>,
+     * which is the default, the segments are retrieved from the image
+     * and compressed one at a time on the thread which invoked
+     * <code>encode()</code>.
+     *
+     * <p> If the value is greater than <code>1</code>, the encoder
+     * pipelines the work: the source data of upcoming segments are
+     * requested from the image and compressed by that many worker threads
+     * while the calling thread writes the finished segments to the
+     * <code>OutputStream</code> in order.  The encoded stream is identical
+     * to that written by a single thread.  The number of segments held in
+     * memory at any one time is bounded by the value set via
+     * <code>setMaxSegmentsInFlight()</code>.
+     *
+     * @param parallelism The number of compression threads.
+     * @throws IllegalArgumentException if <code>parallelism</code> is
+     * less than <code>1</code>.
+     */
+    public void setParallelism(int parallelism) {
+        if(parallelism < 1) {
+	    throw new IllegalArgumentException(JaiI18N.getString("TIFFEncodeParam2"));
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of threads used to compress the data segments.
+     *
+     * @see #setParallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the maximum number of data segments which may be requested,
+     * compressed or waiting to be written at the same time when more than
+     * one compression thread is used.  Each segment in flight holds the
+     * source data of one strip or tile and its compressed form, so this
+     * value bounds the memory used by the encoder.  A non-positive value,
+     * which is the default, selects twice the number of compression
+     * threads.  This setting is ignored if
+     * <code>getParallelism()</code> returns <code>1</code>.
+     *
+     * @param maxSegmentsInFlight The maximum number of segments in flight.
+     */
+    public void setMaxSegmentsInFlight(int maxSegmentsInFlight) {
+        this.maxSegmentsInFlight = maxSegmentsInFlight;
+    }
+
+    /**
+     * Returns the maximum number of data segments in flight as set via
+     * <code>setMaxSegmentsInFlight()</code>.
+     */
+    public int getMaxSegmentsInFlight() {
+        return maxSegmentsInFlight;
+    }
 }
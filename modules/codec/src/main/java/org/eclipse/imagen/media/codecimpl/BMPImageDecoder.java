@@ -32,7 +32,6 @@ import java.awt.image.IndexColorModel;
 import java.awt.image.MultiPixelPackedSampleModel;
 import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.IOException;
-import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.util.Hashtable;
 import java.util.Enumeration;
@@ -41,6 +40,8 @@ import org.eclipse.imagen.media.codec.ImageCodec;
 import org.eclipse.imagen.media.codec.ImageDecoder;
 import org.eclipse.imagen.media.codec.ImageDecoderImpl;
 import org.eclipse.imagen.media.codec.ImageDecodeParam;
+import org.eclipse.imagen.media.codec.MemoryCacheSeekableStream;
+import org.eclipse.imagen.media.codec.SeekableStream;
 import org.eclipse.imagen.media.codecimpl.ImagingListenerProxy;
 import org.eclipse.imagen.media.codecimpl.util.ImagingException;
 import org.eclipse.imagen.media.codecimpl.util.RasterFactory;
@@ -59,6 +60,11 @@ public class BMPImageDecoder extends ImageDecoderImpl {
             throw new IOException(JaiI18N.getString("BMPImageDecoder8"));
         }
         try {
+            // Strips are decoded on demand and possibly out of order so
+            // the stream has to be able to go back.
+            if (!input.canSeekBackwards()) {
+                input = new MemoryCacheSeekableStream(input);
+            }
             return new BMPImage(input);
         } catch(Exception e) {
             throw CodecUtils.toIOException(e);
@@ -69,7 +75,7 @@ public class BMPImageDecoder extends ImageDecoderImpl {
 class BMPImage extends SimpleRenderedImage {
 
     // BMP variables
-    private BufferedInputStream inputStream;
+    private SeekableStream inputStream;
     private long bitmapFileSize;
     private long bitmapOffset;
     private long compression;
@@ -113,22 +119,33 @@ class BMPImage extends SimpleRenderedImage {
     private static final int BI_RLE4 = 2;
     private static final int BI_BITFIELDS = 3;
 
-    private WritableRaster theTile = null;
+    // Target size in bytes of a decoded strip.
+    private static final int STRIP_SIZE = 64*1024;
+
+    // Stream position of the bitmap data and length of a file scanline.
+    private long dataStart;
+    private int scanlineStride;
+
+    // RLE decoder state saved on entering each strip, in file order.
+    private long rlePosition[];
+    private int rleX[];
+    private int rleRow[];
+    private int rleStrips = 0;
+
+    // The most recently decoded strip.
+    private WritableRaster lastStrip = null;
 
     /**
      * Constructor for BMPImage
      *
      * @param stream
      */
-    public BMPImage(InputStream stream) {
-	if (stream instanceof BufferedInputStream) {
-	    inputStream = (BufferedInputStream)stream;
-	} else {
-	    inputStream = new BufferedInputStream(stream);
-	}
+    public BMPImage(SeekableStream stream) {
+	inputStream = stream;
+	long start = 0;
 	try {
 
-	    inputStream.mark(Integer.MAX_VALUE);
+	    start = inputStream.getFilePointer();
 
 	    // Start File Header
 	    if (!(readUnsignedByte(inputStream) == 'B' &&
@@ -189,7 +206,7 @@ class BMPImage extends SimpleRenderedImage {
 		int numberOfEntries = (int)((bitmapOffset-14-size) / 3);
 		int sizeOfPalette = numberOfEntries*3;
 		palette = new byte[sizeOfPalette];
-		inputStream.read(palette, 0, sizeOfPalette);
+		inputStream.readFully(palette, 0, sizeOfPalette);
 		properties.put("palette", palette);
 	    } else {
 
@@ -235,7 +252,7 @@ class BMPImage extends SimpleRenderedImage {
 			int numberOfEntries = (int)((bitmapOffset-14-size) / 4);
 			int sizeOfPalette = numberOfEntries*4;
 			palette = new byte[sizeOfPalette];
-			inputStream.read(palette, 0, sizeOfPalette);
+			inputStream.readFully(palette, 0, sizeOfPalette);
 			properties.put("palette", palette);
 
 			if (bitsPerPixel == 1) {
@@ -288,7 +305,7 @@ class BMPImage extends SimpleRenderedImage {
 			    // there is a palette
 			    sizeOfPalette = (int)colorsUsed*4;
 			    palette = new byte[sizeOfPalette];
-			    inputStream.read(palette, 0, sizeOfPalette);
+			    inputStream.readFully(palette, 0, sizeOfPalette);
 			    properties.put("palette", palette);
 			}
 
@@ -328,7 +345,7 @@ class BMPImage extends SimpleRenderedImage {
 		    int numberOfEntries = (int)((bitmapOffset-14-size) / 4);
 		    int sizeOfPalette = numberOfEntries*4;
 		    palette = new byte[sizeOfPalette];
-		    inputStream.read(palette, 0, sizeOfPalette);
+		    inputStream.readFully(palette, 0, sizeOfPalette);
 
 		    if (palette != null || palette.length != 0) {
 			properties.put("palette", palette);
@@ -418,9 +435,13 @@ class BMPImage extends SimpleRenderedImage {
 	    height = Math.abs(height);
 	}
 
-	// Reset Image Layout so there's only one tile.
+	// Lay the image out as strips of whole scanlines which are
+	// decoded independently when requested.
+	dataStart = start + bitmapOffset;
+	scanlineStride = ((width*bitsPerPixel + 31)/32)*4;
+	int bytesPerRow = Math.max(1, (width*bitsPerPixel + 7)/8);
 	tileWidth = width;
-	tileHeight = height;
+	tileHeight = Math.max(1, Math.min(height, STRIP_SIZE/bytesPerRow));
 
 	// When number of bitsPerPixel is <= 8, we use IndexColorModel.
  	if (bitsPerPixel == 1 || bitsPerPixel == 4 || bitsPerPixel == 8) {
@@ -431,13 +452,13 @@ class BMPImage extends SimpleRenderedImage {
 		sampleModel =
 		    RasterFactory.createPixelInterleavedSampleModel(
 							   DataBuffer.TYPE_BYTE,
-							   width, height,
+							   width, tileHeight,
 							   numBands);
 	    } else {
 		// 1 and 4 bit pixels can be stored in a packed format.
 		sampleModel =
 		    new MultiPixelPackedSampleModel(DataBuffer.TYPE_BYTE,
-						    width, height,
+						    width, tileHeight,
 						    bitsPerPixel);
 	    }
 
@@ -491,7 +512,7 @@ class BMPImage extends SimpleRenderedImage {
 	    numBands = 3;
             sampleModel =
 		new SinglePixelPackedSampleModel(DataBuffer.TYPE_USHORT,
-						width, height,
+						width, tileHeight,
 						new int[] {redMask, greenMask, blueMask});
 
 	    colorModel =
@@ -509,7 +530,7 @@ class BMPImage extends SimpleRenderedImage {
 
 	    sampleModel =
 	        new SinglePixelPackedSampleModel(DataBuffer.TYPE_INT,
-						 width, height,
+						 width, tileHeight,
 						 bitMasks);
 
 	    colorModel =
@@ -521,576 +542,268 @@ class BMPImage extends SimpleRenderedImage {
 	    // Create SampleModel
 	    sampleModel =
 		RasterFactory.createPixelInterleavedSampleModel(
-                    DataBuffer.TYPE_BYTE, width, height, numBands);
+                    DataBuffer.TYPE_BYTE, width, tileHeight, numBands);
 
 	    colorModel =
 		ImageCodec.createComponentColorModel(sampleModel);
     	}
-
-	try {
-	    inputStream.reset();
-	    inputStream.skip(bitmapOffset);
-	} catch (IOException ioe) {
-            String message = JaiI18N.getString("BMPImageDecoder9");
-            ImagingListenerProxy.errorOccurred(message,
-                                   new ImagingException(message, ioe),
-                                   this, false);
-	}
     }
 
-    // Deal with 1 Bit images using IndexColorModels
-    private void read1Bit(byte[] bdata, int paletteEntries) {
-
-	int padding = 0;
-	int bytesPerScanline = (int)Math.ceil((double)width/8.0);
-
-	int remainder = bytesPerScanline % 4;
-	if (remainder != 0) {
-	    padding = 4 - remainder;
-	}
-
-	int imSize = (bytesPerScanline + padding) * height;
-
-	// Read till we have the whole image
-	byte values[] = new byte[imSize];
-	try {
-	    int bytesRead = 0;
-	    while (bytesRead < imSize) {
-		bytesRead += inputStream.read(values, bytesRead,
-					      imSize - bytesRead);
-	    }
-	} catch (IOException ioe) {
-            String message = JaiI18N.getString("BMPImageDecoder6");
-            ImagingListenerProxy.errorOccurred(message,
-                                   new ImagingException(message, ioe),
-                                   this, false);
-//	    throw new
-//		RuntimeException(JaiI18N.getString("BMPImageDecoder6"));
-	}
-
-	if (isBottomUp) {
-
-	    // Convert the bottom up image to a top down format by copying
-	    // one scanline from the bottom to the top at a time.
-
-	    for (int i=0; i<height; i++) {
- 		System.arraycopy(values,
-				 imSize - (i+1)*(bytesPerScanline + padding),
-				 bdata,
-				 i*bytesPerScanline, bytesPerScanline);
-	    }
-	} else {
-
-	   for (int i=0; i<height; i++) {
- 		System.arraycopy(values,
-				 i * (bytesPerScanline + padding),
-				 bdata,
-				 i * bytesPerScanline,
-				 bytesPerScanline);
-	    }
-	}
+    // Returns the index of the strip that is the n-th one in file order.
+    private int fileStrip(int n) {
+	return isBottomUp ? getNumYTiles() - 1 - n : n;
     }
 
-    // Method to read a 4 bit BMP image data
-    private void read4Bit(byte[] bdata, int paletteEntries) {
-
-	// Padding bytes at the end of each scanline
-	int padding = 0;
-
-	int bytesPerScanline = (int)Math.ceil((double)width/2.0);
-	int remainder = bytesPerScanline % 4;
-	if (remainder != 0) {
-	    padding = 4 - remainder;
-	}
-
-	int imSize = (bytesPerScanline + padding) * height;
-
-	// Read till we have the whole image
-	byte values[] = new byte[imSize];
-	try {
-	    int bytesRead = 0;
-	    while (bytesRead < imSize) {
-		bytesRead += inputStream.read(values, bytesRead,
-					      imSize - bytesRead);
-	    }
-	} catch (IOException ioe) {
-            String message = JaiI18N.getString("BMPImageDecoder6");
-            ImagingListenerProxy.errorOccurred(message,
-                                   new ImagingException(message, ioe),
-                                   this, false);
-//	    throw new
-//		RuntimeException(JaiI18N.getString("BMPImageDecoder6"));
-	}
-
-	if (isBottomUp) {
-
-	    // Convert the bottom up image to a top down format by copying
-	    // one scanline from the bottom to the top at a time.
-	    for (int i=0; i<height; i++) {
- 		System.arraycopy(values,
-				 imSize - (i+1)*(bytesPerScanline + padding),
-				 bdata,
-				 i*bytesPerScanline,
-				 bytesPerScanline);
-	    }
-	} else {
-	    for (int i=0; i<height; i++) {
- 		System.arraycopy(values,
-				 i * (bytesPerScanline + padding),
-				 bdata,
-				 i * bytesPerScanline,
-				 bytesPerScanline);
-	    }
-	}
+    // Returns the first file scanline holding rows of the given strip.
+    private int fileRowStart(int strip) {
+	return isBottomUp ?
+	    height - Math.min((strip + 1)*tileHeight, height) :
+	    strip*tileHeight;
     }
 
-    // Method to read 8 bit BMP image data
-    private void read8Bit(byte[] bdata, int paletteEntries) {
-
-	// Padding bytes at the end of each scanline
-	int padding = 0;
-
-	// width * bitsPerPixel should be divisible by 32
-	int bitsPerScanline = width * 8;
-	if ( bitsPerScanline%32 != 0) {
-	    padding = (bitsPerScanline/32 + 1)*32 - bitsPerScanline;
-	    padding = (int)Math.ceil(padding/8.0);
-	}
-
-	int imSize = (width + padding) * height;
-
-	// Read till we have the whole image
-	byte values[] = new byte[imSize];
-	try {
-	    int bytesRead = 0;
-	    while (bytesRead < imSize) {
-		bytesRead += inputStream.read(values, bytesRead,
-					      imSize - bytesRead);
-	    }
-	} catch (IOException ioe) {
-            String message = JaiI18N.getString("BMPImageDecoder6");
-            ImagingListenerProxy.errorOccurred(message,
-                                   new ImagingException(message, ioe),
-                                   this, false);
-//	    throw new
-//		RuntimeException(JaiI18N.getString("BMPImageDecoder6"));
-	}
-
-	if (isBottomUp) {
-
-	    // Convert the bottom up image to a top down format by copying
-	    // one scanline from the bottom to the top at a time.
-	    for (int i=0; i<height; i++) {
- 		System.arraycopy(values,
-				 imSize - (i+1) * (width + padding),
-				 bdata,
-				 i * width,
-				 width);
-	    }
-	} else {
-	    for (int i=0; i<height; i++) {
- 		System.arraycopy(values,
-				 i * (width + padding),
-				 bdata,
-				 i * width,
-				 width);
-	    }
-	}
-    }
-
-    // Method to read 24 bit BMP image data
-    private void read24Bit(byte[] bdata) {
-	// Padding bytes at the end of each scanline
-	int padding = 0;
-
-	// width * bitsPerPixel should be divisible by 32
-	int bitsPerScanline = width * 24;
-	if ( bitsPerScanline%32 != 0) {
-	    padding = (bitsPerScanline/32 + 1)*32 - bitsPerScanline;
-	    padding = (int)Math.ceil(padding/8.0);
-	}
-
-	int imSize = (int)imageSize;
-	if (imSize == 0) {
-	    imSize = (int)(bitmapFileSize - bitmapOffset);
-	}
-
-	// Read till we have the whole image
-	byte values[] = new byte[imSize];
-	try {
-	    int bytesRead = 0;
-	    while (bytesRead < imSize) {
-		bytesRead += inputStream.read(values, bytesRead,
-					      imSize - bytesRead);
+    // Reads the scanlines of an uncompressed strip with a single
+    // positioned read and unpacks them into the strip's data buffer.
+    private void readStrip(WritableRaster tile, int strip) throws IOException {
+	int minY = strip*tileHeight;
+	int rows = Math.min(tileHeight, height - minY);
+	int firstRow = fileRowStart(strip);
+
+	int size = rows*scanlineStride;
+	byte values[] = new byte[size];
+	int bytesRead = 0;
+	synchronized(inputStream) {
+	    inputStream.seek(dataStart + (long)firstRow*scanlineStride);
+	    while (bytesRead < size) {
+		int n = inputStream.read(values, bytesRead, size - bytesRead);
+		if (n < 0) {
+		    // Truncated file: the remaining rows are left as zeros.
+		    break;
+		}
+		bytesRead += n;
 	    }
-	} catch (IOException ioe) {
-	    // throw new RuntimeException(JaiI18N.getString("BMPImageDecoder6"));
-            String message = JaiI18N.getString("BMPImageDecoder4");
-            ImagingListenerProxy.errorOccurred(message,
-                                   new ImagingException(message, ioe),
-                                   this, false);
-//	    throw new RuntimeException(ioe.getMessage());
 	}
 
-	int l=0, count;
+	DataBuffer db = tile.getDataBuffer();
+	for (int i = 0; i < rows; i++) {
+	    int fileRow = isBottomUp ? height - 1 - (minY + i) : minY + i;
+	    int off = (fileRow - firstRow)*scanlineStride;
 
-	if (isBottomUp) {
-	    int max = width*height*3-1;
-
-	    count = -padding;
-	    for (int i=0; i<height; i++) {
-		l = max - (i+1)*width*3 + 1;
-		count += padding;
-		for (int j=0; j<width; j++) {
-		    bdata[l++] = values[count++];
-		    bdata[l++] = values[count++];
-		    bdata[l++] = values[count++];
+	    if (bitsPerPixel == 16) {
+		short sdata[] = ((DataBufferUShort)db).getData();
+		int l = i*width;
+		for (int j = 0; j < width; j++, off += 2) {
+		    sdata[l++] = (short)((values[off] & 0xff) |
+					 ((values[off + 1] & 0xff) << 8));
 		}
-	    }
-	} else {
-	    count = -padding;
-	    for (int i=0; i<height; i++) {
-		count += padding;
-		for (int j=0; j<width; j++) {
-		    bdata[l++] = values[count++];
-		    bdata[l++] = values[count++];
-		    bdata[l++] = values[count++];
+	    } else if (bitsPerPixel == 32) {
+		int idata[] = ((DataBufferInt)db).getData();
+		int l = i*width;
+		for (int j = 0; j < width; j++, off += 4) {
+		    idata[l++] = (values[off] & 0xff) |
+			((values[off + 1] & 0xff) << 8) |
+			((values[off + 2] & 0xff) << 16) |
+			((values[off + 3] & 0xff) << 24);
 		}
+	    } else {
+		// 1, 4, 8 and 24 bit scanlines are stored exactly as in
+		// the file apart from the padding.
+		byte bdata[] = ((DataBufferByte)db).getData();
+		int bytesPerScanline = (width*bitsPerPixel + 7)/8;
+		System.arraycopy(values, off,
+				 bdata, i*bytesPerScanline, bytesPerScanline);
 	    }
 	}
     }
 
-    private void read16Bit(short sdata[]) {
-	// Padding bytes at the end of each scanline
-	int padding = 0;
-
-	// width * bitsPerPixel should be divisible by 32
-	int bitsPerScanline = width * 16;
-	if ( bitsPerScanline%32 != 0) {
-	    padding = (bitsPerScanline/32 + 1)*32 - bitsPerScanline;
-	    padding = (int)Math.ceil(padding/8.0);
-	}
-
-	int imSize = (int)imageSize;
-	if (imSize == 0) {
-	    imSize = (int)(bitmapFileSize - bitmapOffset);
-	}
-
-	int l=0;
+    // Decodes the RLE4 or RLE8 compressed rows of a strip. Decoding
+    // resumes from the state saved when the strip (or, if it has not
+    // been reached yet, the last strip reached) was first entered so
+    // the stream before it is never decoded twice.
+    private void decodeRLEStrip(WritableRaster tile, int strip)
+	throws IOException {
+
+	int numStrips = getNumYTiles();
+	if (rlePosition == null) {
+	    rlePosition = new long[numStrips];
+	    rleX = new int[numStrips];
+	    rleRow = new int[numStrips];
+	}
+
+	int startRow = fileRowStart(strip);
+	int endRow = startRow + Math.min(tileHeight, height - strip*tileHeight);
+	int minY = strip*tileHeight;
+	int bytesPerScanline = (width*bitsPerPixel + 7)/8;
+	byte bdata[] = ((DataBufferByte)tile.getDataBuffer()).getData();
+
+	// Find the closest saved state at or before this strip.
+	int n = 0;
+	while (n < rleStrips && fileStrip(n) != strip) {
+	    n++;
+	}
+	if (n == rleStrips) {
+	    n = rleStrips - 1;
+	}
+
+	long position;
+	int x, row;
+	if (n < 0) {
+	    position = dataStart;
+	    x = 0;
+	    row = 0;
+	} else {
+	    position = rlePosition[n];
+	    x = rleX[n];
+	    row = rleRow[n];
+	}
+
+	synchronized(inputStream) {
+	    RLEReader in = new RLEReader(position);
+
+	    while (true) {
+		// Remember where every strip started for later requests.
+		while (rleStrips < numStrips &&
+		       row >= fileRowStart(fileStrip(rleStrips))) {
+		    rlePosition[rleStrips] = in.getPosition();
+		    rleX[rleStrips] = x;
+		    rleRow[rleStrips] = row;
+		    rleStrips++;
+		}
 
-	try {
-	    if (isBottomUp) {
-		int max = width*height-1;
+		if (row >= endRow || in.getPosition() < 0) {
+		    break;
+		}
 
-		for (int i=0; i<height; i++) {
-		    l = max - (i+1)*width + 1;
-		    for (int j=0; j<width; j++) {
-			sdata[l++] = (short)(readWord(inputStream) & 0xffff);
-		    }
-		    for (int m=0; m<padding; m++) {
-			inputStream.read();
-		    }
+		int count = in.read();
+		int value = in.read();
+		if (value < 0) {
+		    in.finish();
+		    continue;
 		}
-	    } else {
-		for (int i=0; i<height; i++) {
-		    for (int j=0; j<width; j++) {
-			sdata[l++] = (short)(readWord(inputStream) & 0xffff);
+
+		boolean inStrip = row >= startRow;
+		int l = isBottomUp ?
+		    (height - 1 - row - minY)*bytesPerScanline :
+		    (row - minY)*bytesPerScanline;
+
+		if (count != 0) {
+		    // Encoded run of count pixels.
+		    int end = Math.min(x + count, width);
+		    if (inStrip) {
+			for (int i = 0; x < end; i++, x++) {
+			    if (bitsPerPixel == 8) {
+				bdata[l + x] = (byte)value;
+			    } else {
+				int nibble = (i & 1) == 0 ?
+				    value >> 4 : value & 0x0f;
+				setNibble(bdata, l, x, nibble);
+			    }
+			}
 		    }
-		    for (int m=0; m<padding; m++) {
-			inputStream.read();
+		    x = end;
+		} else if (value == 0) {
+		    // End of line.
+		    x = 0;
+		    row++;
+		} else if (value == 1) {
+		    // End of bitmap.
+		    in.finish();
+		    row = height;
+		} else if (value == 2) {
+		    // Delta: move right and down.
+		    int dx = in.read();
+		    int dy = in.read();
+		    if (dy < 0) {
+			in.finish();
+			continue;
 		    }
-		}
-	    }
-	} catch (IOException ioe) {
-            String message = JaiI18N.getString("BMPImageDecoder6");
-            ImagingListenerProxy.errorOccurred(message,
-                                   new ImagingException(message, ioe),
-                                   this, false);
-//	    throw new RuntimeException(JaiI18N.getString("BMPImageDecoder6"));
-	}
-    }
-
-    private void read32Bit(int idata[]) {
-	int imSize = (int)imageSize;
-	if (imSize == 0) {
-	    imSize = (int)(bitmapFileSize - bitmapOffset);
-	}
-
-	int l=0;
-
-	try {
-	    if (isBottomUp) {
-		int max = width*height-1;
-
-		for (int i=0; i<height; i++) {
-		    l = max - (i+1)*width + 1;
-		    for (int j=0; j<width; j++) {
-			idata[l++] = (int)readDWord(inputStream);
+		    x += dx;
+		    row += dy;
+		} else {
+		    // Absolute run of value pixels padded to a word.
+		    int bytes = bitsPerPixel == 8 ? value : (value + 1)/2;
+		    for (int i = 0; i < bytes; i++) {
+			int b = in.read();
+			if (bitsPerPixel == 8) {
+			    if (inStrip && x < width) {
+				bdata[l + x] = (byte)b;
+			    }
+			    x++;
+			} else {
+			    if (inStrip && x < width) {
+				setNibble(bdata, l, x, (b >> 4) & 0x0f);
+			    }
+			    x++;
+			    if (2*i + 1 < value) {
+				if (inStrip && x < width) {
+				    setNibble(bdata, l, x, b & 0x0f);
+				}
+				x++;
+			    }
+			}
 		    }
-		}
-	    } else {
-		for (int i=0; i<height; i++) {
-		    for (int j=0; j<width; j++) {
-			idata[l++] = (int)readDWord(inputStream);
+		    // Runs are padded to a word. For RLE4 the padding follows
+		    // the whole bytes of the run, as other decoders expect.
+		    if (((bitsPerPixel == 8 ? value : value/2) & 1) != 0) {
+			in.read();
 		    }
+		    x = Math.min(x, width);
 		}
 	    }
-	} catch (IOException ioe) {
-            String message = JaiI18N.getString("BMPImageDecoder6");
-            ImagingListenerProxy.errorOccurred(message,
-                                   new ImagingException(message, ioe),
-                                   this, false);
-//	    throw new RuntimeException(JaiI18N.getString("BMPImageDecoder6"));
 	}
     }
 
-    private void readRLE8(byte bdata[]) {
-
-	// If imageSize field is not provided, calculate it.
-	int imSize = (int)imageSize;
-	if (imSize == 0) {
-	    imSize = (int)(bitmapFileSize - bitmapOffset);
-	}
-
-	int padding = 0;
-	// If width is not 32 bit aligned, then while uncompressing each
-	// scanline will have padding bytes, calculate the amount of padding
-	int remainder = width % 4;
-	if (remainder != 0) {
-	    padding = 4 - remainder;
-	}
-
-	// Read till we have the whole image
-	byte values[] = new byte[imSize];
-	try {
-	    int bytesRead = 0;
-	    while (bytesRead < imSize) {
-		bytesRead += inputStream.read(values, bytesRead,
-					      imSize - bytesRead);
-	    }
-	} catch (IOException ioe) {
-            String message = JaiI18N.getString("BMPImageDecoder6");
-            ImagingListenerProxy.errorOccurred(message,
-                                   new ImagingException(message, ioe),
-                                   this, false);
-//	    throw new RuntimeException(JaiI18N.getString("BMPImageDecoder6"));
-	}
-
-	// Since data is compressed, decompress it
-	byte val[] = decodeRLE8(imSize, padding, values);
-
-	// Uncompressed data does not have any padding
-        imSize = width * height;
-
-	if (isBottomUp) {
-
-	    // Convert the bottom up image to a top down format by copying
-	    // one scanline from the bottom to the top at a time.
-	    // int bytesPerScanline = (int)Math.ceil((double)width/8.0);
-	    int bytesPerScanline = width;
-	    for (int i=0; i<height; i++) {
-		System.arraycopy(val,
-				 imSize - (i+1)*(bytesPerScanline),
-				 bdata,
-				 i*bytesPerScanline, bytesPerScanline);
-	    }
-
+    // Stores a 4 bit index in a MultiPixelPacked scanline.
+    private static void setNibble(byte bdata[], int l, int x, int nibble) {
+	int i = l + (x >> 1);
+	if ((x & 1) == 0) {
+	    bdata[i] = (byte)((bdata[i] & 0x0f) | (nibble << 4));
 	} else {
-
-	    bdata = val;
+	    bdata[i] = (byte)((bdata[i] & 0xf0) | nibble);
 	}
     }
 
-    private byte[] decodeRLE8(int imSize, int padding, byte values[]) {
-
-	byte val[] = new byte[width * height];
-	int count = 0, l = 0;
-	int value;
-	boolean flag = false;
-
-	while (count != imSize) {
-
-	    value = values[count++] & 0xff;
-
-	    if (value == 0) {
-		switch(values[count++] & 0xff) {
-
-		case 0:
-		    // End-of-scanline marker
-		    break;
-
-		case 1:
-		    // End-of-RLE marker
-		    flag = true;
-		    break;
-
-		case 2:
-		    // delta or vector marker
-		    int xoff = values[count++] & 0xff;
-		    int yoff = values[count] & 0xff;
-		    // Move to the position xoff, yoff down
-		    l += xoff + yoff*width;
-		    break;
-
-		default:
-		    int end = values[count-1] & 0xff;
-		    for (int i=0; i<end; i++) {
-			val[l++] = (byte)(values[count++] & 0xff);
-		    }
-
-		    // Whenever end pixels can fit into odd number of bytes,
-		    // an extra padding byte will be present, so skip that.
-		    if (!isEven(end)) {
-			count++;
-		    }
-		}
-	    } else {
-		for (int i=0; i<value; i++) {
-		    val[l++] = (byte)(values[count] & 0xff);
-		}
-		count++;
-	    }
+    /**
+     * Buffered reader over the compressed bitmap data. The caller must
+     * hold the lock on the stream while it is in use. A position of -1
+     * marks the end of the data.
+     */
+    private class RLEReader {
+	private byte buf[] = new byte[8192];
+	private long bufStart;
+	private int bufPos;
+	private int bufLen;
 
-	    // If End-of-RLE data, then exit the while loop
-	    if (flag) {
-		break;
-	    }
+	RLEReader(long position) {
+	    bufStart = position;
 	}
 
-	return val;
-    }
-
-    private int[] readRLE4() {
-
-	// If imageSize field is not specified, calculate it.
-	int imSize = (int)imageSize;
-	if (imSize == 0) {
-	    imSize = (int)(bitmapFileSize - bitmapOffset);
+	long getPosition() {
+	    return bufStart < 0 ? -1 : bufStart + bufPos;
 	}
 
-	int padding = 0;
-	// If width is not 32 byte aligned, then while uncompressing each
-	// scanline will have padding bytes, calculate the amount of padding
-	int remainder = width % 4;
-	if (remainder != 0) {
-	    padding = 4 - remainder;
+	void finish() {
+	    bufStart = -1;
+	    bufPos = bufLen = 0;
 	}
 
-	// Read till we have the whole image
-	int values[] = new int[imSize];
-	try {
-	    for (int i=0; i<imSize; i++) {
-		values[i] = inputStream.read();
+	int read() throws IOException {
+	    if (bufStart < 0) {
+		return -1;
 	    }
-	} catch(IOException ioe) {
-            String message = JaiI18N.getString("BMPImageDecoder6");
-            ImagingListenerProxy.errorOccurred(message,
-                                   new ImagingException(message, ioe),
-                                   this, false);
-//	    throw new RuntimeException(JaiI18N.getString("BMPImageDecoder6"));
-	}
-
-	// Decompress the RLE4 compressed data.
-	int val[] = decodeRLE4(imSize, padding, values);
-
-	// Invert it as it is bottom up format.
-	if (isBottomUp) {
-
-	    int inverted[] = val;
-	    val = new int[width * height];
-	    int l = 0, index, lineEnd;
-
-	    for (int i = height-1; i >= 0; i--) {
-		index = i * width;
-		lineEnd = l + width;
-		while(l != lineEnd) {
-		    val[l++] = inverted[index++];
+	    if (bufPos == bufLen) {
+		bufStart += bufLen;
+		bufPos = bufLen = 0;
+		inputStream.seek(bufStart);
+		int n = inputStream.read(buf, 0, buf.length);
+		if (n <= 0) {
+		    return -1;
 		}
+		bufLen = n;
 	    }
+	    return buf[bufPos++] & 0xff;
 	}
-
-	// This array will be used to call setPixels as the decompression
-	// had unpacked the 4bit pixels each into an int.
-	return val;
     }
 
-    private int[] decodeRLE4(int imSize, int padding, int values[]) {
-
-	int val[] = new int[width * height];
- 	int count = 0, l = 0;
-	int value;
-	boolean flag = false;
-
-	while (count != imSize) {
-
-	    value = values[count++];
-
-	    if (value == 0) {
-
-		// Absolute mode
-		switch(values[count++]) {
-
-		case 0:
-		    // End-of-scanline marker
-		    break;
-
-		case 1:
-		    // End-of-RLE marker
-		    flag = true;
-		    break;
-
-		case 2:
-		    // delta or vector marker
-		    int xoff = values[count++];
-		    int yoff = values[count];
-		    // Move to the position xoff, yoff down
-		    l += xoff + yoff*width;
-		    break;
-
-		default:
-		    int end = values[count-1];
-		    for (int i=0; i<end; i++) {
-			val[l++] = isEven(i) ? (values[count] & 0xf0) >> 4
-			                     : (values[count++] & 0x0f);
-		    }
-
-		    // When end is odd, the above for loop does not
-		    // increment count, so do it now.
-		    if (!isEven(end)) {
-			count++;
-		    }
-
-		    // Whenever end pixels can fit into odd number of bytes,
-		    // an extra padding byte will be present, so skip that.
-		    if ( !isEven((int)Math.ceil(end/2)) ) {
-			count++;
-		    }
-		    break;
-		}
-	    } else {
-		// Encoded mode
-		int alternate[] = { (values[count] & 0xf0) >> 4,
-				    values[count] & 0x0f };
-		for (int i=0; i<value; i++) {
-		    val[l++] = alternate[i%2];
-		}
-
-		count++;
-	    }
-
-	    // If End-of-RLE data, then exit the while loop
-	    if (flag) {
-		break;
-	    }
-
-	}
-
-	return val;
-    }
-
-    private boolean isEven(int number) {
-	return (number%2 == 0 ? true : false);
-    }
 
     // Windows defined data type reading methods - everything is little endian
 
@@ -1147,166 +860,52 @@ class BMPImage extends SimpleRenderedImage {
 	return readInt(stream);
     }
 
-    private synchronized Raster computeTile(int tileX, int tileY) {
-        if (theTile != null) {
-            return theTile;
+    public synchronized Raster getTile(int tileX, int tileY) {
+        if ((tileX != 0) || (tileY < 0) || (tileY >= getNumYTiles())) {
+            throw new
+		IllegalArgumentException(JaiI18N.getString("BMPImageDecoder7"));
+        }
+
+        if (lastStrip != null && lastStrip.getMinY() == tileYToY(tileY)) {
+            return lastStrip;
         }
 
 	// Create a new tile
 	Point org = new Point(tileXToX(tileX), tileYToY(tileY));
 	WritableRaster tile =
 	    RasterFactory.createWritableRaster(sampleModel, org);
-	byte bdata[] = null; // buffer for byte data
-	short sdata[] = null; // buffer for short data
-	int idata[] = null; // buffer for int data
-
-	if (sampleModel.getDataType() == DataBuffer.TYPE_BYTE)
-	    bdata = (byte[])((DataBufferByte)tile.getDataBuffer()).getData();
-	else if (sampleModel.getDataType() == DataBuffer.TYPE_USHORT)
-	    sdata = (short[])((DataBufferUShort)tile.getDataBuffer()).getData();
-	else if (sampleModel.getDataType() == DataBuffer.TYPE_INT)
-	    idata = (int[])((DataBufferInt)tile.getDataBuffer()).getData();
-
-	// There should only be one tile.
-	switch(imageType) {
-
-	case VERSION_2_1_BIT:
-	    // no compression
-	    read1Bit(bdata, 3);
-	    break;
-
-	case VERSION_2_4_BIT:
-	    // no compression
-	    read4Bit(bdata, 3);
-	    break;
-
-	case VERSION_2_8_BIT:
-	    // no compression
-	    read8Bit(bdata, 3);
-	    break;
-
-	case VERSION_2_24_BIT:
-	    // no compression
-	    read24Bit(bdata);
-	    break;
-
-	case VERSION_3_1_BIT:
-	    // 1-bit images cannot be compressed.
-	    read1Bit(bdata, 4);
-	    break;
-
-	case VERSION_3_4_BIT:
-	    switch((int)compression) {
-	    case BI_RGB:
-		read4Bit(bdata, 4);
-		break;
-
-	    case BI_RLE4:
-		int pixels[] = readRLE4();
-		tile.setPixels(0, 0, width, height, pixels);
-		break;
-
-	    default:
-		throw new
-		    RuntimeException(JaiI18N.getString("BMPImageDecoder3"));
-	    }
-	    break;
-
-	case VERSION_3_8_BIT:
-	    switch((int)compression) {
-	    case BI_RGB:
-		read8Bit(bdata, 4);
-		    break;
-
-	    case BI_RLE8:
-		readRLE8(bdata);
-		break;
-
-	    default:
-		throw new
-		    RuntimeException(JaiI18N.getString("BMPImageDecoder3"));
-	    }
-
-	    break;
-
-	case VERSION_3_24_BIT:
-	    // 24-bit images are not compressed
-	    read24Bit(bdata);
-	    break;
-
-	case VERSION_3_NT_16_BIT:
-	    read16Bit(sdata);
-	    break;
-
-	case VERSION_3_NT_32_BIT:
-	    read32Bit(idata);
-	    break;
-
-	case VERSION_4_1_BIT:
-	    read1Bit(bdata, 4);
-	    break;
-
-	case VERSION_4_4_BIT:
-	    switch((int)compression) {
-
-	    case BI_RGB:
-		read4Bit(bdata, 4);
-		break;
 
-	    case BI_RLE4:
-		int pixels[] = readRLE4();
-		tile.setPixels(0, 0, width, height, pixels);
-		break;
-
-	    default:
-		throw new
-		    RuntimeException(JaiI18N.getString("BMPImageDecoder3"));
-	    }
-
-	case VERSION_4_8_BIT:
-	    switch((int)compression) {
-
-	    case BI_RGB:
-		read8Bit(bdata, 4);
-		break;
-
-	    case BI_RLE8:
-		readRLE8(bdata);
-		break;
+	boolean rle4 = (int)compression == BI_RLE4;
+	boolean rle8 = (int)compression == BI_RLE8;
+	if ((bitsPerPixel == 4 && !rle4 && (int)compression != BI_RGB) ||
+	    (bitsPerPixel == 8 && !rle8 && (int)compression != BI_RGB)) {
+	    throw new
+		RuntimeException(JaiI18N.getString("BMPImageDecoder3"));
+	}
 
-	    default:
-		throw new
-		    RuntimeException(JaiI18N.getString("BMPImageDecoder3"));
+	try {
+	    if ((bitsPerPixel == 4 && rle4) || (bitsPerPixel == 8 && rle8)) {
+		decodeRLEStrip(tile, tileY);
+	    } else {
+		readStrip(tile, tileY);
 	    }
-	    break;
-
-	case VERSION_4_16_BIT:
-	    read16Bit(sdata);
-	    break;
-
-	case VERSION_4_24_BIT:
-	    read24Bit(bdata);
-	    break;
-
-	case VERSION_4_32_BIT:
-	    read32Bit(idata);
-	    break;
+	} catch (IOException ioe) {
+            String message = JaiI18N.getString("BMPImageDecoder6");
+            ImagingListenerProxy.errorOccurred(message,
+                                   new ImagingException(message, ioe),
+                                   this, false);
 	}
 
-        theTile = tile;
+        lastStrip = tile;
 
 	return tile;
     }
 
-    public synchronized Raster getTile(int tileX, int tileY) {
-        if ((tileX != 0) || (tileY != 0)) {
-            throw new
-		IllegalArgumentException(JaiI18N.getString("BMPImageDecoder7"));
-        }
-        return computeTile(tileX, tileY);
-    }
-
-    public void dispose() {
-        theTile = null;
+    public synchronized void dispose() {
+        lastStrip = null;
+        rlePosition = null;
+        rleX = null;
+        rleRow = null;
+        rleStrips = 0;
     }
 }
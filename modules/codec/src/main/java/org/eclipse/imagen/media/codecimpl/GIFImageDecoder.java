@@ -37,6 +37,7 @@ import java.util.HashMap;
 import org.eclipse.imagen.media.codec.ImageCodec;
 import org.eclipse.imagen.media.codec.ImageDecodeParam;
 import org.eclipse.imagen.media.codec.ImageDecoderImpl;
+import org.eclipse.imagen.media.codec.MemoryCacheSeekableStream;
 import org.eclipse.imagen.media.codec.SeekableStream;
 import org.eclipse.imagen.media.codecimpl.ImagingListenerProxy;
 import org.eclipse.imagen.media.codecimpl.util.ImagingException;
@@ -58,8 +59,8 @@ public class GIFImageDecoder extends ImageDecoderImpl {
     // The previous page read.
     private int prevPage = -1;
 
-    // The previous page on which getTile() was invoked in this object.
-    private int prevSyncedPage = -1;
+    // The stream position of the next image to be read.
+    private long nextImagePosition;
 
     // Map of Integer page numbers to RenderedImages.
     private HashMap images = new HashMap();
@@ -140,6 +141,12 @@ public class GIFImageDecoder extends ImageDecoderImpl {
 
         // If the zeroth image, set the global color table.
         if(prevPage == -1) {
+            // The images are decoded lazily and possibly more than
+            // once so the stream must be able to seek backwards.
+            if(!input.canSeekBackwards()) {
+                input = new MemoryCacheSeekableStream(input);
+            }
+
             try {
                 globalColorTable = readHeader(input);
             } catch(IOException e) {
@@ -147,30 +154,24 @@ public class GIFImageDecoder extends ImageDecoderImpl {
                 maxPage = -1;
                 throw e;
             }
+            nextImagePosition = input.getFilePointer();
         }
 
-        // Force previous data to be read.
-        if(page > 0) {
-            for(int idx = prevSyncedPage + 1; idx < page; idx++) {
-                RenderedImage im =
-                    (RenderedImage)images.get(new Integer(idx));
-                im.getTile(0, 0);
-                prevSyncedPage = idx;
-            }
-        }
-
-        // Read as many images as possible.
+        // Read as many images as possible.  Each image skips over
+        // its data when created, so the previous images need not be
+        // decoded to reach the next one.
         RenderedImage image = null;
         while(prevPage < page) {
             int index = prevPage + 1;
             RenderedImage ri = null;
             try {
-                ri = new GIFImage(input, globalColorTable);
-                images.put(new Integer(index), ri);
-                if(index < page) {
-                    ri.getTile(0, 0);
-                    prevSyncedPage = index;
+                // The stream is shared with the images being decoded.
+                synchronized(input) {
+                    input.seek(nextImagePosition);
+                    ri = new GIFImage(input, globalColorTable);
+                    nextImagePosition = input.getFilePointer();
                 }
+                images.put(new Integer(index), ri);
                 prevPage = index;
                 if(index == page) {
                     image = ri;
@@ -225,8 +226,44 @@ class GIFImage extends SimpleRenderedImage {
     // The current interlacing pass, starting with 0.
     private int interlacePass = 0;
 
-    // The image's tile.
-    private WritableRaster theTile = null;
+    // Target size in bytes of the strips of a non-interlaced image
+    private static final int STRIP_SIZE = 64*1024;
+
+    // The stream position of the LZW minimum code size byte.
+    private long dataStart;
+
+    // The stream position at which decoding continues.
+    private long dataPosition;
+
+    // Whether the LZW decoder state has been initialized, and
+    // whether all of the image data have been decoded.
+    private boolean decodingStarted = false;
+    private boolean decodingFinished = false;
+
+    // The LZW string table and the current code state.
+    private int[] prefix;
+    private byte[] suffix;
+    private byte[] initial;
+    private int[] length;
+    private int tableIndex;
+    private int codeSize;
+    private int codeMask;
+    private int oldCode;
+
+    // The string of the last code and the number of its pixels
+    // which have been output; a string may span rows and strips.
+    private byte[] string;
+    private int stringLength = 0;
+    private int stringPos = 0;
+
+    // Position in stream coordinates of the next pixel, and the
+    // row being assembled.
+    private Point streamPos = new Point(0, 0);
+    private byte[] rowBuf;
+
+    // The most recently decoded strip, or the whole image if
+    // interlaced.
+    private WritableRaster lastStrip = null;
 
     // Read blocks of 1-255 bytes, stop at a 0-length block
     private void skipBlocks() throws IOException {
@@ -333,14 +370,31 @@ class GIFImage extends SimpleRenderedImage {
             throw new IOException(JaiI18N.getString("GIFImage1"));
         }
 
+        // Skip the image data; they are decoded on demand.
+        try {
+            dataStart = input.getFilePointer();
+            input.readUnsignedByte();
+            skipBlocks();
+        } catch (IOException ioe) {
+            throw new IOException(JaiI18N.getString("GIFImage3"));
+        }
+        dataPosition = dataStart;
+
         // Set the image layout from the header information.
 
         // Set the image and tile grid origin to (0, 0).
         minX = minY = tileGridXOffset = tileGridYOffset = 0;
 
-        // Force the image to have a single tile.
+        // The passes of an interlaced image span all of its rows so
+        // it has a single tile.  Otherwise organize the image in
+        // full width strips which are decoded progressively.
         tileWidth = width;
-        tileHeight = height;
+        if (interlaceFlag) {
+            tileHeight = height;
+        } else {
+            tileHeight = Math.max(1, Math.min(height,
+                                              STRIP_SIZE/Math.max(1, width)));
+        }
 
         byte[] colorTable;
         if (localColorTable != null) {
@@ -381,7 +435,7 @@ class GIFImage extends SimpleRenderedImage {
 
         sampleModel =
             new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE,
-                                            width, height,
+                                            width, tileHeight,
                                             1, width,
                                             new int[] {0});
 
@@ -474,168 +528,238 @@ class GIFImage extends SimpleRenderedImage {
         }
     }
 
-    private Point outputPixels(byte[] string,
-                               int len,
-                               Point streamPos,
-                               byte[] rowBuf) {
-        if (interlacePass < 0 || interlacePass > 3) {
-            return streamPos;
+    /**
+     * Reads the LZW minimum code size and the first data block and
+     * initializes the string table.
+     */
+    private void startDecoding() throws IOException {
+        this.initCodeSize = input.readUnsignedByte();
+
+        // Read first data block
+        this.blockLength = input.readUnsignedByte();
+        int left = blockLength;
+        int off = 0;
+        while (left > 0) {
+            int nbytes = input.read(block, off, left);
+            left -= nbytes;
+            off += nbytes;
         }
 
-        for (int i = 0; i < len; i++) {
-            if (streamPos.x >= minX) {
-                rowBuf[streamPos.x - minX] = string[i];
+        this.bitPos = 0;
+        this.nextByte = 0;
+        this.lastBlockFound = false;
+        this.bitsLeft = this.blockLength << 3;
+
+        // Init 32-bit buffer
+        initNext32Bits();
+
+        this.clearCode = 1 << initCodeSize;
+        this.eofCode = clearCode + 1;
+
+        if (prefix == null) {
+            prefix = new int[4096];
+            suffix = new byte[4096];
+            initial = new byte[4096];
+            length = new int[4096];
+            string = new byte[4096];
+            rowBuf = new byte[width];
+        }
+
+        initializeStringTable(prefix, suffix, initial, length);
+        tableIndex = (1 << initCodeSize) + 2;
+        codeSize = initCodeSize + 1;
+        codeMask = (1 << codeSize) - 1;
+        oldCode = 0;
+
+        decodingStarted = true;
+    }
+
+    /**
+     * Decodes the next code into <code>string</code>.  Returns
+     * <code>false</code> at the end of the image data.
+     */
+    private boolean nextString() throws IOException {
+        int code = getCode(codeSize, codeMask);
+
+        if (code == clearCode) {
+            initializeStringTable(prefix, suffix, initial, length);
+            tableIndex = (1 << initCodeSize) + 2;
+            codeSize = initCodeSize + 1;
+            codeMask = (1 << codeSize) - 1;
+            code = getCode(codeSize, codeMask);
+            if (code == eofCode) {
+                return false;
+            }
+        } else if (code == eofCode) {
+            return false;
+        } else {
+            int newSuffixIndex;
+            if (code < tableIndex) {
+                newSuffixIndex = code;
+            } else { // code == tableIndex
+                newSuffixIndex = oldCode;
+            }
+
+            int ti = tableIndex;
+            int oc = oldCode;
+
+            prefix[ti] = oc;
+            suffix[ti] = initial[newSuffixIndex];
+            initial[ti] = initial[oc];
+            length[ti] = length[oc] + 1;
+
+            ++tableIndex;
+            if ((tableIndex == (1 << codeSize)) &&
+                (tableIndex < 4096)) {
+                ++codeSize;
+                codeMask = (1 << codeSize) - 1;
             }
+        }
+
+        // Reverse code
+        int c = code;
+        int len = length[c];
+        for (int i = len - 1; i >= 0; i--) {
+            string[i] = suffix[c];
+            c = prefix[c];
+        }
+
+        stringLength = len;
+        stringPos = 0;
+        oldCode = code;
+
+        return true;
+    }
+
+    /**
+     * Outputs the remaining pixels of the current string.  Completed
+     * rows which fall within <code>tile</code> are stored in it.
+     * Stops early once a non-interlaced image reaches
+     * <code>stopRow</code>.
+     */
+    private void outputPixels(WritableRaster tile, int stopRow) {
+        int tileMinY = tile.getMinY();
+        int tileMaxY = tileMinY + tile.getHeight();
+
+        while (stringPos < stringLength) {
+            rowBuf[streamPos.x] = string[stringPos++];
 
             // Process end-of-row
             ++streamPos.x;
             if (streamPos.x == width) {
-		theTile.setDataElements(minX, streamPos.y, width, 1, rowBuf);
+                if (streamPos.y >= tileMinY && streamPos.y < tileMaxY) {
+                    tile.setDataElements(0, streamPos.y, width, 1, rowBuf);
+                }
 
                 streamPos.x = 0;
                 if (interlaceFlag) {
                     streamPos.y += INTERLACE_INCREMENT[interlacePass];
-                    if (streamPos.y >= height) {
+                    while (streamPos.y >= height) {
                         ++interlacePass;
                         if (interlacePass > 3) {
-                            return streamPos;
+                            decodingFinished = true;
+                            return;
                         }
                         streamPos.y = INTERLACE_OFFSET[interlacePass];
                     }
                 } else {
                     ++streamPos.y;
+                    if (streamPos.y >= height) {
+                        decodingFinished = true;
+                        return;
+                    }
+                    if (streamPos.y >= stopRow) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the image data into <code>tile</code> until the row
+     * <code>stopRow</code> of a non-interlaced image is reached or
+     * the data end.  Rows above the tile are decoded but dropped.
+     * The decoder state is kept so that a later call continues where
+     * this one stopped.
+     */
+    private void decodeRows(WritableRaster tile, int stopRow)
+        throws IOException {
+        // The stream is shared with the other images of the file.
+        synchronized (input) {
+            input.seek(dataPosition);
+            try {
+                if (!decodingStarted) {
+                    startDecoding();
+                }
+
+                while (!decodingFinished &&
+                       (interlaceFlag || streamPos.y < stopRow)) {
+                    if (stringPos == stringLength && !nextString()) {
+                        decodingFinished = true;
+                        break;
+                    }
+                    outputPixels(tile, stopRow);
                 }
+            } finally {
+                dataPosition = input.getFilePointer();
             }
         }
+    }
 
-        return streamPos;
+    /** Rewinds the decoder to the start of the image data. */
+    private void resetDecoding() {
+        dataPosition = dataStart;
+        decodingStarted = false;
+        decodingFinished = false;
+        stringLength = stringPos = 0;
+        streamPos.x = streamPos.y = 0;
+        interlacePass = 0;
     }
 
     // END LZW CODE
 
     public synchronized Raster getTile(int tileX, int tileY) {
 
-        // Should be a unique tile.
-        if (tileX != 0 || tileY != 0) {
+        // Should be a unique tile column.
+        if (tileX != 0 || tileY < 0 || tileY >= getNumYTiles()) {
             throw new IllegalArgumentException(JaiI18N.getString("GIFImage2"));
         }
 
         // Return the tile if it's already computed.
-        if (theTile != null) {
-            return theTile;
+        int tileMinY = tileYToY(tileY);
+        if (lastStrip != null && lastStrip.getMinY() == tileMinY) {
+            return lastStrip;
         }
 
-        // Initialize the destination image
-        theTile =
+        // Initialize the destination strip
+        WritableRaster tile =
             WritableRaster.createWritableRaster(sampleModel,
                                                 sampleModel.createDataBuffer(),
-                                                null);
-
-        // Position in stream coordinates.
-        Point streamPos = new Point(0, 0);
+                                                new Point(0, tileMinY));
 
-        // Allocate a row of memory.
-        byte[] rowBuf = new byte[width];
+        // Rows above the current position can only be decoded again
+        // from the start of the data.
+        if (decodingStarted && (interlaceFlag || streamPos.y > tileMinY)) {
+            resetDecoding();
+        }
 
         try {
-            // Read and decode the image data, fill in theTile.
-            this.initCodeSize = input.readUnsignedByte();
-
-            // Read first data block
-            this.blockLength = input.readUnsignedByte();
-	    int left = blockLength;
-            int off = 0;
-            while (left > 0) {
-                int nbytes = input.read(block, off, left);
-                left -= nbytes;
-                off += nbytes;
-            }
-
-            this.bitPos = 0;
-            this.nextByte = 0;
-            this.lastBlockFound = false;
-	    this.bitsLeft = this.blockLength << 3;
-
-            // Init 32-bit buffer
-            initNext32Bits();
-
-            this.clearCode = 1 << initCodeSize;
-            this.eofCode = clearCode + 1;
-
-            int code, oldCode = 0;
-
-            int[] prefix = new int[4096];
-            byte[] suffix = new byte[4096];
-            byte[] initial = new byte[4096];
-            int[] length = new int[4096];
-            byte[] string = new byte[4096];
-
-            initializeStringTable(prefix, suffix, initial, length);
-            int tableIndex = (1 << initCodeSize) + 2;
-            int codeSize = initCodeSize + 1;
-            int codeMask = (1 << codeSize) - 1;
-
-            while (true) {
-                code = getCode(codeSize, codeMask);
-
-                if (code == clearCode) {
-                    initializeStringTable(prefix, suffix, initial, length);
-                    tableIndex = (1 << initCodeSize) + 2;
-                    codeSize = initCodeSize + 1;
-                    codeMask = (1 << codeSize) - 1;
-                    code = getCode(codeSize, codeMask);
-                    if (code == eofCode) {
-                        return theTile;
-                    }
-                } else if (code == eofCode) {
-                    return theTile;
-                } else {
-                    int newSuffixIndex;
-                    if (code < tableIndex) {
-                        newSuffixIndex = code;
-                    } else { // code == tableIndex
-                        newSuffixIndex = oldCode;
-                    }
-
-                    int ti = tableIndex;
-                    int oc = oldCode;
-
-                    prefix[ti] = oc;
-                    suffix[ti] = initial[newSuffixIndex];
-                    initial[ti] = initial[oc];
-                    length[ti] = length[oc] + 1;
-
-                    ++tableIndex;
-                    if ((tableIndex == (1 << codeSize)) &&
-                        (tableIndex < 4096)) {
-                        ++codeSize;
-                        codeMask = (1 << codeSize) - 1;
-                    }
-                }
-
-                // Reverse code
-                int c = code;
-                int len = length[c];
-                for (int i = len - 1; i >= 0; i--) {
-                    string[i] = suffix[c];
-                    c = prefix[c];
-                }
-
-                outputPixels(string, len, streamPos, rowBuf);
-                oldCode = code;
-            }
+            decodeRows(tile, tileMinY + tile.getHeight());
         } catch (IOException e) {
+            decodingFinished = true;
             String message = JaiI18N.getString("GIFImage3");
             ImagingListenerProxy.errorOccurred(message,
                                    new ImagingException(message, e),
                                    this, false);
 //            throw new RuntimeException(JaiI18N.getString("GIFImage3"));
-        } finally {
-            return theTile;
         }
+
+        lastStrip = tile;
+        return tile;
     }
 
-    public void dispose() {
-        theTile = null;
+    public synchronized void dispose() {
+        lastStrip = null;
     }
 }
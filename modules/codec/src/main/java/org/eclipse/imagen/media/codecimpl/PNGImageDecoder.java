@@ -45,6 +45,7 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.io.SequenceInputStream;
 import java.text.DateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.GregorianCalendar;
@@ -321,6 +322,19 @@ class PNGImage extends SimpleRenderedImage {
 
     private Vector streamVec = new Vector();
     private DataInputStream dataStream;
+    private Inflater inflater;
+
+    // Target size in bytes of the strips of a non-interlaced image
+    private static final int STRIP_SIZE = 64*1024;
+
+    // Row decoding state for non-interlaced images. The strips are
+    // decoded on demand; when a strip above the current row is
+    // requested the IDAT data are inflated again from the start.
+    private int nextRow;          // next row to be read from dataStream
+    private byte[] currRow;       // scratch buffer for the row being read
+    private byte[] priorRow;      // the previous unfiltered row
+    private WritableRaster rowRaster; // 1-row tall Raster of input samples
+    private WritableRaster lastStrip; // the most recently decoded strip
 
     private int bytesPerPixel; // number of bytes per input pixel
     private int inputBands;
@@ -800,11 +814,7 @@ class PNGImage extends SimpleRenderedImage {
         }
 
         // Parse prior IDAT chunks
-        InputStream seqStream =
-            new SequenceInputStream(streamVec.elements());
-        InputStream infStream =
-            new InflaterInputStream(seqStream, new Inflater());
-        dataStream = new DataInputStream(infStream);
+        openDataStream();
 
         // Create an empty WritableRaster
         int depth = bitDepth;
@@ -819,10 +829,6 @@ class PNGImage extends SimpleRenderedImage {
         int scanlineStride =
             (depth == 16) ? (bytesPerRow/2) : bytesPerRow;
 
-        theTile = createRaster(width, height, outputBands,
-                               scanlineStride,
-                               depth);
-
         if (performGammaCorrection && (gammaLut == null)) {
             initGammaLut(bitDepth);
         }
@@ -832,8 +838,23 @@ class PNGImage extends SimpleRenderedImage {
             initGrayLut(bitDepth);
         }
 
-        decodeImage(interlaceMethod == 1);
-        sampleModel = theTile.getSampleModel();
+        if (interlaceMethod == 1) {
+            // The passes of an interlaced image span all of its rows
+            // so the image is decoded into a single tile.
+            theTile = createRaster(width, height, outputBands,
+                                   scanlineStride,
+                                   depth);
+            decodeImage(true);
+            closeDataStream();
+            sampleModel = theTile.getSampleModel();
+        } else {
+            // Organize the image in strips which are decoded on demand.
+            tileHeight = Math.max(1, Math.min(height,
+                                              STRIP_SIZE/bytesPerRow));
+            sampleModel = createRaster(width, tileHeight, outputBands,
+                                       scanlineStride,
+                                       depth).getSampleModel();
+        }
 
         if ((colorType == PNG_COLOR_PALETTE) && !expandPalette) {
             if (outputHasAlphaPalette) {
@@ -1416,7 +1437,7 @@ class PNGImage extends SimpleRenderedImage {
 
         // Create an array suitable for holding one pixel
         int[] ps = src.getPixel(0, 0, (int[])null);
-        int[] pd = dst.getPixel(0, 0, (int[])null);
+        int[] pd = dst.getPixel(dst.getMinX(), dst.getMinY(), (int[])null);
 
         dstX = xOffset;
         switch (process) {
@@ -1700,36 +1721,7 @@ class PNGImage extends SimpleRenderedImage {
         for (srcY = 0, dstY = yOffset;
              srcY < passHeight;
              srcY++, dstY += yStep) {
-            // Read the filter type byte and a row of data
-            int filter = 0;
-            try {
-                filter = dataStream.read();
-                dataStream.readFully(curr, 0, bytesPerRow);
-            } catch (Exception e) {
-                ImagingListenerProxy.errorOccurred(JaiI18N.getString("PNGImageDecoder2"),
-                                       e, this, false);
-//                e.printStackTrace();
-            }
-
-            switch (filter) {
-            case PNG_FILTER_NONE:
-                break;
-            case PNG_FILTER_SUB:
-                decodeSubFilter(curr, bytesPerRow, bytesPerPixel);
-                break;
-            case PNG_FILTER_UP:
-                decodeUpFilter(curr, prior, bytesPerRow);
-                break;
-            case PNG_FILTER_AVERAGE:
-                decodeAverageFilter(curr, prior, bytesPerRow, bytesPerPixel);
-                break;
-            case PNG_FILTER_PAETH:
-                decodePaethFilter(curr, prior, bytesPerRow, bytesPerPixel);
-                break;
-            default:
-                // Error -- uknown filter type
-                throw new RuntimeException(JaiI18N.getString("PNGImageDecoder16"));
-            }
+            decodeRow(curr, prior, bytesPerRow);
 
             // Copy data into passRow byte by byte
             if (bitDepth < 16) {
@@ -1753,6 +1745,156 @@ class PNGImage extends SimpleRenderedImage {
         }
     }
 
+    /**
+     * Reads the filter type byte and a row of data from the data
+     * stream into <code>curr</code> and reverses the filtering using
+     * the previous row <code>prior</code>.
+     */
+    private void decodeRow(byte[] curr, byte[] prior, int bytesPerRow) {
+        // Read the filter type byte and a row of data
+        int filter = 0;
+        try {
+            filter = dataStream.read();
+            dataStream.readFully(curr, 0, bytesPerRow);
+        } catch (Exception e) {
+            ImagingListenerProxy.errorOccurred(JaiI18N.getString("PNGImageDecoder2"),
+                                   e, this, false);
+//            e.printStackTrace();
+        }
+
+        switch (filter) {
+        case PNG_FILTER_NONE:
+            break;
+        case PNG_FILTER_SUB:
+            decodeSubFilter(curr, bytesPerRow, bytesPerPixel);
+            break;
+        case PNG_FILTER_UP:
+            decodeUpFilter(curr, prior, bytesPerRow);
+            break;
+        case PNG_FILTER_AVERAGE:
+            decodeAverageFilter(curr, prior, bytesPerRow, bytesPerPixel);
+            break;
+        case PNG_FILTER_PAETH:
+            decodePaethFilter(curr, prior, bytesPerRow, bytesPerPixel);
+            break;
+        default:
+            // Error -- uknown filter type
+            throw new RuntimeException(JaiI18N.getString("PNGImageDecoder16"));
+        }
+    }
+
+    /**
+     * Creates a stream which inflates the IDAT chunks from their start.
+     */
+    private void openDataStream() {
+        closeDataStream();
+
+        // Rewind the chunk data; this allows to inflate them again.
+        for (int i = 0; i < streamVec.size(); i++) {
+            ((ByteArrayInputStream)streamVec.elementAt(i)).reset();
+        }
+
+        InputStream seqStream =
+            new SequenceInputStream(streamVec.elements());
+        inflater = new Inflater();
+        InputStream infStream =
+            new InflaterInputStream(seqStream, inflater);
+        dataStream = new DataInputStream(infStream);
+        nextRow = 0;
+    }
+
+    /**
+     * Releases the <code>Inflater</code> of the data stream, if any.
+     */
+    private void closeDataStream() {
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+        dataStream = null;
+    }
+
+    /**
+     * Decodes the strip of a non-interlaced image with the given tile
+     * row index.  Rows are read sequentially from the data stream;
+     * rows above the requested strip are unfiltered but not stored,
+     * and if the stream is already past the strip it is restarted.
+     */
+    private WritableRaster decodeStrip(int tileY) {
+        int minY = tileYToY(tileY);
+        int maxY = Math.min(minY + tileHeight, height);
+
+        int bytesPerRow = (inputBands*width*bitDepth + 7)/8;
+        if (rowRaster == null) {
+            int eltsPerRow = (bitDepth == 16) ? bytesPerRow/2 : bytesPerRow;
+            rowRaster = createRaster(width, 1, inputBands,
+                                     eltsPerRow,
+                                     bitDepth);
+            currRow = new byte[bytesPerRow];
+            priorRow = new byte[bytesPerRow];
+        }
+
+        if (dataStream == null || nextRow > minY) {
+            openDataStream();
+            // The row before the first one is defined to be all zero
+            Arrays.fill(priorRow, (byte)0);
+        }
+
+        // Skip the rows above the strip
+        while (nextRow < minY) {
+            decodeRow(currRow, priorRow, bytesPerRow);
+            swapRows();
+        }
+
+        WritableRaster strip =
+            Raster.createWritableRaster(sampleModel,
+                                        new Point(0, minY));
+
+        DataBuffer dataBuffer = rowRaster.getDataBuffer();
+        byte[] byteData = null;
+        short[] shortData = null;
+        if (dataBuffer.getDataType() == DataBuffer.TYPE_BYTE) {
+            byteData = ((DataBufferByte)dataBuffer).getData();
+        } else {
+            shortData = ((DataBufferUShort)dataBuffer).getData();
+        }
+
+        while (nextRow < maxY) {
+            decodeRow(currRow, priorRow, bytesPerRow);
+
+            // Copy data into rowRaster byte by byte
+            if (bitDepth < 16) {
+                System.arraycopy(currRow, 0, byteData, 0, bytesPerRow);
+            } else {
+                int idx = 0;
+                for (int j = 0; j < shortData.length; j++) {
+                    shortData[j] = (short)((currRow[idx] << 8) |
+                                           (currRow[idx + 1] & 0xff));
+                    idx += 2;
+                }
+            }
+
+            processPixels(postProcess,
+                          rowRaster, strip, 0, 1, nextRow, width);
+            swapRows();
+        }
+
+        // The whole image has been read; release the Inflater.
+        if (nextRow == height) {
+            closeDataStream();
+        }
+
+        return strip;
+    }
+
+    /** Makes the current row the prior row and advances the row index. */
+    private void swapRows() {
+        byte[] tmp = priorRow;
+        priorRow = currRow;
+        currRow = tmp;
+        nextRow++;
+    }
+
     private void decodeImage(boolean useInterlacing) {
         if (!useInterlacing) {
             decodePass(theTile, 0, 0, 1, 1, width, height);
@@ -1769,15 +1911,24 @@ class PNGImage extends SimpleRenderedImage {
 
     // RenderedImage stuff
 
-    public Raster getTile(int tileX, int tileY) {
-        if (tileX != 0 || tileY != 0) {
+    public synchronized Raster getTile(int tileX, int tileY) {
+        if (tileX != 0 || tileY < 0 || tileY >= getNumYTiles()) {
             // Error -- bad tile requested
             throw new IllegalArgumentException(JaiI18N.getString("PNGImageDecoder17"));
         }
-        return theTile;
+        if (interlaceMethod == 1) {
+            return theTile;
+        }
+
+        if (lastStrip == null || lastStrip.getMinY() != tileYToY(tileY)) {
+            lastStrip = decodeStrip(tileY);
+        }
+        return lastStrip;
     }
 
-    public void dispose() {
+    public synchronized void dispose() {
         theTile = null;
+        lastStrip = null;
+        closeDataStream();
     }
 }
@@ -113,16 +113,14 @@ public class TIFFImage extends SimpleRenderedImage {
     long tiffT6Options;
     int fillOrder;
 
-    // LZW compression related variable
+    // LZW compression related variables
     int predictor;
+    int lzwSamplesPerPixel;
 
     // TTN2 JPEG related variables
     JPEGDecodeParam decodeParam = null;
     boolean colorConvertJPEG = false;
 
-    // DEFLATE variables
-    Inflater inflater = null;
-
     // Endian-ness indicator
     boolean isBigEndian;
 
@@ -132,10 +130,6 @@ public class TIFFImage extends SimpleRenderedImage {
 
     boolean decodePaletteAsShorts;
 
-    // Decoders
-    private TIFFFaxDecoder decoder = null;
-    private TIFFLZWDecoder lzwDecoder = null;
-
     /**
      * Decode a buffer of data into a Raster with the specified location.
      *
@@ -181,10 +175,11 @@ public class TIFFImage extends SimpleRenderedImage {
     }
 
     /**
-     * Inflates <code>deflated</code> into <code>inflated</code> using the
-     * <code>Inflater</code> constructed during class instantiation.
+     * Inflates <code>deflated</code> into <code>inflated</code> using an
+     * <code>Inflater</code> private to this call.
      */
     private final void inflate(byte[] deflated, byte[] inflated) {
+        Inflater inflater = new Inflater();
         inflater.setInput(deflated);
         try {
             inflater.inflate(inflated);
@@ -196,7 +191,7 @@ public class TIFFImage extends SimpleRenderedImage {
 //            throw new RuntimeException(JaiI18N.getString("TIFFImage17")+": "+
 //                                       dfe.getMessage());
         }
-        inflater.reset();
+        inflater.end();
     }
 
     /**
@@ -662,10 +657,8 @@ public class TIFFImage extends SimpleRenderedImage {
 	switch(compression) {
         case COMP_NONE:
         case COMP_PACKBITS:
-            // Do nothing.
-            break;
         case COMP_DEFLATE:
-            inflater = new Inflater();
+            // Do nothing.
             break;
         case COMP_FAX_G3_1D:
         case COMP_FAX_G3_2D:
@@ -697,14 +690,10 @@ public class TIFFImage extends SimpleRenderedImage {
                     tiffT6Options = 0;
                 }
             }
-
-            // Fax encoding, need to create the Fax decoder.
-            decoder = new TIFFFaxDecoder(fillOrder,
-                                         tileWidth, tileHeight);
             break;
 
         case COMP_LZW:
-            // LZW compression used, need to create the LZW decoder.
+            // LZW compression used, need the LZW decoder parameters.
             TIFFField predictorField =
                 dir.getField(TIFFImageDecoder.TIFF_PREDICTOR);
 
@@ -723,8 +712,7 @@ public class TIFFImage extends SimpleRenderedImage {
                 }
             }
 
-            lzwDecoder = new TIFFLZWDecoder(tileWidth, predictor,
-                                            samplesPerPixel);
+            lzwSamplesPerPixel = samplesPerPixel;
             break;
 
         case COMP_JPEG_OLD:
@@ -960,7 +948,7 @@ public class TIFFImage extends SimpleRenderedImage {
     /**
      * Returns tile (tileX, tileY) as a Raster.
      */
-    public synchronized Raster getTile(int tileX, int tileY) {
+    public Raster getTile(int tileX, int tileY) {
         // Check parameters.
         if ((tileX < 0) || (tileX >= tilesX) ||
             (tileY < 0) || (tileY >= tilesY)) {
@@ -970,10 +958,11 @@ public class TIFFImage extends SimpleRenderedImage {
         // The tile to return.
         WritableRaster tile = null;
 
-        // Synchronize the rest of the method in case other TIFFImage
-        // instances using the same stream were created by the same
-        // TIFFImageDecoder. This fixes 4690773.
-        synchronized(this.stream) {
+        // The tile data are fetched by positional reads which neither
+        // use nor modify the stream pointer, and the decompressors are
+        // allocated per call, so no lock is held while decoding. Tiles
+        // may therefore be decoded concurrently, also by other TIFFImage
+        // instances using the same stream (see 4690773).
 
 	// Get the data array out of the DataBuffer
 	byte bdata[] = null;
@@ -1019,18 +1008,8 @@ public class TIFFImage extends SimpleRenderedImage {
                                                    new Point(tileXToX(tileX),
                                                              tileYToY(tileY)));
 
-	// Save original file pointer position and seek to tile data location.
-	long save_offset = 0;
-	try {
-	    save_offset = stream.getFilePointer();
-	    stream.seek(tileOffsets[tileY*tilesX + tileX]);
-	} catch (IOException ioe) {
-            String message = JaiI18N.getString("TIFFImage13");
-            ImagingListenerProxy.errorOccurred(message,
-                                   new ImagingException(message, ioe),
-                                   this, false);
-//	    throw new RuntimeException(JaiI18N.getString("TIFFImage13"));
-	}
+	// Location of the tile data in the stream.
+	long tileOffset = tileOffsets[tileY*tilesX + tileX];
 
 	// Number of bytes in this tile (strip) after compression.
 	int byteCount = (int)tileByteCounts[tileY*tilesX + tileX];
@@ -1049,12 +1028,25 @@ public class TIFFImage extends SimpleRenderedImage {
 	byte data[] = compression != COMP_NONE || imageType == TYPE_PALETTE ?
             new byte[byteCount] : null;
 
+        // Create the decoders. They hold per-strip state so they are
+        // not shared with concurrent calls.
+        TIFFLZWDecoder lzwDecoder = null;
+        TIFFFaxDecoder decoder = null;
+        if (compression == COMP_LZW) {
+            lzwDecoder = new TIFFLZWDecoder(tileWidth, predictor,
+                                            lzwSamplesPerPixel);
+        } else if (compression == COMP_FAX_G3_1D ||
+                   compression == COMP_FAX_G3_2D ||
+                   compression == COMP_FAX_G4_2D) {
+            decoder = new TIFFFaxDecoder(fillOrder, tileWidth, tileHeight);
+        }
+
         // Read the data, uncompressing as needed. There are four cases:
         // bilevel, palette-RGB, 4-bit grayscale, and everything else.
         if(imageType == TYPE_BILEVEL) { // bilevel
 	    try {
 		if (compression == COMP_PACKBITS) {
-		    stream.readFully(data, 0, byteCount);
+		    stream.readFully(tileOffset, data, 0, byteCount);
 
 		    // Since the decompressed data will still be packed
 		    // 8 pixels into 1 byte, calculate bytesInThisTile
@@ -1067,27 +1059,26 @@ public class TIFFImage extends SimpleRenderedImage {
 		    }
 		    decodePackbits(data, bytesInThisTile, bdata);
 		} else if (compression == COMP_LZW) {
-		    stream.readFully(data, 0, byteCount);
+		    stream.readFully(tileOffset, data, 0, byteCount);
 		    lzwDecoder.decode(data, bdata, newRect.height);
 		} else if (compression == COMP_FAX_G3_1D) {
-		    stream.readFully(data, 0, byteCount);
+		    stream.readFully(tileOffset, data, 0, byteCount);
 		    decoder.decode1D(bdata, data, 0, newRect.height);
 		} else if (compression == COMP_FAX_G3_2D) {
-		    stream.readFully(data, 0, byteCount);
+		    stream.readFully(tileOffset, data, 0, byteCount);
 		    decoder.decode2D(bdata, data, 0, newRect.height,
                                      tiffT4Options);
 		} else if (compression == COMP_FAX_G4_2D) {
-		    stream.readFully(data, 0, byteCount);
+		    stream.readFully(tileOffset, data, 0, byteCount);
                     decoder.decodeT6(bdata, data, 0, newRect.height,
                                      tiffT6Options);
 		} else if (compression == COMP_DEFLATE) {
-                    stream.readFully(data, 0, byteCount);
+                    stream.readFully(tileOffset, data, 0, byteCount);
                     inflate(data, bdata);
 		} else if (compression == COMP_NONE) {
-		    stream.readFully(bdata, 0, byteCount);
+		    stream.readFully(tileOffset, bdata, 0, byteCount);
 		}
 
-		stream.seek(save_offset);
 	    } catch (IOException ioe) {
                 String message = JaiI18N.getString("TIFFImage13");
                 ImagingListenerProxy.errorOccurred(message,
@@ -1119,7 +1110,7 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			if (compression == COMP_PACKBITS) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 
 			    byte byteArray[] = new byte[entries];
 			    decodePackbits(data, entries, byteArray);
@@ -1130,7 +1121,7 @@ public class TIFFImage extends SimpleRenderedImage {
 			}  else if (compression == COMP_LZW) {
 
 			    // Read in all the compressed data for this tile
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 
 			    byte byteArray[] = new byte[entries];
 			    lzwDecoder.decode(data, byteArray, newRect.height);
@@ -1140,7 +1131,7 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			}  else if (compression == COMP_DEFLATE) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 			    byte byteArray[] = new byte[entries];
 			    inflate(data, byteArray);
 			    tempData = new short[unitsBeforeLookup];
@@ -1154,10 +1145,9 @@ public class TIFFImage extends SimpleRenderedImage {
 			    // which will take half the space, so while
 			    // allocating we divide byteCount by 2.
 			    tempData = new short[byteCount/2];
-			    readShorts(byteCount/2, tempData);
+			    readShorts(tileOffset, byteCount/2, tempData);
 			}
 
-			stream.seek(save_offset);
 
 		    } catch (IOException ioe) {
                         String message = JaiI18N.getString("TIFFImage13");
@@ -1220,7 +1210,7 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			if (compression == COMP_PACKBITS) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 
 			    // Since unitsInThisTile is the number of shorts,
 			    // but we do our decompression in terms of bytes, we
@@ -1236,7 +1226,7 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			} else if (compression == COMP_LZW) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 
 			    // Since unitsInThisTile is the number of shorts,
 			    // but we do our decompression in terms of bytes, we
@@ -1250,7 +1240,7 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			}  else if (compression == COMP_DEFLATE) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 			    byte byteArray[] = new byte[unitsInThisTile * 2];
 			    inflate(data, byteArray);
 			    interpretBytesAsShorts(byteArray, sdata,
@@ -1258,10 +1248,9 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			} else if (compression == COMP_NONE) {
 
-			    readShorts(byteCount/2, sdata);
+			    readShorts(tileOffset, byteCount/2, sdata);
 			}
 
-			stream.seek(save_offset);
 
 		    } catch (IOException ioe) {
                         String message = JaiI18N.getString("TIFFImage13");
@@ -1290,19 +1279,19 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			if (compression == COMP_PACKBITS) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 			    tempData = new byte[unitsBeforeLookup];
 			    decodePackbits(data, unitsBeforeLookup, tempData);
 
 			}  else if (compression == COMP_LZW) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 			    tempData = new byte[unitsBeforeLookup];
 			    lzwDecoder.decode(data, tempData, newRect.height);
 
                         } else if (compression == COMP_JPEG_TTN2) {
 
-                            stream.readFully(data, 0, byteCount);
+                            stream.readFully(tileOffset, data, 0, byteCount);
                             Raster tempTile = decodeJPEG(data,
                                                          decodeParam,
                                                          colorConvertJPEG,
@@ -1321,17 +1310,16 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			}  else if (compression == COMP_DEFLATE) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 			    tempData = new byte[unitsBeforeLookup];
 			    inflate(data, tempData);
 
 			} else if (compression == COMP_NONE) {
 
 			    tempData = new byte[byteCount];
-			    stream.readFully(tempData, 0, byteCount);
+			    stream.readFully(tileOffset, tempData, 0, byteCount);
 			}
 
-			stream.seek(save_offset);
 
 		    } catch (IOException ioe) {
                         String message = JaiI18N.getString("TIFFImage13");
@@ -1369,17 +1357,17 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			if (compression == COMP_PACKBITS) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 			    decodePackbits(data, unitsInThisTile, bdata);
 
 			} else if (compression == COMP_LZW) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 			    lzwDecoder.decode(data, bdata, newRect.height);
 
                         } else if (compression == COMP_JPEG_TTN2) {
 
-                            stream.readFully(data, 0, byteCount);
+                            stream.readFully(tileOffset, data, 0, byteCount);
                             tile.setRect(decodeJPEG(data,
                                                     decodeParam,
                                                     colorConvertJPEG,
@@ -1388,15 +1376,14 @@ public class TIFFImage extends SimpleRenderedImage {
 
 			}  else if (compression == COMP_DEFLATE) {
 
-                            stream.readFully(data, 0, byteCount);
+                            stream.readFully(tileOffset, data, 0, byteCount);
                             inflate(data, bdata);
 
 			} else if (compression == COMP_NONE) {
 
-			    stream.readFully(bdata, 0, byteCount);
+			    stream.readFully(tileOffset, bdata, 0, byteCount);
 			}
 
-			stream.seek(save_offset);
 
 		    } catch (IOException ioe) {
                         String message = JaiI18N.getString("TIFFImage13");
@@ -1420,8 +1407,7 @@ public class TIFFImage extends SimpleRenderedImage {
 		    byte tempData[] = null;
 
 		    try {
-			stream.readFully(data, 0, byteCount);
-			stream.seek(save_offset);
+			stream.readFully(tileOffset, data, 0, byteCount);
 		    } catch (IOException ioe) {
                         String message = JaiI18N.getString("TIFFImage13");
                         ImagingListenerProxy.errorOccurred(message,
@@ -1493,25 +1479,24 @@ public class TIFFImage extends SimpleRenderedImage {
 			// If compressed, decode the data.
 			if (compression == COMP_PACKBITS) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 			    decodePackbits(data, bytesPostDecoding, bdata);
 
 			}  else if (compression == COMP_LZW) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 			    lzwDecoder.decode(data, bdata, newRect.height);
 
                         }  else if (compression == COMP_DEFLATE) {
 
-			    stream.readFully(data, 0, byteCount);
+			    stream.readFully(tileOffset, data, 0, byteCount);
 			    inflate(data, bdata);
 
 			} else if (compression == COMP_NONE) {
 
-			    stream.readFully(bdata, 0, byteCount);
+			    stream.readFully(tileOffset, bdata, 0, byteCount);
 			}
 
-			stream.seek(save_offset);
 
 		    } catch (IOException ioe) {
                         String message = JaiI18N.getString("TIFFImage13");
@@ -1527,7 +1512,7 @@ public class TIFFImage extends SimpleRenderedImage {
             try {
                 if (compression == COMP_PACKBITS) {
 
-                    stream.readFully(data, 0, byteCount);
+                    stream.readFully(tileOffset, data, 0, byteCount);
 
                     // Since the decompressed data will still be packed
                     // 2 pixels into 1 byte, calculate bytesInThisTile
@@ -1543,20 +1528,19 @@ public class TIFFImage extends SimpleRenderedImage {
 
                 } else if (compression == COMP_LZW) {
 
-                    stream.readFully(data, 0, byteCount);
+                    stream.readFully(tileOffset, data, 0, byteCount);
                     lzwDecoder.decode(data, bdata, newRect.height);
 
                 }  else if (compression == COMP_DEFLATE) {
 
-                    stream.readFully(data, 0, byteCount);
+                    stream.readFully(tileOffset, data, 0, byteCount);
                     inflate(data, bdata);
 
                 } else {
 
-                    stream.readFully(bdata, 0, byteCount);
+                    stream.readFully(tileOffset, bdata, 0, byteCount);
                 }
 
-                stream.seek(save_offset);
 	    } catch (IOException ioe) {
                 String message = JaiI18N.getString("TIFFImage13");
                 ImagingListenerProxy.errorOccurred(message,
@@ -1571,21 +1555,21 @@ public class TIFFImage extends SimpleRenderedImage {
 
 		    if (compression == COMP_NONE) {
 
-			stream.readFully(bdata, 0, byteCount);
+			stream.readFully(tileOffset, bdata, 0, byteCount);
 
 		    } else if (compression == COMP_LZW) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
 			lzwDecoder.decode(data, bdata, newRect.height);
 
 		    } else if (compression == COMP_PACKBITS) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
 			decodePackbits(data, unitsInThisTile, bdata);
 
 		    } else if (compression == COMP_JPEG_TTN2) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
                         tile.setRect(decodeJPEG(data,
                                                 decodeParam,
                                                 colorConvertJPEG,
@@ -1593,7 +1577,7 @@ public class TIFFImage extends SimpleRenderedImage {
                                                 tile.getMinY()));
 		    } else if (compression == COMP_DEFLATE) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
                         inflate(data, bdata);
                     }
 
@@ -1601,11 +1585,11 @@ public class TIFFImage extends SimpleRenderedImage {
 
 		    if (compression == COMP_NONE) {
 
-			readShorts(byteCount/2, sdata);
+			readShorts(tileOffset, byteCount/2, sdata);
 
 		    } else if (compression == COMP_LZW) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
 
 			// Since unitsInThisTile is the number of shorts,
 			// but we do our decompression in terms of bytes, we
@@ -1619,7 +1603,7 @@ public class TIFFImage extends SimpleRenderedImage {
 
 		    } else if (compression == COMP_PACKBITS) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
 
 			// Since unitsInThisTile is the number of shorts,
 			// but we do our decompression in terms of bytes, we
@@ -1634,7 +1618,7 @@ public class TIFFImage extends SimpleRenderedImage {
 					       unitsInThisTile);
 		    } else if (compression == COMP_DEFLATE) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
 			byte byteArray[] = new byte[unitsInThisTile * 2];
 			inflate(data, byteArray);
 			interpretBytesAsShorts(byteArray, sdata,
@@ -1645,11 +1629,11 @@ public class TIFFImage extends SimpleRenderedImage {
                            dataType == DataBuffer.TYPE_INT) { // redundant
 		    if (compression == COMP_NONE) {
 
-			readInts(byteCount/4, idata);
+			readInts(tileOffset, byteCount/4, idata);
 
 		    } else if (compression == COMP_LZW) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
 
 			// Since unitsInThisTile is the number of ints,
 			// but we do our decompression in terms of bytes, we
@@ -1663,7 +1647,7 @@ public class TIFFImage extends SimpleRenderedImage {
 
 		    } else if (compression == COMP_PACKBITS) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
 
 			// Since unitsInThisTile is the number of ints,
 			// but we do our decompression in terms of bytes, we
@@ -1678,7 +1662,7 @@ public class TIFFImage extends SimpleRenderedImage {
                                              unitsInThisTile);
 		    } else if (compression == COMP_DEFLATE) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
 			byte byteArray[] = new byte[unitsInThisTile * 4];
 			inflate(data, byteArray);
 			interpretBytesAsInts(byteArray, idata,
@@ -1689,11 +1673,11 @@ public class TIFFImage extends SimpleRenderedImage {
                            dataType == DataBuffer.TYPE_FLOAT) { // redundant
 		    if (compression == COMP_NONE) {
 
-			readFloats(byteCount/4, fdata);
+			readFloats(tileOffset, byteCount/4, fdata);
 
 		    } else if (compression == COMP_LZW) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
 
 			// Since unitsInThisTile is the number of floats,
 			// but we do our decompression in terms of bytes, we
@@ -1707,7 +1691,7 @@ public class TIFFImage extends SimpleRenderedImage {
 
 		    } else if (compression == COMP_PACKBITS) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
 
 			// Since unitsInThisTile is the number of floats,
 			// but we do our decompression in terms of bytes, we
@@ -1722,7 +1706,7 @@ public class TIFFImage extends SimpleRenderedImage {
                                                unitsInThisTile);
 		    } else if (compression == COMP_DEFLATE) {
 
-			stream.readFully(data, 0, byteCount);
+			stream.readFully(tileOffset, data, 0, byteCount);
 			byte byteArray[] = new byte[unitsInThisTile * 4];
                         inflate(data, byteArray);
 			interpretBytesAsFloats(byteArray, fdata,
@@ -1731,7 +1715,6 @@ public class TIFFImage extends SimpleRenderedImage {
                     }
 		}
 
-		stream.seek(save_offset);
 
 	    } catch (IOException ioe) {
                 String message = JaiI18N.getString("TIFFImage13");
@@ -1817,12 +1800,10 @@ public class TIFFImage extends SimpleRenderedImage {
             }
         }
 
-        } // synchronized(this.stream)
-
         return tile;
     }
 
-    private void readShorts(int shortCount, short shortArray[]) {
+    private void readShorts(long tileOffset, int shortCount, short shortArray[]) {
 
 	// Since each short consists of 2 bytes, we need a
 	// byte array of double size
@@ -1830,7 +1811,7 @@ public class TIFFImage extends SimpleRenderedImage {
 	byte byteArray[] = new byte[byteCount];
 
 	try {
-	    stream.readFully(byteArray, 0, byteCount);
+	    stream.readFully(tileOffset, byteArray, 0, byteCount);
 	} catch (IOException ioe) {
             String message = JaiI18N.getString("TIFFImage13");
             ImagingListenerProxy.errorOccurred(message,
@@ -1842,7 +1823,7 @@ public class TIFFImage extends SimpleRenderedImage {
 	interpretBytesAsShorts(byteArray, shortArray, shortCount);
     }
 
-    private void readInts(int intCount, int intArray[]) {
+    private void readInts(long tileOffset, int intCount, int intArray[]) {
 
 	// Since each int consists of 4 bytes, we need a
 	// byte array of quadruple size
@@ -1850,7 +1831,7 @@ public class TIFFImage extends SimpleRenderedImage {
 	byte byteArray[] = new byte[byteCount];
 
 	try {
-	    stream.readFully(byteArray, 0, byteCount);
+	    stream.readFully(tileOffset, byteArray, 0, byteCount);
 	} catch (IOException ioe) {
             String message = JaiI18N.getString("TIFFImage13");
             ImagingListenerProxy.errorOccurred(message,
@@ -1862,7 +1843,7 @@ public class TIFFImage extends SimpleRenderedImage {
 	interpretBytesAsInts(byteArray, intArray, intCount);
     }
 
-    private void readFloats(int floatCount, float floatArray[]) {
+    private void readFloats(long tileOffset, int floatCount, float floatArray[]) {
 
 	// Since each float consists of 4 bytes, we need a
 	// byte array of quadruple size
@@ -1870,7 +1851,7 @@ public class TIFFImage extends SimpleRenderedImage {
 	byte byteArray[] = new byte[byteCount];
 
 	try {
-	    stream.readFully(byteArray, 0, byteCount);
+	    stream.readFully(tileOffset, byteArray, 0, byteCount);
 	} catch (IOException ioe) {
             String message = JaiI18N.getString("TIFFImage13");
             ImagingListenerProxy.errorOccurred(message,
@@ -2108,6 +2089,11 @@ class NoEOFStream extends SeekableStream {
         return count < 0 ? len : count;
     }
 
+    public int read(long pos, byte[] b, int off, int len) throws IOException {
+        int count = stream.read(pos, b, off, len);
+        return count < 0 ? len : count;
+    }
+
     public long getFilePointer() throws IOException {
         return stream.getFilePointer();
     }
@@ -20,16 +20,15 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.color.ColorSpace;
-import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.ComponentSampleModel;
 import java.awt.image.DataBuffer;
-import java.awt.image.DataBufferByte;
 import java.awt.image.IndexColorModel;
 import java.awt.image.MultiPixelPackedSampleModel;
 import java.awt.image.Raster;
@@ -37,16 +36,24 @@ import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.zip.Deflater;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import org.eclipse.imagen.media.codec.ImageEncoderImpl;
 import org.eclipse.imagen.media.codec.ImageEncodeParam;
 import org.eclipse.imagen.media.codec.JPEGEncodeParam;
 import org.eclipse.imagen.media.codec.SeekableOutputStream;
 import org.eclipse.imagen.media.codec.TIFFEncodeParam;
 import org.eclipse.imagen.media.codec.TIFFField;
+import org.eclipse.imagen.media.codecimpl.util.ImagingException;
 import org.eclipse.imagen.media.codecimpl.util.RasterFactory;
 
 /**
@@ -655,7 +662,6 @@ public class TIFFImageEncoder extends ImageEncoderImpl {
         boolean inverseFill = encodeParam.getReverseFillOrder();
         boolean T4encode2D = encodeParam.getT4Encode2D();
         boolean T4PadEOLs = encodeParam.getT4PadEOLs();
-        TIFFFaxEncoder faxEncoder = null;
 
         // Add bilevel compression fields.
         if((imageType == TIFF_BILEVEL_BLACK_IS_ZERO ||
@@ -664,9 +670,6 @@ public class TIFFImageEncoder extends ImageEncoderImpl {
             compression == COMP_GROUP3_2D ||
             compression == COMP_GROUP4)) {
 
-            // Create the encoder.
-            faxEncoder = new TIFFFaxEncoder(inverseFill);
-
             // FillOrder field.
             fields.add(new TIFFField(TIFFImageDecoder.TIFF_FILL_ORDER,
                                      TIFFField.TIFF_SHORT, 1, 
@@ -849,15 +852,11 @@ public class TIFFImageEncoder extends ImageEncoderImpl {
         //    is used (outCache non-null, tempFile null).
 
         OutputStream outCache = null;
-        byte[] compressBuf = null;
         File tempFile = null;
 
         int nextIFDOffset = 0;
         boolean skipByte = false;
 
-        Deflater deflater = null;
-        int deflateLevel = Deflater.DEFAULT_COMPRESSION;
-
         boolean jpegRGBToYCbCr = false;
 
         if(compression == COMP_NONE) {
@@ -927,60 +926,18 @@ public class TIFFImageEncoder extends ImageEncoderImpl {
                 }
             }
 
-            int bufSize = 0;
-            switch(compression) {
-            case COMP_GROUP3_1D:
-                // This initial buffer size is based on an alternating 1-0
-                // pattern generating the most bits when converted to code
-                // words: 9 bits out for each pair of bits in. So the number
-                // of bit pairs is determined, multiplied by 9, converted to
-                // bytes, and a ceil() is taken to account for fill bits at the
-                // end of each line.  The "2" addend accounts for the case
-                // of the pattern beginning with black.  The buffer is intended
-                // to hold only a single row.
-                bufSize = (int)Math.ceil((((tileWidth + 1)/2)*9 + 2)/8.0);
-                break;
-            case COMP_GROUP3_2D:
-            case COMP_GROUP4:
-                // Calculate the maximum row as the G3-1D size plus the EOL,
-                // multiply this by the number of rows in the tile, and add
-                // 6 EOLs for the RTC (return to control).
-                bufSize = (int)Math.ceil((((tileWidth + 1)/2)*9 + 2)/8.0);
-                bufSize = tileHeight*(bufSize + 2) + 12;
-                break;
-            case COMP_PACKBITS:
-                bufSize = (int)(bytesPerTile +
-                                ((bytesPerRow+127)/128)*tileHeight);
-                break;
-            case COMP_JPEG_TTN2:
-                bufSize = 0;
-
-                // Set color conversion flag.
-                if(imageType == TIFF_YCBCR &&
-                   colorModel != null &&
-                   colorModel.getColorSpace().getType() ==
-                   ColorSpace.TYPE_RGB) {
-                    jpegRGBToYCbCr = true;
-                }
-                break;
-            case COMP_DEFLATE:
-                bufSize = (int)bytesPerTile;
-                deflater = new Deflater(encodeParam.getDeflateLevel());
-                break;
-            default:
-                bufSize = 0;
-            }
-            if(bufSize != 0) {
-                compressBuf = new byte[bufSize];
+            // Set color conversion flag.
+            if(compression == COMP_JPEG_TTN2 &&
+               imageType == TIFF_YCBCR &&
+               colorModel != null &&
+               colorModel.getColorSpace().getType() ==
+               ColorSpace.TYPE_RGB) {
+                jpegRGBToYCbCr = true;
             }
         }
 
         // ---- Writing of actual image data ----
 
-	// Buffer for up to tileHeight rows of pixels
-        int[] pixels = null;
-        float[] fpixels = null;
-
         // Whether to test for contiguous data.
         boolean checkContiguous =
             ((sampleSize[0] == 1 &&
@@ -989,403 +946,45 @@ public class TIFFImageEncoder extends ImageEncoderImpl {
              (sampleSize[0] == 8 &&
               sampleModel instanceof ComponentSampleModel));
 
-        // Also create a buffer to hold tileHeight lines of the
-        // data to be written to the file, so we can use array writes.
-        byte[] bpixels = null;
-        if(compression != COMP_JPEG_TTN2) {
-            if(dataType == DataBuffer.TYPE_BYTE) {
-                bpixels = new byte[tileHeight * tileWidth * numBands];
-            } else if(dataTypeIsShort) {
-                bpixels = new byte[2 * tileHeight * tileWidth * numBands];
-            } else if(dataType == DataBuffer.TYPE_INT ||
-                      dataType == DataBuffer.TYPE_FLOAT) {
-                bpixels = new byte[4 * tileHeight * tileWidth * numBands];
-            }
+        TIFFSegmentEncoder[] segmentEncoders =
+            new TIFFSegmentEncoder[encodeParam.getParallelism()];
+        for(int i = 0; i < segmentEncoders.length; i++) {
+            segmentEncoders[i] =
+                new TIFFSegmentEncoder(compression, sampleSize[0], dataType,
+                                       numBands, tileWidth, tileHeight,
+                                       inverseFill, T4encode2D, T4PadEOLs,
+                                       jep, jpegColorID, jpegRGBToYCbCr,
+                                       colorModel,
+                                       encodeParam.getDeflateLevel(),
+                                       checkContiguous);
         }
 
-	// Process tileHeight rows at a time
-	int lastRow = minY + height;
-        int lastCol = minX + width;
-        int tileNum = 0;
-        for (int row = minY; row < lastRow; row += tileHeight) {
-            int rows = isTiled ?
-                tileHeight : Math.min(tileHeight, lastRow - row);
-            int size = rows * tileWidth * numBands;
-
-            for(int col = minX; col < lastCol; col += tileWidth) {
-                // Grab the pixels
-                Raster src =
-                    im.getData(new Rectangle(col, row, tileWidth, rows));
-
-                boolean useDataBuffer = false;
-                if(compression != COMP_JPEG_TTN2) { // JPEG access Raster
-                    if(checkContiguous) {
-                        if(sampleSize[0] == 8) { // 8-bit
-                            ComponentSampleModel csm =
-                                (ComponentSampleModel)src.getSampleModel();
-                            int[] bankIndices = csm.getBankIndices();
-                            int[] bandOffsets = csm.getBandOffsets();
-                            int pixelStride = csm.getPixelStride();
-                            int lineStride = csm.getScanlineStride();
-
-                            if(pixelStride != numBands ||
-                               lineStride != bytesPerRow) {
-                                useDataBuffer = false;
-                            } else {
-                                useDataBuffer = true;
-                                for(int i = 0;
-                                    useDataBuffer && i < numBands;
-                                    i++) {
-                                    if(bankIndices[i] != 0 ||
-                                       bandOffsets[i] != i) {
-                                        useDataBuffer = false;
-                                    }
-                                }
-                            }
-                        } else { // 1-bit
-                            MultiPixelPackedSampleModel mpp =
-                                (MultiPixelPackedSampleModel)src.getSampleModel();
-                            if(mpp.getNumBands() == 1 &&
-                               mpp.getDataBitOffset() == 0 &&
-                               mpp.getPixelBitStride() == 1) {
-                                useDataBuffer = true;
-                            }
-                        }
-                    }
-
-                    if(!useDataBuffer) {
-                        if(dataType == DataBuffer.TYPE_FLOAT) {
-                            fpixels = src.getPixels(col, row, tileWidth, rows,
-                                                    fpixels);
-                        } else {
-                            pixels = src.getPixels(col, row, tileWidth, rows,
-                                                   pixels);
-                        }
-                    }
-                }
-
-                int index;
-
-                int pixel = 0;;
-                int k = 0;
-                switch(sampleSize[0]) {
-
-                case 1:
-
-                    if(useDataBuffer) {
-                        byte[] btmp =
-                            ((DataBufferByte)src.getDataBuffer()).getData();
-                        MultiPixelPackedSampleModel mpp =
-                            (MultiPixelPackedSampleModel)src.getSampleModel();
-                        int lineStride = mpp.getScanlineStride();
-                        int inOffset =
-                            mpp.getOffset(col -
-                                          src.getSampleModelTranslateX(),
-                                          row -
-                                          src.getSampleModelTranslateY());
-                        if(lineStride == (int)bytesPerRow) {
-                            System.arraycopy(btmp, inOffset,
-                                             bpixels, 0,
-                                             (int)bytesPerRow*rows);
-                        } else {
-                            int outOffset = 0;
-                            for(int j = 0; j < rows; j++) {
-                                System.arraycopy(btmp, inOffset,
-                                                 bpixels, outOffset,
-                                                 (int)bytesPerRow);
-                                inOffset += lineStride;
-                                outOffset += (int)bytesPerRow;
-                            }
-                        }
-                    } else {
-                        index = 0;
-
-                        // For each of the rows in a strip
-                        for (int i=0; i<rows; i++) {
-
-                            // Write number of pixels exactly divisible by 8
-                            for (int j=0; j<tileWidth/8; j++) {
-			
-                                pixel =
-                                    (pixels[index++] << 7) |
-                                    (pixels[index++] << 6) |
-                                    (pixels[index++] << 5) |
-                                    (pixels[index++] << 4) |
-                                    (pixels[index++] << 3) |
-                                    (pixels[index++] << 2) |
-                                    (pixels[index++] << 1) |
-                                    pixels[index++];
-                                bpixels[k++] = (byte)pixel;
-                            }
-
-                            // Write the pixels remaining after division by 8
-                            if (tileWidth%8 > 0) {
-                                pixel = 0;
-                                for (int j=0; j<tileWidth%8; j++) {
-                                    pixel |= (pixels[index++] << (7 - j));
-                                }
-                                bpixels[k++] = (byte)pixel;
-                            }
-                        }
-                    }
-
-                    if(compression == COMP_NONE) {
-                        output.write(bpixels, 0, rows * ((tileWidth+7)/8));
-                    } else if(compression == COMP_GROUP3_1D) {
-                        int rowStride = (tileWidth + 7)/8;
-                        int rowOffset = 0;
-                        int numCompressedBytes = 0;
-                        for(int tileRow = 0; tileRow < rows; tileRow++) {
-                            int numCompressedBytesInRow =
-                                faxEncoder.encodeRLE(bpixels,
-                                                     rowOffset, 0, tileWidth,
-                                                     compressBuf);
-                            output.write(compressBuf,
-                                         0, numCompressedBytesInRow);
-                            rowOffset += rowStride;
-                            numCompressedBytes += numCompressedBytesInRow;
-                        }
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                    } else if(compression == COMP_GROUP3_2D) {
-                        int numCompressedBytes =
-                            faxEncoder.encodeT4(!T4encode2D,// 1D == !2D
-                                                T4PadEOLs,
-                                                bpixels,
-                                                (tileWidth+7)/8,
-                                                0,
-                                                tileWidth,
-                                                rows,
-                                                compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
-                    } else if(compression == COMP_GROUP4) {
-                        int numCompressedBytes =
-                            faxEncoder.encodeT6(bpixels,
-                                                (tileWidth+7)/8,
-                                                0,
-                                                tileWidth,
-                                                rows,
-                                                compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
-                    } else if(compression == COMP_PACKBITS) {
-                        int numCompressedBytes =
-                            compressPackBits(bpixels, rows,
-                                             (int)bytesPerRow,
-                                             compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
-                    } else if(compression == COMP_DEFLATE) {
-                        int numCompressedBytes =
-                            deflate(deflater, bpixels, compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
-                    }
-
-                    break;
-
-                case 4:
-		
-                    index = 0;
-
-                    // For each of the rows in a strip
-                    for (int i=0; i<rows; i++) {
-		    
-                        // Write  the number of pixels that will fit into an 
-                        // even number of nibbles.
-                        for (int j=0; j<tileWidth/2; j++) {
-                            pixel = (pixels[index++] << 4) | pixels[index++];
-                            bpixels[k++] = (byte)pixel;
-                        }
-
-                        // Last pixel for odd-length lines
-                        if ((tileWidth % 2) == 1) {
-                            pixel = pixels[index++] << 4;
-                            bpixels[k++] = (byte)pixel;
-                        }
-                    }
-
-                    if(compression == COMP_NONE) {
-                        output.write(bpixels, 0, rows * ((tileWidth+1)/2));
-                    } else if(compression == COMP_PACKBITS) {
-                        int numCompressedBytes =
-                            compressPackBits(bpixels, rows,
-                                             (int)bytesPerRow,
-                                             compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
-                    } else if(compression == COMP_DEFLATE) {
-                        int numCompressedBytes =
-                            deflate(deflater, bpixels, compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
-                    }
-                    break;
- 
-                case 8:
-
-                    if(compression != COMP_JPEG_TTN2) {
-                        if(useDataBuffer) {
-                            byte[] btmp =
-                                ((DataBufferByte)src.getDataBuffer()).getData();
-                            ComponentSampleModel csm =
-                                (ComponentSampleModel)src.getSampleModel();
-                            int inOffset =
-                                csm.getOffset(col -
-                                              src.getSampleModelTranslateX(),
-                                              row -
-                                              src.getSampleModelTranslateY());
-                            int lineStride = csm.getScanlineStride();
-                            if(lineStride == (int)bytesPerRow) {
-                                System.arraycopy(btmp,
-                                                 inOffset,
-                                                 bpixels, 0,
-                                                 (int)bytesPerRow*rows);
-                            } else {
-                                int outOffset = 0;
-                                for(int j = 0; j < rows; j++) {
-                                    System.arraycopy(btmp, inOffset,
-                                                     bpixels, outOffset,
-                                                     (int)bytesPerRow);
-                                    inOffset += lineStride;
-                                    outOffset += (int)bytesPerRow;
-                                }
-                            }
-                        } else {
-                            for (int i = 0; i < size; i++) {
-                                bpixels[i] = (byte)pixels[i];
-                            }
-                        }
-                    }
-
-                    if(compression == COMP_NONE) {
-                        output.write(bpixels, 0, size);
-                    } else if(compression == COMP_PACKBITS) {
-                        int numCompressedBytes =
-                            compressPackBits(bpixels, rows,
-                                             (int)bytesPerRow,
-                                             compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
-                    } else if(compression == COMP_JPEG_TTN2) {
-                        long startPos = getOffset(output);
-
-                        // Recreate encoder and parameters if the encoder
-                        // is null (first data segment) or if its size
-                        // doesn't match the current data segment.
-                        if(jpegEncoder == null ||
-                           jpegEncodeParam.getWidth() != src.getWidth() ||
-                           jpegEncodeParam.getHeight() != src.getHeight()) {
-
-                            jpegEncodeParam =
-                                com.sun.image.codec.jpeg.JPEGCodec.
-                                getDefaultJPEGEncodeParam(src, jpegColorID);
-
-                            JPEGImageEncoder.modifyEncodeParam(jep,
-                                                               jpegEncodeParam,
-                                                               numBands);
-
-                            jpegEncoder =
-                                com.sun.image.codec.jpeg.JPEGCodec.
-                                createJPEGEncoder(output,
-                                                  jpegEncodeParam);
-                        }
-
-                        if(jpegRGBToYCbCr) {
-                            WritableRaster wRas = null;
-                            if(src instanceof WritableRaster) {
-                                wRas = (WritableRaster)src;
-                            } else {
-                                wRas = src.createCompatibleWritableRaster();
-                                wRas.setRect(src);
-                            }
-
-                            if (wRas.getMinX() != 0 || wRas.getMinY() != 0) {
-                                wRas =
-                                    wRas.createWritableTranslatedChild(0, 0);
-                            }
-                            BufferedImage bi =
-                                new BufferedImage(colorModel, wRas,
-                                                  false, null);
-                            jpegEncoder.encode(bi);
-                        } else {
-                            jpegEncoder.encode(src.createTranslatedChild(0,
-                                                                         0));
-                        }
-
-                        long endPos = getOffset(output);
-                        tileByteCounts[tileNum++] = (int)(endPos - startPos);
-                    } else if(compression == COMP_DEFLATE) {
-                        int numCompressedBytes =
-                            deflate(deflater, bpixels, compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
-                    }
-                    break;
-		
-                case 16:
-
-                    int ls = 0;
-                    for (int i = 0; i < size; i++) {
-                        short value = (short)pixels[i];
-                        bpixels[ls++] = (byte)((value & 0xff00) >> 8);
-                        bpixels[ls++] = (byte)(value & 0x00ff);
-                    }
-
-                    if(compression == COMP_NONE) {
-                        output.write(bpixels, 0, size*2);
-                    } else if(compression == COMP_PACKBITS) {
-                        int numCompressedBytes =
-                            compressPackBits(bpixels, rows,
-                                             (int)bytesPerRow,
-                                             compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
-                    } else if(compression == COMP_DEFLATE) {
-                        int numCompressedBytes =
-                            deflate(deflater, bpixels, compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
-                    }
-                    break;
-
-                case 32:
-                    if(dataType == DataBuffer.TYPE_INT) {
-                        int li = 0;
-                        for (int i = 0; i < size; i++) {
-                            int value = pixels[i];
-                            bpixels[li++] = (byte)((value & 0xff000000) >> 24);
-                            bpixels[li++] = (byte)((value & 0x00ff0000) >> 16);
-                            bpixels[li++] = (byte)((value & 0x0000ff00) >> 8);
-                            bpixels[li++] = (byte)(value & 0x000000ff);
-                        }
-                    } else { // DataBuffer.TYPE_FLOAT
-                        int lf = 0;
-                        for (int i = 0; i < size; i++) {
-                            int value = Float.floatToIntBits(fpixels[i]);
-                            bpixels[lf++] = (byte)((value & 0xff000000) >> 24);
-                            bpixels[lf++] = (byte)((value & 0x00ff0000) >> 16);
-                            bpixels[lf++] = (byte)((value & 0x0000ff00) >> 8);
-                            bpixels[lf++] = (byte)(value & 0x000000ff);
-                        }
-                    }
-                    if(compression == COMP_NONE) {
-                        output.write(bpixels, 0, size*4);
-                    } else if(compression == COMP_PACKBITS) {
-                        int numCompressedBytes =
-                            compressPackBits(bpixels, rows,
-                                             (int)bytesPerRow,
-                                             compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
-                    } else if(compression == COMP_DEFLATE) {
-                        int numCompressedBytes =
-                            deflate(deflater, bpixels, compressBuf);
-                        tileByteCounts[tileNum++] = numCompressedBytes;
-                        output.write(compressBuf, 0, numCompressedBytes);
+        if(segmentEncoders.length > 1 && numTiles > 1) {
+            writeSegments(im, isTiled, tileWidth, tileHeight,
+                          segmentEncoders,
+                          encodeParam.getMaxSegmentsInFlight(),
+                          compression != COMP_NONE ? tileByteCounts : null);
+        } else {
+            // Process tileHeight rows at a time
+            int lastRow = minY + height;
+            int lastCol = minX + width;
+            int tileNum = 0;
+            for (int row = minY; row < lastRow; row += tileHeight) {
+                int rows = isTiled ?
+                    tileHeight : Math.min(tileHeight, lastRow - row);
+
+                for(int col = minX; col < lastCol; col += tileWidth) {
+                    // Grab the pixels
+                    Raster src =
+                        im.getData(new Rectangle(col, row, tileWidth, rows));
+
+                    int numBytes =
+                        segmentEncoders[0].encode(src, col, row, rows,
+                                                  output);
+                    if(compression != COMP_NONE) {
+                        tileByteCounts[tileNum] = numBytes;
                     }
-                    break;
-
+                    tileNum++;
                 }
             }
         }
@@ -1499,6 +1098,127 @@ public class TIFFImageEncoder extends ImageEncoderImpl {
         return nextIFDOffset;
     }
 
+    /**
+     * Writes the data segments of an image in order while the segments
+     * which follow are retrieved from the image and compressed by worker
+     * threads, one for each <code>TIFFSegmentEncoder</code>.  At most
+     * <code>maxSegmentsInFlight</code> segments are being computed or
+     * waiting to be written at any time.  If <code>tileByteCounts</code>
+     * is non-<code>null</code> the size of each segment is stored in it.
+     */
+    private void writeSegments(final RenderedImage im,
+                               boolean isTiled,
+                               final int tileWidth,
+                               int tileHeight,
+                               TIFFSegmentEncoder[] segmentEncoders,
+                               int maxSegmentsInFlight,
+                               long[] tileByteCounts) throws IOException {
+        int numThreads = segmentEncoders.length;
+        if(maxSegmentsInFlight <= 0) {
+            maxSegmentsInFlight = 2*numThreads;
+        }
+
+        // The pool never has more threads than there are encoders so
+        // each thread can keep the one it takes on its first task.
+        final LinkedList freeEncoders =
+            new LinkedList(Arrays.asList(segmentEncoders));
+        final ThreadLocal threadEncoder = new ThreadLocal() {
+                protected Object initialValue() {
+                    synchronized(freeEncoders) {
+                        return freeEncoders.removeFirst();
+                    }
+                }
+            };
+
+        ExecutorService executor =
+            Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "TIFFImageEncoder");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        LinkedList pending = new LinkedList();
+        int lastRow = im.getMinY() + im.getHeight();
+        int lastCol = im.getMinX() + im.getWidth();
+        int tileNum = 0;
+        try {
+            for (int row = im.getMinY(); row < lastRow; row += tileHeight) {
+                final int rows = isTiled ?
+                    tileHeight : Math.min(tileHeight, lastRow - row);
+
+                for(int col = im.getMinX(); col < lastCol; col += tileWidth) {
+                    // Bound the memory held by segments in flight.
+                    if(pending.size() >= maxSegmentsInFlight) {
+                        int numBytes =
+                            writeSegment((Future)pending.removeFirst());
+                        if(tileByteCounts != null) {
+                            tileByteCounts[tileNum] = numBytes;
+                        }
+                        tileNum++;
+                    }
+
+                    final int segmentCol = col;
+                    final int segmentRow = row;
+                    pending.add(executor.submit(new Callable() {
+                            public Object call() throws IOException {
+                                Raster src =
+                                    im.getData(new Rectangle(segmentCol,
+                                                             segmentRow,
+                                                             tileWidth,
+                                                             rows));
+                                TIFFSegmentEncoder encoder =
+                                    (TIFFSegmentEncoder)threadEncoder.get();
+                                ByteArrayOutputStream stream =
+                                    new ByteArrayOutputStream();
+                                encoder.encode(src, segmentCol, segmentRow,
+                                               rows, stream);
+                                return stream;
+                            }
+                        }));
+                }
+            }
+
+            while(!pending.isEmpty()) {
+                int numBytes = writeSegment((Future)pending.removeFirst());
+                if(tileByteCounts != null) {
+                    tileByteCounts[tileNum] = numBytes;
+                }
+                tileNum++;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for a segment computed by <code>writeSegments()</code> and
+     * writes it to the output.  Returns the number of bytes written.
+     */
+    private int writeSegment(Future segment) throws IOException {
+        ByteArrayOutputStream stream;
+        try {
+            stream = (ByteArrayOutputStream)segment.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if(cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if(cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new ImagingException(cause);
+        }
+
+        stream.writeTo(output);
+        return stream.size();
+    }
+
     /**
      * Calculates the size of the IFD.
      */
@@ -1855,99 +1575,4 @@ public class TIFFImageEncoder extends ImageEncoderImpl {
             output.write( ((int)l & 0x000000ff));
         }
     }
-
-    /**
-     * Returns the current offset in the supplied OutputStream.
-     * This method should only be used if compressing data.
-     */
-    private long getOffset(OutputStream out) throws IOException {
-        if(out instanceof ByteArrayOutputStream) {
-            return ((ByteArrayOutputStream)out).size();
-        } else if(out instanceof SeekableOutputStream) {
-            return ((SeekableOutputStream)out).getFilePointer();
-        } else {
-            // Shouldn't happen.
-            throw new IllegalStateException();
-        }
-    }
-
-    /**
-     * Performs PackBits compression on a tile of data.
-     */
-    private static int compressPackBits(byte[] data, int numRows,
-                                        int bytesPerRow, byte[] compData) {
-        int inOffset = 0;
-        int outOffset = 0;
-
-        for(int i = 0; i < numRows; i++) {
-            outOffset = packBits(data, inOffset, bytesPerRow,
-                                 compData, outOffset);
-            inOffset += bytesPerRow;
-        }
-
-        return outOffset;
-    }
-
-    /**
-     * Performs PackBits compression for a single buffer of data.
-     * This should be called for each row of each tile. The returned
-     * value is the offset into the output buffer after compression.
-     */
-    private static int packBits(byte[] input, int inOffset, int inCount,
-                                byte[] output, int outOffset) {
-        int inMax = inOffset + inCount - 1;
-        int inMaxMinus1 = inMax - 1;
-
-        while(inOffset <= inMax) {
-            int run = 1;
-            byte replicate = input[inOffset];
-            while(run < 127 && inOffset < inMax &&
-                  input[inOffset] == input[inOffset+1]) {
-                run++;
-                inOffset++;
-            }
-            if(run > 1) {
-                inOffset++;
-                output[outOffset++] = (byte)(-(run - 1));
-                output[outOffset++] = replicate;
-            }
-
-            run = 0;
-            int saveOffset = outOffset;
-            while(run < 128 &&
-                  ((inOffset < inMax &&
-                    input[inOffset] != input[inOffset+1]) ||
-                   (inOffset < inMaxMinus1 &&
-                    input[inOffset] != input[inOffset+2]))) {
-                run++;
-                output[++outOffset] = input[inOffset++];
-            }
-            if(run > 0) {
-                output[saveOffset] = (byte)(run - 1);
-                outOffset++;
-            }
-
-            if(inOffset == inMax) {
-                if(run > 0 && run < 128) {
-                    output[saveOffset]++;
-                    output[outOffset++] = input[inOffset++];
-                } else {
-                    output[outOffset++] = (byte)0;
-                    output[outOffset++] = input[inOffset++];
-                }
-            }
-        }
-
-        return outOffset;
-    }
-
-    private static int deflate(Deflater deflater,
-                               byte[] inflated, byte[] deflated) {
-        deflater.setInput(inflated);
-        deflater.finish();
-        int numCompressedBytes = deflater.deflate(deflated);
-        deflater.reset();
-        return numCompressedBytes;
-    }
 }
-
@@ -0,0 +1,630 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.codecimpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.zip.Deflater;
+import org.eclipse.imagen.media.codec.JPEGEncodeParam;
+import org.eclipse.imagen.media.codec.TIFFEncodeParam;
+
+/**
+ * Converts the pixels of one TIFF data segment (strip or tile) to the
+ * stream representation and compresses them.  An instance holds the
+ * buffers and compressor state for a single segment at a time and is
+ * therefore not thread safe; <code>TIFFImageEncoder</code> uses one
+ * instance per compression thread.
+ */
+final class TIFFSegmentEncoder {
+
+    private static final int COMP_NONE      =
+        TIFFEncodeParam.COMPRESSION_NONE;
+    private static final int COMP_GROUP3_1D =
+        TIFFEncodeParam.COMPRESSION_GROUP3_1D;
+    private static final int COMP_GROUP3_2D =
+        TIFFEncodeParam.COMPRESSION_GROUP3_2D;
+    private static final int COMP_GROUP4    =
+        TIFFEncodeParam.COMPRESSION_GROUP4;
+    private static final int COMP_JPEG_TTN2 =
+        TIFFEncodeParam.COMPRESSION_JPEG_TTN2;
+    private static final int COMP_PACKBITS  =
+        TIFFEncodeParam.COMPRESSION_PACKBITS;
+    private static final int COMP_DEFLATE   =
+        TIFFEncodeParam.COMPRESSION_DEFLATE;
+
+    private final int compression;
+    private final int sampleSize;
+    private final int dataType;
+    private final int numBands;
+    private final int tileWidth;
+    private final long bytesPerRow;
+    private final boolean checkContiguous;
+
+    // Bilevel compression variables.
+    private final boolean T4encode2D;
+    private final boolean T4PadEOLs;
+    private TIFFFaxEncoder faxEncoder = null;
+
+    // JPEG compression variables.
+    private final JPEGEncodeParam jep;
+    private final int jpegColorID;
+    private final boolean jpegRGBToYCbCr;
+    private final ColorModel colorModel;
+    private com.sun.image.codec.jpeg.JPEGEncodeParam jpegEncodeParam = null;
+    private com.sun.image.codec.jpeg.JPEGImageEncoder jpegEncoder = null;
+    private ByteArrayOutputStream jpegStream = null;
+
+    private Deflater deflater = null;
+
+    // Buffers for up to tileHeight rows of pixels.
+    private int[] pixels = null;
+    private float[] fpixels = null;
+    private byte[] bpixels = null;
+    private byte[] compressBuf = null;
+
+    TIFFSegmentEncoder(int compression,
+                       int sampleSize,
+                       int dataType,
+                       int numBands,
+                       int tileWidth,
+                       int tileHeight,
+                       boolean inverseFill,
+                       boolean T4encode2D,
+                       boolean T4PadEOLs,
+                       JPEGEncodeParam jep,
+                       int jpegColorID,
+                       boolean jpegRGBToYCbCr,
+                       ColorModel colorModel,
+                       int deflateLevel,
+                       boolean checkContiguous) {
+        this.compression = compression;
+        this.sampleSize = sampleSize;
+        this.dataType = dataType;
+        this.numBands = numBands;
+        this.tileWidth = tileWidth;
+        this.T4encode2D = T4encode2D;
+        this.T4PadEOLs = T4PadEOLs;
+        this.jep = jep;
+        this.jpegColorID = jpegColorID;
+        this.jpegRGBToYCbCr = jpegRGBToYCbCr;
+        this.colorModel = colorModel;
+        this.checkContiguous = checkContiguous;
+
+	bytesPerRow =
+            (long)Math.ceil((sampleSize / 8.0) * tileWidth * numBands);
+	long bytesPerTile = bytesPerRow * tileHeight;
+
+        int bufSize = 0;
+        switch(compression) {
+        case COMP_GROUP3_1D:
+            // This initial buffer size is based on an alternating 1-0
+            // pattern generating the most bits when converted to code
+            // words: 9 bits out for each pair of bits in. So the number
+            // of bit pairs is determined, multiplied by 9, converted to
+            // bytes, and a ceil() is taken to account for fill bits at the
+            // end of each line.  The "2" addend accounts for the case
+            // of the pattern beginning with black.  The buffer is intended
+            // to hold only a single row.
+            bufSize = (int)Math.ceil((((tileWidth + 1)/2)*9 + 2)/8.0);
+            faxEncoder = new TIFFFaxEncoder(inverseFill);
+            break;
+        case COMP_GROUP3_2D:
+        case COMP_GROUP4:
+            // Calculate the maximum row as the G3-1D size plus the EOL,
+            // multiply this by the number of rows in the tile, and add
+            // 6 EOLs for the RTC (return to control).
+            bufSize = (int)Math.ceil((((tileWidth + 1)/2)*9 + 2)/8.0);
+            bufSize = tileHeight*(bufSize + 2) + 12;
+            faxEncoder = new TIFFFaxEncoder(inverseFill);
+            break;
+        case COMP_PACKBITS:
+            bufSize = (int)(bytesPerTile +
+                            ((bytesPerRow+127)/128)*tileHeight);
+            break;
+        case COMP_JPEG_TTN2:
+            bufSize = 0;
+            jpegStream = new ByteArrayOutputStream();
+            break;
+        case COMP_DEFLATE:
+            bufSize = (int)bytesPerTile;
+            deflater = new Deflater(deflateLevel);
+            break;
+        default:
+            bufSize = 0;
+        }
+        if(bufSize != 0) {
+            compressBuf = new byte[bufSize];
+        }
+
+        // Also create a buffer to hold tileHeight lines of the
+        // data to be written to the file, so we can use array writes.
+        if(compression != COMP_JPEG_TTN2) {
+            if(dataType == DataBuffer.TYPE_BYTE) {
+                bpixels = new byte[tileHeight * tileWidth * numBands];
+            } else if(dataType == DataBuffer.TYPE_SHORT ||
+                      dataType == DataBuffer.TYPE_USHORT) {
+                bpixels = new byte[2 * tileHeight * tileWidth * numBands];
+            } else if(dataType == DataBuffer.TYPE_INT ||
+                      dataType == DataBuffer.TYPE_FLOAT) {
+                bpixels = new byte[4 * tileHeight * tileWidth * numBands];
+            }
+        }
+    }
+
+    /**
+     * Encodes the segment of <code>rows</code> rows whose upper left
+     * corner is at (<code>col</code>,&nbsp;<code>row</code>) and writes
+     * it to <code>output</code>.
+     *
+     * @param src A <code>Raster</code> containing the data of the segment.
+     * @return The number of bytes written.
+     */
+    int encode(Raster src, int col, int row, int rows, OutputStream output)
+        throws IOException {
+        int size = rows * tileWidth * numBands;
+
+        boolean useDataBuffer = false;
+        if(compression != COMP_JPEG_TTN2) { // JPEG access Raster
+            if(checkContiguous) {
+                if(sampleSize == 8) { // 8-bit
+                    ComponentSampleModel csm =
+                        (ComponentSampleModel)src.getSampleModel();
+                    int[] bankIndices = csm.getBankIndices();
+                    int[] bandOffsets = csm.getBandOffsets();
+                    int pixelStride = csm.getPixelStride();
+                    int lineStride = csm.getScanlineStride();
+
+                    if(pixelStride != numBands ||
+                       lineStride != bytesPerRow) {
+                        useDataBuffer = false;
+                    } else {
+                        useDataBuffer = true;
+                        for(int i = 0;
+                            useDataBuffer && i < numBands;
+                            i++) {
+                            if(bankIndices[i] != 0 ||
+                               bandOffsets[i] != i) {
+                                useDataBuffer = false;
+                            }
+                        }
+                    }
+                } else { // 1-bit
+                    MultiPixelPackedSampleModel mpp =
+                        (MultiPixelPackedSampleModel)src.getSampleModel();
+                    if(mpp.getNumBands() == 1 &&
+                       mpp.getDataBitOffset() == 0 &&
+                       mpp.getPixelBitStride() == 1) {
+                        useDataBuffer = true;
+                    }
+                }
+            }
+
+            if(!useDataBuffer) {
+                if(dataType == DataBuffer.TYPE_FLOAT) {
+                    fpixels = src.getPixels(col, row, tileWidth, rows,
+                                            fpixels);
+                } else {
+                    pixels = src.getPixels(col, row, tileWidth, rows,
+                                           pixels);
+                }
+            }
+        }
+
+        int index;
+
+        int pixel = 0;
+        int k = 0;
+        int numBytes = 0;
+        switch(sampleSize) {
+
+        case 1:
+
+            if(useDataBuffer) {
+                byte[] btmp =
+                    ((DataBufferByte)src.getDataBuffer()).getData();
+                MultiPixelPackedSampleModel mpp =
+                    (MultiPixelPackedSampleModel)src.getSampleModel();
+                int lineStride = mpp.getScanlineStride();
+                int inOffset =
+                    mpp.getOffset(col -
+                                  src.getSampleModelTranslateX(),
+                                  row -
+                                  src.getSampleModelTranslateY());
+                if(lineStride == (int)bytesPerRow) {
+                    System.arraycopy(btmp, inOffset,
+                                     bpixels, 0,
+                                     (int)bytesPerRow*rows);
+                } else {
+                    int outOffset = 0;
+                    for(int j = 0; j < rows; j++) {
+                        System.arraycopy(btmp, inOffset,
+                                         bpixels, outOffset,
+                                         (int)bytesPerRow);
+                        inOffset += lineStride;
+                        outOffset += (int)bytesPerRow;
+                    }
+                }
+            } else {
+                index = 0;
+
+                // For each of the rows in a strip
+                for (int i=0; i<rows; i++) {
+
+                    // Write number of pixels exactly divisible by 8
+                    for (int j=0; j<tileWidth/8; j++) {
+
+                        pixel =
+                            (pixels[index++] << 7) |
+                            (pixels[index++] << 6) |
+                            (pixels[index++] << 5) |
+                            (pixels[index++] << 4) |
+                            (pixels[index++] << 3) |
+                            (pixels[index++] << 2) |
+                            (pixels[index++] << 1) |
+                            pixels[index++];
+                        bpixels[k++] = (byte)pixel;
+                    }
+
+                    // Write the pixels remaining after division by 8
+                    if (tileWidth%8 > 0) {
+                        pixel = 0;
+                        for (int j=0; j<tileWidth%8; j++) {
+                            pixel |= (pixels[index++] << (7 - j));
+                        }
+                        bpixels[k++] = (byte)pixel;
+                    }
+                }
+            }
+
+            if(compression == COMP_NONE) {
+                numBytes = rows * ((tileWidth+7)/8);
+                output.write(bpixels, 0, numBytes);
+            } else if(compression == COMP_GROUP3_1D) {
+                int rowStride = (tileWidth + 7)/8;
+                int rowOffset = 0;
+                for(int tileRow = 0; tileRow < rows; tileRow++) {
+                    int numCompressedBytesInRow =
+                        faxEncoder.encodeRLE(bpixels,
+                                             rowOffset, 0, tileWidth,
+                                             compressBuf);
+                    output.write(compressBuf,
+                                 0, numCompressedBytesInRow);
+                    rowOffset += rowStride;
+                    numBytes += numCompressedBytesInRow;
+                }
+            } else if(compression == COMP_GROUP3_2D) {
+                numBytes =
+                    faxEncoder.encodeT4(!T4encode2D,// 1D == !2D
+                                        T4PadEOLs,
+                                        bpixels,
+                                        (tileWidth+7)/8,
+                                        0,
+                                        tileWidth,
+                                        rows,
+                                        compressBuf);
+                output.write(compressBuf, 0, numBytes);
+            } else if(compression == COMP_GROUP4) {
+                numBytes =
+                    faxEncoder.encodeT6(bpixels,
+                                        (tileWidth+7)/8,
+                                        0,
+                                        tileWidth,
+                                        rows,
+                                        compressBuf);
+                output.write(compressBuf, 0, numBytes);
+            } else {
+                numBytes = compress(rows, output);
+            }
+
+            break;
+
+        case 4:
+
+            index = 0;
+
+            // For each of the rows in a strip
+            for (int i=0; i<rows; i++) {
+
+                // Write  the number of pixels that will fit into an
+                // even number of nibbles.
+                for (int j=0; j<tileWidth/2; j++) {
+                    pixel = (pixels[index++] << 4) | pixels[index++];
+                    bpixels[k++] = (byte)pixel;
+                }
+
+                // Last pixel for odd-length lines
+                if ((tileWidth % 2) == 1) {
+                    pixel = pixels[index++] << 4;
+                    bpixels[k++] = (byte)pixel;
+                }
+            }
+
+            if(compression == COMP_NONE) {
+                numBytes = rows * ((tileWidth+1)/2);
+                output.write(bpixels, 0, numBytes);
+            } else {
+                numBytes = compress(rows, output);
+            }
+            break;
+
+        case 8:
+
+            if(compression != COMP_JPEG_TTN2) {
+                if(useDataBuffer) {
+                    byte[] btmp =
+                        ((DataBufferByte)src.getDataBuffer()).getData();
+                    ComponentSampleModel csm =
+                        (ComponentSampleModel)src.getSampleModel();
+                    int inOffset =
+                        csm.getOffset(col -
+                                      src.getSampleModelTranslateX(),
+                                      row -
+                                      src.getSampleModelTranslateY());
+                    int lineStride = csm.getScanlineStride();
+                    if(lineStride == (int)bytesPerRow) {
+                        System.arraycopy(btmp,
+                                         inOffset,
+                                         bpixels, 0,
+                                         (int)bytesPerRow*rows);
+                    } else {
+                        int outOffset = 0;
+                        for(int j = 0; j < rows; j++) {
+                            System.arraycopy(btmp, inOffset,
+                                             bpixels, outOffset,
+                                             (int)bytesPerRow);
+                            inOffset += lineStride;
+                            outOffset += (int)bytesPerRow;
+                        }
+                    }
+                } else {
+                    for (int i = 0; i < size; i++) {
+                        bpixels[i] = (byte)pixels[i];
+                    }
+                }
+            }
+
+            if(compression == COMP_NONE) {
+                numBytes = size;
+                output.write(bpixels, 0, numBytes);
+            } else if(compression == COMP_JPEG_TTN2) {
+                numBytes = encodeJPEG(src, output);
+            } else {
+                numBytes = compress(rows, output);
+            }
+            break;
+
+        case 16:
+
+            int ls = 0;
+            for (int i = 0; i < size; i++) {
+                short value = (short)pixels[i];
+                bpixels[ls++] = (byte)((value & 0xff00) >> 8);
+                bpixels[ls++] = (byte)(value & 0x00ff);
+            }
+
+            if(compression == COMP_NONE) {
+                numBytes = size*2;
+                output.write(bpixels, 0, numBytes);
+            } else {
+                numBytes = compress(rows, output);
+            }
+            break;
+
+        case 32:
+            if(dataType == DataBuffer.TYPE_INT) {
+                int li = 0;
+                for (int i = 0; i < size; i++) {
+                    int value = pixels[i];
+                    bpixels[li++] = (byte)((value & 0xff000000) >> 24);
+                    bpixels[li++] = (byte)((value & 0x00ff0000) >> 16);
+                    bpixels[li++] = (byte)((value & 0x0000ff00) >> 8);
+                    bpixels[li++] = (byte)(value & 0x000000ff);
+                }
+            } else { // DataBuffer.TYPE_FLOAT
+                int lf = 0;
+                for (int i = 0; i < size; i++) {
+                    int value = Float.floatToIntBits(fpixels[i]);
+                    bpixels[lf++] = (byte)((value & 0xff000000) >> 24);
+                    bpixels[lf++] = (byte)((value & 0x00ff0000) >> 16);
+                    bpixels[lf++] = (byte)((value & 0x0000ff00) >> 8);
+                    bpixels[lf++] = (byte)(value & 0x000000ff);
+                }
+            }
+            if(compression == COMP_NONE) {
+                numBytes = size*4;
+                output.write(bpixels, 0, numBytes);
+            } else {
+                numBytes = compress(rows, output);
+            }
+            break;
+
+        }
+
+        return numBytes;
+    }
+
+    /**
+     * Compresses the contents of <code>bpixels</code> using PackBits or
+     * DEFLATE and writes the result to <code>output</code>.
+     */
+    private int compress(int rows, OutputStream output) throws IOException {
+        int numCompressedBytes = 0;
+        if(compression == COMP_PACKBITS) {
+            numCompressedBytes =
+                compressPackBits(bpixels, rows,
+                                 (int)bytesPerRow,
+                                 compressBuf);
+        } else if(compression == COMP_DEFLATE) {
+            numCompressedBytes =
+                deflate(deflater, bpixels, rows*(int)bytesPerRow,
+                        compressBuf);
+        } else {
+            return 0;
+        }
+        output.write(compressBuf, 0, numCompressedBytes);
+        return numCompressedBytes;
+    }
+
+    /**
+     * Writes the segment as a JPEG datastream.
+     */
+    private int encodeJPEG(Raster src, OutputStream output)
+        throws IOException {
+        // Recreate encoder and parameters if the encoder
+        // is null (first data segment) or if its size
+        // doesn't match the current data segment.
+        if(jpegEncoder == null ||
+           jpegEncodeParam.getWidth() != src.getWidth() ||
+           jpegEncodeParam.getHeight() != src.getHeight()) {
+
+            jpegEncodeParam =
+                com.sun.image.codec.jpeg.JPEGCodec.
+                getDefaultJPEGEncodeParam(src, jpegColorID);
+
+            JPEGImageEncoder.modifyEncodeParam(jep,
+                                               jpegEncodeParam,
+                                               numBands);
+
+            jpegEncoder =
+                com.sun.image.codec.jpeg.JPEGCodec.
+                createJPEGEncoder(jpegStream,
+                                  jpegEncodeParam);
+        }
+
+        jpegStream.reset();
+        if(jpegRGBToYCbCr) {
+            WritableRaster wRas = null;
+            if(src instanceof WritableRaster) {
+                wRas = (WritableRaster)src;
+            } else {
+                wRas = src.createCompatibleWritableRaster();
+                wRas.setRect(src);
+            }
+
+            if (wRas.getMinX() != 0 || wRas.getMinY() != 0) {
+                wRas =
+                    wRas.createWritableTranslatedChild(0, 0);
+            }
+            BufferedImage bi =
+                new BufferedImage(colorModel, wRas,
+                                  false, null);
+            jpegEncoder.encode(bi);
+        } else {
+            jpegEncoder.encode(src.createTranslatedChild(0,
+                                                         0));
+        }
+
+        jpegStream.writeTo(output);
+        return jpegStream.size();
+    }
+
+    /**
+     * Performs PackBits compression on a tile of data.
+     */
+    private static int compressPackBits(byte[] data, int numRows,
+                                        int bytesPerRow, byte[] compData) {
+        int inOffset = 0;
+        int outOffset = 0;
+
+        for(int i = 0; i < numRows; i++) {
+            outOffset = packBits(data, inOffset, bytesPerRow,
+                                 compData, outOffset);
+            inOffset += bytesPerRow;
+        }
+
+        return outOffset;
+    }
+
+    /**
+     * Performs PackBits compression for a single buffer of data.
+     * This should be called for each row of each tile. The returned
+     * value is the offset into the output buffer after compression.
+     */
+    private static int packBits(byte[] input, int inOffset, int inCount,
+                                byte[] output, int outOffset) {
+        int inMax = inOffset + inCount - 1;
+        int inMaxMinus1 = inMax - 1;
+
+        while(inOffset <= inMax) {
+            int run = 1;
+            byte replicate = input[inOffset];
+            while(run < 127 && inOffset < inMax &&
+                  input[inOffset] == input[inOffset+1]) {
+                run++;
+                inOffset++;
+            }
+            if(run > 1) {
+                inOffset++;
+                output[outOffset++] = (byte)(-(run - 1));
+                output[outOffset++] = replicate;
+            }
+
+            run = 0;
+            int saveOffset = outOffset;
+            while(run < 128 &&
+                  ((inOffset < inMax &&
+                    input[inOffset] != input[inOffset+1]) ||
+                   (inOffset < inMaxMinus1 &&
+                    input[inOffset] != input[inOffset+2]))) {
+                run++;
+                output[++outOffset] = input[inOffset++];
+            }
+            if(run > 0) {
+                output[saveOffset] = (byte)(run - 1);
+                outOffset++;
+            }
+
+            if(inOffset == inMax) {
+                if(run > 0 && run < 128) {
+                    output[saveOffset]++;
+                    output[outOffset++] = input[inOffset++];
+                } else {
+                    output[outOffset++] = (byte)0;
+                    output[outOffset++] = input[inOffset++];
+                }
+            }
+        }
+
+        return outOffset;
+    }
+
+    /**
+     * Performs DEFLATE compression on the first <code>length</code> bytes
+     * of a tile of data.  Only the rows of the segment are compressed so
+     * that a shorter final strip does not carry over data from the
+     * previous one.
+     */
+    private static int deflate(Deflater deflater,
+                               byte[] inflated, int length,
+                               byte[] deflated) {
+        deflater.setInput(inflated, 0, length);
+        deflater.finish();
+        int numCompressedBytes = deflater.deflate(deflated);
+        deflater.reset();
+        return numCompressedBytes;
+    }
+}
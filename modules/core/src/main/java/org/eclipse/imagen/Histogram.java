@@ -60,6 +60,7 @@ import java.util.ListIterator;
  * bins may be obtained by calling the <code>getBins</code> method.
  *
  * @see ROI
+ * @see LongHistogram
  * @see org.eclipse.imagen.operator.HistogramDescriptor
  *
  */
@@ -540,6 +541,56 @@ public class Histogram implements Serializable {
         return total;
     }
 
+    /**
+     * Returns a copy of the bins of the histogram for a specific band
+     * as 64-bit counts.  The statistics and threshold methods of this
+     * class use these counts, so that they also apply to histograms
+     * which count more samples than an <code>int</code> can hold.
+     *
+     * @param band  The index of the band whose <code>bins</code>
+     *        are to be returned.
+     *
+     * @throws ArrayIndexOutOfBoundsException  If an invalid band index
+     *         is specified.
+     *
+     * @see LongHistogram
+     */
+    public long[] getLongBins(int band) {
+        int[] b = getBins(band);
+        int length = b.length;
+        long[] counts = new long[length];
+
+        for (int i = 0; i < length; i++) {
+            counts[i] = b[i];
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the total bin count over all bins for all bands as
+     * 64-bit counts.  Unlike <code>getTotals</code> this returns a
+     * new array which reflects the current counts.
+     *
+     * @see #getTotals
+     */
+    public long[] getLongTotals() {
+        long[] totals = new long[numBands];
+
+        for (int i = 0; i < numBands; i++) {
+            long[] counts = getLongBins(i);
+            long t = 0;
+
+            for (int j = 0; j < counts.length; j++) {
+                t += counts[j];
+            }
+
+            totals[i] = t;
+        }
+
+        return totals;
+    }
+
     /**
      * Returns the mean values for all bands of the histogram.
      *
@@ -547,28 +598,34 @@ public class Histogram implements Serializable {
      */
     public double[] getMean() {
         if (mean == null) {
-            getTotals();	// make sure totals is computed
-
             synchronized (this) {
-                mean = new double[numBands];
+                mean = computeMean();
+            }
+        }
 
-                for (int i = 0; i < numBands; i++) {
-                    int[] counts = getBins(i);
-                    int nBins = numBins[i];
-                    double level = getLowValue(i);
-                    double bw = binWidth[i];
+        return mean;
+    }
 
-                    double mu = 0.0;
-                    double total = totals[i];
+    /** Computes the mean values for all bands from the current counts. */
+    double[] computeMean() {
+        long[] totals = getLongTotals();
+        double[] mean = new double[numBands];
 
-                    for(int b = 0; b < nBins; b++) {
-                        mu += (counts[b] / total) * level;
-                        level += bw;
-                    }
+        for (int i = 0; i < numBands; i++) {
+            long[] counts = getLongBins(i);
+            int nBins = numBins[i];
+            double level = getLowValue(i);
+            double bw = binWidth[i];
 
-                    mean[i] = mu;
-                }
+            double mu = 0.0;
+            double total = totals[i];
+
+            for(int b = 0; b < nBins; b++) {
+                mu += (counts[b] / total) * level;
+                level += bw;
             }
+
+            mean[i] = mu;
         }
 
         return mean;
@@ -971,11 +1028,8 @@ public class Histogram implements Serializable {
             throw new IllegalArgumentException(JaiI18N.getString("Histogram6"));
         }
 
-        // If the mean is required but has not yet been calculated
-        // then calculate it first.
-        if((moment == 1 || isCentral) && mean == null) {
-            getMean();
-        }
+        // If the mean is required then get it first.
+        double[] mean = (moment == 1 || isCentral) ? getMean() : null;
 
         // If it's the first non-absolute, non-central moment return the mean.
         if((moment == 1) && !isAbsolute && !isCentral) {
@@ -991,11 +1045,11 @@ public class Histogram implements Serializable {
             }
         } else {
             // Get the total counts for all bands.
-            getTotals();
+            long[] totals = getLongTotals();
 
             for(int band = 0; band < numBands; band++) {
                 // Cache some band-dependent quantities.
-                int[] counts = getBins(band);
+                long[] counts = getLongBins(band);
                 int nBins = numBins[band];
                 double level = getLowValue(band);
                 double bw = binWidth[band];
@@ -1057,7 +1111,7 @@ public class Histogram implements Serializable {
      * @since JAI 1.1
      */
     public double[] getStandardDeviation() {
-        getMean();
+        double[] mean = getMean();
 
         double[] variance = getMoment(2, false, false);
 
@@ -1083,14 +1137,14 @@ public class Histogram implements Serializable {
      */
     public double[] getEntropy() {
         // Get the total counts for all bands.
-        getTotals();
+        long[] totals = getLongTotals();
 
         double log2 = Math.log(2.0);
 
         double[] entropy = new double[numBands];
 
         for(int band = 0; band < numBands; band++) {
-            int[] counts = getBins(band);
+            long[] counts = getLongBins(band);
             int nBins = numBins[band];
             double total = totals[band];
 
@@ -1146,7 +1200,7 @@ public class Histogram implements Serializable {
         int[][] smoothedBins = smoothedHistogram.getBins();
 
         // Get the total counts for all bands.
-        getTotals();
+        long[] totals = getLongTotals();
 
         // Initialize the smoothing weights if needed.
         double[] weights = null;
@@ -1164,12 +1218,12 @@ public class Histogram implements Serializable {
 
         for(int band = 0; band < numBands; band++) {
             // Cache bin-dependent values and references.
-            int[] counts = getBins(band);
+            long[] counts = getLongBins(band);
             int[] smoothedCounts = smoothedBins[band];
             int nBins = smoothedHistogram.getNumBins(band);
 
             // Clear the band total count for the smoothed histogram.
-            int sum = 0;
+            long sum = 0;
 
             if(isWeighted) {
                 for(int b = 0; b < nBins; b++) {
@@ -1202,7 +1256,7 @@ public class Histogram implements Serializable {
                     int max = Math.min(b + k, nBins);
 
                     // Accumulate the total for the range.
-                    int acc = 0;
+                    long acc = 0;
                     for(int i = min; i < max; i++) {
                         acc += counts[i];
                     }
@@ -1257,7 +1311,7 @@ public class Histogram implements Serializable {
         int[][] smoothedBins = smoothedHistogram.getBins();
 
         // Get the total counts for all bands.
-        getTotals();
+        long[] totals = getLongTotals();
 
         // Determine the number of weights (must be odd).
         int numWeights = (int)(2*2.58*standardDeviation + 0.5);
@@ -1278,12 +1332,12 @@ public class Histogram implements Serializable {
 
         for(int band = 0; band < numBands; band++) {
             // Cache bin-dependent values and references.
-            int[] counts = getBins(band);
+            long[] counts = getLongBins(band);
             int[] smoothedCounts = smoothedBins[band];
             int nBins = smoothedHistogram.getNumBins(band);
 
             // Clear the band total count for the smoothed histogram.
-            int sum = 0;
+            long sum = 0;
 
             for(int b = 0; b < nBins; b++) {
                 // Determine clipped range.
@@ -1339,20 +1393,20 @@ public class Histogram implements Serializable {
         }
 
         double[] thresholds = new double[numBands];
-        getTotals();
+        long[] totals = getLongTotals();
 
         for(int band = 0; band < numBands; band++) {
             // Cache some band-dependent values.
             int nBins = numBins[band];
-            int[] counts = getBins(band);
+            long[] counts = getLongBins(band);
 
             // Calculate the total count for this band.
-            int totalCount = totals[band];
+            long totalCount = totals[band];
 
             // Determine the number of binWidths to add to the lowValue
             // to get the desired threshold.
             int numBinWidths = 0;
-            int count = counts[0];
+            long count = counts[0];
             int idx = 0;
             while((double)count/(double)totalCount < p) {
                 numBinWidths++;
@@ -1382,16 +1436,16 @@ public class Histogram implements Serializable {
      */
     public double[] getModeThreshold(double power) {
         double[] thresholds = new double[numBands];
-        getTotals();
+        long[] totals = getLongTotals();
 
         for(int band = 0; band < numBands; band++) {
             // Cache some band-dependent values.
             int nBins = numBins[band];
-            int[] counts = getBins(band);
+            long[] counts = getLongBins(band);
 
             // Find the primary mode (highest peak).
             int mode1 = 0;
-            int mode1Count = counts[0];
+            long mode1Count = counts[0];
             for(int b = 1; b < nBins; b++) {
                 if(counts[b] > mode1Count) {
                     mode1 = b;
@@ -1412,7 +1466,7 @@ public class Histogram implements Serializable {
 
             // Find the minimum value between the two peaks.
             int min = mode1;
-            int minCount = counts[mode1];
+            long minCount = counts[mode1];
             for(int b = mode1 + 1; b <= mode2; b++) {
                 if(counts[b] < minCount) {
                     min = b;
@@ -1441,12 +1495,12 @@ public class Histogram implements Serializable {
      */
     public double[] getIterativeThreshold() {
         double[] thresholds = new double[numBands];
-        getTotals();
+        long[] totals = getLongTotals();
 
         for(int band = 0; band < numBands; band++) {
             // Cache some band-dependent values.
             int nBins = numBins[band];
-            int[] counts = getBins(band);
+            long[] counts = getLongBins(band);
             double bw = binWidth[band];
 
             // Set intial threshold to midpoint of data range for this band.
@@ -1474,13 +1528,13 @@ public class Histogram implements Serializable {
                     double mean2 = 0.0;
 
                     // Clear sub-range 1 count.
-                    int count1 = 0;
+                    long count1 = 0;
 
                     // Calculate the mean values for the two sub-ranges.
                     for(int b = 0; b < nBins; b++) {
                         // Update the mean value for the appropriate sub-range.
                         if(level <= threshold) {
-                            int c = counts[b];
+                            long c = counts[b];
                             mean1 += c*level;
                             count1 += c;
                         } else {
@@ -1528,14 +1582,14 @@ public class Histogram implements Serializable {
      */
     public double[] getMaxVarianceThreshold() {
         double[] thresholds = new double[numBands];
-        getTotals();
-        getMean();
+        long[] totals = getLongTotals();
+        double[] mean = getMean();
         double[] variance = getMoment(2, false, false);
 
         for(int band = 0; band < numBands; band++) {
             // Cache some band-dependent values.
             int nBins = numBins[band];
-            int[] counts = getBins(band);
+            long[] counts = getLongBins(band);
             double total = totals[band];
             double mBand = mean[band];
             double bw = binWidth[band];
@@ -1626,7 +1680,7 @@ public class Histogram implements Serializable {
      */
     public double[] getMaxEntropyThreshold() {
         double[] thresholds = new double[numBands];
-        getTotals();
+        long[] totals = getLongTotals();
 
         double[] entropy = getEntropy();
 
@@ -1635,7 +1689,7 @@ public class Histogram implements Serializable {
         for(int band = 0; band < numBands; band++) {
             // Cache some band-dependent values.
             int nBins = numBins[band];
-            int[] counts = getBins(band);
+            long[] counts = getLongBins(band);
             double total = totals[band];
             double H = entropy[band];
 
@@ -1716,19 +1770,19 @@ public class Histogram implements Serializable {
      */
     public double[] getMinErrorThreshold() {
         double[] thresholds = new double[numBands];
-        getTotals();
-        getMean();
+        long[] totals = getLongTotals();
+        double[] mean = getMean();
 
         for(int band = 0; band < numBands; band++) {
             // Cache some band-dependent values.
             int nBins = numBins[band];
-            int[] counts = getBins(band);
+            long[] counts = getLongBins(band);
             double total = totals[band];
             double lv = getLowValue(band);
             double bw = binWidth[band];
 
-            int total1 = 0;
-            int total2 = totals[band];
+            long total1 = 0;
+            long total2 = totals[band];
             double sum1 = 0.0;
             double sum2 = mean[band]*total;
 
@@ -1744,7 +1798,7 @@ public class Histogram implements Serializable {
             int Jcount = 0;
 
             for(int t = 0; t < nBins; t++, level += bw) {
-                int c = counts[t];
+                long c = counts[t];
 
                 total1 += c;
                 total2 -= c;
@@ -1827,19 +1881,19 @@ public class Histogram implements Serializable {
      */
     public double[] getMinFuzzinessThreshold() {
         double[] thresholds = new double[numBands];
-        getTotals();
-        getMean();
+        long[] totals = getLongTotals();
+        double[] mean = getMean();
 
         for(int band = 0; band < numBands; band++) {
             // Cache some band-dependent values.
             int nBins = numBins[band];
-            int[] counts = getBins(band);
+            long[] counts = getLongBins(band);
             double total = totals[band];
 
             double bw = binWidth[band];
 
-            int total1 = 0;
-            int total2 = totals[band];
+            long total1 = 0;
+            long total2 = totals[band];
             double sum1 = 0.0;
             double sum2 = mean[band]*total;
 
@@ -1852,7 +1906,7 @@ public class Histogram implements Serializable {
             int runLength = 0;
 
             for(int t = 0; t < nBins; t++, level += bw) {
-                int c = counts[t];
+                long c = counts[t];
 
                 total1 += c;
                 total2 -= c;
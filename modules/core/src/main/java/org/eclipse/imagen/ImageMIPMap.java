@@ -49,6 +49,7 @@ import org.eclipse.imagen.media.util.PropertyUtil;
  * chain.  This parameter is saved by reference.
  *
  * @see ImagePyramid
+ * @see TiledImageMIPMap
  *
  */
 public class ImageMIPMap implements ImageJAI {
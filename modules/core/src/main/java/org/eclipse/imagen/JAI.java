@@ -176,6 +176,7 @@ public final class JAI {
     private static final int HINT_CACHED_TILE_RECYCLING_ENABLED = 123;
     private static final int HINT_TRANSFORM_ON_COLORMAP = 124;
     private static final int HINT_IMAGING_LISTENER = 125;
+    private static final int HINT_FUSE_POINT_OPERATIONS = 126;
 
     //
     // Public keys
@@ -531,6 +532,21 @@ public final class JAI {
 	new RenderingKey(HINT_IMAGING_LISTENER,
 			 ImagingListener.class);
 
+    /**
+     * Key that indicates whether a chain of pixel-wise point operations
+     * such as "Rescale", "Clamp", "Format", "Lookup" and "BandSelect"
+     * may be rendered as a single image which evaluates the whole chain
+     * in one pass over each tile, without computing or caching the
+     * tiles of the intermediate images.  The corresponding object must
+     * be a <code>Boolean</code>.  The common <code>RenderingHints</code>
+     * do not contain a default hint corresponding to this key.  The
+     * default behavior is equivalent to setting a hint with a value of
+     * <code>Boolean.TRUE</code>.
+     */
+    public static RenderingHints.Key KEY_FUSE_POINT_OPERATIONS =
+	new RenderingKey(HINT_FUSE_POINT_OPERATIONS,
+			 Boolean.class);
+
     /**
      * Initial default tile size. Applies to both dimensions.
      */
@@ -0,0 +1,984 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.io.Serializable;
+import java.util.LinkedList;
+import java.util.ListIterator;
+
+/**
+ * A <code>Histogram</code> which counts the pixel samples with 64-bit
+ * counters, so that the bins do not overflow for images with more than
+ * <code>Integer.MAX_VALUE</code> samples per band.
+ *
+ * <p> The bins of each band are stored either densely, as one counter
+ * per bin, or sparsely, as a hash table holding only the bins which
+ * are not empty.  The sparse layout is meant for histograms of 16-bit,
+ * integral or floating point data with many more bins than distinct
+ * sample values, for example one bin per possible 16-bit value of an
+ * image which only uses a small part of that range.
+ *
+ * <p> <code>countPixels</code> and <code>merge</code> may be called
+ * concurrently by several threads.  Each band is updated under its own
+ * lock, and the counts of a band are accumulated before the lock is
+ * taken whenever that is cheaper than counting under the lock.
+ * Partial histograms accumulated separately, for example over
+ * different tiles or on different machines, may be combined with
+ * <code>merge</code>.
+ *
+ * <p> The methods inherited from <code>Histogram</code> which return
+ * <code>int</code> counts return copies of the counts in which any
+ * count larger than <code>Integer.MAX_VALUE</code> is replaced by
+ * <code>Integer.MAX_VALUE</code>; modifying the returned arrays does
+ * not modify the histogram.  The exact counts are available from
+ * <code>getLongBins</code>, <code>getLongBinSize</code> and
+ * <code>getLongTotals</code>, which the statistics and threshold
+ * methods use.
+ *
+ * @see Histogram
+ */
+public class LongHistogram extends Histogram {
+
+    /** The number of bins for each band. */
+    private int[] numBins;
+
+    /** The lowest inclusive pixel value checked for each band. */
+    private double[] lowValue;
+
+    /** The highest exclusive pixel value checked for each band. */
+    private double[] highValue;
+
+    /** The width of a bin for each band. */
+    private double[] binWidth;
+
+    /**
+     * The counts of each band in the dense layout, or <code>null</code>.
+     * Each array is also the lock of its band.
+     */
+    private long[][] denseBins = null;
+
+    /**
+     * The counts of each band in the sparse layout, or <code>null</code>.
+     * Each table is also the lock of its band.
+     */
+    private SparseBins[] sparseBins = null;
+
+    /**
+     * Constructor.  The bins are stored densely.
+     *
+     * @param numBins  The number of bins for each band of the image.
+     *        The length of this array indicates the number of bands for
+     *        this histogram.
+     * @param lowValue  The lowest inclusive pixel value checked for
+     *        each band.
+     * @param highValue  The highest exclusive pixel value checked for
+     *        each band.
+     *
+     * @throws IllegalArgumentException  Under the same conditions as
+     *         the corresponding <code>Histogram</code> constructor.
+     */
+    public LongHistogram(int[] numBins,
+                         double[] lowValue,
+                         double[] highValue) {
+        this(numBins, lowValue, highValue, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param numBins  The number of bins for each band of the image.
+     *        The length of this array indicates the number of bands for
+     *        this histogram.
+     * @param lowValue  The lowest inclusive pixel value checked for
+     *        each band.
+     * @param highValue  The highest exclusive pixel value checked for
+     *        each band.
+     * @param sparse  Whether only the bins which are not empty are
+     *        stored.
+     *
+     * @throws IllegalArgumentException  Under the same conditions as
+     *         the corresponding <code>Histogram</code> constructor.
+     */
+    public LongHistogram(int[] numBins,
+                         double[] lowValue,
+                         double[] highValue,
+                         boolean sparse) {
+        super(numBins, lowValue, highValue);
+        initialize(sparse);
+    }
+
+    /**
+     * Constructor.
+     *
+     * <p> The same <code>numBins</code>, <code>lowValue</code>, and
+     * <code>highValue</code> is applied to every band of the image.
+     *
+     * @param numBins  The number of bins for all bands of the image.
+     * @param lowValue  The lowest inclusive pixel value checked for
+     *        all bands.
+     * @param highValue  The highest exclusive pixel value checked for
+     *        all bands.
+     * @param numBands  The number of bands of the image.
+     * @param sparse  Whether only the bins which are not empty are
+     *        stored.
+     *
+     * @throws IllegalArgumentException  Under the same conditions as
+     *         the corresponding <code>Histogram</code> constructor.
+     */
+    public LongHistogram(int numBins,
+                         double lowValue,
+                         double highValue,
+                         int numBands,
+                         boolean sparse) {
+        super(numBins, lowValue, highValue, numBands);
+        initialize(sparse);
+    }
+
+    /** Caches the layout of the bins and allocates them. */
+    private void initialize(boolean sparse) {
+        int numBands = getNumBands();
+
+        numBins = getNumBins();
+        lowValue = getLowValue();
+        highValue = getHighValue();
+        binWidth = new double[numBands];
+
+        for (int i = 0; i < numBands; i++) {
+            binWidth[i] = (highValue[i] - lowValue[i]) / numBins[i];
+        }
+
+        if (sparse) {
+            sparseBins = new SparseBins[numBands];
+            for (int i = 0; i < numBands; i++) {
+                sparseBins[i] = new SparseBins();
+            }
+        } else {
+            denseBins = new long[numBands][];
+            for (int i = 0; i < numBands; i++) {
+                denseBins[i] = new long[numBins[i]];
+            }
+        }
+    }
+
+    /** Returns <code>true</code> if only the bins which are not empty
+     *  are stored. */
+    public boolean isSparse() {
+        return sparseBins != null;
+    }
+
+    /**
+     * Returns a copy of the bins of all bands.  Counts larger than
+     * <code>Integer.MAX_VALUE</code> are replaced by
+     * <code>Integer.MAX_VALUE</code>.
+     */
+    public int[][] getBins() {
+        int numBands = getNumBands();
+        int[][] bins = new int[numBands][];
+
+        for (int i = 0; i < numBands; i++) {
+            bins[i] = getBins(i);
+        }
+
+        return bins;
+    }
+
+    /**
+     * Returns a copy of the bins of a specific band.  Counts larger
+     * than <code>Integer.MAX_VALUE</code> are replaced by
+     * <code>Integer.MAX_VALUE</code>.
+     *
+     * @throws ArrayIndexOutOfBoundsException  If an invalid band index
+     *         is specified.
+     */
+    public int[] getBins(int band) {
+        long[] counts = getLongBins(band);
+        int length = counts.length;
+        int[] bins = new int[length];
+
+        for (int i = 0; i < length; i++) {
+            bins[i] = clamp(counts[i]);
+        }
+
+        return bins;
+    }
+
+    /**
+     * Returns the number of pixel samples found in a given bin for a
+     * specific band, or <code>Integer.MAX_VALUE</code> if it is larger.
+     *
+     * @throws ArrayIndexOutOfBoundsException  If an invalid band or
+     *         bin index is specified.
+     */
+    public int getBinSize(int band, int bin) {
+        return clamp(getLongBinSize(band, bin));
+    }
+
+    /**
+     * Returns a copy of the bins of the histogram for a specific band.
+     *
+     * @throws ArrayIndexOutOfBoundsException  If an invalid band index
+     *         is specified.
+     */
+    public long[] getLongBins(int band) {
+        if (sparseBins == null) {
+            long[] bins = denseBins[band];
+            synchronized (bins) {
+                return (long[])bins.clone();
+            }
+        } else {
+            long[] counts = new long[numBins[band]];
+            SparseBins bins = sparseBins[band];
+            synchronized (bins) {
+                bins.addTo(counts);
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Returns the number of pixel samples found in a given bin for a
+     * specific band.
+     *
+     * @param band  The index of the band-of-interest.
+     * @param bin  The index of the bin whose value is to be returned.
+     *
+     * @throws ArrayIndexOutOfBoundsException  If an invalid band or
+     *         bin index is specified.
+     */
+    public long getLongBinSize(int band, int bin) {
+        if (bin < 0 || bin >= numBins[band]) {
+            throw new ArrayIndexOutOfBoundsException(
+                JaiI18N.getString("Histogram5"));
+        }
+
+        if (sparseBins == null) {
+            long[] bins = denseBins[band];
+            synchronized (bins) {
+                return bins[bin];
+            }
+        } else {
+            SparseBins bins = sparseBins[band];
+            synchronized (bins) {
+                return bins.get(bin);
+            }
+        }
+    }
+
+    /** Resets the values of all bins to zero. */
+    public void clearHistogram() {
+        for (int i = 0; i < getNumBands(); i++) {
+            if (sparseBins == null) {
+                long[] bins = denseBins[i];
+                synchronized (bins) {
+                    for (int j = 0; j < bins.length; j++) {
+                        bins[j] = 0;
+                    }
+                }
+            } else {
+                SparseBins bins = sparseBins[i];
+                synchronized (bins) {
+                    bins.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the total bin count over all bins for all bands.  Unlike
+     * <code>Histogram.getTotals</code> this returns a new array which
+     * reflects the current counts.  Totals larger than
+     * <code>Integer.MAX_VALUE</code> are replaced by
+     * <code>Integer.MAX_VALUE</code>.
+     */
+    public int[] getTotals() {
+        long[] longTotals = getLongTotals();
+        int[] totals = new int[longTotals.length];
+
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = clamp(longTotals[i]);
+        }
+
+        return totals;
+    }
+
+    /**
+     * Returns the total bin count over all bins for all bands.
+     */
+    public long[] getLongTotals() {
+        int numBands = getNumBands();
+        long[] totals = new long[numBands];
+
+        for (int i = 0; i < numBands; i++) {
+            if (sparseBins == null) {
+                long[] bins = denseBins[i];
+                long t = 0;
+                synchronized (bins) {
+                    for (int j = 0; j < bins.length; j++) {
+                        t += bins[j];
+                    }
+                }
+                totals[i] = t;
+            } else {
+                SparseBins bins = sparseBins[i];
+                synchronized (bins) {
+                    totals[i] = bins.getTotal();
+                }
+            }
+        }
+
+        return totals;
+    }
+
+    /**
+     * Returns the total bin count for the specified sub-range of the
+     * indicated band, or <code>Integer.MAX_VALUE</code> if it is larger.
+     *
+     * @throws ArrayIndexOutOfBoundsException  If an invalid band index
+     *         is specified.
+     * @throws IllegalArgumentException If <code>minBin</code> is greater than
+     *         <code>maxBin</code>.
+     */
+    public int getSubTotal(int band,
+                           int minBin,
+                           int maxBin) {
+        if (minBin < 0 || maxBin >= numBins[band]) {
+            throw new ArrayIndexOutOfBoundsException(
+                JaiI18N.getString("Histogram5"));
+        }
+
+        if (minBin > maxBin) {
+            throw new IllegalArgumentException(
+                JaiI18N.getString("Histogram10"));
+        }
+
+        long[] counts = getLongBins(band);
+        long total = 0;
+
+        for (int i = minBin; i <= maxBin; i++) {
+            total += counts[i];
+        }
+
+        return clamp(total);
+    }
+
+    /**
+     * Returns the mean values for all bands of the histogram.  As the
+     * counts may change at any time the mean values are computed anew
+     * on each call.
+     */
+    public double[] getMean() {
+        return computeMean();
+    }
+
+    /**
+     * Adds the counts of another histogram to the counts of this one.
+     * The other histogram must have the same number of bands, and the
+     * same number of bins, low-value and high-value for each band.
+     * It is not modified.
+     *
+     * <p> This method may be called concurrently with itself and with
+     * <code>countPixels</code>.
+     *
+     * @param histogram  The histogram whose counts are to be added.
+     *
+     * @throws IllegalArgumentException  If <code>histogram</code> is
+     *         <code>null</code>.
+     * @throws IllegalArgumentException  If the bins of
+     *         <code>histogram</code> are not laid out as those of this
+     *         histogram.
+     */
+    public void merge(Histogram histogram) {
+        if (histogram == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        int numBands = getNumBands();
+
+        if (histogram.getNumBands() != numBands) {
+            throw new IllegalArgumentException(
+                JaiI18N.getString("Histogram12"));
+        }
+
+        for (int i = 0; i < numBands; i++) {
+            if (histogram.getNumBins(i) != numBins[i] ||
+                histogram.getLowValue(i) != lowValue[i] ||
+                histogram.getHighValue(i) != highValue[i]) {
+                throw new IllegalArgumentException(
+                    JaiI18N.getString("Histogram12"));
+            }
+        }
+
+        for (int i = 0; i < numBands; i++) {
+            if (sparseBins != null && histogram instanceof LongHistogram &&
+                ((LongHistogram)histogram).sparseBins != null) {
+                // Copy the other table first as it might be this one.
+                SparseBins other = ((LongHistogram)histogram).sparseBins[i];
+                SparseBins counts;
+                synchronized (other) {
+                    counts = other.copy();
+                }
+
+                SparseBins bins = sparseBins[i];
+                synchronized (bins) {
+                    bins.addAll(counts);
+                }
+            } else {
+                long[] counts = histogram.getLongBins(i);
+
+                if (sparseBins == null) {
+                    long[] bins = denseBins[i];
+                    synchronized (bins) {
+                        for (int j = 0; j < counts.length; j++) {
+                            bins[j] += counts[j];
+                        }
+                    }
+                } else {
+                    SparseBins bins = sparseBins[i];
+                    synchronized (bins) {
+                        for (int j = 0; j < counts.length; j++) {
+                            if (counts[j] != 0) {
+                                bins.add(j, counts[j]);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Accumulates the histogram of the pixels within a specific
+     * region-of-interest (ROI) by counting them based on the
+     * indicated horizontal and vertical sampling period.  The pixels
+     * are counted as by <code>Histogram.countPixels</code>.
+     *
+     * <p> This method may be called concurrently with itself and with
+     * <code>merge</code>.
+     *
+     * @param raster  The Raster that contains the pixels to be counted.
+     * @param roi  The region-of-interest within which the pixels are counted.
+     * @param xStart  The initial X sample coordinate.
+     * @param yStart  The initial Y sample coordinate.
+     * @param xPeriod  The X sampling period.
+     * @param yPeriod  The Y sampling period.
+     *
+     * @throws IllegalArgumentException  If <code>raster</code> is
+     *         <code>null</code>.
+     * @throws IllegalArgumentException  If the pixels stored in the
+     *         <code>raster</code> do not have the same number of bands
+     *         (samples per pixel) as this histogram's bins.
+     * @thows  RuntimeException if the data type is not supported
+     *         (not in DataBuffer.TYPE_BYTE,..., DataBuff.TYPE_DOUBLE.
+     */
+    public void countPixels(Raster raster,
+                            ROI roi,
+                            int xStart, int yStart,
+                            int xPeriod, int yPeriod) {
+
+        if ( raster == null ) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        SampleModel sampleModel = raster.getSampleModel();
+
+        if (sampleModel.getNumBands() != getNumBands()) {
+            throw new IllegalArgumentException(
+                JaiI18N.getString("Histogram4"));
+        }
+
+        Rectangle bounds = raster.getBounds();
+
+        LinkedList rectList;
+        if (roi == null) {	// ROI is the whole Raster
+            rectList = new LinkedList();
+            rectList.addLast(bounds);
+        } else {
+            rectList = roi.getAsRectangleList(bounds.x, bounds.y,
+                                              bounds.width, bounds.height);
+            if (rectList == null) {
+                return;	// ROI does not intersect with Raster boundary.
+            }
+        }
+
+        PixelAccessor accessor = new PixelAccessor(sampleModel, null);
+
+        // The bin indices of the samples of one band of a rectangle.
+        int[] indices = null;
+
+        ListIterator iterator = rectList.listIterator(0);
+
+        while (iterator.hasNext()) {
+            Rectangle r = (Rectangle)iterator.next();
+            int tx = r.x;
+            int ty = r.y;
+
+            // Find the actual ROI based on start and period.
+            r.x = startPosition(tx, xStart, xPeriod);
+            r.y = startPosition(ty, yStart, yPeriod);
+            r.width = tx + r.width - r.x;
+            r.height = ty + r.height - r.y;
+
+            if (r.width <= 0 || r.height <= 0) {
+                continue;	// no pixel to count in this rectangle
+            }
+
+            int numSamples = ((r.width + xPeriod - 1) / xPeriod) *
+                             ((r.height + yPeriod - 1) / yPeriod);
+            if (indices == null || indices.length < numSamples) {
+                indices = new int[numSamples];
+            }
+
+            switch (accessor.sampleType) {
+            case PixelAccessor.TYPE_BIT:
+            case DataBuffer.TYPE_BYTE:
+                countPixelsByte(accessor, raster, r, xPeriod, yPeriod,
+                                indices);
+                break;
+            case DataBuffer.TYPE_USHORT:
+                countPixelsUShort(accessor, raster, r, xPeriod, yPeriod,
+                                  indices);
+                break;
+            case DataBuffer.TYPE_SHORT:
+                countPixelsShort(accessor, raster, r, xPeriod, yPeriod,
+                                 indices);
+                break;
+            case DataBuffer.TYPE_INT:
+                countPixelsInt(accessor, raster, r, xPeriod, yPeriod,
+                               indices);
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                countPixelsFloat(accessor, raster, r, xPeriod, yPeriod,
+                                 indices);
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                countPixelsDouble(accessor, raster, r, xPeriod, yPeriod,
+                                  indices);
+                break;
+	    default:
+	      throw new RuntimeException(JaiI18N.getString("Histogram11"));
+            }
+        }
+    }
+
+    private void countPixelsByte(PixelAccessor accessor,
+                                 Raster raster,
+                                 Rectangle rect,
+                                 int xPeriod, int yPeriod,
+                                 int[] indices) {
+        UnpackedImageData uid = accessor.getPixels(
+                                raster, rect, DataBuffer.TYPE_BYTE, false);
+
+        byte[][] byteData = uid.getByteData();
+        int pixelStride = uid.pixelStride * xPeriod;
+        int lineStride = uid.lineStride * yPeriod;
+        int[] offsets = uid.bandOffsets;
+
+        for (int b = 0; b < byteData.length; b++) {
+            byte[] data = byteData[b];
+            int lineOffset = offsets[b];	// line offset
+            int count = 0;
+
+            double low = lowValue[b];
+            double high = highValue[b];
+            double bwidth = binWidth[b];
+
+            for (int h = 0; h < rect.height; h += yPeriod) {
+                int pixelOffset = lineOffset;	// pixel offset
+                lineOffset += lineStride;
+
+                for (int w = 0; w < rect.width; w += xPeriod) {
+                    int d = data[pixelOffset] & 0xff;
+                    pixelOffset += pixelStride;
+
+                    if (d >= low && d < high) {
+                        indices[count++] = (int)((d - low) / bwidth);
+                    }
+                }
+            }
+
+            addSamples(b, indices, count);
+        }
+    }
+
+    private void countPixelsUShort(PixelAccessor accessor,
+                                   Raster raster,
+                                   Rectangle rect,
+                                   int xPeriod, int yPeriod,
+                                   int[] indices) {
+        UnpackedImageData uid = accessor.getPixels(
+                                raster, rect, DataBuffer.TYPE_USHORT, false);
+
+        short[][] shortData = uid.getShortData();
+        int pixelStride = uid.pixelStride * xPeriod;
+        int lineStride = uid.lineStride * yPeriod;
+        int[] offsets = uid.bandOffsets;
+
+        for (int b = 0; b < shortData.length; b++) {
+            short[] data = shortData[b];
+            int lineOffset = offsets[b];        // line offset
+            int count = 0;
+
+            double low = lowValue[b];
+            double high = highValue[b];
+            double bwidth = binWidth[b];
+
+            for (int h = 0; h < rect.height; h += yPeriod) {
+                int pixelOffset = lineOffset;   // pixel offset
+                lineOffset += lineStride;
+
+                for (int w = 0; w < rect.width; w += xPeriod) {
+                    int d = data[pixelOffset] & 0xffff;
+                    pixelOffset += pixelStride;
+
+                    if (d >= low && d < high) {
+                        indices[count++] = (int)((d - low) / bwidth);
+                    }
+                }
+            }
+
+            addSamples(b, indices, count);
+        }
+    }
+
+    private void countPixelsShort(PixelAccessor accessor,
+                                  Raster raster,
+                                  Rectangle rect,
+                                  int xPeriod, int yPeriod,
+                                  int[] indices) {
+        UnpackedImageData uid = accessor.getPixels(
+                                raster, rect, DataBuffer.TYPE_SHORT, false);
+
+        short[][] shortData = uid.getShortData();
+        int pixelStride = uid.pixelStride * xPeriod;
+        int lineStride = uid.lineStride * yPeriod;
+        int[] offsets = uid.bandOffsets;
+
+        for (int b = 0; b < shortData.length; b++) {
+            short[] data = shortData[b];
+            int lineOffset = offsets[b];        // line offset
+            int count = 0;
+
+            double low = lowValue[b];
+            double high = highValue[b];
+            double bwidth = binWidth[b];
+
+            for (int h = 0; h < rect.height; h += yPeriod) {
+                int pixelOffset = lineOffset;   // pixel offset
+                lineOffset += lineStride;
+
+                for (int w = 0; w < rect.width; w += xPeriod) {
+                    int d = data[pixelOffset];
+                    pixelOffset += pixelStride;
+
+                    if (d >= low && d < high) {
+                        indices[count++] = (int)((d - low) / bwidth);
+                    }
+                }
+            }
+
+            addSamples(b, indices, count);
+        }
+    }
+
+    private void countPixelsInt(PixelAccessor accessor,
+                                Raster raster,
+                                Rectangle rect,
+                                int xPeriod, int yPeriod,
+                                int[] indices) {
+        UnpackedImageData uid = accessor.getPixels(
+                                raster, rect, DataBuffer.TYPE_INT, false);
+
+        int[][] intData = uid.getIntData();
+        int pixelStride = uid.pixelStride * xPeriod;
+        int lineStride = uid.lineStride * yPeriod;
+        int[] offsets = uid.bandOffsets;
+
+        for (int b = 0; b < intData.length; b++) {
+            int[] data = intData[b];
+            int lineOffset = offsets[b];        // line offset
+            int count = 0;
+
+            double low = lowValue[b];
+            double high = highValue[b];
+            double bwidth = binWidth[b];
+
+            for (int h = 0; h < rect.height; h += yPeriod) {
+                int pixelOffset = lineOffset;   // pixel offset
+                lineOffset += lineStride;
+
+                for (int w = 0; w < rect.width; w += xPeriod) {
+                    int d = data[pixelOffset];
+                    pixelOffset += pixelStride;
+
+                    if (d >= low && d < high) {
+                        indices[count++] = (int)((d - low) / bwidth);
+                    }
+                }
+            }
+
+            addSamples(b, indices, count);
+        }
+    }
+
+    private void countPixelsFloat(PixelAccessor accessor,
+                                  Raster raster,
+                                  Rectangle rect,
+                                  int xPeriod, int yPeriod,
+                                  int[] indices) {
+        UnpackedImageData uid = accessor.getPixels(
+                                raster, rect, DataBuffer.TYPE_FLOAT, false);
+
+        float[][] floatData = uid.getFloatData();
+        int pixelStride = uid.pixelStride * xPeriod;
+        int lineStride = uid.lineStride * yPeriod;
+        int[] offsets = uid.bandOffsets;
+
+        for (int b = 0; b < floatData.length; b++) {
+            float[] data = floatData[b];
+            int lineOffset = offsets[b];        // line offset
+            int count = 0;
+
+            double low = lowValue[b];
+            double high = highValue[b];
+            double bwidth = binWidth[b];
+
+            for (int h = 0; h < rect.height; h += yPeriod) {
+                int pixelOffset = lineOffset;   // pixel offset
+                lineOffset += lineStride;
+
+                for (int w = 0; w < rect.width; w += xPeriod) {
+                    float d = data[pixelOffset];
+                    pixelOffset += pixelStride;
+
+                    if (d >= low && d < high) {
+                        indices[count++] = (int)((d - low) / bwidth);
+                    }
+                }
+            }
+
+            addSamples(b, indices, count);
+        }
+    }
+
+    private void countPixelsDouble(PixelAccessor accessor,
+                                   Raster raster,
+                                   Rectangle rect,
+                                   int xPeriod, int yPeriod,
+                                   int[] indices) {
+        UnpackedImageData uid = accessor.getPixels(
+                                raster, rect, DataBuffer.TYPE_DOUBLE, false);
+
+        double[][] doubleData = uid.getDoubleData();
+        int pixelStride = uid.pixelStride * xPeriod;
+        int lineStride = uid.lineStride * yPeriod;
+        int[] offsets = uid.bandOffsets;
+
+        for (int b = 0; b < doubleData.length; b++) {
+            double[] data = doubleData[b];
+            int lineOffset = offsets[b];        // line offset
+            int count = 0;
+
+            double low = lowValue[b];
+            double high = highValue[b];
+            double bwidth = binWidth[b];
+
+            for (int h = 0; h < rect.height; h += yPeriod) {
+                int pixelOffset = lineOffset;   // pixel offset
+                lineOffset += lineStride;
+
+                for (int w = 0; w < rect.width; w += xPeriod) {
+                    double d = data[pixelOffset];
+                    pixelOffset += pixelStride;
+
+                    if (d >= low && d < high) {
+                        indices[count++] = (int)((d - low) / bwidth);
+                    }
+                }
+            }
+
+            addSamples(b, indices, count);
+        }
+    }
+
+    /**
+     * Adds one to the bins of a band whose indices are the first
+     * <code>count</code> elements of <code>indices</code>.  Dense bins
+     * are incremented under the lock of the band directly; for sparse
+     * bins the samples are first counted in a table of their own so
+     * that the lock is only held to add the distinct bins.
+     */
+    private void addSamples(int band, int[] indices, int count) {
+        if (count == 0) {
+            return;
+        }
+
+        if (sparseBins == null) {
+            long[] bins = denseBins[band];
+            synchronized (bins) {
+                for (int i = 0; i < count; i++) {
+                    bins[indices[i]]++;
+                }
+            }
+        } else {
+            SparseBins counts = new SparseBins();
+            for (int i = 0; i < count; i++) {
+                counts.add(indices[i], 1);
+            }
+
+            SparseBins bins = sparseBins[band];
+            synchronized (bins) {
+                bins.addAll(counts);
+            }
+        }
+    }
+
+    /** Finds the first pixel at or after <code>pos</code> to be counted. */
+    private static int startPosition(int pos, int start, int Period) {
+        int t = (pos - start) % Period;
+        return t == 0 ? pos : pos + (Period - t);
+    }
+
+    /** Clamps a count to the range of an <code>int</code>. */
+    private static int clamp(long count) {
+        return count > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)count;
+    }
+
+    /**
+     * The counts of the bins of one band which are not empty, held in
+     * an open addressing hash table keyed by bin index.
+     */
+    private static final class SparseBins implements Serializable {
+
+        /** The bin indices plus one; zero marks an empty slot. */
+        private int[] keys;
+
+        /** The counts of the bins. */
+        private long[] counts;
+
+        /** The number of bins in the table. */
+        private int size;
+
+        SparseBins() {
+            this(16);
+        }
+
+        /** Creates a table whose capacity is a power of two. */
+        private SparseBins(int capacity) {
+            keys = new int[capacity];
+            counts = new long[capacity];
+        }
+
+        /** Returns the slot of a key or of the empty slot ending its run. */
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int h = key * 0x9E3779B9;
+            int i = (h ^ (h >>> 16)) & mask;
+
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+
+            return i;
+        }
+
+        void add(int bin, long count) {
+            int key = bin + 1;
+            int i = slot(key);
+
+            if (keys[i] == 0) {
+                // Keep the table at most half full.
+                if (2 * (size + 1) > keys.length) {
+                    grow();
+                    i = slot(key);
+                }
+                keys[i] = key;
+                size++;
+            }
+
+            counts[i] += count;
+        }
+
+        long get(int bin) {
+            int i = slot(bin + 1);
+            return keys[i] == 0 ? 0 : counts[i];
+        }
+
+        void addAll(SparseBins other) {
+            int[] otherKeys = other.keys;
+            long[] otherCounts = other.counts;
+
+            for (int i = 0; i < otherKeys.length; i++) {
+                if (otherKeys[i] != 0) {
+                    add(otherKeys[i] - 1, otherCounts[i]);
+                }
+            }
+        }
+
+        /** Adds the counts to the corresponding elements of an array. */
+        void addTo(long[] bins) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    bins[keys[i] - 1] += counts[i];
+                }
+            }
+        }
+
+        long getTotal() {
+            long total = 0;
+
+            for (int i = 0; i < keys.length; i++) {
+                total += counts[i];
+            }
+
+            return total;
+        }
+
+        SparseBins copy() {
+            SparseBins copy = new SparseBins(keys.length);
+            System.arraycopy(keys, 0, copy.keys, 0, keys.length);
+            System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+            copy.size = size;
+            return copy;
+        }
+
+        void clear() {
+            keys = new int[16];
+            counts = new long[16];
+            size = 0;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            long[] oldCounts = counts;
+
+            keys = new int[2 * oldKeys.length];
+            counts = new long[2 * oldCounts.length];
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int j = slot(oldKeys[i]);
+                    keys[j] = oldKeys[i];
+                    counts[j] = oldCounts[i];
+                }
+            }
+        }
+    }
+}
@@ -23,7 +23,7 @@ import java.awt.Dimension;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.Point2D;
-import java.awt.image.ColorModel; // 3-22-00 used in deprecated methods only
+import java.awt.image.ColorModel;
 import java.awt.image.IndexColorModel; // 3-22-00 used in deprecated mthds only
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
@@ -1961,6 +1961,15 @@ public abstract class OpImage extends PlanarImage {
         return formatTags;
     }
 
+    /**
+     * Returns the <code>TileScheduler</code> used by this image, which
+     * is the one given by the <code>JAI.KEY_TILE_SCHEDULER</code>
+     * hint, if any, or else the default one.
+     */
+    TileScheduler getTileScheduler() {
+        return scheduler;
+    }
+
     /**
      * Returns the value of the instance variable <code>tileRecycler</code>.
      *
@@ -2018,4 +2027,53 @@ public abstract class OpImage extends PlanarImage {
             tileRecycler.recycleTile(tile);
         }
     }
+
+    /**
+     * Creates a <code>RasterAccessor</code> whose copied or expanded
+     * data, if any, are held in arrays obtained from the
+     * <code>TileFactory</code> of this image.
+     *
+     * <p>Subclasses which use this method in
+     * {@link #computeRect(Raster[],WritableRaster,Rectangle)} instead of
+     * constructing <code>RasterAccessor</code>s directly should pass each
+     * accessor to {@link #recycleRasterAccessor(RasterAccessor)} once it
+     * is no longer used, so that its arrays may be reused by subsequent
+     * accessors rather than becoming garbage.  If this image has no
+     * <code>TileFactory</code> or no <code>TileRecycler</code> the
+     * arrays are allocated as usual.</p>
+     *
+     * @param raster The raster to be accessed.
+     * @param rect A <code>Rectangle</code> from the raster to be accessed.
+     * @param rft The <code>RasterFormatTag</code> associated with the
+     *        raster, usually an element of {@link #getFormatTags()}.
+     * @param colorModel The <code>ColorModel</code> for color components.
+     *
+     * @see RasterAccessor#RasterAccessor(Raster,Rectangle,RasterFormatTag,ColorModel,TileFactory)
+     */
+    protected RasterAccessor createRasterAccessor(Raster raster,
+                                                  Rectangle rect,
+                                                  RasterFormatTag rft,
+                                                  ColorModel colorModel) {
+        return new RasterAccessor(raster, rect, rft, colorModel,
+                                  tileRecycler != null ? tileFactory : null);
+    }
+
+    /**
+     * Recycles the arrays of copied data of a <code>RasterAccessor</code>
+     * created by {@link #createRasterAccessor} using the
+     * <code>TileRecycler</code> of this image.  The accessor must not be
+     * used afterwards; a destination accessor must already have had its
+     * data copied back to the destination raster.
+     *
+     * @throws IllegalArgumentException if <code>accessor</code> is
+     *         <code>null</code>.
+     */
+    protected void recycleRasterAccessor(RasterAccessor accessor) {
+	if (accessor == null)
+	    throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+
+        if(tileRecycler != null) {
+            accessor.recycleBuffers(tileRecycler);
+        }
+    }
 }
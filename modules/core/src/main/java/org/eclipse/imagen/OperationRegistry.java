@@ -36,6 +36,8 @@ import java.io.ObjectOutput;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.net.URL;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Enumeration;
@@ -225,7 +227,22 @@ import org.eclipse.imagen.media.util.ImageUtil;
  *  }
  * </pre>
  *
- * For information on the format of the registry file, see the
+ * <p> If the system property
+ * "<code>org.eclipse.imagen.OperationRegistry.lazy</code>" is set to
+ * "<code>true</code>" the registry files of steps 1 and 2 are read
+ * lazily: the class names they list are recorded, and the descriptors
+ * are only instantiated and registered when a descriptor name is first
+ * looked up, for example by <code>JAI.create</code>,
+ * <code>getFactory</code> or <code>getDescriptor</code>, and the
+ * factories of a descriptor and the preferences among them when its
+ * name is first looked up. This shortens the initialization of
+ * <code>JAI</code> when only a few operations are used, while the
+ * resulting descriptors, factories and preferences are the same.
+ * Methods which enumerate descriptors register all the descriptors
+ * and methods which write out the registry register everything.
+ * Errors in the registry files are reported when the erroneous
+ * entries are registered.
+ * <p> For information on the format of the registry file, see the
  * <a href="{@docRoot}/serialized-form.html#org.eclipse.imagen.OperationRegistry">
  * serialized form</a> of the <code>OperationRegistry</code>.
  *
@@ -241,6 +258,15 @@ public class OperationRegistry implements Externalizable {
     /** The user defined registry files that are automatically loaded */
     static String USR_REGISTRY_FILE = "META-INF/registryFile.jai";
 
+    /**
+     * The system property which, when set to "true", makes
+     * <code>initializeRegistry</code> register the descriptors and
+     * factories listed in the registry files only when they are first
+     * looked up.
+     */
+    static final String LAZY_INITIALIZATION =
+	"org.eclipse.imagen.OperationRegistry.lazy";
+
     /**
      * A <code>Hashtable</code> of <code>DescritptorCache</code>s
      * for each registry mode.
@@ -253,12 +279,43 @@ public class OperationRegistry implements Externalizable {
      */
     private Hashtable factories;
 
+    /**
+     * The <code>RegistryFileParser</code>s of registry files read in
+     * lazily which still hold entries that have not been registered.
+     * The <code>List</code> is replaced rather than modified and is
+     * <code>null</code> when there are no such entries.
+     */
+    private volatile List deferredFiles;
+
+    /**
+     * Whether any of the <code>deferredFiles</code> still holds
+     * descriptor entries.
+     */
+    private volatile boolean descriptorsDeferred;
+
+    /**
+     * The names, as <code>CaselessStringKey</code>s, for which the
+     * entries of the <code>deferredFiles</code> have been registered.
+     */
+    private Hashtable resolvedNames;
+
+    /**
+     * The number of registrations of the entries of the
+     * <code>deferredFiles</code> in progress.
+     */
+    private int replayDepth;
+
+    /**
+     * The time in nanoseconds spent in <code>initializeRegistry</code>.
+     */
+    private long initializationTime;
+
     /**
      * Get the <code>FactoryCache</code> associated with a specified
      * mode. If it does not exist but the mode is a valid registry mode
      * then silently create one.
      */
-    private FactoryCache getFactoryCache(String modeName) {
+    FactoryCache getFactoryCache(String modeName) {
 
 	CaselessStringKey key = new CaselessStringKey(modeName);
 
@@ -318,6 +375,12 @@ public class OperationRegistry implements Externalizable {
 	// Create a Hashtable to hold a FactoryCache for each
 	// known registry mode.
 	factories   = new Hashtable();
+
+	// Forget about registry file entries which have not been
+	// registered yet.
+	deferredFiles = null;
+	descriptorsDeferred = false;
+	resolvedNames = new Hashtable();
     }
 
     /**
@@ -357,18 +420,24 @@ public class OperationRegistry implements Externalizable {
      */
     static OperationRegistry initializeRegistry() {
 	try {
+	    long start = System.nanoTime();
+
 	    InputStream url = PropertyUtil.getFileFromClasspath(JAI_REGISTRY_FILE);
 
 	    if (url == null) {
 		throw new RuntimeException(JaiI18N.getString("OperationRegistry1"));
 	    }
 
+	    boolean lazy = isLazyInitialization();
+
 	    OperationRegistry registry = new ThreadSafeOperationRegistry();
 
 	    if (url != null)
-		RegistryFileParser.loadOperationRegistry(registry, null, url);
+		RegistryFileParser.loadOperationRegistry(registry, null, url, lazy);
+
+	    registry.registerServices(null, lazy);
 
-	    registry.registerServices(null);
+	    registry.initializationTime = System.nanoTime() - start;
 	    return registry;
 
 	} catch (IOException ioe) {
@@ -386,6 +455,27 @@ public class OperationRegistry implements Externalizable {
 	}
     }
 
+    /**
+     * Whether the system property <code>LAZY_INITIALIZATION</code>
+     * requests lazy loading of the registry files.
+     */
+    private static boolean isLazyInitialization() {
+	Object lazyProperty = null;
+	try {
+	    lazyProperty =
+		AccessController.doPrivileged(new PrivilegedAction() {
+		    public Object run() {
+			return System.getProperty(LAZY_INITIALIZATION);
+		    }
+		});
+	} catch (SecurityException se) {
+	    // as if the property isn't set
+	}
+
+	return lazyProperty instanceof String &&
+	       ((String)lazyProperty).equalsIgnoreCase("true");
+    }
+
     /**
      * Returns a String representation of the registry.
      *
@@ -393,6 +483,8 @@ public class OperationRegistry implements Externalizable {
      */
     public String toString() {
 
+	resolveAllDeferred();
+
 	StringWriter sw = new StringWriter();
 
 	try {
@@ -422,6 +514,8 @@ public class OperationRegistry implements Externalizable {
 	if (out == null)
 	    throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
 
+	resolveAllDeferred();
+
 	RegistryFileParser.writeOperationRegistry(this, out);
     }
 
@@ -635,6 +729,8 @@ public class OperationRegistry implements Externalizable {
      */
     public void removeRegistryMode(String modeName) {
 
+	resolveAllDeferred();
+
 	if (getDescriptorCache(modeName) != null)
 	    descriptors.remove(new CaselessStringKey(modeName));
 
@@ -651,6 +747,8 @@ public class OperationRegistry implements Externalizable {
      */
     public String[] getRegistryModes() {
 
+	resolveDeferredDescriptors();
+
 	Enumeration e = descriptors.keys();
 	int size = descriptors.size();
 	String names[] = new String[size];
@@ -696,6 +794,8 @@ public class OperationRegistry implements Externalizable {
 
 	String descriptorName = descriptor.getName();
 
+	resolveDeferredDescriptors();
+
 	// First make sure that all supported modes are legal registry
 	// modes.
 	for (int i = 0; i < supportedModes.length; i++) {
@@ -712,6 +812,13 @@ public class OperationRegistry implements Externalizable {
 
 	    dc.addDescriptor(descriptor);
 	}
+
+	// Registry file entries waiting for this descriptor may now be
+	// registered when the name is next looked up. The descriptors
+	// of the registry files themselves are all registered before
+	// any of their other entries, which need not be looked up again.
+	if ((deferredFiles != null) && (replayDepth == 0))
+	    resolvedNames.remove(new CaselessStringKey(descriptorName));
     }
 
     /**
@@ -738,6 +845,8 @@ public class OperationRegistry implements Externalizable {
 
 	String descriptorName = descriptor.getName();
 
+	resolveDeferred(descriptorName);
+
 	String[] supportedModes = descriptor.getSupportedModes();
 
 	// First make sure that all supported modes are legal registry
@@ -786,6 +895,8 @@ public class OperationRegistry implements Externalizable {
 	if ((descriptorClass == null) || (descriptorName == null))
 	    throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
 
+	resolveDeferred(descriptorName);
+
 	String supportedModes[] = RegistryMode.getModeNames(descriptorClass);
 
 	if (supportedModes == null)
@@ -827,6 +938,8 @@ public class OperationRegistry implements Externalizable {
 	if (descriptorClass == null)
 	    throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
 
+	resolveDeferredDescriptors();
+
 	String supportedModes[] = RegistryMode.getModeNames(descriptorClass);
 
 	if (supportedModes == null)
@@ -910,6 +1023,8 @@ public class OperationRegistry implements Externalizable {
     public RegistryElementDescriptor getDescriptor(String modeName,
                                             String descriptorName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -931,6 +1046,8 @@ public class OperationRegistry implements Externalizable {
       * @since JAI 1.1
       */
     public List getDescriptors(String modeName) {
+	resolveDeferredDescriptors();
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -952,6 +1069,8 @@ public class OperationRegistry implements Externalizable {
       * @since JAI 1.1
       */
     public String[] getDescriptorNames(String modeName) {
+	resolveDeferredDescriptors();
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -994,6 +1113,8 @@ public class OperationRegistry implements Externalizable {
                                      String preferredProductName,
                                      String otherProductName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1030,6 +1151,8 @@ public class OperationRegistry implements Externalizable {
                                        String preferredProductName,
                                        String otherProductName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1056,6 +1179,8 @@ public class OperationRegistry implements Externalizable {
     public void clearProductPreferences(String modeName,
                                        String descriptorName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1083,6 +1208,8 @@ public class OperationRegistry implements Externalizable {
     public String[][] getProductPreferences(String modeName,
                                             String descriptorName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1117,6 +1244,8 @@ public class OperationRegistry implements Externalizable {
     public Vector getOrderedProductList(String modeName,
                                         String descriptorName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1172,6 +1301,8 @@ public class OperationRegistry implements Externalizable {
                                 String productName,
                                 Object factory) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 	FactoryCache    fc = getFactoryCache(modeName);
 
@@ -1232,6 +1363,8 @@ public class OperationRegistry implements Externalizable {
                                   String productName,
                                   Object factory) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 	FactoryCache    fc = getFactoryCache(modeName);
 
@@ -1293,6 +1426,8 @@ public class OperationRegistry implements Externalizable {
                                      Object preferredOp,
                                      Object otherOp) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 	FactoryCache    fc = getFactoryCache(modeName);
 
@@ -1353,6 +1488,8 @@ public class OperationRegistry implements Externalizable {
                                        Object preferredOp,
                                        Object otherOp) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 	FactoryCache    fc = getFactoryCache(modeName);
 
@@ -1405,6 +1542,8 @@ public class OperationRegistry implements Externalizable {
                                         String descriptorName,
                                         String productName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 	FactoryCache    fc = getFactoryCache(modeName);
 
@@ -1458,6 +1597,8 @@ public class OperationRegistry implements Externalizable {
 					    String descriptorName,
 					    String productName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 	FactoryCache    fc = getFactoryCache(modeName);
 
@@ -1502,6 +1643,8 @@ public class OperationRegistry implements Externalizable {
                                       String descriptorName,
                                       String productName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 	FactoryCache    fc = getFactoryCache(modeName);
 
@@ -1566,6 +1709,8 @@ public class OperationRegistry implements Externalizable {
     public Iterator getFactoryIterator(String modeName,
                                        String descriptorName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 	FactoryCache    fc = getFactoryCache(modeName);
 
@@ -1627,6 +1772,8 @@ public class OperationRegistry implements Externalizable {
       */
     public Object getFactory(String modeName, String descriptorName) {
 
+	resolveDeferred(descriptorName);
+
 	Iterator it = getFactoryIterator(modeName, descriptorName);
 
 	if ((it != null) && it.hasNext())
@@ -1661,12 +1808,28 @@ public class OperationRegistry implements Externalizable {
                                 String descriptorName,
                                 Object[] args) {
 
+	resolveDeferred(descriptorName);
+
 	Iterator it = getFactoryIterator(modeName, descriptorName);
 
 	if (it == null)
 	    return null;
 
-	FactoryCache fc = getFactoryCache(modeName);
+	return invokeFactories(getFactoryCache(modeName), descriptorName,
+			       it, args);
+    }
+
+    /**
+     * Invokes the factory method of each factory returned by an
+     * <code>Iterator</code> in turn, until one of them returns a
+     * non-<code>null</code> object, as described for
+     * <code>invokeFactory()</code>.
+     */
+    Object invokeFactories(FactoryCache fc,
+			   String descriptorName,
+			   Iterator it,
+			   Object[] args) {
+
         ImagingListener listener =
             JAI.getDefaultInstance().getImagingListener();
         Exception savedOne = null;
@@ -1733,6 +1896,8 @@ public class OperationRegistry implements Externalizable {
                                      String descriptorName,
                                      PropertyGenerator generator) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1765,6 +1930,8 @@ public class OperationRegistry implements Externalizable {
                                         String descriptorName,
                                         PropertyGenerator generator) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1799,6 +1966,8 @@ public class OperationRegistry implements Externalizable {
                                        String propertyName,
                                        int sourceIndex) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1831,6 +2000,8 @@ public class OperationRegistry implements Externalizable {
                                  String descriptorName,
                                  String propertyName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1860,6 +2031,8 @@ public class OperationRegistry implements Externalizable {
     public void suppressAllProperties(String modeName,
                                       String descriptorName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1881,6 +2054,8 @@ public class OperationRegistry implements Externalizable {
       */
     public void clearPropertyState(String modeName) {
 
+	resolveDeferredDescriptors();
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1911,6 +2086,8 @@ public class OperationRegistry implements Externalizable {
     public String[] getGeneratedPropertyNames(String modeName,
                                               String descriptorName) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -1955,6 +2132,8 @@ public class OperationRegistry implements Externalizable {
 					    Object op,
                                             Vector sources) {
 
+	resolveDeferred(descriptorName);
+
 	DescriptorCache dc = getDescriptorCache(modeName);
 
 	if (dc != null)
@@ -2023,6 +2202,15 @@ public class OperationRegistry implements Externalizable {
      * @since JAI 1.1
      */
     public void registerServices(ClassLoader cl) throws IOException {
+	registerServices(cl, false);
+    }
+
+    /**
+     * Loads the registry files and initializes the service providers
+     * found using the specified <code>ClassLoader</code>, reading the
+     * registry files lazily if <code>lazy</code> is <code>true</code>.
+     */
+    void registerServices(ClassLoader cl, boolean lazy) throws IOException {
 
 	// First load all the REGISTRY_FILEs that are found in
 	// the specified class loader.
@@ -2036,7 +2224,7 @@ public class OperationRegistry implements Externalizable {
 	while (en.hasMoreElements()) {
 	    URL url = (URL)en.nextElement();
 
-	    RegistryFileParser.loadOperationRegistry(this, cl, url);
+	    RegistryFileParser.loadOperationRegistry(this, cl, url, lazy);
 	}
 
 	// Now call the "updateRegistry" method for all OperationRegistry
@@ -2055,6 +2243,223 @@ public class OperationRegistry implements Externalizable {
 	}
     }
 
+    /**
+     * Returns the time in nanoseconds it took to create and initialize
+     * the default <code>OperationRegistry</code> of <code>JAI</code>,
+     * that is to read the registry files and to call the registered
+     * service providers. Returns zero for any other
+     * <code>OperationRegistry</code>.
+     *
+     * @see #getDeferredRegistrationCount
+     */
+    public long getInitializationTime() {
+	return initializationTime;
+    }
+
+    /**
+     * Returns the number of registry file entries (descriptors,
+     * factories and preferences) which have been read in lazily but
+     * have not been registered yet because nothing looked them up.
+     *
+     * @see #getInitializationTime
+     */
+    public int getDeferredRegistrationCount() {
+	List files = deferredFiles;
+
+	if (files == null)
+	    return 0;
+
+	int count = 0;
+
+	for (int i = 0; i < files.size(); i++)
+	    count += ((RegistryFileParser)files.get(i)).getDeferredCount();
+
+	return count;
+    }
+
+    //////////////////
+    //
+    // Registration of the entries of lazily read registry files.
+    //
+    // Note that these are not synchronized. ThreadSafeOperationRegistry
+    // calls them with the write lock held before taking the read lock
+    // in the methods which look up descriptors or factories.
+
+    /**
+     * Remember a registry file whose entries have been recorded but
+     * not registered.
+     */
+    void addDeferredFile(RegistryFileParser parser) {
+
+	List files = new ArrayList();
+
+	if (deferredFiles != null)
+	    files.addAll(deferredFiles);
+
+	files.add(parser);
+
+	// Names already resolved may have new entries in this file.
+	resolvedNames.clear();
+
+	descriptorsDeferred |= parser.hasDeferredDescriptors();
+	deferredFiles = files;
+    }
+
+    /**
+     * Whether there are unregistered registry file entries which
+     * might concern the named descriptor.
+     */
+    boolean isDeferred(String descriptorName) {
+	return (deferredFiles != null) && (descriptorName != null) &&
+	    !resolvedNames.containsKey(new CaselessStringKey(descriptorName));
+    }
+
+    /**
+     * Whether there are unregistered registry file entries for
+     * descriptors.
+     */
+    boolean areDescriptorsDeferred() {
+	return descriptorsDeferred;
+    }
+
+    /**
+     * Whether there are unregistered registry file entries.
+     */
+    boolean isDeferred() {
+	return deferredFiles != null;
+    }
+
+    /**
+     * Register the entries of the lazily read registry files which
+     * concern the named descriptor: the factories registered against
+     * it and the preferences among them. As the name under which a
+     * descriptor registers is only known from its instance, all the
+     * recorded descriptors are registered first. The factories of all
+     * the files are registered before any of their preferences, so
+     * that a preference may refer to products of a later file. The
+     * factory and preference entries of a mode in which no descriptor
+     * of that name is registered are kept until one is.
+     */
+    void resolveDeferred(String descriptorName) {
+
+	List files = deferredFiles;
+
+	if ((files == null) || (descriptorName == null))
+	    return;
+
+	CaselessStringKey key = new CaselessStringKey(descriptorName);
+
+	// Mark the name as resolved first, the registration of the
+	// entries calls back into the methods which resolve names.
+	if (resolvedNames.put(key, key) != null)
+	    return;
+
+	replayDepth++;
+
+	try {
+	    for (int i = 0; i < files.size(); i++)
+		((RegistryFileParser)files.get(i)).registerDeferredDescriptors();
+
+	    for (int i = 0; i < files.size(); i++)
+		((RegistryFileParser)files.get(i)).registerDeferredEntries(key, false);
+
+	    for (int i = 0; i < files.size(); i++)
+		((RegistryFileParser)files.get(i)).registerDeferredEntries(key, true);
+	} finally {
+	    replayDepth--;
+	}
+
+	updateDeferredFiles();
+    }
+
+    /**
+     * Register all the recorded descriptor entries.
+     */
+    void resolveDeferredDescriptors() {
+
+	List files = deferredFiles;
+
+	if ((files == null) || !descriptorsDeferred)
+	    return;
+
+	replayDepth++;
+
+	try {
+	    for (int i = 0; i < files.size(); i++)
+		((RegistryFileParser)files.get(i)).registerDeferredDescriptors();
+	} finally {
+	    replayDepth--;
+	}
+
+	updateDeferredFiles();
+    }
+
+    /**
+     * Whether a descriptor of the given name is registered in the
+     * given mode, without registering any deferred entry.
+     */
+    boolean isDescriptorRegistered(String modeName, String descriptorName) {
+
+	DescriptorCache dc = (DescriptorCache)
+	    descriptors.get(new CaselessStringKey(modeName));
+
+	return (dc != null) && (dc.getDescriptor(descriptorName) != null);
+    }
+
+    /**
+     * Register all the entries of the lazily read registry files.
+     */
+    void resolveAllDeferred() {
+
+	List files = deferredFiles;
+
+	if (files == null)
+	    return;
+
+	replayDepth++;
+
+	try {
+	    for (int i = 0; i < files.size(); i++)
+		((RegistryFileParser)files.get(i)).registerDeferredDescriptors();
+
+	    for (int i = 0; i < files.size(); i++)
+		((RegistryFileParser)files.get(i)).registerDeferredEntries(null, false);
+
+	    for (int i = 0; i < files.size(); i++)
+		((RegistryFileParser)files.get(i)).registerDeferredEntries(null, true);
+	} finally {
+	    replayDepth--;
+	}
+
+	updateDeferredFiles();
+    }
+
+    /**
+     * Drop the registry files all of whose entries have been registered.
+     */
+    private void updateDeferredFiles() {
+
+	List files = deferredFiles;
+
+	if (files == null)
+	    return;
+
+	List remaining = new ArrayList();
+	boolean descriptorsLeft = false;
+
+	for (int i = 0; i < files.size(); i++) {
+	    RegistryFileParser parser = (RegistryFileParser)files.get(i);
+
+	    if (parser.getDeferredCount() > 0) {
+		remaining.add(parser);
+		descriptorsLeft |= parser.hasDeferredDescriptors();
+	    }
+	}
+
+	descriptorsDeferred = descriptorsLeft;
+	deferredFiles = remaining.isEmpty() ? null : remaining;
+    }
+
     /********************** DEPRECATED METHODS *************************/
 
     // OperationDescriptor methods
@@ -177,6 +177,14 @@ import org.eclipse.imagen.util.CaselessStringKey;
  * confusing results should a sink be garbage collected between that
  * call and a subsequent call to <code>getSinks</code>.
  *
+ * <p> A <code>PlanarImage</code> is not finalizable: the resources it
+ * holds are either released by the garbage collector directly, as are
+ * its entries in the sink lists of its sources and its tiles in the
+ * standard tile caches, or by cleaning actions registered by
+ * the subclasses which hold external resources.  An image may also be
+ * released explicitly by <code>dispose()</code>, or by
+ * <code>close()</code> in a <code>try</code>-with-resources statement.
+ *
  * @see java.awt.image.RenderedImage
  * @see java.lang.ref.Reference
  * @see java.lang.ref.WeakReference
@@ -186,11 +194,15 @@ import org.eclipse.imagen.util.CaselessStringKey;
  * @see SnapshotImage
  * @see TiledImage
  */
-public abstract class PlanarImage implements ImageJAI, RenderedImage {
+public abstract class PlanarImage
+    implements ImageJAI, RenderedImage, AutoCloseable {
 
     /** The UID for this image. */
     private Object UID;
 
+    /** The compact identifier for this image. */
+    private long compactID;
+
     /**
      * The X coordinate of the image's top-left pixel.
      */
@@ -312,6 +324,7 @@ public abstract class PlanarImage implements ImageJAI, RenderedImage {
                                                          null,
                                                          eventManager);
         this.UID = ImageUtil.generateID(this);
+        this.compactID = ImageUtil.generateCompactID();
     }
 
     /**
@@ -1492,6 +1505,10 @@ public abstract class PlanarImage implements ImageJAI, RenderedImage {
 
         if (sinks == null) {
             sinks = new Vector();
+        } else {
+            synchronized (sinks) {
+                removeClearedSinks();
+            }
         }
 
         boolean result = false;
@@ -1568,10 +1585,24 @@ public abstract class PlanarImage implements ImageJAI, RenderedImage {
         }
 
         synchronized (sinks) {
+            removeClearedSinks();
 	    sinks.add(sink.weakThis);
         }
     }
 
+    /**
+     * Removes the references to the sinks which have been garbage
+     * collected, so that the list does not grow with every short
+     * lived sink.  The caller must synchronize on the list.
+     */
+    private void removeClearedSinks() {
+        for (int i = sinks.size() - 1; i >= 0; i--) {
+            if (((WeakReference)sinks.get(i)).get() == null) {
+                sinks.remove(i);
+            }
+        }
+    }
+
     /**
      * Removes a <code>PlanarImage</code> sink from the list of sinks.
      *
@@ -2707,9 +2738,9 @@ public abstract class PlanarImage implements ImageJAI, RenderedImage {
      * Provides a hint that an image will no longer be accessed from a
      * reference in user space.  The results are equivalent to those
      * that occur when the program loses its last reference to this
-     * image, the garbage collector discovers this, and finalize is
-     * called.  This can be used as a hint in situations where waiting
-     * for garbage collection would be overly conservative.
+     * image and the garbage collector discovers this.  This can be
+     * used as a hint in situations where waiting for garbage
+     * collection would be overly conservative.
      *
      * <p> <code>PlanarImage</code> defines this method to remove the
      * image being disposed from the list of sinks in all of its
@@ -2743,15 +2774,14 @@ public abstract class PlanarImage implements ImageJAI, RenderedImage {
     }
 
     /**
-     * Performs cleanup prior to garbage collection.
+     * Releases the image by invoking <code>dispose()</code>, so that
+     * an image chain may be scoped by a <code>try</code>-with-resources
+     * statement.  The sources of the image are not closed.
      *
-     * <p> <code>PlanarImage</code> defines this method to invoke
-     * the <code>dispose()</code> method.</p>
-     *
-     * @exception <code>Throwable</code> if an error occurs in the
-     *            garbage collector.
+     * <p> The results of referencing an image after a call to
+     * <code>close()</code> are undefined.
      */
-    protected void finalize() throws Throwable {
+    public void close() {
         dispose();
     }
 
@@ -3440,4 +3470,16 @@ public abstract class PlanarImage implements ImageJAI, RenderedImage {
     public Object getImageID() {
         return UID;
     }
+
+    /**
+     * Returns a positive identifier for this <code>PlanarImage</code>
+     * that is unique within the virtual machine.  Unlike the UID
+     * returned by <code>getImageID()</code> it does not identify the
+     * image across virtual machines, but it can be hashed and compared
+     * without allocation, which is how the tile caches key the tiles
+     * of an image.
+     */
+    public long getCompactImageID() {
+        return compactID;
+    }
 }
@@ -59,7 +59,9 @@ import org.eclipse.imagen.remote.SerializerFactory;
  * can thus be used as a fallback where a <code>Shape</code>
  * representation is unavailable.  Where possible, subclasses such as
  * ROIShape are used since they provide a more compact means of
- * storage for large regions.
+ * storage for large regions.  ROIRunLength stores the region as
+ * scanline runs and is cheaper to combine and to query than the image
+ * form.
  *
  * <p> The getAsShape() method may be called optimistically on any
  * instance of ROI; however, it may return null to indicate that a
@@ -0,0 +1,1102 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen;
+
+import org.eclipse.imagen.media.util.ImageUtil;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.ListIterator;
+
+/**
+ * A region of interest stored as scanline runs.  Each row of the
+ * region is a sorted list of disjoint, non-abutting runs of included
+ * pixels, so that the storage is proportional to the number of runs
+ * rather than to the area of the bounds.
+ *
+ * <p> Membership tests take time logarithmic in the number of runs of
+ * a row, and <code>add</code>, <code>subtract</code>,
+ * <code>intersect</code> and <code>exclusiveOr</code> merge the runs
+ * of the two regions row by row in time linear in the number of runs.
+ * <code>getAsRectangleList</code> and <code>getAsBitmask</code>
+ * visit only the runs within the requested rectangle, which makes this
+ * class a good choice for the ROI of statistics operations such as
+ * "Histogram", "Extrema" and "Mean", and for the source ROIs of
+ * "Mosaic", which skips the sources whose ROI does not intersect a
+ * tile.
+ *
+ * <p> An <code>ROIRunLength</code> may be created from any other
+ * <code>ROI</code>, from a <code>Rectangle</code> or by thresholding
+ * a single-banded image.  The other <code>ROI</code> argument of the
+ * set operations is converted to runs if necessary.  Unlike image
+ * based ROIs the bounds of an <code>ROIRunLength</code> are always
+ * the tight bounds of its pixels.
+ *
+ * <p> Instances are immutable.  Since the region is binary the
+ * inclusion threshold is ignored.
+ *
+ * @see ROI
+ * @see ROIShape
+ */
+public class ROIRunLength extends ROI {
+
+    /** The set operations applied by <code>combine</code>. */
+    private static final int OP_ADD = 0;
+    private static final int OP_SUBTRACT = 1;
+    private static final int OP_INTERSECT = 2;
+    private static final int OP_XOR = 3;
+
+    /** The ordinate of the first row. */
+    private int minY;
+
+    /**
+     * The start of the runs of each row in <code>runs</code>, plus the
+     * end of the runs of the last row.  The runs of row
+     * <code>minY + i</code> are stored from
+     * <code>rowOffsets[i]</code> inclusive to
+     * <code>rowOffsets[i + 1]</code> exclusive.
+     */
+    private int[] rowOffsets;
+
+    /**
+     * The runs as pairs of the inclusive start and exclusive end
+     * abscissae, sorted by row and then by abscissa.
+     */
+    private int[] runs;
+
+    /** The bounds of all runs. */
+    private int minX, maxX, maxY;
+
+    /** The cached image representation. */
+    private transient PlanarImage image = null;
+
+    /**
+     * Constructs an <code>ROIRunLength</code> which contains the same
+     * pixels as another <code>ROI</code>.
+     *
+     * @param roi An <code>ROI</code>.
+     *
+     * @throws IllegalArgumentException if roi is null.
+     */
+    public ROIRunLength(ROI roi) {
+        if (roi == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if (roi instanceof ROIRunLength) {
+            ROIRunLength rl = (ROIRunLength)roi;
+            setRuns(rl.minY, rl.rowOffsets, rl.runs);
+            return;
+        }
+
+        Rectangle bounds = roi.getBounds();
+        Builder builder = new Builder(bounds.y, bounds.height);
+
+        if (!bounds.isEmpty()) {
+            LinkedList rectList =
+                roi.getAsRectangleList(bounds.x, bounds.y,
+                                       bounds.width, bounds.height, false);
+            if (rectList != null) {
+                ListIterator iterator = rectList.listIterator(0);
+                while (iterator.hasNext()) {
+                    Rectangle r = (Rectangle)iterator.next();
+                    builder.add(r.x, r.y, r.x + r.width, r.y + r.height);
+                }
+            }
+        }
+
+        builder.build(this);
+    }
+
+    /**
+     * Constructs an <code>ROIRunLength</code> which contains all pixels
+     * of a rectangle.
+     *
+     * @param rect A <code>Rectangle</code>.
+     *
+     * @throws IllegalArgumentException if rect is null.
+     */
+    public ROIRunLength(Rectangle rect) {
+        if (rect == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if (rect.isEmpty()) {
+            setRuns(0, new int[1], new int[0]);
+            return;
+        }
+
+        int[] offsets = new int[rect.height + 1];
+        int[] pairs = new int[2*rect.height];
+
+        for (int i = 0; i < rect.height; i++) {
+            offsets[i + 1] = 2*(i + 1);
+            pairs[2*i] = rect.x;
+            pairs[2*i + 1] = rect.x + rect.width;
+        }
+
+        setRuns(rect.y, offsets, pairs);
+    }
+
+    /**
+     * Constructs an <code>ROIRunLength</code> from a single-banded
+     * image.  The pixels whose sample is greater than or equal to the
+     * threshold are included.  The image is read tile by tile.
+     *
+     * @param im A single-banded RenderedImage.
+     * @param threshold The inclusion threshold.
+     *
+     * @throws IllegalArgumentException if im is null.
+     * @throws IllegalArgumentException if im does not have exactly one band
+     */
+    public ROIRunLength(RenderedImage im, int threshold) {
+        if (im == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if (im.getSampleModel().getNumBands() != 1) {
+            throw new IllegalArgumentException(JaiI18N.getString("ROI0"));
+        }
+
+        this.threshold = threshold;
+
+        Builder builder = new Builder(im.getMinY(), im.getHeight());
+
+        int minTileX = im.getMinTileX();
+        int minTileY = im.getMinTileY();
+        int maxTileX = minTileX + im.getNumXTiles() - 1;
+        int maxTileY = minTileY + im.getNumYTiles() - 1;
+
+        Rectangle imageBounds = new Rectangle(im.getMinX(), im.getMinY(),
+                                              im.getWidth(), im.getHeight());
+        int[] samples = null;
+
+        // Visit the tiles of a tile row from left to right so that the
+        // runs of each row are found in order.
+        for (int ty = minTileY; ty <= maxTileY; ty++) {
+            for (int tx = minTileX; tx <= maxTileX; tx++) {
+                Raster tile = im.getTile(tx, ty);
+                Rectangle r = tile.getBounds().intersection(imageBounds);
+                if (r.isEmpty()) {
+                    continue;
+                }
+
+                if (samples == null || samples.length < r.width) {
+                    samples = new int[r.width];
+                }
+
+                for (int y = r.y; y < r.y + r.height; y++) {
+                    tile.getSamples(r.x, y, r.width, 1, 0, samples);
+
+                    int start = -1;
+                    for (int i = 0; i < r.width; i++) {
+                        if (samples[i] >= threshold) {
+                            if (start < 0) {
+                                start = i;
+                            }
+                        } else if (start >= 0) {
+                            builder.addRun(y, r.x + start, r.x + i);
+                            start = -1;
+                        }
+                    }
+                    if (start >= 0) {
+                        builder.addRun(y, r.x + start, r.x + r.width);
+                    }
+                }
+            }
+        }
+
+        builder.build(this);
+    }
+
+    /** Constructs an <code>ROIRunLength</code> from normalized runs. */
+    private ROIRunLength(int minY, int[] rowOffsets, int[] runs) {
+        setRuns(minY, rowOffsets, runs);
+    }
+
+    /**
+     * Sets the runs, dropping the empty rows at either end, and
+     * computes the bounds.  The runs of each row must be sorted,
+     * disjoint and non-abutting.
+     */
+    private void setRuns(int minY, int[] rowOffsets, int[] runs) {
+        int first = 0;
+        int last = rowOffsets.length - 1;
+
+        while (first < last && rowOffsets[first] == rowOffsets[first + 1]) {
+            first++;
+        }
+        while (last > first && rowOffsets[last - 1] == rowOffsets[last]) {
+            last--;
+        }
+
+        if (first == last) {
+            this.minY = 0;
+            this.rowOffsets = new int[1];
+            this.runs = new int[0];
+            minX = maxX = maxY = 0;
+            return;
+        }
+
+        if (first > 0 || last < rowOffsets.length - 1) {
+            int base = rowOffsets[first];
+            int[] offsets = new int[last - first + 1];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = rowOffsets[first + i] - base;
+            }
+
+            int[] pairs = new int[rowOffsets[last] - base];
+            System.arraycopy(runs, base, pairs, 0, pairs.length);
+
+            rowOffsets = offsets;
+            runs = pairs;
+        }
+
+        this.minY = minY + first;
+        this.rowOffsets = rowOffsets;
+        this.runs = runs;
+
+        minX = Integer.MAX_VALUE;
+        maxX = Integer.MIN_VALUE;
+        for (int i = 0; i < rowOffsets.length - 1; i++) {
+            int start = rowOffsets[i];
+            int end = rowOffsets[i + 1];
+            if (start < end) {
+                minX = Math.min(minX, runs[start]);
+                maxX = Math.max(maxX, runs[end - 1]);
+            }
+        }
+        maxY = this.minY + rowOffsets.length - 1;
+    }
+
+    /** Returns the bounds of the ROI as a <code>Rectangle</code>. */
+    public Rectangle getBounds() {
+        return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    /** Returns the bounds of the ROI as a <code>Rectangle2D</code>. */
+    public Rectangle2D getBounds2D() {
+        return new Rectangle2D.Float((float)minX, (float)minY,
+                                     (float)(maxX - minX),
+                                     (float)(maxY - minY));
+    }
+
+    /**
+     * Sets the inclusion/exclusion threshold value.  The value is
+     * recorded but does not change the pixels of the region.
+     */
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /** Returns <code>true</code> if the region contains no pixel. */
+    public boolean isEmpty() {
+        return runs.length == 0;
+    }
+
+    /** Returns the total number of runs over all rows. */
+    public int getNumRuns() {
+        return runs.length/2;
+    }
+
+    /**
+     * Returns the runs of a row as pairs of the inclusive start and
+     * exclusive end abscissae, sorted by abscissa.  The runs are
+     * disjoint and do not abut.
+     *
+     * @param y The ordinate of the row.
+     * @return A new array, which has zero length if the row contains
+     *         no pixel.
+     */
+    public int[] getRuns(int y) {
+        if (y < minY || y >= maxY) {
+            return new int[0];
+        }
+
+        int start = rowOffsets[y - minY];
+        int end = rowOffsets[y - minY + 1];
+        int[] rowRuns = new int[end - start];
+        System.arraycopy(runs, start, rowRuns, 0, rowRuns.length);
+        return rowRuns;
+    }
+
+    /**
+     * Returns the part of the region which lies within a rectangle,
+     * for example within a tile.  Only the runs inside the rectangle
+     * are visited.
+     *
+     * @param rect The clipping <code>Rectangle</code>.
+     *
+     * @throws IllegalArgumentException if rect is null.
+     */
+    public ROIRunLength clip(Rectangle rect) {
+        if (rect == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        Rectangle r = rect.intersection(getBounds());
+        if (r.isEmpty()) {
+            return new ROIRunLength(0, new int[1], new int[0]);
+        }
+
+        int x0 = r.x;
+        int x1 = r.x + r.width;
+        int[] offsets = new int[r.height + 1];
+        int[] pairs = new int[16];
+        int count = 0;
+
+        for (int i = 0; i < r.height; i++) {
+            int row = r.y + i - minY;
+            int end = rowOffsets[row + 1];
+
+            for (int k = firstRunEndingAfter(row, x0);
+                 k < end && runs[k] < x1; k += 2) {
+                if (count + 2 > pairs.length) {
+                    pairs = grow(pairs, count + 2);
+                }
+                pairs[count++] = Math.max(runs[k], x0);
+                pairs[count++] = Math.min(runs[k + 1], x1);
+            }
+            offsets[i + 1] = count;
+        }
+
+        return new ROIRunLength(r.y, offsets, trim(pairs, count));
+    }
+
+    /**
+     * Returns the index in <code>runs</code> of the last run of a row
+     * which starts at or before <code>x</code>, or -1 if there is none.
+     */
+    private int lastRunStartingAtOrBefore(int row, int x) {
+        int lo = rowOffsets[row]/2;
+        int hi = rowOffsets[row + 1]/2 - 1;
+        int found = -1;
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (runs[2*mid] <= x) {
+                found = 2*mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Returns the index in <code>runs</code> of the first run of a row
+     * which ends after <code>x</code>, or the end of the row if there
+     * is none.
+     */
+    private int firstRunEndingAfter(int row, int x) {
+        int lo = rowOffsets[row]/2;
+        int hi = rowOffsets[row + 1]/2;
+
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (runs[2*mid + 1] <= x) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        return 2*lo;
+    }
+
+    /**
+     * Returns <code>true</code> if the ROI contains the point (x, y).
+     *
+     * @param x An int specifying the X coordinate of the pixel to be queried.
+     * @param y An int specifying the Y coordinate of the pixel to be queried.
+     * @return <code>true</code> if the pixel lies within the ROI.
+     */
+    public boolean contains(int x, int y) {
+        if (y < minY || y >= maxY || x < minX || x >= maxX) {
+            return false;
+        }
+
+        int k = lastRunStartingAtOrBefore(y - minY, x);
+        return k >= 0 && x < runs[k + 1];
+    }
+
+    /**
+     * Returns <code>true</code> if a given <code>Rectangle</code> is
+     * entirely included within the ROI.
+     *
+     * @param rect A <code>Rectangle</code> specifying the region to be tested
+     *        for inclusion.
+     * @throws IllegalArgumentException if rect is null.
+     * @return <code>true</code> if the rectangle is entirely
+     *         contained within the ROI.
+     */
+    public boolean contains(Rectangle rect) {
+        if (rect == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if (rect.isEmpty() || !getBounds().contains(rect)) {
+            return false;
+        }
+
+        int x1 = rect.x + rect.width;
+        for (int y = rect.y; y < rect.y + rect.height; y++) {
+            int k = lastRunStartingAtOrBefore(y - minY, rect.x);
+            if (k < 0 || runs[k + 1] < x1) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if a given <code>Rectangle</code>
+     * intersects the ROI.
+     *
+     * @param rect A <code>Rectangle</code> specifying the region to be tested
+     *        for inclusion.
+     * @throws IllegalArgumentException if rect is null.
+     * @return <code>true</code> if the rectangle intersects the ROI.
+     */
+    public boolean intersects(Rectangle rect) {
+        if (rect == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        Rectangle r = rect.intersection(getBounds());
+        if (r.isEmpty()) {
+            return false;
+        }
+
+        int x1 = r.x + r.width;
+        for (int y = r.y; y < r.y + r.height; y++) {
+            int k = lastRunStartingAtOrBefore(y - minY, x1 - 1);
+            if (k >= 0 && runs[k + 1] > r.x) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Converts an <code>ROI</code> to runs unless it already is an
+     * <code>ROIRunLength</code>.
+     */
+    private static ROIRunLength toRunLength(ROI roi) {
+        if (roi == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        return roi instanceof ROIRunLength ?
+            (ROIRunLength)roi : new ROIRunLength(roi);
+    }
+
+    /**
+     * Adds another <code>ROI</code> to this one and returns the result
+     * as a new <code>ROIRunLength</code>.  The supplied
+     * <code>ROI</code> is converted to runs if necessary.
+     *
+     * @param roi An ROI.
+     * @throws IllegalArgumentException if roi is null.
+     * @return A new ROI containing the new ROI data.
+     */
+    public ROI add(ROI roi) {
+        return combine(this, toRunLength(roi), OP_ADD);
+    }
+
+    /**
+     * Subtracts another <code>ROI</code> from this one and returns the
+     * result as a new <code>ROIRunLength</code>.  The supplied
+     * <code>ROI</code> is converted to runs if necessary.
+     *
+     * @param roi An ROI.
+     * @throws IllegalArgumentException if roi is null.
+     * @return A new ROI containing the new ROI data.
+     */
+    public ROI subtract(ROI roi) {
+        return combine(this, toRunLength(roi), OP_SUBTRACT);
+    }
+
+    /**
+     * Intersects the <code>ROI</code> with another <code>ROI</code>
+     * and returns the result as a new <code>ROIRunLength</code>.  The
+     * supplied <code>ROI</code> is converted to runs if necessary.
+     *
+     * @param roi An ROI.
+     * @throws IllegalArgumentException if roi is null.
+     * @return A new ROI containing the new ROI data.
+     */
+    public ROI intersect(ROI roi) {
+        return combine(this, toRunLength(roi), OP_INTERSECT);
+    }
+
+    /**
+     * Exclusive-ors the <code>ROI</code> with another <code>ROI</code>
+     * and returns the result as a new <code>ROIRunLength</code>.  The
+     * supplied <code>ROI</code> is converted to runs if necessary.
+     *
+     * @param roi An ROI.
+     * @throws IllegalArgumentException if roi is null.
+     * @return A new ROI containing the new ROI data.
+     */
+    public ROI exclusiveOr(ROI roi) {
+        return combine(this, toRunLength(roi), OP_XOR);
+    }
+
+    /**
+     * Applies a set operation to two regions row by row.
+     */
+    private static ROIRunLength combine(ROIRunLength a,
+                                        ROIRunLength b,
+                                        int op) {
+        int y0, y1;
+        if (a.isEmpty()) {
+            y0 = b.minY;
+            y1 = b.maxY;
+        } else if (b.isEmpty()) {
+            y0 = a.minY;
+            y1 = a.maxY;
+        } else {
+            y0 = Math.min(a.minY, b.minY);
+            y1 = Math.max(a.maxY, b.maxY);
+        }
+
+        if (op == OP_SUBTRACT) {
+            y0 = a.minY;
+            y1 = a.maxY;
+        } else if (op == OP_INTERSECT) {
+            y0 = Math.max(a.minY, b.minY);
+            y1 = Math.min(a.maxY, b.maxY);
+        }
+
+        if (y1 <= y0) {
+            return new ROIRunLength(0, new int[1], new int[0]);
+        }
+
+        // The result has at most as many runs as both operands.
+        int[] offsets = new int[y1 - y0 + 1];
+        int[] pairs = new int[a.runs.length + b.runs.length];
+        int count = 0;
+
+        for (int y = y0; y < y1; y++) {
+            int aStart = 0, aEnd = 0, bStart = 0, bEnd = 0;
+            if (y >= a.minY && y < a.maxY) {
+                aStart = a.rowOffsets[y - a.minY];
+                aEnd = a.rowOffsets[y - a.minY + 1];
+            }
+            if (y >= b.minY && y < b.maxY) {
+                bStart = b.rowOffsets[y - b.minY];
+                bEnd = b.rowOffsets[y - b.minY + 1];
+            }
+
+            count = combineRow(a.runs, aStart, aEnd,
+                               b.runs, bStart, bEnd,
+                               op, pairs, count);
+            offsets[y - y0 + 1] = count;
+        }
+
+        return new ROIRunLength(y0, offsets, trim(pairs, count));
+    }
+
+    /**
+     * Merges the runs of one row of two regions by sweeping over their
+     * boundaries in increasing order.  The runs of the result are
+     * written at <code>count</code> and the new count is returned.
+     */
+    private static int combineRow(int[] a, int i, int aEnd,
+                                  int[] b, int j, int bEnd,
+                                  int op, int[] out, int count) {
+        // The index parity tells whether a boundary starts or ends a run.
+        boolean inA = false;
+        boolean inB = false;
+        boolean inOut = false;
+        int start = 0;
+
+        while (i < aEnd || j < bEnd) {
+            int x;
+            if (j >= bEnd || (i < aEnd && a[i] <= b[j])) {
+                x = a[i];
+            } else {
+                x = b[j];
+            }
+
+            if (i < aEnd && a[i] == x) {
+                inA = !inA;
+                i++;
+            }
+            if (j < bEnd && b[j] == x) {
+                inB = !inB;
+                j++;
+            }
+
+            boolean in;
+            switch (op) {
+            case OP_ADD:
+                in = inA || inB;
+                break;
+            case OP_SUBTRACT:
+                in = inA && !inB;
+                break;
+            case OP_INTERSECT:
+                in = inA && inB;
+                break;
+            default:
+                in = inA != inB;
+                break;
+            }
+
+            if (in != inOut) {
+                if (in) {
+                    start = x;
+                } else {
+                    out[count++] = start;
+                    out[count++] = x;
+                }
+                inOut = in;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Performs an affine transformation and returns the result as a new
+     * ROI.  An integral translation moves the runs and returns an
+     * <code>ROIRunLength</code>; any other transformation is performed
+     * on the image representation as in <code>ROI</code>.
+     *
+     * @param at an AffineTransform specifying the transformation.
+     * @param interp the Interpolation to be used.
+     * @throws IllegalArgumentException if at is null.
+     * @throws IllegalArgumentException if interp is null.
+     * @return a new ROI containing the transformed ROI data.
+     */
+    public ROI transform(AffineTransform at, Interpolation interp) {
+        if (at == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("ROI5"));
+        }
+
+        if (interp == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("ROI6"));
+        }
+
+        int type = at.getType();
+        if ((type & ~AffineTransform.TYPE_TRANSLATION) == 0) {
+            double tx = at.getTranslateX();
+            double ty = at.getTranslateY();
+            if (tx == (int)tx && ty == (int)ty) {
+                int dx = (int)tx;
+                int[] pairs = new int[runs.length];
+                for (int i = 0; i < pairs.length; i++) {
+                    pairs[i] = runs[i] + dx;
+                }
+                return new ROIRunLength(minY + (int)ty, rowOffsets, pairs);
+            }
+        }
+
+        return super.transform(at, interp);
+    }
+
+    /**
+     * Returns a <code>PlanarImage</code> representation of the
+     * <code>ROI</code>.  The image is created on the first call.
+     *
+     * @return If the upper-left corner of the bounds of this
+     * <code>ROIRunLength</code> is (0, 0), the returned image is a
+     * <code>BufferedImage</code> of type TYPE_BYTE_BINARY wrapped as
+     * a <code>PlanarImage</code>. Otherwise, the returned image is a
+     * (bilevel) <code>TiledImage</code> whose <code>SampleModel</code>
+     * is an instance of <code>MultiPixelPackedSampleModel</code>.
+     */
+    public synchronized PlanarImage getAsImage() {
+        if (image != null) {
+            return image;
+        }
+
+        Rectangle r = getBounds();
+        if (r.isEmpty()) {
+            // An image may not be empty; use a single excluded pixel.
+            r = new Rectangle(0, 0, 1, 1);
+        }
+
+        WritableRaster raster;
+        if (r.x == 0 && r.y == 0) {
+            BufferedImage bi =
+                new BufferedImage(r.width, r.height,
+                                  BufferedImage.TYPE_BYTE_BINARY);
+            image = PlanarImage.wrapRenderedImage(bi);
+            raster = bi.getRaster();
+        } else {
+            SampleModel sm =
+                new MultiPixelPackedSampleModel(
+                        DataBuffer.TYPE_BYTE, r.width, r.height, 1);
+
+            TiledImage ti = new TiledImage(r.x, r.y, r.width, r.height,
+                                           r.x, r.y,
+                                           sm, PlanarImage.createColorModel(sm));
+            image = ti;
+            raster = ti.getWritableTile(0, 0);
+        }
+
+        // Pack the runs with the most significant bit on the left.
+        int lineStride = (r.width + 7)/8;
+        byte[] data = new byte[lineStride*r.height];
+
+        for (int i = 0; i < rowOffsets.length - 1; i++) {
+            int lineOffset = (minY + i - r.y)*lineStride;
+            for (int k = rowOffsets[i]; k < rowOffsets[i + 1]; k += 2) {
+                for (int x = runs[k] - r.x; x < runs[k + 1] - r.x; x++) {
+                    data[lineOffset + (x >> 3)] |= (byte)(0x80 >>> (x & 7));
+                }
+            }
+        }
+
+        ImageUtil.setPackedBinaryData(data, raster, r);
+
+        if (image instanceof TiledImage) {
+            ((TiledImage)image).releaseWritableTile(0, 0);
+        }
+
+        return image;
+    }
+
+    /**
+     * Sets the bits <code>from</code> inclusive to <code>to</code>
+     * exclusive of a bitmask row, the MSB lying on the left.
+     */
+    private static void setBits(int[] row, int from, int to) {
+        int first = from >>> 5;
+        int last = (to - 1) >>> 5;
+        int firstMask = -1 >>> (from & 31);
+        int lastMask = -1 << (31 - ((to - 1) & 31));
+
+        if (first == last) {
+            row[first] |= firstMask & lastMask;
+        } else {
+            row[first] |= firstMask;
+            for (int i = first + 1; i < last; i++) {
+                row[i] = -1;
+            }
+            row[last] |= lastMask;
+        }
+    }
+
+    /**
+     * Returns a bitmask for a given rectangular region of the ROI
+     * indicating whether the pixel is included in the region of
+     * interest.  The results are packed into 32-bit integers, with
+     * the MSB considered to lie on the left.  The last entry in each
+     * row of the result may have bits that lie outside of the
+     * requested rectangle.  These bits are guaranteed to be zeroed.
+     *
+     * <p> The <code>mask</code> array, if supplied, must be of length
+     * equal to or greater than <code>height</code> and each of its
+     * subarrays must have length equal to or greater than (width +
+     * 31)/32.  If <code>null</code> is passed in, a suitable array
+     * will be constructed.  If the mask is non-null but has
+     * insufficient size, an exception will be thrown.
+     *
+     * @param x The X coordinate of the upper left corner of the rectangle.
+     * @param y The Y coordinate of the upper left corner of the rectangle.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @param mask A two-dimensional array of ints at least
+     *        (width + 31)/32 entries wide and (height) entries tall,
+     *        or null.
+     * @return A reference to the <code>mask</code> parameter, or
+     *         to a newly constructed array if <code>mask</code> is
+     *         <code>null</code>. If the specified rectangle does not
+     *	       intersect with the bounds of the ROI then a
+     *	       <code>null</code> is returned.
+     */
+    public int[][] getAsBitmask(int x, int y,
+                                int width, int height,
+                                int[][] mask) {
+        Rectangle rect =
+            getBounds().intersection(new Rectangle(x, y, width, height));
+
+        if (rect.isEmpty()) {
+            return null;
+        }
+
+        int bitmaskIntWidth = (width + 31)/32;
+
+        if (mask == null) {
+            mask = new int[height][bitmaskIntWidth];
+        } else if (mask.length < height || mask[0].length < bitmaskIntWidth) {
+            throw new RuntimeException(JaiI18N.getString("ROI3"));
+        }
+
+        for (int row = 0; row < height; row++) {
+            Arrays.fill(mask[row], 0, bitmaskIntWidth, 0);
+        }
+
+        int x1 = rect.x + rect.width;
+        for (int yy = rect.y; yy < rect.y + rect.height; yy++) {
+            int row = yy - minY;
+            int end = rowOffsets[row + 1];
+            int[] maskRow = mask[yy - y];
+
+            for (int k = firstRunEndingAfter(row, rect.x);
+                 k < end && runs[k] < x1; k += 2) {
+                setBits(maskRow,
+                        Math.max(runs[k], rect.x) - x,
+                        Math.min(runs[k + 1], x1) - x);
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * Returns a <code>LinkedList</code> of <code>Rectangle</code>s
+     * for a given rectangular region of the ROI. The
+     * <code>Rectangle</code>s in the list are merged into a minimal
+     * set.
+     *
+     * @param x The X coordinate of the upper left corner of the rectangle.
+     * @param y The Y coordinate of the upper left corner of the rectangle.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @return A <code>LinkedList</code> of <code>Rectangle</code>s.
+     *	       If the specified rectangle does not intersect with the
+     *	       bounds of the ROI then a <code>null</code> is returned.
+     */
+    public LinkedList getAsRectangleList(int x, int y,
+                                         int width, int height) {
+        return getAsRectangleList(x, y, width, height, true);
+    }
+
+    /**
+     * Returns a <code>LinkedList</code> of <code>Rectangle</code>s for
+     * a given rectangular region of the ROI.  The rectangles are
+     * merged in a single pass over the runs: a run is merged into the
+     * rectangle above it if both have the same abscissa and width.
+     *
+     * @param x The X coordinate of the upper left corner of the rectangle.
+     * @param y The Y coordinate of the upper left corner of the rectangle.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @param mergeRectangles <code>true</code> if the <code>Rectangle</code>s
+     *        are to be merged into a minimal set.
+     * @return A <code>LinkedList</code> of <code>Rectangle</code>s.
+     *	       If the specified rectangle does not intersect with the
+     *	       bounds of the ROI then a <code>null</code> is returned.
+     */
+    protected LinkedList getAsRectangleList(int x, int y,
+                                            int width, int height,
+                                            boolean mergeRectangles) {
+        Rectangle rect =
+            getBounds().intersection(new Rectangle(x, y, width, height));
+
+        if (rect.isEmpty()) {
+            return null;
+        }
+
+        LinkedList rectList = new LinkedList();
+
+        // The rectangles ending on the previous row, sorted by abscissa.
+        Rectangle[] open = new Rectangle[0];
+        int numOpen = 0;
+        Rectangle[] current = new Rectangle[0];
+
+        int x1 = rect.x + rect.width;
+        for (int yy = rect.y; yy < rect.y + rect.height; yy++) {
+            int row = yy - minY;
+            int end = rowOffsets[row + 1];
+            int first = firstRunEndingAfter(row, rect.x);
+
+            if (current.length < (end - first)/2) {
+                current = new Rectangle[(end - first)/2];
+            }
+
+            int numCurrent = 0;
+            int o = 0;
+            for (int k = first; k < end && runs[k] < x1; k += 2) {
+                int rx = Math.max(runs[k], rect.x);
+                int rw = Math.min(runs[k + 1], x1) - rx;
+
+                Rectangle r = null;
+                if (mergeRectangles) {
+                    while (o < numOpen && open[o].x < rx) {
+                        o++;
+                    }
+                    if (o < numOpen && open[o].x == rx &&
+                        open[o].width == rw) {
+                        r = open[o++];
+                        r.height++;
+                    }
+                }
+
+                if (r == null) {
+                    r = new Rectangle(rx, yy, rw, 1);
+                    rectList.addLast(r);
+                }
+                current[numCurrent++] = r;
+            }
+
+            Rectangle[] tmp = open;
+            open = current;
+            numOpen = numCurrent;
+            current = tmp;
+        }
+
+        return rectList;
+    }
+
+    /** Returns a copy of the first <code>count</code> elements. */
+    private static int[] trim(int[] array, int count) {
+        if (array.length == count) {
+            return array;
+        }
+
+        int[] trimmed = new int[count];
+        System.arraycopy(array, 0, trimmed, 0, count);
+        return trimmed;
+    }
+
+    /** Returns a copy with room for at least <code>minLength</code>. */
+    private static int[] grow(int[] array, int minLength) {
+        int[] grown = new int[Math.max(2*array.length, minLength)];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /**
+     * Collects runs which may overlap or arrive out of order, and
+     * normalizes them row by row.
+     */
+    private static final class Builder {
+        private final int minY;
+        private final int[][] rows;
+        private final int[] sizes;
+
+        Builder(int minY, int height) {
+            this.minY = minY;
+            rows = new int[Math.max(height, 0)][];
+            sizes = new int[rows.length];
+        }
+
+        /** Adds the pixels of a rectangle given by its corners. */
+        void add(int x0, int y0, int x1, int y1) {
+            y0 = Math.max(y0, minY);
+            y1 = Math.min(y1, minY + rows.length);
+            for (int y = y0; y < y1; y++) {
+                addRun(y, x0, x1);
+            }
+        }
+
+        void addRun(int y, int x0, int x1) {
+            if (x0 >= x1 || y < minY || y >= minY + rows.length) {
+                return;
+            }
+
+            int row = y - minY;
+            int[] pairs = rows[row];
+            int size = sizes[row];
+
+            // Extend the last run if the new one abuts it.
+            if (size > 0 && pairs[size - 1] == x0) {
+                pairs[size - 1] = x1;
+                return;
+            }
+
+            if (pairs == null) {
+                pairs = rows[row] = new int[4];
+            } else if (size + 2 > pairs.length) {
+                pairs = rows[row] = grow(pairs, size + 2);
+            }
+            pairs[size] = x0;
+            pairs[size + 1] = x1;
+            sizes[row] = size + 2;
+        }
+
+        /** Sorts and merges the runs of a row, returning the new size. */
+        private int normalize(int[] pairs, int size) {
+            boolean sorted = true;
+            for (int i = 2; i < size; i += 2) {
+                if (pairs[i] <= pairs[i - 1]) {
+                    sorted = false;
+                    break;
+                }
+            }
+            if (sorted) {
+                return size;
+            }
+
+            // Sort by start, encoding both ends in a long.
+            long[] keys = new long[size/2];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = ((long)pairs[2*i] << 32) |
+                          (pairs[2*i + 1] & 0xffffffffL);
+            }
+            Arrays.sort(keys);
+
+            int count = 0;
+            for (int i = 0; i < keys.length; i++) {
+                int x0 = (int)(keys[i] >> 32);
+                int x1 = (int)keys[i];
+                if (count > 0 && x0 <= pairs[count - 1]) {
+                    pairs[count - 1] = Math.max(pairs[count - 1], x1);
+                } else {
+                    pairs[count++] = x0;
+                    pairs[count++] = x1;
+                }
+            }
+
+            return count;
+        }
+
+        /** Stores the normalized runs in an <code>ROIRunLength</code>. */
+        void build(ROIRunLength roi) {
+            int total = 0;
+            for (int i = 0; i < rows.length; i++) {
+                if (sizes[i] > 0) {
+                    sizes[i] = normalize(rows[i], sizes[i]);
+                    total += sizes[i];
+                }
+            }
+
+            int[] offsets = new int[rows.length + 1];
+            int[] pairs = new int[total];
+            int count = 0;
+            for (int i = 0; i < rows.length; i++) {
+                if (sizes[i] > 0) {
+                    System.arraycopy(rows[i], 0, pairs, count, sizes[i]);
+                    count += sizes[i];
+                }
+                offsets[i + 1] = count;
+            }
+
+            roi.setRuns(minY, offsets, pairs);
+        }
+    }
+}
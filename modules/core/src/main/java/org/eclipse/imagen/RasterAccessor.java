@@ -24,6 +24,7 @@ import java.awt.image.DataBufferUShort;
 import java.awt.image.DataBufferShort;
 import java.awt.image.DataBufferInt;
 import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.PixelInterleavedSampleModel;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.awt.Rectangle;
@@ -67,6 +68,17 @@ import org.eclipse.imagen.media.util.ImageUtil;
  * methods <code>getByteDataArray()</code>, <code>getByteDataArrays()</code>,
  * and <code>copyDataToRaster()</code> should be used.
  *
+ * <p> When the data have to be copied or expanded, the arrays holding
+ * the copy are normally allocated anew by each
+ * <code>RasterAccessor</code>.  If a <code>TileFactory</code> is
+ * supplied at construction, the arrays are instead the data banks of
+ * tiles obtained from that factory.  Once the accessor is no longer
+ * needed these tiles may be passed to a <code>TileRecycler</code> by
+ * <code>recycleBuffers()</code> so that the arrays are reused by
+ * subsequent accessors.  {@link OpImage#createRasterAccessor} and
+ * {@link OpImage#recycleRasterAccessor} do so with the
+ * <code>TileFactory</code> and <code>TileRecycler</code> of the image.
+ *
  */
 public class RasterAccessor {
 
@@ -265,6 +277,15 @@ public class RasterAccessor {
     /** The pixel stride of the image data in each data array */
     protected int pixelStride;
 
+    /** The factory of the tiles providing copy buffers, or null. */
+    private TileFactory bufferFactory;
+
+    /**
+     * The tile whose data bank is the copy buffer, or null if no buffer
+     * was obtained from <code>bufferFactory</code>.
+     */
+    private WritableRaster bufferTile;
+
     /**
      * Finds the appropriate tags for the constructor, based on the
      * SampleModel and ColorModel of all the source and destination.
@@ -445,6 +466,37 @@ public class RasterAccessor {
                           Rectangle rect, 
                           RasterFormatTag rft, 
                           ColorModel theColorModel) {
+        this(raster, rect, rft, theColorModel, null);
+    }
+
+    /**
+     * Constructs a RasterAccessor object out of a Raster, Rectangle
+     * and formatTagID returned from RasterFormat.findCompatibleTag().
+     * If the data have to be copied or expanded, the arrays holding
+     * them are obtained from tiles created by the given
+     * <code>TileFactory</code> and may be recycled by
+     * <code>recycleBuffers()</code> once the accessor is no longer used.
+     *
+     * @param raster The raster to be accessed
+     * @param rect   A <code>Rectangle</code> from the raster to be accessed
+     * @param rft    The <code>RasterFormatTag</code> associated with the Raster
+     * @param theColorModel The <code>ColorModel</code> for color components
+     * @param bufferFactory The <code>TileFactory</code> providing the
+     *        arrays of copied data, or <code>null</code> to allocate them.
+     *
+     * @throws ClassCastException if the data type of
+     *         <code>RasterFormatTag</code> does not agree with the actual
+     *         data type of the <code>Raster</code>.
+     * @throws IllegalArgumentException if <code>raster</code>,
+     *         <code>rect</code>, or <code>rft</code> is <code>null</code>.
+     * @throws IllegalArgumentException if the <code>Rectangle</code>
+     *         is not contained within <code>Raster</code>'s bounds.
+     */
+    public RasterAccessor(Raster raster,
+                          Rectangle rect,
+                          RasterFormatTag rft,
+                          ColorModel theColorModel,
+                          TileFactory bufferFactory) {
 
         if(raster == null || rect == null || rft == null) {
 	    throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
@@ -458,6 +510,7 @@ public class RasterAccessor {
 	}
 
         this.raster = raster;
+        this.bufferFactory = bufferFactory;
         this.rectX = rect.x;
         this.rectY = rect.y;
         this.rectWidth = rect.width;
@@ -595,8 +648,9 @@ public class RasterAccessor {
     
                 switch (formatTagID & DATATYPE_MASK) {
                 case DataBuffer.TYPE_BYTE: {
-                    byte newBArray[] = 
-                        new byte[rectWidth*rectHeight*newNumBands];
+                    byte newBArray[] =
+                        (byte[])createBuffer(DataBuffer.TYPE_BYTE,
+                                             rectWidth*rectHeight*newNumBands);
                     byte byteDataArray[] = byteDataArrays[0];
                     int scanlineOffset = bandDataOffsets[0];
                     int newScanlineOffset = 0;
@@ -624,7 +678,8 @@ public class RasterAccessor {
 
                 case DataBuffer.TYPE_USHORT: {
                     short newIArray[] =
-                        new short[rectWidth*rectHeight*newNumBands];
+                        (short[])createBuffer(DataBuffer.TYPE_USHORT,
+                                              rectWidth*rectHeight*newNumBands);
                     short shortDataArray[] = shortDataArrays[0];
                     int scanlineOffset = bandDataOffsets[0];
                     int newScanlineOffset = 0;
@@ -653,7 +708,8 @@ public class RasterAccessor {
 
                 case DataBuffer.TYPE_SHORT: {
                     short newIArray[] =
-                        new short[rectWidth*rectHeight*newNumBands];
+                        (short[])createBuffer(DataBuffer.TYPE_SHORT,
+                                              rectWidth*rectHeight*newNumBands);
                     short shortDataArray[] = shortDataArrays[0];
                     int scanlineOffset = bandDataOffsets[0];
                     int newScanlineOffset = 0;
@@ -682,7 +738,8 @@ public class RasterAccessor {
 
                 case DataBuffer.TYPE_INT: {
                     int newIArray[] =
-                        new int[rectWidth*rectHeight*newNumBands];
+                        (int[])createBuffer(DataBuffer.TYPE_INT,
+                                            rectWidth*rectHeight*newNumBands);
                     int intDataArray[] = intDataArrays[0];
                     int scanlineOffset = bandDataOffsets[0];
                     int newScanlineOffset = 0;
@@ -711,7 +768,8 @@ public class RasterAccessor {
 
                 case DataBuffer.TYPE_FLOAT: {
                     float newFArray[] =
-                          new float[rectWidth*rectHeight*newNumBands];
+                        (float[])createBuffer(DataBuffer.TYPE_FLOAT,
+                                              rectWidth*rectHeight*newNumBands);
                     float floatDataArray[] = floatDataArrays[0];
                     int scanlineOffset = bandDataOffsets[0];
                     int newScanlineOffset = 0;
@@ -739,7 +797,8 @@ public class RasterAccessor {
 
                 case DataBuffer.TYPE_DOUBLE: {
                     double newDArray[] =
-                          new double[rectWidth*rectHeight*newNumBands];
+                        (double[])createBuffer(DataBuffer.TYPE_DOUBLE,
+                                               rectWidth*rectHeight*newNumBands);
                     double doubleDataArray[] = doubleDataArrays[0];
                     int scanlineOffset = bandDataOffsets[0];
                     int newScanlineOffset = 0;
@@ -794,7 +853,9 @@ public class RasterAccessor {
             switch (formatTagID & DATATYPE_MASK) {
                 
             case DataBuffer.TYPE_INT: 
-                int idata[] = new int[rectWidth*rectHeight*numBands];
+                int idata[] =
+                    (int[])createBuffer(DataBuffer.TYPE_INT,
+                                        rectWidth*rectHeight*numBands);
                 intDataArrays = new int[numBands][];
                 for (int i = 0; i < numBands; i++) {
                     intDataArrays[i] = idata;
@@ -833,7 +894,9 @@ public class RasterAccessor {
                 break;
 
             case DataBuffer.TYPE_FLOAT:
-                float fdata[] = new float[rectWidth*rectHeight*numBands];
+                float fdata[] =
+                    (float[])createBuffer(DataBuffer.TYPE_FLOAT,
+                                          rectWidth*rectHeight*numBands);
                 floatDataArrays = new float[numBands][];
                 for (int i = 0; i < numBands; i++) {
                     floatDataArrays[i] = fdata;
@@ -858,7 +921,9 @@ public class RasterAccessor {
                 break;
 
             case DataBuffer.TYPE_DOUBLE:
-                double ddata[] = new double[rectWidth*rectHeight*numBands];
+                double ddata[] =
+                    (double[])createBuffer(DataBuffer.TYPE_DOUBLE,
+                                           rectWidth*rectHeight*numBands);
                 doubleDataArrays = new double[numBands][];
                 for (int i = 0; i < numBands; i++) {
                     doubleDataArrays[i] = ddata;
@@ -899,7 +964,10 @@ public class RasterAccessor {
             case DataBuffer.TYPE_INT:
                 int idata[] = raster.getPixels(rectX,rectY,
                                                rectWidth,rectHeight,
-                                               (int[])null);
+                                               (int[])createBuffer(
+                                                   DataBuffer.TYPE_INT,
+                                                   rectWidth*rectHeight*
+                                                   numBands));
                 intDataArrays = new int[numBands][];
                 for (int i = 0; i < numBands; i++) {
                     intDataArrays[i] = idata;
@@ -909,7 +977,10 @@ public class RasterAccessor {
             case DataBuffer.TYPE_FLOAT:
                 float fdata[] = raster.getPixels(rectX,rectY,
                                                  rectWidth,rectHeight,
-                                                 (float[])null);
+                                                 (float[])createBuffer(
+                                                     DataBuffer.TYPE_FLOAT,
+                                                     rectWidth*rectHeight*
+                                                     numBands));
                 floatDataArrays = new float[numBands][];
                 for (int i = 0; i < numBands; i++) {
                     floatDataArrays[i] = fdata;
@@ -919,7 +990,10 @@ public class RasterAccessor {
             case DataBuffer.TYPE_DOUBLE:
                 double ddata[] = raster.getPixels(rectX,rectY,
                                               rectWidth,rectHeight,
-                                              (double[])null);
+                                              (double[])createBuffer(
+                                                  DataBuffer.TYPE_DOUBLE,
+                                                  rectWidth*rectHeight*
+                                                  numBands));
                 doubleDataArrays = new double[numBands][];
                 for (int i = 0; i < numBands; i++) {
                     doubleDataArrays[i] = ddata;
@@ -929,6 +1003,88 @@ public class RasterAccessor {
         }
     }
 
+    /**
+     * Returns an array of the given data type and length to hold
+     * copied data.  If a <code>TileFactory</code> was supplied the
+     * array is the data bank of a tile created by that factory and the
+     * tile is retained for <code>recycleBuffers()</code>.
+     */
+    private Object createBuffer(int dataType, int length) {
+        if (bufferFactory == null || bufferTile != null) {
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                return new byte[length];
+            case DataBuffer.TYPE_USHORT:
+            case DataBuffer.TYPE_SHORT:
+                return new short[length];
+            case DataBuffer.TYPE_INT:
+                return new int[length];
+            case DataBuffer.TYPE_FLOAT:
+                return new float[length];
+            default:
+                return new double[length];
+            }
+        }
+
+        // A single row, single band tile whose bank has exactly the
+        // required length.
+        SampleModel sm =
+            new PixelInterleavedSampleModel(dataType, length, 1, 1,
+                                            length, new int[] {0});
+        bufferTile = bufferFactory.createTile(sm, null);
+
+        DataBuffer db = bufferTile.getDataBuffer();
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            return ((DataBufferByte)db).getData();
+        case DataBuffer.TYPE_USHORT:
+            return ((DataBufferUShort)db).getData();
+        case DataBuffer.TYPE_SHORT:
+            return ((DataBufferShort)db).getData();
+        case DataBuffer.TYPE_INT:
+            return ((DataBufferInt)db).getData();
+        case DataBuffer.TYPE_FLOAT:
+            return DataBufferUtils.getDataFloat(db);
+        default:
+            return DataBufferUtils.getDataDouble(db);
+        }
+    }
+
+    /**
+     * Passes any tile providing the arrays of copied data to the given
+     * <code>TileRecycler</code> so that the arrays may be reused.  This
+     * method does nothing unless a <code>TileFactory</code> was supplied
+     * at construction and the data were copied or expanded.
+     *
+     * <p> The data arrays of this <code>RasterAccessor</code> must not be
+     * used after this method has been called; in particular, the data
+     * of a destination accessor must already have been copied back by
+     * <code>copyDataToRaster()</code>.
+     *
+     * @param recycler The <code>TileRecycler</code> to receive the tile.
+     *
+     * @throws IllegalArgumentException if <code>recycler</code> is
+     *         <code>null</code>.
+     */
+    public void recycleBuffers(TileRecycler recycler) {
+        if (recycler == null) {
+	    throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if (bufferTile != null) {
+            WritableRaster tile = bufferTile;
+            bufferTile = null;
+
+            byteDataArrays = null;
+            shortDataArrays = null;
+            intDataArrays = null;
+            floatDataArrays = null;
+            doubleDataArrays = null;
+
+            recycler.recycleTile(tile);
+        }
+    }
+
     /** 
      * Returns the x coordinate of the upper-left corner of the 
      * RasterAccessor's accessible area.
@@ -63,6 +63,37 @@ class RegistryFileParser {
 	(new RegistryFileParser(or, cl, url)).parseFile();
     }
 
+    /**
+     * Load the <code>OperationRegistry</code> from the input stream.
+     * If <code>lazy</code> is <code>true</code>, the descriptors,
+     * factories and preferences are only recorded, and registered
+     * when the <code>OperationRegistry</code> first needs them.
+     */
+    static void loadOperationRegistry(OperationRegistry or,
+		    ClassLoader cl, InputStream is, boolean lazy)
+		    throws IOException {
+
+	RegistryFileParser parser = new RegistryFileParser(or, cl, is);
+
+	parser.lazy = lazy;
+	parser.parseFile();
+    }
+
+    /**
+     * Load the <code>OperationRegistry</code> from the <code>URL</code>.
+     * If <code>lazy</code> is <code>true</code>, the descriptors,
+     * factories and preferences are only recorded, and registered
+     * when the <code>OperationRegistry</code> first needs them.
+     */
+    static void loadOperationRegistry(OperationRegistry or,
+		    ClassLoader cl, URL url, boolean lazy) throws IOException {
+
+	RegistryFileParser parser = new RegistryFileParser(or, cl, url);
+
+	parser.lazy = lazy;
+	parser.parseFile();
+    }
+
     private URL url;
     private InputStream is;
     private ClassLoader classLoader;
@@ -81,6 +112,41 @@ class RegistryFileParser {
     // on a per mode basis.
     private Hashtable localNamesTable;
 
+    // Whether lines are recorded instead of being acted upon.
+    private boolean lazy = false;
+
+    // The recorded descriptor lines, in file order.
+    private Vector deferredDescriptors = new Vector();
+
+    // Table used to map descriptor names to the recorded factory and
+    // preference lines, in file order, which refer to them.
+    private Hashtable deferredLines = new Hashtable();
+
+    // The number of recorded lines not acted upon yet.
+    private int deferredCount = 0;
+
+    /**
+     * A line recorded for later, with its line number for error
+     * messages.
+     */
+    private static final class DeferredLine {
+
+	String[] keys;
+	int lineno;
+
+	// For factory and preference lines, the name of the registry
+	// mode whose descriptor they refer to.
+	String modeName;
+
+	// Whether this is a preference line.
+	boolean isPreference;
+
+	DeferredLine(String[] keys, int lineno) {
+	    this.keys = keys;
+	    this.lineno = lineno;
+	}
+    }
+
     /**
      * Create a JAI registry file parser from an <code>URL</code>
      */
@@ -271,87 +337,269 @@ class RegistryFileParser {
 	    if ((keys = getNextLine()) == null)
 		break;
 
-	    RegistryMode mode;
+	    if (lazy)
+		deferLine(keys);
+	    else
+		parseLine(keys);
+	}
+
+	// If this was read in from an URL, we created the InputStream
+	// and so we should close it.
+	if (url != null)
+	    is.close();
+
+	if (deferredCount > 0)
+	    or.addDeferredFile(this);
 
-	    String key = mapName(keys[0]);
+	return true;
+    }
 
-	    // This indicates a new registry mode to be added.
-	    if (key.equalsIgnoreCase("registryMode")) {
+    /**
+     * Act upon a line of the registry file.
+     */
+    private void parseLine(String[] keys) {
 
-		mode = (RegistryMode)getInstance(keys[1]);
+	RegistryMode mode;
 
-		if (mode != null) {
-		    if (RegistryMode.addMode(mode) == false)
-			registryFileError(
-			    JaiI18N.getString("RegistryFileParser10"));
-		}
+	String key = mapName(keys[0]);
 
-	    // Old format operation-descriptor line OR
-	    // the new generic RegistryElementDescriptor line
-	    } else if (key.equalsIgnoreCase("descriptor")) {
+	// This indicates a new registry mode to be added.
+	if (key.equalsIgnoreCase("registryMode")) {
 
-		registerDescriptor(keys);
+	    mode = (RegistryMode)getInstance(keys[1]);
 
-	    // If it is a registry mode name, then register the
-	    // factory object.
-	    } else if ((mode = RegistryMode.getMode(key)) != null) {
+	    if (mode != null) {
+		if (RegistryMode.addMode(mode) == false)
+		    registryFileError(
+			JaiI18N.getString("RegistryFileParser10"));
+	    }
 
-		registerFactory(mode, keys);
+	// Old format operation-descriptor line OR
+	// the new generic RegistryElementDescriptor line
+	} else if (key.equalsIgnoreCase("descriptor")) {
 
-	    // If the line starts with a "pref" there are two options
-	    } else if (key.equalsIgnoreCase("pref")) {
+	    registerDescriptor(keys);
 
-		key = mapName(keys[1]);
+	// If it is a registry mode name, then register the
+	// factory object.
+	} else if ((mode = RegistryMode.getMode(key)) != null) {
 
-		// If what follows is the keyword "product" then
-		// it is assumed to be setting product preferences
-		// for the "rendered" mode (old file format)
-		if (key.equalsIgnoreCase("product")) {
+	    registerFactory(mode, keys);
 
-		    setProductPreference(
-			RegistryMode.getMode("rendered"), keys);
+	// If the line starts with a "pref" there are two options
+	} else if (key.equalsIgnoreCase("pref")) {
 
-		// If it is followed by a modeName then it is
-		// for setting preferences between factory object.
-		} else if ((mode = RegistryMode.getMode(key)) != null) {
+	    key = mapName(keys[1]);
 
-		    setFactoryPreference(mode, keys);
+	    // If what follows is the keyword "product" then
+	    // it is assumed to be setting product preferences
+	    // for the "rendered" mode (old file format)
+	    if (key.equalsIgnoreCase("product")) {
 
-		} else {
-		    registryFileError(JaiI18N.getString("RegistryFileParser4"));
-		}
+		setProductPreference(
+		    RegistryMode.getMode("rendered"), keys);
+
+	    // If it is followed by a modeName then it is
+	    // for setting preferences between factory object.
+	    } else if ((mode = RegistryMode.getMode(key)) != null) {
 
-	    // For setting product preferences
-	    } else if (key.equalsIgnoreCase("productPref")) {
+		setFactoryPreference(mode, keys);
 
-		key = mapName(keys[1]);
+	    } else {
+		registryFileError(JaiI18N.getString("RegistryFileParser4"));
+	    }
 
-		// If it is followed by a modeName then it is
-		// for setting preferences between products
-		if ((mode = RegistryMode.getMode(key)) != null) {
+	// For setting product preferences
+	} else if (key.equalsIgnoreCase("productPref")) {
 
-		    setProductPreference(mode, keys);
+	    key = mapName(keys[1]);
+
+	    // If it is followed by a modeName then it is
+	    // for setting preferences between products
+	    if ((mode = RegistryMode.getMode(key)) != null) {
+
+		setProductPreference(mode, keys);
 
-		} else {
-		    registryFileError(JaiI18N.getString("RegistryFileParser5"));
-		}
 	    } else {
-		registryFileError(JaiI18N.getString("RegistryFileParser6"));
+		registryFileError(JaiI18N.getString("RegistryFileParser5"));
 	    }
+	} else {
+	    registryFileError(JaiI18N.getString("RegistryFileParser6"));
 	}
+    }
 
-	// If this was read in from an URL, we created the InputStream
-	// and so we should close it.
-	if (url != null)
-	    is.close();
+    /**
+     * Record a descriptor, factory or preference line of the registry
+     * file for later. The lines which would only produce an error or
+     * which add registry modes are acted upon at once.
+     */
+    private void deferLine(String[] keys) {
 
-	return true;
+	RegistryMode mode;
+	String descriptorName = null;
+	String modeName = null;
+	boolean isPreference = false;
+
+	String key = mapName(keys[0]);
+
+	if (key.equalsIgnoreCase("descriptor")) {
+
+	    if (keys.length >= 2) {
+		deferredDescriptors.addElement(new DeferredLine(keys, lineno));
+		deferredCount++;
+		return;
+	    }
+
+	} else if ((mode = RegistryMode.getMode(key)) != null) {
+
+	    if (mode.arePreferencesSupported()) {
+		if (keys.length >= 5)
+		    descriptorName = keys[3];
+
+	    } else if (keys.length >= 3) {
+		descriptorName = keys[2];
+	    }
+
+	    modeName = mode.getName();
+
+	} else if (key.equalsIgnoreCase("pref") && (keys.length >= 5)) {
+
+	    key = mapName(keys[1]);
+
+	    if (key.equalsIgnoreCase("product")) {
+		descriptorName = keys[2];
+		modeName = "rendered";
+
+	    } else if ((mode = RegistryMode.getMode(key)) != null) {
+		descriptorName = keys[2];
+		modeName = mode.getName();
+	    }
+
+	    isPreference = true;
+
+	} else if (key.equalsIgnoreCase("productPref") && (keys.length >= 5)) {
+
+	    key = mapName(keys[1]);
+
+	    if ((mode = RegistryMode.getMode(key)) != null) {
+		descriptorName = keys[2];
+		modeName = mode.getName();
+	    }
+
+	    isPreference = true;
+	}
+
+	if (descriptorName == null) {
+	    parseLine(keys);
+	    return;
+	}
+
+	CaselessStringKey nameKey = new CaselessStringKey(descriptorName);
+
+	Vector lines = (Vector)deferredLines.get(nameKey);
+
+	if (lines == null)
+	    deferredLines.put(nameKey, lines = new Vector());
+
+	DeferredLine line = new DeferredLine(keys, lineno);
+	line.modeName = modeName;
+	line.isPreference = isPreference;
+
+	lines.addElement(line);
+	deferredCount++;
+    }
+
+    /**
+     * Register all the recorded descriptors. The name under which a
+     * descriptor is registered is only known once its class has been
+     * instantiated, and descriptors of different modes may share a
+     * name, so they cannot be registered one name at a time.
+     */
+    void registerDeferredDescriptors() {
+
+	if (deferredDescriptors.isEmpty())
+	    return;
+
+	// Take the lines out first as registering a descriptor may
+	// call back here.
+	Vector lines = deferredDescriptors;
+	deferredDescriptors = new Vector();
+
+	deferredCount -= lines.size();
+
+	for (int i = 0; i < lines.size(); i++) {
+	    DeferredLine line = (DeferredLine)lines.elementAt(i);
+
+	    lineno = line.lineno;
+
+	    registerDescriptor(line.keys);
+	}
+    }
+
+    /**
+     * Act upon the recorded factory lines, or the recorded preference
+     * lines, which refer to the given descriptor name, or to any name
+     * if it is <code>null</code>. The lines whose descriptor is not
+     * registered in their mode are kept for when it is.
+     */
+    void registerDeferredEntries(CaselessStringKey descriptorName,
+				 boolean preferences) {
+
+	if (descriptorName == null) {
+	    Vector names = new Vector(deferredLines.keySet());
+
+	    for (int i = 0; i < names.size(); i++)
+		registerDeferredEntries((CaselessStringKey)names.elementAt(i),
+					preferences);
+
+	    return;
+	}
+
+	Vector lines = (Vector)deferredLines.remove(descriptorName);
+
+	if (lines == null)
+	    return;
+
+	Vector kept = new Vector();
+
+	for (int i = 0; i < lines.size(); i++) {
+	    DeferredLine line = (DeferredLine)lines.elementAt(i);
+
+	    if ((line.isPreference != preferences) ||
+		!or.isDescriptorRegistered(line.modeName,
+					   descriptorName.getName())) {
+		kept.addElement(line);
+		continue;
+	    }
+
+	    lineno = line.lineno;
+	    parseLine(line.keys);
+	}
+
+	deferredCount -= lines.size() - kept.size();
+
+	if (!kept.isEmpty())
+	    deferredLines.put(descriptorName, kept);
+    }
+
+    /**
+     * Returns the number of recorded lines not acted upon yet.
+     */
+    int getDeferredCount() {
+	return deferredCount;
+    }
+
+    /**
+     * Whether some of the recorded lines register descriptors.
+     */
+    boolean hasDeferredDescriptors() {
+	return !deferredDescriptors.isEmpty();
     }
 
     /**
-     * Register a descriptor with operation registry.
+     * Register a descriptor with operation registry and return it.
      */
-    private void registerDescriptor(String[] keys) {
+    private RegistryElementDescriptor registerDescriptor(String[] keys) {
 
 	if (keys.length >= 2) {
 
@@ -366,9 +614,13 @@ class RegistryFileParser {
 		}
 	    }
 
+	    return red;
+
 	} else {
 	    registryFileError(JaiI18N.getString("RegistryFileParser1"));
 	}
+
+	return null;
     }
 
     /**
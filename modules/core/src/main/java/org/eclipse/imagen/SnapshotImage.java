@@ -25,6 +25,7 @@ import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import org.eclipse.imagen.media.util.ResourceCleaner;
 
 /**
  * A (Raster, X, Y) tuple.
@@ -58,12 +59,12 @@ final class TileCopy {
 
 /**
  * A proxy for <code>Snapshot</code> that calls
- * <code>Snapshot.dispose()</code> when finalized.
+ * <code>Snapshot.dispose()</code> when it becomes unreachable.
  * No references to a SnapshotProxy are held internally, only user
  * references.  Thus it will be garbage collected when the last user
  * reference is relinquished.  The <code>Snapshot</code>'s
- * <code>dispose()</code> method
- * is called from <code>SnapshotProxy.finalize()</code>, ensuring that all
+ * <code>dispose()</code> method is then called by a
+ * <code>ResourceCleaner</code> action, ensuring that all
  * of the resources held by the <code>Snapshot</code> will become collectable.
  */
 final class SnapshotProxy extends PlanarImage {
@@ -73,6 +74,25 @@ final class SnapshotProxy extends PlanarImage {
      */
     Snapshot parent;
 
+    /** Disposes of the parent once this proxy is unreachable. */
+    private ResourceCleaner.Cleanable cleanable;
+
+    /**
+     * Disposes of a <code>Snapshot</code>.  This is not an inner class
+     * so that it does not refer to the proxy.
+     */
+    private static final class Disposer implements Runnable {
+        private final Snapshot snapshot;
+
+        Disposer(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public void run() {
+            snapshot.dispose();
+        }
+    }
+
     /**
      * Construct a new proxy for a given <code>Snapshot</code>.
      *
@@ -82,6 +102,7 @@ final class SnapshotProxy extends PlanarImage {
     SnapshotProxy(Snapshot parent) {
         super(new ImageLayout(parent), null, null);
         this.parent = parent;
+        this.cleanable = ResourceCleaner.register(this, new Disposer(parent));
     }
 
     /**
@@ -97,7 +118,7 @@ final class SnapshotProxy extends PlanarImage {
 
     /** Disposes of resources held by this proxy. */
     public void dispose() {
-        parent.dispose();
+        cleanable.clean();
     }
 }
 
@@ -289,8 +310,8 @@ final class Snapshot extends PlanarImage {
  *
  * <p> When a particular <code>Snapshot</code> is no longer needed, its
  * <code>dispose()</code> method may be called.    The <code>dispose()</code>
- * method will be called automatically when the <code>Snapshot</code> is
- * finalized by the garbage collector.  Disposing of the <code>Snapshot</code>
+ * method will be called automatically once the <code>Snapshot</code> has
+ * been reclaimed by the garbage collector.  Disposing of the <code>Snapshot</code>
  * allows tile data held by the <code>Snapshot</code> that is not needed by
  * any other <code>Snapshot</code> to be disposed of as well.
  *
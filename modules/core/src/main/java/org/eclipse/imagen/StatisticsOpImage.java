@@ -20,8 +20,13 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import org.eclipse.imagen.media.util.ForkJoinTileScheduler;
 import org.eclipse.imagen.media.util.PropertyUtil;
+import org.eclipse.imagen.media.util.SunTileScheduler;
 
 /**
  * An abstract base class representing image operators that compute
@@ -48,6 +53,14 @@ import org.eclipse.imagen.media.util.PropertyUtil;
  * <p> Subclasses should provide implementations
  * of the <code>getStatisticsNames</code>, <code>createStatistics</code>,
  * and <code>accumulateStatistics</code> methods.
+ *
+ * <p> Subclasses which are able to merge statistics gathered over
+ * disjoint sets of tiles may in addition override the
+ * <code>createPartialStatistics</code> and <code>mergeStatistics</code>
+ * methods.  The source tiles are then requested through the
+ * <code>TileScheduler</code> and the statistics of each tile are
+ * accumulated by the thread which computed it, so that all processors
+ * take part in the computation.
  * 
  * @see OpImage
  */
@@ -254,61 +267,225 @@ public abstract class StatisticsOpImage extends OpImage {
 
                 if (!stats.equals(java.awt.Image.UndefinedProperty)) {
                     PlanarImage source = getSource(0);
+                    Point[] tileIndices = getStatisticsTileIndices();
+
+                    TileScheduler scheduler = getTileScheduler();
+                    Object partial = tileIndices.length > 1 &&
+                        canScheduleTiles(scheduler) ?
+                        createPartialStatistics(name) : null;
+
+                    if (partial != null) {
+                        accumulateStatistics(name, source, tileIndices,
+                                             scheduler, partial, stats);
+                    } else {
+                        // Accumulate the statistics tile by tile.
+                        for (int i = 0; i < tileIndices.length; i++) {
+                            Rectangle tileRect =
+                                getTileRect(tileIndices[i].x,
+                                            tileIndices[i].y);
+                            accumulateStatistics(name,
+                                                 source.getData(tileRect),
+                                                 stats);
+                        }
+                    }
+
+                    // Store the generated property in Hastable.
+                    setProperty(name, stats);
+                }
+            }
+        }
+
+        return stats;
+    }
+
+    /**
+     * Returns the indices of the source tiles which contain pixels
+     * to be sampled, in raster order.
+     */
+    private Point[] getStatisticsTileIndices() {
+        PlanarImage source = getSource(0);
+
+        // Cycle throw all source tiles.
+        int minTileX = source.getMinTileX();
+        int maxTileX = source.getMaxTileX();
+        int minTileY = source.getMinTileY();
+        int maxTileY = source.getMaxTileY();
+
+        List indices = new ArrayList();
+        for (int y = minTileY; y <= maxTileY; y++) {
+            for (int x = minTileX; x <= maxTileX; x++) {
+                // Determine the required region of this tile.
+                // (Note that getTileRect() instersects tile and
+                // image bounds.)
+                Rectangle tileRect = getTileRect(x, y);
+
+                // Process if and only if within ROI bounds.
+                if (roi.intersects(tileRect)) {
+
+                    // If checking for skipped tiles determine
+                    // whether this tile is "hit".
+                    if(checkForSkippedTiles &&
+                       tileRect.x >= xStart &&
+                       tileRect.y >= yStart) {
+                        // Determine the offset within the tile.
+                        int offsetX =
+                            (xPeriod -
+                             ((tileRect.x - xStart) % xPeriod)) %
+                            xPeriod;
+                        int offsetY =
+                            (yPeriod -
+                             ((tileRect.y - yStart) % yPeriod)) %
+                            yPeriod;
+
+                        // Continue with next tile if offset
+                        // is larger than either tile dimension.
+                        if(offsetX >= tileRect.width ||
+                           offsetY >= tileRect.height) {
+                            continue;
+                        }
+                    }
+
+                    indices.add(new Point(x, y));
+                }
+            }
+        }
+
+        return (Point[])indices.toArray(new Point[indices.size()]);
+    }
+
+    /**
+     * Returns <code>true</code> if the source tiles may be requested from
+     * the given <code>TileScheduler</code> without blocking the calling
+     * thread on work that no other thread would pick up: the calling
+     * thread must not be a worker of the scheduler, and the scheduler
+     * must have worker threads which are free.  Schedulers of other
+     * types are not used.
+     */
+    private static boolean canScheduleTiles(TileScheduler scheduler) {
+        Thread current = Thread.currentThread();
+
+        if (scheduler instanceof ForkJoinTileScheduler) {
+            ForkJoinTileScheduler fjts = (ForkJoinTileScheduler)scheduler;
+            return !fjts.isWorkerThread(current) && fjts.hasIdleWorkers();
+        } else if (scheduler instanceof SunTileScheduler) {
+            SunTileScheduler sts = (SunTileScheduler)scheduler;
+            return !sts.isWorkerThread(current) && sts.hasIdleWorkers();
+        }
+
+        return false;
+    }
 
-                    // Cycle throw all source tiles.
-                    int minTileX = source.getMinTileX();
-                    int maxTileX = source.getMaxTileX();
-                    int minTileY = source.getMinTileY();
-                    int maxTileY = source.getMaxTileY();
-
-                    for (int y = minTileY; y <= maxTileY; y++) {
-                        for (int x = minTileX; x <= maxTileX; x++) {
-                            // Determine the required region of this tile.
-                            // (Note that getTileRect() instersects tile and
-                            // image bounds.)
-                            Rectangle tileRect = getTileRect(x, y);
-
-                            // Process if and only if within ROI bounds.
-                            if (roi.intersects(tileRect)) {
-
-                                // If checking for skipped tiles determine
-                                // whether this tile is "hit".
-                                if(checkForSkippedTiles &&
-                                   tileRect.x >= xStart &&
-                                   tileRect.y >= yStart) {
-                                    // Determine the offset within the tile.
-                                    int offsetX =
-                                        (xPeriod -
-                                         ((tileRect.x - xStart) % xPeriod)) %
-                                        xPeriod;
-                                    int offsetY =
-                                        (yPeriod -
-                                         ((tileRect.y - yStart) % yPeriod)) %
-                                        yPeriod;
-
-                                    // Continue with next tile if offset
-                                    // is larger than either tile dimension.
-                                    if(offsetX >= tileRect.width ||
-                                       offsetY >= tileRect.height) {
-                                        continue;
-                                    }
+    /**
+     * Accumulates the statistics of the given source tiles in parallel.
+     * The tiles are requested from the <code>TileScheduler</code>; each
+     * thread which computes a tile accumulates it into a partial
+     * statistics object of its own, and the partial statistics are
+     * merged into <code>stats</code> once all tiles have been processed.
+     */
+    private void accumulateStatistics(final String name,
+                                      final PlanarImage source,
+                                      Point[] tileIndices,
+                                      TileScheduler scheduler,
+                                      Object firstPartial,
+                                      Object stats) {
+        final List partials = new ArrayList();
+        partials.add(firstPartial);
+        final ThreadLocal threadPartial = new ThreadLocal();
+        final Object[] unclaimed = new Object[] {firstPartial};
+        final Throwable[] failure = new Throwable[1];
+        final CountDownLatch done = new CountDownLatch(tileIndices.length);
+
+        TileComputationListener listener = new TileComputationListener() {
+                public void tileComputed(Object eventSource,
+                                         TileRequest[] requests,
+                                         PlanarImage image,
+                                         int tileX, int tileY,
+                                         Raster tile) {
+                    try {
+                        Object partial = threadPartial.get();
+                        if (partial == null) {
+                            synchronized (partials) {
+                                if (unclaimed[0] != null) {
+                                    partial = unclaimed[0];
+                                    unclaimed[0] = null;
+                                } else {
+                                    partial = createPartialStatistics(name);
+                                    partials.add(partial);
                                 }
+                            }
+                            threadPartial.set(partial);
+                        }
+
+                        // Restrict the tile to its intersection with
+                        // the image bounds as getData() does.
+                        Rectangle tileRect = getTileRect(tileX, tileY);
+                        if (!tile.getBounds().equals(tileRect)) {
+                            tile = tile.createChild(tileRect.x, tileRect.y,
+                                                    tileRect.width,
+                                                    tileRect.height,
+                                                    tileRect.x, tileRect.y,
+                                                    null);
+                        }
 
-                                // Accumulate statistics for this tile.
-                                accumulateStatistics(name,
-                                                     source.getData(tileRect),
-                                                     stats);
+                        accumulateStatistics(name, tile, partial);
+                    } catch (Throwable t) {
+                        synchronized (failure) {
+                            if (failure[0] == null) {
+                                failure[0] = t;
                             }
                         }
+                    } finally {
+                        done.countDown();
                     }
+                }
 
-                    // Store the generated property in Hastable.
-                    setProperty(name, stats);
+                public void tileCancelled(Object eventSource,
+                                          TileRequest[] requests,
+                                          PlanarImage image,
+                                          int tileX, int tileY) {
+                    done.countDown();
+                }
+
+                public void tileComputationFailure(Object eventSource,
+                                                   TileRequest[] requests,
+                                                   PlanarImage image,
+                                                   int tileX, int tileY,
+                                                   Throwable situation) {
+                    synchronized (failure) {
+                        if (failure[0] == null) {
+                            failure[0] = situation;
+                        }
+                    }
+                    done.countDown();
                 }
+            };
+
+        scheduler.scheduleTiles(source, tileIndices,
+                                new TileComputationListener[] {listener});
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure[0] != null) {
+            if (failure[0] instanceof RuntimeException) {
+                throw (RuntimeException)failure[0];
+            } else if (failure[0] instanceof Error) {
+                throw (Error)failure[0];
             }
+            throw new RuntimeException(failure[0]);
         }
 
-        return stats;
+        mergeStatistics(name, partials.toArray(), stats);
     }
 
     /**
@@ -388,4 +565,46 @@ public abstract class StatisticsOpImage extends OpImage {
     protected abstract void accumulateStatistics(String name,
                                                  Raster source,
                                                  Object stats);
+
+    /**
+     * Returns an object that will be used to gather the named
+     * statistic over a subset of the source tiles, or <code>null</code>
+     * if the statistic may only be gathered sequentially.
+     *
+     * <p> If a non-<code>null</code> object is returned, this method
+     * may be called again to create one object per thread, and
+     * <code>accumulateStatistics</code> may be invoked concurrently by
+     * several threads, each with its own partial statistics object.
+     * The objects are finally combined by <code>mergeStatistics</code>.
+     *
+     * <p> The implementation in this class returns <code>null</code>.
+     *
+     * @param name  The name of the statistic to be gathered.
+     */
+    protected Object createPartialStatistics(String name) {
+        return null;
+    }
+
+    /**
+     * Merges partial statistics which were gathered over disjoint sets
+     * of source tiles into a statistics object.  This method is only
+     * called if <code>createPartialStatistics</code> returned a
+     * non-<code>null</code> object for the named statistic.
+     *
+     * <p> Subclasses which override <code>createPartialStatistics</code>
+     * must override this method as well.  The implementation in this
+     * class does nothing, as the statistics are then always gathered
+     * sequentially into <code>stats</code> and there is nothing to merge.
+     *
+     * @param name  The name of the statistic to be gathered.
+     * @param partials  The objects created by
+     *        <code>createPartialStatistics</code>, each of which
+     *        has been passed to <code>accumulateStatistics</code>.
+     * @param stats  A statistics object generated by a previous call
+     *        to createStatistics.
+     */
+    protected void mergeStatistics(String name,
+                                   Object[] partials,
+                                   Object stats) {
+    }
 }
@@ -23,8 +23,13 @@ import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 /**
@@ -33,6 +38,15 @@ import java.util.Vector;
  * or a write lock. Exceptions are caught and the lock is released
  * before the exception is re-thrown.
  *
+ * <p> The descriptors and ordered factory lists looked up by
+ * <code>getDescriptor</code>, <code>getFactoryIterator</code>,
+ * <code>getFactory</code> and <code>invokeFactory</code> are kept in
+ * an immutable snapshot, so that repeated lookups take no lock and
+ * neither walk the preference graphs nor copy any list.  The snapshot
+ * is replaced as a whole when a new lookup is added to it, and
+ * discarded whenever a write lock is released.  Factories are invoked
+ * without holding any lock.
+ *
  * @since JAI 1.1
  */
 final class ThreadSafeOperationRegistry extends OperationRegistry {
@@ -40,6 +54,57 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     /** The reader/writer lock for this class. */
     private RWLock lock;
 
+    /**
+     * The result of looking up a descriptor, and the factories
+     * registered against it in order of preference, in a registry mode
+     * or for a descriptor class.  Instances are never modified.
+     */
+    private static final class Lookup {
+
+	/** The descriptor. */
+	final RegistryElementDescriptor descriptor;
+
+	/**
+	 * The <code>FactoryCache</code> of the mode, or <code>null</code>
+	 * if the lookup is for a descriptor class.
+	 */
+	final FactoryCache factoryCache;
+
+	/**
+	 * An unmodifiable <code>List</code> of the factories, or
+	 * <code>null</code> if the lookup is for a descriptor class or
+	 * if <code>getFactoryIterator</code> returns <code>null</code>.
+	 */
+	final List factories;
+
+	Lookup(RegistryElementDescriptor descriptor,
+	       FactoryCache factoryCache,
+	       List factories) {
+	    this.descriptor = descriptor;
+	    this.factoryCache = factoryCache;
+	    this.factories = factories;
+	}
+    }
+
+    /**
+     * The snapshot of the lookups: a <code>Map</code> from the mode
+     * name or descriptor <code>Class</code> to a <code>Map</code> from
+     * the descriptor name to its <code>Lookup</code>.  The names are
+     * those given by the callers.  Neither level is modified once the
+     * snapshot has been published.
+     */
+    private volatile Map lookups = Collections.EMPTY_MAP;
+
+    /** Serializes the replacement of the snapshot by readers. */
+    private final Object lookupsLock = new Object();
+
+    /**
+     * The number of times the write lock is held.  It is only changed
+     * by the thread holding the write lock, and no other thread may
+     * hold the read lock meanwhile.
+     */
+    private int writeLockCount = 0;
+
     public ThreadSafeOperationRegistry() {
 	super();
 
@@ -47,7 +112,140 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 	lock = new RWLock(true);
     }
 
+    /** Acquires the write lock. */
+    private void acquireWriteLock() {
+	lock.forWriting();
+	writeLockCount++;
+    }
+
+    /**
+     * Releases the write lock, discarding the snapshot of the lookups
+     * as the registry may have been modified.  Other threads cannot add
+     * lookups in the meantime as this requires the read lock.
+     */
+    private void releaseWriteLock() {
+	lookups = Collections.EMPTY_MAP;
+	if (writeLockCount > 0) {
+	    writeLockCount--;
+	}
+	lock.release();
+    }
+
+    /**
+     * Returns the snapshot <code>Lookup</code> of a descriptor name in
+     * a mode or descriptor class, or <code>null</code> if there is none.
+     */
+    private Lookup getLookup(Object scope, String descriptorName) {
+	Map names = (Map)lookups.get(scope);
+	return names == null ? null : (Lookup)names.get(descriptorName);
+    }
+
+    /**
+     * Adds a <code>Lookup</code> to a copy of the snapshot, which then
+     * replaces it, unless the registry is being modified by this
+     * thread.  This must be called with the read lock held so that the
+     * registry cannot have changed since the lookup was made.
+     */
+    private void putLookup(Object scope, String descriptorName,
+			   Lookup lookup) {
+	// A lookup made while this thread is modifying the registry may
+	// reflect an incomplete change.
+	if (writeLockCount > 0) {
+	    return;
+	}
+
+	synchronized (lookupsLock) {
+	    Map names = (Map)lookups.get(scope);
+	    names = names == null ? new HashMap() : new HashMap(names);
+	    names.put(descriptorName, lookup);
+
+	    Map newLookups = new HashMap(lookups);
+	    newLookups.put(scope, names);
+	    lookups = newLookups;
+	}
+    }
+
+    /**
+     * Looks up a descriptor and its ordered factories in a mode and adds
+     * them to the snapshot.  Returns <code>null</code> if there is no
+     * such descriptor, in which case nothing is added.
+     */
+    private Lookup createLookup(String modeName, String descriptorName) {
+	resolve(descriptorName);
+	try {
+	    lock.forReading();
+	    Lookup t = null;
+	    RegistryElementDescriptor descriptor =
+		super.getDescriptor(modeName, descriptorName);
+	    if (descriptor != null) {
+		Iterator it = super.getFactoryIterator(modeName, descriptorName);
+		List factories = null;
+		if (it != null) {
+		    ArrayList list = new ArrayList();
+		    while (it.hasNext()) {
+			list.add(it.next());
+		    }
+		    factories = Collections.unmodifiableList(
+			Arrays.asList(list.toArray()));
+		}
+		t = new Lookup(descriptor, getFactoryCache(modeName), factories);
+		putLookup(modeName, descriptorName, t);
+	    }
+	    lock.release();
+	    return t;
+	} catch (RuntimeException e) {
+	    lock.release();
+	    throw e;
+	}
+    }
+
+    /**
+     * Registers the deferred registry file entries for the named
+     * descriptor, if any. Registering them needs the write lock so
+     * this is done before the read lock is taken: two readers
+     * upgrading their locks at the same time would deadlock.
+     */
+    private void resolve(String descriptorName) {
+	if (isDeferred(descriptorName)) {
+	    try {
+		acquireWriteLock();
+		resolveDeferred(descriptorName);
+	    } finally {
+		releaseWriteLock();
+	    }
+	}
+    }
+
+    /**
+     * Registers all the deferred descriptor entries, if any.
+     */
+    private void resolveDescriptors() {
+	if (areDescriptorsDeferred()) {
+	    try {
+		acquireWriteLock();
+		resolveDeferredDescriptors();
+	    } finally {
+		releaseWriteLock();
+	    }
+	}
+    }
+
+    /**
+     * Registers all the deferred registry file entries, if any.
+     */
+    private void resolveAll() {
+	if (isDeferred()) {
+	    try {
+		acquireWriteLock();
+		resolveAllDeferred();
+	    } finally {
+		releaseWriteLock();
+	    }
+	}
+    }
+
     public String toString() {
+	resolveAll();
 	try {
 	    lock.forReading();
 	    String t = super.toString();
@@ -60,6 +258,7 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     }
 
     public void writeToStream(OutputStream out) throws IOException {
+	resolveAll();
 	try {
 	    lock.forReading();
 	    super.writeToStream(out);
@@ -75,28 +274,28 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 
     public void initializeFromStream(InputStream in) throws IOException {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.initializeFromStream(in);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (IOException ioe) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw ioe;
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
 
     public void updateFromStream(InputStream in) throws IOException {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.updateFromStream(in);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (IOException ioe) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw ioe;
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -105,19 +304,20 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 	    throws IOException, ClassNotFoundException {
 
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.readExternal(in);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (IOException ioe) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw ioe;
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
 
     public void writeExternal(ObjectOutput out) throws IOException {
+	resolveAll();
 	try {
 	    lock.forReading();
 	    super.writeExternal(out);
@@ -135,16 +335,17 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 
     public void removeRegistryMode(String modeName) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.removeRegistryMode(modeName);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
 
     public String[] getRegistryModes() {
+	resolveDescriptors();
 	try {
 	    lock.forReading();
 	    String[] t = super.getRegistryModes();
@@ -158,31 +359,41 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 
     public void registerDescriptor(RegistryElementDescriptor descriptor) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.registerDescriptor(descriptor);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
 
     public void unregisterDescriptor(RegistryElementDescriptor descriptor) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.unregisterDescriptor(descriptor);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
 
     public RegistryElementDescriptor getDescriptor(
 		    Class descriptorClass, String descriptorName) {
+	Lookup lookup = getLookup(descriptorClass, descriptorName);
+	if (lookup != null) {
+	    return lookup.descriptor;
+	}
+
+	resolve(descriptorName);
 	try {
 	    lock.forReading();
 	    RegistryElementDescriptor t = super.getDescriptor(descriptorClass, descriptorName);
+	    if (t != null) {
+		putLookup(descriptorClass, descriptorName,
+			  new Lookup(t, null, null));
+	    }
 	    lock.release();
 	    return t;
 	} catch (RuntimeException e) {
@@ -192,6 +403,7 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     }
 
     public List getDescriptors(Class descriptorClass) {
+	resolveDescriptors();
 	try {
 	    lock.forReading();
 	    List t = super.getDescriptors(descriptorClass);
@@ -204,6 +416,7 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     }
 
     public String[] getDescriptorNames(Class descriptorClass) {
+	resolveDescriptors();
 	try {
 	    lock.forReading();
 	    String[] t = super.getDescriptorNames(descriptorClass);
@@ -217,6 +430,15 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 
     public RegistryElementDescriptor getDescriptor(String modeName,
 					    String descriptorName) {
+	Lookup lookup = getLookup(modeName, descriptorName);
+	if (lookup == null) {
+	    lookup = createLookup(modeName, descriptorName);
+	}
+	if (lookup != null) {
+	    return lookup.descriptor;
+	}
+
+	resolve(descriptorName);
 	try {
 	    lock.forReading();
 	    RegistryElementDescriptor t = super.getDescriptor(modeName, descriptorName);
@@ -230,6 +452,7 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 
     public List getDescriptors(String modeName) {
 
+	resolveDescriptors();
 	try {
 	    lock.forReading();
 	    List t = super.getDescriptors(modeName);
@@ -242,6 +465,7 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     }
 
     public String[] getDescriptorNames(String modeName) {
+	resolveDescriptors();
 	try {
 	    lock.forReading();
 	    String[] t = super.getDescriptorNames(modeName);
@@ -258,14 +482,14 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 				     String preferredProductName,
 				     String otherProductName) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.setProductPreference(modeName,
 				       descriptorName,
 				       preferredProductName,
 				       otherProductName);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -275,14 +499,14 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 				       String preferredProductName,
 				       String otherProductName) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.unsetProductPreference(modeName,
 					 descriptorName,
 					 preferredProductName,
 					 otherProductName);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -290,17 +514,18 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     public void clearProductPreferences(String modeName,
 				       String descriptorName) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.clearProductPreferences(modeName, descriptorName);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
 
     public String[][] getProductPreferences(String modeName,
 					    String descriptorName) {
+	resolve(descriptorName);
 	try {
 	    lock.forReading();
 	    String[][] t = super.getProductPreferences(modeName, descriptorName);
@@ -315,6 +540,7 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 
     public Vector getOrderedProductList(String modeName,
 					String descriptorName) {
+	resolve(descriptorName);
 	try {
 	    lock.forReading();
 	    Vector t = super.getOrderedProductList(modeName, descriptorName);
@@ -332,14 +558,14 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 				String productName,
 				Object factory) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.registerFactory(modeName,
 				  descriptorName,
 				  productName,
 				  factory);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -349,14 +575,14 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 				  String productName,
 				  Object factory) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.unregisterFactory(modeName,
 				    descriptorName,
 				    productName,
 				    factory);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -367,15 +593,15 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 				     Object preferredOp,
 				     Object otherOp) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.setFactoryPreference(modeName,
 				       descriptorName,
 				       productName,
 				       preferredOp,
 				       otherOp);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -386,15 +612,15 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 				       Object preferredOp,
 				       Object otherOp) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.unsetFactoryPreference(modeName,
 					 descriptorName,
 					 productName,
 					 preferredOp,
 					 otherOp);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -403,13 +629,13 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 					String descriptorName,
 					String productName) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.clearFactoryPreferences(modeName,
 					  descriptorName,
 					  productName);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -417,6 +643,7 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     public Object[][] getFactoryPreferences(String modeName,
 					    String descriptorName,
 					    String productName) {
+	resolve(descriptorName);
 	try {
 	    lock.forReading();
 	    Object[][] t = super.getFactoryPreferences(
@@ -432,6 +659,7 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     public List getOrderedFactoryList(String modeName,
 				      String descriptorName,
 				      String productName) {
+	resolve(descriptorName);
 	try {
 	    lock.forReading();
 	    List t = super.getOrderedFactoryList(modeName,
@@ -447,6 +675,16 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 
     public Iterator getFactoryIterator(String modeName,
 				       String descriptorName) {
+	Lookup lookup = getLookup(modeName, descriptorName);
+	if (lookup == null) {
+	    lookup = createLookup(modeName, descriptorName);
+	}
+	if (lookup != null) {
+	    return lookup.factories == null ?
+		null : lookup.factories.iterator();
+	}
+
+	resolve(descriptorName);
 	try {
 	    lock.forReading();
 	    Iterator t = super.getFactoryIterator(modeName, descriptorName);
@@ -459,6 +697,16 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     }
 
     public Object getFactory(String modeName, String descriptorName) {
+	Lookup lookup = getLookup(modeName, descriptorName);
+	if (lookup == null) {
+	    lookup = createLookup(modeName, descriptorName);
+	}
+	if (lookup != null) {
+	    return lookup.factories == null || lookup.factories.isEmpty() ?
+		null : lookup.factories.get(0);
+	}
+
+	resolve(descriptorName);
 	try {
 	    lock.forReading();
 	    Object t = super.getFactory(modeName, descriptorName);
@@ -474,6 +722,17 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     public Object invokeFactory(String modeName,
 				String descriptorName,
 				Object[] args) {
+	Lookup lookup = getLookup(modeName, descriptorName);
+	if (lookup == null) {
+	    lookup = createLookup(modeName, descriptorName);
+	}
+	if (lookup != null) {
+	    return lookup.factories == null ? null :
+		invokeFactories(lookup.factoryCache, descriptorName,
+				lookup.factories.iterator(), args);
+	}
+
+	resolve(descriptorName);
 	try {
 	    lock.forReading();
 	    Object t = super.invokeFactory(modeName, descriptorName, args);
@@ -490,13 +749,13 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 				     String descriptorName,
 				     PropertyGenerator generator) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.addPropertyGenerator(modeName,
 				       descriptorName,
 				       generator);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -505,13 +764,13 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 					String descriptorName,
 					PropertyGenerator generator) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.removePropertyGenerator(modeName,
 					  descriptorName,
 					  generator);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -521,14 +780,14 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 				       String propertyName,
 				       int sourceIndex) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.copyPropertyFromSource(modeName,
 					 descriptorName,
 					 propertyName,
 					 sourceIndex);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -537,13 +796,13 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 				 String descriptorName,
 				 String propertyName) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.suppressProperty(modeName,
 				   descriptorName,
 				   propertyName);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -551,28 +810,29 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     public void suppressAllProperties(String modeName,
 				      String descriptorName) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.suppressAllProperties(modeName, descriptorName);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
 
     public void clearPropertyState(String modeName) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.clearPropertyState(modeName);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
 
     public String[] getGeneratedPropertyNames(String modeName,
 					      String descriptorName) {
+	resolve(descriptorName);
 	try {
 	    lock.forReading();
 	    String[] t = super.getGeneratedPropertyNames(modeName, descriptorName);
@@ -588,6 +848,7 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 					    String descriptorName,
 					    Object op,
 					    Vector sources) {
+	resolve(descriptorName);
 	try {
 	    lock.forReading();
 	    PropertySource t = super.getPropertySource(
@@ -601,6 +862,8 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     }
 
     public PropertySource getPropertySource(OperationNode op) {
+	if (op != null)
+	    resolve(op.getOperationName());
 	try {
 	    lock.forReading();
 	    PropertySource t = super.getPropertySource(op);
@@ -614,9 +877,21 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 
     public void registerServices(ClassLoader cl) throws IOException {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.registerServices(cl);
+	    releaseWriteLock();
+	} catch (RuntimeException e) {
+	    releaseWriteLock();
+	    throw e;
+	}
+    }
+
+    public int getDeferredRegistrationCount() {
+	try {
+	    lock.forReading();
+	    int t = super.getDeferredRegistrationCount();
 	    lock.release();
+	    return t;
 	} catch (RuntimeException e) {
 	    lock.release();
 	    throw e;
@@ -627,11 +902,11 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
 
     public void unregisterOperationDescriptor(String operationName) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.unregisterOperationDescriptor(operationName);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
@@ -639,11 +914,11 @@ final class ThreadSafeOperationRegistry extends OperationRegistry {
     public void clearOperationPreferences(String operationName,
 					  String productName) {
 	try {
-	    lock.forWriting();
+	    acquireWriteLock();
 	    super.clearOperationPreferences(operationName, productName);
-	    lock.release();
+	    releaseWriteLock();
 	} catch (RuntimeException e) {
-	    lock.release();
+	    releaseWriteLock();
 	    throw e;
 	}
     }
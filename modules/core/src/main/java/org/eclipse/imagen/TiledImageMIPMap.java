@@ -0,0 +1,663 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen;
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.awt.image.renderable.RenderableImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import org.eclipse.imagen.media.codec.ImageCodec;
+import org.eclipse.imagen.media.codec.ImageDecoder;
+import org.eclipse.imagen.media.codec.ImageEncoder;
+import org.eclipse.imagen.media.codec.SeekableStream;
+import org.eclipse.imagen.media.codec.TIFFDirectory;
+import org.eclipse.imagen.media.codec.TIFFEncodeParam;
+import org.eclipse.imagen.media.codec.TIFFField;
+import org.eclipse.imagen.util.ImagingException;
+
+/**
+ * An <code>ImageMIPMap</code> whose lower resolution levels are
+ * computed once and kept as tiled images, instead of being derived
+ * by a <code>downSampler</code> chain each time they are requested.
+ *
+ * <p> The image at level <code>i+1</code> is obtained by averaging
+ * each 2x2 block of pixels of the image at level <code>i</code>; at
+ * the right and bottom edges of an image of odd width or height the
+ * available pixels are averaged.  Integral samples are rounded to the
+ * nearest integer.  The origin of level <code>i</code> is that of the
+ * highest resolution image shifted right by <code>i</code> bits.
+ *
+ * <p> All levels are computed in a single pass over the tiles of the
+ * highest resolution image.  Each tile of a level is computed from the
+ * four tiles of the next higher resolution level which it covers, so
+ * that every source tile is read once and feeds all the lower levels.
+ * The tiles are computed in parallel by as many threads as the
+ * parallelism of the default <code>TileScheduler</code>.
+ *
+ * <p> The levels may be saved by <code>writeOverviews()</code> as a
+ * tiled TIFF file in which the lower resolution levels are stored as
+ * reduced-resolution subfiles, and reopened from such a file without
+ * being computed again.
+ *
+ * @see ImageMIPMap
+ */
+public class TiledImageMIPMap extends ImageMIPMap {
+
+    /** The TIFF tag of the type of a subfile. */
+    private static final int TIFF_NEW_SUBFILE_TYPE = 254;
+
+    /** The subfile type flag of a reduced-resolution image. */
+    private static final long REDUCED_RESOLUTION = 1;
+
+    /** The default tile size used if the source image is not tiled. */
+    private static final int DEFAULT_TILE_SIZE = 512;
+
+    /**
+     * The images at all the resolution levels, the first one being
+     * the highest resolution image.
+     */
+    protected RenderedImage[] levels;
+
+    /*
+     * The state used while the levels are being computed.
+     */
+    private PlanarImage source;
+    private int tileWidth;
+    private int tileHeight;
+    private int[] levelMinX;
+    private int[] levelMinY;
+    private int[] levelWidth;
+    private int[] levelHeight;
+
+    /**
+     * Constructs a <code>TiledImageMIPMap</code> by computing the
+     * lower resolution levels of an image.  The levels are tiled like
+     * the image if it is tiled, and using the default tile size of
+     * <code>JAI</code> otherwise.
+     *
+     * @param image The image with the highest resolution.
+     * @param numLevels The number of levels, including the highest
+     *        resolution one.  Fewer levels are computed if a level of
+     *        a single pixel is reached.
+     *
+     * @throws IllegalArgumentException if <code>image</code> is
+     *         <code>null</code>.
+     * @throws IllegalArgumentException if <code>numLevels</code> is
+     *         less than 1.
+     */
+    public TiledImageMIPMap(RenderedImage image, int numLevels) {
+        this(image, numLevels, null);
+    }
+
+    /**
+     * Constructs a <code>TiledImageMIPMap</code> by computing the
+     * lower resolution levels of an image using the given tile size.
+     * An odd tile width or height is increased by one so that the
+     * tiles of each level cover exactly two tiles of the next higher
+     * resolution level in each direction.
+     *
+     * @param image The image with the highest resolution.
+     * @param numLevels The number of levels, including the highest
+     *        resolution one.  Fewer levels are computed if a level of
+     *        a single pixel is reached.
+     * @param tileSize The tile size of the lower resolution levels,
+     *        or <code>null</code> to use the tile size of the image
+     *        if it is tiled or the default tile size of
+     *        <code>JAI</code> otherwise.
+     *
+     * @throws IllegalArgumentException if <code>image</code> is
+     *         <code>null</code>.
+     * @throws IllegalArgumentException if <code>numLevels</code> is
+     *         less than 1.
+     */
+    public TiledImageMIPMap(RenderedImage image,
+                            int numLevels,
+                            Dimension tileSize) {
+        super();
+
+        if (image == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+        if (numLevels < 1) {
+            throw new IllegalArgumentException(
+                      JaiI18N.getString("TiledImageMIPMap0"));
+        }
+
+        source = PlanarImage.wrapRenderedImage(image);
+
+        if (tileSize == null) {
+            if (image.getTileWidth() < image.getWidth() ||
+                image.getTileHeight() < image.getHeight()) {
+                tileSize = new Dimension(image.getTileWidth(),
+                                         image.getTileHeight());
+            } else {
+                tileSize = JAI.getDefaultTileSize();
+                if (tileSize == null) {
+                    tileSize = new Dimension(DEFAULT_TILE_SIZE,
+                                             DEFAULT_TILE_SIZE);
+                }
+            }
+        }
+        tileWidth = Math.max(2, tileSize.width + (tileSize.width & 1));
+        tileHeight = Math.max(2, tileSize.height + (tileSize.height & 1));
+
+        computeLevels(image, numLevels);
+
+        // Release the state only needed while computing.
+        source = null;
+        levelMinX = levelMinY = levelWidth = levelHeight = null;
+
+        highestImage = image;
+        currentImage = highestImage;
+    }
+
+    /**
+     * Constructs a <code>TiledImageMIPMap</code> from images that have
+     * already been computed, such as those of a previous instance.
+     * The array is copied but not the images.
+     *
+     * @param levels The images at all the resolution levels, starting
+     *        with the highest resolution one.
+     *
+     * @throws IllegalArgumentException if <code>levels</code> is
+     *         <code>null</code>, empty, or contains a <code>null</code>
+     *         element.
+     */
+    public TiledImageMIPMap(RenderedImage[] levels) {
+        super();
+
+        if (levels == null || levels.length == 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] == null) {
+                throw new IllegalArgumentException(
+                          JaiI18N.getString("Generic0"));
+            }
+        }
+
+        this.levels = (RenderedImage[])levels.clone();
+        highestImage = this.levels[0];
+        currentImage = highestImage;
+    }
+
+    /**
+     * Reopens a <code>TiledImageMIPMap</code> written by
+     * <code>writeOverviews()</code>.  The first image of the TIFF
+     * stream is the highest resolution level, and each following
+     * reduced-resolution subfile is the next lower level.  The images
+     * are decoded on demand so the stream must remain open as long as
+     * they are in use.  All levels have their origin at (0,&nbsp;0).
+     *
+     * @param stream The stream containing the TIFF file.
+     *
+     * @throws IllegalArgumentException if <code>stream</code> is
+     *         <code>null</code>.
+     * @throws IOException if the stream cannot be decoded.
+     */
+    public TiledImageMIPMap(SeekableStream stream) throws IOException {
+        super();
+
+        if (stream == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        ImageDecoder decoder =
+            ImageCodec.createImageDecoder("tiff", stream, null);
+        int numPages = decoder.getNumPages();
+
+        Vector images = new Vector();
+        images.add(decoder.decodeAsRenderedImage(0));
+        for (int i = 1; i < numPages; i++) {
+            RenderedImage image = decoder.decodeAsRenderedImage(i);
+
+            // Stop at the first image which is not an overview.
+            Object dir = image.getProperty("tiff_directory");
+            TIFFField field = dir instanceof TIFFDirectory ?
+                ((TIFFDirectory)dir).getField(TIFF_NEW_SUBFILE_TYPE) : null;
+            if (field == null ||
+                (field.getAsLong(0) & REDUCED_RESOLUTION) == 0) {
+                break;
+            }
+            images.add(image);
+        }
+
+        levels = new RenderedImage[images.size()];
+        images.copyInto(levels);
+        highestImage = levels[0];
+        currentImage = highestImage;
+    }
+
+    /** Returns the number of resolution levels. */
+    public int getNumLevels() {
+        return levels.length;
+    }
+
+    /**
+     * Returns the image at the specified resolution level, which
+     * becomes the current level.  No image is computed.
+     *
+     * @param level The specified level.
+     *
+     * @return The image, or <code>null</code> if <code>level</code> is
+     *         negative or not less than <code>getNumLevels()</code>.
+     */
+    public RenderedImage getImage(int level) {
+        if (level < 0 || level >= levels.length) {
+            return null;
+        }
+
+        currentLevel = level;
+        currentImage = levels[level];
+        return currentImage;
+    }
+
+    /**
+     * Returns the image at the next lower resolution level, which
+     * becomes the current level.
+     *
+     * @return The image, or <code>null</code> if the current level is
+     *         the lowest resolution one, in which case the current
+     *         level is not changed.
+     */
+    public RenderedImage getDownImage() {
+        if (currentLevel + 1 >= levels.length) {
+            return null;
+        }
+
+        currentLevel++;
+        currentImage = levels[currentLevel];
+        return currentImage;
+    }
+
+    /**
+     * Returns the current image and up to <code>numImages - 1</code>
+     * of the following lower resolution images as a
+     * <code>MultiResolutionRenderableImage</code>.  The current level
+     * and current image are not changed.
+     *
+     * @param numImages The number of images.
+     * @param minX The minimum X coordinate of the Renderable, as a float.
+     * @param minY The minimum Y coordinate of the Renderable, as a float.
+     * @param height The height of the Renderable, as a float.
+     *
+     * @throws IllegalArgumentException if <code>height</code> is less than 0.
+     *
+     * @see MultiResolutionRenderableImage
+     */
+    public RenderableImage getAsRenderable(int numImages,
+                                           float minX,
+                                           float minY,
+                                           float height) {
+        Vector v = new Vector();
+        v.add(currentImage);
+
+        for (int i = currentLevel + 1;
+             i < levels.length && v.size() < numImages; i++) {
+            RenderedImage image = levels[i];
+
+            if ( image.getWidth() <= 1 || image.getHeight() <= 1 ) {
+                break;
+            }
+
+            v.add(image);
+        }
+
+        return new MultiResolutionRenderableImage(v, minX, minY, height);
+    }
+
+    /**
+     * Writes all the levels as a tiled TIFF file.  The highest
+     * resolution level is written as the first image and each lower
+     * resolution level as a following reduced-resolution subfile, so
+     * that the file may be reopened using the
+     * <code>TiledImageMIPMap(SeekableStream)</code> constructor.
+     *
+     * <p> The compression, byte order, parallelism and tile size
+     * settings of <code>param</code> apply to all the levels; the
+     * tiles of each level are used if no tile size is set.  Its extra
+     * fields are written in the first image only and its extra images
+     * are ignored.
+     *
+     * @param stream The stream to write to.
+     * @param param The encoding parameters, or <code>null</code> to use
+     *        the default ones.
+     *
+     * @throws IllegalArgumentException if <code>stream</code> is
+     *         <code>null</code>.
+     * @throws IOException if an error occurs while writing.
+     */
+    public void writeOverviews(OutputStream stream, TIFFEncodeParam param)
+        throws IOException {
+        if (stream == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+        if (param == null) {
+            param = new TIFFEncodeParam();
+        }
+
+        TIFFField[] overviewFields = new TIFFField[] {
+            new TIFFField(TIFF_NEW_SUBFILE_TYPE, TIFFField.TIFF_LONG, 1,
+                          new long[] {REDUCED_RESOLUTION})
+        };
+
+        Vector overviews = new Vector();
+        for (int i = 1; i < levels.length; i++) {
+            TIFFEncodeParam overviewParam = copyEncodeParam(param);
+            overviewParam.setExtraFields(overviewFields);
+            overviews.add(new Object[] {levels[i], overviewParam});
+        }
+
+        TIFFEncodeParam highestParam = copyEncodeParam(param);
+        highestParam.setExtraFields(param.getExtraFields());
+        highestParam.setExtraImages(overviews.iterator());
+
+        ImageEncoder encoder =
+            ImageCodec.createImageEncoder("TIFF", stream, highestParam);
+        encoder.encode(levels[0]);
+    }
+
+    /**
+     * Returns a tiled copy of the settings of a
+     * <code>TIFFEncodeParam</code> without its extra fields and images.
+     */
+    private static TIFFEncodeParam copyEncodeParam(TIFFEncodeParam param) {
+        TIFFEncodeParam copy = new TIFFEncodeParam();
+        copy.setCompression(param.getCompression());
+        copy.setReverseFillOrder(param.getReverseFillOrder());
+        copy.setT4Encode2D(param.getT4Encode2D());
+        copy.setT4PadEOLs(param.getT4PadEOLs());
+        copy.setDeflateLevel(param.getDeflateLevel());
+        copy.setJPEGCompressRGBToYCbCr(param.getJPEGCompressRGBToYCbCr());
+        if (param.getJPEGEncodeParam() != null) {
+            copy.setJPEGEncodeParam(param.getJPEGEncodeParam());
+        }
+        copy.setLittleEndian(param.getLittleEndian());
+        copy.setParallelism(param.getParallelism());
+        copy.setMaxSegmentsInFlight(param.getMaxSegmentsInFlight());
+        copy.setWriteTiled(true);
+        copy.setTileSize(param.getTileWidth(), param.getTileHeight());
+        return copy;
+    }
+
+    /**
+     * Computes the lower resolution levels.  The tiles of the level
+     * chosen so that there are enough of them to keep all the threads
+     * busy are computed in parallel, each one recursively from the
+     * tiles of the higher resolution levels which it covers.  The few
+     * tiles of the lower resolution levels are then computed in turn
+     * from those of the previous level.
+     */
+    private void computeLevels(RenderedImage image, int numLevels) {
+        // Compute the bounds of the levels.
+        Vector bounds = new Vector();
+        Rectangle rect = new Rectangle(image.getMinX(), image.getMinY(),
+                                       image.getWidth(), image.getHeight());
+        bounds.add(rect);
+        while (bounds.size() < numLevels &&
+               (rect.width > 1 || rect.height > 1)) {
+            rect = new Rectangle(rect.x >> 1, rect.y >> 1,
+                                 (rect.width + 1)/2, (rect.height + 1)/2);
+            bounds.add(rect);
+        }
+
+        numLevels = bounds.size();
+        levels = new RenderedImage[numLevels];
+        levels[0] = image;
+
+        levelMinX = new int[numLevels];
+        levelMinY = new int[numLevels];
+        levelWidth = new int[numLevels];
+        levelHeight = new int[numLevels];
+
+        SampleModel sm =
+            image.getSampleModel().createCompatibleSampleModel(tileWidth,
+                                                               tileHeight);
+        ColorModel cm = image.getColorModel();
+
+        for (int i = 0; i < numLevels; i++) {
+            rect = (Rectangle)bounds.elementAt(i);
+            levelMinX[i] = rect.x;
+            levelMinY[i] = rect.y;
+            levelWidth[i] = rect.width;
+            levelHeight[i] = rect.height;
+
+            if (i > 0) {
+                levels[i] = new TiledImage(rect.x, rect.y,
+                                           rect.width, rect.height,
+                                           rect.x, rect.y, sm, cm);
+            }
+        }
+
+        if (numLevels == 1) {
+            return;
+        }
+
+        TileScheduler scheduler =
+            JAI.getDefaultInstance().getTileScheduler();
+        int numThreads = Math.max(1, scheduler.getParallelism());
+
+        // Choose the level whose tiles are computed in parallel.
+        int parallelLevel = 1;
+        while (parallelLevel + 1 < numLevels &&
+               getNumTiles(parallelLevel + 1) >= 4*numThreads) {
+            parallelLevel++;
+        }
+
+        computeTiles(parallelLevel, numThreads);
+
+        for (int level = parallelLevel + 1; level < numLevels; level++) {
+            int numXTiles = getNumXTiles(level);
+            int numYTiles = getNumYTiles(level);
+            for (int tileY = 0; tileY < numYTiles; tileY++) {
+                for (int tileX = 0; tileX < numXTiles; tileX++) {
+                    computeTile(level, tileX, tileY, level - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes all the tiles of a level, and those of the higher
+     * resolution levels, using a pool of threads.
+     */
+    private void computeTiles(final int level, int numThreads) {
+        ExecutorService executor =
+            Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "TiledImageMIPMap");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        LinkedList pending = new LinkedList();
+        try {
+            int numXTiles = getNumXTiles(level);
+            int numYTiles = getNumYTiles(level);
+            for (int tileY = 0; tileY < numYTiles; tileY++) {
+                for (int tileX = 0; tileX < numXTiles; tileX++) {
+                    final int tx = tileX;
+                    final int ty = tileY;
+                    pending.add(executor.submit(new Callable() {
+                            public Object call() {
+                                return computeTile(level, tx, ty, 0);
+                            }
+                        }));
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                Future tile = (Future)pending.removeFirst();
+                try {
+                    tile.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ImagingException(e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException)cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error)cause;
+                    }
+                    throw new ImagingException(cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Computes a tile of a level from the tiles of the next higher
+     * resolution level which it covers, these being computed in turn
+     * unless that level is <code>baseLevel</code>.  The tile is stored
+     * in the level image and returned.  The tile coordinates are
+     * relative to the origin of the level.
+     */
+    private Raster computeTile(int level, int tileX, int tileY,
+                               int baseLevel) {
+        Rectangle rect = getTileRect(level, tileX, tileY);
+
+        if (level == baseLevel) {
+            if (level == 0) {
+                return source.getData(rect);
+            }
+
+            // The stored tile may extend beyond the bounds of the level.
+            Raster tile =
+                levels[level].getTile(tileX + levels[level].getMinTileX(),
+                                      tileY + levels[level].getMinTileY());
+            return tile.createChild(rect.x, rect.y, rect.width, rect.height,
+                                    rect.x, rect.y, null);
+        }
+
+        WritableRaster tile =
+            RasterFactory.createWritableRaster(
+                levels[level].getSampleModel().createCompatibleSampleModel(
+                    rect.width, rect.height),
+                new Point(rect.x, rect.y));
+
+        for (int j = 0; j < 2; j++) {
+            for (int i = 0; i < 2; i++) {
+                int childX = 2*tileX + i;
+                int childY = 2*tileY + j;
+                if (childX*tileWidth < levelWidth[level - 1] &&
+                    childY*tileHeight < levelHeight[level - 1]) {
+                    Raster child =
+                        computeTile(level - 1, childX, childY, baseLevel);
+                    downSample(child, level, tile);
+                }
+            }
+        }
+
+        // TiledImage does not support concurrent writers.
+        TiledImage image = (TiledImage)levels[level];
+        synchronized (image) {
+            image.setData(tile);
+        }
+
+        return tile;
+    }
+
+    /**
+     * Averages the 2x2 blocks of pixels of a tile of the previous level
+     * into the corresponding area of a tile of a level.
+     */
+    private void downSample(Raster child, int level, WritableRaster tile) {
+        int width = child.getWidth();
+        int height = child.getHeight();
+        int numBands = child.getNumBands();
+
+        double[] src = child.getPixels(child.getMinX(), child.getMinY(),
+                                       width, height, (double[])null);
+
+        int dstWidth = (width + 1)/2;
+        int dstHeight = (height + 1)/2;
+        double[] dst = new double[dstWidth*dstHeight*numBands];
+
+        int dataType = child.getSampleModel().getDataType();
+        boolean isIntegral = dataType != DataBuffer.TYPE_FLOAT &&
+                             dataType != DataBuffer.TYPE_DOUBLE;
+
+        int srcLineStride = width*numBands;
+        int dstOffset = 0;
+        for (int y = 0; y < dstHeight; y++) {
+            int rows = Math.min(2, height - 2*y);
+            for (int x = 0; x < dstWidth; x++) {
+                int cols = Math.min(2, width - 2*x);
+                int srcOffset = 2*y*srcLineStride + 2*x*numBands;
+                for (int b = 0; b < numBands; b++) {
+                    double sum = 0.0;
+                    for (int r = 0; r < rows; r++) {
+                        for (int c = 0; c < cols; c++) {
+                            sum += src[srcOffset + r*srcLineStride +
+                                       c*numBands + b];
+                        }
+                    }
+                    double mean = sum/(rows*cols);
+                    dst[dstOffset++] = isIntegral ?
+                        Math.floor(mean + 0.5) : mean;
+                }
+            }
+        }
+
+        int dstX = levelMinX[level] +
+            ((child.getMinX() - levelMinX[level - 1]) >> 1);
+        int dstY = levelMinY[level] +
+            ((child.getMinY() - levelMinY[level - 1]) >> 1);
+        tile.setPixels(dstX, dstY, dstWidth, dstHeight, dst);
+    }
+
+    /** Returns the bounds of a tile of a level. */
+    private Rectangle getTileRect(int level, int tileX, int tileY) {
+        int x = tileX*tileWidth;
+        int y = tileY*tileHeight;
+        return new Rectangle(levelMinX[level] + x, levelMinY[level] + y,
+                             Math.min(tileWidth, levelWidth[level] - x),
+                             Math.min(tileHeight, levelHeight[level] - y));
+    }
+
+    private int getNumXTiles(int level) {
+        return (levelWidth[level] + tileWidth - 1)/tileWidth;
+    }
+
+    private int getNumYTiles(int level) {
+        return (levelHeight[level] + tileHeight - 1)/tileHeight;
+    }
+
+    private int getNumTiles(int level) {
+        return getNumXTiles(level)*getNumYTiles(level);
+    }
+}
@@ -21,6 +21,7 @@ import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
 import java.util.Map;
 import org.eclipse.imagen.util.CaselessStringKey;
@@ -71,6 +72,13 @@ public abstract class WarpOpImage extends GeometricOpImage {
      */
     protected Warp warp;
 
+    /**
+     * The number of destination pixels whose backward mapped positions
+     * are computed, and whose source samples are fetched, at a time by
+     * <code>warpStrip</code> and <code>getSourceAccessor</code>.
+     */
+    private static final int STRIP_SIZE = 16384;
+
     /**
      * If no bounds are specified, attempt to derive the image bounds by
      * forward mapping the source bounds.
@@ -515,6 +523,146 @@ public abstract class WarpOpImage extends GeometricOpImage {
         return wrect == null ? getSource(0).getBounds() : wrect;
     }
 
+    /**
+     * Returns the number of destination rows of the given width which
+     * subclasses should warp at a time using <code>warpStrip</code>.
+     *
+     * @param width The width of the destination rows.
+     */
+    protected int getStripHeight(int width) {
+        return Math.max(1, STRIP_SIZE/Math.max(width, 1));
+    }
+
+    /**
+     * Computes the backward mapped positions of a strip of destination
+     * rows.  The positions are stored as by <code>Warp.warpRect</code>,
+     * row after row, but each row is warped separately so that the
+     * positions are the same as when warping one row at a time.
+     *
+     * @param x The X coordinate of the first pixel of each row.
+     * @param y The Y coordinate of the first row.
+     * @param width The number of pixels of each row.
+     * @param height The number of rows.
+     * @param warpData An array of at least
+     *        <code>2*width*height</code> elements.
+     */
+    protected void warpStrip(int x, int y, int width, int height,
+                             float[] warpData) {
+        if (height == 1) {
+            warp.warpRect(x, y, width, 1, warpData);
+            return;
+        }
+
+        float[] rowData = new float[2 * width];
+        for (int h = 0; h < height; h++) {
+            warp.warpRect(x, y + h, width, 1, rowData);
+            System.arraycopy(rowData, 0, warpData, 2 * width * h, 2 * width);
+        }
+    }
+
+    /**
+     * Returns a <code>RasterAccessor</code> over the source samples
+     * needed to interpolate a set of backward mapped positions, so that
+     * they may be read straight from its data arrays instead of one at
+     * a time through an iterator.  The source region is fetched at once
+     * using the <code>BorderExtender</code> of this image, if any.
+     *
+     * <p> The integral position of a sample is obtained by rounding its
+     * coordinates if <code>round</code> is <code>true</code>, and by
+     * truncating them towards negative infinity otherwise.  Positions
+     * whose integral coordinates do not lie within
+     * [<code>minX</code>,&nbsp;<code>maxX</code>) and
+     * [<code>minY</code>,&nbsp;<code>maxY</code>) are ignored as they
+     * are not interpolated.  The region extends around the remaining
+     * integral positions by the padding of the
+     * <code>Interpolation</code> of this image.
+     *
+     * <p> The samples are not expanded through an
+     * <code>IndexColorModel</code>.  The returned accessor should be
+     * passed to <code>recycleRasterAccessor</code> once it is no
+     * longer used.
+     *
+     * @param source The source image.
+     * @param warpData The positions as stored by <code>warpStrip</code>.
+     * @param numPositions The number of positions.
+     * @param round Whether the positions are rounded.
+     * @param minX The minimum integral X coordinate, inclusive.
+     * @param maxX The maximum integral X coordinate, exclusive.
+     * @param minY The minimum integral Y coordinate, inclusive.
+     * @param maxY The maximum integral Y coordinate, exclusive.
+     *
+     * @return The accessor, or <code>null</code> if no position needs
+     *         to be interpolated.
+     */
+    protected RasterAccessor getSourceAccessor(PlanarImage source,
+                                               float[] warpData,
+                                               int numPositions,
+                                               boolean round,
+                                               int minX, int maxX,
+                                               int minY, int maxY) {
+        int x0 = Integer.MAX_VALUE;
+        int y0 = Integer.MAX_VALUE;
+        int x1 = Integer.MIN_VALUE;
+        int y1 = Integer.MIN_VALUE;
+
+        for (int i = 0, count = 0; i < numPositions; i++) {
+            float sx = warpData[count++];
+            float sy = warpData[count++];
+
+            int xint = round ? round(sx) : floor(sx);
+            int yint = round ? round(sy) : floor(sy);
+
+            if (xint >= minX && xint < maxX && yint >= minY && yint < maxY) {
+                if (xint < x0) x0 = xint;
+                if (xint > x1) x1 = xint;
+                if (yint < y0) y0 = yint;
+                if (yint > y1) y1 = yint;
+            }
+        }
+
+        if (x0 > x1) {
+            return null;
+        }
+
+        int lpad, rpad, tpad, bpad;
+        if (interp != null) {
+            lpad = interp.getLeftPadding();
+            rpad = interp.getRightPadding();
+            tpad = interp.getTopPadding();
+            bpad = interp.getBottomPadding();
+        } else {
+            lpad = rpad = tpad = bpad = 0;
+        }
+
+        Rectangle rect = new Rectangle(x0 - lpad, y0 - tpad,
+                                       x1 - x0 + 1 + lpad + rpad,
+                                       y1 - y0 + 1 + tpad + bpad);
+
+        Raster raster = extender != null ?
+                        source.getExtendedData(rect, extender) :
+                        source.getData(rect);
+
+        // Read the stored samples even if the destination expands them.
+        SampleModel sm = source.getSampleModel();
+        int tagID = getFormatTags()[0].getFormatTagID();
+        RasterFormatTag tag =
+            new RasterFormatTag(sm, (tagID & ~RasterAccessor.EXPANSION_MASK) |
+                                    RasterAccessor.UNEXPANDED);
+
+        return createRasterAccessor(raster, rect, tag,
+                                    source.getColorModel());
+    }
+
+    /** Returns the largest integer not greater than <code>f</code>. */
+    private static final int floor(float f) {
+        return f >= 0 ? (int)f : (int)f - 1;
+    }
+
+    /** Returns the integer nearest to <code>f</code>. */
+    private static final int round(float f) {
+        return f >= 0 ? (int)(f + 0.5F) : (int)(f - 0.5F);
+    }
+
     /**
      * Computes a tile.  A new <code>WritableRaster</code> is created to
      * represent the requested tile.  Its width and height equals to this
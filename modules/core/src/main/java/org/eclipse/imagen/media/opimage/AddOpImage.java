@@ -204,14 +204,14 @@ final class AddOpImage extends PointOpImage {
         // Retrieve format tags.
         RasterFormatTag[] formatTags = getFormatTags();
 
-        RasterAccessor s1 = new RasterAccessor(sources[0], destRect,  
-                                               formatTags[0], 
-                                               getSourceImage(0).getColorModel());
-        RasterAccessor s2 = new RasterAccessor(sources[1], destRect,  
-                                               formatTags[1], 
-                                               getSourceImage(1).getColorModel());
-        RasterAccessor d = new RasterAccessor(dest, destRect,  
-                                              formatTags[2], getColorModel());
+        RasterAccessor s1 = createRasterAccessor(sources[0], destRect,
+                                                 formatTags[0],
+                                                 getSourceImage(0).getColorModel());
+        RasterAccessor s2 = createRasterAccessor(sources[1], destRect,
+                                                 formatTags[1],
+                                                 getSourceImage(1).getColorModel());
+        RasterAccessor d = createRasterAccessor(dest, destRect,
+                                                formatTags[2], getColorModel());
 
         switch (d.getDataType()) {
         case DataBuffer.TYPE_BYTE:
@@ -238,6 +238,10 @@ final class AddOpImage extends PointOpImage {
             d.clampDataArrays();
         }
         d.copyDataToRaster();
+
+        recycleRasterAccessor(s1);
+        recycleRasterAccessor(s2);
+        recycleRasterAccessor(d);
     }
 
     private void computeRectByte(RasterAccessor src1,
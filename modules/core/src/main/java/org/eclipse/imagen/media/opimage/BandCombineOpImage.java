@@ -103,11 +103,11 @@ final class BandCombineOpImage extends PointOpImage {
         // Retrieve format tags.
         RasterFormatTag[] formatTags = getFormatTags();
 
-        RasterAccessor s = new RasterAccessor(sources[0], destRect,  
-                                              formatTags[0], 
-                                              getSourceImage(0).getColorModel());
-        RasterAccessor d = new RasterAccessor(dest, destRect,  
-                                              formatTags[1], getColorModel());
+        RasterAccessor s = createRasterAccessor(sources[0], destRect,
+                                                formatTags[0],
+                                                getSourceImage(0).getColorModel());
+        RasterAccessor d = createRasterAccessor(dest, destRect,
+                                                formatTags[1], getColorModel());
 
         switch (d.getDataType()) {
         case DataBuffer.TYPE_BYTE:
@@ -134,6 +134,9 @@ final class BandCombineOpImage extends PointOpImage {
             d.clampDataArrays();
             d.copyDataToRaster();
         }
+
+        recycleRasterAccessor(s);
+        recycleRasterAccessor(d);
     }
 
     private void computeRectByte(RasterAccessor src, RasterAccessor dst) {
@@ -53,9 +53,11 @@ public class BandSelectCRIF extends CRIFImpl {
         ImageLayout layout = RIFUtil.getImageLayoutHint(renderHints);
         
         
-        return new BandSelectOpImage(args.getRenderedSource(0),
-                                     renderHints,
-                                     layout,
-                                     (int[])args.getObjectParameter(0));
+        return FusedPointOpImage.fuse(
+            new BandSelectOpImage(args.getRenderedSource(0),
+                                  renderHints,
+                                  layout,
+                                  (int[])args.getObjectParameter(0)),
+            renderHints);
     }
 }
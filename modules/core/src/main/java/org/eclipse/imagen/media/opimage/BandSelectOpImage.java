@@ -118,6 +118,27 @@ final class BandSelectOpImage extends PointOpImage {
         this.bandIndices = (int[])bandIndices.clone();
     }
 
+    /**
+     * Returns the per-pixel function of this operation for
+     * <code>FusedPointOpImage</code>, or <code>null</code> if the
+     * selected bands are repacked.
+     */
+    FusedPointOpImage.Stage getFusedStage() {
+        if (areDataCopied) {
+            return null;
+        }
+
+        return new FusedPointOpImage.Stage(bandIndices.length,
+                                           sampleModel.getDataType()) {
+            void apply(double[][] src, double[][] dst, int length) {
+                for (int b = 0; b < numBands; b++) {
+                    System.arraycopy(src[bandIndices[b]], 0,
+                                     dst[b], 0, length);
+                }
+            }
+        };
+    }
+
     public boolean computesUniqueTiles() {
         return areDataCopied;
     }
@@ -53,10 +53,12 @@ public class ClampCRIF extends CRIFImpl {
         ImageLayout layout = RIFUtil.getImageLayoutHint(renderHints);
         
         
-        return new ClampOpImage(args.getRenderedSource(0),
-                                renderHints,
-                                layout,
-                                (double[])args.getObjectParameter(0),
-                                (double[])args.getObjectParameter(1));
+        return FusedPointOpImage.fuse(
+            new ClampOpImage(args.getRenderedSource(0),
+                             renderHints,
+                             layout,
+                             (double[])args.getObjectParameter(0),
+                             (double[])args.getObjectParameter(1)),
+            renderHints);
     }
 }
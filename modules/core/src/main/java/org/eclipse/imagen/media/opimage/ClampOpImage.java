@@ -120,6 +120,75 @@ final class ClampOpImage extends PointOpImage {
         permitInPlaceOperation();
     }
 
+    /**
+     * Returns the per-pixel function of this operation for
+     * <code>FusedPointOpImage</code>, or <code>null</code> if the
+     * source data type differs.
+     */
+    FusedPointOpImage.Stage getFusedStage() {
+        final int dataType = sampleModel.getDataType();
+        if (getSourceImage(0).getSampleModel().getDataType() != dataType) {
+            return null;
+        }
+
+        return new FusedPointOpImage.Stage(sampleModel.getNumBands(),
+                                           dataType) {
+            void apply(double[][] src, double[][] dst, int length) {
+                for (int b = 0; b < numBands; b++) {
+                    double[] s = src[b];
+                    double[] d = dst[b];
+                    double lo = low[b];
+                    double hi = high[b];
+
+                    // Integral types compare with the truncated bounds,
+                    // which are stored with a cast as in computeRect.
+                    switch (dataType) {
+                    case DataBuffer.TYPE_BYTE:
+                    case DataBuffer.TYPE_USHORT:
+                    case DataBuffer.TYPE_SHORT:
+                        int ilo = (int)lo;
+                        int ihi = (int)hi;
+                        double dlo, dhi;
+                        if (dataType == DataBuffer.TYPE_BYTE) {
+                            dlo = (byte)ilo & 0xFF;
+                            dhi = (byte)ihi & 0xFF;
+                        } else if (dataType == DataBuffer.TYPE_USHORT) {
+                            dlo = (short)ilo & 0xFFFF;
+                            dhi = (short)ihi & 0xFFFF;
+                        } else {
+                            dlo = (short)ilo;
+                            dhi = (short)ihi;
+                        }
+                        for (int i = 0; i < length; i++) {
+                            double p = s[i];
+                            d[i] = p < ilo ? dlo : (p > ihi ? dhi : p);
+                        }
+                        break;
+                    case DataBuffer.TYPE_INT:
+                        for (int i = 0; i < length; i++) {
+                            double p = s[i];
+                            d[i] = p < lo ? (int)lo : (p > hi ? (int)hi : p);
+                        }
+                        break;
+                    case DataBuffer.TYPE_FLOAT:
+                        for (int i = 0; i < length; i++) {
+                            double p = s[i];
+                            d[i] = p < lo ? (float)lo :
+                                (p > hi ? (float)hi : p);
+                        }
+                        break;
+                    case DataBuffer.TYPE_DOUBLE:
+                        for (int i = 0; i < length; i++) {
+                            double p = s[i];
+                            d[i] = p < lo ? lo : (p > hi ? hi : p);
+                        }
+                        break;
+                    }
+                }
+            }
+        };
+    }
+
     /**
      * Map the pixels inside a specified rectangle whose value is within a 
      * range to a constant on a per-band basis.
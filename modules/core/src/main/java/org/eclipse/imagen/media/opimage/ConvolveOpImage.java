@@ -142,11 +142,12 @@ final class ConvolveOpImage extends AreaOpImage {
  
  
         RasterAccessor srcAccessor =
-            new RasterAccessor(source, srcRect, 
-                               formatTags[0], getSourceImage(0).getColorModel());
+            createRasterAccessor(source, srcRect,
+                                 formatTags[0],
+                                 getSourceImage(0).getColorModel());
         RasterAccessor dstAccessor =
-            new RasterAccessor(dest, destRect, 
-                               formatTags[1], getColorModel());
+            createRasterAccessor(dest, destRect,
+                                 formatTags[1], getColorModel());
  
         switch (dstAccessor.getDataType()) {
         case DataBuffer.TYPE_BYTE:
@@ -178,6 +179,9 @@ final class ConvolveOpImage extends AreaOpImage {
             dstAccessor.clampDataArrays();
             dstAccessor.copyDataToRaster();
         }
+
+        recycleRasterAccessor(srcAccessor);
+        recycleRasterAccessor(dstAccessor);
     }
 
     private void byteLoop(RasterAccessor src, RasterAccessor dst) {
@@ -32,6 +32,13 @@ import java.util.Map;
  */
 public class ConvolveRIF implements RenderedImageFactory {
 
+    /**
+     * The number of elements from which a kernel which is not separable
+     * is convolved in the frequency domain, a 15 x 15 kernel being
+     * about as fast to convolve either way.
+     */
+    private static final int FFT_THRESHOLD = 225;
+
     /** Constructor. */
     public ConvolveRIF() {}
 
@@ -75,6 +82,12 @@ public class ConvolveRIF implements RenderedImageFactory {
                                                layout,
                                                kJAI);
 
+        } else if (kJAI.getWidth() * kJAI.getHeight() >= FFT_THRESHOLD) {
+            return new FFTConvolveOpImage(paramBlock.getRenderedSource(0),
+                                          extender,
+                                          renderHints,
+                                          layout,
+                                          kJAI);
         } else {
             return new ConvolveOpImage(paramBlock.getRenderedSource(0),
                                        extender,
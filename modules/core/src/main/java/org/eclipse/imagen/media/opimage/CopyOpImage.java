@@ -53,6 +53,26 @@ public final class CopyOpImage extends PointOpImage {
         super(source, layout, config, true);
     }
 
+    /**
+     * Returns the per-pixel function of this operation for
+     * <code>FusedPointOpImage</code>: a conversion to the destination
+     * data type.
+     */
+    FusedPointOpImage.Stage getFusedStage() {
+        return new FusedPointOpImage.Stage(sampleModel.getNumBands(),
+                                           sampleModel.getDataType()) {
+            void apply(double[][] src, double[][] dst, int length) {
+                for (int b = 0; b < numBands; b++) {
+                    double[] s = src[b];
+                    double[] d = dst[b];
+                    for (int i = 0; i < length; i++) {
+                        d[i] = FusedPointOpImage.convert(s[i], dataType);
+                    }
+                }
+            }
+        };
+    }
+
     /**
      * Adds the pixel values of a rectangle with a given constant.
      * The sources are cobbled.
@@ -149,6 +149,12 @@ final class DilateOpImage extends AreaOpImage {
     private int kw, kh, kx, ky;
     private float[] kdata;
 
+    /**
+     * Whether all the elements of the kernel are equal, in which case
+     * the result is the extremum of the window plus or minus a constant.
+     */
+    private boolean isFlat;
+
     /**
      * Creates a DilateOpImage given a ParameterBlock containing the image
      * source and pre-rotated dilation kernel.  The image dimensions are 
@@ -185,6 +191,14 @@ final class DilateOpImage extends AreaOpImage {
 	ky = kernel.getYOrigin();
 
         kdata = kernel.getKernelData();
+
+        isFlat = true;
+        for (int i = 1; i < kdata.length; i++) {
+            if (kdata[i] != kdata[0]) {
+                isFlat = false;
+                break;
+            }
+        }
     }
 
     /**
@@ -246,6 +260,11 @@ final class DilateOpImage extends AreaOpImage {
     }
 
     private void byteLoop(RasterAccessor src, RasterAccessor dst) {
+        if (isFlat &&
+            Math.max(kw, kh) >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, kw, kh, true, kdata[0]);
+            return;
+        }
  
         int dwidth    = dst.getWidth();
         int dheight   = dst.getHeight();
@@ -306,6 +325,11 @@ final class DilateOpImage extends AreaOpImage {
     }
 
     private void shortLoop(RasterAccessor src, RasterAccessor dst) {
+        if (isFlat &&
+            Math.max(kw, kh) >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, kw, kh, true, kdata[0]);
+            return;
+        }
  
         int dwidth    = dst.getWidth();
         int dheight   = dst.getHeight();
@@ -367,6 +391,11 @@ final class DilateOpImage extends AreaOpImage {
 
 
     private void ushortLoop(RasterAccessor src, RasterAccessor dst) {
+        if (isFlat &&
+            Math.max(kw, kh) >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, kw, kh, true, kdata[0]);
+            return;
+        }
  
         int dwidth    = dst.getWidth();
         int dheight   = dst.getHeight();
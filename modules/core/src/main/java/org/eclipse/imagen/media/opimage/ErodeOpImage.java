@@ -143,6 +143,12 @@ final class ErodeOpImage extends AreaOpImage {
     private int kw, kh, kx, ky;
     private float[] kdata;
 
+    /**
+     * Whether all the elements of the kernel are equal, in which case
+     * the result is the extremum of the window plus or minus a constant.
+     */
+    private boolean isFlat;
+
     /**
      * Creates a ErodeOpImage given a ParameterBlock containing the image
      * source and pre-rotated erosion kernel.  The image dimensions are 
@@ -179,6 +185,14 @@ final class ErodeOpImage extends AreaOpImage {
 	ky = kernel.getYOrigin();
 
         kdata = kernel.getKernelData();
+
+        isFlat = true;
+        for (int i = 1; i < kdata.length; i++) {
+            if (kdata[i] != kdata[0]) {
+                isFlat = false;
+                break;
+            }
+        }
     }
 
     /**
@@ -239,6 +253,11 @@ final class ErodeOpImage extends AreaOpImage {
         }
     }
     private void byteLoop(RasterAccessor src, RasterAccessor dst) {
+        if (isFlat &&
+            Math.max(kw, kh) >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, kw, kh, false, -kdata[0]);
+            return;
+        }
  
         int dwidth    = dst.getWidth();
         int dheight   = dst.getHeight();
@@ -304,6 +323,11 @@ final class ErodeOpImage extends AreaOpImage {
 
 
     private void shortLoop(RasterAccessor src, RasterAccessor dst) {
+        if (isFlat &&
+            Math.max(kw, kh) >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, kw, kh, false, -kdata[0]);
+            return;
+        }
  
         int dwidth    = dst.getWidth();
         int dheight   = dst.getHeight();
@@ -367,6 +391,11 @@ final class ErodeOpImage extends AreaOpImage {
 
 
     private void ushortLoop(RasterAccessor src, RasterAccessor dst) {
+        if (isFlat &&
+            Math.max(kw, kh) >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, kw, kh, false, -kdata[0]);
+            return;
+        }
  
         int dwidth    = dst.getWidth();
         int dheight   = dst.getHeight();
@@ -22,6 +22,8 @@ import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.ListIterator;
@@ -161,15 +163,76 @@ public class ExtremaOpImage extends StatisticsOpImage {
         return t == 0 ? pos : pos + (period - t);
     }
 
-    protected void accumulateStatistics(String name,
-                                        Raster source,
-                                        Object stats) {
+    /**
+     * The extrema and their locations gathered over the pixels of
+     * a single tile, or over all tiles if the statistics are gathered
+     * sequentially.
+     */
+    private static final class State {
+        int tileMinX;
+        int tileMinY;
+        double[][] extrema;
+        ArrayList[] minLocations;
+        ArrayList[] maxLocations;
+        int[] minCounts;
+        int[] maxCounts;
+    }
+
+    /**
+     * The partial statistics of one thread: the <code>State</code>s
+     * of the tiles it has processed.
+     */
+    private static final class PartialState {
+        ArrayList states = new ArrayList();
+    }
+
+    private void initialize() {
         if(!isInitialized) {
             srcPA = new PixelAccessor(getSourceImage(0));
             srcSampleType = srcPA.sampleType == PixelAccessor.TYPE_BIT ?
                 DataBuffer.TYPE_BYTE : srcPA.sampleType;
             isInitialized = true;
         }
+    }
+
+    /**
+     * Creates the <code>State</code> of a tile, initialized with the
+     * value of the pixel at the given location.
+     */
+    private State createState(Raster source, int x, int y) {
+        int numBands = sampleModel.getNumBands();
+
+        State state = new State();
+        state.tileMinX = source.getMinX();
+        state.tileMinY = source.getMinY();
+        state.extrema = new double[2][numBands];
+        source.getPixel(x, y, state.extrema[0]);
+        for (int i = 0; i < numBands; i++) {
+            state.extrema[1][i] = state.extrema[0][i];
+        }
+
+        if (saveLocations) {
+            state.minLocations = new ArrayList[numBands];
+            state.maxLocations = new ArrayList[numBands];
+            state.minCounts = new int[numBands];
+            state.maxCounts = new int[numBands];
+            for (int i = 0; i < numBands; i++) {
+                state.minLocations[i] = new ArrayList();
+                state.maxLocations[i] = new ArrayList();
+            }
+        }
+
+        return state;
+    }
+
+    protected void accumulateStatistics(String name,
+                                        Raster source,
+                                        Object stats) {
+        initialize();
+
+        PartialState partial = stats instanceof PartialState ?
+            (PartialState)stats : null;
+        State state = null;
 
         Rectangle srcBounds = getSourceImage(0).getBounds().intersection(
                                                   source.getBounds());
@@ -204,32 +267,54 @@ public class ExtremaOpImage extends StatisticsOpImage {
                 continue;	// no pixel to count in this rectangle
             }
 
-            initializeState(source);
+            if (state != null) {
+                // Already initialized for this tile.
+            } else if (partial != null) {
+                // Start from the first pixel of this tile to be sampled.
+                state = createState(source, rect.x, rect.y);
+                partial.states.add(state);
+            } else {
+                initializeState(source);
+
+                state = new State();
+                state.extrema = extrema;
+                state.minLocations = minLocations;
+                state.maxLocations = maxLocations;
+                state.minCounts = minCounts;
+                state.maxCounts = maxCounts;
+            }
 
             UnpackedImageData uid = srcPA.getPixels(source, rect,
                                                     srcSampleType, false);
             switch (uid.type) {
             case DataBuffer.TYPE_BYTE:
-                accumulateStatisticsByte(uid);
+                accumulateStatisticsByte(uid, state);
                 break;
             case DataBuffer.TYPE_USHORT:
-                accumulateStatisticsUShort(uid);
+                accumulateStatisticsUShort(uid, state);
                 break;
             case DataBuffer.TYPE_SHORT:
-                accumulateStatisticsShort(uid);
+                accumulateStatisticsShort(uid, state);
                 break;
             case DataBuffer.TYPE_INT:
-                accumulateStatisticsInt(uid);
+                accumulateStatisticsInt(uid, state);
                 break;
             case DataBuffer.TYPE_FLOAT:
-                accumulateStatisticsFloat(uid);
+                accumulateStatisticsFloat(uid, state);
                 break;
             case DataBuffer.TYPE_DOUBLE:
-                accumulateStatisticsDouble(uid);
+                accumulateStatisticsDouble(uid, state);
                 break;
             }
         }
 
+        if (partial == null) {
+            storeStatistics(name, stats);
+        }
+    }
+
+    /** Copies the accumulated statistics into a statistics object. */
+    private void storeStatistics(String name, Object stats) {
         if (name.equalsIgnoreCase("extrema")) {
             double[][] ext = (double[][])stats;
             for (int i = 0; i < srcPA.numBands; i++) {
@@ -258,7 +343,14 @@ public class ExtremaOpImage extends StatisticsOpImage {
 	}
     }
 
-    private void accumulateStatisticsByte(UnpackedImageData uid) {
+    private void accumulateStatisticsByte(UnpackedImageData uid,
+                                          State state) {
+        double[][] extrema = state.extrema;
+        ArrayList[] minLocations = state.minLocations;
+        ArrayList[] maxLocations = state.maxLocations;
+        int[] minCounts = state.minCounts;
+        int[] maxCounts = state.maxCounts;
+
         Rectangle rect = uid.rect;
         byte[][] data = uid.getByteData();
         int lineStride = uid.lineStride;
@@ -318,12 +410,26 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         int p = d[po] & 0xff;
 
                         if (p < min) {
+                            // Terminate any run of maximum values.
+                            if (maxLength > 0 && maxCount < maxRuns) {
+                                maxList.add(new int[]{maxStart, y, maxLength});
+                                maxCount++;
+                            }
+                            maxLength = 0;
+
                             min = p;
                             minStart = x;
                             minLength = 1;
                             minList.clear();
                             minCount = 0;
                         } else if (p > max) {
+                            // Terminate any run of minimum values.
+                            if (minLength > 0 && minCount < maxRuns) {
+                                minList.add(new int[]{minStart, y, minLength});
+                                minCount++;
+                            }
+                            minLength = 0;
+
                             max = p;
                             maxStart = x;
                             maxLength = 1;
@@ -371,7 +477,14 @@ public class ExtremaOpImage extends StatisticsOpImage {
         }
     }
 
-    private void accumulateStatisticsUShort(UnpackedImageData uid) {
+    private void accumulateStatisticsUShort(UnpackedImageData uid,
+                                            State state) {
+        double[][] extrema = state.extrema;
+        ArrayList[] minLocations = state.minLocations;
+        ArrayList[] maxLocations = state.maxLocations;
+        int[] minCounts = state.minCounts;
+        int[] maxCounts = state.maxCounts;
+
         Rectangle rect = uid.rect;
         short[][] data = uid.getShortData();
         int lineStride = uid.lineStride;
@@ -431,12 +544,26 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         int p = d[po] & 0xffff;
 
                         if (p < min) {
+                            // Terminate any run of maximum values.
+                            if (maxLength > 0 && maxCount < maxRuns) {
+                                maxList.add(new int[]{maxStart, y, maxLength});
+                                maxCount++;
+                            }
+                            maxLength = 0;
+
                             min = p;
                             minStart = x;
                             minLength = 1;
                             minList.clear();
                             minCount = 0;
                         } else if (p > max) {
+                            // Terminate any run of minimum values.
+                            if (minLength > 0 && minCount < maxRuns) {
+                                minList.add(new int[]{minStart, y, minLength});
+                                minCount++;
+                            }
+                            minLength = 0;
+
                             max = p;
                             maxStart = x;
                             maxLength = 1;
@@ -484,7 +611,14 @@ public class ExtremaOpImage extends StatisticsOpImage {
         }
     }
 
-    private void accumulateStatisticsShort(UnpackedImageData uid) {
+    private void accumulateStatisticsShort(UnpackedImageData uid,
+                                           State state) {
+        double[][] extrema = state.extrema;
+        ArrayList[] minLocations = state.minLocations;
+        ArrayList[] maxLocations = state.maxLocations;
+        int[] minCounts = state.minCounts;
+        int[] maxCounts = state.maxCounts;
+
         Rectangle rect = uid.rect;
         short[][] data = uid.getShortData();
         int lineStride = uid.lineStride;
@@ -544,12 +678,26 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         int p = d[po];
 
                         if (p < min) {
+                            // Terminate any run of maximum values.
+                            if (maxLength > 0 && maxCount < maxRuns) {
+                                maxList.add(new int[]{maxStart, y, maxLength});
+                                maxCount++;
+                            }
+                            maxLength = 0;
+
                             min = p;
                             minStart = x;
                             minLength = 1;
                             minList.clear();
                             minCount = 0;
                         } else if (p > max) {
+                            // Terminate any run of minimum values.
+                            if (minLength > 0 && minCount < maxRuns) {
+                                minList.add(new int[]{minStart, y, minLength});
+                                minCount++;
+                            }
+                            minLength = 0;
+
                             max = p;
                             maxStart = x;
                             maxLength = 1;
@@ -597,7 +745,14 @@ public class ExtremaOpImage extends StatisticsOpImage {
         }
     }
 
-    private void accumulateStatisticsInt(UnpackedImageData uid) {
+    private void accumulateStatisticsInt(UnpackedImageData uid,
+                                         State state) {
+        double[][] extrema = state.extrema;
+        ArrayList[] minLocations = state.minLocations;
+        ArrayList[] maxLocations = state.maxLocations;
+        int[] minCounts = state.minCounts;
+        int[] maxCounts = state.maxCounts;
+
         Rectangle rect = uid.rect;
         int[][] data = uid.getIntData();
         int lineStride = uid.lineStride;
@@ -657,12 +812,26 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         int p = d[po];
 
                         if (p < min) {
+                            // Terminate any run of maximum values.
+                            if (maxLength > 0 && maxCount < maxRuns) {
+                                maxList.add(new int[]{maxStart, y, maxLength});
+                                maxCount++;
+                            }
+                            maxLength = 0;
+
                             min = p;
                             minStart = x;
                             minLength = 1;
                             minList.clear();
                             minCount = 0;
                         } else if (p > max) {
+                            // Terminate any run of minimum values.
+                            if (minLength > 0 && minCount < maxRuns) {
+                                minList.add(new int[]{minStart, y, minLength});
+                                minCount++;
+                            }
+                            minLength = 0;
+
                             max = p;
                             maxStart = x;
                             maxLength = 1;
@@ -710,7 +879,14 @@ public class ExtremaOpImage extends StatisticsOpImage {
         }
     }
 
-    private void accumulateStatisticsFloat(UnpackedImageData uid) {
+    private void accumulateStatisticsFloat(UnpackedImageData uid,
+                                           State state) {
+        double[][] extrema = state.extrema;
+        ArrayList[] minLocations = state.minLocations;
+        ArrayList[] maxLocations = state.maxLocations;
+        int[] minCounts = state.minCounts;
+        int[] maxCounts = state.maxCounts;
+
         Rectangle rect = uid.rect;
         float[][] data = uid.getFloatData();
         int lineStride = uid.lineStride;
@@ -770,12 +946,26 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         float p = d[po];
 
                         if (p < min) {
+                            // Terminate any run of maximum values.
+                            if (maxLength > 0 && maxCount < maxRuns) {
+                                maxList.add(new int[]{maxStart, y, maxLength});
+                                maxCount++;
+                            }
+                            maxLength = 0;
+
                             min = p;
                             minStart = x;
                             minLength = 1;
                             minList.clear();
                             minCount = 0;
                         } else if (p > max) {
+                            // Terminate any run of minimum values.
+                            if (minLength > 0 && minCount < maxRuns) {
+                                minList.add(new int[]{minStart, y, minLength});
+                                minCount++;
+                            }
+                            minLength = 0;
+
                             max = p;
                             maxStart = x;
                             maxLength = 1;
@@ -823,7 +1013,14 @@ public class ExtremaOpImage extends StatisticsOpImage {
         }
     }
 
-    private void accumulateStatisticsDouble(UnpackedImageData uid) {
+    private void accumulateStatisticsDouble(UnpackedImageData uid,
+                                            State state) {
+        double[][] extrema = state.extrema;
+        ArrayList[] minLocations = state.minLocations;
+        ArrayList[] maxLocations = state.maxLocations;
+        int[] minCounts = state.minCounts;
+        int[] maxCounts = state.maxCounts;
+
         Rectangle rect = uid.rect;
         double[][] data = uid.getDoubleData();
         int lineStride = uid.lineStride;
@@ -883,12 +1080,26 @@ public class ExtremaOpImage extends StatisticsOpImage {
                         double p = d[po];
 
                         if (p < min) {
+                            // Terminate any run of maximum values.
+                            if (maxLength > 0 && maxCount < maxRuns) {
+                                maxList.add(new int[]{maxStart, y, maxLength});
+                                maxCount++;
+                            }
+                            maxLength = 0;
+
                             min = p;
                             minStart = x;
                             minLength = 1;
                             minList.clear();
                             minCount = 0;
                         } else if (p > max) {
+                            // Terminate any run of minimum values.
+                            if (minLength > 0 && minCount < maxRuns) {
+                                minList.add(new int[]{minStart, y, minLength});
+                                minCount++;
+                            }
+                            minLength = 0;
+
                             max = p;
                             maxStart = x;
                             maxLength = 1;
@@ -936,6 +1147,92 @@ public class ExtremaOpImage extends StatisticsOpImage {
         }
     }
 
+    protected Object createPartialStatistics(String name) {
+        if (createStatistics(name) == java.awt.Image.UndefinedProperty) {
+            return null;
+        }
+        initialize();
+        return new PartialState();
+    }
+
+    /**
+     * Merges the per-tile states in raster order of the tiles, which
+     * yields the same extrema and, up to <code>maxRuns</code>, the same
+     * locations as accumulating the tiles sequentially.
+     */
+    protected void mergeStatistics(String name,
+                                   Object[] partials,
+                                   Object stats) {
+        ArrayList states = new ArrayList();
+        for (int i = 0; i < partials.length; i++) {
+            states.addAll(((PartialState)partials[i]).states);
+        }
+        if (states.isEmpty()) {
+            return;	// no pixel was sampled
+        }
+
+        Collections.sort(states, new Comparator() {
+                public int compare(Object o1, Object o2) {
+                    State s1 = (State)o1;
+                    State s2 = (State)o2;
+                    if (s1.tileMinY != s2.tileMinY) {
+                        return s1.tileMinY < s2.tileMinY ? -1 : 1;
+                    }
+                    return s1.tileMinX < s2.tileMinX ? -1 :
+                        (s1.tileMinX == s2.tileMinX ? 0 : 1);
+                }
+            });
+
+        int numBands = sampleModel.getNumBands();
+        State merged = (State)states.get(0);
+
+        for (int i = 1; i < states.size(); i++) {
+            State state = (State)states.get(i);
+
+            for (int b = 0; b < numBands; b++) {
+                if (state.extrema[0][b] < merged.extrema[0][b]) {
+                    merged.extrema[0][b] = state.extrema[0][b];
+                    if (saveLocations) {
+                        merged.minLocations[b] = state.minLocations[b];
+                        merged.minCounts[b] = state.minCounts[b];
+                    }
+                } else if (saveLocations &&
+                           state.extrema[0][b] == merged.extrema[0][b]) {
+                    ArrayList runs = state.minLocations[b];
+                    for (int j = 0; j < runs.size() &&
+                             merged.minCounts[b] < maxRuns; j++) {
+                        merged.minLocations[b].add(runs.get(j));
+                        merged.minCounts[b]++;
+                    }
+                }
+
+                if (state.extrema[1][b] > merged.extrema[1][b]) {
+                    merged.extrema[1][b] = state.extrema[1][b];
+                    if (saveLocations) {
+                        merged.maxLocations[b] = state.maxLocations[b];
+                        merged.maxCounts[b] = state.maxCounts[b];
+                    }
+                } else if (saveLocations &&
+                           state.extrema[1][b] == merged.extrema[1][b]) {
+                    ArrayList runs = state.maxLocations[b];
+                    for (int j = 0; j < runs.size() &&
+                             merged.maxCounts[b] < maxRuns; j++) {
+                        merged.maxLocations[b].add(runs.get(j));
+                        merged.maxCounts[b]++;
+                    }
+                }
+            }
+        }
+
+        minLocations = merged.minLocations;
+        maxLocations = merged.maxLocations;
+        minCounts = merged.minCounts;
+        maxCounts = merged.maxCounts;
+        extrema = merged.extrema;
+
+        storeStatistics(name, stats);
+    }
+
     protected void initializeState(Raster source) {
         if (extrema == null) {
             int numBands = sampleModel.getNumBands();
@@ -0,0 +1,552 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.opimage;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.Map;
+import org.eclipse.imagen.AreaOpImage;
+import org.eclipse.imagen.BorderExtender;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.KernelJAI;
+import org.eclipse.imagen.RasterAccessor;
+import org.eclipse.imagen.RasterFormatTag;
+import org.eclipse.imagen.media.util.MathJAI;
+
+/**
+ * An OpImage class to perform convolution on a source image in the
+ * frequency domain.
+ *
+ * <p> The result is the same as that of <code>ConvolveOpImage</code>,
+ * within the precision of floating point arithmetic, but the cost per
+ * destination sample grows with the logarithm of the kernel size
+ * rather than with its area.  It is therefore used for large kernels
+ * which are not separable.
+ *
+ * <p> The source area of each destination rectangle is divided into
+ * blocks, the convolution of each block with the kernel is computed by
+ * multiplying their discrete Fourier transforms, and the convolutions
+ * of the blocks are added where they overlap (the overlap-add method).
+ * The size of the blocks is chosen so that the transforms, whose
+ * lengths are powers of 2, are as cheap as possible for the size of
+ * the kernel.  The transforms of the kernel are computed once for each
+ * transform size.
+ *
+ * <p> A NaN or infinite sample would spread through the transforms
+ * to the whole block it belongs to, rather than to the destination
+ * samples whose kernel footprint covers it.  The bands of floating
+ * point source areas which hold such samples are therefore convolved
+ * directly, as <code>ConvolveOpImage</code> does.
+ *
+ * <p> As for the other area operations, the border of the source image
+ * is filled by the <code>BorderExtender</code>, if one is given.
+ *
+ * @see ConvolveOpImage
+ * @see FFT
+ * @see KernelJAI
+ */
+final class FFTConvolveOpImage extends AreaOpImage {
+
+    /**
+     * The kernel with which to do the convolve operation.
+     */
+    protected KernelJAI kernel;
+
+    /** Kernel variables. */
+    private int kw, kh;
+
+    /**
+     * The transforms of the kernel, keyed by the <code>Dimension</code>
+     * of the transforms.  Each value is an array holding the real and
+     * the imaginary parts of the transform in row-major order.
+     */
+    private Hashtable kernelTransforms = new Hashtable();
+
+    /**
+     * Creates a FFTConvolveOpImage given a ParameterBlock containing the
+     * image source and pre-rotated convolution kernel.  The image
+     * dimensions are derived from the source image.  The tile grid
+     * layout, SampleModel, and ColorModel may optionally be specified by
+     * an ImageLayout object.
+     *
+     * @param source a RenderedImage.
+     * @param extender a BorderExtender, or null.
+     * @param layout an ImageLayout optionally containing the tile grid layout,
+     *        SampleModel, and ColorModel, or null.
+     * @param kernel the pre-rotated convolution KernelJAI.
+     */
+    public FFTConvolveOpImage(RenderedImage source,
+                              BorderExtender extender,
+                              Map config,
+                              ImageLayout layout,
+                              KernelJAI kernel) {
+	super(source,
+              layout,
+              config,
+              true,
+              extender,
+              kernel.getLeftPadding(),
+              kernel.getRightPadding(),
+              kernel.getTopPadding(),
+              kernel.getBottomPadding());
+
+	this.kernel = kernel;
+	kw = kernel.getWidth();
+	kh = kernel.getHeight();
+    }
+
+    /**
+     * Performs convolution on a specified rectangle. The sources are
+     * cobbled.
+     *
+     * @param sources an array of source Rasters, guaranteed to provide all
+     *                necessary source data for computing the output.
+     * @param dest a WritableRaster tile containing the area to be computed.
+     * @param destRect the rectangle within dest to be processed.
+     */
+    protected void computeRect(Raster[] sources,
+                               WritableRaster dest,
+                               Rectangle destRect) {
+        // Retrieve format tags.
+        RasterFormatTag[] formatTags = getFormatTags();
+
+        Raster source = sources[0];
+        Rectangle srcRect = mapDestRect(destRect, 0);
+
+        RasterAccessor srcAccessor =
+            createRasterAccessor(source, srcRect,
+                                 formatTags[0],
+                                 getSourceImage(0).getColorModel());
+        RasterAccessor dstAccessor =
+            createRasterAccessor(dest, destRect,
+                                 formatTags[1], getColorModel());
+
+        int dwidth = dstAccessor.getWidth();
+        int dheight = dstAccessor.getHeight();
+        int swidth = dwidth + kw - 1;
+        int sheight = dheight + kh - 1;
+
+        // The lengths of the transforms and the size of the blocks.
+        int nx = getTransformLength(swidth, kw);
+        int ny = getTransformLength(sheight, kh);
+        int bw = nx - kw + 1;
+        int bh = ny - kh + 1;
+
+        double[][] kernelTransform = getKernelTransform(nx, ny);
+        double[] kreal = kernelTransform[0];
+        double[] kimag = kernelTransform[1];
+
+        Integer noScaling = new Integer(FFT.SCALING_NONE);
+        Integer scaling = new Integer(FFT.SCALING_DIMENSIONS);
+        FFT rowFFT = new FFT(true, noScaling, nx);
+        FFT columnFFT = new FFT(true, noScaling, ny);
+        FFT rowIFFT = new FFT(false, scaling, nx);
+        FFT columnIFFT = new FFT(false, scaling, ny);
+
+        double[] real = new double[nx * ny];
+        double[] imag = new double[nx * ny];
+        double[] sum = new double[dwidth * dheight];
+
+        // The kernel is real, so the convolutions of two blocks are
+        // computed at once by putting one of them in the real part and
+        // the other in the imaginary part of the transformed data.
+        int numXBlocks = (swidth + bw - 1) / bw;
+        int numBlocks = numXBlocks * ((sheight + bh - 1) / bh);
+
+        int srcDataType = srcAccessor.getDataType();
+        boolean isFloatingPoint = srcDataType == DataBuffer.TYPE_FLOAT ||
+                                  srcDataType == DataBuffer.TYPE_DOUBLE;
+
+        for (int k = 0; k < dstAccessor.getNumBands(); k++) {
+            double[] samples = getBand(srcAccessor, k, swidth, sheight);
+            Arrays.fill(sum, 0.0);
+
+            if (isFloatingPoint && !isFinite(samples)) {
+                convolve(samples, swidth, sum, dwidth, dheight);
+                setBand(dstAccessor, k, sum, dwidth, dheight);
+                continue;
+            }
+
+            for (int b = 0; b < numBlocks; b += 2) {
+                int x0 = (b % numXBlocks) * bw;
+                int y0 = (b / numXBlocks) * bh;
+                int w0 = Math.min(bw, swidth - x0);
+                int h0 = Math.min(bh, sheight - y0);
+
+                // An odd last block is paired with an empty one.
+                int x1 = 0, y1 = 0, w1 = 0, h1 = 0;
+                if (b + 1 < numBlocks) {
+                    x1 = ((b + 1) % numXBlocks) * bw;
+                    y1 = ((b + 1) / numXBlocks) * bh;
+                    w1 = Math.min(bw, swidth - x1);
+                    h1 = Math.min(bh, sheight - y1);
+                }
+
+                Arrays.fill(real, 0.0);
+                Arrays.fill(imag, 0.0);
+                for (int j = 0; j < h0; j++) {
+                    System.arraycopy(samples, (y0 + j) * swidth + x0,
+                                     real, j * nx, w0);
+                }
+                for (int j = 0; j < h1; j++) {
+                    System.arraycopy(samples, (y1 + j) * swidth + x1,
+                                     imag, j * nx, w1);
+                }
+
+                // Transform the rows of the blocks; the rows below the
+                // blocks are zeros.
+                for (int j = 0; j < Math.max(h0, h1); j++) {
+                    rowFFT.setData(DataBuffer.TYPE_DOUBLE,
+                                   real, j * nx, 1,
+                                   imag, j * nx, 1,
+                                   nx);
+                    rowFFT.transform();
+                    rowFFT.getData(DataBuffer.TYPE_DOUBLE,
+                                   real, j * nx, 1,
+                                   imag, j * nx, 1);
+                }
+
+                // Transform the columns, multiply by the transform of
+                // the kernel and transform the columns back.
+                for (int i = 0; i < nx; i++) {
+                    columnFFT.setData(DataBuffer.TYPE_DOUBLE,
+                                      real, i, nx,
+                                      imag, i, nx,
+                                      ny);
+                    columnFFT.transform();
+                    columnFFT.getData(DataBuffer.TYPE_DOUBLE,
+                                      real, i, nx,
+                                      imag, i, nx);
+
+                    for (int index = i; index < nx * ny; index += nx) {
+                        double re = real[index];
+                        double im = imag[index];
+                        real[index] = re * kreal[index] - im * kimag[index];
+                        imag[index] = re * kimag[index] + im * kreal[index];
+                    }
+
+                    columnIFFT.setData(DataBuffer.TYPE_DOUBLE,
+                                       real, i, nx,
+                                       imag, i, nx,
+                                       ny);
+                    columnIFFT.transform();
+                    columnIFFT.getData(DataBuffer.TYPE_DOUBLE,
+                                       real, i, nx,
+                                       imag, i, nx);
+                }
+
+                // Transform back the rows and add the convolutions of
+                // the blocks to the destination.
+                for (int j = 0; j < Math.max(h0, h1) + kh - 1; j++) {
+                    rowIFFT.setData(DataBuffer.TYPE_DOUBLE,
+                                    real, j * nx, 1,
+                                    imag, j * nx, 1,
+                                    nx);
+                    rowIFFT.transform();
+                    rowIFFT.getData(DataBuffer.TYPE_DOUBLE,
+                                    real, j * nx, 1,
+                                    imag, j * nx, 1);
+
+                    addRow(real, j * nx, x0, y0 + j, w0 + kw - 1,
+                           sum, dwidth, dheight);
+                    if (w1 > 0) {
+                        addRow(imag, j * nx, x1, y1 + j, w1 + kw - 1,
+                               sum, dwidth, dheight);
+                    }
+                }
+            }
+
+            setBand(dstAccessor, k, sum, dwidth, dheight);
+        }
+
+        // If the RasterAccessor object set up a temporary buffer for the
+        // op to write to, tell the RasterAccessor to write that data
+        // to the raster no that we're done with it.
+        if (dstAccessor.isDataCopy()) {
+            dstAccessor.clampDataArrays();
+            dstAccessor.copyDataToRaster();
+        }
+
+        recycleRasterAccessor(srcAccessor);
+        recycleRasterAccessor(dstAccessor);
+    }
+
+    /**
+     * Adds a row of the convolution of a block of the source area to
+     * the destination.  Sample (x, y) of the convolution of the whole
+     * source area falls on destination sample (x - kw + 1, y - kh + 1).
+     *
+     * @param values the array holding the row.
+     * @param offset the offset of the row in the array.
+     * @param x0 the abscissa of the block in the source area.
+     * @param y the ordinate of the row in the convolution of the
+     *        source area.
+     * @param width the width of the convolution of the block.
+     */
+    private void addRow(double[] values, int offset, int x0, int y,
+                        int width, double[] sum, int dwidth, int dheight) {
+        int dy = y - kh + 1;
+        if (dy < 0 || dy >= dheight) {
+            return;
+        }
+        int imin = Math.max(0, kw - 1 - x0);
+        int imax = Math.min(width, dwidth + kw - 1 - x0);
+        int sumOffset = dy * dwidth + x0 - kw + 1;
+        for (int i = imin; i < imax; i++) {
+            sum[sumOffset + i] += values[offset + i];
+        }
+    }
+
+    /**
+     * Convolves a band of the source area with the kernel directly,
+     * without transforms, so that non-finite samples only affect the
+     * destination samples whose kernel footprint covers them.
+     */
+    private void convolve(double[] samples, int swidth, double[] sum,
+                          int dwidth, int dheight) {
+        float[] kdata = kernel.getKernelData();
+        int index = 0;
+
+        for (int j = 0; j < dheight; j++) {
+            for (int i = 0; i < dwidth; i++) {
+                double f = 0.0;
+                int kernelOffset = 0;
+                int sampleOffset = j * swidth + i;
+                for (int u = 0; u < kh; u++) {
+                    for (int v = 0; v < kw; v++) {
+                        f += samples[sampleOffset + v] * kdata[kernelOffset + v];
+                    }
+                    kernelOffset += kw;
+                    sampleOffset += swidth;
+                }
+                sum[index++] = f;
+            }
+        }
+    }
+
+    /** Returns <code>true</code> if no value is NaN or infinite. */
+    private static boolean isFinite(double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (Double.isNaN(values[i]) || Double.isInfinite(values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the length of the transforms along a dimension of the
+     * source area, which minimizes the number of blocks times the cost
+     * of a transform.
+     */
+    private static int getTransformLength(int sourceSize, int kernelSize) {
+        int bestLength = 0;
+        double bestCost = Double.MAX_VALUE;
+        for (int n = MathJAI.nextPositivePowerOf2(kernelSize); ; n *= 2) {
+            int blockSize = n - kernelSize + 1;
+            int numBlocks = (sourceSize + blockSize - 1) / blockSize;
+            double cost = (double)numBlocks * n * Math.log(n);
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestLength = n;
+            }
+            if (blockSize >= sourceSize) {
+                break;
+            }
+        }
+        return bestLength;
+    }
+
+    /**
+     * Returns the transform of the kernel, padded with zeros to
+     * <code>nx</code> x <code>ny</code> elements.  The kernel given to
+     * the constructor is rotated, so it is rotated back before being
+     * transformed.
+     */
+    private double[][] getKernelTransform(int nx, int ny) {
+        Dimension key = new Dimension(nx, ny);
+        double[][] transform = (double[][])kernelTransforms.get(key);
+        if (transform != null) {
+            return transform;
+        }
+
+        float[] kdata = kernel.getKernelData();
+        double[] real = new double[nx * ny];
+        double[] imag = new double[nx * ny];
+        for (int j = 0; j < kh; j++) {
+            for (int i = 0; i < kw; i++) {
+                real[j * nx + i] = kdata[(kh - 1 - j) * kw + (kw - 1 - i)];
+            }
+        }
+
+        FFT fft = new FFT(true, new Integer(FFT.SCALING_NONE), nx);
+        for (int j = 0; j < kh; j++) {
+            fft.setData(DataBuffer.TYPE_DOUBLE,
+                        real, j * nx, 1, null, 0, 1, nx);
+            fft.transform();
+            fft.getData(DataBuffer.TYPE_DOUBLE,
+                        real, j * nx, 1, imag, j * nx, 1);
+        }
+        fft.setLength(ny);
+        for (int i = 0; i < nx; i++) {
+            fft.setData(DataBuffer.TYPE_DOUBLE,
+                        real, i, nx, imag, i, nx, ny);
+            fft.transform();
+            fft.getData(DataBuffer.TYPE_DOUBLE,
+                        real, i, nx, imag, i, nx);
+        }
+
+        transform = new double[][] {real, imag};
+        kernelTransforms.put(key, transform);
+        return transform;
+    }
+
+    /**
+     * Copies a band of the source into an array of
+     * <code>width</code> x <code>height</code> values.
+     */
+    private static double[] getBand(RasterAccessor src, int band,
+                                    int width, int height) {
+        double[] samples = new double[width * height];
+        int pixelStride = src.getPixelStride();
+        int scanlineStride = src.getScanlineStride();
+        int scanlineOffset = src.getBandOffsets()[band];
+        int dataType = src.getDataType();
+        Object data = src.getDataArray(band);
+        int index = 0;
+
+        for (int j = 0; j < height; j++) {
+            int pixelOffset = scanlineOffset;
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                byte[] byteData = (byte[])data;
+                for (int i = 0; i < width; i++) {
+                    samples[index++] = byteData[pixelOffset] & 0xff;
+                    pixelOffset += pixelStride;
+                }
+                break;
+            case DataBuffer.TYPE_USHORT:
+                short[] ushortData = (short[])data;
+                for (int i = 0; i < width; i++) {
+                    samples[index++] = ushortData[pixelOffset] & 0xffff;
+                    pixelOffset += pixelStride;
+                }
+                break;
+            case DataBuffer.TYPE_SHORT:
+                short[] shortData = (short[])data;
+                for (int i = 0; i < width; i++) {
+                    samples[index++] = shortData[pixelOffset];
+                    pixelOffset += pixelStride;
+                }
+                break;
+            case DataBuffer.TYPE_INT:
+                int[] intData = (int[])data;
+                for (int i = 0; i < width; i++) {
+                    samples[index++] = intData[pixelOffset];
+                    pixelOffset += pixelStride;
+                }
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                float[] floatData = (float[])data;
+                for (int i = 0; i < width; i++) {
+                    samples[index++] = floatData[pixelOffset];
+                    pixelOffset += pixelStride;
+                }
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                double[] doubleData = (double[])data;
+                for (int i = 0; i < width; i++) {
+                    samples[index++] = doubleData[pixelOffset];
+                    pixelOffset += pixelStride;
+                }
+                break;
+            }
+            scanlineOffset += scanlineStride;
+        }
+
+        return samples;
+    }
+
+    /**
+     * Stores the convolved values in a band of the destination,
+     * rounding and clamping them as <code>ConvolveOpImage</code> does.
+     */
+    private static void setBand(RasterAccessor dst, int band, double[] sum,
+                                int width, int height) {
+        int pixelStride = dst.getPixelStride();
+        int scanlineStride = dst.getScanlineStride();
+        int scanlineOffset = dst.getBandOffsets()[band];
+        int dataType = dst.getDataType();
+        Object data = dst.getDataArray(band);
+        int index = 0;
+
+        for (int j = 0; j < height; j++) {
+            int pixelOffset = scanlineOffset;
+            for (int i = 0; i < width; i++) {
+                double f = sum[index++];
+                int val;
+                switch (dataType) {
+                case DataBuffer.TYPE_BYTE:
+                    val = (int)(f + 0.5);
+                    if (val < 0) {
+                        val = 0;
+                    } else if (val > 255) {
+                        val = 255;
+                    }
+                    ((byte[])data)[pixelOffset] = (byte)val;
+                    break;
+                case DataBuffer.TYPE_USHORT:
+                    val = (int)(f + 0.5);
+                    if (val < 0) {
+                        val = 0;
+                    } else if (val > 0xffff) {
+                        val = 0xffff;
+                    }
+                    ((short[])data)[pixelOffset] = (short)val;
+                    break;
+                case DataBuffer.TYPE_SHORT:
+                    val = (int)(f + 0.5);
+                    if (val < Short.MIN_VALUE) {
+                        val = Short.MIN_VALUE;
+                    } else if (val > Short.MAX_VALUE) {
+                        val = Short.MAX_VALUE;
+                    }
+                    ((short[])data)[pixelOffset] = (short)val;
+                    break;
+                case DataBuffer.TYPE_INT:
+                    ((int[])data)[pixelOffset] = (int)(f + 0.5);
+                    break;
+                case DataBuffer.TYPE_FLOAT:
+                    ((float[])data)[pixelOffset] = (float)f;
+                    break;
+                case DataBuffer.TYPE_DOUBLE:
+                    // ConvolveOpImage starts the sum of doubles at 0.5.
+                    ((double[])data)[pixelOffset] = f + 0.5;
+                    break;
+                }
+                pixelOffset += pixelStride;
+            }
+            scanlineOffset += scanlineStride;
+        }
+    }
+}
@@ -33,24 +33,46 @@ import org.eclipse.imagen.registry.RIFRegistry;
 import org.eclipse.imagen.util.ImagingListener;
 import org.eclipse.imagen.media.codec.FileSeekableStream;
 import org.eclipse.imagen.media.codec.ImageDecodeParam;
+import org.eclipse.imagen.media.codec.MappedFileSeekableStream;
 import org.eclipse.imagen.media.codec.SeekableStream;
 import org.eclipse.imagen.media.util.ImageUtil;
+import org.eclipse.imagen.media.util.ResourceCleaner;
 
 /*
- * Package-scope class which merely adds a finalize() method to close
- * the associated stream and a dispose() method to forward the dispose()
- * call if possible.
+ * Package-scope class which merely closes the associated stream when
+ * disposed of or no longer reachable and adds a dispose() method to
+ * forward the dispose() call if possible.
  */
 class StreamImage extends RenderedImageAdapter {
-    private InputStream stream;
+    private ResourceCleaner.Cleanable cleanable;
 
     /*
-     * Create the object and cache the stream.
+     * Closes the stream.  This is not an inner class so that it does
+     * not refer to the image.
+     */
+    private static class StreamCloser implements Runnable {
+        private InputStream stream;
+
+        StreamCloser(InputStream stream) {
+            this.stream = stream;
+        }
+
+        public void run() {
+            try {
+                stream.close();
+            } catch(IOException e) {
+                // Ignore it ...
+            }
+        }
+    }
+
+    /*
+     * Create the object and register the stream to be closed.
      */
     public StreamImage(RenderedImage image,
                        InputStream stream) {
         super(image);
-        this.stream = stream;
+        cleanable = ResourceCleaner.register(this, new StreamCloser(stream));
         if(image instanceof OpImage) {
             // Set the properties related to TileCache key as used in
             // RenderedOp.
@@ -78,14 +100,9 @@ class StreamImage extends RenderedImageAdapter {
         } catch(Exception e) {
             // Ignore it.
         }
-    }
 
-    /*
-     * Close the stream.
-     */
-    protected void finalize() throws Throwable {
-        stream.close();
-        super.finalize();
+        // Close the stream.
+        cleanable.clean();
     }
 }
 
@@ -113,7 +130,21 @@ public class FileLoadRIF implements RenderedImageFactory {
 
 	    SeekableStream src = null;
 	    try {
-                src = new FileSeekableStream(fileName);
+                // Map the file if requested so that its data are read
+                // without copying and concurrently where the decoder
+                // supports it.
+                if (MappedFileSeekableStream.isMappingEnabled()) {
+                    try {
+                        src = new MappedFileSeekableStream(fileName);
+                    } catch (FileNotFoundException fnfe) {
+                        throw fnfe;
+                    } catch (IOException ioe) {
+                        // The file could not be mapped.
+                    }
+                }
+                if (src == null) {
+                    src = new FileSeekableStream(fileName);
+                }
             } catch (FileNotFoundException fnfe) {
 		// Try to get the file as an InputStream resource. This would
 		// happen when the application and image file are packaged in
@@ -154,6 +154,7 @@ public class FormatCRIF extends CRIFImpl {
 	    }
 	}
 
-        return new CopyOpImage(src, renderHints, layout);
+        return FusedPointOpImage.fuse(
+            new CopyOpImage(src, renderHints, layout), renderHints);
     }
 }
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.opimage;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import java.util.Vector;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.JAI;
+import org.eclipse.imagen.OpImage;
+import org.eclipse.imagen.PointOpImage;
+import org.eclipse.imagen.RasterAccessor;
+import org.eclipse.imagen.RasterFormatTag;
+
+/**
+ * An <code>OpImage</code> which evaluates a chain of single source,
+ * pixel-wise point operations in one pass.
+ *
+ * <p> Each operation of the chain contributes a <code>Stage</code>
+ * which maps a scanline of samples to the samples the operation would
+ * have stored, including the rounding and clamping to its own data type.
+ * The source scanlines are read once, passed through all the stages in
+ * two small scanline buffers and written once, so the intermediate
+ * images of the chain are never computed nor cached.
+ *
+ * <p> The chain is assembled at rendering time by the factories of
+ * the fusible operations calling <code>fuse()</code> on the image
+ * they created, which is replaced by a <code>FusedPointOpImage</code>
+ * whenever its source is itself fusible.
+ *
+ * @see org.eclipse.imagen.JAI#KEY_FUSE_POINT_OPERATIONS
+ */
+final class FusedPointOpImage extends PointOpImage {
+
+    /**
+     * The per-pixel function of one operation of the chain.
+     */
+    static abstract class Stage {
+
+        /** The number of bands produced by the stage. */
+        final int numBands;
+
+        /** The data type the produced samples are stored in. */
+        final int dataType;
+
+        Stage(int numBands, int dataType) {
+            this.numBands = numBands;
+            this.dataType = dataType;
+        }
+
+        /**
+         * Computes <code>length</code> pixels of each band of
+         * <code>dst</code> from the bands of <code>src</code>.
+         */
+        abstract void apply(double[][] src, double[][] dst, int length);
+    }
+
+    /** The stages in the order they are applied. */
+    private Stage[] stages;
+
+    /** The largest number of bands of the source and the stages. */
+    private int maxBands;
+
+    /** Format tags of the source and of this image's own data type. */
+    private RasterFormatTag srcTag;
+    private RasterFormatTag dstTag;
+
+    /**
+     * Returns an image equivalent to <code>image</code> in which the
+     * stage of <code>image</code> is fused with its source if the
+     * source is a fusible point operation or is already fused, or
+     * <code>image</code> itself otherwise.
+     *
+     * @param image  a newly created point operation image.
+     * @param hints  the hints <code>image</code> was created with.
+     */
+    static RenderedImage fuse(OpImage image, RenderingHints hints) {
+        if (hints != null &&
+            Boolean.FALSE.equals(hints.get(JAI.KEY_FUSE_POINT_OPERATIONS))) {
+            return image;
+        }
+
+        Stage stage = getStage(image);
+        if (stage == null) {
+            return image;
+        }
+
+        RenderedImage source = image.getSourceImage(0);
+        if (!bounds(source).contains(image.getBounds())) {
+            return image;
+        }
+
+        RenderedImage root;
+        Vector chain = new Vector();
+        if (source instanceof FusedPointOpImage) {
+            FusedPointOpImage fused = (FusedPointOpImage)source;
+            root = fused.getSourceImage(0);
+            for (int i = 0; i < fused.stages.length; i++) {
+                chain.add(fused.stages[i]);
+            }
+        } else {
+            Stage sourceStage = getStage(source);
+            if (sourceStage == null) {
+                return image;
+            }
+            root = ((OpImage)source).getSourceImage(0);
+            chain.add(sourceStage);
+        }
+        chain.add(stage);
+
+        if (!bounds(root).contains(image.getBounds())) {
+            return image;
+        }
+
+        Stage[] stages = new Stage[chain.size()];
+        chain.copyInto(stages);
+
+        return new FusedPointOpImage(root, hints,
+                                     new ImageLayout(image), stages);
+    }
+
+    private static Rectangle bounds(RenderedImage image) {
+        return new Rectangle(image.getMinX(), image.getMinY(),
+                             image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Returns the stage of an image if it is a fusible point operation
+     * reading and storing whole samples, or <code>null</code>. Sources
+     * which are packed or color-indexed are excluded as the operations
+     * would then compute on converted or expanded data.
+     */
+    private static Stage getStage(RenderedImage image) {
+        if (!(image instanceof OpImage) ||
+            ((OpImage)image).getNumSources() != 1) {
+            return null;
+        }
+
+        RenderedImage source = ((OpImage)image).getSourceImage(0);
+        if (!(image.getSampleModel() instanceof ComponentSampleModel) ||
+            !(source.getSampleModel() instanceof ComponentSampleModel) ||
+            source.getColorModel() instanceof IndexColorModel) {
+            return null;
+        }
+
+        if (image instanceof RescaleOpImage) {
+            return ((RescaleOpImage)image).getFusedStage();
+        } else if (image instanceof ClampOpImage) {
+            return ((ClampOpImage)image).getFusedStage();
+        } else if (image instanceof CopyOpImage) {
+            return ((CopyOpImage)image).getFusedStage();
+        } else if (image instanceof LookupOpImage) {
+            return ((LookupOpImage)image).getFusedStage();
+        } else if (image instanceof BandSelectOpImage) {
+            return ((BandSelectOpImage)image).getFusedStage();
+        }
+        return null;
+    }
+
+    /**
+     * Converts a sample to the value it has once stored in a raster of
+     * the given data type: integral types are clamped to their range
+     * and truncated, as when a floating point accessor is copied back
+     * to the raster.
+     */
+    static double convert(double v, int dataType) {
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            return (int)(v > 0xFF ? 0xFF : (v < 0 ? 0 : v));
+        case DataBuffer.TYPE_USHORT:
+            return (int)(v > 0xFFFF ? 0xFFFF : (v < 0 ? 0 : v));
+        case DataBuffer.TYPE_SHORT:
+            return (int)(v > Short.MAX_VALUE ? Short.MAX_VALUE :
+                         (v < Short.MIN_VALUE ? Short.MIN_VALUE : v));
+        case DataBuffer.TYPE_INT:
+            return (int)v;
+        case DataBuffer.TYPE_FLOAT:
+            return (float)v;
+        default:
+            return v;
+        }
+    }
+
+    private FusedPointOpImage(RenderedImage source,
+                              Map config,
+                              ImageLayout layout,
+                              Stage[] stages) {
+        super(source, layout, config, true);
+
+        this.stages = stages;
+
+        maxBands = source.getSampleModel().getNumBands();
+        for (int i = 0; i < stages.length; i++) {
+            maxBands = Math.max(maxBands, stages[i].numBands);
+        }
+
+        SampleModel srcSM = source.getSampleModel();
+        srcTag = new RasterFormatTag(srcSM,
+                     RasterAccessor.findCompatibleTag(null, srcSM));
+        dstTag = new RasterFormatTag(sampleModel,
+                     RasterAccessor.findCompatibleTag(null, sampleModel));
+    }
+
+    /**
+     * Evaluates the chain of stages over a rectangle.
+     * The sources are cobbled.
+     *
+     * @param sources   an array of sources, guarantee to provide all
+     *                  necessary source data for computing the rectangle.
+     * @param dest      a tile that contains the rectangle to be computed.
+     * @param destRect  the rectangle within this OpImage to be processed.
+     */
+    protected void computeRect(Raster[] sources,
+                               WritableRaster dest,
+                               Rectangle destRect) {
+        RasterAccessor src =
+            new RasterAccessor(sources[0], mapDestRect(destRect, 0),
+                               srcTag, null);
+        RasterAccessor dst =
+            new RasterAccessor(dest, destRect, dstTag, null);
+
+        int width = dst.getWidth();
+        int height = dst.getHeight();
+
+        double[][] rowA = new double[maxBands][width];
+        double[][] rowB = new double[maxBands][width];
+
+        for (int h = 0; h < height; h++) {
+            loadRow(src, h, rowA);
+
+            double[][] in = rowA;
+            for (int i = 0; i < stages.length; i++) {
+                double[][] out = in == rowA ? rowB : rowA;
+                stages[i].apply(in, out, width);
+                in = out;
+            }
+
+            storeRow(dst, h, in);
+        }
+
+        dst.copyDataToRaster();
+    }
+
+    /** Unpacks one scanline of the source into <code>row</code>. */
+    private static void loadRow(RasterAccessor src, int h, double[][] row) {
+        int numBands = src.getNumBands();
+        int width = src.getWidth();
+        int pixelStride = src.getPixelStride();
+        int[] bandOffsets = src.getBandOffsets();
+        int lineOffset = h*src.getScanlineStride();
+
+        for (int b = 0; b < numBands; b++) {
+            double[] r = row[b];
+            int offset = bandOffsets[b] + lineOffset;
+
+            switch (src.getDataType()) {
+            case DataBuffer.TYPE_BYTE:
+                byte[] bd = src.getByteDataArray(b);
+                for (int w = 0; w < width; w++, offset += pixelStride) {
+                    r[w] = bd[offset] & 0xFF;
+                }
+                break;
+            case DataBuffer.TYPE_USHORT:
+                short[] ud = src.getShortDataArray(b);
+                for (int w = 0; w < width; w++, offset += pixelStride) {
+                    r[w] = ud[offset] & 0xFFFF;
+                }
+                break;
+            case DataBuffer.TYPE_SHORT:
+                short[] sd = src.getShortDataArray(b);
+                for (int w = 0; w < width; w++, offset += pixelStride) {
+                    r[w] = sd[offset];
+                }
+                break;
+            case DataBuffer.TYPE_INT:
+                int[] id = src.getIntDataArray(b);
+                for (int w = 0; w < width; w++, offset += pixelStride) {
+                    r[w] = id[offset];
+                }
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                float[] fd = src.getFloatDataArray(b);
+                for (int w = 0; w < width; w++, offset += pixelStride) {
+                    r[w] = fd[offset];
+                }
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                double[] dd = src.getDoubleDataArray(b);
+                for (int w = 0; w < width; w++, offset += pixelStride) {
+                    r[w] = dd[offset];
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Stores one scanline of samples, already in the range of the
+     * destination data type, into the destination.
+     */
+    private static void storeRow(RasterAccessor dst, int h, double[][] row) {
+        int numBands = dst.getNumBands();
+        int width = dst.getWidth();
+        int pixelStride = dst.getPixelStride();
+        int[] bandOffsets = dst.getBandOffsets();
+        int lineOffset = h*dst.getScanlineStride();
+
+        for (int b = 0; b < numBands; b++) {
+            double[] r = row[b];
+            int offset = bandOffsets[b] + lineOffset;
+
+            switch (dst.getDataType()) {
+            case DataBuffer.TYPE_BYTE:
+                byte[] bd = dst.getByteDataArray(b);
+                for (int w = 0; w < width; w++, offset += pixelStride) {
+                    bd[offset] = (byte)(int)r[w];
+                }
+                break;
+            case DataBuffer.TYPE_USHORT:
+            case DataBuffer.TYPE_SHORT:
+                short[] sd = dst.getShortDataArray(b);
+                for (int w = 0; w < width; w++, offset += pixelStride) {
+                    sd[offset] = (short)(int)r[w];
+                }
+                break;
+            case DataBuffer.TYPE_INT:
+                int[] id = dst.getIntDataArray(b);
+                for (int w = 0; w < width; w++, offset += pixelStride) {
+                    id[offset] = (int)r[w];
+                }
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                float[] fd = dst.getFloatDataArray(b);
+                for (int w = 0; w < width; w++, offset += pixelStride) {
+                    fd[offset] = (float)r[w];
+                }
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                double[] dd = dst.getDoubleDataArray(b);
+                for (int w = 0; w < width; w++, offset += pixelStride) {
+                    dd[offset] = r[w];
+                }
+                break;
+            }
+        }
+    }
+}
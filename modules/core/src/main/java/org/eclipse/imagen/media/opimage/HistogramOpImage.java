@@ -23,6 +23,7 @@ import java.awt.image.RenderedImage;
 import java.util.LinkedList;
 import java.util.ListIterator;
 import org.eclipse.imagen.Histogram;
+import org.eclipse.imagen.LongHistogram;
 import org.eclipse.imagen.PixelAccessor;
 import org.eclipse.imagen.ROI;
 import org.eclipse.imagen.StatisticsOpImage;
@@ -50,6 +51,22 @@ final class HistogramOpImage extends StatisticsOpImage {
     /** The number of bands of the source image. */
     private int numBands;
 
+    /**
+     * The number of bins above which the bins of a band are stored
+     * sparsely.  This is one bin per 16-bit value.
+     */
+    private static final int MAX_DENSE_BINS = 65536;
+
+    /**
+     * Whether a <code>LongHistogram</code> is generated, either because
+     * a bin might count more than <code>Integer.MAX_VALUE</code> samples
+     * or because the bins are to be stored sparsely.
+     */
+    private boolean useLongHistogram;
+
+    /** Whether the bins of the <code>LongHistogram</code> are sparse. */
+    private boolean sparse;
+
     private final boolean tileIntersectsROI(int tileX, int tileY) {
         if (roi == null) {      // ROI is entire tile
             return true;
@@ -88,6 +105,24 @@ final class HistogramOpImage extends StatisticsOpImage {
                                lowValue[0] : lowValue[b];
             this.highValue[b] = highValue.length == 1 ?
                                 highValue[0] : highValue[b];
+
+            if (this.numBins[b] > MAX_DENSE_BINS) {
+                sparse = true;
+            }
+        }
+
+        // The number of samples per band which might be counted.
+        long numSamples = ((long)getWidth() + xPeriod - 1) / xPeriod *
+                          (((long)getHeight() + yPeriod - 1) / yPeriod);
+
+        useLongHistogram = sparse || numSamples > Integer.MAX_VALUE;
+    }
+
+    private Histogram createHistogram() {
+        if (useLongHistogram) {
+            return new LongHistogram(numBins, lowValue, highValue, sparse);
+        } else {
+            return new Histogram(numBins, lowValue, highValue);
         }
     }
 
@@ -99,7 +134,7 @@ final class HistogramOpImage extends StatisticsOpImage {
 
     protected Object createStatistics(String name) {
         if (name.equalsIgnoreCase("histogram")) {
-            return new Histogram(numBins, lowValue, highValue);
+            return createHistogram();
         } else {
             return java.awt.Image.UndefinedProperty;
         }
@@ -111,4 +146,37 @@ final class HistogramOpImage extends StatisticsOpImage {
         Histogram histogram = (Histogram)stats;
         histogram.countPixels(source, roi, xStart, yStart, xPeriod, yPeriod);
     }
+
+    protected Object createPartialStatistics(String name) {
+        if (name.equalsIgnoreCase("histogram")) {
+            return createHistogram();
+        } else {
+            return null;
+        }
+    }
+
+    protected void mergeStatistics(String name,
+                                   Object[] partials,
+                                   Object stats) {
+        if (stats instanceof LongHistogram) {
+            LongHistogram histogram = (LongHistogram)stats;
+            for (int i = 0; i < partials.length; i++) {
+                histogram.merge((Histogram)partials[i]);
+            }
+            return;
+        }
+
+        int[][] bins = ((Histogram)stats).getBins();
+
+        for (int i = 0; i < partials.length; i++) {
+            int[][] partialBins = ((Histogram)partials[i]).getBins();
+            for (int b = 0; b < numBands; b++) {
+                int[] dst = bins[b];
+                int[] src = partialBins[b];
+                for (int k = 0; k < dst.length; k++) {
+                    dst[k] += src[k];
+                }
+            }
+        }
+    }
 }
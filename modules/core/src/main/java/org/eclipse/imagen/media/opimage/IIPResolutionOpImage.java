@@ -1107,11 +1107,4 @@ public class IIPResolutionOpImage extends OpImage {
                                  int sourceIndex) {
         throw new IllegalArgumentException(JaiI18N.getString("AreaOpImage0"));
     }
-
-    /**
-     * Dispose of any allocated resources.
-     */
-    protected void finalize() throws Throwable {
-        super.finalize();
-    }
 }
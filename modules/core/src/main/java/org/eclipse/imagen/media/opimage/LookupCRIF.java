@@ -60,9 +60,11 @@ public class LookupCRIF extends CRIFImpl {
         ImageLayout layout = RIFUtil.getImageLayoutHint(renderHints);
         
 
-        return new LookupOpImage(args.getRenderedSource(0),
-                                 renderHints,
-                                 layout,
-                                 (LookupTableJAI)args.getObjectParameter(0));
+        return FusedPointOpImage.fuse(
+            new LookupOpImage(args.getRenderedSource(0),
+                              renderHints,
+                              layout,
+                              (LookupTableJAI)args.getObjectParameter(0)),
+            renderHints);
     }
 }
@@ -17,6 +17,7 @@
 
 package org.eclipse.imagen.media.opimage;
 import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
@@ -165,6 +166,73 @@ final class LookupOpImage extends ColormapOpImage {
         }
     }
 
+    /**
+     * Returns the per-pixel function of this operation for
+     * <code>FusedPointOpImage</code>, or <code>null</code> if the
+     * colormap is transformed.
+     */
+    FusedPointOpImage.Stage getFusedStage() {
+        if (isColormapOperation()) {
+            return null;
+        }
+
+        final int srcNumBands = getSourceImage(0).getSampleModel().getNumBands();
+
+        return new FusedPointOpImage.Stage(sampleModel.getNumBands(),
+                                           table.getDataType()) {
+            void apply(double[][] src, double[][] dst, int length) {
+                int tblNumBands = table.getNumBands();
+
+                for (int b = 0; b < numBands; b++) {
+                    // A single source or table band serves all bands.
+                    double[] s = src[srcNumBands < numBands ? 0 : b];
+                    double[] d = dst[b];
+                    int tb = tblNumBands < numBands ? 0 : b;
+                    int offset = table.getOffset(tb);
+
+                    switch (dataType) {
+                    case DataBuffer.TYPE_BYTE:
+                        byte[] bt = table.getByteData(tb);
+                        for (int i = 0; i < length; i++) {
+                            d[i] = bt[(int)s[i] - offset] & 0xFF;
+                        }
+                        break;
+                    case DataBuffer.TYPE_USHORT:
+                        short[] ut = table.getShortData(tb);
+                        for (int i = 0; i < length; i++) {
+                            d[i] = ut[(int)s[i] - offset] & 0xFFFF;
+                        }
+                        break;
+                    case DataBuffer.TYPE_SHORT:
+                        short[] st = table.getShortData(tb);
+                        for (int i = 0; i < length; i++) {
+                            d[i] = st[(int)s[i] - offset];
+                        }
+                        break;
+                    case DataBuffer.TYPE_INT:
+                        int[] it = table.getIntData(tb);
+                        for (int i = 0; i < length; i++) {
+                            d[i] = it[(int)s[i] - offset];
+                        }
+                        break;
+                    case DataBuffer.TYPE_FLOAT:
+                        float[] ft = table.getFloatData(tb);
+                        for (int i = 0; i < length; i++) {
+                            d[i] = ft[(int)s[i] - offset];
+                        }
+                        break;
+                    case DataBuffer.TYPE_DOUBLE:
+                        double[] dt = table.getDoubleData(tb);
+                        for (int i = 0; i < length; i++) {
+                            d[i] = dt[(int)s[i] - offset];
+                        }
+                        break;
+                    }
+                }
+            }
+        };
+    }
+
     /**
      * Performs the table lookup operation within a specified rectangle.
      *
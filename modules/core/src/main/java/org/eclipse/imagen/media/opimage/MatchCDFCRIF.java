@@ -91,7 +91,7 @@ public class MatchCDFCRIF extends CRIFImpl {
             bp[band][1] = new float[numBins];
 
             // Calculate the total count over all bins of this band.
-            int[] binsIn = histIn.getBins(band);
+            long[] binsIn = histIn.getLongBins(band);
             long binTotalIn = binsIn[0];
             for(int i = 1; i < numBins; i++) {
                 binTotalIn += binsIn[i];
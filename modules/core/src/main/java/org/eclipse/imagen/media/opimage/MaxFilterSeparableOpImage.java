@@ -68,6 +68,12 @@ final class MaxFilterSeparableOpImage extends MaxFilterOpImage {
     protected void byteLoop(RasterAccessor src, 
                             RasterAccessor dst,
                             int filterSize) {
+        if (filterSize >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, filterSize, filterSize,
+                                         true, 0.0F);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -155,6 +161,12 @@ final class MaxFilterSeparableOpImage extends MaxFilterOpImage {
     protected void shortLoop(RasterAccessor src, 
                              RasterAccessor dst,
                              int filterSize)  {
+        if (filterSize >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, filterSize, filterSize,
+                                         true, 0.0F);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -242,6 +254,12 @@ final class MaxFilterSeparableOpImage extends MaxFilterOpImage {
     protected void ushortLoop(RasterAccessor src, 
                               RasterAccessor dst,
                               int filterSize)  {
+        if (filterSize >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, filterSize, filterSize,
+                                         true, 0.0F);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -276,7 +294,7 @@ final class MaxFilterSeparableOpImage extends MaxFilterOpImage {
                      int imageOffset = srcPixelOffset;
 		     maxval = Integer.MIN_VALUE;
                      for (int v = 0; v < wp; v++)  {
-                          val = srcData[imageOffset] & 0xfff;
+                          val = srcData[imageOffset] & 0xffff;
                           imageOffset += srcPixelStride;
 			  maxval = (val > maxval) ? val : maxval;
                      }
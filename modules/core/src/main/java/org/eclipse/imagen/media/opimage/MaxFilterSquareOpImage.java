@@ -68,6 +68,12 @@ final class MaxFilterSquareOpImage extends MaxFilterOpImage {
     protected void byteLoop(RasterAccessor src, 
                             RasterAccessor dst,
                             int filterSize) {
+        if (filterSize >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, filterSize, filterSize,
+                                         true, 0.0F);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -120,6 +126,12 @@ final class MaxFilterSquareOpImage extends MaxFilterOpImage {
     protected void shortLoop(RasterAccessor src, 
                              RasterAccessor dst,
                              int filterSize)  {
+        if (filterSize >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, filterSize, filterSize,
+                                         true, 0.0F);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -172,6 +184,12 @@ final class MaxFilterSquareOpImage extends MaxFilterOpImage {
     protected void ushortLoop(RasterAccessor src, 
                               RasterAccessor dst,
                               int filterSize)  {
+        if (filterSize >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, filterSize, filterSize,
+                                         true, 0.0F);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -48,12 +48,10 @@ public class MeanOpImage extends StatisticsOpImage {
     private boolean isInitialized = false;
 
     /**
-     * Note: For very large images, these two variables may be overflowed.
-     * An alternative would be to have a set for each tile. But then, the
-     * user could specify very large tile size.
+     * The sums accumulated over the tiles processed so far when the
+     * statistics are gathered sequentially.
      */
-    private double[] totalPixelValue;
-    private int totalPixelCount;
+    private Accumulator total;
 
     private PixelAccessor srcPA;
 
@@ -97,6 +95,51 @@ public class MeanOpImage extends StatisticsOpImage {
         return stats;
     }
 
+    /**
+     * The sum of the sampled pixel values of each band and the number
+     * of sampled pixels over a set of tiles.  The sums are compensated
+     * (Kahan-Babuska summation) so that the order in which the lines
+     * and the tiles are added does not change the mean.
+     */
+    private static final class Accumulator {
+        double[] totalPixelValue;
+        double[] compensation;
+        long totalPixelCount;
+
+        Accumulator(int numBands) {
+            totalPixelValue = new double[numBands];
+            compensation = new double[numBands];
+        }
+
+        /** Adds a value to the sum of a band. */
+        void add(int band, double value) {
+            double sum = totalPixelValue[band];
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation[band] += (sum - t) + value;
+            } else {
+                compensation[band] += (value - t) + sum;
+            }
+            totalPixelValue[band] = t;
+        }
+
+        /** Returns the sum of a band. */
+        double getSum(int band) {
+            return totalPixelValue[band] + compensation[band];
+        }
+    }
+
+    private void initialize() {
+        if(!isInitialized) {
+            srcPA = new PixelAccessor(getSourceImage(0));
+            srcSampleType = srcPA.sampleType == PixelAccessor.TYPE_BIT ?
+                DataBuffer.TYPE_BYTE : srcPA.sampleType;
+
+            total = new Accumulator(srcPA.numBands);
+            isInitialized = true;
+        }
+    }
+
     private final int startPosition(int pos, int start, int period) {
         int t = (pos - start) % period;
         if (t == 0) {
@@ -109,15 +152,11 @@ public class MeanOpImage extends StatisticsOpImage {
     protected void accumulateStatistics(String name,
                                         Raster source,
                                         Object stats) {
-        if(!isInitialized) {
-            srcPA = new PixelAccessor(getSourceImage(0));
-            srcSampleType = srcPA.sampleType == PixelAccessor.TYPE_BIT ?
-                DataBuffer.TYPE_BYTE : srcPA.sampleType;
+        initialize();
 
-            totalPixelValue = new double[srcPA.numBands];
-            totalPixelCount = 0;
-            isInitialized = true;
-        }
+        // Partial statistics are accumulated into their own sums.
+        Accumulator acc = stats instanceof Accumulator ?
+            (Accumulator)stats : total;
 
         Rectangle srcBounds = getSourceImage(0).getBounds().intersection(
                                                   source.getBounds());
@@ -157,40 +196,72 @@ public class MeanOpImage extends StatisticsOpImage {
 
             switch (uid.type) {
             case DataBuffer.TYPE_BYTE:
-                accumulateStatisticsByte(uid);
+                accumulateStatisticsByte(uid, acc);
                 break;
             case DataBuffer.TYPE_USHORT:
-                accumulateStatisticsUShort(uid);
+                accumulateStatisticsUShort(uid, acc);
                 break;
             case DataBuffer.TYPE_SHORT:
-                accumulateStatisticsShort(uid);
+                accumulateStatisticsShort(uid, acc);
                 break;
             case DataBuffer.TYPE_INT:
-                accumulateStatisticsInt(uid);
+                accumulateStatisticsInt(uid, acc);
                 break;
             case DataBuffer.TYPE_FLOAT:
-                accumulateStatisticsFloat(uid);
+                accumulateStatisticsFloat(uid, acc);
                 break;
             case DataBuffer.TYPE_DOUBLE:
-                accumulateStatisticsDouble(uid);
+                accumulateStatisticsDouble(uid, acc);
                 break;
             }
         }
 
-        if(name.equalsIgnoreCase("mean")) {
+        if(acc == total && name.equalsIgnoreCase("mean")) {
             // This is a totally disgusting hack but no worse than the
             // code was before ... bpb 1 September 2000
             double[] mean = (double[])stats;
-            if (totalPixelCount != 0) {
+            if (total.totalPixelCount != 0) {
                 for (int i = 0; i < srcPA.numBands; i++) {
-                    mean[i] = totalPixelValue[i] /
-                        (double)totalPixelCount;
+                    mean[i] = total.getSum(i) /
+                        (double)total.totalPixelCount;
                 }
             }
         }
     }
 
-    private void accumulateStatisticsByte(UnpackedImageData uid) {
+    protected Object createPartialStatistics(String name) {
+        if (name.equalsIgnoreCase("mean")) {
+            initialize();
+            return new Accumulator(srcPA.numBands);
+        } else {
+            return null;
+        }
+    }
+
+    protected void mergeStatistics(String name,
+                                   Object[] partials,
+                                   Object stats) {
+        Accumulator sum = new Accumulator(srcPA.numBands);
+
+        for (int i = 0; i < partials.length; i++) {
+            Accumulator acc = (Accumulator)partials[i];
+            for (int b = 0; b < srcPA.numBands; b++) {
+                sum.add(b, acc.totalPixelValue[b]);
+                sum.add(b, acc.compensation[b]);
+            }
+            sum.totalPixelCount += acc.totalPixelCount;
+        }
+
+        double[] mean = (double[])stats;
+        if (sum.totalPixelCount != 0) {
+            for (int i = 0; i < srcPA.numBands; i++) {
+                mean[i] = sum.getSum(i) / (double)sum.totalPixelCount;
+            }
+        }
+    }
+
+    private void accumulateStatisticsByte(UnpackedImageData uid,
+                                          Accumulator acc) {
         Rectangle rect = uid.rect;
         byte[][] data = uid.getByteData();
         int lineStride = uid.lineStride;
@@ -206,16 +277,21 @@ public class MeanOpImage extends StatisticsOpImage {
             for (int lo = uid.bandOffsets[b]; lo < lastLine; lo += lineInc) {
                 int lastPixel = lo + rect.width * pixelStride;
 
+                // The sum of a line of integral samples is exact.
+                long lineSum = 0;
                 for (int po = lo; po < lastPixel; po += pixelInc) {
-                    totalPixelValue[b] += d[po] & 0xff;
+                    lineSum += d[po] & 0xff;
                 }
+                acc.add(b, lineSum);
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        acc.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (long)Math.ceil((double)rect.width / xPeriod);
     }
 
-    private void accumulateStatisticsUShort(UnpackedImageData uid) {
+    private void accumulateStatisticsUShort(UnpackedImageData uid,
+                                            Accumulator acc) {
         Rectangle rect = uid.rect;
         short[][] data = uid.getShortData();
         int lineStride = uid.lineStride;
@@ -231,16 +307,21 @@ public class MeanOpImage extends StatisticsOpImage {
             for (int lo = uid.bandOffsets[b]; lo < lastLine; lo += lineInc) {
                 int lastPixel = lo + rect.width * pixelStride;
 
+                // The sum of a line of integral samples is exact.
+                long lineSum = 0;
                 for (int po = lo; po < lastPixel; po += pixelInc) {
-                    totalPixelValue[b] += d[po] & 0xffff;
+                    lineSum += d[po] & 0xffff;
                 }
+                acc.add(b, lineSum);
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        acc.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (long)Math.ceil((double)rect.width / xPeriod);
     }
 
-    private void accumulateStatisticsShort(UnpackedImageData uid) {
+    private void accumulateStatisticsShort(UnpackedImageData uid,
+                                           Accumulator acc) {
         Rectangle rect = uid.rect;
         short[][] data = uid.getShortData();
         int lineStride = uid.lineStride;
@@ -256,16 +337,21 @@ public class MeanOpImage extends StatisticsOpImage {
             for (int lo = uid.bandOffsets[b]; lo < lastLine; lo += lineInc) {
                 int lastPixel = lo + rect.width * pixelStride;
 
+                // The sum of a line of integral samples is exact.
+                long lineSum = 0;
                 for (int po = lo; po < lastPixel; po += pixelInc) {
-                    totalPixelValue[b] += d[po];
+                    lineSum += d[po];
                 }
+                acc.add(b, lineSum);
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        acc.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (long)Math.ceil((double)rect.width / xPeriod);
     }
 
-    private void accumulateStatisticsInt(UnpackedImageData uid) {
+    private void accumulateStatisticsInt(UnpackedImageData uid,
+                                         Accumulator acc) {
         Rectangle rect = uid.rect;
         int[][] data = uid.getIntData();
         int lineStride = uid.lineStride;
@@ -281,16 +367,21 @@ public class MeanOpImage extends StatisticsOpImage {
             for (int lo = uid.bandOffsets[b]; lo < lastLine; lo += lineInc) {
                 int lastPixel = lo + rect.width * pixelStride;
 
+                // The sum of a line of integral samples is exact.
+                long lineSum = 0;
                 for (int po = lo; po < lastPixel; po += pixelInc) {
-                    totalPixelValue[b] += d[po];
+                    lineSum += d[po];
                 }
+                acc.add(b, lineSum);
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        acc.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (long)Math.ceil((double)rect.width / xPeriod);
     }
 
-    private void accumulateStatisticsFloat(UnpackedImageData uid) {
+    private void accumulateStatisticsFloat(UnpackedImageData uid,
+                                           Accumulator acc) {
         Rectangle rect = uid.rect;
         float[][] data = uid.getFloatData();
         int lineStride = uid.lineStride;
@@ -306,16 +397,25 @@ public class MeanOpImage extends StatisticsOpImage {
             for (int lo = uid.bandOffsets[b]; lo < lastLine; lo += lineInc) {
                 int lastPixel = lo + rect.width * pixelStride;
 
+                // Compensate the sum of each line for rounding errors.
+                double lineSum = 0.0;
+                double c = 0.0;
                 for (int po = lo; po < lastPixel; po += pixelInc) {
-                    totalPixelValue[b] += d[po];
+                    double y = d[po] - c;
+                    double t = lineSum + y;
+                    c = (t - lineSum) - y;
+                    lineSum = t;
                 }
+                acc.add(b, lineSum);
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        acc.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (long)Math.ceil((double)rect.width / xPeriod);
     }
 
-    private void accumulateStatisticsDouble(UnpackedImageData uid) {
+    private void accumulateStatisticsDouble(UnpackedImageData uid,
+                                            Accumulator acc) {
         Rectangle rect = uid.rect;
         double[][] data = uid.getDoubleData();
         int lineStride = uid.lineStride;
@@ -331,12 +431,20 @@ public class MeanOpImage extends StatisticsOpImage {
             for (int lo = uid.bandOffsets[b]; lo < lastLine; lo += lineInc) {
                 int lastPixel = lo + rect.width * pixelStride;
 
+                // Compensate the sum of each line for rounding errors.
+                double lineSum = 0.0;
+                double c = 0.0;
                 for (int po = lo; po < lastPixel; po += pixelInc) {
-                    totalPixelValue[b] += d[po];
+                    double y = d[po] - c;
+                    double t = lineSum + y;
+                    c = (t - lineSum) - y;
+                    lineSum = t;
                 }
+                acc.add(b, lineSum);
             }
         }
-        totalPixelCount += (int)Math.ceil((double)rect.height / yPeriod) *
-                           (int)Math.ceil((double)rect.width / xPeriod);
+        acc.totalPixelCount +=
+            (long)Math.ceil((double)rect.height / yPeriod) *
+            (long)Math.ceil((double)rect.width / xPeriod);
     }
 }
@@ -268,7 +268,7 @@ final class MedianFilterSeparableOpImage extends MedianFilterOpImage {
                 for (int i = 0; i < dwidth; i++) {
                      int imageOffset = srcPixelOffset;
                      for (int v = 0; v < wp; v++)  {
-                          tmpValues[v] = srcData[imageOffset] & 0xfff;
+                          tmpValues[v] = srcData[imageOffset] & 0xffff;
                           imageOffset += srcPixelStride;
                      }
                      tmpBuffer[revolver+i] = medianFilter(tmpValues);
@@ -69,6 +69,11 @@ final class MedianFilterSquareOpImage extends MedianFilterOpImage {
     protected void byteLoop(RasterAccessor src, 
                             RasterAccessor dst,
                             int filterSize) {
+        if (filterSize >= SlidingWindowFilter.MEDIAN_THRESHOLD) {
+            SlidingWindowFilter.median(src, dst, filterSize);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -123,6 +128,11 @@ final class MedianFilterSquareOpImage extends MedianFilterOpImage {
     protected void shortLoop(RasterAccessor src, 
                              RasterAccessor dst,
                              int filterSize)  {
+        if (filterSize >= SlidingWindowFilter.MEDIAN_THRESHOLD) {
+            SlidingWindowFilter.median(src, dst, filterSize);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -177,6 +187,11 @@ final class MedianFilterSquareOpImage extends MedianFilterOpImage {
     protected void ushortLoop(RasterAccessor src, 
                               RasterAccessor dst,
                               int filterSize)  {
+        if (filterSize >= SlidingWindowFilter.MEDIAN_THRESHOLD) {
+            SlidingWindowFilter.median(src, dst, filterSize);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
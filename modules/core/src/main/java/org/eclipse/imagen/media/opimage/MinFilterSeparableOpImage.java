@@ -68,6 +68,12 @@ final class MinFilterSeparableOpImage extends MinFilterOpImage {
     protected void byteLoop(RasterAccessor src, 
                             RasterAccessor dst,
                             int filterSize) {
+        if (filterSize >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, filterSize, filterSize,
+                                         false, 0.0F);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -155,6 +161,12 @@ final class MinFilterSeparableOpImage extends MinFilterOpImage {
     protected void shortLoop(RasterAccessor src, 
                              RasterAccessor dst,
                              int filterSize)  {
+        if (filterSize >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, filterSize, filterSize,
+                                         false, 0.0F);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -242,6 +254,12 @@ final class MinFilterSeparableOpImage extends MinFilterOpImage {
     protected void ushortLoop(RasterAccessor src, 
                               RasterAccessor dst,
                               int filterSize)  {
+        if (filterSize >= SlidingWindowFilter.EXTREMUM_THRESHOLD) {
+            SlidingWindowFilter.extremum(src, dst, filterSize, filterSize,
+                                         false, 0.0F);
+            return;
+        }
+
         int dwidth = dst.getWidth();
         int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
@@ -276,7 +294,7 @@ final class MinFilterSeparableOpImage extends MinFilterOpImage {
                      int imageOffset = srcPixelOffset;
 		     minval = Integer.MAX_VALUE;
                      for (int v = 0; v < wp; v++)  {
-                          val = srcData[imageOffset] & 0xfff;
+                          val = srcData[imageOffset] & 0xffff;
                           imageOffset += srcPixelStride;
 			  minval = (val < minval) ? val : minval;
                      }
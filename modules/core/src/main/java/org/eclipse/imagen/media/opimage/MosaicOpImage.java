@@ -25,7 +25,6 @@ import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Vector;
@@ -38,9 +37,12 @@ import org.eclipse.imagen.PlanarImage;
 import org.eclipse.imagen.RasterAccessor;
 import org.eclipse.imagen.RasterFormatTag;
 import org.eclipse.imagen.ROI;
+import org.eclipse.imagen.ROIRunLength;
+import org.eclipse.imagen.ROIShape;
 import org.eclipse.imagen.operator.MosaicType;
 import org.eclipse.imagen.operator.MosaicDescriptor;
 import org.eclipse.imagen.media.util.ImageUtil;
+import org.eclipse.imagen.media.util.RectangleIndex;
 
 public class MosaicOpImage extends OpImage {
     private static final int WEIGHT_TYPE_ALPHA = 1;
@@ -67,6 +69,18 @@ public class MosaicOpImage extends OpImage {
     private BorderExtender zeroExtender;
     private PlanarImage[] roiImage;
 
+    /** The bounds of the sources. */
+    private Rectangle[] sourceBounds;
+
+    /** Spatial index of the source bounds. */
+    private RectangleIndex sourceIndex;
+
+    /**
+     * Whether the threshold of each source is at or below the minimum
+     * value of the data type so that every source pixel has weight one.
+     */
+    private boolean[] isThresholdOpaque;
+
     private static final ImageLayout getLayout(Vector sources,
                                                ImageLayout layout) {
 
@@ -382,6 +396,67 @@ public class MosaicOpImage extends OpImage {
                 }
             }
         }
+
+        // Index the source bounds so that a tile only visits the sources
+        // which intersect it.
+        sourceBounds = new Rectangle[numSources];
+        for(int i = 0; i < numSources; i++) {
+            sourceBounds[i] = getSourceImage(i).getBounds();
+        }
+        sourceIndex = new RectangleIndex(sourceBounds);
+
+        // Determine which thresholds are passed by every sample value.
+        // Floating point thresholds never are as NaN fails the comparison.
+        double minValue;
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+        case DataBuffer.TYPE_USHORT:
+            minValue = 0.0;
+            break;
+        case DataBuffer.TYPE_SHORT:
+            minValue = Short.MIN_VALUE;
+            break;
+        case DataBuffer.TYPE_INT:
+            minValue = Integer.MIN_VALUE;
+            break;
+        default:
+            minValue = Double.NaN;
+        }
+        isThresholdOpaque = new boolean[numSources];
+        for(int i = 0; i < numSources; i++) {
+            isThresholdOpaque[i] = true;
+            for(int j = 0; j < numBands; j++) {
+                if(!(this.sourceThreshold[i][j] <= minValue)) {
+                    isThresholdOpaque[i] = false;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if every pixel of the source at
+     * <code>sourceIndex</code> has a non-zero weight within
+     * <code>rect</code>.  In an overlay such a source hides all the
+     * sources which follow it.
+     */
+    private boolean isOpaque(int sourceIndex, Rectangle rect) {
+        if(!sourceBounds[sourceIndex].contains(rect) ||
+           (sourceAlpha != null && sourceAlpha[sourceIndex] != null)) {
+            return false;
+        }
+
+        if(sourceROI != null && sourceROI[sourceIndex] != null) {
+            // The ROI image of a shape has all pixels set which lie
+            // entirely within the shape.
+            ROI roi = sourceROI[sourceIndex];
+            if(roi instanceof ROIRunLength) {
+                return roi.contains(rect);
+            }
+            return roi instanceof ROIShape && roi.getAsShape().contains(rect);
+        }
+
+        return isThresholdOpaque[sourceIndex];
     }
 
     public Rectangle mapDestRect(Rectangle destRect,
@@ -419,7 +494,45 @@ public class MosaicOpImage extends OpImage {
         // Determine the active area; tile intersects with image's bounds.
         Rectangle destRect = getTileRect(tileX, tileY);
 
-        int numSources = getNumSources();
+        // Get the sources which intersect the active area in order.
+        int[] sourceIndices = sourceIndex.query(destRect);
+
+        // Skip the sources weighted by a run-length ROI which excludes
+        // the whole active area as their weight is zero everywhere in it.
+        if(sourceROI != null) {
+            int numVisible = 0;
+            for(int k = 0; k < sourceIndices.length; k++) {
+                int i = sourceIndices[k];
+                ROI roi = sourceROI[i];
+                if(!(roi instanceof ROIRunLength) ||
+                   (sourceAlpha != null && sourceAlpha[i] != null) ||
+                   roi.intersects(destRect)) {
+                    sourceIndices[numVisible++] = sourceIndices[k];
+                }
+            }
+            if(numVisible < sourceIndices.length) {
+                int[] visibleIndices = new int[numVisible];
+                System.arraycopy(sourceIndices, 0,
+                                 visibleIndices, 0, numVisible);
+                sourceIndices = visibleIndices;
+            }
+        }
+
+        // In an overlay skip the sources below one which is opaque
+        // over the whole active area.
+        if(mosaicType == MosaicDescriptor.MOSAIC_TYPE_OVERLAY) {
+            for(int k = 0; k < sourceIndices.length - 1; k++) {
+                if(isOpaque(sourceIndices[k], destRect)) {
+                    int[] visibleIndices = new int[k + 1];
+                    System.arraycopy(sourceIndices, 0,
+                                     visibleIndices, 0, k + 1);
+                    sourceIndices = visibleIndices;
+                    break;
+                }
+            }
+        }
+
+        int numSources = sourceIndices.length;
 
         Raster[] rasterSources = new Raster[numSources];
         Raster[] alpha = sourceAlpha != null ?
@@ -428,41 +541,34 @@ public class MosaicOpImage extends OpImage {
             new Raster[numSources] : null;
 
         // Cobble areas
-        for (int i = 0; i < numSources; i++) {
+        for (int k = 0; k < numSources; k++) {
+            int i = sourceIndices[k];
             PlanarImage source = getSourceImage(i);
-            Rectangle srcRect = mapDestRect(destRect, i);
-
-            // If srcRect is empty, set the Raster for this source to
-            // null; otherwise pass srcRect to getData(). If srcRect
-            // is null, getData() will return a Raster containing the
-            // data of the entire source image.
-            rasterSources[i] = srcRect != null && srcRect.isEmpty() ?
-                null : source.getExtendedData(destRect, sourceExtender);
-
-            if(rasterSources[i] != null) {
-                if(sourceAlpha != null && sourceAlpha[i] != null) {
-                    alpha[i] = sourceAlpha[i].getExtendedData(destRect,
-                                                              zeroExtender);
-                }
 
-                if(sourceROI != null && sourceROI[i] != null) {
-                    roi[i] = roiImage[i].getExtendedData(destRect,
-                                                         zeroExtender);
-                }
+            rasterSources[k] = source.getExtendedData(destRect,
+                                                      sourceExtender);
+
+            if(sourceAlpha != null && sourceAlpha[i] != null) {
+                alpha[k] = sourceAlpha[i].getExtendedData(destRect,
+                                                          zeroExtender);
+            }
+
+            if(sourceROI != null && sourceROI[i] != null) {
+                roi[k] = roiImage[i].getExtendedData(destRect,
+                                                     zeroExtender);
             }
         }
 
-        computeRect(rasterSources, dest, destRect, alpha, roi);
+        computeRect(rasterSources, sourceIndices, dest, destRect,
+                    alpha, roi);
 
-        for (int i = 0; i < numSources; i++) {
-            Raster sourceData = rasterSources[i];
-            if(sourceData != null) {
-                PlanarImage source = getSourceImage(i);
+        for (int k = 0; k < numSources; k++) {
+            Raster sourceData = rasterSources[k];
+            PlanarImage source = getSourceImage(sourceIndices[k]);
 
-                // Recycle the source tile
-                if(source.overlapsMultipleTiles(sourceData.getBounds())) {
-                    recycleTile(sourceData);
-                }
+            // Recycle the source tile
+            if(source.overlapsMultipleTiles(sourceData.getBounds())) {
+                recycleTile(sourceData);
             }
         }
 
@@ -483,25 +589,65 @@ public class MosaicOpImage extends OpImage {
         // Save the source count.
         int numSources = sources.length;
 
-        // Put all non-null sources in a list.
-        ArrayList sourceList = new ArrayList(numSources);
+        // Determine the positions of the non-null sources.
+        int numNonNullSources = 0;
         for(int i = 0; i < numSources; i++) {
             if(sources[i] != null) {
-                sourceList.add(sources[i]);
+                numNonNullSources++;
+            }
+        }
+        int[] sourceIndices = new int[numNonNullSources];
+        for(int i = 0, k = 0; i < numSources; i++) {
+            if(sources[i] != null) {
+                sourceIndices[k++] = i;
             }
         }
 
+        // Pack the non-null sources and their alpha and ROI data.
+        Raster[] s = new Raster[numNonNullSources];
+        Raster[] a = alphaRaster != null ?
+            new Raster[numNonNullSources] : null;
+        Raster[] r = roiRaster != null ?
+            new Raster[numNonNullSources] : null;
+        for(int k = 0; k < numNonNullSources; k++) {
+            int i = sourceIndices[k];
+            s[k] = sources[i];
+            if(a != null) {
+                a[k] = alphaRaster[i];
+            }
+            if(r != null) {
+                r[k] = roiRaster[i];
+            }
+        }
+
+        computeRect(s, sourceIndices, dest, destRect, a, r);
+    }
+
+    /**
+     * Computes the mosaic of the supplied sources, none of which may be
+     * <code>null</code>.  The source, alpha and ROI arrays are parallel;
+     * <code>sourceIndices</code> gives the position of each of their
+     * elements in the source list of the operation.
+     */
+    private void computeRect(Raster[] sources,
+                             int[] sourceIndices,
+                             WritableRaster dest,
+                             Rectangle destRect,
+                             Raster[] alphaRaster,
+                             Raster[] roiRaster) {
+        // Save the source count.
+        int numSources = sources.length;
+
         // Clear the background and return if no sources.
-        int numNonNullSources = sourceList.size();
-        if(numNonNullSources == 0) {
+        if(numSources == 0) {
             ImageUtil.fillBackground(dest, destRect, backgroundValues);
             return;
         }
 
         // Determine the format tag id.
-        SampleModel[] sourceSM = new SampleModel[numNonNullSources];
-        for(int i = 0; i < numNonNullSources; i++) {
-            sourceSM[i] = ((Raster)sourceList.get(i)).getSampleModel();
+        SampleModel[] sourceSM = new SampleModel[numSources];
+        for(int i = 0; i < numSources; i++) {
+            sourceSM[i] = sources[i].getSampleModel();
         }
         int formatTagID =
             RasterAccessor.findCompatibleTag(sourceSM,
@@ -510,13 +656,11 @@ public class MosaicOpImage extends OpImage {
         // Create source accessors.
         RasterAccessor[] s = new RasterAccessor[numSources];
         for(int i = 0; i < numSources; i++) {
-            if(sources[i] != null) {
-                RasterFormatTag formatTag =
-                    new RasterFormatTag(sources[i].getSampleModel(),
-                                        formatTagID);
-                s[i] = new RasterAccessor(sources[i], destRect, formatTag,
-                                          null);
-            }
+            RasterFormatTag formatTag =
+                new RasterFormatTag(sources[i].getSampleModel(),
+                                    formatTagID);
+            s[i] = new RasterAccessor(sources[i], destRect, formatTag,
+                                      null);
         }
 
         // Create dest accessor.
@@ -536,9 +680,10 @@ public class MosaicOpImage extends OpImage {
                         RasterAccessor.findCompatibleTag(null, alphaSM);
                     RasterFormatTag alphaFormatTag =
                         new RasterFormatTag(alphaSM, alphaFormatTagID);
+                    PlanarImage alpha = sourceAlpha[sourceIndices[i]];
                     a[i] = new RasterAccessor(alphaRaster[i], destRect,  
                                               alphaFormatTag,
-                                              sourceAlpha[i].getColorModel());
+                                              alpha.getColorModel());
                 }
             }
         }
@@ -546,22 +691,22 @@ public class MosaicOpImage extends OpImage {
         // Branch to data type-specific method.
         switch (d.getDataType()) {
         case DataBuffer.TYPE_BYTE:
-            computeRectByte(s, d, a, roiRaster);
+            computeRectByte(s, sourceIndices, d, a, roiRaster);
             break;
         case DataBuffer.TYPE_USHORT:
-            computeRectUShort(s, d, a, roiRaster);
+            computeRectUShort(s, sourceIndices, d, a, roiRaster);
             break;
         case DataBuffer.TYPE_SHORT:
-            computeRectShort(s, d, a, roiRaster);
+            computeRectShort(s, sourceIndices, d, a, roiRaster);
             break;
         case DataBuffer.TYPE_INT:
-            computeRectInt(s, d, a, roiRaster);
+            computeRectInt(s, sourceIndices, d, a, roiRaster);
             break;
         case DataBuffer.TYPE_FLOAT:
-            computeRectFloat(s, d, a, roiRaster);
+            computeRectFloat(s, sourceIndices, d, a, roiRaster);
             break;
         case DataBuffer.TYPE_DOUBLE:
-            computeRectDouble(s, d, a, roiRaster);
+            computeRectDouble(s, sourceIndices, d, a, roiRaster);
             break;
         }
 
@@ -569,12 +714,19 @@ public class MosaicOpImage extends OpImage {
     }
 
     private void computeRectByte(RasterAccessor[] src,
+                                 int[] sourceIndices,
                                  RasterAccessor dst,
                                  RasterAccessor[] alfa,
                                  Raster[] roi) {
         // Save the source count.
         int numSources = src.length;
 
+        // Get the thresholds of the sources.
+        double[][] thresholds = new double[numSources][];
+        for(int i = 0; i < numSources; i++) {
+            thresholds[i] = sourceThreshold[sourceIndices[i]];
+        }
+
         // Allocate stride, offset, and data arrays for sources.
         int[] srcLineStride = new int[numSources];
         int[] srcPixelStride = new int[numSources];
@@ -643,7 +795,8 @@ public class MosaicOpImage extends OpImage {
             weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
             if(alfa[i] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
+            } else if(sourceROI != null &&
+                      sourceROI[sourceIndices[i]] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ROI;
             }
         }
@@ -727,7 +880,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     (sourceValue&0xff) >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -810,7 +963,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     (sourceValue&0xff) >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
@@ -837,12 +990,19 @@ public class MosaicOpImage extends OpImage {
     }
 
     private void computeRectUShort(RasterAccessor[] src,
+                                   int[] sourceIndices,
                                    RasterAccessor dst,
                                    RasterAccessor[] alfa,
                                    Raster[] roi) {
         // Save the source count.
         int numSources = src.length;
 
+        // Get the thresholds of the sources.
+        double[][] thresholds = new double[numSources][];
+        for(int i = 0; i < numSources; i++) {
+            thresholds[i] = sourceThreshold[sourceIndices[i]];
+        }
+
         // Allocate stride, offset, and data arrays for sources.
         int[] srcLineStride = new int[numSources];
         int[] srcPixelStride = new int[numSources];
@@ -911,7 +1071,8 @@ public class MosaicOpImage extends OpImage {
             weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
             if(alfa[i] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
+            } else if(sourceROI != null &&
+                      sourceROI[sourceIndices[i]] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ROI;
             }
         }
@@ -995,7 +1156,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     (sourceValue&0xffff) >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -1078,7 +1239,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     (sourceValue&0xffff) >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
@@ -1105,12 +1266,19 @@ public class MosaicOpImage extends OpImage {
     }
 
     private void computeRectShort(RasterAccessor[] src,
+                                  int[] sourceIndices,
                                   RasterAccessor dst,
                                   RasterAccessor[] alfa,
                                   Raster[] roi) {
         // Save the source count.
         int numSources = src.length;
 
+        // Get the thresholds of the sources.
+        double[][] thresholds = new double[numSources][];
+        for(int i = 0; i < numSources; i++) {
+            thresholds[i] = sourceThreshold[sourceIndices[i]];
+        }
+
         // Allocate stride, offset, and data arrays for sources.
         int[] srcLineStride = new int[numSources];
         int[] srcPixelStride = new int[numSources];
@@ -1179,7 +1347,8 @@ public class MosaicOpImage extends OpImage {
             weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
             if(alfa[i] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
+            } else if(sourceROI != null &&
+                      sourceROI[sourceIndices[i]] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ROI;
             }
         }
@@ -1263,7 +1432,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     sourceValue >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -1346,7 +1515,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     sourceValue >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
@@ -1373,12 +1542,19 @@ public class MosaicOpImage extends OpImage {
     }
 
     private void computeRectInt(RasterAccessor[] src,
+                                int[] sourceIndices,
                                 RasterAccessor dst,
                                 RasterAccessor[] alfa,
                                 Raster[] roi) {
         // Save the source count.
         int numSources = src.length;
 
+        // Get the thresholds of the sources.
+        double[][] thresholds = new double[numSources][];
+        for(int i = 0; i < numSources; i++) {
+            thresholds[i] = sourceThreshold[sourceIndices[i]];
+        }
+
         // Allocate stride, offset, and data arrays for sources.
         int[] srcLineStride = new int[numSources];
         int[] srcPixelStride = new int[numSources];
@@ -1447,7 +1623,8 @@ public class MosaicOpImage extends OpImage {
             weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
             if(alfa[i] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
+            } else if(sourceROI != null &&
+                      sourceROI[sourceIndices[i]] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ROI;
             }
         }
@@ -1531,7 +1708,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     sourceValue >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -1614,7 +1791,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     sourceValue >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
@@ -1641,12 +1818,19 @@ public class MosaicOpImage extends OpImage {
     }
 
     private void computeRectFloat(RasterAccessor[] src,
+                                  int[] sourceIndices,
                                   RasterAccessor dst,
                                   RasterAccessor[] alfa,
                                   Raster[] roi) {
         // Save the source count.
         int numSources = src.length;
 
+        // Get the thresholds of the sources.
+        double[][] thresholds = new double[numSources][];
+        for(int i = 0; i < numSources; i++) {
+            thresholds[i] = sourceThreshold[sourceIndices[i]];
+        }
+
         // Allocate stride, offset, and data arrays for sources.
         int[] srcLineStride = new int[numSources];
         int[] srcPixelStride = new int[numSources];
@@ -1715,7 +1899,8 @@ public class MosaicOpImage extends OpImage {
             weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
             if(alfa[i] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
+            } else if(sourceROI != null &&
+                      sourceROI[sourceIndices[i]] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ROI;
             }
         }
@@ -1799,7 +1984,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     sourceValue >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -1880,7 +2065,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     sourceValue >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
@@ -1907,12 +2092,19 @@ public class MosaicOpImage extends OpImage {
     }
 
     private void computeRectDouble(RasterAccessor[] src,
+                                   int[] sourceIndices,
                                    RasterAccessor dst,
                                    RasterAccessor[] alfa,
                                    Raster[] roi) {
         // Save the source count.
         int numSources = src.length;
 
+        // Get the thresholds of the sources.
+        double[][] thresholds = new double[numSources][];
+        for(int i = 0; i < numSources; i++) {
+            thresholds[i] = sourceThreshold[sourceIndices[i]];
+        }
+
         // Allocate stride, offset, and data arrays for sources.
         int[] srcLineStride = new int[numSources];
         int[] srcPixelStride = new int[numSources];
@@ -1981,7 +2173,8 @@ public class MosaicOpImage extends OpImage {
             weightTypes[i] = WEIGHT_TYPE_THRESHOLD;
             if(alfa[i] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ALPHA;
-            } else if(sourceROI != null && sourceROI[i] != null) {
+            } else if(sourceROI != null &&
+                      sourceROI[sourceIndices[i]] != null) {
                 weightTypes[i] = WEIGHT_TYPE_ROI;
             }
         }
@@ -2065,7 +2258,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 setDestValue =
                                     sourceValue >=
-                                    sourceThreshold[s][b];
+                                    thresholds[s][b];
                             }
 
                             // Set the destination value if a non-zero
@@ -2146,7 +2339,7 @@ public class MosaicOpImage extends OpImage {
                             default: // WEIGHT_TYPE_THRESHOLD
                                 weight =
                                     sourceValue >=
-                                    sourceThreshold[s][b] ?
+                                    thresholds[s][b] ?
                                     1.0F : 0.0F;
                             }
 
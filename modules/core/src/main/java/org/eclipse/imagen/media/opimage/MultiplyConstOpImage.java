@@ -123,11 +123,11 @@ final class MultiplyConstOpImage extends ColormapOpImage {
 
         Rectangle srcRect = mapDestRect(destRect, 0);
 
-        RasterAccessor dst = new RasterAccessor(dest, destRect,  
-                                                formatTags[1], getColorModel());
-        RasterAccessor src = new RasterAccessor(sources[0], srcRect,  
-                                                formatTags[0], 
-                                                getSource(0).getColorModel());
+        RasterAccessor dst = createRasterAccessor(dest, destRect,
+                                                  formatTags[1], getColorModel());
+        RasterAccessor src = createRasterAccessor(sources[0], srcRect,
+                                                  formatTags[0],
+                                                  getSource(0).getColorModel());
 
         switch (dst.getDataType()) {
         case DataBuffer.TYPE_BYTE:
@@ -155,6 +155,9 @@ final class MultiplyConstOpImage extends ColormapOpImage {
             dst.clampDataArrays();
         }
         dst.copyDataToRaster();
+
+        recycleRasterAccessor(src);
+        recycleRasterAccessor(dst);
     }
     private void computeRectByte(RasterAccessor src,
                                  RasterAccessor dst) {
@@ -153,6 +153,70 @@ final class RescaleOpImage extends ColormapOpImage {
         }
     }
 
+    /**
+     * Returns the per-pixel function of this operation for
+     * <code>FusedPointOpImage</code>, or <code>null</code> if the
+     * colormap is transformed or the source data type differs.
+     */
+    FusedPointOpImage.Stage getFusedStage() {
+        final int dataType = sampleModel.getDataType();
+        if (isColormapOperation() ||
+            getSourceImage(0).getSampleModel().getDataType() != dataType) {
+            return null;
+        }
+
+        return new FusedPointOpImage.Stage(sampleModel.getNumBands(),
+                                           dataType) {
+            void apply(double[][] src, double[][] dst, int length) {
+                for (int b = 0; b < numBands; b++) {
+                    double[] s = src[b];
+                    double[] d = dst[b];
+                    double c = constants[b];
+                    double o = offsets[b];
+                    float fc = (float)c;
+                    float fo = (float)o;
+
+                    // Same arithmetic as the computeRect variants.
+                    switch (dataType) {
+                    case DataBuffer.TYPE_BYTE:
+                        for (int i = 0; i < length; i++) {
+                            d[i] = ImageUtil.clampRoundByte(s[i] * c + o) &
+                                0xFF;
+                        }
+                        break;
+                    case DataBuffer.TYPE_USHORT:
+                        for (int i = 0; i < length; i++) {
+                            d[i] = ImageUtil.clampRoundUShort(
+                                       (int)s[i] * fc + fo) & 0xFFFF;
+                        }
+                        break;
+                    case DataBuffer.TYPE_SHORT:
+                        for (int i = 0; i < length; i++) {
+                            d[i] = ImageUtil.clampRoundShort(
+                                       (int)s[i] * fc + fo);
+                        }
+                        break;
+                    case DataBuffer.TYPE_INT:
+                        for (int i = 0; i < length; i++) {
+                            d[i] = ImageUtil.clampRoundInt(s[i] * c + o);
+                        }
+                        break;
+                    case DataBuffer.TYPE_FLOAT:
+                        for (int i = 0; i < length; i++) {
+                            d[i] = ImageUtil.clampFloat(s[i] * c + o);
+                        }
+                        break;
+                    case DataBuffer.TYPE_DOUBLE:
+                        for (int i = 0; i < length; i++) {
+                            d[i] = s[i] * c + o;
+                        }
+                        break;
+                    }
+                }
+            }
+        };
+    }
+
     /**
      * Rescales to the pixel values within a specified rectangle.
      *
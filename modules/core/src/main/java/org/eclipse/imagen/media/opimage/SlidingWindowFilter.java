@@ -0,0 +1,533 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.opimage;
+import java.awt.image.DataBuffer;
+import org.eclipse.imagen.RasterAccessor;
+
+/**
+ * Rank filters over rectangular windows whose cost per pixel does not
+ * grow, or grows only linearly, with the size of the window.  They are
+ * used by the median, maximum, minimum, dilate and erode operations
+ * for integral data of up to 16 bits when the window is large enough
+ * for the direct evaluation of every window to be slower.
+ *
+ * <p> The maximum and the minimum are computed with the van Herk /
+ * Gil-Werman algorithm, which needs about three comparisons per sample
+ * and per dimension whatever the size of the window.  The median of
+ * byte data is computed with the Perreault-Hebert algorithm, which
+ * keeps a histogram per column of the image and slides a two level
+ * histogram of the window along each row.  The median of 16 bit data
+ * slides a two level histogram of 256 coarse and 65536 fine bins along
+ * each row, the position of the median being tracked in the coarse
+ * histogram from one pixel to the next.
+ *
+ * <p> The samples of a band are copied into an <code>int</code> plane
+ * before being filtered.  Signed short samples are offset by 32768 for
+ * the median so that the histograms are indexed by non-negative values.
+ *
+ */
+final class SlidingWindowFilter {
+
+    /**
+     * The smallest size of a square window for which the median is
+     * computed with histograms rather than by selection.
+     */
+    static final int MEDIAN_THRESHOLD = 5;
+
+    /**
+     * The smallest size of a window, in either dimension, for which
+     * the maximum and the minimum are computed with the van Herk /
+     * Gil-Werman algorithm.
+     */
+    static final int EXTREMUM_THRESHOLD = 5;
+
+    private SlidingWindowFilter() {}
+
+    /**
+     * Returns <code>true</code> if the filters of this class can
+     * process data of the given type.
+     */
+    static boolean isSupported(int dataType) {
+        return dataType == DataBuffer.TYPE_BYTE ||
+               dataType == DataBuffer.TYPE_USHORT ||
+               dataType == DataBuffer.TYPE_SHORT;
+    }
+
+    /**
+     * Computes the median of each square window of
+     * <code>size</code> x <code>size</code> source samples.
+     *
+     * @param src the source, which extends <code>size - 1</code>
+     *        samples beyond the destination in each dimension.
+     * @param dst the destination.
+     * @param size the size of the window.
+     */
+    static void median(RasterAccessor src, RasterAccessor dst, int size) {
+        int dataType = dst.getDataType();
+        int width = dst.getWidth();
+        int height = dst.getHeight();
+        int srcWidth = width + size - 1;
+        int srcHeight = height + size - 1;
+        int offset = dataType == DataBuffer.TYPE_SHORT ? 32768 : 0;
+
+        for (int k = 0; k < dst.getNumBands(); k++) {
+            int[] plane = getBand(src, k, srcWidth, srcHeight, false, offset);
+            int[] result = dataType == DataBuffer.TYPE_BYTE ?
+                byteMedian(plane, srcWidth, srcHeight, size) :
+                ushortMedian(plane, srcWidth, srcHeight, size);
+            setBand(dst, k, result, width, height, false, 0.0F, offset);
+        }
+    }
+
+    /**
+     * Computes the maximum or the minimum of each window of
+     * <code>kw</code> x <code>kh</code> source samples, adds the bias
+     * to it and clamps the result to the range of the data type.
+     *
+     * @param src the source, which extends <code>kw - 1</code> samples
+     *        beyond the destination horizontally and <code>kh - 1</code>
+     *        samples vertically.
+     * @param dst the destination.
+     * @param kw the width of the window.
+     * @param kh the height of the window.
+     * @param max <code>true</code> for the maximum,
+     *        <code>false</code> for the minimum.
+     * @param bias the value added to each extremum.
+     */
+    static void extremum(RasterAccessor src, RasterAccessor dst,
+                         int kw, int kh, boolean max, float bias) {
+        int width = dst.getWidth();
+        int height = dst.getHeight();
+        int srcWidth = width + kw - 1;
+        int srcHeight = height + kh - 1;
+
+        for (int k = 0; k < dst.getNumBands(); k++) {
+            // The minimum is the opposite of the maximum of the opposites.
+            int[] plane = getBand(src, k, srcWidth, srcHeight, !max, 0);
+            int[] result = runningMax(plane, srcWidth, srcHeight, kw, kh);
+            setBand(dst, k, result, width, height, !max, bias, 0);
+        }
+    }
+
+    /**
+     * Copies a band of the source into a plane of <code>width</code> x
+     * <code>height</code> values, negated if requested, plus the
+     * offset.
+     */
+    private static int[] getBand(RasterAccessor src, int band,
+                                 int width, int height,
+                                 boolean negate, int offset) {
+        int[] plane = new int[width * height];
+        int pixelStride = src.getPixelStride();
+        int scanlineStride = src.getScanlineStride();
+        int scanlineOffset = src.getBandOffsets()[band];
+        int sign = negate ? -1 : 1;
+        int index = 0;
+
+        switch (src.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            byte[] byteData = src.getByteDataArray(band);
+            for (int j = 0; j < height; j++) {
+                int pixelOffset = scanlineOffset;
+                for (int i = 0; i < width; i++) {
+                    plane[index++] = sign * (byteData[pixelOffset] & 0xff);
+                    pixelOffset += pixelStride;
+                }
+                scanlineOffset += scanlineStride;
+            }
+            break;
+
+        case DataBuffer.TYPE_USHORT:
+            short[] ushortData = src.getShortDataArray(band);
+            for (int j = 0; j < height; j++) {
+                int pixelOffset = scanlineOffset;
+                for (int i = 0; i < width; i++) {
+                    plane[index++] = sign * (ushortData[pixelOffset] & 0xffff);
+                    pixelOffset += pixelStride;
+                }
+                scanlineOffset += scanlineStride;
+            }
+            break;
+
+        case DataBuffer.TYPE_SHORT:
+            short[] shortData = src.getShortDataArray(band);
+            for (int j = 0; j < height; j++) {
+                int pixelOffset = scanlineOffset;
+                for (int i = 0; i < width; i++) {
+                    plane[index++] = sign * shortData[pixelOffset] + offset;
+                    pixelOffset += pixelStride;
+                }
+                scanlineOffset += scanlineStride;
+            }
+            break;
+        }
+
+        return plane;
+    }
+
+    /**
+     * Stores the first <code>width</code> x <code>height</code> values
+     * of a plane in a band of the destination, undoing the negation
+     * and the offset applied by <code>getBand()</code>.  A non-zero
+     * bias is added to each value in floating point, and the result
+     * is clamped to the range of the data type.
+     */
+    private static void setBand(RasterAccessor dst, int band, int[] plane,
+                                int width, int height,
+                                boolean negate, float bias, int offset) {
+        int pixelStride = dst.getPixelStride();
+        int scanlineStride = dst.getScanlineStride();
+        int scanlineOffset = dst.getBandOffsets()[band];
+        int sign = negate ? -1 : 1;
+        int dataType = dst.getDataType();
+        int minValue = 0;
+        int maxValue = 0xff;
+        if (dataType == DataBuffer.TYPE_USHORT) {
+            maxValue = 0xffff;
+        } else if (dataType == DataBuffer.TYPE_SHORT) {
+            minValue = Short.MIN_VALUE;
+            maxValue = Short.MAX_VALUE;
+        }
+        byte[] byteData = null;
+        short[] shortData = null;
+        if (dataType == DataBuffer.TYPE_BYTE) {
+            byteData = dst.getByteDataArray(band);
+        } else {
+            shortData = dst.getShortDataArray(band);
+        }
+        int index = 0;
+
+        for (int j = 0; j < height; j++) {
+            int pixelOffset = scanlineOffset;
+            for (int i = 0; i < width; i++) {
+                int val = sign * (plane[index++] - offset);
+                if (bias != 0.0F) {
+                    val = (int)(val + bias);
+                    if (val < minValue) {
+                        val = minValue;
+                    } else if (val > maxValue) {
+                        val = maxValue;
+                    }
+                }
+                if (byteData != null) {
+                    byteData[pixelOffset] = (byte)val;
+                } else {
+                    shortData[pixelOffset] = (short)val;
+                }
+                pixelOffset += pixelStride;
+            }
+            scanlineOffset += scanlineStride;
+        }
+    }
+
+    /**
+     * Returns the maxima of the windows of <code>kw</code> x
+     * <code>kh</code> values of a plane, in the first
+     * <code>(width - kw + 1) x (height - kh + 1)</code> elements of
+     * the returned array.
+     *
+     * <p> Each dimension is divided into blocks of the size of the
+     * window.  Any window then overlaps at most two blocks, and its
+     * maximum is the larger of the suffix maximum of the first block
+     * and the prefix maximum of the second one.
+     */
+    private static int[] runningMax(int[] plane, int width, int height,
+                                    int kw, int kh) {
+        int dwidth = width - kw + 1;
+        int dheight = height - kh + 1;
+
+        // Horizontal pass, one row of the plane at a time.
+        int[] rows = plane;
+        if (kw > 1) {
+            rows = new int[height * dwidth];
+            int[] prefix = new int[width];
+            int[] suffix = new int[width];
+            for (int j = 0; j < height; j++) {
+                int rowOffset = j * width;
+                for (int b = 0; b < width; b += kw) {
+                    int end = Math.min(b + kw, width) - 1;
+                    int m = plane[rowOffset + b];
+                    prefix[b] = m;
+                    for (int i = b + 1; i <= end; i++) {
+                        int val = plane[rowOffset + i];
+                        if (val > m) {
+                            m = val;
+                        }
+                        prefix[i] = m;
+                    }
+                    m = plane[rowOffset + end];
+                    suffix[end] = m;
+                    for (int i = end - 1; i >= b; i--) {
+                        int val = plane[rowOffset + i];
+                        if (val > m) {
+                            m = val;
+                        }
+                        suffix[i] = m;
+                    }
+                }
+                int dstOffset = j * dwidth;
+                for (int i = 0; i < dwidth; i++) {
+                    int s = suffix[i];
+                    int p = prefix[i + kw - 1];
+                    rows[dstOffset + i] = s > p ? s : p;
+                }
+            }
+        }
+
+        if (kh == 1) {
+            return rows;
+        }
+
+        // Vertical pass, whole rows at a time to walk the memory in order.
+        // The suffix maxima are computed first, then the prefix maxima
+        // replace the rows of the horizontal pass.
+        int[] suffix = new int[height * dwidth];
+        for (int b = 0; b < height; b += kh) {
+            int end = Math.min(b + kh, height) - 1;
+            System.arraycopy(rows, end * dwidth, suffix, end * dwidth, dwidth);
+            for (int j = end - 1; j >= b; j--) {
+                int offset = j * dwidth;
+                for (int i = offset; i < offset + dwidth; i++) {
+                    int val = rows[i];
+                    int m = suffix[i + dwidth];
+                    suffix[i] = val > m ? val : m;
+                }
+            }
+            for (int j = b + 1; j <= end; j++) {
+                int offset = j * dwidth;
+                for (int i = offset; i < offset + dwidth; i++) {
+                    int val = rows[i];
+                    int m = rows[i - dwidth];
+                    if (m > val) {
+                        rows[i] = m;
+                    }
+                }
+            }
+        }
+
+        int prefixDelta = (kh - 1) * dwidth;
+        for (int i = 0; i < dheight * dwidth; i++) {
+            int s = suffix[i];
+            int p = rows[i + prefixDelta];
+            suffix[i] = s > p ? s : p;
+        }
+
+        return suffix;
+    }
+
+    /**
+     * Returns the medians of the windows of <code>size</code> x
+     * <code>size</code> values of a plane of byte values.
+     *
+     * <p> A histogram of 256 fine and 16 coarse bins is kept for each
+     * column over the rows of the current window, and updated by one
+     * addition and one removal when moving down a row.  Along a row
+     * the coarse histogram of the window is updated by adding the
+     * coarse histogram of the entering column and subtracting that of
+     * the leaving one.  The fine bins are only maintained for the
+     * coarse bins which contain a median, and are brought up to date
+     * when such a bin is visited again.
+     */
+    private static int[] byteMedian(int[] plane, int width, int height,
+                                    int size) {
+        int dwidth = width - size + 1;
+        int dheight = height - size + 1;
+        int target = (size * size) / 2;
+        int[] result = new int[dwidth * dheight];
+
+        int[] columnFine = new int[width * 256];
+        int[] columnCoarse = new int[width * 16];
+        int[] fine = new int[256];
+        int[] coarse = new int[16];
+        int[] fineColumn = new int[16];
+
+        for (int j = 0; j < size - 1; j++) {
+            int rowOffset = j * width;
+            for (int i = 0; i < width; i++) {
+                int val = plane[rowOffset + i];
+                columnFine[(i << 8) + val]++;
+                columnCoarse[(i << 4) + (val >> 4)]++;
+            }
+        }
+
+        for (int j = 0; j < dheight; j++) {
+            if (j > 0) {
+                int rowOffset = (j - 1) * width;
+                for (int i = 0; i < width; i++) {
+                    int val = plane[rowOffset + i];
+                    columnFine[(i << 8) + val]--;
+                    columnCoarse[(i << 4) + (val >> 4)]--;
+                }
+            }
+            int rowOffset = (j + size - 1) * width;
+            for (int i = 0; i < width; i++) {
+                int val = plane[rowOffset + i];
+                columnFine[(i << 8) + val]++;
+                columnCoarse[(i << 4) + (val >> 4)]++;
+            }
+
+            for (int b = 0; b < 16; b++) {
+                coarse[b] = 0;
+                // The fine bins are stale until they are rebuilt.
+                fineColumn[b] = -size;
+            }
+            for (int i = 0; i < size; i++) {
+                int columnOffset = i << 4;
+                for (int b = 0; b < 16; b++) {
+                    coarse[b] += columnCoarse[columnOffset + b];
+                }
+            }
+
+            int dstOffset = j * dwidth;
+            for (int i = 0; i < dwidth; i++) {
+                if (i > 0) {
+                    int leaving = (i - 1) << 4;
+                    int entering = (i + size - 1) << 4;
+                    for (int b = 0; b < 16; b++) {
+                        coarse[b] += columnCoarse[entering + b] -
+                                     columnCoarse[leaving + b];
+                    }
+                }
+
+                int count = 0;
+                int b = 0;
+                while (count + coarse[b] <= target) {
+                    count += coarse[b++];
+                }
+
+                int base = b << 4;
+                int last = fineColumn[b];
+                if (i - last >= size) {
+                    for (int v = base; v < base + 16; v++) {
+                        fine[v] = 0;
+                    }
+                    for (int c = i; c < i + size; c++) {
+                        int columnOffset = c << 8;
+                        for (int v = base; v < base + 16; v++) {
+                            fine[v] += columnFine[columnOffset + v];
+                        }
+                    }
+                } else {
+                    for (int c = last; c < i; c++) {
+                        int leaving = c << 8;
+                        int entering = (c + size) << 8;
+                        for (int v = base; v < base + 16; v++) {
+                            fine[v] += columnFine[entering + v] -
+                                       columnFine[leaving + v];
+                        }
+                    }
+                }
+                fineColumn[b] = i;
+
+                int v = base;
+                while (count + fine[v] <= target) {
+                    count += fine[v++];
+                }
+                result[dstOffset + i] = v;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the medians of the windows of <code>size</code> x
+     * <code>size</code> values of a plane of values between 0 and
+     * 65535.
+     *
+     * <p> The histogram of the window has 65536 fine bins and 256
+     * coarse ones, and is slid along each row by adding the entering
+     * column and removing the leaving one.  The coarse bin holding the
+     * median and the number of values below it are carried from one
+     * pixel to the next, so that only the fine bins of a single coarse
+     * bin are scanned for each pixel.
+     */
+    private static int[] ushortMedian(int[] plane, int width, int height,
+                                      int size) {
+        int dwidth = width - size + 1;
+        int dheight = height - size + 1;
+        int target = (size * size) / 2;
+        int[] result = new int[dwidth * dheight];
+
+        int[] fine = new int[65536];
+        int[] coarse = new int[256];
+
+        for (int j = 0; j < dheight; j++) {
+            for (int u = j; u < j + size; u++) {
+                int rowOffset = u * width;
+                for (int c = 0; c < size; c++) {
+                    int val = plane[rowOffset + c];
+                    fine[val]++;
+                    coarse[val >> 8]++;
+                }
+            }
+
+            int b = 0;
+            int below = 0;
+            int dstOffset = j * dwidth;
+            for (int i = 0; i < dwidth; i++) {
+                if (i > 0) {
+                    int leaving = j * width + i - 1;
+                    int entering = leaving + size;
+                    for (int u = 0; u < size; u++) {
+                        int val = plane[leaving];
+                        fine[val]--;
+                        coarse[val >> 8]--;
+                        if ((val >> 8) < b) {
+                            below--;
+                        }
+                        val = plane[entering];
+                        fine[val]++;
+                        coarse[val >> 8]++;
+                        if ((val >> 8) < b) {
+                            below++;
+                        }
+                        leaving += width;
+                        entering += width;
+                    }
+                }
+
+                while (below > target) {
+                    below -= coarse[--b];
+                }
+                while (below + coarse[b] <= target) {
+                    below += coarse[b++];
+                }
+
+                int count = below;
+                int v = b << 8;
+                while (count + fine[v] <= target) {
+                    count += fine[v++];
+                }
+                result[dstOffset + i] = v;
+            }
+
+            // Empty the histogram of the last window of the row.
+            for (int u = j; u < j + size; u++) {
+                int rowOffset = u * width + dwidth - 1;
+                for (int c = 0; c < size; c++) {
+                    int val = plane[rowOffset + c];
+                    fine[val]--;
+                    coarse[val >> 8]--;
+                }
+            }
+        }
+
+        return result;
+    }
+}
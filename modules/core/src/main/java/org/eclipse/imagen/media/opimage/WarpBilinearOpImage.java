@@ -31,8 +31,6 @@ import org.eclipse.imagen.RasterFormatTag;
 import java.util.Map;
 import org.eclipse.imagen.Warp;
 import org.eclipse.imagen.WarpOpImage;
-import org.eclipse.imagen.iterator.RandomIter;
-import org.eclipse.imagen.iterator.RandomIterFactory;
 
 /**
  * An <code>OpImage</code> implementing the general "Warp" operation as
@@ -129,18 +127,6 @@ final class WarpBilinearOpImage extends WarpOpImage {
     }
 
     private void computeRectByte(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter;
-        if(extender != null) {
-            Rectangle bounds = new Rectangle(src.getMinX(), src.getMinY(),
-                                             src.getWidth() + 1,
-                                             src.getHeight() + 1);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
-        } else {
-            iter = RandomIterFactory.create(src, src.getBounds());
-        }
-
         int minX = src.getMinX();
         int maxX = src.getMaxX() -
             (extender != null ? 0 : 1); // Right padding
@@ -157,7 +143,15 @@ final class WarpBilinearOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         byte[][] data = dst.getByteDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        byte[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -170,9 +164,28 @@ final class WarpBilinearOpImage extends WarpOpImage {
                 int pixelOffset = lineOffset;
                 lineOffset += lineStride;
 
-                warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
+                if (h % stripHeight == 0) {
+                    // Warp the next strip of rows and fetch its source samples.
+                    int rows = Math.min(stripHeight, dstHeight - h);
+                    warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows,
                               warpData);
-                int count = 0;
+                    count = 0;
+
+                    if (srcAccessor != null) {
+                        recycleRasterAccessor(srcAccessor);
+                    }
+                    srcAccessor = getSourceAccessor(src, warpData,
+                                                    dstWidth * rows, false,
+                                                    minX, maxX, minY, maxY);
+                    if (srcAccessor != null) {
+                        srcData = srcAccessor.getByteDataArrays();
+                        srcX = srcAccessor.getX();
+                        srcY = srcAccessor.getY();
+                        srcLineStride = srcAccessor.getScanlineStride();
+                        srcPixelStride = srcAccessor.getPixelStride();
+                        srcBandOffsets = srcAccessor.getBandOffsets();
+                    }
+                }
                 for (int w = 0; w < dstWidth; w++) {
                     float sx = warpData[count++];
                     float sy = warpData[count++];
@@ -192,11 +205,19 @@ final class WarpBilinearOpImage extends WarpOpImage {
                             }
                         }
                     } else {
+                        int tmp00 = (yint - srcY) * srcLineStride +
+                                    (xint - srcX) * srcPixelStride;
+                        int tmp01 = tmp00 + srcPixelStride;
+                        int tmp10 = tmp00 + srcLineStride;
+                        int tmp11 = tmp10 + srcPixelStride;
+
                         for (int b = 0; b < dstBands; b++) {
-                            int s00 = iter.getSample(xint, yint, b) & 0xFF;
-                            int s01 = iter.getSample(xint+1, yint, b) & 0xFF;
-                            int s10 = iter.getSample(xint, yint+1, b) & 0xFF;
-                            int s11 = iter.getSample(xint+1, yint+1, b) & 0xFF;
+                            int srcBandOffset = srcBandOffsets[b];
+
+                            int s00 = srcData[b][tmp00+srcBandOffset] & 0xFF;
+                            int s01 = srcData[b][tmp01+srcBandOffset] & 0xFF;
+                            int s10 = srcData[b][tmp10+srcBandOffset] & 0xFF;
+                            int s11 = srcData[b][tmp11+srcBandOffset] & 0xFF;
 
                             float s0 = (s01 - s00) * xfrac + s00;
                             float s1 = (s11 - s10) * xfrac + s10;
@@ -209,14 +230,37 @@ final class WarpBilinearOpImage extends WarpOpImage {
                     pixelOffset += pixelStride;
                 }
             }
+
+            if (srcAccessor != null) {
+                recycleRasterAccessor(srcAccessor);
+            }
         } else {	// source has IndexColorModel
             for (int h = 0; h < dstHeight; h++) {
                 int pixelOffset = lineOffset;
                 lineOffset += lineStride;
 
-                warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
+                if (h % stripHeight == 0) {
+                    // Warp the next strip of rows and fetch its source samples.
+                    int rows = Math.min(stripHeight, dstHeight - h);
+                    warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows,
                               warpData);
-                int count = 0;
+                    count = 0;
+
+                    if (srcAccessor != null) {
+                        recycleRasterAccessor(srcAccessor);
+                    }
+                    srcAccessor = getSourceAccessor(src, warpData,
+                                                    dstWidth * rows, false,
+                                                    minX, maxX, minY, maxY);
+                    if (srcAccessor != null) {
+                        srcData = srcAccessor.getByteDataArrays();
+                        srcX = srcAccessor.getX();
+                        srcY = srcAccessor.getY();
+                        srcLineStride = srcAccessor.getScanlineStride();
+                        srcPixelStride = srcAccessor.getPixelStride();
+                        srcBandOffsets = srcAccessor.getBandOffsets();
+                    }
+                }
                 for (int w = 0; w < dstWidth; w++) {
                     float sx = warpData[count++];
                     float sy = warpData[count++];
@@ -236,17 +280,24 @@ final class WarpBilinearOpImage extends WarpOpImage {
                             }
                         }
                     } else {
+                        int tmp00 = (yint - srcY) * srcLineStride +
+                                    (xint - srcX) * srcPixelStride;
+                        int tmp01 = tmp00 + srcPixelStride;
+                        int tmp10 = tmp00 + srcLineStride;
+                        int tmp11 = tmp10 + srcPixelStride;
+                        int srcBandOffset = srcBandOffsets[0];
+
                         for (int b = 0; b < dstBands; b++) {
                             byte[] t = ctable[b];
 
-                            int s00 = t[iter.getSample(xint, yint, 0) &
-                                                       0xFF] & 0xFF;
-                            int s01 = t[iter.getSample(xint+1, yint, 0) &
-                                                       0xFF] & 0xFF;
-                            int s10 = t[iter.getSample(xint, yint+1, 0) &
-                                                       0xFF] & 0xFF;
-                            int s11 = t[iter.getSample(xint+1, yint+1, 0) &
-                                                       0xFF] & 0xFF;
+                            int s00 = t[srcData[0][tmp00+srcBandOffset] &
+                                        0xFF] & 0xFF;
+                            int s01 = t[srcData[0][tmp01+srcBandOffset] &
+                                        0xFF] & 0xFF;
+                            int s10 = t[srcData[0][tmp10+srcBandOffset] &
+                                        0xFF] & 0xFF;
+                            int s11 = t[srcData[0][tmp11+srcBandOffset] &
+                                        0xFF] & 0xFF;
 
                             float s0 = (s01 - s00) * xfrac + s00;
                             float s1 = (s11 - s10) * xfrac + s10;
@@ -259,22 +310,14 @@ final class WarpBilinearOpImage extends WarpOpImage {
                     pixelOffset += pixelStride;
                 }
             }
+
+            if (srcAccessor != null) {
+                recycleRasterAccessor(srcAccessor);
+            }
         }
     }
 
     private void computeRectUShort(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter;
-        if(extender != null) {
-            Rectangle bounds = new Rectangle(src.getMinX(), src.getMinY(),
-                                             src.getWidth() + 1,
-                                             src.getHeight() + 1);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
-        } else {
-            iter = RandomIterFactory.create(src, src.getBounds());
-        }
-
         int minX = src.getMinX();
         int maxX = src.getMaxX() -
             (extender != null ? 0 : 1); // Right padding
@@ -291,7 +334,15 @@ final class WarpBilinearOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         short[][] data = dst.getShortDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        short[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -303,9 +354,27 @@ final class WarpBilinearOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
-                          warpData);
-            int count = 0;
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
+
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, false,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getShortDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 float sx = warpData[count++];
                 float sy = warpData[count++];
@@ -325,11 +394,19 @@ final class WarpBilinearOpImage extends WarpOpImage {
                         }
                     }
                 } else {
+                    int tmp00 = (yint - srcY) * srcLineStride +
+                                (xint - srcX) * srcPixelStride;
+                    int tmp01 = tmp00 + srcPixelStride;
+                    int tmp10 = tmp00 + srcLineStride;
+                    int tmp11 = tmp10 + srcPixelStride;
+
                     for (int b = 0; b < dstBands; b++) {
-                        int s00 = iter.getSample(xint, yint, b) & 0xFFFF;
-                        int s01 = iter.getSample(xint+1, yint, b) & 0xFFFF;
-                        int s10 = iter.getSample(xint, yint+1, b) & 0xFFFF;
-                        int s11 = iter.getSample(xint+1, yint+1, b) & 0xFFFF;
+                        int srcBandOffset = srcBandOffsets[b];
+
+                        int s00 = srcData[b][tmp00+srcBandOffset] & 0xFFFF;
+                        int s01 = srcData[b][tmp01+srcBandOffset] & 0xFFFF;
+                        int s10 = srcData[b][tmp10+srcBandOffset] & 0xFFFF;
+                        int s11 = srcData[b][tmp11+srcBandOffset] & 0xFFFF;
 
                         float s0 = (s01 - s00) * xfrac + s00;
                         float s1 = (s11 - s10) * xfrac + s10;
@@ -342,21 +419,13 @@ final class WarpBilinearOpImage extends WarpOpImage {
                 pixelOffset += pixelStride;
             }
         }
-    }
 
-    private void computeRectShort(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter;
-        if(extender != null) {
-            Rectangle bounds = new Rectangle(src.getMinX(), src.getMinY(),
-                                             src.getWidth() + 1,
-                                             src.getHeight() + 1);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
-        } else {
-            iter = RandomIterFactory.create(src, src.getBounds());
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
         }
+    }
 
+    private void computeRectShort(PlanarImage src, RasterAccessor dst) {
         int minX = src.getMinX();
         int maxX = src.getMaxX() -
             (extender != null ? 0 : 1); // Right padding
@@ -373,7 +442,15 @@ final class WarpBilinearOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         short[][] data = dst.getShortDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        short[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -385,9 +462,27 @@ final class WarpBilinearOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
-                          warpData);
-            int count = 0;
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
+
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, false,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getShortDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 float sx = warpData[count++];
                 float sy = warpData[count++];
@@ -407,11 +502,19 @@ final class WarpBilinearOpImage extends WarpOpImage {
                         }
                     }
                 } else {
+                    int tmp00 = (yint - srcY) * srcLineStride +
+                                (xint - srcX) * srcPixelStride;
+                    int tmp01 = tmp00 + srcPixelStride;
+                    int tmp10 = tmp00 + srcLineStride;
+                    int tmp11 = tmp10 + srcPixelStride;
+
                     for (int b = 0; b < dstBands; b++) {
-                        int s00 = iter.getSample(xint, yint, b);
-                        int s01 = iter.getSample(xint+1, yint, b);
-                        int s10 = iter.getSample(xint, yint+1, b);
-                        int s11 = iter.getSample(xint+1, yint+1, b);
+                        int srcBandOffset = srcBandOffsets[b];
+
+                        int s00 = srcData[b][tmp00+srcBandOffset];
+                        int s01 = srcData[b][tmp01+srcBandOffset];
+                        int s10 = srcData[b][tmp10+srcBandOffset];
+                        int s11 = srcData[b][tmp11+srcBandOffset];
 
                         float s0 = (s01 - s00) * xfrac + s00;
                         float s1 = (s11 - s10) * xfrac + s10;
@@ -424,21 +527,13 @@ final class WarpBilinearOpImage extends WarpOpImage {
                 pixelOffset += pixelStride;
             }
         }
-    }
 
-    private void computeRectInt(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter;
-        if(extender != null) {
-            Rectangle bounds = new Rectangle(src.getMinX(), src.getMinY(),
-                                             src.getWidth() + 1,
-                                             src.getHeight() + 1);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
-        } else {
-            iter = RandomIterFactory.create(src, src.getBounds());
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
         }
+    }
 
+    private void computeRectInt(PlanarImage src, RasterAccessor dst) {
         int minX = src.getMinX();
         int maxX = src.getMaxX() -
             (extender != null ? 0 : 1); // Right padding
@@ -455,7 +550,15 @@ final class WarpBilinearOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         int[][] data = dst.getIntDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        int[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -467,9 +570,27 @@ final class WarpBilinearOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
-                          warpData);
-            int count = 0;
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
+
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, false,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getIntDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 float sx = warpData[count++];
                 float sy = warpData[count++];
@@ -489,11 +610,19 @@ final class WarpBilinearOpImage extends WarpOpImage {
                         }
                     }
                 } else {
+                    int tmp00 = (yint - srcY) * srcLineStride +
+                                (xint - srcX) * srcPixelStride;
+                    int tmp01 = tmp00 + srcPixelStride;
+                    int tmp10 = tmp00 + srcLineStride;
+                    int tmp11 = tmp10 + srcPixelStride;
+
                     for (int b = 0; b < dstBands; b++) {
-                        int s00 = iter.getSample(xint, yint, b);
-                        int s01 = iter.getSample(xint+1, yint, b);
-                        int s10 = iter.getSample(xint, yint+1, b);
-                        int s11 = iter.getSample(xint+1, yint+1, b);
+                        int srcBandOffset = srcBandOffsets[b];
+
+                        int s00 = srcData[b][tmp00+srcBandOffset];
+                        int s01 = srcData[b][tmp01+srcBandOffset];
+                        int s10 = srcData[b][tmp10+srcBandOffset];
+                        int s11 = srcData[b][tmp11+srcBandOffset];
 
                         float s0 = (s01 - s00) * xfrac + s00;
                         float s1 = (s11 - s10) * xfrac + s10;
@@ -506,21 +635,13 @@ final class WarpBilinearOpImage extends WarpOpImage {
                 pixelOffset += pixelStride;
             }
         }
-    }
 
-    private void computeRectFloat(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter;
-        if(extender != null) {
-            Rectangle bounds = new Rectangle(src.getMinX(), src.getMinY(),
-                                             src.getWidth() + 1,
-                                             src.getHeight() + 1);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
-        } else {
-            iter = RandomIterFactory.create(src, src.getBounds());
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
         }
+    }
 
+    private void computeRectFloat(PlanarImage src, RasterAccessor dst) {
         int minX = src.getMinX();
         int maxX = src.getMaxX() -
             (extender != null ? 0 : 1); // Right padding
@@ -537,7 +658,15 @@ final class WarpBilinearOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         float[][] data = dst.getFloatDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        float[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -549,9 +678,27 @@ final class WarpBilinearOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
-                          warpData);
-            int count = 0;
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
+
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, false,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getFloatDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 float sx = warpData[count++];
                 float sy = warpData[count++];
@@ -571,11 +718,19 @@ final class WarpBilinearOpImage extends WarpOpImage {
                         }
                     }
                 } else {
+                    int tmp00 = (yint - srcY) * srcLineStride +
+                                (xint - srcX) * srcPixelStride;
+                    int tmp01 = tmp00 + srcPixelStride;
+                    int tmp10 = tmp00 + srcLineStride;
+                    int tmp11 = tmp10 + srcPixelStride;
+
                     for (int b = 0; b < dstBands; b++) {
-                        float s00 = iter.getSampleFloat(xint, yint, b);
-                        float s01 = iter.getSampleFloat(xint+1, yint, b);
-                        float s10 = iter.getSampleFloat(xint, yint+1, b);
-                        float s11 = iter.getSampleFloat(xint+1, yint+1, b);
+                        int srcBandOffset = srcBandOffsets[b];
+
+                        float s00 = srcData[b][tmp00+srcBandOffset];
+                        float s01 = srcData[b][tmp01+srcBandOffset];
+                        float s10 = srcData[b][tmp10+srcBandOffset];
+                        float s11 = srcData[b][tmp11+srcBandOffset];
 
                         float s0 = (s01 - s00) * xfrac + s00;
                         float s1 = (s11 - s10) * xfrac + s10;
@@ -588,21 +743,13 @@ final class WarpBilinearOpImage extends WarpOpImage {
                 pixelOffset += pixelStride;
             }
         }
-    }
 
-    private void computeRectDouble(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter;
-        if(extender != null) {
-            Rectangle bounds = new Rectangle(src.getMinX(), src.getMinY(),
-                                             src.getWidth() + 1,
-                                             src.getHeight() + 1);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
-        } else {
-            iter = RandomIterFactory.create(src, src.getBounds());
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
         }
+    }
 
+    private void computeRectDouble(PlanarImage src, RasterAccessor dst) {
         int minX = src.getMinX();
         int maxX = src.getMaxX() -
             (extender != null ? 0 : 1); // Right padding
@@ -619,7 +766,15 @@ final class WarpBilinearOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         double[][] data = dst.getDoubleDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        double[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -627,9 +782,27 @@ final class WarpBilinearOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
-                          warpData);
-            int count = 0;
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
+
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, false,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getDoubleDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 float sx = warpData[count++];
                 float sy = warpData[count++];
@@ -649,11 +822,19 @@ final class WarpBilinearOpImage extends WarpOpImage {
                         }
                     }
                 } else {
+                    int tmp00 = (yint - srcY) * srcLineStride +
+                                (xint - srcX) * srcPixelStride;
+                    int tmp01 = tmp00 + srcPixelStride;
+                    int tmp10 = tmp00 + srcLineStride;
+                    int tmp11 = tmp10 + srcPixelStride;
+
                     for (int b = 0; b < dstBands; b++) {
-                        double s00 = iter.getSampleDouble(xint, yint, b);
-                        double s01 = iter.getSampleDouble(xint+1, yint, b);
-                        double s10 = iter.getSampleDouble(xint, yint+1, b);
-                        double s11 = iter.getSampleDouble(xint+1, yint+1, b);
+                        int srcBandOffset = srcBandOffsets[b];
+
+                        double s00 = srcData[b][tmp00+srcBandOffset];
+                        double s01 = srcData[b][tmp01+srcBandOffset];
+                        double s10 = srcData[b][tmp10+srcBandOffset];
+                        double s11 = srcData[b][tmp11+srcBandOffset];
 
                         double s0 = (s01 - s00) * xfrac + s00;
                         double s1 = (s11 - s10) * xfrac + s10;
@@ -666,6 +847,10 @@ final class WarpBilinearOpImage extends WarpOpImage {
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     /** Returns the "floor" value of a float. */
@@ -31,8 +31,6 @@ import org.eclipse.imagen.RasterFormatTag;
 import java.util.Map;
 import org.eclipse.imagen.Warp;
 import org.eclipse.imagen.WarpOpImage;
-import org.eclipse.imagen.iterator.RandomIter;
-import org.eclipse.imagen.iterator.RandomIterFactory;
 import org.eclipse.imagen.media.util.ImageUtil;
 
 /**
@@ -141,25 +139,16 @@ final class WarpGeneralOpImage extends WarpOpImage {
         }
 
         int minX, maxX, minY, maxY;
-        RandomIter iter;
         if(extender != null) {
             minX = src.getMinX();
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
             minY = src.getMinY() + tpad;
             maxY = src.getMaxY() - bpad;
-            iter = RandomIterFactory.create(src, src.getBounds());
         }
 
         int kwidth = interp.getWidth();
@@ -177,7 +166,15 @@ final class WarpGeneralOpImage extends WarpOpImage {
         int precH = 1 << interp.getSubsampleBitsH();
         int precV = 1 << interp.getSubsampleBitsV();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        byte[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int[][] samples = new int[kheight][kwidth];
 
@@ -192,9 +189,28 @@ final class WarpGeneralOpImage extends WarpOpImage {
                 int pixelOffset = lineOffset;
                 lineOffset += lineStride;
 
-                warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1, warpData);
+                if (h % stripHeight == 0) {
+                    // Warp the next strip of rows and fetch its source samples.
+                    int rows = Math.min(stripHeight, dstHeight - h);
+                    warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows,
+                              warpData);
+                    count = 0;
 
-                int count = 0;
+                    if (srcAccessor != null) {
+                        recycleRasterAccessor(srcAccessor);
+                    }
+                    srcAccessor = getSourceAccessor(src, warpData,
+                                                    dstWidth * rows, false,
+                                                    minX, maxX, minY, maxY);
+                    if (srcAccessor != null) {
+                        srcData = srcAccessor.getByteDataArrays();
+                        srcX = srcAccessor.getX();
+                        srcY = srcAccessor.getY();
+                        srcLineStride = srcAccessor.getScanlineStride();
+                        srcPixelStride = srcAccessor.getPixelStride();
+                        srcBandOffsets = srcAccessor.getBandOffsets();
+                    }
+                }
                 for (int w = 0; w < dstWidth; w++) {
                     float sx = warpData[count++];
                     float sy = warpData[count++];
@@ -217,12 +233,19 @@ final class WarpGeneralOpImage extends WarpOpImage {
                         xint -= lpad;
                         yint -= tpad;
 
+                        int srcOffset = (yint - srcY) * srcLineStride +
+                                        (xint - srcX) * srcPixelStride;
+
                         for (int b = 0; b < dstBands; b++) {
+                            int rowOffset = srcOffset+srcBandOffsets[b];
+
                             for (int j = 0; j < kheight; j++) {
+                                int pos = rowOffset;
                                 for (int i = 0; i < kwidth; i++) {
-                                    samples[j][i] = iter.getSample(
-                                        xint+i, yint+j, b) & 0xFF;
+                                    samples[j][i] = srcData[b][pos] & 0xFF;
+                                    pos += srcPixelStride;
                                 }
+                                rowOffset += srcLineStride;
                             }
 
                             data[b][pixelOffset+bandOffsets[b]] =
@@ -234,14 +257,37 @@ final class WarpGeneralOpImage extends WarpOpImage {
                     pixelOffset += pixelStride;
                 }
             }
+
+            if (srcAccessor != null) {
+                recycleRasterAccessor(srcAccessor);
+            }
         } else {	// source has IndexColorModel
             for (int h = 0; h < dstHeight; h++) {
                 int pixelOffset = lineOffset;
                 lineOffset += lineStride;
 
-                warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1, warpData);
+                if (h % stripHeight == 0) {
+                    // Warp the next strip of rows and fetch its source samples.
+                    int rows = Math.min(stripHeight, dstHeight - h);
+                    warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows,
+                              warpData);
+                    count = 0;
 
-                int count = 0;
+                    if (srcAccessor != null) {
+                        recycleRasterAccessor(srcAccessor);
+                    }
+                    srcAccessor = getSourceAccessor(src, warpData,
+                                                    dstWidth * rows, false,
+                                                    minX, maxX, minY, maxY);
+                    if (srcAccessor != null) {
+                        srcData = srcAccessor.getByteDataArrays();
+                        srcX = srcAccessor.getX();
+                        srcY = srcAccessor.getY();
+                        srcLineStride = srcAccessor.getScanlineStride();
+                        srcPixelStride = srcAccessor.getPixelStride();
+                        srcBandOffsets = srcAccessor.getBandOffsets();
+                    }
+                }
                 for (int w = 0; w < dstWidth; w++) {
                     float sx = warpData[count++];
                     float sy = warpData[count++];
@@ -264,14 +310,21 @@ final class WarpGeneralOpImage extends WarpOpImage {
                         xint -= lpad;
                         yint -= tpad;
 
+                        int srcOffset = (yint - srcY) * srcLineStride +
+                                        (xint - srcX) * srcPixelStride;
+
                         for (int b = 0; b < dstBands; b++) {
                             byte[] t = ctable[b];
+                            int rowOffset = srcOffset+srcBandOffsets[0];
 
                             for (int j = 0; j < kheight; j++) {
+                                int pos = rowOffset;
                                 for (int i = 0; i < kwidth; i++) {
-                                    samples[j][i] = t[iter.getSample(
-                                        xint+i, yint+j, 0) & 0xFF] & 0xFF;
+                                    samples[j][i] =
+                                        t[srcData[0][pos] & 0xFF] & 0xFF;
+                                    pos += srcPixelStride;
                                 }
+                                rowOffset += srcLineStride;
                             }
 
                             data[b][pixelOffset+bandOffsets[b]] =
@@ -283,6 +336,10 @@ final class WarpGeneralOpImage extends WarpOpImage {
                     pixelOffset += pixelStride;
                 }
             }
+
+            if (srcAccessor != null) {
+                recycleRasterAccessor(srcAccessor);
+            }
         }
     }
 
@@ -298,25 +355,16 @@ final class WarpGeneralOpImage extends WarpOpImage {
         }
 
         int minX, maxX, minY, maxY;
-        RandomIter iter;
         if(extender != null) {
             minX = src.getMinX();
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
             minY = src.getMinY() + tpad;
             maxY = src.getMaxY() - bpad;
-            iter = RandomIterFactory.create(src, src.getBounds());
         }
 
         int kwidth = interp.getWidth();
@@ -334,7 +382,15 @@ final class WarpGeneralOpImage extends WarpOpImage {
         int precH = 1 << interp.getSubsampleBitsH();
         int precV = 1 << interp.getSubsampleBitsV();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        short[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int[][] samples = new int[kheight][kwidth];
 
@@ -348,9 +404,27 @@ final class WarpGeneralOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1, warpData);
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
 
-            int count = 0;
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, false,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getShortDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 float sx = warpData[count++];
                 float sy = warpData[count++];
@@ -373,12 +447,19 @@ final class WarpGeneralOpImage extends WarpOpImage {
                     xint -= lpad;
                     yint -= tpad;
 
+                    int srcOffset = (yint - srcY) * srcLineStride +
+                                    (xint - srcX) * srcPixelStride;
+
                     for (int b = 0; b < dstBands; b++) {
+                        int rowOffset = srcOffset+srcBandOffsets[b];
+
                         for (int j = 0; j < kheight; j++) {
+                            int pos = rowOffset;
                             for (int i = 0; i < kwidth; i++) {
-                                samples[j][i] = iter.getSample(
-                                    xint+i, yint+j, b) & 0xFFFF;
+                                samples[j][i] = srcData[b][pos] & 0xFFFF;
+                                pos += srcPixelStride;
                             }
+                            rowOffset += srcLineStride;
                         }
 
                         data[b][pixelOffset+bandOffsets[b]] =
@@ -390,6 +471,10 @@ final class WarpGeneralOpImage extends WarpOpImage {
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     private void computeRectShort(PlanarImage src, RasterAccessor dst) {
@@ -404,25 +489,16 @@ final class WarpGeneralOpImage extends WarpOpImage {
         }
 
         int minX, maxX, minY, maxY;
-        RandomIter iter;
         if(extender != null) {
             minX = src.getMinX();
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
             minY = src.getMinY() + tpad;
             maxY = src.getMaxY() - bpad;
-            iter = RandomIterFactory.create(src, src.getBounds());
         }
 
         int kwidth = interp.getWidth();
@@ -440,7 +516,15 @@ final class WarpGeneralOpImage extends WarpOpImage {
         int precH = 1 << interp.getSubsampleBitsH();
         int precV = 1 << interp.getSubsampleBitsV();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        short[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int[][] samples = new int[kheight][kwidth];
 
@@ -454,9 +538,27 @@ final class WarpGeneralOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1, warpData);
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
 
-            int count = 0;
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, false,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getShortDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 float sx = warpData[count++];
                 float sy = warpData[count++];
@@ -479,12 +581,19 @@ final class WarpGeneralOpImage extends WarpOpImage {
                     xint -= lpad;
                     yint -= tpad;
 
+                    int srcOffset = (yint - srcY) * srcLineStride +
+                                    (xint - srcX) * srcPixelStride;
+
                     for (int b = 0; b < dstBands; b++) {
+                        int rowOffset = srcOffset+srcBandOffsets[b];
+
                         for (int j = 0; j < kheight; j++) {
+                            int pos = rowOffset;
                             for (int i = 0; i < kwidth; i++) {
-                                samples[j][i] = iter.getSample(
-                                    xint+i, yint+j, b);
+                                samples[j][i] = srcData[b][pos];
+                                pos += srcPixelStride;
                             }
+                            rowOffset += srcLineStride;
                         }
 
                         data[b][pixelOffset+bandOffsets[b]] =
@@ -496,6 +605,10 @@ final class WarpGeneralOpImage extends WarpOpImage {
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     private void computeRectInt(PlanarImage src, RasterAccessor dst) {
@@ -510,25 +623,16 @@ final class WarpGeneralOpImage extends WarpOpImage {
         }
 
         int minX, maxX, minY, maxY;
-        RandomIter iter;
         if(extender != null) {
             minX = src.getMinX();
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
             minY = src.getMinY() + tpad;
             maxY = src.getMaxY() - bpad;
-            iter = RandomIterFactory.create(src, src.getBounds());
         }
 
         int kwidth = interp.getWidth();
@@ -546,7 +650,15 @@ final class WarpGeneralOpImage extends WarpOpImage {
         int precH = 1 << interp.getSubsampleBitsH();
         int precV = 1 << interp.getSubsampleBitsV();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        int[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int[][] samples = new int[kheight][kwidth];
 
@@ -560,9 +672,27 @@ final class WarpGeneralOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1, warpData);
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
 
-            int count = 0;
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, false,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getIntDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 float sx = warpData[count++];
                 float sy = warpData[count++];
@@ -585,12 +715,19 @@ final class WarpGeneralOpImage extends WarpOpImage {
                     xint -= lpad;
                     yint -= tpad;
 
+                    int srcOffset = (yint - srcY) * srcLineStride +
+                                    (xint - srcX) * srcPixelStride;
+
                     for (int b = 0; b < dstBands; b++) {
+                        int rowOffset = srcOffset+srcBandOffsets[b];
+
                         for (int j = 0; j < kheight; j++) {
+                            int pos = rowOffset;
                             for (int i = 0; i < kwidth; i++) {
-                                samples[j][i] = iter.getSample(
-                                    xint+i, yint+j, b);
+                                samples[j][i] = srcData[b][pos];
+                                pos += srcPixelStride;
                             }
+                            rowOffset += srcLineStride;
                         }
 
                         data[b][pixelOffset+bandOffsets[b]] =
@@ -601,6 +738,10 @@ final class WarpGeneralOpImage extends WarpOpImage {
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     private void computeRectFloat(PlanarImage src, RasterAccessor dst) {
@@ -615,25 +756,16 @@ final class WarpGeneralOpImage extends WarpOpImage {
         }
 
         int minX, maxX, minY, maxY;
-        RandomIter iter;
         if(extender != null) {
             minX = src.getMinX();
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
             minY = src.getMinY() + tpad;
             maxY = src.getMaxY() - bpad;
-            iter = RandomIterFactory.create(src, src.getBounds());
         }
 
         int kwidth = interp.getWidth();
@@ -648,7 +780,15 @@ final class WarpGeneralOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         float[][] data = dst.getFloatDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        float[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         float[][] samples = new float[kheight][kwidth];
 
@@ -662,9 +802,27 @@ final class WarpGeneralOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1, warpData);
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
 
-            int count = 0;
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, false,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getFloatDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 float sx = warpData[count++];
                 float sy = warpData[count++];
@@ -687,12 +845,19 @@ final class WarpGeneralOpImage extends WarpOpImage {
                     xint -= lpad;
                     yint -= tpad;
 
+                    int srcOffset = (yint - srcY) * srcLineStride +
+                                    (xint - srcX) * srcPixelStride;
+
                     for (int b = 0; b < dstBands; b++) {
+                        int rowOffset = srcOffset+srcBandOffsets[b];
+
                         for (int j = 0; j < kheight; j++) {
+                            int pos = rowOffset;
                             for (int i = 0; i < kwidth; i++) {
-                                samples[j][i] = iter.getSampleFloat(
-                                    xint+i, yint+j, b);
+                                samples[j][i] = srcData[b][pos];
+                                pos += srcPixelStride;
                             }
+                            rowOffset += srcLineStride;
                         }
 
                         data[b][pixelOffset+bandOffsets[b]] =
@@ -703,6 +868,10 @@ final class WarpGeneralOpImage extends WarpOpImage {
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     private void computeRectDouble(PlanarImage src, RasterAccessor dst) {
@@ -717,25 +886,16 @@ final class WarpGeneralOpImage extends WarpOpImage {
         }
 
         int minX, maxX, minY, maxY;
-        RandomIter iter;
         if(extender != null) {
             minX = src.getMinX();
             maxX = src.getMaxX();
             minY = src.getMinY();
             maxY = src.getMaxY();
-            Rectangle bounds = new Rectangle(src.getMinX() - lpad,
-                                             src.getMinY() - tpad,
-                                             src.getWidth() + lpad + rpad,
-                                             src.getHeight() + tpad + bpad);
-            iter = RandomIterFactory.create(src.getExtendedData(bounds,
-                                                                extender),
-                                            bounds);
         } else {
             minX = src.getMinX() + lpad;
             maxX = src.getMaxX() - rpad;
             minY = src.getMinY() + tpad;
             maxY = src.getMaxY() - bpad;
-            iter = RandomIterFactory.create(src, src.getBounds());
         }
 
         int kwidth = interp.getWidth();
@@ -750,7 +910,15 @@ final class WarpGeneralOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         double[][] data = dst.getDoubleDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        double[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         double[][] samples = new double[kheight][kwidth];
 
@@ -760,9 +928,27 @@ final class WarpGeneralOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1, warpData);
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
 
-            int count = 0;
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, false,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getDoubleDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 float sx = warpData[count++];
                 float sy = warpData[count++];
@@ -785,12 +971,19 @@ final class WarpGeneralOpImage extends WarpOpImage {
                     xint -= lpad;
                     yint -= tpad;
 
+                    int srcOffset = (yint - srcY) * srcLineStride +
+                                    (xint - srcX) * srcPixelStride;
+
                     for (int b = 0; b < dstBands; b++) {
+                        int rowOffset = srcOffset+srcBandOffsets[b];
+
                         for (int j = 0; j < kheight; j++) {
+                            int pos = rowOffset;
                             for (int i = 0; i < kwidth; i++) {
-                                samples[j][i] = iter.getSampleDouble(
-                                    xint+i, yint+j, b);
+                                samples[j][i] = srcData[b][pos];
+                                pos += srcPixelStride;
                             }
+                            rowOffset += srcLineStride;
                         }
 
                         data[b][pixelOffset+bandOffsets[b]] =
@@ -801,6 +994,10 @@ final class WarpGeneralOpImage extends WarpOpImage {
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     /** Returns the "floor" value of a float. */
@@ -31,8 +31,6 @@ import org.eclipse.imagen.RasterFormatTag;
 import java.util.Map;
 import org.eclipse.imagen.Warp;
 import org.eclipse.imagen.WarpOpImage;
-import org.eclipse.imagen.iterator.RandomIter;
-import org.eclipse.imagen.iterator.RandomIterFactory;
 
 /**
  * An <code>OpImage</code> implementing the general "Warp" operation as
@@ -128,8 +126,6 @@ final class WarpNearestOpImage extends WarpOpImage {
     }
 
     private void computeRectByte(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter = RandomIterFactory.create(src, src.getBounds());
-
         int minX = src.getMinX();
         int maxX = src.getMaxX();
         int minY = src.getMinY();
@@ -144,7 +140,15 @@ final class WarpNearestOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         byte[][] data = dst.getByteDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        byte[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -156,9 +160,27 @@ final class WarpNearestOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
-                          warpData);
-            int count = 0;
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
+
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, true,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getByteDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 /*
                  * The warp object subtract 0.5 from backward mapped
@@ -178,20 +200,24 @@ final class WarpNearestOpImage extends WarpOpImage {
                         }
                     }
                 } else {
+                    int srcOffset = (sy - srcY) * srcLineStride +
+                                    (sx - srcX) * srcPixelStride;
                     for (int b = 0; b < dstBands; b++) {
                         data[b][pixelOffset+bandOffsets[b]] =
-                            (byte)(iter.getSample(sx, sy, b) & 0xFF);
+                            srcData[b][srcOffset+srcBandOffsets[b]];
                     }
                 }
 
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     private void computeRectUShort(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter = RandomIterFactory.create(src, src.getBounds());
-
         int minX = src.getMinX();
         int maxX = src.getMaxX();
         int minY = src.getMinY();
@@ -206,7 +232,15 @@ final class WarpNearestOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         short[][] data = dst.getShortDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        short[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -218,9 +252,27 @@ final class WarpNearestOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
-                          warpData);
-            int count = 0;
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
+
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, true,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getShortDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 /*
                  * The warp object subtract 0.5 from backward mapped
@@ -240,20 +292,24 @@ final class WarpNearestOpImage extends WarpOpImage {
                         }
                     }
                 } else {
+                    int srcOffset = (sy - srcY) * srcLineStride +
+                                    (sx - srcX) * srcPixelStride;
                     for (int b = 0; b < dstBands; b++) {
                         data[b][pixelOffset+bandOffsets[b]] =
-                            (short)(iter.getSample(sx, sy, b) & 0xFFFF);
+                            srcData[b][srcOffset+srcBandOffsets[b]];
                     }
                 }
 
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     private void computeRectShort(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter = RandomIterFactory.create(src, src.getBounds());
-
         int minX = src.getMinX();
         int maxX = src.getMaxX();
         int minY = src.getMinY();
@@ -268,7 +324,15 @@ final class WarpNearestOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         short[][] data = dst.getShortDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        short[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -280,9 +344,27 @@ final class WarpNearestOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
-                          warpData);
-            int count = 0;
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
+
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, true,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getShortDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 /*
                  * The warp object subtract 0.5 from backward mapped
@@ -302,20 +384,24 @@ final class WarpNearestOpImage extends WarpOpImage {
                         }
                     }
                 } else {
+                    int srcOffset = (sy - srcY) * srcLineStride +
+                                    (sx - srcX) * srcPixelStride;
                     for (int b = 0; b < dstBands; b++) {
                         data[b][pixelOffset+bandOffsets[b]] =
-                            (short)iter.getSample(sx, sy, b);
+                            (short)srcData[b][srcOffset+srcBandOffsets[b]];
                     }
                 }
 
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     private void computeRectInt(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter = RandomIterFactory.create(src, src.getBounds());
-
         int minX = src.getMinX();
         int maxX = src.getMaxX();
         int minY = src.getMinY();
@@ -330,7 +416,15 @@ final class WarpNearestOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         int[][] data = dst.getIntDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        int[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -342,9 +436,27 @@ final class WarpNearestOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
-                          warpData);
-            int count = 0;
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
+
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, true,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getIntDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 /*
                  * The warp object subtract 0.5 from backward mapped
@@ -364,20 +476,24 @@ final class WarpNearestOpImage extends WarpOpImage {
                         }
                     }
                 } else {
+                    int srcOffset = (sy - srcY) * srcLineStride +
+                                    (sx - srcX) * srcPixelStride;
                     for (int b = 0; b < dstBands; b++) {
                         data[b][pixelOffset+bandOffsets[b]] =
-                            iter.getSample(sx, sy, b);
+                            srcData[b][srcOffset+srcBandOffsets[b]];
                     }
                 }
 
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     private void computeRectFloat(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter = RandomIterFactory.create(src, src.getBounds());
-
         int minX = src.getMinX();
         int maxX = src.getMaxX();
         int minY = src.getMinY();
@@ -392,7 +508,15 @@ final class WarpNearestOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         float[][] data = dst.getFloatDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        float[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -404,9 +528,27 @@ final class WarpNearestOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
-                          warpData);
-            int count = 0;
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
+
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, true,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getFloatDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 /*
                  * The warp object subtract 0.5 from backward mapped
@@ -426,20 +568,24 @@ final class WarpNearestOpImage extends WarpOpImage {
                         }
                     }
                 } else {
+                    int srcOffset = (sy - srcY) * srcLineStride +
+                                    (sx - srcX) * srcPixelStride;
                     for (int b = 0; b < dstBands; b++) {
                         data[b][pixelOffset+bandOffsets[b]] =
-                            iter.getSampleFloat(sx, sy, b);
+                            srcData[b][srcOffset+srcBandOffsets[b]];
                     }
                 }
 
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     private void computeRectDouble(PlanarImage src, RasterAccessor dst) {
-        RandomIter iter = RandomIterFactory.create(src, src.getBounds());
-
         int minX = src.getMinX();
         int maxX = src.getMaxX();
         int minY = src.getMinY();
@@ -454,7 +600,15 @@ final class WarpNearestOpImage extends WarpOpImage {
         int[] bandOffsets = dst.getBandOffsets();
         double[][] data = dst.getDoubleDataArrays();
 
-        float[] warpData = new float[2 * dstWidth];
+        int stripHeight = getStripHeight(dstWidth);
+        float[] warpData = new float[2 * dstWidth * stripHeight];
+        int count = 0;
+
+        RasterAccessor srcAccessor = null;
+        double[][] srcData = null;
+        int srcX = 0, srcY = 0;
+        int srcLineStride = 0, srcPixelStride = 0;
+        int[] srcBandOffsets = null;
 
         int lineOffset = 0;
 
@@ -462,9 +616,27 @@ final class WarpNearestOpImage extends WarpOpImage {
             int pixelOffset = lineOffset;
             lineOffset += lineStride;
 
-            warp.warpRect(dst.getX(), dst.getY()+h, dstWidth, 1,
-                          warpData);
-            int count = 0;
+            if (h % stripHeight == 0) {
+                // Warp the next strip of rows and fetch its source samples.
+                int rows = Math.min(stripHeight, dstHeight - h);
+                warpStrip(dst.getX(), dst.getY()+h, dstWidth, rows, warpData);
+                count = 0;
+
+                if (srcAccessor != null) {
+                    recycleRasterAccessor(srcAccessor);
+                }
+                srcAccessor = getSourceAccessor(src, warpData,
+                                                dstWidth * rows, true,
+                                                minX, maxX, minY, maxY);
+                if (srcAccessor != null) {
+                    srcData = srcAccessor.getDoubleDataArrays();
+                    srcX = srcAccessor.getX();
+                    srcY = srcAccessor.getY();
+                    srcLineStride = srcAccessor.getScanlineStride();
+                    srcPixelStride = srcAccessor.getPixelStride();
+                    srcBandOffsets = srcAccessor.getBandOffsets();
+                }
+            }
             for (int w = 0; w < dstWidth; w++) {
                 /*
                  * The warp object subtract 0.5 from backward mapped
@@ -484,15 +656,21 @@ final class WarpNearestOpImage extends WarpOpImage {
                         }
                     }
                 } else {
+                    int srcOffset = (sy - srcY) * srcLineStride +
+                                    (sx - srcX) * srcPixelStride;
                     for (int b = 0; b < dstBands; b++) {
                         data[b][pixelOffset+bandOffsets[b]] =
-                            iter.getSampleDouble(sx, sy, b);
+                            srcData[b][srcOffset+srcBandOffsets[b]];
                     }
                 }
 
                 pixelOffset += pixelStride;
             }
         }
+
+        if (srcAccessor != null) {
+            recycleRasterAccessor(srcAccessor);
+        }
     }
 
     /** Returns the "round" value of a float. */
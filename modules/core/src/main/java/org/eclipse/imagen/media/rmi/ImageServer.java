@@ -17,6 +17,7 @@
 
 package org.eclipse.imagen.media.rmi;
 
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.ColorModel;
@@ -204,6 +205,16 @@ public interface ImageServer extends Remote {
     /** Returns the Y offset of the tile grid relative to the origin. */
     int getTileGridYOffset(Long id) throws RemoteException;
 
+    /**
+     * Returns the layout of the image, including its
+     * <code>SampleModel</code> and <code>ColorModel</code>, together
+     * with the names of its properties.  This replaces the round trips
+     * of the individual layout and property name methods.
+     *
+     * @param id An ID for the source which must be unique across all clients.
+     */
+    RemoteImageInfo getImageInfo(Long id) throws RemoteException;
+
     /**
      * Returns tile (x, y).  Note that x and y are indices into the
      * tile array, not pixel locations.  Unlike in the true RenderedImage
@@ -228,6 +239,32 @@ public interface ImageServer extends Remote {
      */
     byte[] getCompressedTile(Long id, int x, int y) throws RemoteException;
 
+    /**
+     * Returns the tiles at the given indices in a single call.  The
+     * tiles are computed by the server as a batch, and the
+     * <code>Raster</code>s that are returned should be considered copies.
+     *
+     * @param id An ID for the source which must be unique across all clients.
+     * @param tileIndices the indices of the requested tiles in the tile
+     *        array.
+     * @return copies of the tiles, in the order of the indices.
+     */
+    SerializableState[] getTiles(Long id, Point[] tileIndices)
+	throws RemoteException;
+
+    /**
+     * Compresses the tiles at the given indices and returns their
+     * compressed contents in a single call.
+     *
+     * @param id An ID for the source which must be unique across all clients.
+     * @param tileIndices the indices of the requested tiles in the tile
+     *        array.
+     * @return byte arrays containing the compressed tile contents, in
+     *         the order of the indices.
+     */
+    byte[][] getCompressedTiles(Long id, Point[] tileIndices)
+	throws RemoteException;
+
     /**
      * Returns the entire image as a single Raster.
      *
@@ -18,6 +18,7 @@
 package org.eclipse.imagen.media.rmi;
 
 import java.awt.Dimension;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
@@ -46,6 +47,7 @@ import java.util.Iterator;
 import java.util.Vector;
 import org.eclipse.imagen.CollectionOp;
 import org.eclipse.imagen.CollectionImage;
+import org.eclipse.imagen.ImageLayout;
 import org.eclipse.imagen.JAI;
 import org.eclipse.imagen.OperationDescriptor;
 import org.eclipse.imagen.OperationRegistry;
@@ -383,6 +385,17 @@ public class JAIRMIImageServer extends UnicastRemoteObject
         return SerializerFactory.getState(getSource(id).getColorModel(), null);
     }
 
+    /**
+     * Returns the layout of the image, including its
+     * <code>SampleModel</code> and <code>ColorModel</code>, together
+     * with the names of its properties.
+     */
+    public RemoteImageInfo getImageInfo(Long id) throws RemoteException {
+
+	return new RemoteImageInfo(new ImageLayout(getSource(id)),
+				   getPropertyNames(id));
+    }
+
     /** Returns a Rectangle indicating the image bounds. */
     public Rectangle getBounds(Long id) throws RemoteException {
 
@@ -420,6 +433,55 @@ public class JAIRMIImageServer extends UnicastRemoteObject
     public byte[] getCompressedTile(Long id, int x, int y)
 	throws RemoteException {
 
+	return compressTiles(id, new Raster[] {getSource(id).getTile(x, y)})[0];
+    }
+
+    /**
+     * Returns the tiles at the given indices.  The tiles are requested
+     * from the source as a batch, allowing it to compute them in
+     * parallel.
+     *
+     * @param id An ID for the source which must be unique across all clients.
+     * @param tileIndices the indices of the requested tiles in the tile
+     *        array.
+     * @return the tiles, in the order of the indices.
+     */
+    public SerializableState[] getTiles(Long id, Point[] tileIndices)
+	throws RemoteException {
+
+	Raster[] tiles = getSource(id).getTiles(tileIndices);
+
+	SerializableState[] states = new SerializableState[tiles.length];
+	for (int i = 0; i < tiles.length; i++) {
+	    states[i] = SerializerFactory.getState(tiles[i], null);
+	}
+
+	return states;
+    }
+
+    /**
+     * Compresses the tiles at the given indices and returns their
+     * compressed contents.  The tiles are requested from the source as
+     * a batch, allowing it to compute them in parallel.
+     *
+     * @param id An ID for the source which must be unique across all clients.
+     * @param tileIndices the indices of the requested tiles in the tile
+     *        array.
+     * @return byte arrays containing the compressed tile contents, in
+     *         the order of the indices.
+     */
+    public byte[][] getCompressedTiles(Long id, Point[] tileIndices)
+	throws RemoteException {
+
+	return compressTiles(id, getSource(id).getTiles(tileIndices));
+    }
+
+    /**
+     * Compresses tiles using the tile codec negotiated for the given
+     * client.
+     */
+    private byte[][] compressTiles(Long id, Raster[] tiles) {
+
 	TileCodecParameterList tcpl = null;
 	TileEncoderFactory tef = null;
 	NegotiableCapability codecCap = null;
@@ -493,18 +555,23 @@ public class JAIRMIImageServer extends UnicastRemoteObject
 		}
 	    }
 
-	    Raster r = getSource(id).getTile(x, y);
-	    ByteArrayOutputStream stream = new ByteArrayOutputStream();
-	    TileEncoder encoder = tef.createEncoder(stream, tcpl,
-						    r.getSampleModel());
+	    byte[][] ctiles = new byte[tiles.length][];
+	    for (int i = 0; i < tiles.length; i++) {
+		Raster r = tiles[i];
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		TileEncoder encoder = tef.createEncoder(stream, tcpl,
+							r.getSampleModel());
+
+		try {
+		    encoder.encode(r);
+		} catch (java.io.IOException ioe) {
+		    throw new RuntimeException(ioe.getMessage());
+		}
 
-	    try {
-		encoder.encode(r);
-	    } catch (java.io.IOException ioe) {
-		throw new RuntimeException(ioe.getMessage());
+		ctiles[i] = stream.toByteArray();
 	    }
 
-	    return stream.toByteArray();
+	    return ctiles;
 	} else {
 	    throw new RuntimeException(
 				     JaiI18N.getString("JAIRMIImageServer2"));
@@ -18,13 +18,12 @@
 package org.eclipse.imagen.media.rmi;
 
 import java.awt.Image;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
-import java.awt.image.ColorModel;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
-import java.awt.image.SampleModel;
 import java.awt.image.renderable.RenderContext;
 import java.awt.image.renderable.ParameterBlock;
 import java.io.ByteArrayInputStream;
@@ -96,6 +95,9 @@ public class RMIServerProxy extends PlanarImageServerProxy {
     // Cache the listener
     private ImagingListener listener;
 
+    // The names of the remote properties, as returned with the layout.
+    private String[] remotePropertyNames = null;
+
     /**
      * Construct an RMIServerProxy. This constructor should only be used
      * when the source is a RenderedOp on a different server.
@@ -801,22 +803,11 @@ public class RMIServerProxy extends PlanarImageServerProxy {
      */
     public ImageLayout getImageLayout() throws RemoteImagingException {
 
-	ImageLayout layout = new ImageLayout();
 	try {
-	    layout.setMinX(remoteImage.getMinX(id));
-	    layout.setMinY(remoteImage.getMinY(id));
-	    layout.setWidth(remoteImage.getWidth(id));
-	    layout.setHeight(remoteImage.getHeight(id));
-	    layout.setTileWidth(remoteImage.getTileWidth(id));
-	    layout.setTileHeight(remoteImage.getTileHeight(id));
-	    layout.setTileGridXOffset(remoteImage.getTileGridXOffset(id));
-	    layout.setTileGridYOffset(remoteImage.getTileGridYOffset(id));
-
-	    SerializableState smState = remoteImage.getSampleModel(id);
-	    layout.setSampleModel((SampleModel)(smState.getObject()));
-	    SerializableState cmState = remoteImage.getColorModel(id);
-	    layout.setColorModel((ColorModel)(cmState.getObject()));
-            return layout;
+	    // Get the layout and the property names in a single call.
+	    RemoteImageInfo info = remoteImage.getImageInfo(id);
+	    remotePropertyNames = info.getPropertyNames();
+            return info.getImageLayout();
 	} catch (RemoteException re) {
             String message = JaiI18N.getString("RMIServerProxy14");
             listener.errorOccurred(message,
@@ -843,6 +834,42 @@ public class RMIServerProxy extends PlanarImageServerProxy {
 	    return null;
 	}
 
+	return computeTiles(new Point[] {new Point(tileX, tileY)})[0];
+    }
+
+    /**
+     * Gets the requested tiles from the server in a single call, the
+     * server processing them as a batch.  The entries for tiles outside
+     * this image's boundary are <code>null</code>.
+     *
+     * @throws a RemoteImagingException if a RemoteException is thrown
+     *         during the RMI communication.
+     */
+    public Raster[] computeTiles(Point[] tileIndices)
+	throws RemoteImagingException {
+
+	Raster[] tiles = new Raster[tileIndices.length];
+
+	// Only request the tiles inside this image's boundary.
+	int numTiles = 0;
+	int[] positions = new int[tileIndices.length];
+	for (int i = 0; i < tileIndices.length; i++) {
+	    Point p = tileIndices[i];
+	    if (p.x >= getMinTileX() && p.x <= getMaxTileX() &&
+		p.y >= getMinTileY() && p.y <= getMaxTileY()) {
+		positions[numTiles++] = i;
+	    }
+	}
+
+	if (numTiles == 0) {
+	    return tiles;
+	}
+
+	Point[] indices = new Point[numTiles];
+	for (int i = 0; i < numTiles; i++) {
+	    indices[i] = tileIndices[positions[i]];
+	}
+
 	// Since "tileCodec" is the only category that we care about or honor
 	// currently in the remote communication.
 	NegotiableCapability codecCap = getNegotiatedValue("tileCodec");
@@ -921,21 +948,25 @@ public class RMIServerProxy extends PlanarImageServerProxy {
 	try {
 	    // If a compression hint was set, use it
 	    if (codecCap != null) {
-		byte ctile[] = remoteImage.getCompressedTile(id,
-							     tileX,
-							     tileY);
-		ByteArrayInputStream stream = new ByteArrayInputStream(ctile);
-		TileDecoder decoder = tdf.createDecoder(stream, tcpl);
-		try {
-		    return decoder.decode();
-		} catch (java.io.IOException ioe) {
-		    throw new RemoteImagingException(ImageUtil.getStackTraceString(ioe));
+		byte ctiles[][] = remoteImage.getCompressedTiles(id, indices);
+		for (int i = 0; i < numTiles; i++) {
+		    ByteArrayInputStream stream =
+			new ByteArrayInputStream(ctiles[i]);
+		    TileDecoder decoder = tdf.createDecoder(stream, tcpl);
+		    try {
+			tiles[positions[i]] = decoder.decode();
+		    } catch (java.io.IOException ioe) {
+			throw new RemoteImagingException(ImageUtil.getStackTraceString(ioe));
+		    }
 		}
 	    } else {
 		// Ask for uncompressed tiles.
-		SerializableState rp = remoteImage.getTile(id, tileX, tileY);
-		return (Raster)(rp.getObject());
+		SerializableState rp[] = remoteImage.getTiles(id, indices);
+		for (int i = 0; i < numTiles; i++) {
+		    tiles[positions[i]] = (Raster)(rp[i].getObject());
+		}
 	    }
+	    return tiles;
 	} catch (RemoteException e) {
             String message = JaiI18N.getString("RMIServerProxy15");
             listener.errorOccurred(message,
@@ -944,7 +975,7 @@ public class RMIServerProxy extends PlanarImageServerProxy {
 //	    throw new RemoteImagingException(ImageUtil.getStackTraceString(e));
 	}
 
-        return null;
+        return tiles;
     }
 
     public Object getRemoteProperty(String name)
@@ -975,6 +1006,12 @@ public class RMIServerProxy extends PlanarImageServerProxy {
      *         image processing occurs
      */
     public String[] getRemotePropertyNames() throws RemoteImagingException {
+
+	// The names returned along with the layout, if it was requested.
+	if (remotePropertyNames != null) {
+	    return remotePropertyNames;
+	}
+
 	try {
 	    return remoteImage.getPropertyNames(id);
 	} catch (RemoteException re) {
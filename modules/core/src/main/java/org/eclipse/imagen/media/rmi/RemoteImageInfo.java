@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.rmi;
+
+import java.io.Serializable;
+import org.eclipse.imagen.ImageLayout;
+
+/**
+ * The layout and the property names of an image on an
+ * <code>ImageServer</code>, which are returned together so that a
+ * client needs a single remote call to set up its proxy of the image.
+ *
+ * <p> The values of the properties are not included, as some of them
+ * are only computed when requested.
+ *
+ * @see ImageServer#getImageInfo(Long)
+ */
+public final class RemoteImageInfo implements Serializable {
+
+    /** The layout of the image, with all of its fields set. */
+    private ImageLayout layout;
+
+    /** The names of the properties of the image, may be null. */
+    private String[] propertyNames;
+
+    /**
+     * Constructs a <code>RemoteImageInfo</code>.
+     *
+     * @param layout The layout of the image.
+     * @param propertyNames The names of the properties of the image,
+     *        or <code>null</code> if it has none.
+     */
+    public RemoteImageInfo(ImageLayout layout, String[] propertyNames) {
+        this.layout = layout;
+        this.propertyNames = propertyNames;
+    }
+
+    /** Returns the layout of the image. */
+    public ImageLayout getImageLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns the names of the properties of the image, or
+     * <code>null</code> if it has none.
+     */
+    public String[] getPropertyNames() {
+        return propertyNames;
+    }
+}
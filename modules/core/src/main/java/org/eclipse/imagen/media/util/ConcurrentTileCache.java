@@ -0,0 +1,860 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.util;
+import java.awt.Point;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Observable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.eclipse.imagen.EnumeratedParameter;
+import org.eclipse.imagen.TileCache;
+
+/**
+ * A <code>TileCache</code> implementation intended for heavily
+ * multi-threaded tile computation.  It is a drop-in alternative to
+ * <code>SunTileCache</code> and may be installed either globally
+ * through <code>JAI.getDefaultInstance().setTileCache(cache)</code> or
+ * per operation through the <code>JAI.KEY_TILE_CACHE</code> rendering
+ * hint.
+ *
+ * <p> The cache is split into a power-of-two number of segments, each
+ * backed by an open addressing table keyed by the compact identifier
+ * of the tile owner and the tile indices.  A cache hit is a lock free
+ * table lookup followed by setting a reference bit on the tile; no
+ * monitor is held and no object is allocated while retrieving a tile.
+ * Insertions and removals only lock the segment the tile hashes to.
+ *
+ * <p> Eviction follows the CLOCK (second chance) approximation of LRU.
+ * Each segment keeps its tiles in insertion order; when the global
+ * memory usage exceeds the memory capacity, the segments are swept in
+ * round-robin order and tiles whose reference bit is clear are removed
+ * until the usage drops to <code>memoryThreshold</code> of the
+ * capacity.  Only one thread sweeps at a time; other threads adding
+ * tiles meanwhile do not wait for it.
+ *
+ * <p> If a tile comparator is set, it is honored during memory control
+ * by ordering a snapshot of the cached tiles with it, in the same way
+ * <code>SunTileCache</code> removes tiles in comparator order before
+ * falling back to its LRU policy.
+ *
+ * <p> Hit, miss, tile count and memory usage diagnostics are available
+ * through the <code>CacheDiagnostics</code> interface and, when
+ * diagnostics are enabled, <code>Observer</code>s are notified with the
+ * same <code>CachedTile</code> actions as <code>SunTileCache</code>.
+ * Notifications are serialized, so enabling diagnostics reintroduces
+ * a global lock on every cache access.
+ *
+ * @see org.eclipse.imagen.TileCache
+ * @see SunTileCache
+ *
+ */
+public final class ConcurrentTileCache extends Observable
+                                       implements TileCache,
+                                                  CacheDiagnostics {
+
+    /** The default memory capacity of the cache (16 MB). */
+    private static final long DEFAULT_MEMORY_CAPACITY = 16L * 1024L * 1024L;
+
+    /** The initial capacity of each segment map. */
+    private static final int SEGMENT_CAPACITY = 64;
+
+    // diagnostic actions, identical to those of SunTileCache.
+    private static final int ADD                 = 0;
+    private static final int REMOVE              = 1;
+    private static final int REMOVE_FROM_FLUSH   = 2;
+    private static final int REMOVE_FROM_MEMCON  = 3;
+    private static final int UPDATE_FROM_ADD     = 4;
+    private static final int UPDATE_FROM_GETTILE = 5;
+    private static final int ABOUT_TO_REMOVE     = 6;
+
+    /** The cache segments. */
+    private final Segment[] segments;
+
+    /** Mask used to select a segment from a key hash. */
+    private final int segmentMask;
+
+    /** The memory capacity of the cache. */
+    private volatile long memoryCapacity;
+
+    /** The amount of memory to keep after memory control */
+    private volatile float memoryThreshold = 0.75F;
+
+    /** The amount of memory currently being used by the cache. */
+    private final AtomicLong memoryUsage = new AtomicLong();
+
+    /** Tile count used for diagnostics */
+    private final AtomicLong tileCount = new AtomicLong();
+
+    /** Cache hit count */
+    private final LongAdder hitCount = new LongAdder();
+
+    /** Cache miss count */
+    private final LongAdder missCount = new LongAdder();
+
+    /** Diagnostics enable/disable */
+    private volatile boolean diagnostics = false;
+
+    /** Custom comparator used to order tiles during memory control. */
+    private volatile Comparator comparator = null;
+
+    /** The queue of the references to tile owners that were collected. */
+    private final ReferenceQueue collectedOwners = new ReferenceQueue();
+
+    /** Serializes memory control sweeps. */
+    private final ReentrantLock controlLock = new ReentrantLock();
+
+    /** The segment the next sweep starts from; guarded by controlLock. */
+    private int clockHand = 0;
+
+    /**
+     * Returns an array of <code>EnumeratedParameter</code>s corresponding
+     * to the numeric values returned by the <code>getAction()</code>
+     * method of the <code>CachedTile</code> implementation used by
+     * <code>ConcurrentTileCache</code>.  These are the same actions
+     * as those of <code>SunTileCache</code>.
+     */
+    public static EnumeratedParameter[] getCachedTileActions() {
+        return SunTileCache.getCachedTileActions();
+    }
+
+    /**
+     * No args constructor. Use the DEFAULT_MEMORY_CAPACITY of 16 Megs
+     * and a concurrency level of twice the number of processors.
+     */
+    public ConcurrentTileCache() {
+        this(DEFAULT_MEMORY_CAPACITY);
+    }
+
+    /**
+     * Constructor.  The memory capacity should be explicitly specified.
+     * The concurrency level is twice the number of available processors.
+     *
+     * @param memoryCapacity  The maximum cache memory size in bytes.
+     *
+     * @throws IllegalArgumentException  If <code>memoryCapacity</code>
+     *         is less than 0.
+     */
+    public ConcurrentTileCache(long memoryCapacity) {
+        this(memoryCapacity,
+             2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param memoryCapacity  The maximum cache memory size in bytes.
+     * @param concurrencyLevel  The expected number of threads accessing
+     *        the cache concurrently.  The number of segments is the
+     *        smallest power of two not less than this value.
+     *
+     * @throws IllegalArgumentException  If <code>memoryCapacity</code>
+     *         is less than 0 or <code>concurrencyLevel</code> is not
+     *         positive.
+     */
+    public ConcurrentTileCache(long memoryCapacity, int concurrencyLevel) {
+        if (memoryCapacity < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileCache"));
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("ConcurrentTileCache0"));
+        }
+
+        this.memoryCapacity = memoryCapacity;
+
+        int numSegments = 1;
+        while (numSegments < concurrencyLevel && numSegments < (1 << 16)) {
+            numSegments <<= 1;
+        }
+
+        segments = new Segment[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new Segment();
+        }
+        segmentMask = numSegments - 1;
+    }
+
+    /**
+     * Returns the segment responsible for the given key.  The high bits
+     * of the hash select the segment, the low ones the table slot.
+     */
+    private Segment segmentFor(long imageKey, int tileX, int tileY) {
+        int h = TileKeyMap.hash(imageKey, tileX, tileY);
+        return segments[(h >>> 16) & segmentMask];
+    }
+
+    /**
+     * Adds a tile to the cache.
+     *
+     * <p> If the specified tile is already in the cache, it will not be
+     * cached again.  If by adding this tile, the cache exceeds the memory
+     * capacity, older tiles in the cache are removed to keep the cache
+     * memory usage under the specified limit.
+     *
+     * @param owner            The image the tile blongs to.
+     * @param tileX            The tile's X index within the image.
+     * @param tileY            The tile's Y index within the image.
+     * @param tile             The tile to be cached.
+     */
+    public void add(RenderedImage owner,
+                    int tileX,
+                    int tileY,
+                    Raster tile) {
+        add(owner, tileX, tileY, tile, null);
+    }
+
+    /**
+     * Adds a tile to the cache with an associated tile compute cost.
+     *
+     * <p> If the specified tile is already in the cache, it will not be
+     * cached again.  If by adding this tile, the cache exceeds the memory
+     * capacity, older tiles in the cache are removed to keep the cache
+     * memory usage under the specified limit.
+     *
+     * @param owner            The image the tile blongs to.
+     * @param tileX            The tile's X index within the image.
+     * @param tileY            The tile's Y index within the image.
+     * @param tile             The tile to be cached.
+     * @param tileCacheMetric  Metric for prioritizing tiles
+     */
+    public void add(RenderedImage owner,
+                    int tileX,
+                    int tileY,
+                    Raster tile,
+                    Object tileCacheMetric) {
+
+        long capacity = memoryCapacity;
+        if ( capacity == 0 ) {
+            return;
+        }
+
+        long imageKey = SunCachedTile.imageKey(owner);
+        Segment seg = segmentFor(imageKey, tileX, tileY);
+        SunCachedTile ct = (SunCachedTile)seg.map.get(imageKey, tileX, tileY);
+
+        if ( ct != null ) {
+            seg.touch(ct);
+            hitCount.increment();
+            notifyAction(ct, UPDATE_FROM_ADD);
+            return;
+        }
+
+        removeCollectedTiles();
+
+        ct = new SunCachedTile(owner, imageKey, tileX, tileY, tile,
+                               tileCacheMetric, collectedOwners);
+
+        // Don't cache tile if adding it would provoke memoryControl()
+        // which would in turn only end up removing the tile.
+        if (memoryUsage.get() + ct.memorySize > capacity &&
+            ct.memorySize > (long)(capacity * memoryThreshold)) {
+            return;
+        }
+
+        if ( !seg.insert(ct) ) {
+            // Another thread cached the same tile meanwhile.
+            return;
+        }
+
+        long usage = memoryUsage.addAndGet(ct.memorySize);
+        tileCount.incrementAndGet();
+        notifyAction(ct, ADD);
+
+        // Bring memory usage down to memoryThreshold % of memory capacity.
+        if (usage > capacity) {
+            memoryControl(false);
+        }
+    }
+
+    /**
+     * Removes a tile from the cache.
+     *
+     * <p> If the specified tile is not in the cache, this method
+     * does nothing.
+     */
+    public void remove(RenderedImage owner,
+                       int tileX,
+                       int tileY) {
+
+        if ( memoryCapacity == 0 ) {
+            return;
+        }
+
+        long imageKey = SunCachedTile.imageKey(owner);
+        Segment seg = segmentFor(imageKey, tileX, tileY);
+        SunCachedTile ct = (SunCachedTile)seg.map.get(imageKey, tileX, tileY);
+
+        if ( ct != null ) {
+            // Notify observers that a tile is about to be removed,
+            // as SunTileCache does regardless of diagnostics.
+            synchronized (this) {
+                ct.action = ABOUT_TO_REMOVE;
+                setChanged();
+                notifyObservers(ct);
+            }
+
+            if ( unlink(seg, ct) ) {
+                notifyAction(ct, REMOVE);
+            }
+        }
+    }
+
+    /**
+     * Retrieves a tile from the cache.
+     *
+     * <p> If the specified tile is not in the cache, this method
+     * returns <code>null</code>.  If the specified tile is in the
+     * cache, its last-access time is updated.
+     *
+     * @param owner  The image the tile blongs to.
+     * @param tileX  The tile's X index within the image.
+     * @param tileY  The tile's Y index within the image.
+     */
+    public Raster getTile(RenderedImage owner,
+                          int tileX,
+                          int tileY) {
+
+        if ( memoryCapacity == 0 ) {
+            return null;
+        }
+
+        long imageKey = SunCachedTile.imageKey(owner);
+        Segment seg = segmentFor(imageKey, tileX, tileY);
+        SunCachedTile ct = (SunCachedTile)seg.map.get(imageKey, tileX, tileY);
+
+        if ( ct == null ) {
+            missCount.increment();
+            return null;
+        }
+
+        seg.touch(ct);
+        hitCount.increment();
+        notifyAction(ct, UPDATE_FROM_GETTILE);
+
+        return ct.getTile();
+    }
+
+    /**
+     * Retrieves a contiguous array of all tiles in the cache which are
+     * owned by the specified image.  May be <code>null</code> if there
+     * were no tiles in the cache.  The array contains no null entries.
+     *
+     * @param owner The <code>RenderedImage</code> to which the tiles belong.
+     * @return An array of all tiles owned by the specified image or
+     *         <code>null</code> if there are none currently in the cache.
+     */
+    public Raster[] getTiles(RenderedImage owner) {
+        if ( memoryCapacity == 0 || tileCount.get() == 0 ) {
+            return null;
+        }
+
+        int minTx = owner.getMinTileX();
+        int minTy = owner.getMinTileY();
+        int maxTx = minTx + owner.getNumXTiles();
+        int maxTy = minTy + owner.getNumYTiles();
+
+        ArrayList temp = new ArrayList();
+
+        for (int y = minTy; y < maxTy; y++) {
+            for (int x = minTx; x < maxTx; x++) {
+                Raster raster = getTile(owner, x, y);
+
+                if ( raster != null ) {
+                    temp.add(raster);
+                }
+            }
+        }
+
+        int tmpsize = temp.size();
+        return tmpsize > 0 ? (Raster[])temp.toArray(new Raster[tmpsize]) : null;
+    }
+
+    /**
+     * Removes all the tiles that belong to a <code>RenderedImage</code>
+     * from the cache.
+     *
+     * @param owner  The image whose tiles are to be removed from the cache.
+     */
+    public void removeTiles(RenderedImage owner) {
+        if ( memoryCapacity > 0 ) {
+            int minTx = owner.getMinTileX();
+            int minTy = owner.getMinTileY();
+            int maxTx = minTx + owner.getNumXTiles();
+            int maxTy = minTy + owner.getNumYTiles();
+
+            for (int y=minTy; y<maxTy; y++) {
+                for (int x=minTx; x<maxTx; x++) {
+                    remove(owner, x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an array of tiles to the tile cache.
+     *
+     * @param owner The <code>RenderedImage</code> that the tile belongs to.
+     * @param tileIndices An array of <code>Point</code>s containing the
+     *        <code>tileX</code> and <code>tileY</code> indices for each tile.
+     * @param tiles The array of tile <code>Raster</code>s containing tile data.
+     * @param tileCacheMetric Object which provides an ordering metric
+     *        associated with the <code>RenderedImage</code> owner.
+     */
+    public void addTiles(RenderedImage owner,
+                         Point[] tileIndices,
+                         Raster[] tiles,
+                         Object tileCacheMetric) {
+
+        if ( memoryCapacity == 0 ) {
+            return;
+        }
+
+        for ( int i = 0; i < tileIndices.length; i++ ) {
+            add(owner, tileIndices[i].x, tileIndices[i].y,
+                tiles[i], tileCacheMetric);
+        }
+    }
+
+    /**
+     * Returns an array of tile <code>Raster</code>s from the cache.
+     * Any or all of the elements of the returned array may be <code>null</code>
+     * if the corresponding tile is not in the cache.
+     *
+     * @param owner The <code>RenderedImage</code> that the tile belongs to.
+     * @param tileIndices  An array of <code>Point</code>s containing the
+     *        <code>tileX</code> and <code>tileY</code> indices for each tile.
+     */
+    public Raster[] getTiles(RenderedImage owner, Point[] tileIndices) {
+
+        if ( memoryCapacity == 0 ) {
+            return null;
+        }
+
+        Raster[] tiles = new Raster[tileIndices.length];
+
+        for ( int i = 0; i < tiles.length; i++ ) {
+            tiles[i] = getTile(owner, tileIndices[i].x, tileIndices[i].y);
+        }
+
+        return tiles;
+    }
+
+    /** Removes -ALL- tiles from the cache. */
+    public void flush() {
+        // reset counters before diagnostics
+        hitCount.reset();
+        missCount.reset();
+
+        for (int i = 0; i < segments.length; i++) {
+            Segment seg = segments[i];
+
+            synchronized (seg) {
+                TileKeyMap.Entry[] entries = seg.map.entries();
+
+                for (int j = 0; j < entries.length; j++) {
+                    SunCachedTile ct = (SunCachedTile)entries[j];
+
+                    if ( unlink(seg, ct) ) {
+                        notifyAction(ct, REMOVE_FROM_FLUSH);
+                    }
+                }
+
+                seg.map.clear();
+                seg.clock.clear();
+                seg.stale = 0;
+                seg.timeStamp.set(0);
+            }
+        }
+    }
+
+    /**
+     * Returns the cache's tile capacity.
+     *
+     * <p> This implementation of <code>TileCache</code> does not use
+     * the tile capacity.  This method always returns 0.
+     */
+    public int getTileCapacity() { return 0; }
+
+    /**
+     * Sets the cache's tile capacity to the desired number of tiles.
+     *
+     * <p> This implementation of <code>TileCache</code> does not use
+     * the tile capacity.  The cache size is limited by the memory
+     * capacity only.  This method does nothing and has no effect on
+     * the cache.
+     *
+     * @param tileCapacity  The desired tile capacity for this cache
+     *        in number of tiles.
+     */
+    public void setTileCapacity(int tileCapacity) { }
+
+    /** Returns the cache's memory capacity in bytes. */
+    public long getMemoryCapacity() {
+        return memoryCapacity;
+    }
+
+    /**
+     * Sets the cache's memory capacity to the desired number of bytes.
+     * If the new memory capacity is smaller than the amount of memory
+     * currently being used by this cache, tiles are removed from the
+     * cache until the memory usage is less than the specified memory
+     * capacity.
+     *
+     * @param memoryCapacity  The desired memory capacity for this cache
+     *        in bytes.
+     *
+     * @throws IllegalArgumentException  If <code>memoryCapacity</code>
+     *         is less than 0.
+     */
+    public void setMemoryCapacity(long memoryCapacity) {
+        if (memoryCapacity < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileCache"));
+        } else if ( memoryCapacity == 0 ) {
+            flush();
+        }
+
+        this.memoryCapacity = memoryCapacity;
+
+        if ( memoryUsage.get() > memoryCapacity ) {
+            memoryControl();
+        }
+    }
+
+    /** Enable Tile Monitoring and Diagnostics */
+    public void enableDiagnostics() {
+        diagnostics = true;
+    }
+
+    /** Turn off diagnostic notification */
+    public void disableDiagnostics() {
+        diagnostics = false;
+    }
+
+    public long getCacheTileCount() {
+        return tileCount.get();
+    }
+
+    public long getCacheMemoryUsed() {
+        return memoryUsage.get();
+    }
+
+    public long getCacheHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getCacheMissCount() {
+        return missCount.sum();
+    }
+
+    /** Reset hit and miss counters. */
+    public void resetCounts() {
+        hitCount.reset();
+        missCount.reset();
+    }
+
+    /** Set the memory threshold value. */
+    public void setMemoryThreshold(float mt) {
+        if ( mt < 0.0F || mt > 1.0F ) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileCache"));
+        } else {
+            memoryThreshold = mt;
+            memoryControl();
+        }
+    }
+
+    /** Returns the current <code>memoryThreshold</code>. */
+    public float getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    /** Returns a string representation of the class object. */
+    public String toString() {
+        return getClass().getName() + "@" + Integer.toHexString(hashCode()) +
+               ": memoryCapacity = " + Long.toHexString(memoryCapacity) +
+               " memoryUsage = " + Long.toHexString(memoryUsage.get()) +
+               " #tilesInCache = " + Long.toString(tileCount.get()) +
+               " #segments = " + Integer.toString(segments.length);
+    }
+
+    /**
+     * Returns the <code>Object</code> that represents the actual cache.
+     * For this implementation this is an unmodifiable snapshot
+     * <code>Map</code> from tile key to <code>CachedTile</code>.
+     */
+    public Object getCachedObject() {
+        Map snapshot = new HashMap();
+        for (int i = 0; i < segments.length; i++) {
+            TileKeyMap.Entry[] entries = segments[i].entries();
+            for (int j = 0; j < entries.length; j++) {
+                snapshot.put(new TileKeyMap.Key(entries[j]), entries[j]);
+            }
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Removes tiles from the cache until the memory usage is
+     * memoryThreshold % of that of the memory capacity.  Tiles are
+     * chosen by the tile comparator if one is set and by the CLOCK
+     * policy otherwise.
+     */
+    public void memoryControl() {
+        memoryControl(true);
+    }
+
+    /**
+     * Performs memory control.  If <code>wait</code> is
+     * <code>false</code> and another thread is already sweeping the
+     * cache, returns immediately and leaves the work to that thread.
+     */
+    private void memoryControl(boolean wait) {
+        if ( wait ) {
+            controlLock.lock();
+        } else if ( !controlLock.tryLock() ) {
+            return;
+        }
+
+        try {
+            long limit = (long)(memoryCapacity * memoryThreshold);
+
+            if ( comparator != null && memoryUsage.get() > limit ) {
+                custom_memory_control(limit);
+            }
+
+            // If the custom memory control didn't release sufficient
+            // number of tiles to satisfy the memory limit, fallback
+            // to the standard memory controller.
+            standard_memory_control(limit);
+        } finally {
+            controlLock.unlock();
+        }
+    }
+
+    // CLOCK memory control; sweeps the segments round-robin.
+    private void standard_memory_control(long limit) {
+        int emptySegments = 0;
+
+        while ( memoryUsage.get() > limit &&
+                emptySegments < segments.length ) {
+            Segment seg = segments[clockHand];
+            clockHand = (clockHand + 1) & segmentMask;
+
+            SunCachedTile ct = seg.evict();
+
+            if ( ct == null ) {
+                emptySegments++;
+            } else {
+                emptySegments = 0;
+                memoryUsage.addAndGet(-ct.memorySize);
+                tileCount.decrementAndGet();
+                notifyAction(ct, REMOVE_FROM_MEMCON);
+            }
+        }
+    }
+
+    // comparator based memory control
+    private void custom_memory_control(long limit) {
+        ArrayList tiles = new ArrayList();
+        for (int i = 0; i < segments.length; i++) {
+            tiles.addAll(Arrays.asList(segments[i].entries()));
+        }
+
+        Collections.sort(tiles, comparator);
+
+        Iterator iter = tiles.iterator();
+        while ( iter.hasNext() && memoryUsage.get() > limit ) {
+            SunCachedTile ct = (SunCachedTile)iter.next();
+
+            if ( unlink(segmentFor(ct.imageKey, ct.tileX, ct.tileY), ct) ) {
+                notifyAction(ct, REMOVE_FROM_MEMCON);
+            }
+        }
+    }
+
+    /** Removes the tiles whose owner has been garbage collected. */
+    private void removeCollectedTiles() {
+        SunCachedTile.OwnerReference ref;
+
+        while ( (ref = (SunCachedTile.OwnerReference)collectedOwners.poll()) != null ) {
+            SunCachedTile ct = ref.tile;
+
+            if ( unlink(segmentFor(ct.imageKey, ct.tileX, ct.tileY), ct) ) {
+                notifyAction(ct, REMOVE);
+            }
+        }
+    }
+
+    /**
+     * Removes a tile from its segment map and updates the memory
+     * bookkeeping.  Returns <code>false</code> if the tile was
+     * already removed by another thread.  The tile is dropped from
+     * the CLOCK queue lazily.
+     */
+    private boolean unlink(Segment seg, SunCachedTile ct) {
+        if ( !seg.release(ct) ) {
+            return false;
+        }
+
+        memoryUsage.addAndGet(-ct.memorySize);
+        tileCount.decrementAndGet();
+
+        return true;
+    }
+
+    /**
+     *  The <code>Comparator</code> is used to produce an
+     *  ordered list of tiles based on a user defined
+     *  compute cost or priority metric.  This determines
+     *  which tiles are subject to "ordered" removal
+     *  during a memory control operation.
+     */
+    public void setTileComparator(Comparator c) {
+        comparator = c;
+    }
+
+    /** Return the current comparator */
+    public Comparator getTileComparator() {
+        return comparator;
+    }
+
+    /** Notifies the observers of a tile action if diagnostics are on. */
+    private void notifyAction(SunCachedTile ct, int action) {
+        if ( diagnostics ) {
+            synchronized (this) {
+                ct.action = action;
+                setChanged();
+                notifyObservers(ct);
+            }
+        }
+    }
+
+    /**
+     * A cache segment: a tile map for lookups and a CLOCK queue for
+     * eviction.  Both are modified under the segment monitor only.
+     */
+    private static final class Segment {
+
+        /** Tiles by key; read without locking. */
+        final TileKeyMap map = new TileKeyMap(SEGMENT_CAPACITY);
+
+        /** Tiles in CLOCK order, may contain removed tiles. */
+        final ArrayDeque<SunCachedTile> clock =
+            new ArrayDeque<SunCachedTile>(SEGMENT_CAPACITY);
+
+        /** Approximate number of removed tiles still in the queue. */
+        int stale = 0;
+
+        /** Segment local access time stamp. */
+        final AtomicLong timeStamp = new AtomicLong();
+
+        /** Marks a tile as recently used. */
+        void touch(SunCachedTile ct) {
+            ct.timeStamp = timeStamp.getAndIncrement();
+            if ( !ct.referenced ) {
+                ct.referenced = true;
+            }
+        }
+
+        /**
+         * Inserts a new tile.  Returns <code>false</code> if a tile
+         * with the same key is already cached.
+         */
+        synchronized boolean insert(SunCachedTile ct) {
+            ct.timeStamp = timeStamp.getAndIncrement();
+
+            if ( map.putIfAbsent(ct) != null ) {
+                return false;
+            }
+
+            clock.addLast(ct);
+            return true;
+        }
+
+        /** Returns the tiles of the segment. */
+        synchronized TileKeyMap.Entry[] entries() {
+            return map.entries();
+        }
+
+        /**
+         * Removes a tile from the map.  Returns <code>false</code> if
+         * it was already removed.  The CLOCK queue is compacted once it
+         * holds more removed tiles than live ones.
+         */
+        synchronized boolean release(SunCachedTile ct) {
+            if ( !map.remove(ct) ) {
+                return false;
+            }
+
+            if ( ++stale > map.size() + SEGMENT_CAPACITY ) {
+                Iterator<SunCachedTile> iter = clock.iterator();
+                while ( iter.hasNext() ) {
+                    SunCachedTile t = iter.next();
+                    if ( map.get(t.imageKey, t.tileX, t.tileY) != t ) {
+                        iter.remove();
+                    }
+                }
+                stale = 0;
+            }
+
+            return true;
+        }
+
+        /**
+         * Removes and returns the next CLOCK victim, or <code>null</code>
+         * if the segment is empty.  The caller updates the global memory
+         * bookkeeping.
+         */
+        synchronized SunCachedTile evict() {
+            // Every tile gets at most one second chance per call.
+            int chances = clock.size();
+
+            SunCachedTile ct;
+            while ( (ct = clock.pollFirst()) != null ) {
+                if ( map.get(ct.imageKey, ct.tileX, ct.tileY) != ct ) {
+                    // already removed
+                    if ( stale > 0 ) {
+                        stale--;
+                    }
+                    continue;
+                }
+
+                if ( ct.referenced && chances-- > 0 ) {
+                    ct.referenced = false;
+                    clock.addLast(ct);
+                    continue;
+                }
+
+                if ( map.remove(ct) ) {
+                    return ct;
+                }
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,796 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.util;
+import java.awt.Point;
+import java.awt.RenderingHints;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.imagen.OpImage;
+import org.eclipse.imagen.PlanarImage;
+import org.eclipse.imagen.RenderedOp;
+import org.eclipse.imagen.TileCache;
+import org.eclipse.imagen.TileComputationListener;
+import org.eclipse.imagen.TileRequest;
+import org.eclipse.imagen.TileScheduler;
+import org.eclipse.imagen.util.ImagingException;
+import org.eclipse.imagen.util.ImagingListener;
+
+/**
+ * A <code>TileScheduler</code> implementation built on
+ * <code>java.util.concurrent.ForkJoinPool</code>.  It may replace the
+ * default <code>SunTileScheduler</code> through
+ * <code>JAI.getDefaultInstance().setTileScheduler(scheduler)</code> or
+ * the <code>JAI.KEY_TILE_SCHEDULER</code> rendering hint.
+ *
+ * <p> Computing a tile is a fork/join task.  Before the tile itself is
+ * computed, the source tiles it depends on, as reported by
+ * <code>OpImage.getTileDependencies()</code>, are forked as subtasks.
+ * When the tile computation subsequently requests a source tile that
+ * is still being computed, the requesting worker joins the subtask
+ * instead of blocking, so idle workers steal work across the whole
+ * operation chain.  As in <code>SunTileScheduler</code>, a tile
+ * requested concurrently by several threads is computed only once.
+ *
+ * <p> Blocking <code>scheduleTiles()</code> calls fork one task per
+ * tile and let the pool balance them; no fixed tile partitioning is
+ * used.  Non-blocking requests notify their
+ * <code>TileComputationListener</code>s from the worker thread which
+ * computed the tile, and tiles which have not started computation may
+ * be cancelled.  Prefetch requests are run in a second pool governed
+ * by the prefetch parallelism and priority.
+ *
+ * <p> A parallelism of zero computes all tiles in the calling thread.
+ * The priority settings apply to the worker threads of pools created
+ * after the change; changing the parallelism or priority replaces the
+ * pool, letting tasks already submitted to the old pool complete.
+ *
+ * @see org.eclipse.imagen.TileScheduler
+ * @see SunTileScheduler
+ */
+public final class ForkJoinTileScheduler implements TileScheduler {
+
+    /** The default number of prefetch worker threads. */
+    private static final int NUM_PREFETCH_THREADS_DEFAULT = 1;
+
+    /** The instance counter, used to compose the thread names. */
+    private static final AtomicInteger numInstances = new AtomicInteger();
+
+    /** The tile scheduler name, used to compose the thread names. */
+    private static String name =
+        JaiI18N.getString("ForkJoinTileSchedulerName");
+
+    /** The worker thread parallelism. */
+    private volatile int parallelism;
+
+    /** The prefetch thread parallelism. */
+    private volatile int prefetchParallelism = NUM_PREFETCH_THREADS_DEFAULT;
+
+    /** The worker thread priority. */
+    private volatile int priority = Thread.NORM_PRIORITY;
+
+    /** The prefetch thread priority. */
+    private volatile int prefetchPriority = Thread.MIN_PRIORITY;
+
+    /** The pool computing standard tiles; created lazily. */
+    private ForkJoinPool pool;
+
+    /** The pool computing prefetched tiles; created lazily. */
+    private ForkJoinPool prefetchPool;
+
+    /**
+     * Tiles currently being computed, keyed by
+     * <code>SunTileScheduler.tileKey()</code>.  Threads requesting a tile
+     * which is in progress join its task.
+     */
+    private final ConcurrentHashMap tilesInProgress = new ConcurrentHashMap();
+
+    /** The name of this instance. */
+    private final String nameOfThisInstance;
+
+    /**
+     * Constructor.
+     *
+     * @param parallelism  The number of worker threads to do tile computation.
+     *        If this number is less than 1, no multi-threading is used.
+     * @param priority  The priority of worker threads.
+     * @param prefetchParallelism  The number of threads to do prefetching.
+     *        If this number is less than 1, no multi-threading is used.
+     * @param prefetchPriority  The priority of prefetch threads.
+     */
+    public ForkJoinTileScheduler(int parallelism, int priority,
+                                 int prefetchParallelism,
+                                 int prefetchPriority) {
+        this();
+
+        setParallelism(parallelism);
+        setPriority(priority);
+        setPrefetchParallelism(prefetchParallelism);
+        setPrefetchPriority(prefetchPriority);
+    }
+
+    /**
+     * Constructor.  The parallelism defaults to the number of available
+     * processors; the other settings have the same defaults as in
+     * <code>SunTileScheduler</code>.
+     */
+    public ForkJoinTileScheduler() {
+        parallelism = Runtime.getRuntime().availableProcessors();
+        nameOfThisInstance = name + numInstances.getAndIncrement();
+    }
+
+    /**
+     * Returns the pool of the specified type, creating it if needed.
+     * Returns <code>null</code> if the parallelism of that type is zero.
+     */
+    private synchronized ForkJoinPool getPool(boolean isPrefetch) {
+        int prll = isPrefetch ? prefetchParallelism : parallelism;
+        ForkJoinPool p = isPrefetch ? prefetchPool : pool;
+
+        if (prll == 0) {
+            if (p != null) {
+                p.shutdown();
+                setPool(isPrefetch, null);
+            }
+            return null;
+        }
+
+        if (p == null || p.getParallelism() != prll) {
+            if (p != null) {
+                p.shutdown();
+            }
+            p = new ForkJoinPool(prll,
+                                 new WorkerThreadFactory(isPrefetch),
+                                 null, isPrefetch);
+            setPool(isPrefetch, p);
+        }
+
+        return p;
+    }
+
+    private void setPool(boolean isPrefetch, ForkJoinPool p) {
+        if (isPrefetch) {
+            prefetchPool = p;
+        } else {
+            pool = p;
+        }
+    }
+
+    /** Discards the pool of the given type so it is recreated on demand. */
+    private synchronized void resetPool(boolean isPrefetch) {
+        ForkJoinPool p = isPrefetch ? prefetchPool : pool;
+        if (p != null) {
+            p.shutdown();
+            setPool(isPrefetch, null);
+        }
+    }
+
+    /** Returns <code>true</code> if the current thread belongs to the pool. */
+    private static boolean inPool(ForkJoinPool p) {
+        return p != null && ForkJoinTask.getPool() == p;
+    }
+
+    /**
+     * Schedules a single tile for computation.  If the tile is already
+     * being computed by another thread, the result of that computation
+     * is awaited; a pool worker helps with pending work meanwhile.
+     *
+     * @param owner  The image the tiles belong to.
+     * @param tileX  The tile's X index.
+     * @param tileY  The tile's Y index.
+     *
+     * @exception IllegalArgumentException if <code>owner</code> is
+     * <code>null</code>.
+     *
+     * @return  The computed tile
+     */
+    public Raster scheduleTile(OpImage owner,
+                               int tileX,
+                               int tileY) {
+        if (owner == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler1"));
+        }
+
+        Object tileID = SunTileScheduler.tileKey(owner, tileX, tileY);
+
+        TileTask task = new TileTask(owner, tileX, tileY, tileID);
+        TileTask current = (TileTask)tilesInProgress.putIfAbsent(tileID, task);
+
+        Raster tile;
+        if (current == null) {
+            ForkJoinPool p = getPool(false);
+
+            if (p == null || inPool(p)) {
+                // Sequential mode or already on a worker: compute here.
+                tile = task.invoke();
+            } else {
+                tile = p.invoke(task);
+            }
+        } else {
+            // Another thread is computing the tile.
+            tile = current.join();
+
+            if (tile == null) {
+                throw new RuntimeException(JaiI18N.getString("SunTileScheduler5"));
+            }
+        }
+
+        return tile;
+    }
+
+    /**
+     * Schedules multiple tiles of an image for computation.  One task
+     * is forked per tile.
+     *
+     * @param owner  The image the tiles belong to.
+     * @param tileIndices  An array of tile X and Y indices.
+     *
+     * @return  An array of computed tiles.
+     */
+    public Raster[] scheduleTiles(OpImage owner,
+                                  Point tileIndices[]) {
+        if (owner == null || tileIndices == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler0"));
+        }
+
+        Raster[] tiles = new Raster[tileIndices.length];
+        BatchTask batch = new BatchTask(owner, tileIndices, tiles);
+
+        ForkJoinPool p = getPool(false);
+        if (p == null || inPool(p)) {
+            batch.invoke();
+        } else {
+            p.invoke(batch);
+        }
+
+        if (batch.exception != null) {
+            String message = JaiI18N.getString("SunTileScheduler7");
+            sendExceptionToListener(message,
+                                    new ImagingException(message,
+                                                         batch.exception));
+        }
+
+        return tiles;
+    }
+
+    /**
+     * Schedule a list of tiles for computation.  The supplied listeners
+     * are notified from the worker thread which computed each tile.
+     * This method does not block unless the parallelism is zero.
+     */
+    public TileRequest scheduleTiles(PlanarImage target, Point[] tileIndices,
+                                     TileComputationListener[] tileListeners) {
+        if (target == null || tileIndices == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler4"));
+        }
+
+        FJRequest request =
+            new FJRequest(this, target, tileIndices, tileListeners);
+
+        ForkJoinPool p = getPool(false);
+        for (int i = 0; i < request.tasks.length; i++) {
+            RequestTask task = request.tasks[i];
+            if (p == null) {
+                task.invoke();
+            } else if (inPool(p)) {
+                task.fork();
+            } else {
+                p.execute(task);
+            }
+        }
+
+        return request;
+    }
+
+    /**
+     * Issues an advisory cancellation request.  Tiles of the request whose
+     * computation has not started are not computed; computation already
+     * in progress is not interrupted.  Registered listeners are notified
+     * of each cancelled tile.
+     */
+    public void cancelTiles(TileRequest request, Point[] tileIndices) {
+        if (request == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler3"));
+        }
+
+        FJRequest req = (FJRequest)request;
+
+        List indices;
+        if (tileIndices != null && tileIndices.length > 0) {
+            indices = new ArrayList(Arrays.asList(tileIndices));
+            indices.retainAll(req.indices);
+        } else {
+            indices = req.indices;
+        }
+
+        Integer tileStatus = new Integer(TileRequest.TILE_STATUS_CANCELLED);
+        TileRequest[] reqArray = new TileRequest[] {req};
+
+        for (int i = 0; i < req.tasks.length; i++) {
+            RequestTask task = req.tasks[i];
+            Point p = new Point(task.tileX, task.tileY);
+
+            if (!indices.contains(p) || !task.cancelPending()) {
+                continue;
+            }
+
+            // Update tile status to "cancelled".
+            req.tileStatus.put(p, tileStatus);
+
+            // Notify any listeners.
+            if (req.listeners != null) {
+                Iterator iter = req.listeners.iterator();
+                while (iter.hasNext()) {
+                    TileComputationListener listener =
+                        (TileComputationListener)iter.next();
+                    listener.tileCancelled(this, reqArray,
+                                           req.image, p.x, p.y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prefetches a list of tiles of an image in the prefetch pool.
+     * If the prefetch parallelism is zero, the tiles are computed
+     * in the calling thread.
+     *
+     * @param owner  The image the tiles belong to.
+     * @param tileIndices  An array of tile X and Y indices.
+     */
+    public void prefetchTiles(PlanarImage owner,
+                              Point[] tileIndices) {
+        if (owner == null || tileIndices == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler0"));
+        }
+
+        BatchTask batch =
+            new BatchTask(owner, tileIndices, new Raster[tileIndices.length]);
+
+        ForkJoinPool p = getPool(true);
+        if (p == null) {
+            batch.invoke();
+
+            if (batch.exception != null) {
+                String message = JaiI18N.getString("SunTileScheduler7");
+                sendExceptionToListener(message,
+                                        new ImagingException(message,
+                                                             batch.exception));
+            }
+        } else {
+            p.execute(batch);
+        }
+    }
+
+    /**
+     * Sets the number of worker threads of the fork/join pool.  A value
+     * of zero causes all tiles to be computed in the requesting thread.
+     *
+     * @param parallelism The suggested degree of parallelism.
+     * @throws IllegalArgumentException if <code>parallelism</code>
+     *         is negative.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler2"));
+        }
+        this.parallelism = parallelism;
+    }
+
+    /** Returns the degree of parallelism of the scheduler. */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Identical to <code>setParallelism()</code> but applies only to
+     * <code>prefetchTiles()</code>.
+     */
+    public void setPrefetchParallelism(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileScheduler2"));
+        }
+        prefetchParallelism = parallelism;
+    }
+
+    /**
+     * Identical to <code>getParallelism()</code> but applies only to
+     * <code>prefetchTiles()</code>.
+     */
+    public int getPrefetchParallelism() {
+        return prefetchParallelism;
+    }
+
+    /**
+     * Returns <code>true</code> if the given thread is one of the worker
+     * threads of this scheduler.  A worker which waits for other tiles
+     * of this scheduler to be computed may starve it.
+     */
+    public boolean isWorkerThread(Thread thread) {
+        if (!(thread instanceof ForkJoinWorkerThread)) {
+            return false;
+        }
+        ForkJoinPool p = ((ForkJoinWorkerThread)thread).getPool();
+        synchronized (this) {
+            return p == pool || p == prefetchPool;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if tiles scheduled now would be taken up
+     * by a worker thread right away, that is if fewer workers are active
+     * than the parallelism of the pool.
+     */
+    public boolean hasIdleWorkers() {
+        ForkJoinPool p = getPool(false);
+        return p != null && p.getActiveThreadCount() < p.getParallelism();
+    }
+
+    /**
+     * Sets the priority of the worker threads.  Values outside of the
+     * accepted priority range are clamped to the nearest extremum.
+     *
+     * @param priority The suggested priority.
+     */
+    public void setPriority(int priority) {
+        priority = Math.max(Math.min(priority, Thread.MAX_PRIORITY),
+                            Thread.MIN_PRIORITY);
+        if (priority != this.priority) {
+            this.priority = priority;
+            resetPool(false);
+        }
+    }
+
+    /** Returns the priority of <code>scheduleTiles()</code> processing. */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Identical to <code>setPriority()</code> but applies only to
+     * <code>prefetchTiles()</code>.
+     */
+    public void setPrefetchPriority(int priority) {
+        priority = Math.max(Math.min(priority, Thread.MAX_PRIORITY),
+                            Thread.MIN_PRIORITY);
+        if (priority != prefetchPriority) {
+            prefetchPriority = priority;
+            resetPool(true);
+        }
+    }
+
+    /**
+     * Identical to <code>getPriority()</code> but applies only to
+     * <code>prefetchTiles()</code>.
+     */
+    public int getPrefetchPriority() {
+        return prefetchPriority;
+    }
+
+    void sendExceptionToListener(String message, Throwable e) {
+        ImagingListener listener =
+            ImageUtil.getImagingListener((RenderingHints)null);
+        listener.errorOccurred(message, e, this, false);
+    }
+
+    /** Creates daemon worker threads with the configured priority. */
+    private final class WorkerThreadFactory
+        implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final boolean isPrefetch;
+        private final AtomicInteger count = new AtomicInteger();
+
+        WorkerThreadFactory(boolean isPrefetch) {
+            this.isPrefetch = isPrefetch;
+        }
+
+        public ForkJoinWorkerThread newThread(ForkJoinPool p) {
+            ForkJoinWorkerThread t = new ForkJoinWorkerThread(p) {};
+            t.setName(nameOfThisInstance +
+                      (isPrefetch ? "Prefetch" : "Standard") +
+                      count.getAndIncrement());
+            t.setDaemon(true);
+            t.setPriority(isPrefetch ? prefetchPriority : priority);
+            return t;
+        }
+    }
+
+    /**
+     * Computes one tile.  The cached source tiles it depends on are
+     * first computed in parallel; the tile's own computation then finds
+     * them in the cache.
+     * The result is <code>null</code> if the computation failed.
+     */
+    private final class TileTask extends RecursiveTask<Raster> {
+
+        final OpImage owner;
+        final int tileX;
+        final int tileY;
+        final Object tileID;
+
+        TileTask(OpImage owner, int tileX, int tileY, Object tileID) {
+            this.owner = owner;
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.tileID = tileID;
+        }
+
+        protected Raster compute() {
+            Raster tile = null;
+
+            try {
+                if (getPool() != null) {
+                    forkDependencies();
+                }
+
+                try {
+                    // Attempt to compute the tile.
+                    tile = owner.computeTile(tileX, tileY);
+                } catch (OutOfMemoryError e) {
+                    // Empty the cache and call System.gc()
+                    TileCache tileCache = owner.getTileCache();
+                    if (tileCache != null) {
+                        tileCache.flush();
+                        System.gc(); //slow
+                    }
+
+                    // Re-attempt to compute the tile.
+                    tile = owner.computeTile(tileX, tileY);
+                }
+            } catch (Error e) {
+                throw e;
+            } catch (RuntimeException e) {
+                sendExceptionToListener(JaiI18N.getString("SunTileScheduler6"), e);
+            } catch (Throwable e) {
+                String message = JaiI18N.getString("SunTileScheduler6");
+                sendExceptionToListener(message,
+                                        new ImagingException(message, e));
+            } finally {
+                tilesInProgress.remove(tileID, this);
+            }
+
+            return tile;
+        }
+
+        /**
+         * Retrieves the source tiles this tile depends on in parallel and
+         * waits for them.  Only sources which cache their tiles are
+         * considered, as the tiles of other sources would be computed
+         * again by the tile computation.  Nothing is forked if there is
+         * at most one such tile since the tile computation requests it
+         * right away.
+         */
+        private void forkDependencies() {
+            int numSources = owner.getNumSources();
+            ArrayList deps = null;
+
+            for (int i = 0; i < numSources; i++) {
+                PlanarImage source = owner.getSourceImage(i);
+
+                // Only cached operation nodes are worth computing ahead.
+                PlanarImage rendering = source instanceof RenderedOp ?
+                    ((RenderedOp)source).getRendering() : source;
+                if (!(rendering instanceof OpImage) ||
+                    ((OpImage)rendering).getTileCache() == null) {
+                    continue;
+                }
+
+                Point[] indices;
+                try {
+                    indices = owner.getTileDependencies(tileX, tileY, i);
+                } catch (RuntimeException e) {
+                    // Dependencies are advisory only.
+                    continue;
+                }
+
+                if (indices == null) {
+                    continue;
+                }
+
+                if (deps == null) {
+                    deps = new ArrayList();
+                }
+                for (int j = 0; j < indices.length; j++) {
+                    deps.add(new SourceTileTask(source,
+                                                indices[j].x, indices[j].y));
+                }
+            }
+
+            if (deps != null && deps.size() > 1) {
+                // Forks all but the first task, computes the first one
+                // and joins the others.
+                ForkJoinTask.invokeAll(deps);
+            }
+        }
+    }
+
+    /** Retrieves, and thereby computes and caches, one source tile. */
+    private static final class SourceTileTask extends RecursiveAction {
+
+        final PlanarImage source;
+        final int tileX;
+        final int tileY;
+
+        SourceTileTask(PlanarImage source, int tileX, int tileY) {
+            this.source = source;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        protected void compute() {
+            try {
+                source.getTile(tileX, tileY);
+            } catch (RuntimeException e) {
+                // Reported when the dependent tile requests it again.
+            }
+        }
+    }
+
+    /**
+     * Retrieves the tiles of a blocking or prefetch request, forking one
+     * subtask per tile.  The first exception encountered is recorded.
+     */
+    private static final class BatchTask extends RecursiveAction {
+
+        final PlanarImage owner;
+        final Point[] tileIndices;
+        final Raster[] tiles;
+        final int offset;
+        final int numTiles;
+        volatile Exception exception;
+
+        BatchTask(PlanarImage owner, Point[] tileIndices, Raster[] tiles) {
+            this(owner, tileIndices, tiles, 0, tileIndices.length);
+        }
+
+        BatchTask(PlanarImage owner, Point[] tileIndices, Raster[] tiles,
+                  int offset, int numTiles) {
+            this.owner = owner;
+            this.tileIndices = tileIndices;
+            this.tiles = tiles;
+            this.offset = offset;
+            this.numTiles = numTiles;
+        }
+
+        protected void compute() {
+            if (numTiles == 1 || getPool() == null) {
+                for (int i = offset; i < offset + numTiles; i++) {
+                    Point p = tileIndices[i];
+                    try {
+                        tiles[i] = owner.getTile(p.x, p.y);
+                    } catch (Exception e) {
+                        exception = e;
+
+                        // Abort the remaining tiles in the job.
+                        break;
+                    }
+                }
+                return;
+            }
+
+            // Split in halves; the pool balances the leaves.
+            int half = numTiles / 2;
+            BatchTask left = new BatchTask(owner, tileIndices, tiles,
+                                           offset, half);
+            BatchTask right = new BatchTask(owner, tileIndices, tiles,
+                                            offset + half, numTiles - half);
+            invokeAll(left, right);
+
+            exception = left.exception != null ?
+                left.exception : right.exception;
+        }
+    }
+
+    /** A non-blocking request whose tiles are computed by separate tasks. */
+    private static final class FJRequest extends Request {
+
+        final RequestTask[] tasks;
+
+        FJRequest(TileScheduler scheduler,
+                  PlanarImage image,
+                  Point[] tileIndices,
+                  TileComputationListener[] tileListeners) {
+            super(scheduler, image, tileIndices, tileListeners);
+
+            tasks = new RequestTask[tileIndices.length];
+            for (int i = 0; i < tileIndices.length; i++) {
+                tasks[i] = new RequestTask(this,
+                                           tileIndices[i].x, tileIndices[i].y);
+            }
+        }
+    }
+
+    /**
+     * Computes one tile of a non-blocking request and notifies the
+     * request's listeners of the outcome.
+     */
+    private static final class RequestTask extends RecursiveAction {
+
+        static final int PENDING = 0;
+        static final int STARTED = 1;
+        static final int CANCELLED = 2;
+
+        final FJRequest request;
+        final int tileX;
+        final int tileY;
+        final AtomicInteger state = new AtomicInteger(PENDING);
+
+        RequestTask(FJRequest request, int tileX, int tileY) {
+            this.request = request;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        /** Cancels the task if it has not started. */
+        boolean cancelPending() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        protected void compute() {
+            if (!state.compareAndSet(PENDING, STARTED)) {
+                return;
+            }
+
+            Point p = new Point(tileX, tileY);
+            request.tileStatus.put(p,
+                new Integer(TileRequest.TILE_STATUS_PROCESSING));
+
+            Raster tile = null;
+            Exception exception = null;
+            try {
+                tile = request.image.getTile(tileX, tileY);
+            } catch (Exception e) {
+                exception = e;
+            }
+
+            request.tileStatus.put(p,
+                new Integer(exception == null ?
+                            TileRequest.TILE_STATUS_COMPUTED :
+                            TileRequest.TILE_STATUS_FAILED));
+
+            if (request.listeners == null) {
+                return;
+            }
+
+            TileScheduler scheduler = request.scheduler();
+            TileRequest[] reqs = new TileRequest[] {request};
+            Iterator iter = request.listeners.iterator();
+            while (iter.hasNext()) {
+                TileComputationListener listener =
+                    (TileComputationListener)iter.next();
+                if (exception == null) {
+                    listener.tileComputed(scheduler, reqs, request.image,
+                                          tileX, tileY, tile);
+                } else {
+                    listener.tileComputationFailure(scheduler, reqs,
+                                                    request.image,
+                                                    tileX, tileY, exception);
+                }
+            }
+        }
+    }
+}
@@ -61,6 +61,9 @@ public final class ImageUtil {
      */
     private static long counter;
 
+    /** The counter for the method generateCompactID. */
+    private static long compactCounter;
+
     /** A constant used to extract a byte from a short or an int. */
     public static final int BYTE_MASK  = 0xFF;
 
@@ -1528,6 +1531,17 @@ public final class ImageUtil {
         return new BigInteger(uid);
     }
 
+    /**
+     * Generates a positive <code>long</code> identifier which is unique
+     * within the virtual machine.  Unlike the UID returned by
+     * <code>generateID(Object)</code> it is not meant to be unique
+     * across virtual machines, but is cheap to compare and to hash,
+     * as the tile caches do on every lookup.
+     */
+    public static synchronized long generateCompactID() {
+        return ++compactCounter;
+    }
+
     static void sendExceptionToListener(String message, Exception e) {
         ImagingListener listener =
             getImagingListener((RenderingHints)null);
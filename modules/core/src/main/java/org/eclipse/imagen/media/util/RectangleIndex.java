@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.util;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A static spatial index over a list of <code>Rectangle</code>s.  The
+ * index is an R-tree bulk loaded with the Sort-Tile-Recursive (STR)
+ * algorithm: the rectangles are sorted into vertical slices by the x
+ * coordinate of their centers, each slice is sorted by the y coordinate
+ * and cut into leaves of at most <code>nodeCapacity</code> entries, and
+ * the same packing is applied to the bounds of each level until a single
+ * root remains.  The index cannot be modified once built.
+ *
+ * <p> A query returns the positions in the original list of the
+ * rectangles which intersect a given rectangle, in increasing order, so
+ * that the caller can preserve any ordering the list implies.  Empty
+ * rectangles never intersect anything and are not indexed.
+ *
+ * <p> Instances are immutable and may be queried by several threads at
+ * once.
+ */
+public final class RectangleIndex {
+
+    /** The default maximum number of children of a node. */
+    private static final int DEFAULT_NODE_CAPACITY = 16;
+
+    /** A node of the tree or an indexed rectangle (a leaf entry). */
+    private static final class Node {
+        int minX;
+        int minY;
+        int maxX; // exclusive
+        int maxY; // exclusive
+
+        /** The children of an interior node, or null for an entry. */
+        Node[] children;
+
+        /** The position of the rectangle in the list for an entry. */
+        int index;
+
+        /** Center coordinates times two, used for sorting. */
+        long centerX() {
+            return (long)minX + maxX;
+        }
+
+        long centerY() {
+            return (long)minY + maxY;
+        }
+    }
+
+    private static final Comparator X_ORDER = new Comparator() {
+            public int compare(Object o1, Object o2) {
+                long c1 = ((Node)o1).centerX();
+                long c2 = ((Node)o2).centerX();
+                return c1 < c2 ? -1 : (c1 == c2 ? 0 : 1);
+            }
+        };
+
+    private static final Comparator Y_ORDER = new Comparator() {
+            public int compare(Object o1, Object o2) {
+                long c1 = ((Node)o1).centerY();
+                long c2 = ((Node)o2).centerY();
+                return c1 < c2 ? -1 : (c1 == c2 ? 0 : 1);
+            }
+        };
+
+    /** The root of the tree or null if no rectangle is indexed. */
+    private final Node root;
+
+    /** The number of indexed rectangles. */
+    private final int size;
+
+    /**
+     * Builds an index over the supplied rectangles using the default
+     * node capacity.
+     *
+     * @param rects The rectangles to index; <code>null</code> elements
+     *        are treated as empty rectangles.
+     * @throws IllegalArgumentException if <code>rects</code> is
+     *         <code>null</code>.
+     */
+    public RectangleIndex(Rectangle[] rects) {
+        this(rects, DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Builds an index over the supplied rectangles.
+     *
+     * @param rects The rectangles to index; <code>null</code> elements
+     *        are treated as empty rectangles.
+     * @param nodeCapacity The maximum number of children of a node.
+     * @throws IllegalArgumentException if <code>rects</code> is
+     *         <code>null</code> or <code>nodeCapacity</code> is less
+     *         than 2.
+     */
+    public RectangleIndex(Rectangle[] rects, int nodeCapacity) {
+        if(rects == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+        if(nodeCapacity < 2) {
+            throw new IllegalArgumentException(JaiI18N.getString("RectangleIndex0"));
+        }
+
+        Node[] level = new Node[rects.length];
+        int count = 0;
+        for(int i = 0; i < rects.length; i++) {
+            Rectangle r = rects[i];
+            if(r == null || r.isEmpty()) {
+                continue;
+            }
+            Node entry = new Node();
+            entry.minX = r.x;
+            entry.minY = r.y;
+            entry.maxX = r.x + r.width;
+            entry.maxY = r.y + r.height;
+            entry.index = i;
+            level[count++] = entry;
+        }
+        size = count;
+
+        if(count == 0) {
+            root = null;
+            return;
+        }
+
+        if(count < level.length) {
+            Node[] entries = new Node[count];
+            System.arraycopy(level, 0, entries, 0, count);
+            level = entries;
+        }
+
+        // Pack each level into the next until a single node remains.
+        do {
+            level = pack(level, nodeCapacity);
+        } while(level.length > 1);
+
+        root = level[0];
+    }
+
+    /**
+     * Groups the nodes of one level into parent nodes of at most
+     * <code>nodeCapacity</code> children each.
+     */
+    private static Node[] pack(Node[] nodes, int nodeCapacity) {
+        int numNodes = nodes.length;
+        int numParents = (numNodes + nodeCapacity - 1)/nodeCapacity;
+        int numSlices = (int)Math.ceil(Math.sqrt(numParents));
+        int sliceSize = numSlices*nodeCapacity;
+
+        Arrays.sort(nodes, X_ORDER);
+
+        Node[] parents = new Node[numParents];
+        int p = 0;
+        for(int start = 0; start < numNodes; start += sliceSize) {
+            int end = Math.min(start + sliceSize, numNodes);
+            Arrays.sort(nodes, start, end, Y_ORDER);
+
+            for(int first = start; first < end; first += nodeCapacity) {
+                int last = Math.min(first + nodeCapacity, end);
+                Node parent = new Node();
+                parent.children = new Node[last - first];
+                System.arraycopy(nodes, first, parent.children, 0,
+                                 last - first);
+
+                parent.minX = Integer.MAX_VALUE;
+                parent.minY = Integer.MAX_VALUE;
+                parent.maxX = Integer.MIN_VALUE;
+                parent.maxY = Integer.MIN_VALUE;
+                for(int i = first; i < last; i++) {
+                    Node child = nodes[i];
+                    parent.minX = Math.min(parent.minX, child.minX);
+                    parent.minY = Math.min(parent.minY, child.minY);
+                    parent.maxX = Math.max(parent.maxX, child.maxX);
+                    parent.maxY = Math.max(parent.maxY, child.maxY);
+                }
+                parents[p++] = parent;
+            }
+        }
+
+        return parents;
+    }
+
+    /**
+     * Returns the number of indexed, that is non-empty, rectangles.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the positions of the indexed rectangles which intersect
+     * <code>rect</code>, sorted in increasing order.  The returned array
+     * has a length of zero if no rectangle intersects.
+     *
+     * @throws IllegalArgumentException if <code>rect</code> is
+     *         <code>null</code>.
+     */
+    public int[] query(Rectangle rect) {
+        if(rect == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        if(root == null || rect.isEmpty()) {
+            return new int[0];
+        }
+
+        int minX = rect.x;
+        int minY = rect.y;
+        int maxX = rect.x + rect.width;
+        int maxY = rect.y + rect.height;
+
+        int[] result = new int[8];
+        int count = 0;
+
+        Node[] stack = new Node[32];
+        int top = 0;
+        stack[top++] = root;
+        while(top > 0) {
+            Node node = stack[--top];
+            if(node.minX >= maxX || node.maxX <= minX ||
+               node.minY >= maxY || node.maxY <= minY) {
+                continue;
+            }
+
+            if(node.children == null) {
+                if(count == result.length) {
+                    int[] grown = new int[2*count];
+                    System.arraycopy(result, 0, grown, 0, count);
+                    result = grown;
+                }
+                result[count++] = node.index;
+            } else {
+                Node[] children = node.children;
+                if(top + children.length > stack.length) {
+                    Node[] grown =
+                        new Node[Math.max(2*stack.length,
+                                          top + children.length)];
+                    System.arraycopy(stack, 0, grown, 0, top);
+                    stack = grown;
+                }
+                for(int i = 0; i < children.length; i++) {
+                    stack[top++] = children[i];
+                }
+            }
+        }
+
+        int[] indices = new int[count];
+        System.arraycopy(result, 0, indices, 0, count);
+        Arrays.sort(indices);
+        return indices;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.util;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.imagen.PlanarImage;
+import org.eclipse.imagen.TileComputationListener;
+import org.eclipse.imagen.TileRequest;
+import org.eclipse.imagen.TileScheduler;
+
+/**
+ * A class representing a request for non-prefetch background computation
+ * of tiles.  The object stores the image, the indices of all tiles being
+ * requested, and references to all listeners associated with the request.
+ *
+ * <code>TileRequest</code> methods are not commented.
+ */
+class Request implements TileRequest {
+
+    private final TileScheduler scheduler;
+
+    final PlanarImage image;
+    final List indices;
+    final Set listeners;
+
+    final Hashtable tileStatus;
+
+    /**
+     * Constructs a <code>Request</code>.
+     *
+     * @param scheduler The scheduler processing this request.
+     * @param image The image for which tiles are being computed.
+     * @param tileIndices The indices of the tiles to be computed.
+     * @param tileListeners The listeners to be notified of tile
+     *        computation, cancellation, or failure.
+     *
+     * @exception IllegalArgumentException if <code>scheduler</code>,
+     *            <code>image</code>, or <code>tileIndices</code> is
+     *            <code>null</code> or if <code>tileIndices</code> is
+     *            zero-length.
+     */
+    Request(TileScheduler scheduler,
+            PlanarImage image,
+            Point[] tileIndices,
+            TileComputationListener[] tileListeners) {
+
+        // Save a reference to the scheduler.
+        if(scheduler == null) {
+            throw new IllegalArgumentException(); // Internal error - no message.
+        }
+        this.scheduler = scheduler;
+
+        // Save a reference to the image.
+        if(image == null) {
+            throw new IllegalArgumentException(); // Internal error - no message.
+        }
+        this.image = image;
+
+        // Ensure there is at least one tile in the request.
+        if(tileIndices == null || tileIndices.length == 0) {
+            // If this happens it is an internal programming error.
+            throw new IllegalArgumentException(); // Internal error - no message.
+        }
+
+        // Save the tile indices.
+        indices = Arrays.asList(tileIndices);
+
+        // Save references to the listeners, if any.
+        if(tileListeners != null) {
+            int numListeners = tileListeners.length;
+            if(numListeners > 0) {
+                listeners = new HashSet(numListeners);
+                for(int i = 0; i < numListeners; i++) {
+                    listeners.add(tileListeners[i]);
+                }
+            } else {
+                listeners = null;
+            }
+        } else {
+            listeners = null;
+        }
+
+        // Initialize status table.
+        tileStatus = new Hashtable(tileIndices.length);
+    }
+
+    /** Returns the scheduler processing this request. */
+    TileScheduler scheduler() {
+        return scheduler;
+    }
+
+    // --- TileRequest implementation ---
+
+    public PlanarImage getImage() {
+        return image;
+    }
+
+    public Point[] getTileIndices() {
+        return (Point[])indices.toArray(new Point[0]);
+    }
+
+    public TileComputationListener[] getTileListeners() {
+        return (TileComputationListener[])
+            listeners.toArray(new TileComputationListener[0]);
+    }
+
+    public boolean isStatusAvailable() {
+        return true;
+    }
+
+    public int getTileStatus(int tileX, int tileY) {
+        Point p = new Point(tileX, tileY);
+
+        int status;
+        if(tileStatus.containsKey(p)) {
+            status = ((Integer)tileStatus.get(p)).intValue();
+        } else {
+            status = TileRequest.TILE_STATUS_PENDING;
+        }
+
+        return status;
+    }
+
+    public void cancelTiles(Point[] tileIndices) {
+        // Forward the call to the scheduler.
+        scheduler.cancelTiles(this, tileIndices);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.util;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+
+/**
+ * Releases the resources held on behalf of objects once they have
+ * become phantom reachable, in place of <code>finalize()</code>.
+ *
+ * <p> An object registers a cleaning action which must not refer to
+ * the object itself, or the object would never become unreachable.
+ * The action is run at most once, either explicitly through
+ * <code>Cleanable.clean()</code>, typically from a
+ * <code>dispose()</code> or <code>close()</code> method, or by a
+ * daemon thread after the garbage collector has found the object
+ * unreachable.  Unlike a finalizable object, a registered object is
+ * reclaimed in the collection that finds it unreachable, so short
+ * lived images do not survive into the old generation.
+ *
+ * <p> This is a counterpart of <code>java.lang.ref.Cleaner</code>
+ * for virtual machines which do not provide it.
+ *
+ */
+public final class ResourceCleaner {
+
+    /** The queue the phantom references are enqueued on. */
+    private static final ReferenceQueue queue = new ReferenceQueue();
+
+    /**
+     * The head of the list of registered references, which keeps the
+     * references themselves reachable.  Guarded by <code>queue</code>.
+     */
+    private static Ref head = null;
+
+    /** The thread running the cleaning actions. */
+    private static Thread thread = null;
+
+    private ResourceCleaner() {}
+
+    /** An action registered with <code>ResourceCleaner</code>. */
+    public interface Cleanable {
+        /**
+         * Unregisters the action and runs it, unless it has already
+         * been run.
+         */
+        void clean();
+    }
+
+    /**
+     * Registers an action to be run once the object becomes phantom
+     * reachable.
+     *
+     * @param obj  The object to monitor.
+     * @param action  The action to run.  It must not refer to
+     *        <code>obj</code>.
+     * @return A <code>Cleanable</code> running the action on demand.
+     *
+     * @throws IllegalArgumentException if either argument is
+     *         <code>null</code>.
+     */
+    public static Cleanable register(Object obj, Runnable action) {
+        if (obj == null || action == null) {
+            throw new IllegalArgumentException(JaiI18N.getString("Generic0"));
+        }
+
+        Ref ref = new Ref(obj, action);
+
+        synchronized (queue) {
+            ref.next = head;
+            if (head != null) {
+                head.previous = ref;
+            }
+            head = ref;
+
+            if (thread == null) {
+                thread = new Thread(new Runnable() {
+                    public void run() {
+                        while (true) {
+                            try {
+                                ((Ref)queue.remove()).clean();
+                            } catch (Throwable t) {
+                                // Ignore, as exceptions thrown by
+                                // finalize() were.
+                            }
+                        }
+                    }
+                }, "ResourceCleaner");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        return ref;
+    }
+
+    /** A registered action. */
+    private static final class Ref extends PhantomReference
+                                   implements Cleanable {
+
+        /** The action, null once run. */
+        private Runnable action;
+
+        /** The neighbours in the list of registered references. */
+        Ref previous;
+        Ref next;
+
+        Ref(Object obj, Runnable action) {
+            super(obj, queue);
+            this.action = action;
+        }
+
+        public void clean() {
+            Runnable r;
+
+            synchronized (queue) {
+                r = action;
+                if (r == null) {
+                    return;
+                }
+                action = null;
+
+                if (previous == null) {
+                    head = next;
+                } else {
+                    previous.next = next;
+                }
+                if (next != null) {
+                    next.previous = previous;
+                }
+                previous = null;
+                next = null;
+            }
+
+            clear();
+            r.run();
+        }
+    }
+}
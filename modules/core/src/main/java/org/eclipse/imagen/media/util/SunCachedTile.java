@@ -19,10 +19,12 @@ package org.eclipse.imagen.media.util;
 import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
-import java.math.BigInteger;
+import java.util.Map;
+import java.util.WeakHashMap;
 import org.eclipse.imagen.CachedTile;
 import org.eclipse.imagen.PlanarImage;
 import org.eclipse.imagen.remote.SerializableRenderedImage;
@@ -30,31 +32,38 @@ import org.eclipse.imagen.remote.SerializableRenderedImage;
 /**
  * Information associated with a cached tile.
  *
- * <p> This class is used by SunTileCache to create an object that
- * includes all the information associated with a tile, and is put
- * into the tile cache.
+ * <p> This class is used by SunTileCache and ConcurrentTileCache to
+ * create an object that includes all the information associated with
+ * a tile, and is put into the tile cache.
  *
- * <p> It also serves as a double linked list.
+ * <p> It also serves as a double linked list, and as the entry of the
+ * <code>TileKeyMap</code> the caches look tiles up in.
  *
  * @see SunTileCache
+ * @see ConcurrentTileCache
  *
  */
-final class SunCachedTile implements CachedTile {
+final class SunCachedTile extends TileKeyMap.Entry implements CachedTile {
+
+    /** Flags the image keys derived from the owner's hash code. */
+    private static final long HASHED_KEY = 0x8000000000000000L;
+
+    /**
+     * The image keys of <code>SerializableRenderedImage</code>s by
+     * UID, so that copies of the same image share their tiles.
+     */
+    private static final Map serializedKeys = new WeakHashMap();
 
     // Soft or Weak references need to be used, or the objects
-    // never get garbage collected.   The OpImage finalize
-    // method calls removeTiles().  It was suggested, that
-    // the owner be a weak reference.
+    // never get garbage collected.  The owner reference is
+    // enqueued once the owner is collected, upon which the
+    // cache removes the tile.
     Raster tile;                // the tile to be cached
     WeakReference owner;        // the RenderedImage this tile belongs to
 
-    int tileX;			// tile X index
-    int tileY;			// tile Y index
-
     Object tileCacheMetric;     // Metric for weighting tile computation cost
     long timeStamp;		// the last time this tile is accessed
 
-    Object key;			// the key used to hash this tile
     long memorySize;		// the memory used by this tile in bytes
 
     SunCachedTile previous;	// the SunCachedTile before this tile
@@ -62,26 +71,28 @@ final class SunCachedTile implements CachedTile {
 
     int action = 0;             // add, remove, update from tile cache
 
+    volatile boolean referenced; // CLOCK reference bit (ConcurrentTileCache)
+
 
     /**
      * Constructor that takes a tile cache metric
      * @since 1.1
      */
     SunCachedTile(RenderedImage owner,
+                  long imageKey,
                   int tileX,
                   int tileY,
                   Raster tile,
-                  Object tileCacheMetric) {
+                  Object tileCacheMetric,
+                  ReferenceQueue queue) {
+
+        super(imageKey, tileX, tileY);
 
-        this.owner = new WeakReference(owner);
+        this.owner = new OwnerReference(owner, queue, this);
         this.tile  = tile;
-        this.tileX = tileX;
-        this.tileY = tileY;
 
         this.tileCacheMetric = tileCacheMetric;  // may be null
 
-        key = hashKey(owner, tileX, tileY);
-
         // tileMemorySize(Raster tile) inlined for performance
         DataBuffer db = tile.getDataBuffer();
         memorySize = db.getDataTypeSize(db.getDataType()) / 8L *
@@ -90,60 +101,48 @@ final class SunCachedTile implements CachedTile {
     }
 
     /**
-     * Returns the hash table "key" as a <code>Object</code> for this
-     * tile.  For <code>PlanarImage</code> and
-     * <code>SerializableRenderedImage</code>, the key is generated by
-     * the method <code>ImageUtilgenerateID(Object) </code>.  For the
-     * other cases, a <code>Long</code> object is returned.
-     * The upper 32 bits for this <code>Long</code> is the tile owner's
-     * hash code, and the lower 32 bits is the tile's index.
+     * Returns the key identifying the tiles of an image in a
+     * <code>TileKeyMap</code>.  For <code>PlanarImage</code> this is
+     * the value of <code>getCompactImageID()</code>.  For
+     * <code>SerializableRenderedImage</code> a compact identifier is
+     * associated with the UID of the image.  For the other cases the
+     * key is the owner's hash code with the most significant bit set.
      */
-    static Object hashKey(RenderedImage owner,
-                              int tileX,
-                              int tileY) {
-        long idx = tileY * (long)owner.getNumXTiles() + tileX;
-
-        BigInteger imageID = null;
+    static long imageKey(RenderedImage owner) {
         if (owner instanceof PlanarImage)
-            imageID = (BigInteger)((PlanarImage)owner).getImageID();
-        else if (owner instanceof SerializableRenderedImage)
-            imageID = (BigInteger)((SerializableRenderedImage)owner).getImageID();
-
-        if (imageID != null) {
-            byte[] buf = imageID.toByteArray();
-            int length = buf.length;
-            byte[] buf1 = new byte[length + 8];
-            System.arraycopy(buf, 0, buf1, 0, length);
-            for (int i = 7, j = 0; i >= 0; i--, j += 8)
-                buf1[length++] = (byte)(idx >> j);
-            return new BigInteger(buf1);
+            return ((PlanarImage)owner).getCompactImageID();
+
+        if (owner instanceof SerializableRenderedImage) {
+            Object imageID = ((SerializableRenderedImage)owner).getImageID();
+
+            synchronized (serializedKeys) {
+                Long key = (Long)serializedKeys.get(imageID);
+                if (key == null) {
+                    key = new Long(ImageUtil.generateCompactID());
+                    serializedKeys.put(imageID, key);
+                }
+                return key.longValue();
+            }
         }
 
-        idx = idx & 0x00000000ffffffffL;
-        return new Long(((long)owner.hashCode() << 32) | idx);
+        return HASHED_KEY | (owner.hashCode() & 0x00000000ffffffffL);
     }
 
     /**
-     *  Special version of hashKey for use in SunTileCache.removeTiles().
-     *  Minimizes the overhead of repeated calls to
-     *  hashCode and getNumTiles(). Note that this causes a
-     *  linkage between the CachedTile and SunTileCache classes
-     *  in that SunTileCache now has to understand how the
-     *  tileIndex is calculated.
+     * The reference to the owner of a tile, enqueued on the queue of
+     * the cache once the owner has been garbage collected.
      */
-/*
-    static Long hashKey(int ownerHashCode,
-                        int tileIndex) {
-        long idx = (long)tileIndex;
-        idx = idx & 0x00000000ffffffffL;
-        return new Long(((long)ownerHashCode << 32) | idx);
-    }
-*/
-    /** Returns the owner's hash code. */
-/*    static long getOwnerHashCode(Long key) {
-        return key.longValue() >>> 32;
+    static final class OwnerReference extends WeakReference {
+        final SunCachedTile tile;
+
+        OwnerReference(RenderedImage owner,
+                       ReferenceQueue queue,
+                       SunCachedTile tile) {
+            super(owner, queue);
+            this.tile = tile;
+        }
     }
-*/
+
     /** Returns a string representation of the class object. */
     public String toString() {
         RenderedImage o = (RenderedImage) getOwner();
@@ -157,7 +156,7 @@ final class SunCachedTile implements CachedTile {
                " tileX = " + Integer.toString(tileX) +
                " tileY = " + Integer.toString(tileY) +
                " tile = " + tstring +
-               " key = " + ((key instanceof Long)? Long.toHexString(((Long)key).longValue()) : key.toString()) +
+               " imageKey = " + Long.toHexString(imageKey) +
                " memorySize = " + Long.toString(memorySize) +
                " timeStamp = " + Long.toString(timeStamp);
     }
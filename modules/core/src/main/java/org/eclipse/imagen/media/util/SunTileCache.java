@@ -23,13 +23,13 @@ import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.Observable;
 import java.util.Vector;
-import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.awt.Point;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.lang.ref.ReferenceQueue;
 import org.eclipse.imagen.EnumeratedParameter;
 import org.eclipse.imagen.TileCache;
 import org.eclipse.imagen.util.ImagingListener;
@@ -64,19 +64,19 @@ public final class SunTileCache extends Observable
     private static final long DEFAULT_MEMORY_CAPACITY = 16L * 1024L * 1024L;
 
     /** The default hashtable capacity (heuristic) */
-    private static final int DEFAULT_HASHTABLE_CAPACITY = 1009; // prime number
-
-    /** The hashtable load factor */
-    private static final float LOAD_FACTOR = 0.5F;
+    private static final int DEFAULT_HASHTABLE_CAPACITY = 1009;
 
     /**
      * The tile cache.
-     * A Hashtable is used to cache the tiles.  The "key" is a 
-     * <code>Object</code> determined based on tile owner's UID if any or
-     * hashCode if the UID doesn't exist, and tile index.  The
-     * "value" is a SunCachedTile.
+     * A TileKeyMap is used to cache the tiles.  The key is the
+     * compact identifier of the tile owner and the tile indices, so
+     * that looking up a tile allocates nothing.  The value is a
+     * SunCachedTile.
      */
-    private Hashtable cache;
+    private TileKeyMap cache;
+
+    /** The queue of the references to tile owners that were collected. */
+    private ReferenceQueue collectedOwners = new ReferenceQueue();
 
     /**
      * Sorted (Tree) Set used with tile metrics.
@@ -175,9 +175,7 @@ public final class SunTileCache extends Observable
 
         this.memoryCapacity = memoryCapacity;
 
-        // try to get a prime number (more efficient?)
-        // lower values of LOAD_FACTOR increase speed, decrease space efficiency
-        cache = new Hashtable(DEFAULT_HASHTABLE_CAPACITY, LOAD_FACTOR);
+        cache = new TileKeyMap(DEFAULT_HASHTABLE_CAPACITY);
     }
 
 
@@ -225,10 +223,12 @@ public final class SunTileCache extends Observable
             return;
         }
 
+        removeCollectedTiles();
+
         // This tile is not in the cache; create a new SunCachedTile.
         // else just update. (code inlined for performance).
-        Object key = SunCachedTile.hashKey(owner, tileX, tileY);
-        SunCachedTile ct = (SunCachedTile) cache.get(key);
+        long imageKey = SunCachedTile.imageKey(owner);
+        SunCachedTile ct = (SunCachedTile)cache.get(imageKey, tileX, tileY);
 
         if ( ct != null ) {
             // tile is cached, inlines update()
@@ -260,7 +260,8 @@ public final class SunTileCache extends Observable
             }
         } else {
             // create a new tile
-            ct = new SunCachedTile(owner, tileX, tileY, tile, tileCacheMetric);
+            ct = new SunCachedTile(owner, imageKey, tileX, tileY, tile,
+                                   tileCacheMetric, collectedOwners);
 
             // Don't cache tile if adding it would provoke memoryControl()
             // which would in turn only end up removing the tile.
@@ -282,7 +283,7 @@ public final class SunTileCache extends Observable
             }
 
             // add to tile cache
-            if ( cache.put(ct.key, ct) == null ) {
+            if ( cache.putIfAbsent(ct) == null ) {
                 memoryUsage += ct.memorySize;
                 tileCount++;
                 //missCount++;  Not necessary?
@@ -319,8 +320,8 @@ public final class SunTileCache extends Observable
             return;
         }
 
-        Object key = SunCachedTile.hashKey(owner, tileX, tileY);
-        SunCachedTile ct = (SunCachedTile) cache.get(key);
+        long imageKey = SunCachedTile.imageKey(owner);
+        SunCachedTile ct = (SunCachedTile)cache.get(imageKey, tileX, tileY);
 
         if ( ct != null ) {
             // Notify observers that a tile is about to be removed.
@@ -333,10 +334,8 @@ public final class SunTileCache extends Observable
             setChanged();
             notifyObservers(ct);
 
-            ct = (SunCachedTile) cache.remove(key);
-
             // recalculate memoryUsage only if tile is actually removed
-            if ( ct != null ) {
+            if ( cache.remove(ct) ) {
                 memoryUsage -= ct.memorySize;
                 tileCount--;
 
@@ -366,8 +365,8 @@ public final class SunTileCache extends Observable
                 // Usually, by the time the observers are notified
                 // the ct owner and tile are nulled by the GC, so
                 // we can't really tell which op was removed
-                // This occurs when OpImage's finalize method is
-                // invoked.  This code works ok when remove is
+                // This occurs when the tiles of a collected owner
+                // are expunged.  This code works ok when remove is
                 // called directly. (by flush() for example).
                 // If the soft references are GC'd, the timeStamp
                 // will no longer be contiguous, it will be
@@ -385,6 +384,53 @@ public final class SunTileCache extends Observable
         }
     }
 
+    /**
+     * Removes the tiles whose owner has been garbage collected.
+     */
+    private void removeCollectedTiles() {
+        SunCachedTile.OwnerReference ref;
+
+        while ( (ref = (SunCachedTile.OwnerReference)collectedOwners.poll()) != null ) {
+            SunCachedTile ct = ref.tile;
+
+            if ( !cache.remove(ct) ) {
+                continue;   // already removed
+            }
+
+            memoryUsage -= ct.memorySize;
+            tileCount--;
+
+            if ( cacheSortedSet != null ) {
+                cacheSortedSet.remove(ct);
+            }
+
+            if ( ct == first ) {
+                if ( ct == last ) {
+                    first = null;  // only one tile in the list
+                    last  = null;
+                } else {
+                    first = ct.next;
+                    first.previous = null;
+                }
+            } else if ( ct == last ) {
+                last = ct.previous;
+                last.next = null;
+            } else {
+                ct.previous.next = ct.next;
+                ct.next.previous = ct.previous;
+            }
+
+            ct.previous = null;
+            ct.next = null;
+
+            if ( diagnostics ) {
+                ct.action = REMOVE;
+                setChanged();
+                notifyObservers(ct);
+            }
+        }
+    }
+
     /**
      * Retrieves a tile from the cache.
      *
@@ -406,8 +452,8 @@ public final class SunTileCache extends Observable
             return null;
         }
 
-        Object key = SunCachedTile.hashKey(owner, tileX, tileY);
-        SunCachedTile ct = (SunCachedTile)cache.get(key);
+        long imageKey = SunCachedTile.imageKey(owner);
+        SunCachedTile ct = (SunCachedTile)cache.get(imageKey, tileX, tileY);
 
         if ( ct == null ) {
             missCount++;
@@ -471,6 +517,8 @@ public final class SunTileCache extends Observable
             int maxTx = minTx + owner.getNumXTiles();
             int maxTy = minTy + owner.getNumYTiles();
 
+            long imageKey = SunCachedTile.imageKey(owner);
+
             // arbitrarily set a temporary vector size
             Vector temp = new Vector(10, 20);
 
@@ -480,8 +528,7 @@ public final class SunTileCache extends Observable
                     //Raster raster = getTile(owner, x, y);
                     //************************
                     Raster raster = null;
-                    Object key = SunCachedTile.hashKey(owner, x, y);
-                    SunCachedTile ct = (SunCachedTile)cache.get(key);
+                    SunCachedTile ct = (SunCachedTile)cache.get(imageKey, x, y);
 
                     if ( ct == null ) {
                         raster = null;
@@ -575,14 +622,17 @@ public final class SunTileCache extends Observable
             return;
         }
 
+        removeCollectedTiles();
+
+        long imageKey = SunCachedTile.imageKey(owner);
+
         // this just inlines the add routine (no sync overhead for each call).
         for ( int i = 0; i < tileIndices.length; i++ ) {
             int tileX = tileIndices[i].x;
             int tileY = tileIndices[i].y;
             Raster tile = tiles[i];
 
-            Object key = SunCachedTile.hashKey(owner, tileX, tileY);
-            SunCachedTile ct = (SunCachedTile) cache.get(key);
+            SunCachedTile ct = (SunCachedTile)cache.get(imageKey, tileX, tileY);
 
             if ( ct != null ) {
                 // tile is cached, inlines update()
@@ -614,7 +664,8 @@ public final class SunTileCache extends Observable
                 }
             } else {
                 // create a new tile
-                ct = new SunCachedTile(owner, tileX, tileY, tile, tileCacheMetric);
+                ct = new SunCachedTile(owner, imageKey, tileX, tileY, tile,
+                                       tileCacheMetric, collectedOwners);
 
                 // Don't cache tile if adding it would provoke memoryControl()
                 // which would in turn only end up removing the tile.
@@ -636,7 +687,7 @@ public final class SunTileCache extends Observable
                 }
 
                 // add to tile cache
-                if ( cache.put(ct.key, ct) == null ) {
+                if ( cache.putIfAbsent(ct) == null ) {
                     memoryUsage += ct.memorySize;
                     tileCount++;
                     //missCount++;  Not necessary?
@@ -677,13 +728,13 @@ public final class SunTileCache extends Observable
         }
 
         Raster[] tiles = new Raster[tileIndices.length];
+        long imageKey = SunCachedTile.imageKey(owner);
 
         for ( int i = 0; i < tiles.length; i++ ) {
             int tileX = tileIndices[i].x;
             int tileY = tileIndices[i].y;
 
-            Object key = SunCachedTile.hashKey(owner, tileX, tileY);
-            SunCachedTile ct = (SunCachedTile)cache.get(key);
+            SunCachedTile ct = (SunCachedTile)cache.get(imageKey, tileX, tileY);
 
             if ( ct == null ) {
                 tiles[i] = null;
@@ -736,18 +787,17 @@ public final class SunTileCache extends Observable
         // to it in the hash map is null. It is not enough
         // to just set the object to null.
         //
-        Enumeration keys = cache.keys();    // all keys in Hashtable
+        TileKeyMap.Entry[] entries = cache.entries();
 
         // reset counters before diagnostics
         hitCount  = 0;
         missCount = 0;
 
-        while (keys.hasMoreElements()) {
-            Object key = keys.nextElement();
-            SunCachedTile ct = (SunCachedTile) cache.remove(key);
+        for (int i = 0; i < entries.length; i++) {
+            SunCachedTile ct = (SunCachedTile)entries[i];
 
             // recalculate memoryUsage only if tile is actually removed
-            if ( ct != null ) {
+            if ( cache.remove(ct) ) {
                 memoryUsage -= ct.memorySize;
                 tileCount--;
 
@@ -780,7 +830,7 @@ public final class SunTileCache extends Observable
         }
 
         if ( memoryCapacity > 0 ) {
-            cache = new Hashtable(DEFAULT_HASHTABLE_CAPACITY, LOAD_FACTOR);
+            cache = new TileKeyMap(DEFAULT_HASHTABLE_CAPACITY);
         }
 
         if ( cacheSortedSet != null ) {
@@ -916,9 +966,20 @@ public final class SunTileCache extends Observable
                " #tilesInCache = " + Integer.toString(cache.size());
     }
 
-    /** Returns the <code>Object</code> that represents the actual cache. */
-    public Object getCachedObject() {
-        return cache;
+    /**
+     * Returns the <code>Object</code> that represents the actual cache.
+     * For this implementation this is a snapshot <code>Hashtable</code>
+     * from tile key to <code>CachedTile</code>.
+     */
+    public synchronized Object getCachedObject() {
+        TileKeyMap.Entry[] entries = cache.entries();
+        Hashtable snapshot = new Hashtable(2 * entries.length + 1);
+
+        for (int i = 0; i < entries.length; i++) {
+            snapshot.put(new TileKeyMap.Key(entries[i]), entries[i]);
+        }
+
+        return snapshot;
     }
 
     /**
@@ -939,11 +1000,9 @@ public final class SunTileCache extends Observable
         long limit = (long)(memoryCapacity * memoryThreshold);
 
         while( memoryUsage > limit && last != null ) {
-            SunCachedTile ct = (SunCachedTile) cache.get(last.key);
-
-            if ( ct != null ) {
-                ct = (SunCachedTile) cache.remove(last.key);
+            SunCachedTile ct = last;
 
+            if ( cache.remove(ct) ) {
                 memoryUsage -= last.memorySize;
                 tileCount--;
 
@@ -1031,7 +1090,7 @@ public final class SunTileCache extends Observable
             }
 
             // remove reference in the hashtable
-            cache.remove(ct.key);
+            cache.remove(ct);
 
             // diagnostics
             if ( diagnostics ) {
@@ -1071,12 +1130,10 @@ public final class SunTileCache extends Observable
             // copy tiles from hashtable to sorted tree set
             cacheSortedSet = Collections.synchronizedSortedSet( new TreeSet(comparator) );
 
-            Enumeration keys = cache.keys();
+            TileKeyMap.Entry[] entries = cache.entries();
 
-            while( keys.hasMoreElements() ) {
-                Object key = keys.nextElement();
-                Object ct = cache.get(key);
-                cacheSortedSet.add(ct);
+            for (int i = 0; i < entries.length; i++) {
+                cacheSortedSet.add(entries[i]);
             }
         }
     }
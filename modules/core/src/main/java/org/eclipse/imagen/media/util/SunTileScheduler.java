@@ -29,7 +29,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -48,120 +47,6 @@ import org.eclipse.imagen.util.ImagingException;
 import org.eclipse.imagen.util.ImagingListener;
 import org.eclipse.imagen.media.util.ImageUtil;
 
-/**
- * A class representing a request for non-prefetch background computation
- * of tiles.  The object stores the image, the indices of all tiles being
- * requested, and references to all listeners associated with the request.
- *
- * <code>TileRequest</code> methods are not commented.
- */
-class Request implements TileRequest {
-
-    private final TileScheduler scheduler;
-
-    final PlanarImage image;
-    final List indices;
-    final Set listeners;
-
-    final Hashtable tileStatus;
-
-    /**
-     * Constructs a <code>Request</code>.
-     *
-     * @param scheduler The scheduler processing this request.
-     * @param image The image for which tiles are being computed.
-     * @param tileIndices The indices of the tiles to be computed.
-     * @param tileListeners The listeners to be notified of tile
-     *        computation, cancellation, or failure.
-     *
-     * @exception IllegalArgumentException if <code>scheduler</code>,
-     *            <code>image</code>, or <code>tileIndices</code> is
-     *            <code>null</code> or if <code>tileIndices</code> is
-     *            zero-length.
-     */
-    Request(TileScheduler scheduler,
-            PlanarImage image,
-            Point[] tileIndices,
-            TileComputationListener[] tileListeners) {
-
-        // Save a reference to the scheduler.
-        if(scheduler == null) {
-            throw new IllegalArgumentException(); // Internal error - no message.
-        }
-        this.scheduler = scheduler;
-
-        // Save a reference to the image.
-        if(image == null) {
-            throw new IllegalArgumentException(); // Internal error - no message.
-        }
-        this.image = image;
-
-        // Ensure there is at least one tile in the request.
-        if(tileIndices == null || tileIndices.length == 0) {
-            // If this happens it is an internal programming error.
-            throw new IllegalArgumentException(); // Internal error - no message.
-        }
-
-        // Save the tile indices.
-        indices = Arrays.asList(tileIndices);
-
-        // Save references to the listeners, if any.
-        if(tileListeners != null) {
-            int numListeners = tileListeners.length;
-            if(numListeners > 0) {
-                listeners = new HashSet(numListeners);
-                for(int i = 0; i < numListeners; i++) {
-                    listeners.add(tileListeners[i]);
-                }
-            } else {
-                listeners = null;
-            }
-        } else {
-            listeners = null;
-        }
-
-        // Initialize status table.
-        tileStatus = new Hashtable(tileIndices.length);
-    }
-
-    // --- TileRequest implementation ---
-
-    public PlanarImage getImage() {
-        return image;
-    }
-
-    public Point[] getTileIndices() {
-        return (Point[])indices.toArray(new Point[0]);
-    }
-
-    public TileComputationListener[] getTileListeners() {
-        return (TileComputationListener[])
-            listeners.toArray(new TileComputationListener[0]);
-    }
-
-    public boolean isStatusAvailable() {
-        return true;
-    }
-
-    public int getTileStatus(int tileX, int tileY) {
-        Point p = new Point(tileX, tileY);
-
-        int status;
-        if(tileStatus.containsKey(p)) {
-            status = ((Integer)tileStatus.get(p)).intValue();
-        } else {
-            status = TileRequest.TILE_STATUS_PENDING;
-        }
-
-        return status;
-    }
-
-    public void cancelTiles(Point[] tileIndices) {
-        // Forward the call to the scheduler.
-        scheduler.cancelTiles(this, tileIndices);
-    }
-}
-
 /** A job to put in a job queue. */
 interface Job {
     /** Computes the job required. */
@@ -414,8 +299,18 @@ class WorkerThread extends Thread {
     /** <code>Object</code> indicating the the thread should exit. */
     public static final Object TERMINATE = new Object();
 
-    /** The scheduler that spawned this thread. */
-    SunTileScheduler scheduler;
+    /**
+     * The scheduler that spawned this thread.  It is weakly referenced
+     * so that the scheduler may be collected, which terminates the
+     * thread.
+     */
+    WeakReference scheduler;
+
+    /** The queue this thread takes jobs from. */
+    LinkedList jobQueue;
+
+    /** The list of workers this thread belongs to. */
+    Vector workers;
 
     /** Whether this is a prefetch thread. */
     boolean isPrefetch;
@@ -425,7 +320,9 @@ class WorkerThread extends Thread {
 			SunTileScheduler scheduler,
 			boolean isPrefetch) {
 	super(group, group.getName() + group.activeCount());
-        this.scheduler = scheduler;
+        this.scheduler = new WeakReference(scheduler);
+        this.jobQueue = scheduler.getQueue(isPrefetch);
+        this.workers = scheduler.getWorkers(isPrefetch);
         this.isPrefetch = isPrefetch;
 
         setDaemon(true);
@@ -434,8 +331,6 @@ class WorkerThread extends Thread {
 
     /** Does the tile computation. */
     public void run() {
-        LinkedList jobQueue = scheduler.getQueue(isPrefetch);
-
         while(true) {
             Object dequeuedObject = null;
 
@@ -458,9 +353,8 @@ class WorkerThread extends Thread {
             if(dequeuedObject == TERMINATE || 
 		getThreadGroup() == null || getThreadGroup().isDestroyed()) {
                 // Remove WorkerThread from appropriate Vector.
-                Vector threads;
-                synchronized(threads = scheduler.getWorkers(isPrefetch)) {
-                    threads.remove(this);
+                synchronized(workers) {
+                    workers.remove(this);
                 }
 
                 // Exit the thread.
@@ -474,9 +368,14 @@ class WorkerThread extends Thread {
 		job.compute();
 
 		// Notify the scheduler only if the Job is blocking.
+		// A blocking job is being waited for, so the scheduler
+		// is still reachable.
 		if(job.isBlocking()) {
-		    synchronized(scheduler) {
-			scheduler.notify();
+		    Object s = scheduler.get();
+		    if(s != null) {
+			synchronized(s) {
+			    s.notify();
+			}
 		    }
 		}
 	    }
@@ -704,6 +603,53 @@ public final class SunTileScheduler implements TileScheduler {
 	prefetchGroup.setDaemon(true);
 
 	numInstances++;
+
+        // Terminate the workers once this scheduler is unreachable.
+        ResourceCleaner.register(this,
+                                 new Terminator(getQueue(false),
+                                                getWorkers(false),
+                                                getQueue(true),
+                                                getWorkers(true)));
+    }
+
+    /**
+     * Queues a <code>WorkerThread.TERMINATE</code> for each worker of a
+     * collected scheduler.  This is not an inner class so that it does
+     * not refer to the scheduler.
+     */
+    private static class Terminator implements Runnable {
+        private LinkedList queue;
+        private Vector workers;
+        private LinkedList prefetchQueue;
+        private Vector prefetchWorkers;
+
+        Terminator(LinkedList queue, Vector workers,
+                   LinkedList prefetchQueue, Vector prefetchWorkers) {
+            this.queue = queue;
+            this.workers = workers;
+            this.prefetchQueue = prefetchQueue;
+            this.prefetchWorkers = prefetchWorkers;
+        }
+
+        public void run() {
+            terminateAll(queue, workers);
+            terminateAll(prefetchQueue, prefetchWorkers);
+        }
+
+        private static void terminateAll(LinkedList jobQueue,
+                                         Vector threads) {
+            int numThreads;
+            synchronized(threads) {
+                numThreads = threads.size();
+            }
+
+            synchronized(jobQueue) {
+                for(int i = 0; i < numThreads; i++) {
+                    jobQueue.addLast(WorkerThread.TERMINATE);
+                }
+                jobQueue.notifyAll();
+            }
+        }
     }
 
     /**
@@ -1464,6 +1410,30 @@ public final class SunTileScheduler implements TileScheduler {
         return prefetchPriority;
     }
 
+    /**
+     * Returns <code>true</code> if the given thread is one of the worker
+     * threads of this scheduler.  A worker which waits for other tiles
+     * of this scheduler to be computed may starve it.
+     */
+    public boolean isWorkerThread(Thread thread) {
+        return thread instanceof WorkerThread &&
+            ((WorkerThread)thread).scheduler.get() == this;
+    }
+
+    /**
+     * Returns <code>true</code> if tiles scheduled now would be taken up
+     * by a worker thread right away, that is if there are worker threads
+     * and no job is waiting in the queue of the standard jobs.
+     */
+    public boolean hasIdleWorkers() {
+        if (parallelism == 0) {
+            return false;
+        }
+        synchronized (queue) {
+            return queue.isEmpty();
+        }
+    }
+
     /** Recreate the <code>ThreadGroup</code>is and <code>WorkThread</code>s.
      * This happens in the case of applet: the java plugin will exist after
      * the termination of the applet so that JAI and SunTileScheduler will
@@ -1623,29 +1593,6 @@ public final class SunTileScheduler implements TileScheduler {
         }
     }
 
-    /** Queue WorkerThread.TERMINATEs to all workers. */
-    protected void finalize() throws Throwable {
-        terminateAll(false);
-        terminateAll(true);
-        super.finalize();
-    }
-
-    /** Queue WorkerThread.TERMINATEs to all appropriate workers. */
-    private void terminateAll(boolean isPrefetch) {
-        synchronized(getWorkers(isPrefetch)) {
-            int numThreads = isPrefetch ?
-                numPrefetchThreads : numWorkerThreads;
-            for(int i = 0; i < numThreads; i++) {
-                addJob(WorkerThread.TERMINATE, isPrefetch);
-                if(isPrefetch) {
-                    numPrefetchThreads--;
-                } else {
-                    numWorkerThreads--;
-                }
-            }
-        }
-    }
-
     void sendExceptionToListener(String message, Throwable e) {
         ImagingListener listener =
             ImageUtil.getImagingListener((RenderingHints)null);
@@ -0,0 +1,1709 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.util;
+import java.awt.Point;
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Observable;
+import java.util.TreeSet;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.eclipse.imagen.CachedTile;
+import org.eclipse.imagen.EnumeratedParameter;
+import org.eclipse.imagen.TileCache;
+import org.eclipse.imagen.util.ImagingListener;
+
+/**
+ * A two tier <code>TileCache</code> for caches much larger than the
+ * Java heap.  Recently used tiles are kept on the heap as
+ * <code>Raster</code>s, exactly as <code>SunTileCache</code> does.
+ * Tiles evicted from the heap tier are not discarded but spilled to an
+ * off-heap arena of direct <code>ByteBuffer</code>s or, if a file is
+ * given, of a memory-mapped file.  A spilled tile is only dropped when
+ * the off-heap tier itself is full.
+ *
+ * <p> Only the samples of a spilled tile are stored off-heap, either
+ * as is (format <code>"raw"</code>) or compressed (format
+ * <code>"gzip"</code>), the names being those of the corresponding
+ * tile codecs.  When a spilled tile is requested it is rehydrated into
+ * a new <code>Raster</code> through the <code>SampleModel</code> of
+ * the owning image and promoted back to the heap tier.  The off-heap
+ * arena is carved into fixed size pages which are recycled between
+ * tiles, so spilling and promoting tiles creates no garbage beyond the
+ * rehydrated <code>Raster</code>s themselves.
+ *
+ * <p> The heap tier evicts tiles in least recently used order, or in
+ * the order of the tile comparator if one is set.  The off-heap tier
+ * evicts in tile comparator order if one is set, and otherwise by
+ * the GreedyDual-Size policy: a tile's priority is its computation
+ * cost divided by its off-heap size, aged by the priority of the last
+ * evicted tile, so that tiles which are cheap to recompute or large
+ * are dropped first.  The cost is the value of the tile cache metric
+ * if it is a <code>Number</code>, and 1 otherwise.
+ *
+ * <p> The memory capacity of the <code>TileCache</code> interface
+ * applies to the heap tier only; the off-heap capacity is set
+ * separately.  Direct buffers are allocated lazily in chunks as the
+ * off-heap tier fills up, and are subject to the
+ * <code>-XX:MaxDirectMemorySize</code> limit of the virtual machine.
+ *
+ * <p> The hit count of the <code>CacheDiagnostics</code> interface is
+ * the sum of the hits of both tiers; the hits of each tier are
+ * available separately.  All methods are synchronized, as in
+ * <code>SunTileCache</code>.
+ *
+ * @see org.eclipse.imagen.TileCache
+ * @see SunTileCache
+ *
+ */
+public final class TieredTileCache extends Observable
+                                   implements TileCache,
+                                              CacheDiagnostics {
+
+    /** The default memory capacity of the heap tier (16 MB). */
+    private static final long DEFAULT_MEMORY_CAPACITY = 16L * 1024L * 1024L;
+
+    /** The default memory capacity of the off-heap tier (256 MB). */
+    private static final long DEFAULT_OFF_HEAP_CAPACITY = 256L * 1024L * 1024L;
+
+    /** The size of an off-heap page in bytes; a multiple of 8. */
+    private static final int PAGE_SIZE = 8192;
+
+    /** The number of pages allocated at once (64 MB). */
+    private static final int PAGES_PER_CHUNK = 8192;
+
+    // diagnostic actions, identical to those of SunTileCache.
+    private static final int ADD                 = 0;
+    private static final int REMOVE              = 1;
+    private static final int REMOVE_FROM_FLUSH   = 2;
+    private static final int REMOVE_FROM_MEMCON  = 3;
+    private static final int UPDATE_FROM_ADD     = 4;
+    private static final int UPDATE_FROM_GETTILE = 5;
+    private static final int ABOUT_TO_REMOVE     = 6;
+
+    /** The initial capacity of the tile maps. */
+    private static final int MAP_CAPACITY = 1009;
+
+    /** Heap tier tiles by key. */
+    private TileKeyMap heapCache = new TileKeyMap(MAP_CAPACITY);
+
+    /** The most recently used tile of the heap tier. */
+    private SunCachedTile first = null;
+
+    /** The least recently used tile of the heap tier. */
+    private SunCachedTile last = null;
+
+    /** Off-heap tier tiles by key. */
+    private TileKeyMap offHeapCache = new TileKeyMap(MAP_CAPACITY);
+
+    /** The queue of the references to tile owners that were collected. */
+    private final ReferenceQueue collectedOwners = new ReferenceQueue();
+
+    /** Off-heap tier tiles in eviction order. */
+    private TreeSet offHeapOrder;
+
+    /** The off-heap page arena. */
+    private final Arena arena;
+
+    /** Whether spilled tiles are compressed. */
+    private final boolean compressed;
+
+    /** The memory capacity of the heap tier. */
+    private long memoryCapacity;
+
+    /** The amount of memory currently being used by the heap tier. */
+    private long memoryUsage = 0;
+
+    /** The amount of memory to keep after memory control */
+    private float memoryThreshold = 0.75F;
+
+    /** A indicator for tile access time. */
+    private long timeStamp = 0;
+
+    /** The GreedyDual-Size aging value of the off-heap tier. */
+    private double inflation = 0.0;
+
+    /** Sequence number breaking ties in the off-heap order. */
+    private long sequence = 0;
+
+    /** Custom comparator used to order tiles in both tiers. */
+    private Comparator comparator = null;
+
+    /** Heap tier hit count */
+    private long heapHitCount = 0;
+
+    /** Off-heap tier hit count */
+    private long offHeapHitCount = 0;
+
+    /** Cache miss count */
+    private long missCount = 0;
+
+    /** Diagnostics enable/disable */
+    private boolean diagnostics = false;
+
+    /**
+     * Returns an array of <code>EnumeratedParameter</code>s corresponding
+     * to the numeric values returned by the <code>getAction()</code>
+     * method of the <code>CachedTile</code> implementations used by
+     * <code>TieredTileCache</code>.  These are the same actions
+     * as those of <code>SunTileCache</code>.
+     */
+    public static EnumeratedParameter[] getCachedTileActions() {
+        return SunTileCache.getCachedTileActions();
+    }
+
+    /**
+     * No args constructor.  Uses a heap tier of 16 MB and an
+     * uncompressed off-heap tier of 256 MB.
+     */
+    public TieredTileCache() {
+        this(DEFAULT_MEMORY_CAPACITY, DEFAULT_OFF_HEAP_CAPACITY);
+    }
+
+    /**
+     * Constructor.  Spilled tiles are stored uncompressed in direct
+     * <code>ByteBuffer</code>s.
+     *
+     * @param memoryCapacity  The maximum heap tier size in bytes.
+     * @param offHeapCapacity  The maximum off-heap tier size in bytes.
+     *
+     * @throws IllegalArgumentException  If either capacity is less
+     *         than 0.
+     */
+    public TieredTileCache(long memoryCapacity, long offHeapCapacity) {
+        this(memoryCapacity, offHeapCapacity, "raw", null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param memoryCapacity  The maximum heap tier size in bytes.
+     * @param offHeapCapacity  The maximum off-heap tier size in bytes.
+     * @param formatName  The format of the spilled tiles, either
+     *        <code>"raw"</code> or <code>"gzip"</code>.
+     * @param file  The file to map the off-heap tier to, or
+     *        <code>null</code> to store it in direct
+     *        <code>ByteBuffer</code>s.  The file is created if needed
+     *        and grows as the tier fills up; it is not deleted by
+     *        the cache.
+     *
+     * @throws IllegalArgumentException  If either capacity is less
+     *         than 0 or the format is not supported.
+     */
+    public TieredTileCache(long memoryCapacity, long offHeapCapacity,
+                           String formatName, File file) {
+        if (memoryCapacity < 0 || offHeapCapacity < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileCache"));
+        }
+
+        if ("raw".equalsIgnoreCase(formatName)) {
+            compressed = false;
+        } else if ("gzip".equalsIgnoreCase(formatName)) {
+            compressed = true;
+        } else {
+            throw new IllegalArgumentException(JaiI18N.getString("TieredTileCache0"));
+        }
+
+        this.memoryCapacity = memoryCapacity;
+        arena = new Arena(offHeapCapacity, file);
+        offHeapOrder = new TreeSet(new SpillOrder());
+    }
+
+    /**
+     * Adds a tile to the cache.
+     *
+     * <p> If the specified tile is already in the cache, it will not be
+     * cached again.  If by adding this tile, the heap tier exceeds the
+     * memory capacity, older tiles are spilled to the off-heap tier.
+     *
+     * @param owner            The image the tile blongs to.
+     * @param tileX            The tile's X index within the image.
+     * @param tileY            The tile's Y index within the image.
+     * @param tile             The tile to be cached.
+     */
+    public void add(RenderedImage owner,
+                    int tileX,
+                    int tileY,
+                    Raster tile) {
+        add(owner, tileX, tileY, tile, null);
+    }
+
+    /**
+     * Adds a tile to the cache with an associated tile compute cost.
+     *
+     * <p> If the specified tile is already in the heap tier, it will
+     * not be cached again.  If it is in the off-heap tier, the spilled
+     * copy is replaced by the specified tile.  If by adding this tile,
+     * the heap tier exceeds the memory capacity, older tiles are
+     * spilled to the off-heap tier.
+     *
+     * @param owner            The image the tile blongs to.
+     * @param tileX            The tile's X index within the image.
+     * @param tileY            The tile's Y index within the image.
+     * @param tile             The tile to be cached.
+     * @param tileCacheMetric  Metric for prioritizing tiles
+     */
+    public synchronized void add(RenderedImage owner,
+                                 int tileX,
+                                 int tileY,
+                                 Raster tile,
+                                 Object tileCacheMetric) {
+
+        if ( memoryCapacity == 0 ) {
+            return;
+        }
+
+        long imageKey = SunCachedTile.imageKey(owner);
+        SunCachedTile ct =
+            (SunCachedTile)heapCache.get(imageKey, tileX, tileY);
+
+        if ( ct != null ) {
+            touch(ct);
+            heapHitCount++;
+            notifyAction(ct, UPDATE_FROM_ADD);
+            return;
+        }
+
+        removeCollectedTiles();
+
+        ct = new SunCachedTile(owner, imageKey, tileX, tileY,
+                               tile, tileCacheMetric, collectedOwners);
+
+        // Don't cache tile if adding it would provoke memoryControl()
+        // which would in turn only end up removing the tile.
+        if (memoryUsage + ct.memorySize > memoryCapacity &&
+            ct.memorySize > (long)(memoryCapacity * memoryThreshold)) {
+            return;
+        }
+
+        SpilledTile st =
+            (SpilledTile)offHeapCache.get(imageKey, tileX, tileY);
+        if ( st != null ) {
+            // The new tile supersedes the spilled copy.
+            unlink(st);
+            offHeapHitCount++;
+            insert(ct, UPDATE_FROM_ADD);
+        } else {
+            insert(ct, ADD);
+        }
+    }
+
+    /** Inserts a tile into the heap tier. */
+    private void insert(SunCachedTile ct, int action) {
+        ct.timeStamp = timeStamp++;
+        heapCache.putIfAbsent(ct);
+        memoryUsage += ct.memorySize;
+
+        ct.previous = null;
+        ct.next = first;
+        if ( first == null ) {
+            last = ct;
+        } else {
+            first.previous = ct;
+        }
+        first = ct;
+
+        notifyAction(ct, action);
+
+        // Bring memory usage down to memoryThreshold % of memory capacity.
+        if (memoryUsage > memoryCapacity) {
+            memoryControl();
+        }
+    }
+
+    /**
+     * Removes a tile from the cache.
+     *
+     * <p> If the specified tile is not in the cache, this method
+     * does nothing.
+     */
+    public synchronized void remove(RenderedImage owner,
+                                    int tileX,
+                                    int tileY) {
+
+        if ( memoryCapacity == 0 ) {
+            return;
+        }
+
+        long imageKey = SunCachedTile.imageKey(owner);
+        CachedTile ct = (CachedTile)heapCache.get(imageKey, tileX, tileY);
+        if ( ct == null ) {
+            ct = (CachedTile)offHeapCache.get(imageKey, tileX, tileY);
+        }
+
+        if ( ct != null ) {
+            // Notify observers that a tile is about to be removed.
+            setAction(ct, ABOUT_TO_REMOVE);
+            setChanged();
+            notifyObservers(ct);
+
+            if ( ct instanceof SunCachedTile ) {
+                unlink((SunCachedTile)ct);
+            } else {
+                unlink((SpilledTile)ct);
+            }
+
+            notifyAction(ct, REMOVE);
+        }
+    }
+
+    /**
+     * Retrieves a tile from the cache.
+     *
+     * <p> If the specified tile is not in the cache, this method
+     * returns <code>null</code>.  If the specified tile is in the
+     * heap tier, its last-access time is updated.  If it is in the
+     * off-heap tier, it is rehydrated and moved to the heap tier.
+     *
+     * @param owner  The image the tile blongs to.
+     * @param tileX  The tile's X index within the image.
+     * @param tileY  The tile's Y index within the image.
+     */
+    public synchronized Raster getTile(RenderedImage owner,
+                                       int tileX,
+                                       int tileY) {
+
+        if ( memoryCapacity == 0 ) {
+            return null;
+        }
+
+        long imageKey = SunCachedTile.imageKey(owner);
+        SunCachedTile ct =
+            (SunCachedTile)heapCache.get(imageKey, tileX, tileY);
+
+        if ( ct != null ) {
+            touch(ct);
+            heapHitCount++;
+            notifyAction(ct, UPDATE_FROM_GETTILE);
+            return ct.getTile();
+        }
+
+        SpilledTile st =
+            (SpilledTile)offHeapCache.get(imageKey, tileX, tileY);
+
+        if ( st == null ) {
+            missCount++;
+            return null;
+        }
+
+        Raster tile;
+        try {
+            tile = rehydrate(owner, st);
+        } catch (Exception e) {
+            sendExceptionToListener(JaiI18N.getString("TieredTileCache2"), e);
+            unlink(st);
+            notifyAction(st, REMOVE_FROM_MEMCON);
+            missCount++;
+            return null;
+        }
+
+        offHeapHitCount++;
+
+        if ( st.sampleBytes > (long)(memoryCapacity * memoryThreshold) ) {
+            // Too large for the heap tier; keep serving it off-heap.
+            offHeapOrder.remove(st);
+            st.timeStamp = timeStamp++;
+            st.priority = inflation + st.cost / st.getTileSize();
+            offHeapOrder.add(st);
+            notifyAction(st, UPDATE_FROM_GETTILE);
+        } else {
+            unlink(st);
+            insert(new SunCachedTile(owner, imageKey, tileX, tileY, tile,
+                                     st.tileCacheMetric, collectedOwners),
+                   UPDATE_FROM_GETTILE);
+        }
+
+        return tile;
+    }
+
+    /**
+     * Retrieves a contiguous array of all tiles in the cache which are
+     * owned by the specified image.  May be <code>null</code> if there
+     * were no tiles in the cache.  The array contains no null entries.
+     * Spilled tiles are rehydrated and moved to the heap tier as if
+     * they were retrieved by <code>getTile()</code>.
+     *
+     * @param owner The <code>RenderedImage</code> to which the tiles belong.
+     * @return An array of all tiles owned by the specified image or
+     *         <code>null</code> if there are none currently in the cache.
+     */
+    public synchronized Raster[] getTiles(RenderedImage owner) {
+        if ( memoryCapacity == 0 ||
+             heapCache.size() + offHeapCache.size() == 0 ) {
+            return null;
+        }
+
+        int minTx = owner.getMinTileX();
+        int minTy = owner.getMinTileY();
+        int maxTx = minTx + owner.getNumXTiles();
+        int maxTy = minTy + owner.getNumYTiles();
+
+        ArrayList temp = new ArrayList();
+
+        for (int y = minTy; y < maxTy; y++) {
+            for (int x = minTx; x < maxTx; x++) {
+                Raster raster = getTile(owner, x, y);
+
+                if ( raster != null ) {
+                    temp.add(raster);
+                }
+            }
+        }
+
+        int tmpsize = temp.size();
+        return tmpsize > 0 ? (Raster[])temp.toArray(new Raster[tmpsize]) : null;
+    }
+
+    /**
+     * Removes all the tiles that belong to a <code>RenderedImage</code>
+     * from the cache.
+     *
+     * @param owner  The image whose tiles are to be removed from the cache.
+     */
+    public synchronized void removeTiles(RenderedImage owner) {
+        if ( memoryCapacity > 0 ) {
+            int minTx = owner.getMinTileX();
+            int minTy = owner.getMinTileY();
+            int maxTx = minTx + owner.getNumXTiles();
+            int maxTy = minTy + owner.getNumYTiles();
+
+            for (int y=minTy; y<maxTy; y++) {
+                for (int x=minTx; x<maxTx; x++) {
+                    remove(owner, x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an array of tiles to the tile cache.
+     *
+     * @param owner The <code>RenderedImage</code> that the tile belongs to.
+     * @param tileIndices An array of <code>Point</code>s containing the
+     *        <code>tileX</code> and <code>tileY</code> indices for each tile.
+     * @param tiles The array of tile <code>Raster</code>s containing tile data.
+     * @param tileCacheMetric Object which provides an ordering metric
+     *        associated with the <code>RenderedImage</code> owner.
+     */
+    public synchronized void addTiles(RenderedImage owner,
+                                      Point[] tileIndices,
+                                      Raster[] tiles,
+                                      Object tileCacheMetric) {
+
+        if ( memoryCapacity == 0 ) {
+            return;
+        }
+
+        for ( int i = 0; i < tileIndices.length; i++ ) {
+            add(owner, tileIndices[i].x, tileIndices[i].y,
+                tiles[i], tileCacheMetric);
+        }
+    }
+
+    /**
+     * Returns an array of tile <code>Raster</code>s from the cache.
+     * Any or all of the elements of the returned array may be <code>null</code>
+     * if the corresponding tile is not in the cache.
+     *
+     * @param owner The <code>RenderedImage</code> that the tile belongs to.
+     * @param tileIndices  An array of <code>Point</code>s containing the
+     *        <code>tileX</code> and <code>tileY</code> indices for each tile.
+     */
+    public synchronized Raster[] getTiles(RenderedImage owner,
+                                          Point[] tileIndices) {
+
+        if ( memoryCapacity == 0 ) {
+            return null;
+        }
+
+        Raster[] tiles = new Raster[tileIndices.length];
+
+        for ( int i = 0; i < tiles.length; i++ ) {
+            tiles[i] = getTile(owner, tileIndices[i].x, tileIndices[i].y);
+        }
+
+        return tiles;
+    }
+
+    /** Removes -ALL- tiles from both tiers of the cache. */
+    public synchronized void flush() {
+        // reset counters before diagnostics
+        resetCounts();
+
+        TileKeyMap.Entry[] entries = heapCache.entries();
+        for (int i = 0; i < entries.length; i++) {
+            notifyAction((CachedTile)entries[i], REMOVE_FROM_FLUSH);
+        }
+
+        entries = offHeapCache.entries();
+        for (int i = 0; i < entries.length; i++) {
+            notifyAction((CachedTile)entries[i], REMOVE_FROM_FLUSH);
+        }
+
+        heapCache = new TileKeyMap(MAP_CAPACITY);
+        offHeapCache = new TileKeyMap(MAP_CAPACITY);
+        first = null;
+        last = null;
+        offHeapOrder.clear();
+        arena.reset();
+
+        memoryUsage = 0;
+        timeStamp = 0;
+        inflation = 0.0;
+    }
+
+    /**
+     * Returns the cache's tile capacity.
+     *
+     * <p> This implementation of <code>TileCache</code> does not use
+     * the tile capacity.  This method always returns 0.
+     */
+    public int getTileCapacity() { return 0; }
+
+    /**
+     * Sets the cache's tile capacity to the desired number of tiles.
+     *
+     * <p> This implementation of <code>TileCache</code> does not use
+     * the tile capacity.  The cache size is limited by the memory
+     * capacities only.  This method does nothing and has no effect on
+     * the cache.
+     *
+     * @param tileCapacity  The desired tile capacity for this cache
+     *        in number of tiles.
+     */
+    public void setTileCapacity(int tileCapacity) { }
+
+    /** Returns the heap tier's memory capacity in bytes. */
+    public synchronized long getMemoryCapacity() {
+        return memoryCapacity;
+    }
+
+    /**
+     * Sets the heap tier's memory capacity to the desired number of
+     * bytes.  If the new memory capacity is smaller than the amount of
+     * memory currently being used by the heap tier, tiles are spilled
+     * until the memory usage is less than the specified memory
+     * capacity.  A capacity of 0 disables the cache and flushes both
+     * tiers.
+     *
+     * @param memoryCapacity  The desired memory capacity for the heap
+     *        tier in bytes.
+     *
+     * @throws IllegalArgumentException  If <code>memoryCapacity</code>
+     *         is less than 0.
+     */
+    public synchronized void setMemoryCapacity(long memoryCapacity) {
+        if (memoryCapacity < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileCache"));
+        } else if ( memoryCapacity == 0 ) {
+            flush();
+        }
+
+        this.memoryCapacity = memoryCapacity;
+
+        if ( memoryUsage > memoryCapacity ) {
+            memoryControl();
+        }
+    }
+
+    /** Returns the off-heap tier's memory capacity in bytes. */
+    public synchronized long getOffHeapCapacity() {
+        return arena.capacity;
+    }
+
+    /**
+     * Sets the off-heap tier's memory capacity to the desired number
+     * of bytes.  If the new capacity is smaller than the amount of
+     * off-heap memory currently in use, spilled tiles are dropped
+     * until it fits.  Off-heap memory which was already allocated is
+     * kept for reuse.  A capacity of 0 disables spilling.
+     *
+     * @param offHeapCapacity  The desired memory capacity for the
+     *        off-heap tier in bytes.
+     *
+     * @throws IllegalArgumentException  If <code>offHeapCapacity</code>
+     *         is less than 0.
+     */
+    public synchronized void setOffHeapCapacity(long offHeapCapacity) {
+        if (offHeapCapacity < 0) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileCache"));
+        }
+
+        arena.setCapacity(offHeapCapacity);
+        reserve(0);
+    }
+
+    /** Enable Tile Monitoring and Diagnostics */
+    public void enableDiagnostics() {
+        diagnostics = true;
+    }
+
+    /** Turn off diagnostic notification */
+    public void disableDiagnostics() {
+        diagnostics = false;
+    }
+
+    /** Returns the number of tiles in both tiers. */
+    public synchronized long getCacheTileCount() {
+        return heapCache.size() + offHeapCache.size();
+    }
+
+    /** Returns the memory used by the heap tier in bytes. */
+    public synchronized long getCacheMemoryUsed() {
+        return memoryUsage;
+    }
+
+    /** Returns the number of hits in both tiers. */
+    public synchronized long getCacheHitCount() {
+        return heapHitCount + offHeapHitCount;
+    }
+
+    public synchronized long getCacheMissCount() {
+        return missCount;
+    }
+
+    /** Returns the number of tiles in the off-heap tier. */
+    public synchronized long getOffHeapTileCount() {
+        return offHeapCache.size();
+    }
+
+    /**
+     * Returns the off-heap memory holding spilled tiles in bytes.
+     * This is a multiple of the page size.
+     */
+    public synchronized long getOffHeapMemoryUsed() {
+        return (long)arena.usedPages * PAGE_SIZE;
+    }
+
+    /** Returns the number of tiles found in the heap tier. */
+    public synchronized long getHeapHitCount() {
+        return heapHitCount;
+    }
+
+    /** Returns the number of tiles found in the off-heap tier. */
+    public synchronized long getOffHeapHitCount() {
+        return offHeapHitCount;
+    }
+
+    /**
+     * Returns the fraction of the tile lookups which were served by
+     * the heap tier, or 0 if there were no lookups.
+     */
+    public synchronized double getHeapHitRate() {
+        long lookups = heapHitCount + offHeapHitCount + missCount;
+        return lookups == 0 ? 0.0 : (double)heapHitCount / lookups;
+    }
+
+    /**
+     * Returns the fraction of the tile lookups which were served by
+     * the off-heap tier, or 0 if there were no lookups.
+     */
+    public synchronized double getOffHeapHitRate() {
+        long lookups = heapHitCount + offHeapHitCount + missCount;
+        return lookups == 0 ? 0.0 : (double)offHeapHitCount / lookups;
+    }
+
+    /** Reset hit and miss counters. */
+    public synchronized void resetCounts() {
+        heapHitCount = 0;
+        offHeapHitCount = 0;
+        missCount = 0;
+    }
+
+    /** Set the memory threshold value. */
+    public synchronized void setMemoryThreshold(float mt) {
+        if ( mt < 0.0F || mt > 1.0F ) {
+            throw new IllegalArgumentException(JaiI18N.getString("SunTileCache"));
+        } else {
+            memoryThreshold = mt;
+            memoryControl();
+        }
+    }
+
+    /** Returns the current <code>memoryThreshold</code>. */
+    public synchronized float getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    /** Returns a string representation of the class object. */
+    public synchronized String toString() {
+        return getClass().getName() + "@" + Integer.toHexString(hashCode()) +
+               ": memoryCapacity = " + Long.toHexString(memoryCapacity) +
+               " memoryUsage = " + Long.toHexString(memoryUsage) +
+               " #tilesInCache = " + Integer.toString(heapCache.size()) +
+               " offHeapCapacity = " + Long.toHexString(arena.capacity) +
+               " offHeapUsage = " + Long.toHexString(getOffHeapMemoryUsed()) +
+               " #tilesOffHeap = " + Integer.toString(offHeapCache.size());
+    }
+
+    /**
+     * Returns the <code>Object</code> that represents the actual cache.
+     * For this implementation this is an unmodifiable snapshot
+     * <code>Map</code> from tile key to <code>CachedTile</code>
+     * covering both tiers.  The <code>getTile()</code> method of the
+     * <code>CachedTile</code>s of spilled tiles returns
+     * <code>null</code>.
+     */
+    public synchronized Object getCachedObject() {
+        Map snapshot = new HashMap();
+
+        TileKeyMap.Entry[] entries = offHeapCache.entries();
+        for (int i = 0; i < entries.length; i++) {
+            snapshot.put(new TileKeyMap.Key(entries[i]), entries[i]);
+        }
+
+        entries = heapCache.entries();
+        for (int i = 0; i < entries.length; i++) {
+            snapshot.put(new TileKeyMap.Key(entries[i]), entries[i]);
+        }
+
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Spills tiles from the heap tier to the off-heap tier until the
+     * heap memory usage is memoryThreshold % of that of the memory
+     * capacity.  Tiles are chosen by the tile comparator if one is set
+     * and in least recently used order otherwise.
+     */
+    public synchronized void memoryControl() {
+        long limit = (long)(memoryCapacity * memoryThreshold);
+
+        if ( memoryUsage <= limit ) {
+            return;
+        }
+
+        Iterator iter;
+        if ( comparator != null ) {
+            ArrayList tiles = new ArrayList(Arrays.asList(heapCache.entries()));
+            Collections.sort(tiles, comparator);
+            iter = tiles.iterator();
+        } else {
+            // Snapshot the eldest tiles, spilling modifies the map.
+            ArrayList tiles = new ArrayList();
+            long usage = memoryUsage;
+            for (SunCachedTile ct = last;
+                 usage > limit && ct != null; ct = ct.previous) {
+                tiles.add(ct);
+                usage -= ct.memorySize;
+            }
+            iter = tiles.iterator();
+        }
+
+        while ( memoryUsage > limit && iter.hasNext() ) {
+            SunCachedTile ct = (SunCachedTile)iter.next();
+
+            unlink(ct);
+
+            if ( !spill(ct) ) {
+                notifyAction(ct, REMOVE_FROM_MEMCON);
+            }
+        }
+    }
+
+    /**
+     * Moves a tile evicted from the heap tier to the off-heap tier.
+     * Returns <code>false</code> if the tile could not be spilled.
+     */
+    private boolean spill(SunCachedTile ct) {
+        RenderedImage owner = ct.getOwner();
+        Raster tile = ct.tile;
+
+        if ( owner == null || !isSpillable(tile) ) {
+            return false;
+        }
+
+        SpilledTile st = new SpilledTile(ct, owner.getSampleModel());
+
+        int numPages = (int)((st.sampleBytes + PAGE_SIZE - 1) / PAGE_SIZE);
+        if ( compressed ) {
+            // Room for incompressible data and the GZIP framing.
+            numPages++;
+        }
+
+        if ( !reserve(numPages) ) {
+            return false;
+        }
+
+        PageOutputStream out = new PageOutputStream(arena, numPages);
+        try {
+            if ( compressed ) {
+                writeCompressed(tile.getDataBuffer(), st, out);
+            } else {
+                writeRaw(tile.getDataBuffer(), st, out);
+            }
+        } catch (IOException e) {
+            // The tile did not fit in the reserved pages.
+            arena.free(out.pages, out.numPages);
+            return false;
+        }
+
+        st.pages = out.pages;
+        st.numPages = out.numPages;
+        st.length = out.length;
+        st.timeStamp = timeStamp++;
+        st.priority = inflation + st.cost / st.getTileSize();
+        st.sequence = sequence++;
+
+        offHeapCache.putIfAbsent(st);
+        offHeapOrder.add(st);
+
+        return true;
+    }
+
+    /**
+     * Drops spilled tiles until the specified number of pages can be
+     * allocated.  Returns <code>false</code> if the off-heap tier is
+     * too small.
+     */
+    private boolean reserve(int numPages) {
+        if ( numPages > arena.getMaxPages() ) {
+            return false;
+        }
+
+        while ( arena.usedPages + numPages > arena.getMaxPages() &&
+                !offHeapOrder.isEmpty() ) {
+            SpilledTile st = (SpilledTile)offHeapOrder.first();
+
+            if ( comparator == null ) {
+                inflation = st.priority;
+            }
+
+            unlink(st);
+            notifyAction(st, REMOVE_FROM_MEMCON);
+        }
+
+        return arena.usedPages + numPages <= arena.getMaxPages();
+    }
+
+    /**
+     * Removes the tiles of both tiers whose owner has been garbage
+     * collected.  A spilled tile shares the owner reference of the
+     * heap tile it was spilled from.
+     */
+    private void removeCollectedTiles() {
+        SunCachedTile.OwnerReference ref;
+
+        while ( (ref = (SunCachedTile.OwnerReference)collectedOwners.poll()) != null ) {
+            SunCachedTile ct = ref.tile;
+
+            if ( heapCache.get(ct.imageKey, ct.tileX, ct.tileY) == ct ) {
+                unlink(ct);
+                notifyAction(ct, REMOVE);
+            }
+
+            SpilledTile st = (SpilledTile)
+                offHeapCache.get(ct.imageKey, ct.tileX, ct.tileY);
+            if ( st != null && st.owner == ref ) {
+                unlink(st);
+                notifyAction(st, REMOVE);
+            }
+        }
+    }
+
+    /** Moves a tile to the front of the heap tier's access order. */
+    private void touch(SunCachedTile ct) {
+        ct.timeStamp = timeStamp++;
+
+        if ( ct != first ) {
+            if ( ct == last ) {
+                last = ct.previous;
+                last.next = null;
+            } else {
+                ct.previous.next = ct.next;
+                ct.next.previous = ct.previous;
+            }
+
+            ct.previous = null;
+            ct.next = first;
+            first.previous = ct;
+            first = ct;
+        }
+    }
+
+    /** Removes a tile from the heap tier. */
+    private void unlink(SunCachedTile ct) {
+        heapCache.remove(ct);
+        memoryUsage -= ct.memorySize;
+
+        if ( ct.previous == null ) {
+            first = ct.next;
+        } else {
+            ct.previous.next = ct.next;
+        }
+
+        if ( ct.next == null ) {
+            last = ct.previous;
+        } else {
+            ct.next.previous = ct.previous;
+        }
+
+        ct.previous = null;
+        ct.next = null;
+    }
+
+    /** Removes a tile from the off-heap tier and frees its pages. */
+    private void unlink(SpilledTile st) {
+        offHeapCache.remove(st);
+        offHeapOrder.remove(st);
+        arena.free(st.pages, st.numPages);
+        st.pages = null;
+        st.numPages = 0;
+    }
+
+    /**
+     *  The <code>Comparator</code> is used to produce an
+     *  ordered list of tiles based on a user defined
+     *  compute cost or priority metric.  This determines
+     *  which tiles are spilled from the heap tier and
+     *  which are dropped from the off-heap tier.
+     */
+    public synchronized void setTileComparator(Comparator c) {
+        comparator = c;
+
+        TreeSet order = new TreeSet(new SpillOrder());
+        order.addAll(Arrays.asList(offHeapCache.entries()));
+        offHeapOrder = order;
+    }
+
+    /** Return the current comparator */
+    public synchronized Comparator getTileComparator() {
+        return comparator;
+    }
+
+    /** Notifies the observers of a tile action if diagnostics are on. */
+    private void notifyAction(CachedTile ct, int action) {
+        if ( diagnostics ) {
+            setAction(ct, action);
+            setChanged();
+            notifyObservers(ct);
+        }
+    }
+
+    private static void setAction(CachedTile ct, int action) {
+        if ( ct instanceof SunCachedTile ) {
+            ((SunCachedTile)ct).action = action;
+        } else {
+            ((SpilledTile)ct).action = action;
+        }
+    }
+
+    void sendExceptionToListener(String message, Exception e) {
+        ImagingListener listener =
+            ImageUtil.getImagingListener((RenderingHints)null);
+        listener.errorOccurred(message, e, this, false);
+    }
+
+    /**
+     * Whether the samples of a tile can be stored off-heap, that is
+     * whether its <code>DataBuffer</code> holds primitive arrays of a
+     * standard data type.
+     */
+    private static boolean isSpillable(Raster tile) {
+        DataBuffer db = tile.getDataBuffer();
+
+        switch (db.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            return db instanceof DataBufferByte;
+        case DataBuffer.TYPE_USHORT:
+            return db instanceof DataBufferUShort;
+        case DataBuffer.TYPE_SHORT:
+            return db instanceof DataBufferShort;
+        case DataBuffer.TYPE_INT:
+            return db instanceof DataBufferInt;
+        case DataBuffer.TYPE_FLOAT:
+        case DataBuffer.TYPE_DOUBLE:
+            try {
+                getBank(db, 0);
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        default:
+            return false;
+        }
+    }
+
+    /** Returns the primitive array of a bank of a spillable buffer. */
+    private static Object getBank(DataBuffer db, int bank) {
+        switch (db.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            return ((DataBufferByte)db).getData(bank);
+        case DataBuffer.TYPE_USHORT:
+            return ((DataBufferUShort)db).getData(bank);
+        case DataBuffer.TYPE_SHORT:
+            return ((DataBufferShort)db).getData(bank);
+        case DataBuffer.TYPE_INT:
+            return ((DataBufferInt)db).getData(bank);
+        case DataBuffer.TYPE_FLOAT:
+            return DataBufferUtils.getDataFloat(db, bank);
+        default:
+            return DataBufferUtils.getDataDouble(db, bank);
+        }
+    }
+
+    /** Returns the number of bytes of an element of a data type. */
+    private static int getElementSize(int dataType) {
+        return DataBuffer.getDataTypeSize(dataType) / 8;
+    }
+
+    /**
+     * Copies <code>length</code> elements of a primitive array into a
+     * buffer and advances its position.
+     */
+    private static void put(ByteBuffer buf, Object array, int dataType,
+                            int offset, int length) {
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            buf.put((byte[])array, offset, length);
+            return;
+        case DataBuffer.TYPE_USHORT:
+        case DataBuffer.TYPE_SHORT:
+            buf.asShortBuffer().put((short[])array, offset, length);
+            break;
+        case DataBuffer.TYPE_INT:
+            buf.asIntBuffer().put((int[])array, offset, length);
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            buf.asFloatBuffer().put((float[])array, offset, length);
+            break;
+        case DataBuffer.TYPE_DOUBLE:
+            buf.asDoubleBuffer().put((double[])array, offset, length);
+            break;
+        }
+        buf.position(buf.position() + length * getElementSize(dataType));
+    }
+
+    /**
+     * Copies <code>length</code> elements from a buffer into a
+     * primitive array and advances the position of the buffer.
+     */
+    private static void get(ByteBuffer buf, Object array, int dataType,
+                            int offset, int length) {
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            buf.get((byte[])array, offset, length);
+            return;
+        case DataBuffer.TYPE_USHORT:
+        case DataBuffer.TYPE_SHORT:
+            buf.asShortBuffer().get((short[])array, offset, length);
+            break;
+        case DataBuffer.TYPE_INT:
+            buf.asIntBuffer().get((int[])array, offset, length);
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            buf.asFloatBuffer().get((float[])array, offset, length);
+            break;
+        case DataBuffer.TYPE_DOUBLE:
+            buf.asDoubleBuffer().get((double[])array, offset, length);
+            break;
+        }
+        buf.position(buf.position() + length * getElementSize(dataType));
+    }
+
+    /** Writes the banks of a tile straight into its pages. */
+    private void writeRaw(DataBuffer db, SpilledTile st,
+                          PageOutputStream out) throws IOException {
+        int elementSize = getElementSize(st.dataType);
+
+        for (int b = 0; b < st.bankLengths.length; b++) {
+            Object bank = getBank(db, b);
+            int length = st.bankLengths[b];
+            int offset = 0;
+
+            while (offset < length) {
+                ByteBuffer page = out.nextPage();
+                int n = Math.min(length - offset, page.remaining() / elementSize);
+                put(page, bank, st.dataType, offset, n);
+                out.advance(n * elementSize);
+                offset += n;
+            }
+        }
+    }
+
+    /** Writes the banks of a tile into its pages through GZIP. */
+    private void writeCompressed(DataBuffer db, SpilledTile st,
+                                 PageOutputStream out) throws IOException {
+        int elementSize = getElementSize(st.dataType);
+        ByteBuffer scratch = arena.getScratch();
+        byte[] bytes = scratch.array();
+
+        GZIPOutputStream gzip = new GZIPOutputStream(out, PAGE_SIZE) {
+            {
+                // Favor speed, tiles are spilled on the caller's thread.
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+
+        for (int b = 0; b < st.bankLengths.length; b++) {
+            Object bank = getBank(db, b);
+            int length = st.bankLengths[b];
+            int offset = 0;
+
+            while (offset < length) {
+                scratch.clear();
+                int n = Math.min(length - offset, PAGE_SIZE / elementSize);
+                put(scratch, bank, st.dataType, offset, n);
+                gzip.write(bytes, 0, n * elementSize);
+                offset += n;
+            }
+        }
+
+        gzip.finish();
+    }
+
+    /**
+     * Reads a spilled tile back into a new <code>Raster</code> built
+     * on the <code>SampleModel</code> of its owner.
+     */
+    private Raster rehydrate(RenderedImage owner,
+                             SpilledTile st) throws IOException {
+        int dataType = st.dataType;
+        int numBanks = st.bankLengths.length;
+        int elementSize = getElementSize(dataType);
+
+        Object[] banks = new Object[numBanks];
+        for (int b = 0; b < numBanks; b++) {
+            int length = st.bankLengths[b];
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                banks[b] = new byte[length];
+                break;
+            case DataBuffer.TYPE_USHORT:
+            case DataBuffer.TYPE_SHORT:
+                banks[b] = new short[length];
+                break;
+            case DataBuffer.TYPE_INT:
+                banks[b] = new int[length];
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                banks[b] = new float[length];
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                banks[b] = new double[length];
+                break;
+            }
+        }
+
+        PageInputStream in = new PageInputStream(arena, st);
+
+        if ( compressed ) {
+            ByteBuffer scratch = arena.getScratch();
+            byte[] bytes = scratch.array();
+            InputStream gzip = new GZIPInputStream(in, PAGE_SIZE);
+
+            for (int b = 0; b < numBanks; b++) {
+                int length = st.bankLengths[b];
+                int offset = 0;
+
+                while (offset < length) {
+                    int n = Math.min(length - offset, PAGE_SIZE / elementSize);
+                    int count = n * elementSize;
+                    for (int pos = 0; pos < count; ) {
+                        int read = gzip.read(bytes, pos, count - pos);
+                        if (read < 0) {
+                            throw new IOException(JaiI18N.getString("TieredTileCache2"));
+                        }
+                        pos += read;
+                    }
+
+                    scratch.clear();
+                    get(scratch, banks[b], dataType, offset, n);
+                    offset += n;
+                }
+            }
+        } else {
+            for (int b = 0; b < numBanks; b++) {
+                int length = st.bankLengths[b];
+                int offset = 0;
+
+                while (offset < length) {
+                    ByteBuffer page = in.nextPage();
+                    int n = Math.min(length - offset, page.remaining() / elementSize);
+                    get(page, banks[b], dataType, offset, n);
+                    in.advance(n * elementSize);
+                    offset += n;
+                }
+            }
+        }
+
+        DataBuffer db = createDataBuffer(dataType, banks, st.size, st.offsets);
+
+        SampleModel sm = st.sampleModel != null ?
+            st.sampleModel : owner.getSampleModel();
+
+        WritableRaster raster =
+            Raster.createWritableRaster(sm, db,
+                                        new Point(st.translateX,
+                                                  st.translateY));
+
+        if ( st.minX != st.translateX || st.minY != st.translateY ||
+             st.width != sm.getWidth() || st.height != sm.getHeight() ) {
+            // The spilled tile was a child of a larger raster.
+            raster = raster.createWritableChild(st.minX, st.minY,
+                                                st.width, st.height,
+                                                st.minX, st.minY, null);
+        }
+
+        return raster;
+    }
+
+    /** Creates a <code>DataBuffer</code> around the given banks. */
+    private static DataBuffer createDataBuffer(int dataType, Object[] banks,
+                                               int size, int[] offsets) {
+        int numBanks = banks.length;
+
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            byte[][] byteData = new byte[numBanks][];
+            System.arraycopy(banks, 0, byteData, 0, numBanks);
+            return new DataBufferByte(byteData, size, offsets);
+        case DataBuffer.TYPE_USHORT:
+            short[][] ushortData = new short[numBanks][];
+            System.arraycopy(banks, 0, ushortData, 0, numBanks);
+            return new DataBufferUShort(ushortData, size, offsets);
+        case DataBuffer.TYPE_SHORT:
+            short[][] shortData = new short[numBanks][];
+            System.arraycopy(banks, 0, shortData, 0, numBanks);
+            return new DataBufferShort(shortData, size, offsets);
+        case DataBuffer.TYPE_INT:
+            int[][] intData = new int[numBanks][];
+            System.arraycopy(banks, 0, intData, 0, numBanks);
+            return new DataBufferInt(intData, size, offsets);
+        case DataBuffer.TYPE_FLOAT:
+            float[][] floatData = new float[numBanks][];
+            System.arraycopy(banks, 0, floatData, 0, numBanks);
+            return DataBufferUtils.createDataBufferFloat(floatData, size, offsets);
+        default:
+            double[][] doubleData = new double[numBanks][];
+            System.arraycopy(banks, 0, doubleData, 0, numBanks);
+            return DataBufferUtils.createDataBufferDouble(doubleData, size, offsets);
+        }
+    }
+
+    /**
+     * Orders the off-heap tier for eviction: by the tile comparator if
+     * one is set and by GreedyDual-Size priority otherwise.
+     */
+    private final class SpillOrder implements Comparator {
+        public int compare(Object o1, Object o2) {
+            SpilledTile st1 = (SpilledTile)o1;
+            SpilledTile st2 = (SpilledTile)o2;
+
+            int c;
+            if ( comparator != null ) {
+                c = comparator.compare(st1, st2);
+            } else {
+                c = Double.compare(st1.priority, st2.priority);
+            }
+
+            if ( c == 0 ) {
+                c = st1.sequence < st2.sequence ? -1 :
+                    (st1.sequence > st2.sequence ? 1 : 0);
+            }
+
+            return c;
+        }
+    }
+
+    /**
+     * A tile of the off-heap tier.  Holds the pages storing its
+     * samples and what is needed to rebuild its <code>Raster</code>
+     * around them.
+     */
+    private static final class SpilledTile extends TileKeyMap.Entry
+                                           implements CachedTile {
+
+        final WeakReference owner;
+        final Object tileCacheMetric;
+        long timeStamp;
+        int action = 0;
+
+        /** The tile's own SampleModel, null if equal to the owner's. */
+        final SampleModel sampleModel;
+        final int minX;
+        final int minY;
+        final int width;
+        final int height;
+        final int translateX;
+        final int translateY;
+
+        final int dataType;
+        final int size;
+        final int[] offsets;
+        final int[] bankLengths;
+
+        /** The size of the uncompressed samples in bytes. */
+        final long sampleBytes;
+
+        /** The pages holding the samples, and the bytes written. */
+        int[] pages;
+        int numPages;
+        long length;
+
+        /** The computation cost and GreedyDual-Size priority. */
+        final double cost;
+        double priority;
+        long sequence;
+
+        SpilledTile(SunCachedTile ct, SampleModel ownerSampleModel) {
+            super(ct.imageKey, ct.tileX, ct.tileY);
+
+            Raster tile = ct.tile;
+            DataBuffer db = tile.getDataBuffer();
+
+            owner = ct.owner;
+            tileCacheMetric = ct.tileCacheMetric;
+
+            SampleModel sm = tile.getSampleModel();
+            sampleModel = sm.equals(ownerSampleModel) ? null : sm;
+            minX = tile.getMinX();
+            minY = tile.getMinY();
+            width = tile.getWidth();
+            height = tile.getHeight();
+            translateX = tile.getSampleModelTranslateX();
+            translateY = tile.getSampleModelTranslateY();
+
+            dataType = db.getDataType();
+            size = db.getSize();
+            offsets = db.getOffsets();
+            bankLengths = new int[db.getNumBanks()];
+
+            long bytes = 0;
+            for (int b = 0; b < bankLengths.length; b++) {
+                bankLengths[b] = Array.getLength(getBank(db, b));
+                bytes += bankLengths[b];
+            }
+            sampleBytes = bytes * getElementSize(dataType);
+
+            double c = 1.0;
+            if ( tileCacheMetric instanceof Number ) {
+                c = ((Number)tileCacheMetric).doubleValue();
+            }
+            cost = c > 0.0 ? c : 1.0;
+        }
+
+        /** Spilled tiles are not held on the heap; returns null. */
+        public Raster getTile() {
+            return null;
+        }
+
+        public RenderedImage getOwner() {
+            return (RenderedImage)owner.get();
+        }
+
+        public long getTileTimeStamp() {
+            return timeStamp;
+        }
+
+        public Object getTileCacheMetric() {
+            return tileCacheMetric;
+        }
+
+        /** Returns the off-heap memory used by the tile. */
+        public long getTileSize() {
+            return Math.max((long)numPages * PAGE_SIZE, PAGE_SIZE);
+        }
+
+        public int getAction() {
+            return action;
+        }
+    }
+
+    /**
+     * The off-heap storage: chunks of direct or mapped memory carved
+     * into pages, with a free list of pages.  Chunks are allocated
+     * lazily and kept once allocated.
+     */
+    private final class Arena {
+
+        /** The capacity of the arena in bytes. */
+        long capacity;
+
+        /** The file to map, or null for direct buffers. */
+        final File file;
+
+        /** The channel of the mapped file, opened lazily. */
+        FileChannel channel;
+
+        /** The allocated chunks, in native byte order. */
+        ByteBuffer[] chunks = new ByteBuffer[0];
+
+        /** The number of pages carved from the chunks so far. */
+        int carvedPages = 0;
+
+        /** Pages returned to the arena. */
+        int[] freePages = new int[64];
+        int numFree = 0;
+
+        /** The number of pages holding tiles. */
+        int usedPages = 0;
+
+        /** A heap buffer of one page used to convert samples. */
+        ByteBuffer scratch;
+
+        Arena(long capacity, File file) {
+            this.capacity = capacity;
+            this.file = file;
+        }
+
+        int getMaxPages() {
+            return (int)Math.min(capacity / PAGE_SIZE, Integer.MAX_VALUE);
+        }
+
+        void setCapacity(long capacity) {
+            this.capacity = capacity;
+        }
+
+        ByteBuffer getScratch() {
+            if ( scratch == null ) {
+                scratch = ByteBuffer.allocate(PAGE_SIZE).order(ByteOrder.nativeOrder());
+            }
+            scratch.clear();
+            return scratch;
+        }
+
+        /**
+         * Allocates a page and returns its index, or -1 if the
+         * capacity is reached or no more memory could be obtained.
+         */
+        int allocate() {
+            if ( usedPages >= getMaxPages() ) {
+                return -1;
+            }
+
+            if ( numFree > 0 ) {
+                usedPages++;
+                return freePages[--numFree];
+            }
+
+            if ( carvedPages == chunks.length * PAGES_PER_CHUNK &&
+                 !addChunk() ) {
+                // Don't try to grow again.
+                capacity = (long)usedPages * PAGE_SIZE;
+                return -1;
+            }
+
+            usedPages++;
+            return carvedPages++;
+        }
+
+        /** Allocates a new chunk of memory. */
+        private boolean addChunk() {
+            long chunkSize = (long)PAGES_PER_CHUNK * PAGE_SIZE;
+            ByteBuffer chunk;
+
+            try {
+                if ( file == null ) {
+                    chunk = ByteBuffer.allocateDirect((int)chunkSize);
+                } else {
+                    if ( channel == null ) {
+                        channel = new RandomAccessFile(file, "rw").getChannel();
+                    }
+                    chunk = channel.map(FileChannel.MapMode.READ_WRITE,
+                                        chunks.length * chunkSize, chunkSize);
+                }
+            } catch (IOException e) {
+                sendExceptionToListener(JaiI18N.getString("TieredTileCache1"), e);
+                return false;
+            } catch (OutOfMemoryError e) {
+                sendExceptionToListener(JaiI18N.getString("TieredTileCache1"),
+                                        new RuntimeException(e.getMessage()));
+                return false;
+            }
+
+            ByteBuffer[] newChunks = new ByteBuffer[chunks.length + 1];
+            System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+            newChunks[chunks.length] = chunk.order(ByteOrder.nativeOrder());
+            chunks = newChunks;
+
+            return true;
+        }
+
+        /** Returns a buffer spanning one page. */
+        ByteBuffer getPage(int page) {
+            ByteBuffer chunk = chunks[page / PAGES_PER_CHUNK];
+            int position = (page % PAGES_PER_CHUNK) * PAGE_SIZE;
+
+            ByteBuffer buf = chunk.duplicate().order(ByteOrder.nativeOrder());
+            buf.limit(position + PAGE_SIZE);
+            buf.position(position);
+            return buf;
+        }
+
+        /** Returns pages to the arena. */
+        void free(int[] pages, int count) {
+            if ( numFree + count > freePages.length ) {
+                int[] newFree = new int[Math.max(2 * freePages.length,
+                                                 numFree + count)];
+                System.arraycopy(freePages, 0, newFree, 0, numFree);
+                freePages = newFree;
+            }
+
+            for (int i = 0; i < count; i++) {
+                freePages[numFree++] = pages[i];
+            }
+            usedPages -= count;
+        }
+
+        /** Marks every carved page as free. */
+        void reset() {
+            if ( freePages.length < carvedPages ) {
+                freePages = new int[carvedPages];
+            }
+            for (int i = 0; i < carvedPages; i++) {
+                freePages[i] = carvedPages - 1 - i;
+            }
+            numFree = carvedPages;
+            usedPages = 0;
+        }
+    }
+
+    /**
+     * Writes into pages allocated from the arena, at most the
+     * given number of them.
+     */
+    private static final class PageOutputStream extends OutputStream {
+
+        final Arena arena;
+        final int[] pages;
+        int numPages = 0;
+        long length = 0;
+        ByteBuffer page;
+
+        PageOutputStream(Arena arena, int maxPages) {
+            this.arena = arena;
+            this.pages = new int[maxPages];
+        }
+
+        /** Returns the current page, moving to a new one when full. */
+        ByteBuffer nextPage() throws IOException {
+            if ( page == null || !page.hasRemaining() ) {
+                int p = numPages < pages.length ? arena.allocate() : -1;
+                if ( p < 0 ) {
+                    throw new IOException(JaiI18N.getString("TieredTileCache1"));
+                }
+                pages[numPages++] = p;
+                page = arena.getPage(p);
+            }
+            return page;
+        }
+
+        /** Records bytes put directly into the current page. */
+        void advance(int count) {
+            length += count;
+        }
+
+        public void write(int b) throws IOException {
+            nextPage().put((byte)b);
+            length++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer buf = nextPage();
+                int n = Math.min(len, buf.remaining());
+                buf.put(b, off, n);
+                length += n;
+                off += n;
+                len -= n;
+            }
+        }
+    }
+
+    /** Reads back the pages of a spilled tile. */
+    private static final class PageInputStream extends InputStream {
+
+        final Arena arena;
+        final int[] pages;
+        long remaining;
+        int pageIndex = 0;
+        ByteBuffer page;
+
+        PageInputStream(Arena arena, SpilledTile st) {
+            this.arena = arena;
+            this.pages = st.pages;
+            this.remaining = st.length;
+        }
+
+        /**
+         * Returns the current page, moving to the next one when all
+         * of it was read.  The limit excludes unwritten bytes.
+         */
+        ByteBuffer nextPage() {
+            if ( page == null || !page.hasRemaining() ) {
+                page = arena.getPage(pages[pageIndex++]);
+                if ( remaining < page.remaining() ) {
+                    page.limit(page.position() + (int)remaining);
+                }
+            }
+            return page;
+        }
+
+        /** Records bytes taken directly from the current page. */
+        void advance(int count) {
+            remaining -= count;
+        }
+
+        public int read() {
+            if ( remaining <= 0 ) {
+                return -1;
+            }
+            remaining--;
+            return nextPage().get() & 0xff;
+        }
+
+        public int read(byte[] b, int off, int len) {
+            if ( remaining <= 0 ) {
+                return -1;
+            }
+            ByteBuffer buf = nextPage();
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            remaining -= n;
+            return n;
+        }
+    }
+}
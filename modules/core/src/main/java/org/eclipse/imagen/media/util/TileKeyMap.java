@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.util;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An open addressing hash table of cached tiles keyed by the compact
+ * identifier of the tile owner and the tile indices.  The key is held
+ * by the entries themselves, so neither a lookup nor an insertion
+ * allocates a key object.
+ *
+ * <p> Modifications must be serialized by the caller.  Lookups may run
+ * concurrently with a modification: a slot only goes from empty to
+ * occupied, from occupied to removed and from removed to occupied, and
+ * a table is no longer modified once it has been replaced.  A lookup
+ * racing with a modification sees the table either before or after it.
+ *
+ * @see SunTileCache
+ * @see ConcurrentTileCache
+ * @see TieredTileCache
+ *
+ */
+final class TileKeyMap {
+
+    /** The smallest table capacity, a power of two. */
+    private static final int MIN_CAPACITY = 16;
+
+    /** Marks a slot whose entry was removed. */
+    private static final Entry REMOVED = new Entry(0L, 0, 0) {};
+
+    /** The slots; the capacity is a power of two. */
+    private volatile AtomicReferenceArray table;
+
+    /** The initial table capacity. */
+    private final int initialCapacity;
+
+    /** The number of entries. */
+    private int size = 0;
+
+    /** The number of occupied or removed slots. */
+    private int used = 0;
+
+    /**
+     * The base class of the values of a <code>TileKeyMap</code>.  The
+     * key of an entry never changes.
+     */
+    static abstract class Entry {
+        final long imageKey;    // compact identifier of the tile owner
+        final int tileX;        // tile X index
+        final int tileY;        // tile Y index
+
+        Entry(long imageKey, int tileX, int tileY) {
+            this.imageKey = imageKey;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+    }
+
+    /**
+     * A tile key as an object, for the maps returned by the
+     * <code>getCachedObject()</code> method of the tile caches.
+     */
+    static final class Key {
+        final long imageKey;
+        final int tileX;
+        final int tileY;
+
+        Key(Entry e) {
+            imageKey = e.imageKey;
+            tileX = e.tileX;
+            tileY = e.tileY;
+        }
+
+        public boolean equals(Object o) {
+            if ( !(o instanceof Key) ) {
+                return false;
+            }
+
+            Key k = (Key)o;
+            return k.imageKey == imageKey &&
+                   k.tileX == tileX && k.tileY == tileY;
+        }
+
+        public int hashCode() {
+            return hash(imageKey, tileX, tileY);
+        }
+
+        public String toString() {
+            return Long.toHexString(imageKey) + ":" +
+                   Integer.toString(tileX) + "," + Integer.toString(tileY);
+        }
+    }
+
+    /**
+     * Constructs an empty map.
+     *
+     * @param expectedSize  The number of entries the map should hold
+     *        without growing.
+     */
+    TileKeyMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while ( capacity < 2 * expectedSize && capacity < (1 << 30) ) {
+            capacity <<= 1;
+        }
+
+        initialCapacity = capacity;
+        table = new AtomicReferenceArray(capacity);
+    }
+
+    /** Mixes the key into a hash code. */
+    static int hash(long imageKey, int tileX, int tileY) {
+        long h = imageKey * 0x9E3779B97F4A7C15L + tileX;
+        h = h * 0x9E3779B97F4A7C15L + tileY;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int)h;
+    }
+
+    /**
+     * Returns the entry with the given key, or <code>null</code> if
+     * there is none.  May be called without synchronization.
+     */
+    Entry get(long imageKey, int tileX, int tileY) {
+        AtomicReferenceArray tab = table;
+        int mask = tab.length() - 1;
+
+        for (int i = hash(imageKey, tileX, tileY) & mask; ; i = (i + 1) & mask) {
+            Entry e = (Entry)tab.get(i);
+
+            if ( e == null ) {
+                return null;
+            }
+
+            if ( e.imageKey == imageKey &&
+                 e.tileX == tileX && e.tileY == tileY && e != REMOVED ) {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * Adds an entry unless one with the same key is already present.
+     * Returns the present entry, or <code>null</code> if the entry
+     * was added.
+     */
+    Entry putIfAbsent(Entry entry) {
+        if ( 2 * (used + 1) > table.length() ) {
+            rehash();
+        }
+
+        AtomicReferenceArray tab = table;
+        int mask = tab.length() - 1;
+        int free = -1;
+
+        int i = hash(entry.imageKey, entry.tileX, entry.tileY) & mask;
+        for ( ; ; i = (i + 1) & mask) {
+            Entry e = (Entry)tab.get(i);
+
+            if ( e == null ) {
+                break;
+            }
+
+            if ( e == REMOVED ) {
+                if ( free < 0 ) {
+                    free = i;
+                }
+            } else if ( e.imageKey == entry.imageKey &&
+                        e.tileX == entry.tileX && e.tileY == entry.tileY ) {
+                return e;
+            }
+        }
+
+        if ( free < 0 ) {
+            free = i;
+            used++;
+        }
+
+        size++;
+        tab.set(free, entry);
+
+        return null;
+    }
+
+    /**
+     * Removes the given entry.  Returns <code>false</code> if it is
+     * not in the map, even if another entry with the same key is.
+     */
+    boolean remove(Entry entry) {
+        AtomicReferenceArray tab = table;
+        int mask = tab.length() - 1;
+
+        int i = hash(entry.imageKey, entry.tileX, entry.tileY) & mask;
+        for ( ; ; i = (i + 1) & mask) {
+            Object e = tab.get(i);
+
+            if ( e == null ) {
+                return false;
+            }
+
+            if ( e == entry ) {
+                tab.set(i, REMOVED);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the entry with the given key, or returns
+     * <code>null</code> if there is none.
+     */
+    Entry remove(long imageKey, int tileX, int tileY) {
+        Entry e = get(imageKey, tileX, tileY);
+
+        if ( e != null ) {
+            remove(e);
+        }
+
+        return e;
+    }
+
+    /** Returns the number of entries. */
+    int size() {
+        return size;
+    }
+
+    /** Removes all entries. */
+    void clear() {
+        table = new AtomicReferenceArray(initialCapacity);
+        size = 0;
+        used = 0;
+    }
+
+    /** Returns the entries in an array of their own. */
+    Entry[] entries() {
+        AtomicReferenceArray tab = table;
+        Entry[] entries = new Entry[size];
+        int n = 0;
+
+        for (int i = 0; i < tab.length() && n < entries.length; i++) {
+            Entry e = (Entry)tab.get(i);
+
+            if ( e != null && e != REMOVED ) {
+                entries[n++] = e;
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Copies the live entries to a new table, growing it if more than
+     * a quarter of it would be occupied.
+     */
+    private void rehash() {
+        AtomicReferenceArray tab = table;
+
+        int capacity = tab.length();
+        while ( 4 * (size + 1) > capacity && capacity < (1 << 30) ) {
+            capacity <<= 1;
+        }
+
+        AtomicReferenceArray newTab = new AtomicReferenceArray(capacity);
+        int mask = capacity - 1;
+
+        for (int j = 0; j < tab.length(); j++) {
+            Entry e = (Entry)tab.get(j);
+
+            if ( e == null || e == REMOVED ) {
+                continue;
+            }
+
+            int i = hash(e.imageKey, e.tileX, e.tileY) & mask;
+            while ( newTab.get(i) != null ) {
+                i = (i + 1) & mask;
+            }
+            newTab.set(i, e);
+        }
+
+        used = size;
+        table = newTab;
+    }
+}
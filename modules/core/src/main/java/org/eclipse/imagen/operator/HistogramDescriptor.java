@@ -67,6 +67,12 @@ import org.eclipse.imagen.registry.RenderedRegistryMode;
  * the image data are of type <code>byte</code>.  For other image data
  * types the values of these parameters should be supplied explicitely.
  *
+ * <p> The "histogram" property is a <code>LongHistogram</code> rather
+ * than a plain <code>Histogram</code> if the number of sampled pixels
+ * could exceed <code>Integer.MAX_VALUE</code>, or if any band has more
+ * than 65536 bins, in which case only the bins which are not empty are
+ * stored.
+ *
  * <p><table border=1>
  * <caption>Resource List</caption>
  * <tr><th>Name</th>        <th>Value</th></tr>
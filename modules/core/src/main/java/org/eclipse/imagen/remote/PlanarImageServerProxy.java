@@ -18,6 +18,7 @@
 package org.eclipse.imagen.remote;
 
 import java.awt.Image;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.RenderedImage;
@@ -26,6 +27,8 @@ import java.awt.image.SampleModel;
 import java.awt.image.ColorModel;
 import java.awt.image.renderable.ParameterBlock;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.Vector;
 import java.util.Hashtable;
 import org.eclipse.imagen.ImageLayout;
@@ -101,6 +104,22 @@ public abstract class PlanarImageServerProxy extends PlanarImage implements Remo
     /** The number of retries. */
     protected int numRetries;
 
+    /** The default number of tiles fetched ahead. */
+    private static final int DEFAULT_FETCH_AHEAD = 4;
+
+    /**
+     * The number of tiles, following a requested tile in row-major
+     * order, which are fetched asynchronously ahead of their use.
+     */
+    protected int fetchAhead = DEFAULT_FETCH_AHEAD;
+
+    // The tiles fetched ahead which have not been requested yet.
+    // Guarded by itself, as is pendingTiles.
+    private final HashSet aheadTiles = new HashSet();
+
+    // The tiles fetched ahead which have not been received yet.
+    private final HashSet pendingTiles = new HashSet();
+
     /** A reference to a centralized TileCache object. */
     protected transient TileCache cache;
 
@@ -437,6 +456,32 @@ public abstract class PlanarImageServerProxy extends PlanarImage implements Remo
     public abstract Raster computeTile(int tileX, int tileY)
 	throws RemoteImagingException;
 
+    /**
+     * Returns the tiles at the given indices as computed on the remote
+     * server machine.  The <code>Raster</code>s that are returned are
+     * copies, and the entries for tile indices outside of the image are
+     * <code>null</code>.  Network errors encountered should be signalled
+     * by throwing a <code>RemoteImagingException</code>.
+     *
+     * <p> This implementation calls <code>computeTile</code> for each
+     * tile.  Subclasses should override it to request all the tiles in
+     * a single round trip to the server.
+     *
+     * @param tileIndices the indices of the requested tiles.
+     * @throws RemoteImagingException if an error condition during remote
+     *         image processing occurs
+     */
+    public Raster[] computeTiles(Point[] tileIndices)
+	throws RemoteImagingException {
+
+	Raster[] tiles = new Raster[tileIndices.length];
+	for (int i = 0; i < tileIndices.length; i++) {
+	    tiles[i] = computeTile(tileIndices[i].x, tileIndices[i].y);
+	}
+
+	return tiles;
+    }
+
     /**
      * Returns the amount of time between retries in milliseconds.
      */
@@ -479,6 +524,33 @@ public abstract class PlanarImageServerProxy extends PlanarImage implements Remo
 	this.numRetries = numRetries;
     }
 
+    /**
+     * Returns the number of tiles fetched ahead of their use.
+     */
+    public int getFetchAhead() {
+	return fetchAhead;
+    }
+
+    /**
+     * Sets the number of tiles fetched ahead of their use.  When a tile
+     * is requested that was neither cached nor fetched ahead, or that
+     * was fetched ahead, the tiles following it in row-major order are
+     * requested asynchronously, so that reading the tiles of an image in
+     * order overlaps the round trips to the server.  Tiles are only
+     * fetched ahead if this image has a tile cache.
+     *
+     * @param fetchAhead The number of tiles to fetch ahead, zero
+     *                   disabling the fetching ahead.
+     * @throws IllegalArgumentException if fetchAhead is negative.
+     */
+    public void setFetchAhead(int fetchAhead) {
+        if (fetchAhead < 0) {
+            throw new IllegalArgumentException(
+				JaiI18N.getString("PlanarImageServerProxy4"));
+        }
+	this.fetchAhead = fetchAhead;
+    }
+
     /**
      * Overrides the method in <code>PlanarImage</code> to return the X
      * coordinate of the leftmost column of the remote image.
@@ -767,7 +839,9 @@ public abstract class PlanarImageServerProxy extends PlanarImage implements Remo
      * method deals with Network errors (recognized as
      * <code>RemoteImagingExceptions</code>) through retries and retry
      * intervals. This method also performs caching of tiles, so that
-     * an already computed tile does not need to be re-computed.
+     * an already computed tile does not need to be re-computed, and
+     * fetches the following tiles ahead of their use as described in
+     * <code>setFetchAhead</code>.
      *
      * @param tileX the X index of the tile.
      * @param tileY the Y index of the tile.
@@ -784,8 +858,15 @@ public abstract class PlanarImageServerProxy extends PlanarImage implements Remo
 	    // Check if tile is available in the cache.
 	    tile = cache != null ? cache.getTile(this, tileX, tileY) : null;
 
+	    // Wait for the tile if it is being fetched ahead.
+	    boolean fetchNext = takeFetchedAhead(tileX, tileY);
+	    if (fetchNext && tile == null) {
+		tile = cache.getTile(this, tileX, tileY);
+	    }
+
             if (tile == null) {         // tile not in cache
                 // Ask the subclass for the tile
+		fetchNext = true;
 		int count = 0;
 		Exception rieSave = null;
 		while (count++ < numRetries) {
@@ -813,19 +894,310 @@ public abstract class PlanarImageServerProxy extends PlanarImage implements Remo
 		    cache.add(this, tileX, tileY, tile, tileCacheMetric);
 		}
             }
+
+	    // Keep the following tiles coming.
+	    if (fetchNext) {
+		fetchAhead(tileX, tileY);
+	    }
         }
 
         return tile;
     }
 
     /**
-     * Uncaches all the tiles when this image is garbage collected.
+     * Returns the tiles indicated by the <code>tileIndices</code> array.
+     * The tiles which are not cached are requested from the server in a
+     * single <code>computeTiles</code> call, which deals with network
+     * errors through retries and retry intervals, and are then cached.
+     *
+     * @param tileIndices  An array of Points representing tile indices.
+     * @throws IllegalArgumentException  If <code>tileIndices</code> is
+     *         <code>null</code>.
+     * @throws RemoteImagingException if limit of retries is exceeded.
+     */
+    public Raster[] getTiles(Point[] tileIndices) {
+        if (tileIndices == null) {
+            throw new IllegalArgumentException(
+				JaiI18N.getString("Generic0"));
+        }
+
+	Raster[] tiles = new Raster[tileIndices.length];
+
+	// Find the tiles inside this image's boundary which are not cached.
+	int numMissing = 0;
+	int[] positions = new int[tileIndices.length];
+	for (int i = 0; i < tileIndices.length; i++) {
+	    int tileX = tileIndices[i].x;
+	    int tileY = tileIndices[i].y;
+
+	    if (tileX >= getMinTileX() && tileX <= getMaxTileX() &&
+		tileY >= getMinTileY() && tileY <= getMaxTileY()) {
+		tiles[i] = cache != null ?
+		    cache.getTile(this, tileX, tileY) : null;
+
+		if (tiles[i] == null && takeFetchedAhead(tileX, tileY)) {
+		    tiles[i] = cache.getTile(this, tileX, tileY);
+		}
+		if (tiles[i] == null) {
+		    positions[numMissing++] = i;
+		}
+	    }
+	}
+
+	if (numMissing == 0) {
+	    return tiles;
+	}
+
+	Point[] missing = new Point[numMissing];
+	for (int i = 0; i < numMissing; i++) {
+	    missing[i] = tileIndices[positions[i]];
+	}
+
+	// Ask the subclass for all the missing tiles at once.
+	Raster[] computed = null;
+	int count = 0;
+	Exception rieSave = null;
+	while (count++ < numRetries) {
+	    try {
+		computed = computeTiles(missing);
+		break;
+	    } catch (RemoteImagingException rie) {
+		System.err.println(
+			JaiI18N.getString("PlanarImageServerProxy0"));
+		rieSave = rie;
+		try {
+		    Thread.sleep(retryInterval);
+		} catch (InterruptedException ie) {
+		}
+	    }
+	}
+
+	if (count > numRetries) {
+	    sendExceptionToListener(rieSave);
+	    return tiles;
+	}
+
+	// Cache the result tiles.
+	for (int i = 0; i < numMissing; i++) {
+	    Raster tile = computed[i];
+	    tiles[positions[i]] = tile;
+	    if (cache != null && tile != null) {
+		cache.add(this, missing[i].x, missing[i].y, tile,
+			  tileCacheMetric);
+	    }
+	}
+
+	return tiles;
+    }
+
+    /**
+     * Hints that the given tiles might be needed in the near future.
+     * The tiles which are neither cached nor already being fetched are
+     * requested from the server in a single asynchronous
+     * <code>computeTiles</code> call, and then cached.  The hint is
+     * ignored if this image has no tile cache.
+     *
+     * @param tileIndices A list of tile indices indicating which tiles
+     *        to prefetch.
+     * @throws IllegalArgumentException  If <code>tileIndices</code> is
+     *         <code>null</code>.
+     */
+    public void prefetchTiles(Point[] tileIndices) {
+        if (tileIndices == null) {
+            throw new IllegalArgumentException(
+				JaiI18N.getString("Generic0"));
+        }
+
+	fetchTilesAhead(tileIndices);
+    }
+
+    /**
+     * Fetches the tiles following the given tile in row-major order
+     * ahead of their use.
+     */
+    private void fetchAhead(int tileX, int tileY) {
+	if (fetchAhead <= 0 || cache == null) {
+	    return;
+	}
+
+	Vector indices = new Vector();
+	for (int i = 0; i < fetchAhead; i++) {
+	    if (++tileX > getMaxTileX()) {
+		tileX = getMinTileX();
+		if (++tileY > getMaxTileY()) {
+		    break;
+		}
+	    }
+	    indices.add(new Point(tileX, tileY));
+	}
+
+	fetchTilesAhead((Point[])indices.toArray(new Point[indices.size()]));
+    }
+
+    /**
+     * Asynchronously fetches the given tiles which are inside this
+     * image's boundary and neither cached nor already fetched ahead.
+     */
+    private void fetchTilesAhead(Point[] tileIndices) {
+	if (cache == null) {
+	    return;
+	}
+
+	Vector indices = new Vector();
+	synchronized (aheadTiles) {
+	    for (int i = 0; i < tileIndices.length; i++) {
+		Point p = tileIndices[i];
+
+		if (p.x >= getMinTileX() && p.x <= getMaxTileX() &&
+		    p.y >= getMinTileY() && p.y <= getMaxTileY() &&
+		    !aheadTiles.contains(p) &&
+		    cache.getTile(this, p.x, p.y) == null) {
+		    p = new Point(p);
+		    aheadTiles.add(p);
+		    pendingTiles.add(p);
+		    indices.add(p);
+		}
+	    }
+	}
+
+	if (indices.size() > 0) {
+	    TileFetcher.fetch(this,
+			      (Point[])indices.toArray(new Point[indices.size()]));
+	}
+    }
+
+    /**
+     * Returns whether the given tile has been fetched ahead, waiting
+     * for it to be received if need be.  The tile is then in the cache
+     * unless fetching it failed or it was already evicted.
+     */
+    private boolean takeFetchedAhead(int tileX, int tileY) {
+	synchronized (aheadTiles) {
+	    if (aheadTiles.isEmpty()) {
+		return false;
+	    }
+
+	    Point p = new Point(tileX, tileY);
+	    if (!aheadTiles.remove(p)) {
+		return false;
+	    }
+
+	    while (pendingTiles.contains(p)) {
+		try {
+		    aheadTiles.wait();
+		} catch (InterruptedException ie) {
+		    break;
+		}
+	    }
+	}
+
+	return true;
+    }
+
+    /**
+     * Fetches and caches tiles on behalf of a <code>TileFetcher</code>.
+     * Tiles which could not be fetched are left to be requested again
+     * when they are needed.
+     */
+    private void receiveTiles(Point[] tileIndices) {
+	Raster[] tiles = null;
+	try {
+	    tiles = computeTiles(tileIndices);
+	    for (int i = 0; i < tileIndices.length; i++) {
+		if (tiles[i] != null) {
+		    cache.add(this, tileIndices[i].x, tileIndices[i].y,
+			      tiles[i], tileCacheMetric);
+		}
+	    }
+	} catch (Exception e) {
+	    // Ignore the Exception.
+	} finally {
+	    synchronized (aheadTiles) {
+		for (int i = 0; i < tileIndices.length; i++) {
+		    pendingTiles.remove(tileIndices[i]);
+		    if (tiles == null || tiles[i] == null) {
+			aheadTiles.remove(tileIndices[i]);
+		    }
+		}
+		aheadTiles.notifyAll();
+	    }
+	}
+    }
+
+    /**
+     * Fetches tiles on daemon threads shared by all the proxies, so that
+     * the round trips to the server overlap with the use of the tiles
+     * which were already received.
+     */
+    private static final class TileFetcher {
+
+	/** The maximum number of fetching threads. */
+	private static final int MAX_THREADS = 2;
+
+	/** The queue of fetches; also guards numThreads. */
+	private static final LinkedList jobs = new LinkedList();
+
+	/** The number of fetching threads started. */
+	private static int numThreads = 0;
+
+	private final PlanarImageServerProxy image;
+	private final Point[] tileIndices;
+
+	private TileFetcher(PlanarImageServerProxy image,
+			    Point[] tileIndices) {
+	    this.image = image;
+	    this.tileIndices = tileIndices;
+	}
+
+	/** Queues the fetching of tiles of an image. */
+	static void fetch(PlanarImageServerProxy image, Point[] tileIndices) {
+	    synchronized (jobs) {
+		jobs.addLast(new TileFetcher(image, tileIndices));
+
+		if (numThreads < MAX_THREADS) {
+		    Thread thread = new Thread(new Runnable() {
+			public void run() {
+			    runJobs();
+			}
+		    }, "RemoteTileFetcher" + numThreads);
+		    thread.setDaemon(true);
+		    thread.start();
+		    numThreads++;
+		}
+
+		jobs.notify();
+	    }
+	}
+
+	/** Runs the queued fetches. */
+	private static void runJobs() {
+	    while (true) {
+		TileFetcher job;
+		synchronized (jobs) {
+		    while (jobs.isEmpty()) {
+			try {
+			    jobs.wait();
+			} catch (InterruptedException ie) {
+			}
+		    }
+		    job = (TileFetcher)jobs.removeFirst();
+		}
+
+		job.image.receiveTiles(job.tileIndices);
+	    }
+	}
+    }
+
+    /**
+     * Uncaches all the tiles and calls <code>super.dispose()</code>.
+     * The tiles of an image which is garbage collected without having
+     * been disposed of are discarded by the tile cache itself.
      */
-    protected void finalize() throws Throwable {
+    public synchronized void dispose() {
         if (cache != null) {
             cache.removeTiles(this);
         }
-        super.finalize();
+        super.dispose();
     }
 
     //
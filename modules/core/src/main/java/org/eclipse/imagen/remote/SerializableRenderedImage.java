@@ -70,6 +70,7 @@ import org.eclipse.imagen.util.CaselessStringKey;
 import org.eclipse.imagen.util.ImagingException;
 import org.eclipse.imagen.util.ImagingListener;
 import org.eclipse.imagen.media.util.ImageUtil;
+import org.eclipse.imagen.media.util.ResourceCleaner;
 
 /**
  * A serializable wrapper class for classes which implement the
@@ -243,6 +244,12 @@ public final class SerializableRenderedImage
     /** The port on which the data server is listening. */
     private int port;
 
+    /**
+     * Sends the close message to the server once a client is disposed
+     * of or unreachable (client only).
+     */
+    private transient ResourceCleaner.Cleanable cleanable;
+
     /** Flag indicating that the server is available for connections. */
     private transient boolean serverOpen = false;
 
@@ -895,7 +902,7 @@ public final class SerializableRenderedImage
             // switch to "deep copy" mode, and notify the data server.
             if (imageBounds.equals(rect)) {
 
-                closeClient();
+                cleanable.clean();
 
                 imageRaster = raster;
                 useDeepCopy = true;
@@ -1105,10 +1112,11 @@ public final class SerializableRenderedImage
      * Transmit a message to the data server to indicate that the client
      * will no longer request socket connections.
      */
-    private void closeClient() {
+    private static void closeClient(InetAddress host, int port,
+                                    Object where) {
 
         // Connect to the data server.
-        Socket socket = connectToServer();
+        Socket socket = connectToServer(host, port, where);
 
         // Get the socket output stream and wrap an object
         // output stream around it.
@@ -1121,7 +1129,8 @@ public final class SerializableRenderedImage
 	    objectIn = new ObjectInputStream(socket.getInputStream());
         } catch (IOException e) {
             sendExceptionToListener(JaiI18N.getString("SerializableRenderedImage7"),
-                                    new ImagingException(JaiI18N.getString("SerializableRenderedImage7"), e));
+                                    new ImagingException(JaiI18N.getString("SerializableRenderedImage7"), e),
+                                    where);
 //            throw new RuntimeException(e.getMessage());
         }
 
@@ -1130,7 +1139,8 @@ public final class SerializableRenderedImage
             objectOut.writeObject(CLOSE_MESSAGE);
         } catch (IOException e) {
             sendExceptionToListener(JaiI18N.getString("SerializableRenderedImage13"),
-                                    new ImagingException(JaiI18N.getString("SerializableRenderedImage13"), e));
+                                    new ImagingException(JaiI18N.getString("SerializableRenderedImage13"), e),
+                                    where);
 //            throw new RuntimeException(e.getMessage());
         }
 
@@ -1140,12 +1150,14 @@ public final class SerializableRenderedImage
             sendExceptionToListener(JaiI18N.getString(
 					    "SerializableRenderedImage8"),
                                     new ImagingException(JaiI18N.getString(
-					    "SerializableRenderedImage8"), e));
+					    "SerializableRenderedImage8"), e),
+                                    where);
 	} catch (ClassNotFoundException cnfe) {
             sendExceptionToListener(JaiI18N.getString(
 					 "SerializableRenderedImage9"),
                                     new ImagingException(JaiI18N.getString(
-					 "SerializableRenderedImage9"), cnfe));
+					 "SerializableRenderedImage9"), cnfe),
+                                    where);
 	}
 
         // Close the streams and the socket.
@@ -1159,7 +1171,8 @@ public final class SerializableRenderedImage
         } catch (IOException e) {
             sendExceptionToListener(JaiI18N.getString("SerializableRenderedImage11"),
                                     new ImagingException(JaiI18N.getString(
-						  "SerializableRenderedImage11"), e));
+						  "SerializableRenderedImage11"), e),
+                                    where);
 //            throw new RuntimeException(e.getMessage());
         }
     }
@@ -1169,6 +1182,14 @@ public final class SerializableRenderedImage
      * deep copy of the image Raster has not been made.
      */
     private Socket connectToServer() {
+        return connectToServer(host, port, this);
+    }
+
+    /**
+     * Obtain a connection to the data server socket at the given address.
+     */
+    private static Socket connectToServer(InetAddress host, int port,
+                                          Object where) {
         // Open a connection to the data server.
         Socket socket = null;
         try {
@@ -1176,13 +1197,32 @@ public final class SerializableRenderedImage
 	    socket.setSoLinger(true,1);
         } catch (IOException e) {
             sendExceptionToListener(JaiI18N.getString("SerializableRenderedImage14"),
-                                    new ImagingException(JaiI18N.getString("SerializableRenderedImage14"), e));
+                                    new ImagingException(JaiI18N.getString("SerializableRenderedImage14"), e),
+                                    where);
 //            throw new RuntimeException(e.getMessage());
         }
 
         return socket;
     }
 
+    /**
+     * Sends the close message to the data server of a client.  This is
+     * not an inner class so that it does not refer to the client.
+     */
+    private static class ClientCloser implements Runnable {
+        private InetAddress host;
+        private int port;
+
+        ClientCloser(InetAddress host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        public void run() {
+            closeClient(host, port, SerializableRenderedImage.class);
+        }
+    }
+
     /**
      * When useTileCodec is set, encode the provided raster into
      * a byte array.
@@ -1257,23 +1297,13 @@ public final class SerializableRenderedImage
         return null;
     }
 
-    /**
-     * If a deep copy is not being used, unset the data server availability
-     * flag and wait for the server thread to rejoin the current thread.
-     */
-    protected void finalize() throws Throwable {
-        dispose();
-
-        // Forward to the parent class.
-        super.finalize();
-    }
-
     /**
      * Provides a hint that an image will no longer be accessed from a
-     * reference in user space.  The results are equivalent to those
-     * that occur when the program loses its last reference to this
-     * image, the garbage collector discovers this, and finalize is
-     * called.  This can be used as a hint in situations where waiting
+     * reference in user space.  For a client, the results are equivalent
+     * to those that occur when the program loses its last reference to
+     * this image and the garbage collector discovers this.  A server is
+     * referenced by its own server thread and must be disposed of
+     * explicitly.  This can be used as a hint in situations where waiting
      * for garbage collection would be overly conservative, e.g., there
      * are a large number of socket connections which may be opened to
      * transmit tile data.
@@ -1317,7 +1347,9 @@ public final class SerializableRenderedImage
             }
         } else { // client
             // Transmit a message to the server to indicate the child's exit.
-	    closeClient();
+            if (cleanable != null) {
+                cleanable.clean();
+            }
         }
     }
 
@@ -1435,6 +1467,10 @@ public final class SerializableRenderedImage
 		    (SerializableState)in.readObject();
                 imageRaster = (Raster)rasState.getObject();
             }
+        } else {
+            // Notify the data server once this client is unreachable.
+            cleanable = ResourceCleaner.register(this,
+                                                 new ClientCloser(host, port));
         }
     }
 
@@ -1447,7 +1483,12 @@ public final class SerializableRenderedImage
     }
 
     void sendExceptionToListener(String message, Exception e) {
+        sendExceptionToListener(message, e, this);
+    }
+
+    private static void sendExceptionToListener(String message, Exception e,
+                                                Object where) {
         ImagingListener listener= JAI.getDefaultInstance().getImagingListener();
-        listener.errorOccurred(message, e, this, false);
+        listener.errorOccurred(message, e, where, false);
     }
 }
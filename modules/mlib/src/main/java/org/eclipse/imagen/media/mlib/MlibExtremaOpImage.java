@@ -69,6 +69,14 @@ final class MlibExtremaOpImage extends ExtremaOpImage {
 	      saveLocations, maxRuns);
     }
 
+    /**
+     * Returns <code>null</code> as the mediaLib accumulation does not
+     * support partial statistics.
+     */
+    protected Object createPartialStatistics(String name) {
+        return null;
+    }
+
     protected void accumulateStatistics(String name,
                                         Raster source,
                                         Object stats) {
@@ -55,6 +55,14 @@ final class MlibMeanOpImage extends MeanOpImage {
 	super(source, roi, xStart, yStart, xPeriod, yPeriod);
     }
 
+    /**
+     * Returns <code>null</code> as the mediaLib accumulation does not
+     * support partial statistics.
+     */
+    protected Object createPartialStatistics(String name) {
+        return null;
+    }
+
     protected void accumulateStatistics(String name,
                                         Raster source,
                                         Object stats) {
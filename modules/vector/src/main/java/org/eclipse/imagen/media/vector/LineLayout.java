@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.vector;
+import org.eclipse.imagen.RasterAccessor;
+
+/**
+ * Describes the data of a set of <code>RasterAccessor</code>s of the
+ * same size as runs of elements which may be processed one line at a
+ * time.
+ *
+ * <p> When all the accessors hold pixel interleaved data with the
+ * bands in the same order, a line of every band is a single run of
+ * contiguous elements so that operators which treat the bands alike
+ * may process all the bands at once.  Otherwise, each band of a line
+ * is a run of elements separated by the pixel stride.
+ */
+final class LineLayout {
+
+    private final RasterAccessor[] accessors;
+
+    private final int numBands;
+
+    private final int width;
+
+    private final int height;
+
+    /** Whether a line of all the bands is a single contiguous run. */
+    private final boolean interleaved;
+
+    /** The band of each element of a pixel in interleaved runs. */
+    private final int[] bandOrder;
+
+    /**
+     * Constructs a <code>LineLayout</code>.  The width, height and
+     * number of bands are those of the last accessor, usually the
+     * destination.
+     *
+     * @param accessors  The accessors of the sources and destination.
+     */
+    LineLayout(RasterAccessor[] accessors) {
+        this.accessors = accessors;
+
+        RasterAccessor dst = accessors[accessors.length - 1];
+        numBands = dst.getNumBands();
+        width = dst.getWidth();
+        height = dst.getHeight();
+
+        bandOrder = getBandOrder(dst);
+
+        boolean isInterleaved = numBands > 1 && bandOrder != null;
+        for (int i = 0; isInterleaved && i < accessors.length; i++) {
+            int[] order = getBandOrder(accessors[i]);
+            for (int b = 0; order != null && b < numBands; b++) {
+                if (order[b] != bandOrder[b]) {
+                    order = null;
+                }
+            }
+            isInterleaved = order != null;
+        }
+        interleaved = isInterleaved;
+    }
+
+    /**
+     * Returns the band of each element of a pixel, or <code>null</code>
+     * if the pixels of the accessor are not contiguous groups of
+     * elements of one array.
+     */
+    private int[] getBandOrder(RasterAccessor accessor) {
+        if (accessor.getNumBands() != numBands ||
+            accessor.getPixelStride() != numBands) {
+            return null;
+        }
+
+        int minOffset = getMinOffset(accessor);
+        Object data = accessor.getDataArray(0);
+
+        int[] order = new int[numBands];
+        boolean[] found = new boolean[numBands];
+        for (int b = 0; b < numBands; b++) {
+            int element = accessor.getBandOffset(b) - minOffset;
+            if (element >= numBands || found[element] ||
+                accessor.getDataArray(b) != data) {
+                return null;
+            }
+            order[element] = b;
+            found[element] = true;
+        }
+
+        return order;
+    }
+
+    private static int getMinOffset(RasterAccessor accessor) {
+        int[] offsets = accessor.getBandOffsets();
+        int minOffset = offsets[0];
+        for (int b = 1; b < offsets.length; b++) {
+            minOffset = Math.min(minOffset, offsets[b]);
+        }
+        return minOffset;
+    }
+
+    /** Returns <code>true</code> if a line is a single run of all bands. */
+    boolean isInterleaved() {
+        return interleaved;
+    }
+
+    /** Returns the number of runs of a line. */
+    int getNumRuns() {
+        return interleaved ? 1 : numBands;
+    }
+
+    /** Returns the number of elements of a run. */
+    int getRunLength() {
+        return interleaved ? width * numBands : width;
+    }
+
+    /** Returns the number of lines. */
+    int getNumLines() {
+        return height;
+    }
+
+    /**
+     * Returns the bands of the successive elements of a run.  The
+     * band of element <code>i</code> is
+     * <code>getBands(run)[i % getBands(run).length]</code>.
+     */
+    int[] getBands(int run) {
+        return interleaved ? bandOrder : new int[] {run};
+    }
+
+    /** Returns the data array of a run of an accessor. */
+    Object getData(int accessor, int run) {
+        return accessors[accessor].getDataArray(interleaved ? 0 : run);
+    }
+
+    /** Returns the offset of a run of a line of an accessor. */
+    int getOffset(int accessor, int run, int line) {
+        RasterAccessor a = accessors[accessor];
+        int offset = interleaved ? getMinOffset(a) : a.getBandOffset(run);
+        return offset + line * a.getScanlineStride();
+    }
+
+    /** Returns the distance between the elements of a run of an accessor. */
+    int getStride(int accessor) {
+        return interleaved ? 1 : accessors[accessor].getPixelStride();
+    }
+}
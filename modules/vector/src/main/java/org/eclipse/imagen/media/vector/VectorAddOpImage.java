@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.vector;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.PointOpImage;
+import org.eclipse.imagen.RasterAccessor;
+import org.eclipse.imagen.RasterFormatTag;
+import org.eclipse.imagen.media.util.ImageUtil;
+
+/**
+ * An <code>OpImage</code> implementing the "Add" operation with the
+ * Vector API.  The sums are clamped to the range of the data type as
+ * in the pure Java implementation.
+ *
+ * @see org.eclipse.imagen.operator.AddDescriptor
+ * @see VectorAddRIF
+ *
+ */
+final class VectorAddOpImage extends PointOpImage {
+
+    private static final VectorSpecies<Byte> BYTE =
+        ByteVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Short> SHORT =
+        ShortVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Float> FLOAT =
+        FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * Constructs a <code>VectorAddOpImage</code>.  The sources must
+     * have the same number of bands.
+     *
+     * @param source1  The first source image.
+     * @param source2  The second source image.
+     * @param layout   The destination image layout.
+     */
+    public VectorAddOpImage(RenderedImage source1,
+                            RenderedImage source2,
+                            Map config,
+                            ImageLayout layout) {
+        super(source1, source2, layout, config, true);
+
+        // Set flag to permit in-place operation.
+        permitInPlaceOperation();
+    }
+
+    /**
+     * Adds the pixel values of two source images within a specified
+     * rectangle.
+     *
+     * @param sources   Cobbled sources, guaranteed to provide all the
+     *                  source data necessary for computing the rectangle.
+     * @param dest      The tile containing the rectangle to be computed.
+     * @param destRect  The rectangle within the tile to be computed.
+     */
+    protected void computeRect(Raster[] sources,
+                               WritableRaster dest,
+                               Rectangle destRect) {
+        // Retrieve format tags.
+        RasterFormatTag[] formatTags = getFormatTags();
+
+        RasterAccessor s1 = createRasterAccessor(sources[0], destRect,
+                                                 formatTags[0],
+                                                 getSourceImage(0).getColorModel());
+        RasterAccessor s2 = createRasterAccessor(sources[1], destRect,
+                                                 formatTags[1],
+                                                 getSourceImage(1).getColorModel());
+        RasterAccessor d = createRasterAccessor(dest, destRect,
+                                                formatTags[2], getColorModel());
+
+        LineLayout lines = new LineLayout(new RasterAccessor[] {s1, s2, d});
+        int length = lines.getRunLength();
+        int s1Stride = lines.getStride(0);
+        int s2Stride = lines.getStride(1);
+        int dStride = lines.getStride(2);
+        int dataType = d.getDataType();
+
+        for (int r = 0; r < lines.getNumRuns(); r++) {
+            Object s1Data = lines.getData(0, r);
+            Object s2Data = lines.getData(1, r);
+            Object dData = lines.getData(2, r);
+
+            for (int y = 0; y < lines.getNumLines(); y++) {
+                int s1Offset = lines.getOffset(0, r, y);
+                int s2Offset = lines.getOffset(1, r, y);
+                int dOffset = lines.getOffset(2, r, y);
+
+                switch (dataType) {
+                case DataBuffer.TYPE_BYTE:
+                    byteRun(length,
+                            (byte[])s1Data, s1Offset, s1Stride,
+                            (byte[])s2Data, s2Offset, s2Stride,
+                            (byte[])dData, dOffset, dStride);
+                    break;
+                case DataBuffer.TYPE_USHORT:
+                    ushortRun(length,
+                              (short[])s1Data, s1Offset, s1Stride,
+                              (short[])s2Data, s2Offset, s2Stride,
+                              (short[])dData, dOffset, dStride);
+                    break;
+                case DataBuffer.TYPE_SHORT:
+                    shortRun(length,
+                             (short[])s1Data, s1Offset, s1Stride,
+                             (short[])s2Data, s2Offset, s2Stride,
+                             (short[])dData, dOffset, dStride);
+                    break;
+                case DataBuffer.TYPE_FLOAT:
+                    floatRun(length,
+                             (float[])s1Data, s1Offset, s1Stride,
+                             (float[])s2Data, s2Offset, s2Stride,
+                             (float[])dData, dOffset, dStride);
+                    break;
+                default:
+                    String className = this.getClass().getName();
+                    throw new RuntimeException(className +
+                                               JaiI18N.getString("Generic2"));
+                }
+            }
+        }
+
+        if (d.needsClamping()) {
+            d.clampDataArrays();
+        }
+        d.copyDataToRaster();
+
+        recycleRasterAccessor(s1);
+        recycleRasterAccessor(s2);
+        recycleRasterAccessor(d);
+    }
+
+    private static void byteRun(int length,
+                                byte[] s1, int s1Offset, int s1Stride,
+                                byte[] s2, int s2Offset, int s2Stride,
+                                byte[] d, int dOffset, int dStride) {
+        int i = 0;
+        if (s1Stride == 1 && s2Stride == 1 && dStride == 1) {
+            for (int bound = BYTE.loopBound(length); i < bound;
+                 i += BYTE.length()) {
+                ByteVector a = ByteVector.fromArray(BYTE, s1, s1Offset + i);
+                ByteVector b = ByteVector.fromArray(BYTE, s2, s2Offset + i);
+                ByteVector sum = a.add(b);
+
+                // An unsigned sum which wraps around is less than a.
+                VectorMask<Byte> overflow =
+                    sum.compare(VectorOperators.UNSIGNED_LT, a);
+                sum.blend((byte)0xFF, overflow).intoArray(d, dOffset + i);
+            }
+        }
+
+        for (; i < length; i++) {
+            int sum = (s1[s1Offset + i * s1Stride] & 0xFF) +
+                      (s2[s2Offset + i * s2Stride] & 0xFF);
+            d[dOffset + i * dStride] =
+                (byte)((((sum<<23) >> 31) | sum) & 0xFF);
+        }
+    }
+
+    private static void ushortRun(int length,
+                                  short[] s1, int s1Offset, int s1Stride,
+                                  short[] s2, int s2Offset, int s2Stride,
+                                  short[] d, int dOffset, int dStride) {
+        int i = 0;
+        if (s1Stride == 1 && s2Stride == 1 && dStride == 1) {
+            for (int bound = SHORT.loopBound(length); i < bound;
+                 i += SHORT.length()) {
+                ShortVector a = ShortVector.fromArray(SHORT, s1, s1Offset + i);
+                ShortVector b = ShortVector.fromArray(SHORT, s2, s2Offset + i);
+                ShortVector sum = a.add(b);
+
+                // An unsigned sum which wraps around is less than a.
+                VectorMask<Short> overflow =
+                    sum.compare(VectorOperators.UNSIGNED_LT, a);
+                sum.blend((short)0xFFFF, overflow).intoArray(d, dOffset + i);
+            }
+        }
+
+        for (; i < length; i++) {
+            d[dOffset + i * dStride] = ImageUtil.clampUShortPositive(
+                (s1[s1Offset + i * s1Stride] & 0xFFFF) +
+                (s2[s2Offset + i * s2Stride] & 0xFFFF));
+        }
+    }
+
+    private static void shortRun(int length,
+                                 short[] s1, int s1Offset, int s1Stride,
+                                 short[] s2, int s2Offset, int s2Stride,
+                                 short[] d, int dOffset, int dStride) {
+        int i = 0;
+        if (s1Stride == 1 && s2Stride == 1 && dStride == 1) {
+            for (int bound = SHORT.loopBound(length); i < bound;
+                 i += SHORT.length()) {
+                ShortVector a = ShortVector.fromArray(SHORT, s1, s1Offset + i);
+                ShortVector b = ShortVector.fromArray(SHORT, s2, s2Offset + i);
+                ShortVector sum = a.add(b);
+
+                // The sum overflows if its sign differs from that of
+                // both operands; it is then clamped toward the sign of a.
+                VectorMask<Short> overflow =
+                    a.lanewise(VectorOperators.XOR, sum)
+                     .and(b.lanewise(VectorOperators.XOR, sum))
+                     .compare(VectorOperators.LT, (short)0);
+                ShortVector limit =
+                    a.lanewise(VectorOperators.ASHR, 15)
+                     .lanewise(VectorOperators.XOR, Short.MAX_VALUE);
+                sum.blend(limit, overflow).intoArray(d, dOffset + i);
+            }
+        }
+
+        for (; i < length; i++) {
+            d[dOffset + i * dStride] =
+                ImageUtil.clampShort((int)s1[s1Offset + i * s1Stride] +
+                                     (int)s2[s2Offset + i * s2Stride]);
+        }
+    }
+
+    private static void floatRun(int length,
+                                 float[] s1, int s1Offset, int s1Stride,
+                                 float[] s2, int s2Offset, int s2Stride,
+                                 float[] d, int dOffset, int dStride) {
+        int i = 0;
+        if (s1Stride == 1 && s2Stride == 1 && dStride == 1) {
+            for (int bound = FLOAT.loopBound(length); i < bound;
+                 i += FLOAT.length()) {
+                FloatVector a = FloatVector.fromArray(FLOAT, s1, s1Offset + i);
+                FloatVector b = FloatVector.fromArray(FLOAT, s2, s2Offset + i);
+                a.add(b).intoArray(d, dOffset + i);
+            }
+        }
+
+        for (; i < length; i++) {
+            d[dOffset + i * dStride] =
+                s1[s1Offset + i * s1Stride] + s2[s2Offset + i * s2Stride];
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.vector;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.PointOpImage;
+import org.eclipse.imagen.RasterAccessor;
+import org.eclipse.imagen.RasterFactory;
+import org.eclipse.imagen.RasterFormatTag;
+import org.eclipse.imagen.media.util.ImageUtil;
+import org.eclipse.imagen.media.util.JDKWorkarounds;
+
+/**
+ * An <code>OpImage</code> implementing the "BandCombine" operation
+ * with the Vector API.
+ *
+ * <p> Each line of the source is converted to one <code>float</code>
+ * array per band so that the linear combinations are computed on
+ * several pixels at once whatever the layout of the data.  The sums
+ * are accumulated in the same order and with the same precision as
+ * in the pure Java implementation.
+ *
+ * @see org.eclipse.imagen.operator.BandCombineDescriptor
+ * @see VectorBandCombineRIF
+ *
+ */
+final class VectorBandCombineOpImage extends PointOpImage {
+
+    private static final VectorSpecies<Float> FLOAT =
+        FloatVector.SPECIES_PREFERRED;
+
+    /** The matrix rounded to <code>float</code>. */
+    private final float[][] matrix;
+
+    /**
+     * Constructs a <code>VectorBandCombineOpImage</code>.
+     *
+     * @param source       The source image.
+     * @param layout       The destination image layout.
+     * @param matrix       The matrix of values used to perform the
+     *                     linear combination.
+     */
+    public VectorBandCombineOpImage(RenderedImage source,
+                                    Map config,
+                                    ImageLayout layout,
+                                    double[][] matrix) {
+        super(source, layout, config, true);
+
+        this.matrix = new float[matrix.length][];
+        for (int b = 0; b < matrix.length; b++) {
+            this.matrix[b] = new float[matrix[b].length];
+            for (int k = 0; k < matrix[b].length; k++) {
+                this.matrix[b][k] = (float)matrix[b][k];
+            }
+        }
+
+        int numBands = matrix.length;  // matrix height is dst numBands
+        if (getSampleModel().getNumBands() != numBands) {
+            sampleModel = RasterFactory.createComponentSampleModel(sampleModel,
+                                  sampleModel.getDataType(),
+                                  tileWidth, tileHeight, numBands);
+
+            if(colorModel != null &&
+               !JDKWorkarounds.areCompatibleDataModels(sampleModel,
+                                                       colorModel)) {
+                colorModel = ImageUtil.getCompatibleColorModel(sampleModel,
+                                                               config);
+            }
+        }
+    }
+
+    /**
+     * Performs linear combination of source image with matrix
+     *
+     * @param sources   Cobbled sources, guaranteed to provide all the
+     *                  source data necessary for computing the rectangle.
+     * @param dest      The tile containing the rectangle to be computed.
+     * @param destRect  The rectangle within the tile to be computed.
+     */
+    protected void computeRect(Raster[] sources,
+                               WritableRaster dest,
+                               Rectangle destRect) {
+        // Retrieve format tags.
+        RasterFormatTag[] formatTags = getFormatTags();
+
+        RasterAccessor s = createRasterAccessor(sources[0], destRect,
+                                                formatTags[0],
+                                                getSourceImage(0).getColorModel());
+        RasterAccessor d = createRasterAccessor(dest, destRect,
+                                                formatTags[1], getColorModel());
+
+        int dataType = d.getDataType();
+        if (!VectorUtil.isSupportedDataType(dataType)) {
+            String className = this.getClass().getName();
+            throw new RuntimeException(className +
+                                       JaiI18N.getString("Generic2"));
+        }
+
+        int width = d.getWidth();
+        int height = d.getHeight();
+        int sbands = s.getNumBands();
+        int dbands = d.getNumBands();
+
+        float[][] line = new float[sbands][width];
+        float[] sum = new float[width];
+
+        for (int y = 0; y < height; y++) {
+            for (int k = 0; k < sbands; k++) {
+                loadLine(s, k, y, line[k]);
+            }
+
+            for (int b = 0; b < dbands; b++) {
+                float[] mat = matrix[b];
+
+                int i = 0;
+                for (int bound = FLOAT.loopBound(width); i < bound;
+                     i += FLOAT.length()) {
+                    FloatVector acc = FloatVector.zero(FLOAT);
+                    for (int k = 0; k < sbands; k++) {
+                        acc = acc.add(
+                            FloatVector.fromArray(FLOAT, line[k], i).mul(mat[k]));
+                    }
+                    acc.add(mat[sbands]).intoArray(sum, i);
+                }
+
+                for (; i < width; i++) {
+                    float f = 0.0F;
+                    for (int k = 0; k < sbands; k++) {
+                        f += mat[k] * line[k][i];
+                    }
+                    sum[i] = f + mat[sbands];
+                }
+
+                storeLine(d, b, y, sum);
+            }
+        }
+
+        if (d.isDataCopy()) {
+            d.clampDataArrays();
+            d.copyDataToRaster();
+        }
+
+        recycleRasterAccessor(s);
+        recycleRasterAccessor(d);
+    }
+
+    /** Converts a line of a band of the source to <code>float</code>. */
+    static void loadLine(RasterAccessor src, int band, int y, float[] line) {
+        int width = line.length;
+        int stride = src.getPixelStride();
+        int offset = src.getBandOffset(band) + y * src.getScanlineStride();
+
+        switch (src.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            byte[] b = src.getByteDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                line[i] = b[offset] & 0xFF;
+            }
+            break;
+        case DataBuffer.TYPE_USHORT:
+            short[] u = src.getShortDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                line[i] = u[offset] & 0xFFFF;
+            }
+            break;
+        case DataBuffer.TYPE_SHORT:
+            short[] s = src.getShortDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                line[i] = s[offset];
+            }
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            float[] f = src.getFloatDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                line[i] = f[offset];
+            }
+            break;
+        }
+    }
+
+    /**
+     * Rounds and clamps a line of <code>float</code> values to a band
+     * of the destination.
+     */
+    private static void storeLine(RasterAccessor dst, int band, int y,
+                                  float[] line) {
+        int width = line.length;
+        int stride = dst.getPixelStride();
+        int offset = dst.getBandOffset(band) + y * dst.getScanlineStride();
+
+        switch (dst.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            byte[] b = dst.getByteDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                b[offset] = ImageUtil.clampRoundByte(line[i]);
+            }
+            break;
+        case DataBuffer.TYPE_USHORT:
+            short[] u = dst.getShortDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                u[offset] = ImageUtil.clampRoundUShort(line[i]);
+            }
+            break;
+        case DataBuffer.TYPE_SHORT:
+            // Rounded and clamped as in BandCombineOpImage so that results
+            // do not depend on which product rendered the operation.
+            short[] s = dst.getShortDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                s[offset] = ImageUtil.clampRoundUShort(line[i]);
+            }
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            float[] f = dst.getFloatDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                f[offset] = line[i];
+            }
+            break;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.vector;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.PointOpImage;
+import org.eclipse.imagen.RasterAccessor;
+import org.eclipse.imagen.RasterFormatTag;
+
+/**
+ * An <code>OpImage</code> implementing the "Clamp" operation with the
+ * Vector API.  The bounds must be values of the data type of the
+ * source and destination, which is verified by
+ * <code>VectorClampRIF</code>.
+ *
+ * @see org.eclipse.imagen.operator.ClampDescriptor
+ * @see VectorClampRIF
+ *
+ */
+final class VectorClampOpImage extends PointOpImage {
+
+    private static final VectorSpecies<Byte> BYTE =
+        ByteVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Short> SHORT =
+        ShortVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Float> FLOAT =
+        FloatVector.SPECIES_PREFERRED;
+
+    /** The lower bound, one for each band. */
+    private final double[] low;
+
+    /** The upper bound, one for each band. */
+    private final double[] high;
+
+    /**
+     * Constructs a <code>VectorClampOpImage</code>.
+     *
+     * @param source  The source image.
+     * @param layout  The destination image layout.
+     * @param low     The lower bound of the clamp.
+     * @param high    The upper bound of the clamp.
+     */
+    public VectorClampOpImage(RenderedImage source,
+                              Map config,
+                              ImageLayout layout,
+                              double[] low,
+                              double[] high) {
+        super(source, layout, config, true);
+
+        int numBands = getSampleModel().getNumBands();
+        this.low = new double[numBands];
+        this.high = new double[numBands];
+
+        for (int i = 0; i < numBands; i++) {
+            this.low[i] = low[low.length < numBands ? 0 : i];
+            this.high[i] = high[high.length < numBands ? 0 : i];
+        }
+
+        // Set flag to permit in-place operation.
+        permitInPlaceOperation();
+    }
+
+    /**
+     * Clamps the pixels inside a specified rectangle to the bounds on
+     * a per-band basis.
+     *
+     * @param sources   Cobbled sources, guaranteed to provide all the
+     *                  source data necessary for computing the rectangle.
+     * @param dest      The tile containing the rectangle to be computed.
+     * @param destRect  The rectangle within the tile to be computed.
+     */
+    protected void computeRect(Raster[] sources,
+                               WritableRaster dest,
+                               Rectangle destRect) {
+        // Retrieve format tags.
+        RasterFormatTag[] formatTags = getFormatTags();
+
+        RasterAccessor s = createRasterAccessor(sources[0], destRect,
+                                                formatTags[0],
+                                                getSourceImage(0).getColorModel());
+        RasterAccessor d = createRasterAccessor(dest, destRect,
+                                                formatTags[1], getColorModel());
+
+        LineLayout lines = new LineLayout(new RasterAccessor[] {s, d});
+
+        switch (d.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            computeRectByte(lines);
+            break;
+        case DataBuffer.TYPE_USHORT:
+            computeRectShort(lines, true);
+            break;
+        case DataBuffer.TYPE_SHORT:
+            computeRectShort(lines, false);
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            computeRectFloat(lines);
+            break;
+        default:
+            String className = this.getClass().getName();
+            throw new RuntimeException(className +
+                                       JaiI18N.getString("Generic2"));
+        }
+
+        if (d.isDataCopy()) {
+            d.clampDataArrays();
+            d.copyDataToRaster();
+        }
+
+        recycleRasterAccessor(s);
+        recycleRasterAccessor(d);
+    }
+
+    private void computeRectByte(LineLayout lines) {
+        int numBands = getSampleModel().getNumBands();
+        byte[] lo = new byte[numBands];
+        byte[] hi = new byte[numBands];
+        for (int b = 0; b < numBands; b++) {
+            lo[b] = (byte)(int)low[b];
+            hi[b] = (byte)(int)high[b];
+        }
+
+        int length = lines.getRunLength();
+        int sStride = lines.getStride(0);
+        int dStride = lines.getStride(1);
+
+        for (int r = 0; r < lines.getNumRuns(); r++) {
+            int[] bands = lines.getBands(r);
+            int period = bands.length;
+            byte[] loPattern = VectorUtil.pattern(bands, lo, BYTE.length());
+            byte[] hiPattern = VectorUtil.pattern(bands, hi, BYTE.length());
+
+            byte[] s = (byte[])lines.getData(0, r);
+            byte[] d = (byte[])lines.getData(1, r);
+
+            for (int y = 0; y < lines.getNumLines(); y++) {
+                int sOffset = lines.getOffset(0, r, y);
+                int dOffset = lines.getOffset(1, r, y);
+
+                int i = 0;
+                if (sStride == 1 && dStride == 1) {
+                    for (int bound = BYTE.loopBound(length); i < bound;
+                         i += BYTE.length()) {
+                        int p = i % period;
+                        ByteVector v =
+                            ByteVector.fromArray(BYTE, s, sOffset + i);
+                        ByteVector l = ByteVector.fromArray(BYTE, loPattern, p);
+                        ByteVector h = ByteVector.fromArray(BYTE, hiPattern, p);
+
+                        // The lower bound prevails if it exceeds the upper.
+                        v.blend(h, v.compare(VectorOperators.UNSIGNED_GT, h))
+                         .blend(l, v.compare(VectorOperators.UNSIGNED_LT, l))
+                         .intoArray(d, dOffset + i);
+                    }
+                }
+
+                for (; i < length; i++) {
+                    int p = i % period;
+                    int v = s[sOffset + i * sStride] & 0xFF;
+                    d[dOffset + i * dStride] =
+                        v < (loPattern[p] & 0xFF) ? loPattern[p] :
+                        v > (hiPattern[p] & 0xFF) ? hiPattern[p] : (byte)v;
+                }
+            }
+        }
+    }
+
+    private void computeRectShort(LineLayout lines, boolean unsigned) {
+        int numBands = getSampleModel().getNumBands();
+        short[] lo = new short[numBands];
+        short[] hi = new short[numBands];
+        for (int b = 0; b < numBands; b++) {
+            lo[b] = (short)(int)low[b];
+            hi[b] = (short)(int)high[b];
+        }
+
+        int mask = unsigned ? 0xFFFF : 0xFFFFFFFF;
+
+        int length = lines.getRunLength();
+        int sStride = lines.getStride(0);
+        int dStride = lines.getStride(1);
+
+        for (int r = 0; r < lines.getNumRuns(); r++) {
+            int[] bands = lines.getBands(r);
+            int period = bands.length;
+            short[] loPattern = VectorUtil.pattern(bands, lo, SHORT.length());
+            short[] hiPattern = VectorUtil.pattern(bands, hi, SHORT.length());
+
+            short[] s = (short[])lines.getData(0, r);
+            short[] d = (short[])lines.getData(1, r);
+
+            for (int y = 0; y < lines.getNumLines(); y++) {
+                int sOffset = lines.getOffset(0, r, y);
+                int dOffset = lines.getOffset(1, r, y);
+
+                int i = 0;
+                if (sStride == 1 && dStride == 1) {
+                    int bound = SHORT.loopBound(length);
+
+                    // The comparisons must be constants for the loop to be
+                    // compiled to vector instructions.
+                    if (unsigned) {
+                        for (; i < bound; i += SHORT.length()) {
+                            int p = i % period;
+                            ShortVector v =
+                                ShortVector.fromArray(SHORT, s, sOffset + i);
+                            ShortVector l =
+                                ShortVector.fromArray(SHORT, loPattern, p);
+                            ShortVector h =
+                                ShortVector.fromArray(SHORT, hiPattern, p);
+                            v.blend(h, v.compare(VectorOperators.UNSIGNED_GT, h))
+                             .blend(l, v.compare(VectorOperators.UNSIGNED_LT, l))
+                             .intoArray(d, dOffset + i);
+                        }
+                    } else {
+                        for (; i < bound; i += SHORT.length()) {
+                            int p = i % period;
+                            ShortVector v =
+                                ShortVector.fromArray(SHORT, s, sOffset + i);
+                            ShortVector l =
+                                ShortVector.fromArray(SHORT, loPattern, p);
+                            ShortVector h =
+                                ShortVector.fromArray(SHORT, hiPattern, p);
+                            v.blend(h, v.compare(VectorOperators.GT, h))
+                             .blend(l, v.compare(VectorOperators.LT, l))
+                             .intoArray(d, dOffset + i);
+                        }
+                    }
+                }
+
+                for (; i < length; i++) {
+                    int p = i % period;
+                    short v = s[sOffset + i * sStride];
+                    int value = v & mask;
+                    d[dOffset + i * dStride] =
+                        value < (loPattern[p] & mask) ? loPattern[p] :
+                        value > (hiPattern[p] & mask) ? hiPattern[p] : v;
+                }
+            }
+        }
+    }
+
+    private void computeRectFloat(LineLayout lines) {
+        int numBands = getSampleModel().getNumBands();
+        float[] lo = new float[numBands];
+        float[] hi = new float[numBands];
+        for (int b = 0; b < numBands; b++) {
+            lo[b] = (float)low[b];
+            hi[b] = (float)high[b];
+        }
+
+        int length = lines.getRunLength();
+        int sStride = lines.getStride(0);
+        int dStride = lines.getStride(1);
+
+        for (int r = 0; r < lines.getNumRuns(); r++) {
+            int[] bands = lines.getBands(r);
+            int period = bands.length;
+            float[] loPattern = VectorUtil.pattern(bands, lo, FLOAT.length());
+            float[] hiPattern = VectorUtil.pattern(bands, hi, FLOAT.length());
+
+            float[] s = (float[])lines.getData(0, r);
+            float[] d = (float[])lines.getData(1, r);
+
+            for (int y = 0; y < lines.getNumLines(); y++) {
+                int sOffset = lines.getOffset(0, r, y);
+                int dOffset = lines.getOffset(1, r, y);
+
+                int i = 0;
+                if (sStride == 1 && dStride == 1) {
+                    for (int bound = FLOAT.loopBound(length); i < bound;
+                         i += FLOAT.length()) {
+                        int p = i % period;
+                        FloatVector v =
+                            FloatVector.fromArray(FLOAT, s, sOffset + i);
+                        FloatVector l = FloatVector.fromArray(FLOAT, loPattern, p);
+                        FloatVector h = FloatVector.fromArray(FLOAT, hiPattern, p);
+                        v.blend(h, v.compare(VectorOperators.GT, h))
+                         .blend(l, v.compare(VectorOperators.LT, l))
+                         .intoArray(d, dOffset + i);
+                    }
+                }
+
+                for (; i < length; i++) {
+                    int p = i % period;
+                    float v = s[sOffset + i * sStride];
+                    d[dOffset + i * dStride] =
+                        v < loPattern[p] ? loPattern[p] :
+                        v > hiPattern[p] ? hiPattern[p] : v;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.imagen.media.vector;
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.awt.image.renderable.RenderedImageFactory;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.OpImage;
+import org.eclipse.imagen.media.opimage.RIFUtil;
+
+/**
+ * A <code>RIF</code> supporting the "Clamp" operation in the
+ * rendered image mode using the Vector API.
+ *
+ * @see org.eclipse.imagen.operator.ClampDescriptor
+ * @see VectorClampOpImage
+ *
+ */
+public class VectorClampRIF implements RenderedImageFactory {
+
+    /** Constructor. */
+    public VectorClampRIF() {}
+
+    /**
+     * Creates a new instance of <code>VectorClampOpImage</code> in
+     * the rendered image mode.
+     *
+     * @param args  The source image and the low and high values.
+     * @param hints  May contain rendering hints and destination image layout.
+     */
+    public RenderedImage create(ParameterBlock args,
+                                RenderingHints hints) {
+        /* Get ImageLayout from RenderingHints. */
+        ImageLayout layout = RIFUtil.getImageLayoutHint(hints);
+
+        if (!VectorUtil.isVectorCompatible(args, layout) ||
+            !VectorUtil.hasSameNumBands(args, layout)) {
+            return null;
+        }
+
+        RenderedImage source = args.getRenderedSource(0);
+        double[] low = (double[])args.getObjectParameter(0);
+        double[] high = (double[])args.getObjectParameter(1);
+
+        OpImage image =
+            new VectorClampOpImage(source, hints, layout, low, high);
+
+        // The bounds are converted to the data type of the source.
+        int dataType = image.getSampleModel().getDataType();
+        if (dataType != source.getSampleModel().getDataType() ||
+            !isInRange(low, dataType) || !isInRange(high, dataType) ||
+            !VectorUtil.isVectorCompatible(image)) {
+            return null;
+        }
+        return image;
+    }
+
+    /**
+     * Returns <code>true</code> if the bounds converted as by
+     * <code>ClampOpImage</code> are values of the data type, so that
+     * they may be compared in this data type.
+     */
+    private static boolean isInRange(double[] bounds, int dataType) {
+        for (int i = 0; i < bounds.length; i++) {
+            int value = (int)bounds[i];
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                if (value < 0 || value > 0xFF) {
+                    return false;
+                }
+                break;
+            case DataBuffer.TYPE_USHORT:
+                if (value < 0 || value > 0xFFFF) {
+                    return false;
+                }
+                break;
+            case DataBuffer.TYPE_SHORT:
+                if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                    return false;
+                }
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                if ((float)bounds[i] != bounds[i]) {
+                    return false;
+                }
+                break;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.imagen.media.vector;
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.awt.image.renderable.RenderedImageFactory;
+import org.eclipse.imagen.BorderExtender;
+import org.eclipse.imagen.KernelJAI;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.OpImage;
+import org.eclipse.imagen.media.opimage.RIFUtil;
+
+/**
+ * A <code>RIF</code> supporting the "Convolve" operation in the
+ * rendered image mode using the Vector API.
+ *
+ * @see org.eclipse.imagen.operator.ConvolveDescriptor
+ * @see VectorSeparableConvolveOpImage
+ *
+ */
+public class VectorConvolveRIF implements RenderedImageFactory {
+
+    /** Constructor. */
+    public VectorConvolveRIF() {}
+
+    /**
+     * Creates a new instance of <code>VectorSeparableConvolveOpImage</code> in
+     * the rendered image mode.
+     *
+     * @param args  The source image and the convolution kernel.
+     * @param hints  May contain rendering hints and destination image layout.
+     */
+    public RenderedImage create(ParameterBlock args,
+                                RenderingHints hints) {
+        /* Get ImageLayout from RenderingHints. */
+        ImageLayout layout = RIFUtil.getImageLayoutHint(hints);
+
+        if (!VectorUtil.isVectorCompatible(args, layout) ||
+            !VectorUtil.hasSameNumBands(args, layout)) {
+            return null;
+        }
+
+        // Get BorderExtender from hints if any.
+        BorderExtender extender = RIFUtil.getBorderExtenderHint(hints);
+
+        KernelJAI unRotatedKernel = (KernelJAI)args.getObjectParameter(0);
+        KernelJAI kJAI = unRotatedKernel.getRotatedKernel();
+
+        // Only separable kernels are handled.
+        if (!kJAI.isSeparable()) {
+            return null;
+        }
+
+        // Leave the kernels which ConvolveRIF gives to Convolve3x3OpImage
+        // to it, as its rounding differs from that of the separable
+        // convolution for integral data.
+        int dataType =
+            args.getRenderedSource(0).getSampleModel().getDataType();
+        if (kJAI.getWidth() == 3 && kJAI.getHeight() == 3 &&
+            kJAI.getXOrigin() == 1 && kJAI.getYOrigin() == 1 &&
+            (dataType == DataBuffer.TYPE_BYTE ||
+             dataType == DataBuffer.TYPE_SHORT ||
+             dataType == DataBuffer.TYPE_INT)) {
+            return null;
+        }
+
+        OpImage image =
+            new VectorSeparableConvolveOpImage(args.getRenderedSource(0),
+                                               extender, hints, layout,
+                                               kJAI);
+
+        return VectorUtil.isVectorCompatible(image) ? image : null;
+    }
+}
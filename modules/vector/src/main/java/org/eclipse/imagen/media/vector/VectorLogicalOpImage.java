@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.vector;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.PointOpImage;
+import org.eclipse.imagen.RasterAccessor;
+import org.eclipse.imagen.RasterFormatTag;
+
+/**
+ * An <code>OpImage</code> implementing the "And", "Or" and "Xor"
+ * operations on integral data with the Vector API.
+ *
+ * @see org.eclipse.imagen.operator.AndDescriptor
+ * @see org.eclipse.imagen.operator.OrDescriptor
+ * @see org.eclipse.imagen.operator.XorDescriptor
+ *
+ */
+final class VectorLogicalOpImage extends PointOpImage {
+
+    /** The "And" operation. */
+    static final int AND = 0;
+
+    /** The "Or" operation. */
+    static final int OR = 1;
+
+    /** The "Xor" operation. */
+    static final int XOR = 2;
+
+    private static final VectorSpecies<Byte> BYTE =
+        ByteVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Short> SHORT =
+        ShortVector.SPECIES_PREFERRED;
+
+    /** One of <code>AND</code>, <code>OR</code> or <code>XOR</code>. */
+    private final int operation;
+
+    /**
+     * Constructs a <code>VectorLogicalOpImage</code>.  The sources
+     * must have the same number of bands.
+     *
+     * @param source1    The first source image.
+     * @param source2    The second source image.
+     * @param layout     The destination image layout.
+     * @param operation  One of <code>AND</code>, <code>OR</code> or
+     *                   <code>XOR</code>.
+     */
+    public VectorLogicalOpImage(RenderedImage source1,
+                                RenderedImage source2,
+                                Map config,
+                                ImageLayout layout,
+                                int operation) {
+        super(source1, source2, layout, config, true);
+
+        this.operation = operation;
+
+        // Set flag to permit in-place operation.
+        permitInPlaceOperation();
+    }
+
+    /**
+     * Combines the pixel values of two source images within a
+     * specified rectangle.
+     *
+     * @param sources   Cobbled sources, guaranteed to provide all the
+     *                  source data necessary for computing the rectangle.
+     * @param dest      The tile containing the rectangle to be computed.
+     * @param destRect  The rectangle within the tile to be computed.
+     */
+    protected void computeRect(Raster[] sources,
+                               WritableRaster dest,
+                               Rectangle destRect) {
+        // Retrieve format tags.
+        RasterFormatTag[] formatTags = getFormatTags();
+
+        RasterAccessor s1 = createRasterAccessor(sources[0], destRect,
+                                                 formatTags[0],
+                                                 getSourceImage(0).getColorModel());
+        RasterAccessor s2 = createRasterAccessor(sources[1], destRect,
+                                                 formatTags[1],
+                                                 getSourceImage(1).getColorModel());
+        RasterAccessor d = createRasterAccessor(dest, destRect,
+                                                formatTags[2], getColorModel());
+
+        LineLayout lines = new LineLayout(new RasterAccessor[] {s1, s2, d});
+        int length = lines.getRunLength();
+        int s1Stride = lines.getStride(0);
+        int s2Stride = lines.getStride(1);
+        int dStride = lines.getStride(2);
+        int dataType = d.getDataType();
+
+        for (int r = 0; r < lines.getNumRuns(); r++) {
+            Object s1Data = lines.getData(0, r);
+            Object s2Data = lines.getData(1, r);
+            Object dData = lines.getData(2, r);
+
+            for (int y = 0; y < lines.getNumLines(); y++) {
+                int s1Offset = lines.getOffset(0, r, y);
+                int s2Offset = lines.getOffset(1, r, y);
+                int dOffset = lines.getOffset(2, r, y);
+
+                switch (dataType) {
+                case DataBuffer.TYPE_BYTE:
+                    byteRun(length,
+                            (byte[])s1Data, s1Offset, s1Stride,
+                            (byte[])s2Data, s2Offset, s2Stride,
+                            (byte[])dData, dOffset, dStride);
+                    break;
+                case DataBuffer.TYPE_USHORT:
+                case DataBuffer.TYPE_SHORT:
+                    shortRun(length,
+                             (short[])s1Data, s1Offset, s1Stride,
+                             (short[])s2Data, s2Offset, s2Stride,
+                             (short[])dData, dOffset, dStride);
+                    break;
+                default:
+                    String className = this.getClass().getName();
+                    throw new RuntimeException(className +
+                                               JaiI18N.getString("Generic2"));
+                }
+            }
+        }
+
+        if (d.isDataCopy()) {
+            d.clampDataArrays();
+            d.copyDataToRaster();
+        }
+
+        recycleRasterAccessor(s1);
+        recycleRasterAccessor(s2);
+        recycleRasterAccessor(d);
+    }
+
+    private void byteRun(int length,
+                         byte[] s1, int s1Offset, int s1Stride,
+                         byte[] s2, int s2Offset, int s2Stride,
+                         byte[] d, int dOffset, int dStride) {
+        int i = 0;
+        if (s1Stride == 1 && s2Stride == 1 && dStride == 1) {
+            int bound = BYTE.loopBound(length);
+
+            // The operator of a lanewise operation must be a constant
+            // for the operation to be compiled to vector instructions.
+            switch (operation) {
+            case AND:
+                for (; i < bound; i += BYTE.length()) {
+                    ByteVector a = ByteVector.fromArray(BYTE, s1, s1Offset + i);
+                    ByteVector b = ByteVector.fromArray(BYTE, s2, s2Offset + i);
+                    a.and(b).intoArray(d, dOffset + i);
+                }
+                break;
+            case OR:
+                for (; i < bound; i += BYTE.length()) {
+                    ByteVector a = ByteVector.fromArray(BYTE, s1, s1Offset + i);
+                    ByteVector b = ByteVector.fromArray(BYTE, s2, s2Offset + i);
+                    a.or(b).intoArray(d, dOffset + i);
+                }
+                break;
+            case XOR:
+                for (; i < bound; i += BYTE.length()) {
+                    ByteVector a = ByteVector.fromArray(BYTE, s1, s1Offset + i);
+                    ByteVector b = ByteVector.fromArray(BYTE, s2, s2Offset + i);
+                    a.lanewise(VectorOperators.XOR, b).intoArray(d, dOffset + i);
+                }
+                break;
+            }
+        }
+
+        for (; i < length; i++) {
+            byte a = s1[s1Offset + i * s1Stride];
+            byte b = s2[s2Offset + i * s2Stride];
+            d[dOffset + i * dStride] = (byte)(operation == AND ? a & b :
+                                              operation == OR ? a | b :
+                                              a ^ b);
+        }
+    }
+
+    private void shortRun(int length,
+                          short[] s1, int s1Offset, int s1Stride,
+                          short[] s2, int s2Offset, int s2Stride,
+                          short[] d, int dOffset, int dStride) {
+        int i = 0;
+        if (s1Stride == 1 && s2Stride == 1 && dStride == 1) {
+            int bound = SHORT.loopBound(length);
+
+            switch (operation) {
+            case AND:
+                for (; i < bound; i += SHORT.length()) {
+                    ShortVector a = ShortVector.fromArray(SHORT, s1, s1Offset + i);
+                    ShortVector b = ShortVector.fromArray(SHORT, s2, s2Offset + i);
+                    a.and(b).intoArray(d, dOffset + i);
+                }
+                break;
+            case OR:
+                for (; i < bound; i += SHORT.length()) {
+                    ShortVector a = ShortVector.fromArray(SHORT, s1, s1Offset + i);
+                    ShortVector b = ShortVector.fromArray(SHORT, s2, s2Offset + i);
+                    a.or(b).intoArray(d, dOffset + i);
+                }
+                break;
+            case XOR:
+                for (; i < bound; i += SHORT.length()) {
+                    ShortVector a = ShortVector.fromArray(SHORT, s1, s1Offset + i);
+                    ShortVector b = ShortVector.fromArray(SHORT, s2, s2Offset + i);
+                    a.lanewise(VectorOperators.XOR, b).intoArray(d, dOffset + i);
+                }
+                break;
+            }
+        }
+
+        for (; i < length; i++) {
+            short a = s1[s1Offset + i * s1Stride];
+            short b = s2[s2Offset + i * s2Stride];
+            d[dOffset + i * dStride] = (short)(operation == AND ? a & b :
+                                               operation == OR ? a | b :
+                                               a ^ b);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.vector;
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Map;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.LookupTableJAI;
+import org.eclipse.imagen.PointOpImage;
+import org.eclipse.imagen.RasterAccessor;
+import org.eclipse.imagen.RasterFormatTag;
+
+/**
+ * An <code>OpImage</code> implementing the "Lookup" operation of
+ * <code>byte</code> data through <code>byte</code> tables with the
+ * Vector API.
+ *
+ * <p> A table of 256 entries is held in as many vectors as needed.
+ * Each vector is indexed by the low bits of the source values through
+ * a lane shuffle, and the high bits select the vector which provides
+ * the result.  The vector path requires that all the bands of a run
+ * share the same table, which is always the case for single-band and
+ * banded images.
+ *
+ * @see org.eclipse.imagen.operator.LookupDescriptor
+ * @see VectorLookupRIF
+ *
+ */
+final class VectorLookupOpImage extends PointOpImage {
+
+    private static final VectorSpecies<Byte> BYTE =
+        ByteVector.SPECIES_PREFERRED;
+
+    /** The table of each band, of at least 256 entries. */
+    private final byte[][] tables;
+
+    /** Whether all the bands share the same table. */
+    private final boolean sameTables;
+
+    /**
+     * Constructs a <code>VectorLookupOpImage</code>.  The table must
+     * have <code>byte</code> data, no offset and at least 256 entries,
+     * and the source must have <code>byte</code> data.
+     *
+     * @param source  The source image.
+     * @param layout  The destination image layout.
+     * @param table   The table used to perform the lookup operation.
+     */
+    public VectorLookupOpImage(RenderedImage source,
+                               Map config,
+                               ImageLayout layout,
+                               LookupTableJAI table) {
+        super(source, layout, config, true);
+
+        int numBands = getSampleModel().getNumBands();
+        int tblNumBands = table.getNumBands();
+
+        tables = new byte[numBands][];
+        boolean same = true;
+        for (int b = 0; b < numBands; b++) {
+            // As LookupTableJAI, use the first band of a table with
+            // fewer bands than the image for all the bands.
+            tables[b] = table.getByteData(tblNumBands < numBands ? 0 : b);
+            same &= Arrays.equals(tables[b], tables[0]);
+        }
+        sameTables = same;
+
+        // Set flag to permit in-place operation.
+        permitInPlaceOperation();
+    }
+
+    /**
+     * Performs the table lookup operation within a specified rectangle.
+     *
+     * @param sources   Cobbled source, guaranteed to provide all the
+     *                  source data necessary for computing the rectangle.
+     * @param dest      The tile containing the rectangle to be computed.
+     * @param destRect  The rectangle within the tile to be computed.
+     */
+    protected void computeRect(Raster[] sources,
+                               WritableRaster dest,
+                               Rectangle destRect) {
+        // Retrieve format tags.
+        RasterFormatTag[] formatTags = getFormatTags();
+
+        RasterAccessor s = createRasterAccessor(sources[0], destRect,
+                                                formatTags[0],
+                                                getSourceImage(0).getColorModel());
+        RasterAccessor d = createRasterAccessor(dest, destRect,
+                                                formatTags[1], getColorModel());
+
+        LineLayout lines = new LineLayout(new RasterAccessor[] {s, d});
+        int length = lines.getRunLength();
+        int sStride = lines.getStride(0);
+        int dStride = lines.getStride(1);
+
+        int laneCount = BYTE.length();
+        int shift = Integer.numberOfTrailingZeros(laneCount);
+        ByteVector[] chunks = new ByteVector[0x100 >> shift];
+
+        for (int r = 0; r < lines.getNumRuns(); r++) {
+            int[] bands = lines.getBands(r);
+            int period = bands.length;
+            boolean vectorize =
+                sStride == 1 && dStride == 1 && (period == 1 || sameTables);
+
+            byte[] t = tables[bands[0]];
+            for (int c = 0; c < chunks.length; c++) {
+                chunks[c] = ByteVector.fromArray(BYTE, t, c * laneCount);
+            }
+
+            byte[] sData = (byte[])lines.getData(0, r);
+            byte[] dData = (byte[])lines.getData(1, r);
+
+            for (int y = 0; y < lines.getNumLines(); y++) {
+                int sOffset = lines.getOffset(0, r, y);
+                int dOffset = lines.getOffset(1, r, y);
+
+                int i = 0;
+                if (vectorize) {
+                    for (int bound = BYTE.loopBound(length); i < bound;
+                         i += laneCount) {
+                        ByteVector v =
+                            ByteVector.fromArray(BYTE, sData, sOffset + i);
+                        VectorShuffle<Byte> index =
+                            v.and((byte)(laneCount - 1)).toShuffle();
+                        ByteVector chunk =
+                            v.lanewise(VectorOperators.LSHR, shift);
+
+                        ByteVector result = chunks[0].rearrange(index);
+                        for (int c = 1; c < chunks.length; c++) {
+                            result = result.blend(chunks[c].rearrange(index),
+                                                  chunk.eq((byte)c));
+                        }
+                        result.intoArray(dData, dOffset + i);
+                    }
+                }
+
+                for (; i < length; i++) {
+                    byte[] table = tables[bands[i % period]];
+                    dData[dOffset + i * dStride] =
+                        table[sData[sOffset + i * sStride] & 0xFF];
+                }
+            }
+        }
+
+        if (d.isDataCopy()) {
+            d.clampDataArrays();
+            d.copyDataToRaster();
+        }
+
+        recycleRasterAccessor(s);
+        recycleRasterAccessor(d);
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.vector;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+import org.eclipse.imagen.AreaOpImage;
+import org.eclipse.imagen.BorderExtender;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.KernelJAI;
+import org.eclipse.imagen.RasterAccessor;
+import org.eclipse.imagen.RasterFormatTag;
+
+/**
+ * An <code>OpImage</code> implementing the "Convolve" operation for
+ * separable kernels with the Vector API.
+ *
+ * <p> Each band is filtered horizontally one source line at a time
+ * into a ring of <code>kh</code> <code>float</code> lines, which are
+ * then filtered vertically into a destination line.  Both passes
+ * operate on contiguous <code>float</code> arrays whatever the layout
+ * of the data, and accumulate the products in the same order as
+ * <code>SeparableConvolveOpImage</code> so that the results are
+ * identical.
+ *
+ * @see org.eclipse.imagen.operator.ConvolveDescriptor
+ * @see VectorConvolveRIF
+ *
+ */
+final class VectorSeparableConvolveOpImage extends AreaOpImage {
+
+    private static final VectorSpecies<Float> FLOAT =
+        FloatVector.SPECIES_PREFERRED;
+
+    protected KernelJAI kernel;
+    protected int kw, kh;
+
+    protected float hValues[];
+    protected float vValues[];
+
+    /**
+     * Creates a <code>VectorSeparableConvolveOpImage</code> on the
+     * source with the given pre-rotated separable kernel.
+     *
+     * @param source a RenderedImage.
+     * @param extender a BorderExtender, or null.
+     * @param layout an ImageLayout optionally containing the tile grid layout,
+     *        SampleModel, and ColorModel, or null.
+     * @param kernel a pre-rotated separable convolution kernel
+     */
+    public VectorSeparableConvolveOpImage(RenderedImage source,
+                                          BorderExtender extender,
+                                          Map config,
+                                          ImageLayout layout,
+                                          KernelJAI kernel) {
+        super(source,
+              layout,
+              config,
+              true,
+              extender,
+              kernel.getLeftPadding(),
+              kernel.getRightPadding(),
+              kernel.getTopPadding(),
+              kernel.getBottomPadding());
+
+        this.kernel = kernel;
+        kw = kernel.getWidth();
+        kh = kernel.getHeight();
+        hValues = kernel.getHorizontalKernelData();
+        vValues = kernel.getVerticalKernelData();
+    }
+
+    /**
+     * Performs convolution on a specified rectangle. The sources are
+     * cobbled.
+     *
+     * @param sources an array of source Rasters, guaranteed to provide all
+     *                necessary source data for computing the output.
+     * @param dest a WritableRaster tile containing the area to be computed.
+     * @param destRect the rectangle within dest to be processed.
+     */
+    protected void computeRect(Raster[] sources,
+                               WritableRaster dest,
+                               Rectangle destRect) {
+        // Retrieve format tags.
+        RasterFormatTag[] formatTags = getFormatTags();
+
+        Raster source = sources[0];
+        Rectangle srcRect = mapDestRect(destRect, 0);
+
+        RasterAccessor srcAccessor =
+            createRasterAccessor(source, srcRect, formatTags[0],
+                                 getSourceImage(0).getColorModel());
+        RasterAccessor dstAccessor =
+            createRasterAccessor(dest, destRect, formatTags[1],
+                                 getColorModel());
+
+        int dataType = dstAccessor.getDataType();
+        if (!VectorUtil.isSupportedDataType(dataType)) {
+            String className = this.getClass().getName();
+            throw new RuntimeException(className +
+                                       JaiI18N.getString("Generic2"));
+        }
+
+        int dwidth = dstAccessor.getWidth();
+        int dheight = dstAccessor.getHeight();
+        int dnumBands = dstAccessor.getNumBands();
+
+        float[] srcLine = new float[dwidth + kw - 1];
+        float[][] tmpLines = new float[kh][dwidth];
+        float[] dstLine = new float[dwidth];
+
+        // Integral results are rounded by truncating the sum plus 0.5.
+        float bias = dataType == DataBuffer.TYPE_FLOAT ? 0.0F : 0.5F;
+
+        for (int k = 0; k < dnumBands; k++) {
+            for (int j = 0; j < dheight + kh - 1; j++) {
+                VectorBandCombineOpImage.loadLine(srcAccessor, k, j, srcLine);
+                filterHorizontally(srcLine, tmpLines[j % kh]);
+
+                if (j >= kh - 1) {
+                    // The first line of the ring is that of the top row
+                    // of the kernel.
+                    int y = j - (kh - 1);
+                    filterVertically(tmpLines, y % kh, bias, dstLine);
+                    storeLine(dstAccessor, k, y, dstLine);
+                }
+            }
+        }
+
+        // If the RasterAccessor object set up a temporary buffer for the
+        // op to write to, tell the RasterAccessor to write that data
+        // to the raster no that we're done with it.
+        if (dstAccessor.isDataCopy()) {
+            dstAccessor.clampDataArrays();
+            dstAccessor.copyDataToRaster();
+        }
+
+        recycleRasterAccessor(srcAccessor);
+        recycleRasterAccessor(dstAccessor);
+    }
+
+    private void filterHorizontally(float[] src, float[] dst) {
+        int width = dst.length;
+
+        int i = 0;
+        for (int bound = FLOAT.loopBound(width); i < bound;
+             i += FLOAT.length()) {
+            FloatVector acc = FloatVector.zero(FLOAT);
+            for (int v = 0; v < kw; v++) {
+                acc = acc.add(
+                    FloatVector.fromArray(FLOAT, src, i + v).mul(hValues[v]));
+            }
+            acc.intoArray(dst, i);
+        }
+
+        for (; i < width; i++) {
+            float f = 0.0F;
+            for (int v = 0; v < kw; v++) {
+                f += src[i + v] * hValues[v];
+            }
+            dst[i] = f;
+        }
+    }
+
+    private void filterVertically(float[][] lines, int first, float bias,
+                                  float[] dst) {
+        int width = dst.length;
+
+        int i = 0;
+        for (int bound = FLOAT.loopBound(width); i < bound;
+             i += FLOAT.length()) {
+            FloatVector acc = FloatVector.broadcast(FLOAT, bias);
+            for (int a = 0, l = first; a < kh; a++, l = (l + 1) % kh) {
+                acc = acc.add(
+                    FloatVector.fromArray(FLOAT, lines[l], i).mul(vValues[a]));
+            }
+            acc.intoArray(dst, i);
+        }
+
+        for (; i < width; i++) {
+            float f = bias;
+            for (int a = 0, l = first; a < kh; a++, l = (l + 1) % kh) {
+                f += lines[l][i] * vValues[a];
+            }
+            dst[i] = f;
+        }
+    }
+
+    /** Truncates and clamps a line to a band of the destination. */
+    private static void storeLine(RasterAccessor dst, int band, int y,
+                                  float[] line) {
+        int width = line.length;
+        int stride = dst.getPixelStride();
+        int offset = dst.getBandOffset(band) + y * dst.getScanlineStride();
+
+        switch (dst.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            byte[] b = dst.getByteDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                int val = (int)line[i];
+                b[offset] = (byte)(val < 0 ? 0 : (val > 255 ? 255 : val));
+            }
+            break;
+        case DataBuffer.TYPE_USHORT:
+            short[] u = dst.getShortDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                int val = (int)line[i];
+                u[offset] =
+                    (short)(val < 0 ? 0 : (val > 0xffff ? 0xffff : val));
+            }
+            break;
+        case DataBuffer.TYPE_SHORT:
+            short[] s = dst.getShortDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                int val = (int)line[i];
+                s[offset] = (short)(val < Short.MIN_VALUE ? Short.MIN_VALUE :
+                                    (val > Short.MAX_VALUE ?
+                                     Short.MAX_VALUE : val));
+            }
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            float[] f = dst.getFloatDataArray(band);
+            for (int i = 0; i < width; i++, offset += stride) {
+                f[offset] = line[i];
+            }
+            break;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.vector;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.PointOpImage;
+import org.eclipse.imagen.RasterAccessor;
+import org.eclipse.imagen.RasterFormatTag;
+
+/**
+ * An <code>OpImage</code> implementing the "Threshold" operation with
+ * the Vector API.
+ *
+ * <p> The <code>double</code> bounds are converted once to the
+ * narrowest range of the data type holding the same values, so that
+ * the pixels are compared in their own data type.
+ *
+ * @see org.eclipse.imagen.operator.ThresholdDescriptor
+ * @see VectorThresholdRIF
+ *
+ */
+final class VectorThresholdOpImage extends PointOpImage {
+
+    private static final VectorSpecies<Byte> BYTE =
+        ByteVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Short> SHORT =
+        ShortVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Float> FLOAT =
+        FloatVector.SPECIES_PREFERRED;
+
+    /** The lower bound, one for each band. */
+    private final double[] low;
+
+    /** The upper bound, one for each band. */
+    private final double[] high;
+
+    /** The constants to be mapped, one for each band. */
+    private final double[] constants;
+
+    /**
+     * Constructs a <code>VectorThresholdOpImage</code>.
+     *
+     * @param source     The source image.
+     * @param layout     The destination image layout.
+     * @param low        The lower bound of the threshold.
+     * @param high       The upper bound of the threshold.
+     * @param constants  The constants to be mapped within the threshold.
+     */
+    public VectorThresholdOpImage(RenderedImage source,
+                                  Map config,
+                                  ImageLayout layout,
+                                  double[] low,
+                                  double[] high,
+                                  double[] constants) {
+        super(source, layout, config, true);
+
+        int numBands = getSampleModel().getNumBands();
+        this.low = new double[numBands];
+        this.high = new double[numBands];
+        this.constants = new double[numBands];
+
+        for (int i = 0; i < numBands; i++) {
+            this.low[i] = low[low.length < numBands ? 0 : i];
+            this.high[i] = high[high.length < numBands ? 0 : i];
+            this.constants[i] =
+                constants[constants.length < numBands ? 0 : i];
+        }
+
+        // Set flag to permit in-place operation.
+        permitInPlaceOperation();
+    }
+
+    /**
+     * Map the pixels inside a specified rectangle whose value is within a
+     * range to a constant on a per-band basis.
+     *
+     * @param sources   Cobbled sources, guaranteed to provide all the
+     *                  source data necessary for computing the rectangle.
+     * @param dest      The tile containing the rectangle to be computed.
+     * @param destRect  The rectangle within the tile to be computed.
+     */
+    protected void computeRect(Raster[] sources,
+                               WritableRaster dest,
+                               Rectangle destRect) {
+        // Retrieve format tags.
+        RasterFormatTag[] formatTags = getFormatTags();
+
+        RasterAccessor s = createRasterAccessor(sources[0], destRect,
+                                                formatTags[0],
+                                                getSourceImage(0).getColorModel());
+        RasterAccessor d = createRasterAccessor(dest, destRect,
+                                                formatTags[1], getColorModel());
+
+        LineLayout lines = new LineLayout(new RasterAccessor[] {s, d});
+
+        switch (d.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            computeRectByte(lines);
+            break;
+        case DataBuffer.TYPE_USHORT:
+            computeRectShort(lines, 0, 0xFFFF);
+            break;
+        case DataBuffer.TYPE_SHORT:
+            computeRectShort(lines, Short.MIN_VALUE, Short.MAX_VALUE);
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            computeRectFloat(lines);
+            break;
+        default:
+            String className = this.getClass().getName();
+            throw new RuntimeException(className +
+                                       JaiI18N.getString("Generic2"));
+        }
+
+        if (d.isDataCopy()) {
+            d.clampDataArrays();
+            d.copyDataToRaster();
+        }
+
+        recycleRasterAccessor(s);
+        recycleRasterAccessor(d);
+    }
+
+    /**
+     * Returns the integral bounds of a band within
+     * <code>[minValue, maxValue]</code>, or an empty range with the
+     * lower bound above the upper one if no value lies between the
+     * bounds.
+     */
+    private int[] getIntBounds(int band, int minValue, int maxValue) {
+        double l = Math.max(Math.ceil(low[band]), minValue);
+        double h = Math.min(Math.floor(high[band]), maxValue);
+
+        // NaN bounds do not match any value.
+        if (!(l <= h)) {
+            return new int[] {maxValue, minValue};
+        }
+        return new int[] {(int)l, (int)h};
+    }
+
+    private void computeRectByte(LineLayout lines) {
+        int numBands = getSampleModel().getNumBands();
+        byte[] lo = new byte[numBands];
+        byte[] hi = new byte[numBands];
+        byte[] c = new byte[numBands];
+        for (int b = 0; b < numBands; b++) {
+            int[] bounds = getIntBounds(b, 0, 0xFF);
+            lo[b] = (byte)bounds[0];
+            hi[b] = (byte)bounds[1];
+            c[b] = (byte)constants[b];
+        }
+
+        int length = lines.getRunLength();
+        int sStride = lines.getStride(0);
+        int dStride = lines.getStride(1);
+
+        for (int r = 0; r < lines.getNumRuns(); r++) {
+            int[] bands = lines.getBands(r);
+            int period = bands.length;
+            byte[] loPattern = VectorUtil.pattern(bands, lo, BYTE.length());
+            byte[] hiPattern = VectorUtil.pattern(bands, hi, BYTE.length());
+            byte[] cPattern = VectorUtil.pattern(bands, c, BYTE.length());
+
+            byte[] s = (byte[])lines.getData(0, r);
+            byte[] d = (byte[])lines.getData(1, r);
+
+            for (int y = 0; y < lines.getNumLines(); y++) {
+                int sOffset = lines.getOffset(0, r, y);
+                int dOffset = lines.getOffset(1, r, y);
+
+                int i = 0;
+                if (sStride == 1 && dStride == 1) {
+                    for (int bound = BYTE.loopBound(length); i < bound;
+                         i += BYTE.length()) {
+                        int p = i % period;
+                        ByteVector v =
+                            ByteVector.fromArray(BYTE, s, sOffset + i);
+                        VectorMask<Byte> inside =
+                            v.compare(VectorOperators.UNSIGNED_GE,
+                                      ByteVector.fromArray(BYTE, loPattern, p))
+                             .and(v.compare(VectorOperators.UNSIGNED_LE,
+                                            ByteVector.fromArray(BYTE, hiPattern, p)));
+                        v.blend(ByteVector.fromArray(BYTE, cPattern, p), inside)
+                         .intoArray(d, dOffset + i);
+                    }
+                }
+
+                for (; i < length; i++) {
+                    int p = i % period;
+                    int v = s[sOffset + i * sStride] & 0xFF;
+                    d[dOffset + i * dStride] =
+                        v >= (loPattern[p] & 0xFF) && v <= (hiPattern[p] & 0xFF) ?
+                        cPattern[p] : (byte)v;
+                }
+            }
+        }
+    }
+
+    private void computeRectShort(LineLayout lines,
+                                  int minValue, int maxValue) {
+        // Unsigned data are compared as such.
+        boolean unsigned = minValue == 0;
+
+        int numBands = getSampleModel().getNumBands();
+        short[] lo = new short[numBands];
+        short[] hi = new short[numBands];
+        short[] c = new short[numBands];
+        for (int b = 0; b < numBands; b++) {
+            int[] bounds = getIntBounds(b, minValue, maxValue);
+            lo[b] = (short)bounds[0];
+            hi[b] = (short)bounds[1];
+            c[b] = (short)constants[b];
+        }
+
+        int mask = unsigned ? 0xFFFF : 0xFFFFFFFF;
+
+        int length = lines.getRunLength();
+        int sStride = lines.getStride(0);
+        int dStride = lines.getStride(1);
+
+        for (int r = 0; r < lines.getNumRuns(); r++) {
+            int[] bands = lines.getBands(r);
+            int period = bands.length;
+            short[] loPattern = VectorUtil.pattern(bands, lo, SHORT.length());
+            short[] hiPattern = VectorUtil.pattern(bands, hi, SHORT.length());
+            short[] cPattern = VectorUtil.pattern(bands, c, SHORT.length());
+
+            short[] s = (short[])lines.getData(0, r);
+            short[] d = (short[])lines.getData(1, r);
+
+            for (int y = 0; y < lines.getNumLines(); y++) {
+                int sOffset = lines.getOffset(0, r, y);
+                int dOffset = lines.getOffset(1, r, y);
+
+                int i = 0;
+                if (sStride == 1 && dStride == 1) {
+                    int bound = SHORT.loopBound(length);
+
+                    // The comparisons must be constants for the loop to be
+                    // compiled to vector instructions.
+                    if (unsigned) {
+                        for (; i < bound; i += SHORT.length()) {
+                            int p = i % period;
+                            ShortVector v =
+                                ShortVector.fromArray(SHORT, s, sOffset + i);
+                            VectorMask<Short> inside =
+                                v.compare(VectorOperators.UNSIGNED_GE,
+                                          ShortVector.fromArray(SHORT, loPattern, p))
+                                 .and(v.compare(VectorOperators.UNSIGNED_LE,
+                                                ShortVector.fromArray(SHORT, hiPattern, p)));
+                            v.blend(ShortVector.fromArray(SHORT, cPattern, p), inside)
+                             .intoArray(d, dOffset + i);
+                        }
+                    } else {
+                        for (; i < bound; i += SHORT.length()) {
+                            int p = i % period;
+                            ShortVector v =
+                                ShortVector.fromArray(SHORT, s, sOffset + i);
+                            VectorMask<Short> inside =
+                                v.compare(VectorOperators.GE,
+                                          ShortVector.fromArray(SHORT, loPattern, p))
+                                 .and(v.compare(VectorOperators.LE,
+                                                ShortVector.fromArray(SHORT, hiPattern, p)));
+                            v.blend(ShortVector.fromArray(SHORT, cPattern, p), inside)
+                             .intoArray(d, dOffset + i);
+                        }
+                    }
+                }
+
+                for (; i < length; i++) {
+                    int p = i % period;
+                    short v = s[sOffset + i * sStride];
+                    int value = v & mask;
+                    d[dOffset + i * dStride] =
+                        value >= (loPattern[p] & mask) &&
+                        value <= (hiPattern[p] & mask) ? cPattern[p] : v;
+                }
+            }
+        }
+    }
+
+    private void computeRectFloat(LineLayout lines) {
+        int numBands = getSampleModel().getNumBands();
+        float[] lo = new float[numBands];
+        float[] hi = new float[numBands];
+        float[] c = new float[numBands];
+        for (int b = 0; b < numBands; b++) {
+            // The least float not less than low and the greatest float
+            // not greater than high select the same values as the
+            // double bounds; NaN bounds stay NaN and match nothing.
+            float l = (float)low[b];
+            if (l < low[b]) {
+                l = Math.nextUp(l);
+            }
+            float h = (float)high[b];
+            if (h > high[b]) {
+                h = Math.nextDown(h);
+            }
+            lo[b] = l;
+            hi[b] = h;
+            c[b] = (float)constants[b];
+        }
+
+        int length = lines.getRunLength();
+        int sStride = lines.getStride(0);
+        int dStride = lines.getStride(1);
+
+        for (int r = 0; r < lines.getNumRuns(); r++) {
+            int[] bands = lines.getBands(r);
+            int period = bands.length;
+            float[] loPattern = VectorUtil.pattern(bands, lo, FLOAT.length());
+            float[] hiPattern = VectorUtil.pattern(bands, hi, FLOAT.length());
+            float[] cPattern = VectorUtil.pattern(bands, c, FLOAT.length());
+
+            float[] s = (float[])lines.getData(0, r);
+            float[] d = (float[])lines.getData(1, r);
+
+            for (int y = 0; y < lines.getNumLines(); y++) {
+                int sOffset = lines.getOffset(0, r, y);
+                int dOffset = lines.getOffset(1, r, y);
+
+                int i = 0;
+                if (sStride == 1 && dStride == 1) {
+                    for (int bound = FLOAT.loopBound(length); i < bound;
+                         i += FLOAT.length()) {
+                        int p = i % period;
+                        FloatVector v =
+                            FloatVector.fromArray(FLOAT, s, sOffset + i);
+                        VectorMask<Float> inside =
+                            v.compare(VectorOperators.GE,
+                                      FloatVector.fromArray(FLOAT, loPattern, p))
+                             .and(v.compare(VectorOperators.LE,
+                                            FloatVector.fromArray(FLOAT, hiPattern, p)));
+                        v.blend(FloatVector.fromArray(FLOAT, cPattern, p), inside)
+                         .intoArray(d, dOffset + i);
+                    }
+                }
+
+                for (; i < length; i++) {
+                    int p = i % period;
+                    float v = s[sOffset + i * sStride];
+                    d[dOffset + i * dStride] =
+                        v >= loPattern[p] && v <= hiPattern[p] ? cPattern[p] : v;
+                }
+            }
+        }
+    }
+}
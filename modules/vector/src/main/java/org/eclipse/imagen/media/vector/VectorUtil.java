@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen.media.vector;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.renderable.ParameterBlock;
+import jdk.incubator.vector.FloatVector;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.JAI;
+import org.eclipse.imagen.OpImage;
+import org.eclipse.imagen.RasterAccessor;
+import org.eclipse.imagen.RasterFormatTag;
+import org.eclipse.imagen.util.ImagingListener;
+
+/**
+ * Utilities shared by the operators implemented with the Vector API.
+ *
+ * <p> The operators are only used when the
+ * <code>jdk.incubator.vector</code> module has been resolved, for
+ * example with <code>--add-modules jdk.incubator.vector</code>, and
+ * the preferred vector shape of the platform holds at least four
+ * floats.  They may be disabled by setting the system property
+ * <code>org.eclipse.imagen.media.disableVector</code> to
+ * <code>true</code>.
+ */
+final class VectorUtil {
+
+    private static boolean useVectorVar = false;
+    private static boolean useVectorVarSet = false;
+
+    private VectorUtil() {}
+
+    /** Returns <code>true</code> if the Vector API may be used. */
+    static synchronized boolean useVector() {
+        if (!useVectorVarSet) {
+            setUseVector();
+            useVectorVarSet = true;
+        }
+
+        return useVectorVar;
+    }
+
+    private static void setUseVector() {
+        boolean disableVector = false;
+        try {
+            disableVector =
+                Boolean.getBoolean("org.eclipse.imagen.media.disableVector");
+        } catch (SecurityException e) {
+            // Use the Vector API if the property may not be read.
+        }
+
+        if (disableVector) {
+            useVectorVar = false;
+            return;
+        }
+
+        try {
+            // Load the API before any class of this package refers to it.
+            Class.forName("jdk.incubator.vector.FloatVector", false,
+                          VectorUtil.class.getClassLoader());
+        } catch (ClassNotFoundException cnfe) {
+            useVectorVar = false;
+            forwardToListener(JaiI18N.getString("VectorUtil0"), cnfe);
+            return;
+        } catch (LinkageError le) {
+            useVectorVar = false;
+            forwardToListener(JaiI18N.getString("VectorUtil0"), le);
+            return;
+        }
+
+        useVectorVar = Species.isAccelerated();
+        if (!useVectorVar) {
+            forwardToListener(JaiI18N.getString("VectorUtil1"), null);
+        }
+    }
+
+    /**
+     * Forwards the supplied message and exception to the
+     * <code>ImagingListener</code> set on the default JAI instance.
+     */
+    private static void forwardToListener(String message,
+                                          Throwable thrown) {
+        ImagingListener listener =
+            JAI.getDefaultInstance().getImagingListener();
+
+        if (listener != null) {
+            listener.errorOccurred(message, thrown, VectorUtil.class, false);
+        } else {
+            System.err.println(message);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the data type is one of those
+     * handled by the vector operators: <code>TYPE_BYTE</code>,
+     * <code>TYPE_USHORT</code>, <code>TYPE_SHORT</code> and
+     * <code>TYPE_FLOAT</code>.
+     */
+    static boolean isSupportedDataType(int dataType) {
+        return dataType == DataBuffer.TYPE_BYTE ||
+               dataType == DataBuffer.TYPE_USHORT ||
+               dataType == DataBuffer.TYPE_SHORT ||
+               dataType == DataBuffer.TYPE_FLOAT;
+    }
+
+    /**
+     * Returns <code>true</code> if the Vector API is available and
+     * the sources and the destination layout have a
+     * <code>ComponentSampleModel</code> of a supported data type and
+     * either no <code>ColorModel</code> or a
+     * <code>ComponentColorModel</code>.
+     *
+     * @param args  Input arguments that include sources.
+     * @param layout  Destination image layout; may be <code>null</code>.
+     */
+    static boolean isVectorCompatible(ParameterBlock args,
+                                      ImageLayout layout) {
+        if (!useVector()) {
+            return false;
+        }
+
+        int numSrcs = args.getNumSources();
+        for (int i = 0; i < numSrcs; i++) {
+            Object src = args.getSource(i);
+            if (!(src instanceof RenderedImage)) {
+                return false;
+            }
+            RenderedImage image = (RenderedImage)src;
+            if (!isVectorCompatible(image.getSampleModel(),
+                                    image.getColorModel())) {
+                return false;
+            }
+        }
+
+        if (layout != null) {
+            SampleModel sm = layout.getSampleModel(null);
+            if (sm != null && !isVectorCompatible(sm, null)) {
+                return false;
+            }
+
+            ColorModel cm = layout.getColorModel(null);
+            if (cm != null && !(cm instanceof ComponentColorModel)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isVectorCompatible(SampleModel sm,
+                                              ColorModel cm) {
+        return sm instanceof ComponentSampleModel &&
+               isSupportedDataType(sm.getDataType()) &&
+               (cm == null || cm instanceof ComponentColorModel);
+    }
+
+    /**
+     * Returns <code>true</code> if the data of an image and its
+     * sources are accessed with a supported data type.  This may not
+     * be the case when the sources have different data types from
+     * that of the image, which is only known once it is constructed.
+     */
+    static boolean isVectorCompatible(OpImage image) {
+        if (!isVectorCompatible(image.getSampleModel(),
+                                image.getColorModel())) {
+            return false;
+        }
+
+        RenderedImage[] sources = new RenderedImage[image.getNumSources()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = image.getSourceImage(i);
+        }
+
+        RasterFormatTag[] tags =
+            RasterAccessor.findCompatibleTags(sources, image);
+        for (int i = 0; i < tags.length; i++) {
+            int dataType =
+                tags[i].getFormatTagID() & RasterAccessor.DATATYPE_MASK;
+            if (!isSupportedDataType(dataType)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if all the sources and the destination
+     * layout, if specified, have the same number of bands.
+     */
+    static boolean hasSameNumBands(ParameterBlock args,
+                                   ImageLayout layout) {
+        int numSrcs = args.getNumSources();
+
+        if (numSrcs > 0) {
+            RenderedImage src = args.getRenderedSource(0);
+            int numBands = src.getSampleModel().getNumBands();
+
+            for (int i = 1; i < numSrcs; i++) {
+                src = args.getRenderedSource(i);
+                if (src.getSampleModel().getNumBands() != numBands) {
+                    return false;
+                }
+            }
+
+            if (layout != null) {
+                SampleModel sm = layout.getSampleModel(null);
+                if (sm != null && sm.getNumBands() != numBands) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns an array of <code>bands.length + length</code> elements
+     * holding the per-band values in the order of the bands of a run,
+     * so that the values for the run elements starting at
+     * <code>i</code> may be loaded at <code>i % bands.length</code>.
+     */
+    static byte[] pattern(int[] bands, byte[] values, int length) {
+        byte[] pattern = new byte[bands.length + length];
+        for (int i = 0; i < pattern.length; i++) {
+            pattern[i] = values[bands[i % bands.length]];
+        }
+        return pattern;
+    }
+
+    /** Returns a pattern of <code>short</code> per-band values. */
+    static short[] pattern(int[] bands, short[] values, int length) {
+        short[] pattern = new short[bands.length + length];
+        for (int i = 0; i < pattern.length; i++) {
+            pattern[i] = values[bands[i % bands.length]];
+        }
+        return pattern;
+    }
+
+    /** Returns a pattern of <code>float</code> per-band values. */
+    static float[] pattern(int[] bands, float[] values, int length) {
+        float[] pattern = new float[bands.length + length];
+        for (int i = 0; i < pattern.length; i++) {
+            pattern[i] = values[bands[i % bands.length]];
+        }
+        return pattern;
+    }
+
+    /**
+     * Isolates the references to the Vector API so that they are only
+     * resolved once the module is known to be present.
+     */
+    private static final class Species {
+        static boolean isAccelerated() {
+            return FloatVector.SPECIES_PREFERRED.length() >= 4;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.imagen.media.vector;
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.awt.image.renderable.RenderedImageFactory;
+import org.eclipse.imagen.ImageLayout;
+import org.eclipse.imagen.OpImage;
+import org.eclipse.imagen.media.opimage.RIFUtil;
+
+/**
+ * A <code>RIF</code> supporting the "Xor" operation in the
+ * rendered image mode using the Vector API.
+ *
+ * @see org.eclipse.imagen.operator.XorDescriptor
+ * @see VectorLogicalOpImage
+ *
+ */
+public class VectorXorRIF implements RenderedImageFactory {
+
+    /** Constructor. */
+    public VectorXorRIF() {}
+
+    /**
+     * Creates a new instance of <code>VectorLogicalOpImage</code> in
+     * the rendered image mode.
+     *
+     * @param args  The two source images.
+     * @param hints  May contain rendering hints and destination image layout.
+     */
+    public RenderedImage create(ParameterBlock args,
+                                RenderingHints hints) {
+        /* Get ImageLayout from RenderingHints. */
+        ImageLayout layout = RIFUtil.getImageLayoutHint(hints);
+
+        if (!VectorUtil.isVectorCompatible(args, layout) ||
+            !VectorUtil.hasSameNumBands(args, layout)) {
+            return null;
+        }
+
+        OpImage image = new VectorLogicalOpImage(args.getRenderedSource(0),
+                                                 args.getRenderedSource(1),
+                                                 hints, layout,
+                                                 VectorLogicalOpImage.XOR);
+
+        // Logical operations are only defined on integral data.
+        if (image.getSampleModel().getDataType() == DataBuffer.TYPE_FLOAT ||
+            !VectorUtil.isVectorCompatible(image)) {
+            return null;
+        }
+        return image;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.eclipse.imagen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the registry file of the vector module gives the same
+ * registry whether the registry files are read in eagerly or lazily.
+ */
+public class LazyRegistryTest {
+
+    private static final String VECTOR_PRODUCT = "org.eclipse.imagen.vector";
+
+    private static OperationRegistry initializeRegistry(boolean lazy) {
+        String previous = System.getProperty(
+            OperationRegistry.LAZY_INITIALIZATION);
+
+        System.setProperty(OperationRegistry.LAZY_INITIALIZATION,
+                           String.valueOf(lazy));
+        try {
+            return OperationRegistry.initializeRegistry();
+        } finally {
+            if (previous == null) {
+                System.clearProperty(OperationRegistry.LAZY_INITIALIZATION);
+            } else {
+                System.setProperty(OperationRegistry.LAZY_INITIALIZATION,
+                                   previous);
+            }
+        }
+    }
+
+    @Test
+    public void testAddPreferenceSurvivesLazyRegistration() {
+        OperationRegistry eager = initializeRegistry(false);
+        OperationRegistry lazy = initializeRegistry(true);
+
+        // "add" must be the first name looked up in the lazy registry.
+        List lazyProducts = lazy.getOrderedProductList("rendered", "add");
+        List eagerProducts = eager.getOrderedProductList("rendered", "add");
+
+        assertEquals(VECTOR_PRODUCT, eagerProducts.get(0));
+        assertEquals(eagerProducts, lazyProducts);
+        assertEquals(eager.getFactory("rendered", "add").getClass(),
+                     lazy.getFactory("rendered", "add").getClass());
+    }
+}